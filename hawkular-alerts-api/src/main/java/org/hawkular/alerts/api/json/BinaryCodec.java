@@ -0,0 +1,372 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.api.json;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Binary encoding of the Jackson token stream of a value.
+ *
+ * The value is serialized and deserialized with the same ObjectMapper and deserializers used for json, only the
+ * tokenization changes: tokens are tagged with one byte, numbers are stored as varints or raw IEEE 754 bits, and
+ * field names and short string values are written once per payload and then referenced by index. Alerts and events
+ * repeat the same names and ids many times in their evalSets, so the payload is much smaller than its json and is
+ * read without any text parsing.
+ *
+ * A payload starts with {@link #MAGIC}, a byte that is never the first byte of a json text in UTF-8, followed by the
+ * format version.
+ */
+final class BinaryCodec {
+
+    static final byte MAGIC = (byte) 0xB1;
+    static final byte VERSION = 1;
+
+    private static final byte START_OBJECT = 1;
+    private static final byte END_OBJECT = 2;
+    private static final byte START_ARRAY = 3;
+    private static final byte END_ARRAY = 4;
+    private static final byte FIELD = 5;
+    private static final byte FIELD_REF = 6;
+    private static final byte STRING = 7;
+    private static final byte STRING_REF = 8;
+    private static final byte INT = 9;
+    private static final byte LONG = 10;
+    private static final byte FLOAT = 11;
+    private static final byte DOUBLE = 12;
+    private static final byte BIG_INTEGER = 13;
+    private static final byte BIG_DECIMAL = 14;
+    private static final byte TRUE = 15;
+    private static final byte FALSE = 16;
+    private static final byte NULL = 17;
+
+    /*
+        Longer string values are not worth a dictionary entry
+     */
+    private static final int MAX_REF_LENGTH = 64;
+
+    private BinaryCodec() {
+    }
+
+    static boolean isBinary(ByteBuffer payload) {
+        return payload.remaining() > 0 && payload.get(payload.position()) == MAGIC;
+    }
+
+    static byte[] encode(ObjectMapper mapper, Object value) throws IOException {
+        TokenBuffer tokens = new TokenBuffer(mapper, false);
+        mapper.writeValue(tokens, value);
+        Writer out = new Writer();
+        out.write(MAGIC);
+        out.write(VERSION);
+        Map<String, Integer> fields = new HashMap<>();
+        Map<String, Integer> strings = new HashMap<>();
+        try (JsonParser parser = tokens.asParser()) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                switch (token) {
+                    case START_OBJECT:
+                        out.write(START_OBJECT);
+                        break;
+                    case END_OBJECT:
+                        out.write(END_OBJECT);
+                        break;
+                    case START_ARRAY:
+                        out.write(START_ARRAY);
+                        break;
+                    case END_ARRAY:
+                        out.write(END_ARRAY);
+                        break;
+                    case FIELD_NAME:
+                        writeString(out, parser.getCurrentName(), fields, FIELD, FIELD_REF);
+                        break;
+                    case VALUE_STRING:
+                        String text = parser.getText();
+                        if (text.length() <= MAX_REF_LENGTH) {
+                            writeString(out, text, strings, STRING, STRING_REF);
+                        } else {
+                            out.write(STRING);
+                            out.writeString(text);
+                        }
+                        break;
+                    case VALUE_NUMBER_INT:
+                        switch (parser.getNumberType()) {
+                            case INT:
+                                out.write(INT);
+                                out.writeVarLong(zigZag(parser.getIntValue()));
+                                break;
+                            case LONG:
+                                out.write(LONG);
+                                out.writeVarLong(zigZag(parser.getLongValue()));
+                                break;
+                            default:
+                                out.write(BIG_INTEGER);
+                                out.writeString(parser.getBigIntegerValue().toString());
+                        }
+                        break;
+                    case VALUE_NUMBER_FLOAT:
+                        switch (parser.getNumberType()) {
+                            case FLOAT:
+                                out.write(FLOAT);
+                                out.writeFixed(Float.floatToIntBits(parser.getFloatValue()), 4);
+                                break;
+                            case DOUBLE:
+                                out.write(DOUBLE);
+                                out.writeFixed(Double.doubleToLongBits(parser.getDoubleValue()), 8);
+                                break;
+                            default:
+                                out.write(BIG_DECIMAL);
+                                out.writeString(parser.getDecimalValue().toString());
+                        }
+                        break;
+                    case VALUE_TRUE:
+                        out.write(TRUE);
+                        break;
+                    case VALUE_FALSE:
+                        out.write(FALSE);
+                        break;
+                    case VALUE_NULL:
+                        out.write(NULL);
+                        break;
+                    default:
+                        throw new IOException("Token " + token + " not supported in binary payloads");
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    static <T> T decode(ObjectMapper mapper, ByteBuffer payload, Class<T> clazz) throws IOException {
+        Reader in = new Reader(payload);
+        if (in.read() != MAGIC) {
+            throw new IOException("Not a binary payload");
+        }
+        byte version = in.read();
+        if (version != VERSION) {
+            throw new IOException("Binary payload version " + version + " not supported");
+        }
+        List<String> fields = new ArrayList<>();
+        List<String> strings = new ArrayList<>();
+        TokenBuffer tokens = new TokenBuffer(mapper, false);
+        while (in.hasRemaining()) {
+            byte tag = in.read();
+            switch (tag) {
+                case START_OBJECT:
+                    tokens.writeStartObject();
+                    break;
+                case END_OBJECT:
+                    tokens.writeEndObject();
+                    break;
+                case START_ARRAY:
+                    tokens.writeStartArray();
+                    break;
+                case END_ARRAY:
+                    tokens.writeEndArray();
+                    break;
+                case FIELD:
+                    String field = in.readString();
+                    fields.add(field);
+                    tokens.writeFieldName(field);
+                    break;
+                case FIELD_REF:
+                    tokens.writeFieldName(ref(fields, in.readVarLong()));
+                    break;
+                case STRING:
+                    String text = in.readString();
+                    if (text.length() <= MAX_REF_LENGTH) {
+                        strings.add(text);
+                    }
+                    tokens.writeString(text);
+                    break;
+                case STRING_REF:
+                    tokens.writeString(ref(strings, in.readVarLong()));
+                    break;
+                case INT:
+                    tokens.writeNumber((int) unZigZag(in.readVarLong()));
+                    break;
+                case LONG:
+                    tokens.writeNumber(unZigZag(in.readVarLong()));
+                    break;
+                case FLOAT:
+                    tokens.writeNumber(Float.intBitsToFloat((int) in.readFixed(4)));
+                    break;
+                case DOUBLE:
+                    tokens.writeNumber(Double.longBitsToDouble(in.readFixed(8)));
+                    break;
+                case BIG_INTEGER:
+                    tokens.writeNumber(new BigInteger(in.readString()));
+                    break;
+                case BIG_DECIMAL:
+                    tokens.writeNumber(new BigDecimal(in.readString()));
+                    break;
+                case TRUE:
+                    tokens.writeBoolean(true);
+                    break;
+                case FALSE:
+                    tokens.writeBoolean(false);
+                    break;
+                case NULL:
+                    tokens.writeNull();
+                    break;
+                default:
+                    throw new IOException("Invalid binary payload tag " + tag);
+            }
+        }
+        try (JsonParser parser = tokens.asParser()) {
+            return mapper.readValue(parser, clazz);
+        }
+    }
+
+    private static void writeString(Writer out, String s, Map<String, Integer> dictionary, byte tag, byte refTag) {
+        Integer index = dictionary.get(s);
+        if (null != index) {
+            out.write(refTag);
+            out.writeVarLong(index);
+        } else {
+            dictionary.put(s, dictionary.size());
+            out.write(tag);
+            out.writeString(s);
+        }
+    }
+
+    private static String ref(List<String> dictionary, long index) throws IOException {
+        if (index < 0 || index >= dictionary.size()) {
+            throw new IOException("Invalid binary payload reference " + index);
+        }
+        return dictionary.get((int) index);
+    }
+
+    private static long zigZag(long n) {
+        return (n << 1) ^ (n >> 63);
+    }
+
+    private static long unZigZag(long n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private static final class Writer {
+        private byte[] buf = new byte[512];
+        private int len = 0;
+
+        private void ensure(int n) {
+            if (len + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+            }
+        }
+
+        void write(byte b) {
+            ensure(1);
+            buf[len++] = b;
+        }
+
+        void writeVarLong(long n) {
+            ensure(10);
+            while ((n & ~0x7FL) != 0) {
+                buf[len++] = (byte) ((n & 0x7F) | 0x80);
+                n >>>= 7;
+            }
+            buf[len++] = (byte) n;
+        }
+
+        void writeFixed(long bits, int bytes) {
+            ensure(bytes);
+            for (int i = bytes - 1; i >= 0; i--) {
+                buf[len++] = (byte) (bits >>> (i * 8));
+            }
+        }
+
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, len, bytes.length);
+            len += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, len);
+        }
+    }
+
+    private static final class Reader {
+        private final ByteBuffer buf;
+
+        Reader(ByteBuffer payload) {
+            this.buf = payload.duplicate();
+        }
+
+        boolean hasRemaining() {
+            return buf.hasRemaining();
+        }
+
+        byte read() throws IOException {
+            if (!buf.hasRemaining()) {
+                throw new IOException("Truncated binary payload");
+            }
+            return buf.get();
+        }
+
+        long readVarLong() throws IOException {
+            long n = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = read();
+                n |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return n;
+                }
+            }
+            throw new IOException("Invalid binary payload varint");
+        }
+
+        long readFixed(int bytes) throws IOException {
+            long bits = 0;
+            for (int i = 0; i < bytes; i++) {
+                bits = (bits << 8) | (read() & 0xFF);
+            }
+            return bits;
+        }
+
+        String readString() throws IOException {
+            long length = readVarLong();
+            if (length < 0 || length > buf.remaining()) {
+                throw new IOException("Truncated binary payload");
+            }
+            String s;
+            if (buf.hasArray()) {
+                s = new String(buf.array(), buf.arrayOffset() + buf.position(), (int) length, StandardCharsets.UTF_8);
+                buf.position(buf.position() + (int) length);
+            } else {
+                byte[] bytes = new byte[(int) length];
+                buf.get(bytes);
+                s = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return s;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.api.json;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.hawkular.alerts.api.model.data.Data;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Streaming readers of bulk data, used to ingest large volumes of {@link Data} without holding the whole request in
+ * memory.
+ *
+ * Data is parsed as it is read and delivered in chunks. The dataId of each datum is checked against a filter before
+ * the datum is built, so data that would be discarded by the engine is never allocated.
+ *
+ * Two formats are supported:
+ * <ul>
+ *     <li>Json: a json array, or a sequence of json objects (i.e. NDJSON), of data. Data with the id as first field
+ *     is skipped without parsing its value and context.</li>
+ *     <li>Batch: a compact binary columnar format for numeric data, see {@link #writeBatch(Collection, OutputStream)}.
+ *     Each dataId is written once in a dictionary and it is filtered once per batch.</li>
+ * </ul>
+ *
+ * Malformed input is reported as an IllegalArgumentException. Chunks read before the error have already been
+ * delivered.
+ */
+public final class DataCodec {
+
+    public static final byte MAGIC = (byte) 0xDA;
+    public static final byte VERSION = 1;
+
+    /**
+     * Max number of data in a block of a batch, it bounds the memory used to read a block.
+     */
+    public static final int MAX_BLOCK_SIZE = 64 * 1024;
+
+    private static final int MAX_IDS = 1024 * 1024;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private DataCodec() {
+    }
+
+    /**
+     * Read data in json format.
+     *
+     * @param in the json stream, a json array or a sequence of json objects
+     * @param filter dataIds to keep, data with other dataIds is skipped
+     * @param chunkSize max number of data delivered on each chunk
+     * @param chunks consumer of the chunks of filtered data
+     * @return the number of data read, including the skipped data
+     * @throws IOException on errors reading the stream
+     */
+    public static int readJson(InputStream in, Predicate<String> filter, int chunkSize, Consumer<List<Data>> chunks)
+            throws IOException {
+        Chunks out = new Chunks(chunkSize, chunks);
+        int read = 0;
+        try (JsonParser parser = JSON.createParser(in)) {
+            JsonToken token = parser.nextToken();
+            boolean array = token == JsonToken.START_ARRAY;
+            if (array) {
+                token = parser.nextToken();
+            }
+            while (token == JsonToken.START_OBJECT) {
+                read++;
+                Data data = readData(parser, filter);
+                if (data != null) {
+                    out.add(data);
+                }
+                token = parser.nextToken();
+            }
+            if (array && token == JsonToken.END_ARRAY) {
+                token = parser.nextToken();
+            }
+            if (token != null) {
+                throw new IllegalArgumentException("Bad json data: unexpected " + token + " at "
+                        + parser.getCurrentLocation());
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Bad json data: " + e.getMessage(), e);
+        }
+        out.flush();
+        return read;
+    }
+
+    private static Data readData(JsonParser parser, Predicate<String> filter) throws IOException {
+        String id = null;
+        long timestamp = 0;
+        String value = null;
+        Map<String, String> context = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "id":
+                    id = scalar(parser, token);
+                    if (id == null || !filter.test(id)) {
+                        skipObject(parser);
+                        return null;
+                    }
+                    break;
+                case "timestamp":
+                    scalar(parser, token);
+                    timestamp = parser.getValueAsLong();
+                    break;
+                case "value":
+                    value = scalar(parser, token);
+                    break;
+                case "context":
+                    context = readContext(parser, token);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (id == null) {
+            return null;
+        }
+        Data data = new Data(id, timestamp, value);
+        if (context != null) {
+            data.setContext(context);
+        }
+        return data;
+    }
+
+    private static String scalar(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw new IllegalArgumentException("Bad json data: unexpected " + token + " for field "
+                    + parser.getCurrentName() + " at " + parser.getCurrentLocation());
+        }
+        return parser.getText();
+    }
+
+    private static Map<String, String> readContext(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Bad json data: unexpected " + token + " for context at "
+                    + parser.getCurrentLocation());
+        }
+        Map<String, String> context = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            context.put(name, scalar(parser, parser.nextToken()));
+        }
+        return context;
+    }
+
+    private static void skipObject(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            parser.nextToken();
+            parser.skipChildren();
+        }
+    }
+
+    /**
+     * Read data in batch format.
+     *
+     * @param in the batch stream
+     * @param filter dataIds to keep, data with other dataIds is skipped
+     * @param chunkSize max number of data delivered on each chunk
+     * @param chunks consumer of the chunks of filtered data
+     * @return the number of data read, including the skipped data
+     * @throws IOException on errors reading the stream
+     */
+    public static int readBatch(InputStream in, Predicate<String> filter, int chunkSize, Consumer<List<Data>> chunks)
+            throws IOException {
+        Chunks out = new Chunks(chunkSize, chunks);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        int read = 0;
+        try {
+            if (input.readByte() != MAGIC || input.readByte() != VERSION) {
+                throw new IllegalArgumentException("Bad data batch: unknown format");
+            }
+            /*
+                Filtered out dataIds are kept as null entries of the dictionary
+             */
+            List<String> ids = new ArrayList<>();
+            int[] indexes = new int[0];
+            long[] timestamps = new long[0];
+            while (true) {
+                int newIds = input.readInt();
+                if (newIds < 0 || ids.size() + newIds > MAX_IDS) {
+                    throw new IllegalArgumentException("Bad data batch: dictionary exceeds " + MAX_IDS + " ids");
+                }
+                for (int i = 0; i < newIds; i++) {
+                    String id = input.readUTF();
+                    ids.add(filter.test(id) ? id : null);
+                }
+                int count = input.readInt();
+                if (count < 0 || count > MAX_BLOCK_SIZE) {
+                    throw new IllegalArgumentException("Bad data batch: block size " + count + " exceeds "
+                            + MAX_BLOCK_SIZE);
+                }
+                if (newIds == 0 && count == 0) {
+                    break;
+                }
+                if (indexes.length < count) {
+                    indexes = new int[count];
+                    timestamps = new long[count];
+                }
+                for (int i = 0; i < count; i++) {
+                    indexes[i] = input.readInt();
+                    if (indexes[i] < 0 || indexes[i] >= ids.size()) {
+                        throw new IllegalArgumentException("Bad data batch: unknown id index " + indexes[i]);
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    timestamps[i] = input.readLong();
+                }
+                for (int i = 0; i < count; i++) {
+                    double value = input.readDouble();
+                    String id = ids.get(indexes[i]);
+                    if (id != null) {
+                        out.add(Data.forNumeric(id, timestamps[i], value));
+                    }
+                }
+                read += count;
+            }
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Bad data batch: truncated", e);
+        }
+        out.flush();
+        return read;
+    }
+
+    /**
+     * Write numeric data in batch format.
+     *
+     * The batch starts with {@link #MAGIC} and {@link #VERSION} bytes followed by a sequence of blocks. Each block
+     * holds:
+     * <ul>
+     *     <li>the dataIds added to the dictionary: an int count and the ids as modified UTF-8 strings,</li>
+     *     <li>an int count of data, up to {@link #MAX_BLOCK_SIZE},</li>
+     *     <li>the columns of the data: int indexes in the dictionary, long timestamps and double values.</li>
+     * </ul>
+     * The batch ends with an empty block, so a truncated batch is detected. All numbers are big-endian.
+     *
+     * @param data the numeric data to write
+     * @param out the stream to write, it is flushed but not closed
+     * @throws IOException on errors writing the stream
+     */
+    public static void writeBatch(Collection<Data> data, OutputStream out) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        output.writeByte(MAGIC);
+        output.writeByte(VERSION);
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<Data> block = new ArrayList<>();
+        List<String> newIds = new ArrayList<>();
+        Iterator<Data> it = data.iterator();
+        while (it.hasNext()) {
+            block.clear();
+            newIds.clear();
+            while (it.hasNext() && block.size() < MAX_BLOCK_SIZE) {
+                Data d = it.next();
+                if (d.getId() == null) {
+                    throw new IllegalArgumentException("Data id must be not null");
+                }
+                if (!dictionary.containsKey(d.getId())) {
+                    dictionary.put(d.getId(), dictionary.size());
+                    newIds.add(d.getId());
+                }
+                block.add(d);
+            }
+            output.writeInt(newIds.size());
+            for (String id : newIds) {
+                output.writeUTF(id);
+            }
+            output.writeInt(block.size());
+            for (Data d : block) {
+                output.writeInt(dictionary.get(d.getId()));
+            }
+            for (Data d : block) {
+                output.writeLong(d.getTimestamp());
+            }
+            for (Data d : block) {
+                try {
+                    output.writeDouble(Double.parseDouble(d.getValue()));
+                } catch (NullPointerException | NumberFormatException e) {
+                    throw new IllegalArgumentException("Data " + d.getId() + " has a non numeric value "
+                            + d.getValue());
+                }
+            }
+        }
+        output.writeInt(0);
+        output.writeInt(0);
+        output.flush();
+    }
+
+    private static class Chunks {
+        private final int size;
+        private final Consumer<List<Data>> consumer;
+        private List<Data> chunk;
+
+        Chunks(int size, Consumer<List<Data>> consumer) {
+            if (size < 1) {
+                throw new IllegalArgumentException("Chunk size must be positive");
+            }
+            this.size = size;
+            this.consumer = consumer;
+        }
+
+        void add(Data data) {
+            if (chunk == null) {
+                chunk = new ArrayList<>(size);
+            }
+            chunk.add(data);
+            if (chunk.size() == size) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (chunk != null) {
+                consumer.accept(chunk);
+                chunk = null;
+            }
+        }
+    }
+}
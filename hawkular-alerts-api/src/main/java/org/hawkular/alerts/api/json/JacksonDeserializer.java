@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.hawkular.alerts.api.model.action.Action;
 import org.hawkular.alerts.api.model.condition.AvailabilityCondition;
@@ -43,15 +44,19 @@ import org.hawkular.alerts.api.model.condition.ThresholdCondition;
 import org.hawkular.alerts.api.model.condition.ThresholdConditionEval;
 import org.hawkular.alerts.api.model.condition.ThresholdRangeCondition;
 import org.hawkular.alerts.api.model.condition.ThresholdRangeConditionEval;
+import org.hawkular.alerts.api.model.dampening.Dampening;
 import org.hawkular.alerts.api.model.data.AvailabilityType;
 import org.hawkular.alerts.api.model.event.Alert;
 import org.hawkular.alerts.api.model.event.Event;
 import org.hawkular.alerts.api.model.event.Thin;
+import org.hawkular.alerts.api.model.trigger.FullTrigger;
 import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
 
 import com.fasterxml.jackson.core.JsonLocation;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.ObjectCodec;
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.DeserializationConfig;
@@ -377,6 +382,96 @@ public class JacksonDeserializer {
         return map;
     }
 
+    public static FullTrigger deserializeFullTrigger(JsonNode node, ObjectCodec objectCodec) throws IOException {
+        if (node == null) {
+            return null;
+        }
+
+        FullTrigger fullTrigger = new FullTrigger();
+        JsonNode triggerNode = node.get("trigger");
+        if (triggerNode != null && !triggerNode.isNull()) {
+            fullTrigger.setTrigger(objectCodec.treeToValue(triggerNode, Trigger.class));
+        }
+        JsonNode dampeningsNode = node.get("dampenings");
+        if (dampeningsNode != null) {
+            for (JsonNode dampeningNode : dampeningsNode) {
+                fullTrigger.getDampenings().add(objectCodec.treeToValue(dampeningNode, Dampening.class));
+            }
+        }
+        JsonNode conditionsNode = node.get("conditions");
+        if (conditionsNode != null) {
+            for (JsonNode conditionNode : conditionsNode) {
+                fullTrigger.getConditions().add(deserializeCondition(conditionNode));
+            }
+        }
+        JsonNode actionsNode = node.get("actions");
+        if (actionsNode != null) {
+            for (JsonNode actionNode : actionsNode) {
+                fullTrigger.getActions().add(deserializeMap(actionNode));
+            }
+        }
+        return fullTrigger;
+    }
+
+    /**
+     * Iterates the FullTriggers of a json stream, either a json array or a sequence of json objects (i.e. NDJSON).
+     * A FullTrigger is parsed when it is requested, so the stream is never held in memory as a whole.
+     * Malformed json is reported as an IllegalArgumentException.
+     */
+    public static class FullTriggerIterator implements Iterator<FullTrigger> {
+        private final JsonParser parser;
+        private JsonToken token;
+
+        /**
+         * @param parser a parser of the stream with an ObjectCodec, i.e. created from an ObjectMapper
+         */
+        public FullTriggerIterator(JsonParser parser) {
+            this.parser = parser;
+            token = nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = nextToken();
+            }
+            checkToken();
+        }
+
+        private JsonToken nextToken() {
+            try {
+                return parser.nextToken();
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Bad json full triggers: " + e.getMessage(), e);
+            }
+        }
+
+        private void checkToken() {
+            if (token != null && token != JsonToken.START_OBJECT && token != JsonToken.END_ARRAY) {
+                throw new IllegalArgumentException("Bad json full triggers: unexpected " + token + " at "
+                        + parser.getCurrentLocation());
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return token == JsonToken.START_OBJECT;
+        }
+
+        @Override
+        public FullTrigger next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            FullTrigger fullTrigger;
+            try {
+                JsonNode node = parser.readValueAsTree();
+                fullTrigger = deserializeFullTrigger(node, parser.getCodec());
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Bad json full trigger: " + e.getMessage(), e);
+            }
+            token = nextToken();
+            checkToken();
+            return fullTrigger;
+        }
+    }
+
     public static class ConditionEvalException extends JsonProcessingException {
         private static final long serialVersionUID = 1L;
 
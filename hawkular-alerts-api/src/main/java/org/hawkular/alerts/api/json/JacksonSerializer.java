@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.api.json;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Thin;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+
+public class JacksonSerializer {
+
+    /**
+     * Counterpart of {@link JacksonDeserializer.AlertThinDeserializer}, it leaves out the {@link Thin} fields when an
+     * Alert or an Action is serialized.
+     */
+    public static class AlertThinSerializer extends BeanSerializerModifier {
+
+        List<String> ignorables = new ArrayList<>();
+
+        public AlertThinSerializer() {
+            for (Class clazz = Alert.class; (null != clazz); clazz = clazz.getSuperclass()) {
+                for (Field field : clazz.getDeclaredFields()) {
+                    if (field.isAnnotationPresent(Thin.class)) {
+                        ignorables.add(field.getName());
+                    }
+                }
+            }
+            for (Field field : Action.class.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Thin.class)) {
+                    ignorables.add(field.getName());
+                }
+            }
+        }
+
+        @Override
+        public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc,
+                List<BeanPropertyWriter> beanProperties) {
+            if (!beanDesc.getBeanClass().equals(Alert.class) && !beanDesc.getBeanClass().equals(Action.class)) {
+                return beanProperties;
+            }
+            List<BeanPropertyWriter> newBeanProperties = new ArrayList<>();
+            for (BeanPropertyWriter beanProperty : beanProperties) {
+                if (!ignorables.contains(beanProperty.getName())) {
+                    newBeanProperties.add(beanProperty);
+                }
+            }
+            return newBeanProperties;
+        }
+    }
+}
@@ -17,6 +17,8 @@
 package org.hawkular.alerts.api.json;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -38,13 +40,19 @@ public class JsonUtil {
 
         SimpleModule simpleModule = new SimpleModule();
         simpleModule.setDeserializerModifier(new JacksonDeserializer.AlertThinDeserializer());
+        simpleModule.setSerializerModifier(new JacksonSerializer.AlertThinSerializer());
         mapperThin = new ObjectMapper();
         mapperThin.registerModule(simpleModule);
     }
 
     public static String toJson(Object resource) {
+        return toJson(resource, false);
+    }
+
+    public static String toJson(Object resource, boolean thin) {
         try {
-            return instance.mapper.writeValueAsString(resource);
+            return thin ? instance.mapperThin.writeValueAsString(resource) :
+                    instance.mapper.writeValueAsString(resource);
         } catch (JsonProcessingException e) {
             throw new IllegalStateException(e);
         }
@@ -61,4 +69,46 @@ public class JsonUtil {
             throw new IllegalStateException(e);
         }
     }
+
+    public static ByteBuffer toBinary(Object resource) {
+        return toBinary(resource, false);
+    }
+
+    /**
+     * Serialize a resource in the compact binary payload format used to store alerts and events.
+     *
+     * @param resource the resource to serialize
+     * @param thin true to leave out the evalSets and resolvedEvalSets of an alert
+     * @return the binary payload
+     */
+    public static ByteBuffer toBinary(Object resource, boolean thin) {
+        try {
+            return ByteBuffer.wrap(BinaryCodec.encode(thin ? instance.mapperThin : instance.mapper, resource));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Deserialize a stored payload, either in binary format or a json text in UTF-8 written by previous versions.
+     *
+     * @param payload the stored payload
+     * @param clazz the class of the resource
+     * @param thin true to skip the evalSets and resolvedEvalSets of an alert
+     * @return the resource, or null if the payload is null
+     */
+    public static <T> T fromPayload(ByteBuffer payload, Class<T> clazz, boolean thin) {
+        if (null == payload) {
+            return null;
+        }
+        ObjectMapper objectMapper = thin ? instance.mapperThin : instance.mapper;
+        try {
+            if (BinaryCodec.isBinary(payload)) {
+                return BinaryCodec.decode(objectMapper, payload, clazz);
+            }
+            return objectMapper.readValue(StandardCharsets.UTF_8.decode(payload.duplicate()).toString(), clazz);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -36,14 +36,28 @@ import java.util.stream.Stream;
  * @since 0.0.1
  */
 public final class Page<T> implements List<T> {
+    public static final long UNKNOWN_SIZE = -1;
+
     private final List<T> wrapped;
     private final PageContext pageContext;
     private final long totalSize;
+    private final String nextCursor;
 
     public Page(List<T> wrapped, PageContext pageContext, long totalSize) {
+        this(wrapped, pageContext, totalSize, null);
+    }
+
+    /**
+     * @param wrapped the elements of the page
+     * @param pageContext the paging of the page
+     * @param totalSize the total number of results, or {@link #UNKNOWN_SIZE} if it is not known
+     * @param nextCursor the cursor of the following page, or null if this is the last one
+     */
+    public Page(List<T> wrapped, PageContext pageContext, long totalSize, String nextCursor) {
         this.wrapped = wrapped;
         this.pageContext = pageContext;
         this.totalSize = totalSize;
+        this.nextCursor = nextCursor;
     }
 
     /**
@@ -54,12 +68,23 @@ public final class Page<T> implements List<T> {
     }
 
     /**
+     * Pages fetched with a {@link Pager#isCursor() cursor} pager do not count the overall results and return
+     * {@link #UNKNOWN_SIZE}.
+     *
      * @return the total number of results of which this page is a subset of
      */
     public long getTotalSize() {
         return totalSize;
     }
 
+    /**
+     * @return the opaque cursor to fetch the next page with a {@link Pager#isCursor() cursor} pager, or null if
+     * there are no more results
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
     @Override
     public boolean add(T t) {
         throw new UnsupportedOperationException();
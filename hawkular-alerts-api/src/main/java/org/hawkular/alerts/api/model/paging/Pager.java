@@ -17,15 +17,24 @@
 package org.hawkular.alerts.api.model.paging;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Specifies the requirements on the paging of some results.
  *
+ * <p>A pager works either by page number, or, in the {@link #isCursor() cursor} mode, by continuing from the opaque
+ * cursor returned with the previous page in {@link Page#getNextCursor()}. Cursors are only valid for the same query
+ * and order they were returned for.
+ *
  * @author Lukas Krejci
  * @since 0.0.1
  */
 public final class Pager extends PageContext {
+    private final boolean cursorMode;
+    private final String cursor;
+
     public static Builder builder() {
         return new Builder();
     }
@@ -50,6 +59,31 @@ public final class Pager extends PageContext {
         return new Pager(0, UNLIMITED_PAGE_SIZE, order);
     }
 
+    /**
+     * A pager in cursor mode.
+     *
+     * @param cursor the cursor of the page to fetch as returned by {@link Page#getNextCursor()}, or null for the
+     *               first page
+     * @param pageSize the number of the elements on the page
+     * @param order the ordering of the results
+     * @return a new pager instance
+     */
+    public static Pager cursor(String cursor, int pageSize, Order... order) {
+        return new Pager(cursor, pageSize, Arrays.asList(order));
+    }
+
+    /**
+     * Same as {@link #cursor(String, int, Order...)} but the ordering represented by a collection.
+     *
+     * @param cursor the cursor of the page to fetch, or null for the first page
+     * @param pageSize the number of the elements on the page
+     * @param order the ordering of the results
+     * @return a new pager instance
+     */
+    public static Pager cursor(String cursor, int pageSize, Iterable<Order> order) {
+        return new Pager(cursor, pageSize, order);
+    }
+
     /**
      * @param pageNumber the number of the page to fetch
      * @param pageSize   the number of the elements on the page
@@ -57,6 +91,8 @@ public final class Pager extends PageContext {
      */
     public Pager(int pageNumber, int pageSize, Order... orders) {
         super(pageNumber, pageSize, orders);
+        this.cursorMode = false;
+        this.cursor = null;
     }
 
     /**
@@ -67,6 +103,28 @@ public final class Pager extends PageContext {
      */
     public Pager(int pageNumber, int pageSize, Iterable<Order> orders) {
         super(pageNumber, pageSize, orders);
+        this.cursorMode = false;
+        this.cursor = null;
+    }
+
+    private Pager(String cursor, int pageSize, Iterable<Order> orders) {
+        super(0, pageSize, orders);
+        this.cursorMode = true;
+        this.cursor = cursor;
+    }
+
+    /**
+     * @return true if the pages are fetched by cursor instead of by page number
+     */
+    public boolean isCursor() {
+        return cursorMode;
+    }
+
+    /**
+     * @return the cursor of the page to fetch, null for the first page or if this pager is not in cursor mode
+     */
+    public String getCursor() {
+        return cursor;
     }
 
     /**
@@ -75,9 +133,14 @@ public final class Pager extends PageContext {
      * If this is an unlimited pager, then simply returns this very pager because there can be no other page of the
      * results.
      *
+     * A cursor pager can not compute its next page by itself, see {@link #nextPage(String)}.
+     *
      * @return a new pager instance
      */
     public Pager nextPage() {
+        if (cursorMode) {
+            return this;
+        }
         if (getPageSize() >= 0) {
             return new Pager(getPageNumber() + 1, getPageSize(), getOrder());
         } else {
@@ -85,6 +148,16 @@ public final class Pager extends PageContext {
         }
     }
 
+    /**
+     * Returns the cursor pager pointing to the page that follows the one fetched with this pager.
+     *
+     * @param nextCursor the {@link Page#getNextCursor()} of the page fetched with this pager
+     * @return a new pager instance
+     */
+    public Pager nextPage(String nextCursor) {
+        return new Pager(nextCursor, getPageSize(), getOrder());
+    }
+
     /**
      * If this is a limited pager ({@link #isLimited()}), returns the pager pointing to the previous page of the
      * results.
@@ -92,9 +165,14 @@ public final class Pager extends PageContext {
      * If this is an unlimited pager, then simply returns this very pager because there can be no other page of the
      * results.
      *
+     * Cursors only move forward, a cursor pager returns this very pager.
+     *
      * @return a new pager instance
      */
     public Pager previousPage() {
+        if (cursorMode) {
+            return this;
+        }
         if (getPageNumber() > 0 && getPageSize() >= 0) {
             return new Pager(getPageNumber() - 1, getPageSize(), getOrder());
         } else {
@@ -102,9 +180,38 @@ public final class Pager extends PageContext {
         }
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Pager)) return false;
+        if (!super.equals(o)) return false;
+
+        Pager that = (Pager) o;
+
+        return cursorMode == that.cursorMode && Objects.equals(cursor, that.cursor);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + (cursorMode ? 1 : 0);
+        result = 31 * result + (cursor != null ? cursor.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        if (!cursorMode) {
+            return super.toString();
+        }
+        return "PagingState[" + "order=" + getOrder() + ", cursor=" + cursor + ", pageSize=" + getPageSize() + ']';
+    }
+
     public static final class Builder {
         private int pageNumber;
         private int pageSize;
+        private boolean cursorMode;
+        private String cursor;
         private List<Order> order = new ArrayList<>();
 
         private Builder() {
@@ -120,6 +227,17 @@ public final class Pager extends PageContext {
             return this;
         }
 
+        /**
+         * Build a cursor pager.
+         *
+         * @param cursor the cursor of the page to fetch, or null for the first page
+         */
+        public Builder withCursor(String cursor) {
+            this.cursorMode = true;
+            this.cursor = cursor;
+            return this;
+        }
+
         public Builder orderBy(String field, Order.Direction direction) {
             order.add(Order.by(field, direction));
             return this;
@@ -139,6 +257,9 @@ public final class Pager extends PageContext {
         }
 
         public Pager build() {
+            if (cursorMode) {
+                return new Pager(cursor, pageSize, order);
+            }
             return new Pager(pageNumber, pageSize, order);
         }
     }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.api.model.stats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Counts of alerts per time bucket of their ctime, grouped by the field of an
+ * {@link org.hawkular.alerts.api.services.AlertsStatsCriteria}. Buckets with no alerts are not listed.
+ */
+public class AlertsStats {
+
+    /**
+     * Counts of the alerts created in a time bucket
+     */
+    public static class Bucket {
+
+        @JsonInclude
+        private long start;
+
+        @JsonInclude
+        private Map<String, Long> counts = new HashMap<>();
+
+        public Bucket() {
+        }
+
+        public Bucket(long start) {
+            this.start = start;
+        }
+
+        /**
+         * @return start time of the bucket, millisecond since epoch
+         */
+        public long getStart() {
+            return start;
+        }
+
+        public void setStart(long start) {
+            this.start = start;
+        }
+
+        public Map<String, Long> getCounts() {
+            return counts;
+        }
+
+        public void setCounts(Map<String, Long> counts) {
+            this.counts = counts;
+        }
+
+        public void add(String group, long count) {
+            counts.merge(group, count, Long::sum);
+        }
+
+        @Override
+        public String toString() {
+            return "Bucket [start=" + start + ", counts=" + counts + "]";
+        }
+    }
+
+    @JsonInclude
+    private long bucketSize;
+
+    @JsonInclude
+    private List<Bucket> buckets = new ArrayList<>();
+
+    @JsonInclude
+    private Map<String, Long> totals = new HashMap<>();
+
+    public AlertsStats() {
+    }
+
+    public AlertsStats(long bucketSize) {
+        this.bucketSize = bucketSize;
+    }
+
+    /**
+     * @return size of the time buckets, in milliseconds
+     */
+    public long getBucketSize() {
+        return bucketSize;
+    }
+
+    public void setBucketSize(long bucketSize) {
+        this.bucketSize = bucketSize;
+    }
+
+    /**
+     * @return the buckets with alerts, ordered by start time
+     */
+    public List<Bucket> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(List<Bucket> buckets) {
+        this.buckets = buckets;
+    }
+
+    /**
+     * @return counts of all the buckets
+     */
+    public Map<String, Long> getTotals() {
+        return totals;
+    }
+
+    public void setTotals(Map<String, Long> totals) {
+        this.totals = totals;
+    }
+
+    /**
+     * Add the counts of a bucket, dropping the zero counts, and sum them in the totals. Buckets must be added in
+     * order.
+     */
+    public void addBucket(Bucket bucket) {
+        bucket.getCounts().values().removeIf(count -> count == 0);
+        if (bucket.getCounts().isEmpty()) {
+            return;
+        }
+        buckets.add(bucket);
+        bucket.getCounts().forEach((group, count) -> totals.merge(group, count, Long::sum));
+    }
+
+    @Override
+    public String toString() {
+        return "AlertsStats [bucketSize=" + bucketSize + ", buckets=" + buckets + ", totals=" + totals + "]";
+    }
+}
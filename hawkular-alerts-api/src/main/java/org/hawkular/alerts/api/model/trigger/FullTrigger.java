@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.api.model.trigger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A complete Trigger definition as it is imported or exported in bulk: the trigger with its dampenings, its
+ * conditions and the definitions of the actions it references.
+ * <p>
+ * Each action definition is the map of properties of the action plus the <code>actionPlugin</code> and
+ * <code>actionId</code> entries, as it is stored by the DefinitionsService.
+ * </p>
+ */
+public class FullTrigger {
+
+    @JsonInclude
+    private Trigger trigger;
+
+    @JsonInclude
+    private List<Dampening> dampenings;
+
+    @JsonInclude
+    private List<Condition> conditions;
+
+    @JsonInclude
+    private List<Map<String, String>> actions;
+
+    public FullTrigger() {
+        this(null, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+    }
+
+    public FullTrigger(Trigger trigger, List<Dampening> dampenings, List<Condition> conditions,
+            List<Map<String, String>> actions) {
+        this.trigger = trigger;
+        this.dampenings = dampenings;
+        this.conditions = conditions;
+        this.actions = actions;
+    }
+
+    public Trigger getTrigger() {
+        return trigger;
+    }
+
+    public void setTrigger(Trigger trigger) {
+        this.trigger = trigger;
+    }
+
+    public List<Dampening> getDampenings() {
+        return dampenings;
+    }
+
+    public void setDampenings(List<Dampening> dampenings) {
+        this.dampenings = dampenings;
+    }
+
+    /**
+     * @return the conditions of all the modes of the trigger, in condition set order
+     */
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+
+    public void setConditions(List<Condition> conditions) {
+        this.conditions = conditions;
+    }
+
+    public List<Map<String, String>> getActions() {
+        return actions;
+    }
+
+    public void setActions(List<Map<String, String>> actions) {
+        this.actions = actions;
+    }
+
+    @Override
+    public String toString() {
+        return "FullTrigger [trigger=" + trigger + ", dampenings=" + dampenings + ", conditions=" + conditions
+                + ", actions=" + actions + "]";
+    }
+}
@@ -16,6 +16,9 @@
  */
 package org.hawkular.alerts.api.services;
 
+import java.util.Iterator;
+import java.util.concurrent.CompletionStage;
+
 import org.hawkular.alerts.api.model.action.Action;
 import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.Pager;
@@ -53,6 +56,29 @@ public interface ActionsService {
      */
     Page<Action> getActions(String tenantId, ActionsCriteria criteria, Pager pager) throws Exception;
 
+    /**
+     * Asynchronous form of {@link #getActions(String, ActionsCriteria, Pager)}, the calling thread does not wait for
+     * the query.
+     *
+     * @param tenantId Tenant where actions are stored
+     * @param criteria If null returns all actions (not recommended)
+     * @param pager Paging requirement for fetching actions. Optional. Return all if null.
+     * @return Completed with the page of actions, or exceptionally with any problem.
+     */
+    CompletionStage<Page<Action>> getActionsAsync(String tenantId, ActionsCriteria criteria, Pager pager);
+
+    /**
+     * Iterate the full result of an actions query in the order of the pager, for streaming large results. The
+     * actions are read in chunks as the iteration proceeds. The paging parameters other than the order are ignored.
+     *
+     * @param tenantId Tenant where actions are stored
+     * @param criteria If null iterates all actions
+     * @param pager The order of the result. Optional.
+     * @return NotNull, the actions. The iteration throws an unchecked exception on a read failure.
+     * @throws Exception any problem resolving the query
+     */
+    Iterator<Action> iterateActions(String tenantId, ActionsCriteria criteria, Pager pager) throws Exception;
+
     /**
      * Delete the requested Actions from the history, as described by the provided criteria.
      *
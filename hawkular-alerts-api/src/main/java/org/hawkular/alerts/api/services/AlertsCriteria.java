@@ -202,6 +202,44 @@ public class AlertsCriteria {
                 || hasTriggerIdCriteria();
     }
 
+    /**
+     * Evaluate the criteria on a single alert, as a query would, for the alerts not read from the backend.
+     *
+     * @param alert the alert to check
+     * @return true if the alert satisfies every restriction of the criteria
+     */
+    public boolean matches(Alert alert) {
+        if (null != startTime && alert.getCtime() < startTime) {
+            return false;
+        }
+        if (null != endTime && alert.getCtime() > endTime) {
+            return false;
+        }
+        if (hasAlertIdCriteria() && !matches(alertId, alertIds, alert.getAlertId())) {
+            return false;
+        }
+        if (hasStatusCriteria() && !matches(status, statusSet, alert.getStatus())) {
+            return false;
+        }
+        if (hasSeverityCriteria() && !matches(severity, severities, alert.getSeverity())) {
+            return false;
+        }
+        if (hasTriggerIdCriteria()) {
+            String alertTriggerId = null == alert.getTrigger() ? null : alert.getTriggerId();
+            if (!matches(triggerId, triggerIds, alertTriggerId)) {
+                return false;
+            }
+        }
+        return !hasTagCriteria() || EventsCriteria.matchesAnyTag(tags, alert.getTags());
+    }
+
+    /*
+        The collection takes precedence over the single value, as in the queries
+     */
+    private static <T> boolean matches(T value, Collection<T> values, T actual) {
+        return null != values && !values.isEmpty() ? values.contains(actual) : value.equals(actual);
+    }
+
     @Override
     public String toString() {
         return "AlertsCriteria [startTime=" + startTime + ", endTime=" + endTime + ", alertId=" + alertId
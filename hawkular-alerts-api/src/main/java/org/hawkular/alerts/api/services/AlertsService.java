@@ -17,8 +17,10 @@
 package org.hawkular.alerts.api.services;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 
 import org.hawkular.alerts.api.model.condition.ConditionEval;
 import org.hawkular.alerts.api.model.data.Data;
@@ -26,6 +28,7 @@ import org.hawkular.alerts.api.model.event.Alert;
 import org.hawkular.alerts.api.model.event.Event;
 import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.Pager;
+import org.hawkular.alerts.api.model.stats.AlertsStats;
 
 /**
  * Interface that allows to send data to the alerts engine and check resulting state.
@@ -114,6 +117,25 @@ public interface AlertsService {
      */
     Page<Alert> getAlerts(String tenantId, AlertsCriteria criteria, Pager pager) throws Exception;
 
+    /**
+     * Count the alerts per time bucket, as described by the provided criteria. The counts are maintained as the
+     * alerts are added, transition and are deleted, so the alerts themselves are not fetched.
+     * @param tenantId Tenant where alerts are stored
+     * @param criteria specifying the grouping and the filters. Not null.
+     * @return NotNull, the alerts counts. Buckets with no alerts are not included.
+     * @throws Exception any problem
+     */
+    AlertsStats getAlertsStats(String tenantId, AlertsStatsCriteria criteria) throws Exception;
+
+    /**
+     * Recompute the alerts counts of a tenant from the stored alerts. Used to repair counts that drifted, i.e. after
+     * a failed write or an upgrade from a version without maintained counts.
+     * @param tenantId Tenant where alerts are stored
+     * @return the number of alerts counted
+     * @throws Exception any problem
+     */
+    int rebuildAlertsStats(String tenantId) throws Exception;
+
     /**
      * @param tenantId Tenant where events are stored
      * @param eventId the Event to get.
@@ -132,6 +154,53 @@ public interface AlertsService {
      */
     Page<Event> getEvents(String tenantId, EventsCriteria criteria, Pager pager) throws Exception;
 
+    /**
+     * Asynchronous form of {@link #getAlerts(String, AlertsCriteria, Pager)}, the calling thread does not wait for
+     * the query. The reads are composed without blocking when the backend allows it, the rest of the queries run on
+     * a bounded pool of threads.
+     *
+     * @param tenantId Tenant where alerts are stored
+     * @param criteria If null returns all alerts (not recommended)
+     * @param pager Paging requirement for fetching alerts. Optional. Return all if null.
+     * @return Completed with the page of alerts, or exceptionally with any problem.
+     */
+    CompletionStage<Page<Alert>> getAlertsAsync(String tenantId, AlertsCriteria criteria, Pager pager);
+
+    /**
+     * Asynchronous form of {@link #getEvents(String, EventsCriteria, Pager)}, as
+     * {@link #getAlertsAsync(String, AlertsCriteria, Pager)}.
+     *
+     * @param tenantId Tenant where events are stored
+     * @param criteria If null returns all events (not recommended)
+     * @param pager Paging requirement for fetching events. Optional. Return all if null.
+     * @return Completed with the page of events, or exceptionally with any problem.
+     */
+    CompletionStage<Page<Event>> getEventsAsync(String tenantId, EventsCriteria criteria, Pager pager);
+
+    /**
+     * Iterate the full result of an alerts query in the order of the pager, for streaming large results. The alerts
+     * are read in chunks as the iteration proceeds, so the memory used does not depend on the size of the result
+     * when the backend can read the query in order. The paging parameters other than the order are ignored.
+     *
+     * @param tenantId Tenant where alerts are stored
+     * @param criteria If null iterates all alerts
+     * @param pager The order of the result. Optional.
+     * @return NotNull, the alerts. The iteration throws an unchecked exception on a read failure.
+     * @throws Exception any problem resolving the query
+     */
+    Iterator<Alert> iterateAlerts(String tenantId, AlertsCriteria criteria, Pager pager) throws Exception;
+
+    /**
+     * Iterate the full result of an events query, as {@link #iterateAlerts(String, AlertsCriteria, Pager)}.
+     *
+     * @param tenantId Tenant where events are stored
+     * @param criteria If null iterates all events
+     * @param pager The order of the result. Optional.
+     * @return NotNull, the events. The iteration throws an unchecked exception on a read failure.
+     * @throws Exception any problem resolving the query
+     */
+    Iterator<Event> iterateEvents(String tenantId, EventsCriteria criteria, Pager pager) throws Exception;
+
     /**
      * The alerts must already have been added. Set the alerts to RESOLVED status. The resolvedTime will be set to the
      * system time.  If the call leaves the trigger with no unresolved alerts then:<br>
@@ -177,4 +246,27 @@ public interface AlertsService {
      * @throws Exception any problem.
      */
     void sendData(Collection<Data> data) throws Exception;
+
+    /**
+     * Send data into the alerting system for evaluation on this node only.
+     * In a distributed scenario the data is not propagated to the rest of the nodes, so it is intended for sources
+     * that already deliver the same data to every node, i.e. a subscription to a bus topic.
+     *
+     * @param data Not Null.  The data to be evaluated by the alerting engine.
+     * @throws Exception any problem.
+     */
+    void sendLocalData(Collection<Data> data) throws Exception;
+
+    /**
+     * Register a listener of the alerts and events stored by this node, as they are written. In a distributed
+     * scenario every node notifies only the changes it stores.
+     *
+     * @param listener Not Null. The listener to notify.
+     */
+    void registerListener(EventsListener listener);
+
+    /**
+     * @param listener Not Null. A listener previously registered, not notified any more.
+     */
+    void unregisterListener(EventsListener listener);
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.api.services;
+
+import java.util.Collection;
+
+import org.hawkular.alerts.api.model.Severity;
+import org.hawkular.alerts.api.model.event.Alert;
+
+/**
+ * Query criteria for the alerts statistics. The alerts are counted in the time buckets of their ctime, grouped by one
+ * field and optionally filtered by the others.
+ */
+public class AlertsStatsCriteria {
+
+    public enum GroupBy {
+        STATUS, SEVERITY, TRIGGER, TAG
+    }
+
+    Long startTime = null;
+    Long endTime = null;
+    GroupBy groupBy = GroupBy.STATUS;
+    String tagName = null;
+    Collection<Alert.Status> statusSet = null;
+    Collection<Severity> severities = null;
+    Collection<String> triggerIds = null;
+
+    public AlertsStatsCriteria() {
+        super();
+    }
+
+    public Long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @param startTime counted Alerts must have cTime greater than or equal to startTime, rounded down to the start
+     * of its time bucket
+     */
+    public void setStartTime(Long startTime) {
+        this.startTime = startTime;
+    }
+
+    public Long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * @param endTime counted Alerts must have cTime less than or equal to endTime, rounded up to the end of its time
+     * bucket
+     */
+    public void setEndTime(Long endTime) {
+        this.endTime = endTime;
+    }
+
+    public GroupBy getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * @param groupBy field the counts are grouped by, STATUS by default
+     */
+    public void setGroupBy(GroupBy groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    public String getTagName() {
+        return tagName;
+    }
+
+    /**
+     * @param tagName with TAG grouping, the tag whose values are counted. All the tags are counted, as 'name|value',
+     * if not set.
+     */
+    public void setTagName(String tagName) {
+        this.tagName = tagName;
+    }
+
+    public Collection<Alert.Status> getStatusSet() {
+        return statusSet;
+    }
+
+    public void setStatusSet(Collection<Alert.Status> statusSet) {
+        this.statusSet = statusSet;
+    }
+
+    public Collection<Severity> getSeverities() {
+        return severities;
+    }
+
+    /**
+     * @param severities counted alerts must have one of these severities. Not supported with TAG grouping.
+     */
+    public void setSeverities(Collection<Severity> severities) {
+        this.severities = severities;
+    }
+
+    public Collection<String> getTriggerIds() {
+        return triggerIds;
+    }
+
+    /**
+     * @param triggerIds counted alerts must be for one of the specified triggers. Not supported with TAG grouping.
+     */
+    public void setTriggerIds(Collection<String> triggerIds) {
+        this.triggerIds = triggerIds;
+    }
+
+    public boolean hasStatusCriteria() {
+        return null != statusSet && !statusSet.isEmpty();
+    }
+
+    public boolean hasSeverityCriteria() {
+        return null != severities && !severities.isEmpty();
+    }
+
+    public boolean hasTriggerIdCriteria() {
+        return null != triggerIds && !triggerIds.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "AlertsStatsCriteria [startTime=" + startTime + ", endTime=" + endTime + ", groupBy=" + groupBy
+                + ", tagName=" + tagName + ", statusSet=" + statusSet + ", severities=" + severities
+                + ", triggerIds=" + triggerIds + "]";
+    }
+}
@@ -17,13 +17,16 @@
 package org.hawkular.alerts.api.services;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 
 import org.hawkular.alerts.api.model.condition.Condition;
 import org.hawkular.alerts.api.model.dampening.Dampening;
 import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.Pager;
+import org.hawkular.alerts.api.model.trigger.FullTrigger;
 import org.hawkular.alerts.api.model.trigger.Mode;
 import org.hawkular.alerts.api.model.trigger.Trigger;
 import org.hawkular.alerts.api.services.DefinitionsEvent.Type;
@@ -160,6 +163,17 @@ public interface DefinitionsService {
      */
     Page<Trigger> getTriggers(String tenantId, TriggersCriteria criteria, Pager pager) throws Exception;
 
+    /**
+     * Asynchronous form of {@link #getTriggers(String, TriggersCriteria, Pager)}, the calling thread does not wait
+     * for the query.
+     *
+     * @param tenantId Tenant where triggers are stored
+     * @param criteria If null returns all triggers for the tenant (not recommended)
+     * @param pager Paging requirement for fetching triggers. Optional. Return all if null.
+     * @return Completed with the page of triggers, or exceptionally with any problem.
+     */
+    CompletionStage<Page<Trigger>> getTriggersAsync(String tenantId, TriggersCriteria criteria, Pager pager);
+
     /**
      * Get the member triggers for the specified group trigger.
      * @param tenantId Tenant for the group trigger
@@ -220,6 +234,43 @@ public interface DefinitionsService {
     Trigger unorphanMemberTrigger(String tenantId, String memberId, Map<String, String> memberContext,
             Map<String, String> dataIdMap) throws Exception;
 
+    /*
+        Bulk interface for full Trigger definitions
+     */
+
+    /**
+     * Import full trigger definitions in bulk.  The definitions are consumed from the iterator as they are
+     * persisted, in batches of <code>hawkular-alerts.import-batch</code> triggers, so they can be parsed from a
+     * stream while they are imported.  An imported trigger replaces a stored trigger with the same id, its
+     * conditions and dampenings included.  Referenced actions are created or updated.
+     * <p>
+     * Unlike the single definition calls, each listener is notified once at the end of the import and the imported
+     * triggers are loaded into the engine in bulk.
+     * </p>
+     * @param tenantId Tenant where the triggers are imported
+     * @param fullTriggers The full trigger definitions to import
+     * @return the number of imported triggers
+     * @throws Exception on any problem. The batches persisted before the failure remain imported.
+     */
+    int importTriggers(String tenantId, Iterator<FullTrigger> fullTriggers) throws Exception;
+
+    /**
+     * Get the full definitions of all the triggers of a tenant, as they are imported by
+     * {@link #importTriggers(String, Iterator)}.
+     * @param tenantId Tenant where the triggers are stored
+     * @throws Exception on any problem
+     */
+    Collection<FullTrigger> getFullTriggers(String tenantId) throws Exception;
+
+    /**
+     * Iterate the full definitions of all the triggers of a tenant, as {@link #getFullTriggers(String)}. The
+     * definitions are read by chunks as the iteration proceeds, so an export does not hold the whole tenant at once.
+     * @param tenantId Tenant where the triggers are stored
+     * @return NotNull, the full triggers. The iteration throws an unchecked exception on a read failure.
+     * @throws Exception on any problem
+     */
+    Iterator<FullTrigger> iterateFullTriggers(String tenantId) throws Exception;
+
     /*
         CRUD interface for Dampening
      */
@@ -316,6 +367,14 @@ public interface DefinitionsService {
      */
     Collection<Dampening> getDampenings(String tenantId) throws Exception;
 
+    /**
+     * @param tenantId Tenant where dampenings are stored
+     * @param triggerIds Given triggers
+     * @return The existing dampenings of the given triggers, for all trigger modes. Not null.
+     * @throws Exception on any problem
+     */
+    Collection<Dampening> getDampenings(String tenantId, Collection<String> triggerIds) throws Exception;
+
     /*
         CRUD interface for Condition
      */
@@ -460,6 +519,14 @@ public interface DefinitionsService {
 
     Collection<Condition> getConditions(String tenantId) throws Exception;
 
+    /**
+     * @param tenantId Tenant where triggers and their conditions are stored
+     * @param triggerIds Given triggers
+     * @return The existing conditions of the given triggers, for all trigger modes. Not null.
+     * @throws Exception on any problem
+     */
+    Collection<Condition> getConditions(String tenantId, Collection<String> triggerIds) throws Exception;
+
     Collection<Condition> getAllConditions() throws Exception;
 
     /*
@@ -20,6 +20,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.hawkular.alerts.api.model.event.Event;
+
 /**
  * Query criteria for fetching Alerts.
  * @author jay shaughnessy
@@ -175,6 +177,57 @@ public class EventsCriteria {
                 || hasTriggerIdCriteria();
     }
 
+    /**
+     * Evaluate the criteria on a single event, as a query would, for the events not read from the backend.
+     *
+     * @param event the event to check
+     * @return true if the event satisfies every restriction of the criteria
+     */
+    public boolean matches(Event event) {
+        if (null != startTime && event.getCtime() < startTime) {
+            return false;
+        }
+        if (null != endTime && event.getCtime() > endTime) {
+            return false;
+        }
+        if (hasEventIdCriteria() && !matches(eventId, eventIds, event.getId())) {
+            return false;
+        }
+        if (hasCategoryCriteria() && !matches(category, categories, event.getCategory())) {
+            return false;
+        }
+        if (hasTriggerIdCriteria()) {
+            String eventTriggerId = null == event.getTrigger() ? null : event.getTrigger().getId();
+            if (!matches(triggerId, triggerIds, eventTriggerId)) {
+                return false;
+            }
+        }
+        return !hasTagCriteria() || matchesAnyTag(tags, event.getTags());
+    }
+
+    /*
+        The collection takes precedence over the single value, as in the queries
+     */
+    private static boolean matches(String value, Collection<String> values, String actual) {
+        return null != values && !values.isEmpty() ? values.contains(actual) : value.equals(actual);
+    }
+
+    /*
+        Tags criteria select the elements with any of the tags, a '*' value matches any value of the tag
+     */
+    static boolean matchesAnyTag(Map<String, String> criteria, Map<String, String> tags) {
+        if (null == tags || tags.isEmpty()) {
+            return false;
+        }
+        for (Map.Entry<String, String> tag : criteria.entrySet()) {
+            String value = tags.get(tag.getKey());
+            if (null != value && ("*".equals(tag.getValue()) || tag.getValue().equals(value))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public String toString() {
         return "EventsCriteria [startTime=" + startTime + ", endTime=" + endTime + ", eventId=" + eventId
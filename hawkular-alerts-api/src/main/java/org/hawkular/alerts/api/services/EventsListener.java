@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.api.services;
+
+import java.util.Collection;
+
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+
+/**
+ * A listener for the alerts and events stored through the {@link AlertsService} of this node.
+ *
+ * Listeners are notified on the thread storing the changes, once they are written, so they must not block.
+ */
+public interface EventsListener {
+
+    /**
+     * @param alerts alerts added, or whose lifecycle changed, in their current state.
+     */
+    void onAlerts(Collection<Alert> alerts);
+
+    /**
+     * @param events events persisted, including the event of every added alert.
+     */
+    void onEvents(Collection<Event> events);
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hawkular.alerts.api.json.DataCodec;
+import org.hawkular.alerts.api.json.JsonUtil;
+import org.hawkular.alerts.api.model.data.Data;
+import org.junit.Test;
+
+/**
+ * Streaming readers of {@link DataCodec}.
+ */
+public class DataCodecTest {
+
+    private static final Set<String> ACTIVE = new HashSet<>(Arrays.asList("metric-0", "metric-2"));
+
+    private static List<Data> datums() {
+        List<Data> datums = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            datums.add(Data.forNumeric("metric-" + (i % 3), 1000L + i, i * 1.5));
+        }
+        datums.get(0).addProperty("unit", "ms");
+        return datums;
+    }
+
+    private static List<Data> active(List<Data> datums) {
+        List<Data> active = new ArrayList<>(datums);
+        active.removeIf(d -> !ACTIVE.contains(d.getId()));
+        return active;
+    }
+
+    private static List<Data> readJson(String json, int expectedRead) throws Exception {
+        List<Data> data = new ArrayList<>();
+        int read = DataCodec.readJson(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                ACTIVE::contains, 3, chunk -> {
+                    assertTrue(chunk.size() <= 3);
+                    data.addAll(chunk);
+                });
+        assertEquals(expectedRead, read);
+        return data;
+    }
+
+    private static List<Data> readBatch(byte[] batch) throws Exception {
+        List<Data> data = new ArrayList<>();
+        DataCodec.readBatch(new ByteArrayInputStream(batch), ACTIVE::contains, 3, data::addAll);
+        return data;
+    }
+
+    private static byte[] writeBatch(List<Data> datums) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataCodec.writeBatch(datums, out);
+        return out.toByteArray();
+    }
+
+    private static void assertSameData(List<Data> expected, List<Data> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i));
+            assertEquals(expected.get(i).getValue(), actual.get(i).getValue());
+        }
+    }
+
+    @Test
+    public void jsonArrayRoundTrip() throws Exception {
+        List<Data> datums = datums();
+        List<Data> data = readJson(JsonUtil.toJson(datums), datums.size());
+        assertSameData(active(datums), data);
+        assertEquals("ms", data.get(0).getContext().get("unit"));
+    }
+
+    @Test
+    public void ndjsonRoundTrip() throws Exception {
+        List<Data> datums = datums();
+        StringBuilder ndjson = new StringBuilder();
+        for (Data d : datums) {
+            ndjson.append(JsonUtil.toJson(d)).append('\n');
+        }
+        List<Data> data = readJson(ndjson.toString(), datums.size());
+        assertSameData(active(datums), data);
+        assertEquals("ms", data.get(0).getContext().get("unit"));
+    }
+
+    @Test
+    public void batchRoundTrip() throws Exception {
+        List<Data> datums = datums();
+        assertSameData(active(datums), readBatch(writeBatch(datums)));
+    }
+
+    @Test
+    public void truncatedBatch() throws Exception {
+        byte[] batch = writeBatch(datums());
+        try {
+            readBatch(Arrays.copyOf(batch, batch.length - 4));
+            fail("A truncated batch must be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("truncated"));
+        }
+    }
+
+    @Test
+    public void badTokens() throws Exception {
+        for (String json : new String[] { "[1]", "{\"id\":\"metric-0\",\"value\":[1]}", "[{\"id\":\"metric-0\"}",
+                "{\"id\":\"metric-0\",\"context\":\"ms\"}" }) {
+            try {
+                readJson(json, 0);
+                fail("Bad json must be rejected: " + json);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().startsWith("Bad json data"));
+            }
+        }
+    }
+
+    @Test
+    public void idNotFirst() throws Exception {
+        List<Data> data = readJson("{\"value\":\"1.5\",\"context\":{\"unit\":\"ms\"},\"timestamp\":5,"
+                + "\"id\":\"metric-0\"}{\"timestamp\":6,\"value\":\"2.5\",\"id\":\"metric-1\"}", 2);
+        assertEquals(1, data.size());
+        assertEquals("metric-0", data.get(0).getId());
+        assertEquals(5, data.get(0).getTimestamp());
+        assertEquals("1.5", data.get(0).getValue());
+        assertEquals("ms", data.get(0).getContext().get("unit"));
+    }
+
+    @Test
+    public void inactiveIdFiltered() throws Exception {
+        List<Data> data = readJson("{\"id\":\"metric-1\",\"timestamp\":5,\"value\":\"1.5\",\"context\":{\"a\":[1,{}]}}"
+                + "{\"id\":\"metric-2\",\"timestamp\":6,\"value\":\"2.5\"}", 2);
+        assertEquals(1, data.size());
+        assertEquals("metric-2", data.get(0).getId());
+
+        List<Data> datums = new ArrayList<>();
+        datums.add(Data.forNumeric("metric-1", 5, 1.5));
+        assertTrue(readBatch(writeBatch(datums)).isEmpty());
+    }
+}
@@ -21,13 +21,20 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.hawkular.alerts.api.json.JacksonDeserializer;
+import org.hawkular.alerts.api.json.JsonUtil;
 import org.hawkular.alerts.api.model.Severity;
 import org.hawkular.alerts.api.model.action.Action;
 import org.hawkular.alerts.api.model.condition.AvailabilityCondition;
@@ -52,12 +59,15 @@ import org.hawkular.alerts.api.model.dampening.Dampening;
 import org.hawkular.alerts.api.model.data.AvailabilityType;
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.FullTrigger;
 import org.hawkular.alerts.api.model.trigger.Match;
 import org.hawkular.alerts.api.model.trigger.Mode;
 import org.hawkular.alerts.api.model.trigger.Trigger;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 import com.fasterxml.jackson.databind.module.SimpleModule;
@@ -210,6 +220,54 @@ public class JsonTest {
         assertNull(alert.getEvalSets());
     }
 
+    @Test
+    public void binaryPayloadTest() throws Exception {
+        Trigger trigger = new Trigger(TEST_TENANT, "trigger-test", "trigger-test");
+        trigger.addContext("n1", "v1");
+        ThresholdCondition tCond = new ThresholdCondition("trigger-test", "Default",
+                ThresholdCondition.Operator.LTE, 50.0);
+        AvailabilityCondition aCond = new AvailabilityCondition("trigger-test", "Default",
+                AvailabilityCondition.Operator.UP);
+        List<Set<ConditionEval>> evalSets = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            evalSets.add(Collections.singleton(new ThresholdConditionEval(tCond,
+                    Data.forNumeric("Metric-test", i, -1.5 * i))));
+            evalSets.add(Collections.singleton(new AvailabilityConditionEval(aCond,
+                    Data.forAvailability("Metric-test2", Long.MAX_VALUE - i, AvailabilityType.UP))));
+        }
+        Alert alert = new Alert(TEST_TENANT, trigger, evalSets);
+        alert.setSeverity(Severity.HIGH);
+        alert.addNote("user1", "The comment \u00e9\u4e2d");
+
+        String json = JsonUtil.toJson(alert);
+        ByteBuffer binary = JsonUtil.toBinary(alert);
+        assertTrue(binary.remaining() < json.getBytes(StandardCharsets.UTF_8).length / 2);
+
+        Alert full = JsonUtil.fromPayload(binary, Alert.class, false);
+        assertEquals(json, JsonUtil.toJson(full));
+        assertEquals(20, full.getEvalSets().size());
+
+        Alert thin = JsonUtil.fromPayload(binary, Alert.class, true);
+        assertNull(thin.getEvalSets());
+        assertEquals(alert.getAlertId(), thin.getAlertId());
+        assertEquals(Severity.HIGH, thin.getSeverity());
+
+        // thin serialization leaves the evalSets out of the payload
+        ByteBuffer thinBinary = JsonUtil.toBinary(alert, true);
+        assertTrue(thinBinary.remaining() < binary.remaining() / 4);
+        assertNull(JsonUtil.fromPayload(thinBinary, Alert.class, false).getEvalSets());
+        assertFalse(JsonUtil.toJson(alert, true).contains("evalSets"));
+
+        // payloads stored as json text by previous versions
+        Alert legacy = JsonUtil.fromPayload(StandardCharsets.UTF_8.encode(json), Alert.class, false);
+        assertEquals(json, JsonUtil.toJson(legacy));
+
+        Event event = new Event(TEST_TENANT, "event-test", "Metric-test", "category", "text",
+                Collections.singletonMap("n1", "v1"));
+        json = JsonUtil.toJson(event);
+        assertEquals(json, JsonUtil.toJson(JsonUtil.fromPayload(JsonUtil.toBinary(event), Event.class, false)));
+    }
+
     @Test
     public void jsonAvailabilityConditionTest() throws Exception {
         String str = "{\"tenantId\":\"test\",\"triggerId\":\"test\",\"triggerMode\":\"FIRING\"," +
@@ -1301,4 +1359,52 @@ public class JsonTest {
         assertTrue(action.getEvent().getEvalSets() != null);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void jsonFullTriggersTest() throws Exception {
+        Trigger trigger = new Trigger(TEST_TENANT, "trigger-full", "trigger-full");
+        trigger.addAction("email", "email-to-admin");
+        Map<String, String> action = new HashMap<>();
+        action.put("actionPlugin", "email");
+        action.put("actionId", "email-to-admin");
+        action.put("to", "admin@hawkular.org");
+        List<Condition> conditions = new ArrayList<>();
+        conditions.add(new ThresholdCondition("trigger-full", Mode.FIRING, "NumericData-01",
+                ThresholdCondition.Operator.GT, 10.0));
+        conditions.add(new AvailabilityCondition("trigger-full", Mode.AUTORESOLVE, "Availability-01",
+                AvailabilityCondition.Operator.UP));
+        FullTrigger fullTrigger = new FullTrigger(trigger,
+                Collections.singletonList(Dampening.forStrict("trigger-full", Mode.FIRING, 3)), conditions,
+                Collections.singletonList(action));
+
+        String json = objectMapper.writeValueAsString(fullTrigger);
+        // a json array and a sequence of json objects
+        for (String stream : new String[] { "[" + json + "," + json + "]", json + "\n" + json + "\n" }) {
+            JsonParser parser = objectMapper.getFactory().createParser(stream);
+            JacksonDeserializer.FullTriggerIterator it = new JacksonDeserializer.FullTriggerIterator(parser);
+            int count = 0;
+            while (it.hasNext()) {
+                FullTrigger read = it.next();
+                count++;
+                assertEquals(trigger, read.getTrigger());
+                assertEquals(Collections.singleton("email-to-admin"), read.getTrigger().getActions().get("email"));
+                assertEquals(1, read.getDampenings().size());
+                assertEquals(3, read.getDampenings().get(0).getEvalTrueSetting());
+                assertEquals(2, read.getConditions().size());
+                assertTrue(read.getConditions().get(0) instanceof ThresholdCondition);
+                assertEquals(Mode.AUTORESOLVE, read.getConditions().get(1).getTriggerMode());
+                assertEquals(action, read.getActions().get(0));
+            }
+            assertEquals(2, count);
+        }
+
+        JsonParser parser = objectMapper.getFactory().createParser("[" + json + ", 3]");
+        JacksonDeserializer.FullTriggerIterator it = new JacksonDeserializer.FullTriggerIterator(parser);
+        try {
+            it.next();
+            fail("A number is not a full trigger");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+}
@@ -46,6 +46,18 @@ import org.jboss.logging.Logger;
 public class CacheManager {
     private final Logger log = Logger.getLogger(CacheManager.class);
 
+    /**
+     * Metrics and availability topics deliver every message to every node of a cluster.
+     * With "local" ingestion each node evaluates the data against the triggers it holds and the data is not
+     * propagated again across the cluster. With "broadcast" ingestion data received from the bus is propagated to
+     * the rest of the nodes, it is needed only if some nodes are not subscribed to the topics.
+     */
+    public static final String INGESTION_PROPERTY = "hawkular-alerts.bus-ingestion";
+    public static final String INGESTION_LOCAL = "local";
+    public static final String INGESTION_BROADCAST = "broadcast";
+
+    private boolean localIngestion;
+
     //public static final String CACHE_KEY_TRIGGER_UPDATE_TIME = "HawkularAlerts:TriggerUpdateTime";
     //public static final String CACHE_KEY_CONDITION_UPDATE_TIME = "HawkularAlerts:ConditionUpdateTime";
     //public static final String CACHE_KEY_DAMPENING_UPDATE_TIME = "HawkularAlerts:DampeningUpdateTime";
@@ -65,6 +77,8 @@ public class CacheManager {
     public void init() {
         // cache = cacheContainer.getCache();
 
+        localIngestion = !INGESTION_BROADCAST.equals(System.getProperty(INGESTION_PROPERTY, INGESTION_LOCAL));
+
         updateActiveIds();
 
         definitions.registerListener(new DefinitionsListener() {
@@ -75,6 +89,10 @@ public class CacheManager {
         }, DefinitionsEvent.Type.CONDITION_CHANGE);
     }
 
+    public boolean isLocalIngestion() {
+        return localIngestion;
+    }
+
     public Set<String> getActiveDataIds() {
         return activeDataIds;
     }
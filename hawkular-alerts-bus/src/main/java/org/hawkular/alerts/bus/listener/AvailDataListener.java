@@ -101,7 +101,11 @@ public class AvailDataListener extends BasicMessageListener<AvailDataMessage> {
                 "(filtered [" + (data.size() - alertData.size()) + "])...");
             }
             try {
-                alerts.sendData(alertData);
+                if (cacheManager.isLocalIngestion()) {
+                    alerts.sendLocalData(alertData);
+                } else {
+                    alerts.sendData(alertData);
+                }
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
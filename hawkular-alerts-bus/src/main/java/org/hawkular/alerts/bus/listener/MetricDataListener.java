@@ -98,7 +98,11 @@ public class MetricDataListener extends BasicMessageListener<MetricDataMessage>
                     "(filtered [" + (data.size() - alertData.size()) + "])...");
             }
             try {
-                alerts.sendData(alertData);
+                if (cacheManager.isLocalIngestion()) {
+                    alerts.sendLocalData(alertData);
+                } else {
+                    alerts.sendData(alertData);
+                }
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
@@ -16,43 +16,91 @@
  */
 package org.hawkular.alerts.engine;
 
+import java.io.IOException;
+
 import org.hawkular.alerts.api.services.ActionsService;
 import org.hawkular.alerts.api.services.AlertsService;
 import org.hawkular.alerts.api.services.DefinitionsService;
+import org.hawkular.alerts.engine.impl.AlertProperties;
 import org.hawkular.alerts.engine.impl.AlertsEngineImpl;
 import org.hawkular.alerts.engine.impl.CassActionsServiceImpl;
 import org.hawkular.alerts.engine.impl.CassAlertsServiceImpl;
 import org.hawkular.alerts.engine.impl.CassDefinitionsServiceImpl;
 import org.hawkular.alerts.engine.impl.DroolsRulesEngineImpl;
+import org.hawkular.alerts.engine.impl.EmbeddedActionsServiceImpl;
+import org.hawkular.alerts.engine.impl.EmbeddedAlertsServiceImpl;
+import org.hawkular.alerts.engine.impl.EmbeddedDefinitionsServiceImpl;
+import org.hawkular.alerts.engine.impl.EmbeddedStore;
 
 /**
  * Factory helper for standalone use cases.
  *
+ * The services are backed by Cassandra, or by an {@link EmbeddedStore} when hawkular-alerts.backend is embedded.
+ * The property is read here only: the services deployed as EJBs, used by the REST endpoints, are always the Cassandra
+ * ones, the embedded backend is available to standalone and test use through this factory.
+ *
  * @author Lucas Ponce
  */
 public class StandaloneAlerts {
 
+    static final String BACKEND = "hawkular-alerts.backend";
+    static final String CASSANDRA_BACKEND = "cassandra";
+    static final String EMBEDDED_BACKEND = "embedded";
+
     private static StandaloneAlerts instance = null;
 
-    private CassActionsServiceImpl actions = null;
-    private CassAlertsServiceImpl alerts = null;
-    private CassDefinitionsServiceImpl definitions = null;
+    private ActionsService actions = null;
+    private AlertsService alerts = null;
+    private DefinitionsService definitions = null;
     private AlertsEngineImpl engine = null;
     private DroolsRulesEngineImpl rules = null;
+    private EmbeddedStore store = null;
 
     private StandaloneAlerts() {
-        actions = new CassActionsServiceImpl();
         rules = new DroolsRulesEngineImpl();
         engine = new AlertsEngineImpl();
-        definitions = new CassDefinitionsServiceImpl();
-        alerts = new CassAlertsServiceImpl();
 
-        definitions.setAlertsEngine(engine);
+        if (EMBEDDED_BACKEND.equals(AlertProperties.getProperty(BACKEND, CASSANDRA_BACKEND))) {
+            initEmbedded();
+        } else {
+            initCassandra();
+        }
+
         engine.setDefinitions(definitions);
         engine.setActions(actions);
         engine.setRules(rules);
+    }
+
+    private void initCassandra() {
+        CassActionsServiceImpl cassActions = new CassActionsServiceImpl();
+        CassDefinitionsServiceImpl cassDefinitions = new CassDefinitionsServiceImpl();
+        actions = cassActions;
+        definitions = cassDefinitions;
+        alerts = new CassAlertsServiceImpl();
 
-        definitions.init();
+        cassDefinitions.setAlertsEngine(engine);
+        cassDefinitions.init();
+    }
+
+    private void initEmbedded() {
+        try {
+            store = EmbeddedStore.open();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open the embedded store", e);
+        }
+        EmbeddedActionsServiceImpl embeddedActions = new EmbeddedActionsServiceImpl(store);
+        EmbeddedDefinitionsServiceImpl embeddedDefinitions = new EmbeddedDefinitionsServiceImpl(store);
+        EmbeddedAlertsServiceImpl embeddedAlerts = new EmbeddedAlertsServiceImpl(store);
+        actions = embeddedActions;
+        definitions = embeddedDefinitions;
+        alerts = embeddedAlerts;
+
+        embeddedDefinitions.setAlertsEngine(engine);
+        embeddedAlerts.setAlertsEngine(engine);
+        embeddedAlerts.setDefinitionsService(embeddedDefinitions);
+        embeddedAlerts.setActionsService(embeddedActions);
+        engine.setAlertsService(embeddedAlerts);
+        embeddedDefinitions.init();
     }
 
     public static synchronized DefinitionsService getDefinitionsService() {
@@ -75,4 +123,19 @@ public class StandaloneAlerts {
         }
         return instance.actions;
     }
+
+    /**
+     * Close the embedded store, if any. The next call to a getter creates new services.
+     *
+     * @throws IOException if the embedded store can not be closed
+     */
+    public static synchronized void shutdown() throws IOException {
+        if (instance == null) {
+            return;
+        }
+        if (instance.store != null) {
+            instance.store.close();
+        }
+        instance = null;
+    }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.List;
+import java.util.Set;
+
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.event.Alert;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * The thin fields of an alert, stored in alerts_evals_by_id apart from the alert payload so thin queries never
+ * transfer them.
+ */
+public class AlertEvalSets {
+
+    @JsonInclude(Include.NON_EMPTY)
+    private Dampening dampening;
+
+    @JsonInclude(Include.NON_EMPTY)
+    private List<Set<ConditionEval>> evalSets;
+
+    @JsonInclude(Include.NON_EMPTY)
+    private List<Set<ConditionEval>> resolvedEvalSets;
+
+    public AlertEvalSets() {
+        // for json assembly
+    }
+
+    public AlertEvalSets(Alert alert) {
+        this.dampening = alert.getDampening();
+        this.evalSets = alert.getEvalSets();
+        this.resolvedEvalSets = alert.getResolvedEvalSets();
+    }
+
+    public Dampening getDampening() {
+        return dampening;
+    }
+
+    public void setDampening(Dampening dampening) {
+        this.dampening = dampening;
+    }
+
+    public List<Set<ConditionEval>> getEvalSets() {
+        return evalSets;
+    }
+
+    public void setEvalSets(List<Set<ConditionEval>> evalSets) {
+        this.evalSets = evalSets;
+    }
+
+    public List<Set<ConditionEval>> getResolvedEvalSets() {
+        return resolvedEvalSets;
+    }
+
+    public void setResolvedEvalSets(List<Set<ConditionEval>> resolvedEvalSets) {
+        this.resolvedEvalSets = resolvedEvalSets;
+    }
+
+    /**
+     * @param alert the thin alert to complete
+     */
+    public void applyTo(Alert alert) {
+        alert.setDampening(dampening);
+        alert.setEvalSets(evalSets);
+        alert.setResolvedEvalSets(resolvedEvalSets);
+    }
+}
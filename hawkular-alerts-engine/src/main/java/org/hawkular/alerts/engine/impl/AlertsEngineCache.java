@@ -17,6 +17,8 @@
 package org.hawkular.alerts.engine.impl;
 
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -111,6 +113,39 @@ public class AlertsEngineCache {
         activeDataIds.removeAll(dataIdToRemove);
     }
 
+    /**
+     * Remove all DataEntry for a set of triggers.
+     * Entries are removed in a single pass over the cache, so it should be preferred over
+     * {@link #remove(String, String)} when a large number of triggers are removed at once.
+     *
+     * @param triggers a map of tenantId with the set of triggerIds to remove
+     */
+    public void remove(Map<String, Set<String>> triggers) {
+        if (triggers == null) {
+            throw new IllegalArgumentException("triggers must be not null");
+        }
+        Set<String> dataIdToCheck = new HashSet<>();
+        for (Iterator<DataEntry> it = activeDataEntries.iterator(); it.hasNext(); ) {
+            DataEntry e = it.next();
+            Set<String> triggerIds = triggers.get(e.getTenantId());
+            if (triggerIds != null && triggerIds.contains(e.getTriggerId())) {
+                it.remove();
+                dataIdToCheck.add(e.getDataId());
+            }
+        }
+        if (dataIdToCheck.isEmpty()) {
+            return;
+        }
+        Set<String> dataIdToKeep = new HashSet<>();
+        for (DataEntry entry : activeDataEntries) {
+            if (dataIdToCheck.contains(entry.getDataId())) {
+                dataIdToKeep.add(entry.getDataId());
+            }
+        }
+        dataIdToCheck.removeAll(dataIdToKeep);
+        activeDataIds.removeAll(dataIdToCheck);
+    }
+
     /**
      * Clear all cache entries.
      */
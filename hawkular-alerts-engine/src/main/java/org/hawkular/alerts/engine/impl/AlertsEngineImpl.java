@@ -18,9 +18,12 @@ package org.hawkular.alerts.engine.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -40,6 +43,7 @@ import javax.ejb.TransactionAttributeType;
 import org.hawkular.alerts.api.model.condition.CompareCondition;
 import org.hawkular.alerts.api.model.condition.Condition;
 import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.RateCondition;
 import org.hawkular.alerts.api.model.dampening.Dampening;
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Alert;
@@ -48,14 +52,19 @@ import org.hawkular.alerts.api.model.trigger.Trigger;
 import org.hawkular.alerts.api.services.ActionsService;
 import org.hawkular.alerts.api.services.AlertsService;
 import org.hawkular.alerts.api.services.DefinitionsService;
+import org.hawkular.alerts.api.services.TriggersCriteria;
 import org.hawkular.alerts.engine.impl.AlertsEngineCache.DataEntry;
 import org.hawkular.alerts.engine.log.MsgLogger;
 import org.hawkular.alerts.engine.service.AlertsEngine;
+import org.hawkular.alerts.engine.service.MigrationStatus;
 import org.hawkular.alerts.engine.service.PartitionDataListener;
 import org.hawkular.alerts.engine.service.PartitionManager;
 import org.hawkular.alerts.engine.service.PartitionManager.Operation;
 import org.hawkular.alerts.engine.service.PartitionTriggerListener;
 import org.hawkular.alerts.engine.service.RulesEngine;
+import org.hawkular.alerts.engine.util.RateData;
+import org.hawkular.alerts.engine.util.TriggerState;
+import org.hawkular.alerts.engine.util.TriggerState.DampeningState;
 import org.jboss.logging.Logger;
 
 /**
@@ -75,9 +84,15 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
 
     private static final String ENGINE_DELAY = "hawkular-alerts.engine-delay";
     private static final String ENGINE_PERIOD = "hawkular-alerts.engine-period";
+    private static final String ENGINE_MIGRATION_BATCH = "hawkular-alerts.engine-migration-batch";
+    private static final String ENGINE_MIGRATION_PERIOD = "hawkular-alerts.engine-migration-period";
+    private static final String ENGINE_HANDOFF_TIMEOUT = "hawkular-alerts.engine-handoff-timeout";
 
     private int delay;
     private int period;
+    private int migrationBatch;
+    private int migrationPeriod;
+    private int handoffTimeout;
 
     private final List<Data> pendingData;
     private final List<Event> pendingEvents;
@@ -91,6 +106,22 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
     private final Timer wakeUpTimer;
     private TimerTask rulesTask;
 
+    /*
+        Background load of the triggers assigned to this node after a topology change.
+        It is scheduled on the wakeUpTimer, so batches are never loaded while rules are fired.
+     */
+    private final Object migrationLock = new Object();
+    private MigrationInvoker migrationTask;
+
+    /*
+        Evaluation state received from the node that held a trigger before a topology change, indexed by
+        tenantId/triggerId. A state is installed when the trigger is loaded, or on the next rules execution if the
+        trigger was loaded before the state arrived and it has not evaluated data yet. States not installed after
+        hawkular-alerts.engine-handoff-timeout ms are discarded and the trigger keeps a fresh state. The timeout does
+        not run while the trigger is pending in the background migration, it starts once its batch is loaded.
+     */
+    private final Map<String, ReceivedState> handoffStates = new HashMap<>();
+
     @EJB
     RulesEngine rules;
 
@@ -122,6 +153,9 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
 
         delay = new Integer(AlertProperties.getProperty(ENGINE_DELAY, "1000"));
         period = new Integer(AlertProperties.getProperty(ENGINE_PERIOD, "2000"));
+        migrationBatch = new Integer(AlertProperties.getProperty(ENGINE_MIGRATION_BATCH, "500"));
+        migrationPeriod = new Integer(AlertProperties.getProperty(ENGINE_MIGRATION_PERIOD, "500"));
+        handoffTimeout = new Integer(AlertProperties.getProperty(ENGINE_HANDOFF_TIMEOUT, "10000"));
     }
 
     public RulesEngine getRules() {
@@ -187,6 +221,8 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
 
     public void clear() {
         rulesTask.cancel();
+        cancelMigration();
+        clearStates();
 
         rules.clear();
 
@@ -210,6 +246,8 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         if (rulesTask != null) {
             rulesTask.cancel();
         }
+        cancelMigration();
+        clearStates();
 
         Collection<Trigger> triggers = null;
         try {
@@ -220,18 +258,20 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         }
 
         if (triggers != null && !triggers.isEmpty()) {
-
-            triggers.stream().filter(Trigger::isLoadable).forEach(t -> {
-                /*
-                    In distributed scenario a reload should delegate into the PartitionManager to load the trigger on
-                    the node which belongs
-                 */
-                if (distributed) {
-                    partitionManager.notifyTrigger(Operation.UPDATE, t.getTenantId(), t.getId());
-                } else {
-                    reloadTrigger(t);
-                }
-            });
+            /*
+                In distributed scenario a reload should delegate into the PartitionManager to load the triggers on
+                the node which belongs. Triggers are notified in bulk, each node receives a single message with its
+                triggers and loads them in batches.
+             */
+            if (distributed) {
+                Map<String, Set<String>> loadableTriggers = new LinkedHashMap<>();
+                triggers.stream().filter(Trigger::isLoadable).forEach(t -> {
+                    loadableTriggers.computeIfAbsent(t.getTenantId(), k -> new LinkedHashSet<>()).add(t.getId());
+                });
+                partitionManager.notifyTriggers(Operation.UPDATE, loadableTriggers);
+            } else {
+                triggers.stream().filter(Trigger::isLoadable).forEach(t -> reloadTrigger(t));
+            }
         }
 
         rules.addGlobal("log", log);
@@ -316,6 +356,26 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         }
     }
 
+    @Override
+    public void reloadTriggers(final String tenantId, final Collection<String> triggerIds) {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (triggerIds == null || triggerIds.isEmpty()) {
+            return;
+        }
+        Map<String, Set<String>> triggers = Collections.singletonMap(tenantId, new LinkedHashSet<>(triggerIds));
+        /*
+            The background migration prefetches the definitions of each batch of triggers and replaces (or removes,
+            if they are not loadable) the triggers already present in the engine.
+         */
+        if (distributed) {
+            partitionManager.notifyTriggers(Operation.UPDATE, triggers);
+        } else {
+            onTriggersChange(Operation.UPDATE, triggers);
+        }
+    }
+
     private void reloadTrigger(Trigger trigger) {
         if (null == trigger) {
             throw new IllegalArgumentException("Trigger must be not null");
@@ -336,24 +396,7 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
                 Collection<Dampening> dampenings = definitions.getTriggerDampenings(trigger.getTenantId(),
                         trigger.getId(), null);
 
-                /*
-                    Caching dataId from conditions.
-                 */
-                for (Condition c : conditionSet) {
-                    DataEntry entry = new DataEntry(c.getTenantId(), c.getTriggerId(), c.getDataId());
-                    alertsEngineCache.add(entry);
-                    if (Condition.Type.COMPARE == c.getType()) {
-                        String data2Id = ((CompareCondition) c).getData2Id();
-                        DataEntry entry2 = new DataEntry(c.getTenantId(), c.getTriggerId(), data2Id);
-                        alertsEngineCache.add(entry2);
-                    }
-                }
-
-                rules.addFact(trigger);
-                rules.addFacts(conditionSet);
-                if (!dampenings.isEmpty()) {
-                    rules.addFacts(dampenings);
-                }
+                loadTrigger(trigger, conditionSet, dampenings);
             }
         } catch (Exception e) {
             log.debug(e.getMessage(), e);
@@ -362,6 +405,43 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
 
     }
 
+    /*
+        Insert an already fetched trigger definition into the rules engine.
+        Caller is responsible to remove a previous version of the trigger.
+     */
+    private void loadTrigger(Trigger trigger, Collection<Condition> conditionSet, Collection<Dampening> dampenings) {
+        /*
+            Caching dataId from conditions.
+         */
+        for (Condition c : conditionSet) {
+            DataEntry entry = new DataEntry(c.getTenantId(), c.getTriggerId(), c.getDataId());
+            alertsEngineCache.add(entry);
+            if (Condition.Type.COMPARE == c.getType()) {
+                String data2Id = ((CompareCondition) c).getData2Id();
+                DataEntry entry2 = new DataEntry(c.getTenantId(), c.getTriggerId(), data2Id);
+                alertsEngineCache.add(entry2);
+            }
+        }
+
+        TriggerState state = takeState(trigger.getTenantId(), trigger.getId());
+        if (state != null) {
+            if (state.getMode() != null) {
+                trigger.setMode(state.getMode());
+            }
+            dampenings = installState(state, dampenings);
+        }
+
+        rules.addFact(trigger);
+        rules.addFacts(conditionSet);
+        if (!dampenings.isEmpty()) {
+            rules.addFacts(dampenings);
+        }
+        if (state != null) {
+            installRateData(state.getRateData());
+            addPendingTimeouts(dampenings);
+        }
+    }
+
     @Override
     public Trigger getLoadedTrigger(Trigger trigger) {
         if (null == trigger) {
@@ -422,6 +502,40 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         }
     }
 
+    /*
+        Remove a set of triggers from the engine.
+        Unlike removeTrigger(Trigger) the facts of the rules engine and the AlertsEngineCache are traversed only once
+        for the whole set, which matters when a topology change moves a large number of triggers out of this node.
+     */
+    private void removeTriggers(Map<String, Set<String>> triggers) {
+        if (triggers.isEmpty()) {
+            return;
+        }
+        final Set<String> triggerIds = new HashSet<>();
+        for (Entry<String, Set<String>> entry : triggers.entrySet()) {
+            String tenantId = entry.getKey();
+            for (String triggerId : entry.getValue()) {
+                Trigger trigger = new Trigger(tenantId, triggerId, "to-remove-from-alerts-engine");
+                if (null != rules.getFact(trigger)) {
+                    rules.removeFact(trigger);
+                    triggerIds.add(triggerId);
+                }
+            }
+        }
+        if (triggerIds.isEmpty()) {
+            return;
+        }
+        alertsEngineCache.remove(triggers);
+        rules.removeFacts(t -> {
+            if (t instanceof Dampening) {
+                return triggerIds.contains(((Dampening)t).getTriggerId());
+            } else if (t instanceof Condition) {
+                return triggerIds.contains(((Condition)t).getTriggerId());
+            }
+            return false;
+        });
+    }
+
     @Override
     public void sendData(Collection<Data> data) {
         if (data == null) {
@@ -444,6 +558,27 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         }
     }
 
+    /*
+        Data delivered to every node by its source. Each node keeps only the dataIds used by the triggers of its
+        partition, so there is no need to propagate it through the PartitionManager.
+     */
+    @Override
+    public void sendLocalData(Collection<Data> data) {
+        if (data == null) {
+            throw new IllegalArgumentException("Data must be not null");
+        }
+        addPendingData(data);
+    }
+
+    /*
+        In distributed deployments the triggers of a dataId can be loaded on any node, data is filtered on the
+        node receiving it from the PartitionManager.
+     */
+    @Override
+    public boolean isDataIdActive(String dataId) {
+        return distributed || alertsEngineCache.isDataIdActive(dataId);
+    }
+
     @Override
     public void sendEvent(Event event) {
         if (event == null) {
@@ -467,15 +602,12 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
     }
 
     private void addPendingData(Collection<Data> data) {
-        ArrayList<Data> filteredData = new ArrayList<>(data);
-        for (Iterator<Data> i = filteredData.iterator(); i.hasNext(); ) {
-            Data d = i.next();
-            if (!alertsEngineCache.isDataIdActive(d.getId())) {
-                i.remove();
-            }
-        }
         synchronized (pendingData) {
-            pendingData.addAll(filteredData);
+            for (Data d : data) {
+                if (alertsEngineCache.isDataIdActive(d.getId())) {
+                    pendingData.add(d);
+                }
+            }
         }
     }
 
@@ -523,6 +655,8 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
     private class RulesInvoker extends TimerTask {
         @Override
         public void run() {
+            installReceivedStates();
+
             int numTimeouts = checkPendingTimeouts();
 
             if (!pendingData.isEmpty() || !pendingEvents.isEmpty() || numTimeouts > 0) {
@@ -696,6 +830,15 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         if (log.isDebugEnabled()) {
             log.debug("Executing: " + operation + " tenantId: " + tenantId + " triggerId: " + triggerId);
         }
+        /*
+            A trigger pending to be migrated is going to be loaded (or removed) now, its prefetched definition
+            is outdated and it should not be loaded again by the migration.
+         */
+        synchronized (migrationLock) {
+            if (migrationTask != null) {
+                migrationTask.discard(tenantId, triggerId);
+            }
+        }
         switch(operation) {
             case ADD:
             case UPDATE:
@@ -709,12 +852,46 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         }
     }
 
+    /*
+        This listener method is invoked on distributed scenarios, and locally by reloadTriggers() otherwise.
+        Bulk version of onTriggerChange(), i.e. on a full reload. Triggers added or updated are loaded with the
+        background migration, so definitions are prefetched per batch instead of fetched per trigger.
+     */
+    @Override
+    public void onTriggersChange(Operation operation, Map<String, Set<String>> triggers) {
+        if (log.isDebugEnabled()) {
+            log.debug("Executing: " + operation + " on " + triggers.values().stream().mapToInt(Set::size).sum()
+                    + " triggers");
+        }
+        synchronized (migrationLock) {
+            switch (operation) {
+                case ADD:
+                case UPDATE:
+                    if (migrationTask == null || !migrationTask.add(triggers)) {
+                        migrationTask = new MigrationInvoker(triggers);
+                        wakeUpTimer.schedule(migrationTask, 0, migrationPeriod);
+                    }
+                    break;
+                case REMOVE:
+                    if (migrationTask != null) {
+                        migrationTask.discard(triggers);
+                    }
+                    removeTriggers(triggers);
+                    break;
+            }
+        }
+    }
+
     /*
         This listener method is invoked on distributed scenarios.
         When topology changes, new nodes added or removed, PartitionManager recalculate global triggers partition.
         On each node, PartitionManager invokes this method to indicate triggers should hold, and the "delta" of
         additions/removals.
         With this delta, the process of remove/reload triggers across cluster is minimized.
+        Removals only affect local memory and they are processed immediately. Additions need to fetch definitions
+        from the backend, so they are loaded by a background migration in batches of
+        hawkular-alerts.engine-migration-batch triggers every hawkular-alerts.engine-migration-period ms.
+        The engine keeps evaluating data meanwhile.
      */
     @Override
     public void onPartitionChange(Map<String, List<String>> partition, Map<String, List<String>> removed,
@@ -733,26 +910,502 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
             log.debug("Removed: " + removed);
             log.debug("Added: " + added);
         }
+        Map<String, Set<String>> removedTriggers = toSets(removed);
+        Map<String, Set<String>> addedTriggers = toSets(added);
+        Collection<TriggerState> handoff;
+
+        synchronized (migrationLock) {
+            /*
+                Triggers not yet migrated can be moved out again before they are loaded
+             */
+            if (migrationTask != null) {
+                migrationTask.discard(removedTriggers);
+            }
+
+            /*
+                Removing old triggers for this node, their evaluation state is handed off to the new owners
+             */
+            handoff = captureStates(removedTriggers);
+            removeTriggers(removedTriggers);
+
+            /*
+                Loading new triggers for this node
+             */
+            if (!addedTriggers.isEmpty()) {
+                if (migrationTask == null || !migrationTask.add(addedTriggers)) {
+                    migrationTask = new MigrationInvoker(addedTriggers);
+                    wakeUpTimer.schedule(migrationTask, 0, migrationPeriod);
+                }
+            }
+        }
+
+        if (!handoff.isEmpty()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Handing off the state of " + handoff.size() + " triggers");
+            }
+            partitionManager.notifyTriggerStates(handoff);
+        }
+    }
+
+    /*
+        This listener method is invoked on distributed scenarios.
+        After a partition change, the previous owner of a trigger sends its evaluation state to the new owner.
+     */
+    @Override
+    public void onTriggerStates(Collection<TriggerState> states) {
+        if (log.isDebugEnabled()) {
+            log.debug("Received state of " + states.size() + " triggers");
+        }
+        long now = System.currentTimeMillis();
+        synchronized (handoffStates) {
+            for (TriggerState state : states) {
+                handoffStates.put(stateKey(state.getTenantId(), state.getTriggerId()),
+                        new ReceivedState(state, now));
+            }
+        }
+    }
+
+    /*
+        Collect the dampening and rate state of the triggers to remove with a single pass on the rules facts.
+        Only triggers with state that would be lost are returned.
+     */
+    private Collection<TriggerState> captureStates(Map<String, Set<String>> triggers) {
+        if (triggers.isEmpty()) {
+            return new ArrayList<>();
+        }
         /*
-            Removing old triggers for this node
+            Trigger ids are unique only within a tenant, facts are matched by (tenantId, triggerId)
          */
-        for (Entry<String, List<String>> entry : removed.entrySet()) {
-            String tenantId = entry.getKey();
-            entry.getValue().stream().forEach(triggerId -> {
-                Trigger removeTrigger = new Trigger(tenantId, triggerId, "to-remove-from-alerts-engine");
-                removeTrigger(removeTrigger);
-            });
+        final Set<String> keys = new HashSet<>();
+        for (Entry<String, Set<String>> entry : triggers.entrySet()) {
+            for (String triggerId : entry.getValue()) {
+                keys.add(stateKey(entry.getKey(), triggerId));
+            }
+        }
+        Map<String, TriggerState> states = new HashMap<>();
+        Map<String, Set<RateCondition>> rateConditions = new HashMap<>();
+        Collection<Object> facts = rules.getFacts(f -> {
+            if (f instanceof Trigger) {
+                return keys.contains(stateKey(((Trigger) f).getTenantId(), ((Trigger) f).getId()));
+            } else if (f instanceof Dampening) {
+                return keys.contains(stateKey(((Dampening) f).getTenantId(), ((Dampening) f).getTriggerId()));
+            } else if (f instanceof RateCondition) {
+                return keys.contains(stateKey(((RateCondition) f).getTenantId(),
+                        ((RateCondition) f).getTriggerId()));
+            }
+            return false;
+        });
+        for (Object fact : facts) {
+            if (fact instanceof Trigger) {
+                Trigger t = (Trigger) fact;
+                state(states, t.getTenantId(), t.getId()).setMode(t.getMode());
+            } else if (fact instanceof Dampening) {
+                Dampening d = (Dampening) fact;
+                state(states, d.getTenantId(), d.getTriggerId()).addDampening(d);
+            } else {
+                RateCondition c = (RateCondition) fact;
+                rateConditions.computeIfAbsent(c.getDataId(), k -> new HashSet<>()).add(c);
+            }
+        }
+        if (!rateConditions.isEmpty()) {
+            Collection<Object> rateData = rules.getFacts(f -> f instanceof RateData
+                    && rateConditions.containsKey(((RateData) f).getData().getId()));
+            for (Object fact : rateData) {
+                Data data = ((RateData) fact).getData();
+                for (RateCondition c : rateConditions.get(data.getId())) {
+                    state(states, c.getTenantId(), c.getTriggerId()).addRateData(data);
+                }
+            }
+        }
+        List<TriggerState> result = new ArrayList<>();
+        for (TriggerState state : states.values()) {
+            if (!state.isEmpty()) {
+                result.add(state);
+            }
+        }
+        return result;
+    }
+
+    private TriggerState state(Map<String, TriggerState> states, String tenantId, String triggerId) {
+        return states.computeIfAbsent(stateKey(tenantId, triggerId), k -> new TriggerState(tenantId, triggerId));
+    }
+
+    private TriggerState takeState(String tenantId, String triggerId) {
+        synchronized (handoffStates) {
+            if (handoffStates.isEmpty()) {
+                return null;
+            }
+            ReceivedState received = handoffStates.remove(stateKey(tenantId, triggerId));
+            return received != null ? received.state : null;
+        }
+    }
+
+    private void clearStates() {
+        synchronized (handoffStates) {
+            handoffStates.clear();
+        }
+    }
+
+    /*
+        Apply a received state on the dampenings of a trigger about to be loaded.
+        A dampening is only restored if its definition has not changed meanwhile. A state captured from a default
+        dampening (the one provided by the rules when the trigger has not dampening for a mode) is restored on a new
+        default dampening.
+     */
+    private Collection<Dampening> installState(TriggerState state, Collection<Dampening> dampenings) {
+        List<Dampening> result = new ArrayList<>(dampenings);
+        for (DampeningState ds : state.getDampenings()) {
+            Dampening target = null;
+            boolean defined = false;
+            for (Dampening d : dampenings) {
+                if (d.getDampeningId().equals(ds.getDampening().getDampeningId())) {
+                    defined = true;
+                    target = ds.isCompatible(d) ? d : null;
+                    break;
+                }
+            }
+            if (!defined) {
+                Dampening defaultDampening = Dampening.forStrict(state.getTriggerId(),
+                        ds.getDampening().getTriggerMode(), 1);
+                defaultDampening.setTenantId(state.getTenantId());
+                if (ds.isCompatible(defaultDampening)) {
+                    target = defaultDampening;
+                    result.add(defaultDampening);
+                }
+            }
+            if (target != null) {
+                ds.applyTo(target);
+            }
+        }
+        return result;
+    }
+
+    /*
+        Previous data for rate conditions. A newer RateData already present on this node is kept.
+     */
+    private void installRateData(Collection<Data> rateData) {
+        if (rateData.isEmpty()) {
+            return;
+        }
+        Map<String, Data> received = new HashMap<>();
+        for (Data data : rateData) {
+            received.put(data.getId(), data);
+        }
+        Collection<Object> existing = rules.getFacts(f -> f instanceof RateData
+                && received.containsKey(((RateData) f).getData().getId()));
+        for (Object fact : existing) {
+            RateData rd = (RateData) fact;
+            Data data = received.remove(rd.getData().getId());
+            if (data.getTimestamp() > rd.getData().getTimestamp()) {
+                rd.setData(data);
+                rules.updateFact(rd);
+            }
+        }
+        for (Data data : received.values()) {
+            rules.addFact(new RateData(data));
+        }
+    }
+
+    /*
+        STRICT_TIMEOUT dampenings are checked externally, the rules only post them when the first true eval happens.
+     */
+    private void addPendingTimeouts(Collection<Dampening> dampenings) {
+        for (Dampening d : dampenings) {
+            if (d.getType() == Dampening.Type.STRICT_TIMEOUT && d.getNumTrueEvals() > 0 && !d.isSatisfied()) {
+                pendingTimeouts.add(d);
+            }
+        }
+    }
+
+    /*
+        Install states received after its trigger was loaded.
+        It is executed on the rules timer, so it does not interfere with a rules execution.
+     */
+    private void installReceivedStates() {
+        List<ReceivedState> received;
+        synchronized (handoffStates) {
+            if (handoffStates.isEmpty()) {
+                return;
+            }
+            received = new ArrayList<>(handoffStates.values());
+        }
+        long now = System.currentTimeMillis();
+        for (ReceivedState r : received) {
+            TriggerState state = r.state;
+            boolean done;
+            Trigger trigger = (Trigger) rules.getFact(new Trigger(state.getTenantId(), state.getTriggerId(),
+                    "handoff-trigger"));
+            if (null != trigger) {
+                installLoadedState(trigger, state);
+                done = true;
+            } else if (isMigrationPending(state.getTenantId(), state.getTriggerId())) {
+                r.received = now;
+                done = false;
+            } else {
+                done = now - r.received > handoffTimeout;
+                if (done && log.isDebugEnabled()) {
+                    log.debug("Discarding state not installed in " + handoffTimeout + " ms: " + state);
+                }
+            }
+            if (done) {
+                synchronized (handoffStates) {
+                    handoffStates.remove(stateKey(state.getTenantId(), state.getTriggerId()), r);
+                }
+            }
+        }
+    }
+
+    /*
+        A trigger already loaded keeps its own state once it has started to evaluate data.
+     */
+    private void installLoadedState(Trigger trigger, TriggerState state) {
+        final String tenantId = state.getTenantId();
+        final String triggerId = state.getTriggerId();
+        Collection<Object> facts = rules.getFacts(f -> f instanceof Dampening
+                && tenantId.equals(((Dampening) f).getTenantId())
+                && ((Dampening) f).getTriggerId().equals(triggerId));
+        List<Dampening> loaded = new ArrayList<>();
+        for (Object fact : facts) {
+            Dampening d = (Dampening) fact;
+            if (d.getNumEvals() > 0 || d.getNumTrueEvals() > 0 || d.isSatisfied()) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Trigger already evaluating, discarding state: " + state);
+                }
+                return;
+            }
+            loaded.add(d);
+        }
+        if (state.getMode() != null && state.getMode() != trigger.getMode()) {
+            trigger.setMode(state.getMode());
+            rules.updateFact(trigger);
+        }
+        Collection<Dampening> dampenings = installState(state, loaded);
+        for (Dampening d : dampenings) {
+            if (loaded.contains(d)) {
+                rules.updateFact(d);
+            } else {
+                rules.addFact(d);
+            }
+        }
+        installRateData(state.getRateData());
+        addPendingTimeouts(dampenings);
+    }
+
+    private String stateKey(String tenantId, String triggerId) {
+        return tenantId + "/" + triggerId;
+    }
+
+    private static class ReceivedState {
+        final TriggerState state;
+        long received;
+
+        ReceivedState(TriggerState state, long received) {
+            this.state = state;
+            this.received = received;
+        }
+    }
+
+    @Override
+    public MigrationStatus getMigrationStatus() {
+        synchronized (migrationLock) {
+            return migrationTask != null ? migrationTask.getStatus() : null;
+        }
+    }
+
+    private boolean isMigrationPending(String tenantId, String triggerId) {
+        synchronized (migrationLock) {
+            return migrationTask != null && migrationTask.isPending(tenantId, triggerId);
+        }
+    }
+
+    private void cancelMigration() {
+        synchronized (migrationLock) {
+            if (migrationTask != null) {
+                migrationTask.cancel();
+                migrationTask = null;
+            }
+        }
+    }
+
+    private Map<String, Set<String>> toSets(Map<String, List<String>> triggers) {
+        Map<String, Set<String>> result = new LinkedHashMap<>();
+        if (triggers != null) {
+            for (Entry<String, List<String>> entry : triggers.entrySet()) {
+                if (entry.getValue() != null && !entry.getValue().isEmpty()) {
+                    result.put(entry.getKey(), new LinkedHashSet<>(entry.getValue()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /*
+        Load the triggers assigned to this node in batches, after a topology change or a bulk reload.
+        A trigger already present in the engine is replaced, and removed if it is not loadable anymore.
+        Definitions of the triggers of a batch are prefetched by id with bulk queries, instead of a
+        trigger/conditions/dampenings round trip per trigger, so a run only holds the definitions of its batch.
+        If the prefetch fails the batch falls back into the individual reload of each trigger.
+     */
+    private class MigrationInvoker extends TimerTask {
+        private final Map<String, Set<String>> pending = new LinkedHashMap<>();
+        private final long startTime = System.currentTimeMillis();
+        private long endTime = 0;
+        private int total = 0;
+        private int loaded = 0;
+        private int failed = 0;
+        private boolean finished = false;
+
+        MigrationInvoker(Map<String, Set<String>> triggers) {
+            add(triggers);
+            msgLog.infoMigrationStarted(total);
         }
 
         /*
-            Reloading new triggers for this node
+            Return false if the migration has finished and it can not accept new triggers.
          */
-        for (Entry<String, List<String>> entry : added.entrySet()) {
-            String tenantId = entry.getKey();
-            entry.getValue().stream().forEach(triggerId -> {
-                reloadTrigger(tenantId, triggerId);
-            });
+        synchronized boolean add(Map<String, Set<String>> triggers) {
+            if (finished) {
+                return false;
+            }
+            for (Entry<String, Set<String>> entry : triggers.entrySet()) {
+                String tenantId = entry.getKey();
+                Set<String> tenantPending = pending.get(tenantId);
+                if (tenantPending == null) {
+                    tenantPending = new LinkedHashSet<>();
+                    pending.put(tenantId, tenantPending);
+                }
+                for (String triggerId : entry.getValue()) {
+                    if (tenantPending.add(triggerId)) {
+                        total++;
+                    }
+                }
+            }
+            return true;
+        }
+
+        synchronized void discard(Map<String, Set<String>> triggers) {
+            for (Entry<String, Set<String>> entry : triggers.entrySet()) {
+                for (String triggerId : entry.getValue()) {
+                    discard(entry.getKey(), triggerId);
+                }
+            }
+        }
+
+        synchronized void discard(String tenantId, String triggerId) {
+            Set<String> tenantPending = pending.get(tenantId);
+            if (tenantPending != null && tenantPending.remove(triggerId)) {
+                total--;
+                if (tenantPending.isEmpty()) {
+                    pending.remove(tenantId);
+                }
+            }
+        }
+
+        synchronized boolean isPending(String tenantId, String triggerId) {
+            Set<String> tenantPending = pending.get(tenantId);
+            return tenantPending != null && tenantPending.contains(triggerId);
+        }
+
+        synchronized MigrationStatus getStatus() {
+            return new MigrationStatus(total, loaded, failed, startTime, endTime);
         }
+
+        @Override
+        public synchronized void run() {
+            if (finished) {
+                return;
+            }
+            int batch = 0;
+            Iterator<Entry<String, Set<String>>> itTenants = pending.entrySet().iterator();
+            while (batch < migrationBatch && itTenants.hasNext()) {
+                Entry<String, Set<String>> tenantEntry = itTenants.next();
+                String tenantId = tenantEntry.getKey();
+                Set<String> triggerIds = tenantEntry.getValue();
+                List<String> batchIds = new ArrayList<>(Math.min(triggerIds.size(), migrationBatch - batch));
+                Iterator<String> itTriggers = triggerIds.iterator();
+                while (batch < migrationBatch && itTriggers.hasNext()) {
+                    batchIds.add(itTriggers.next());
+                    itTriggers.remove();
+                    batch++;
+                }
+                BatchDefinitions batchDefinitions = prefetch(tenantId, batchIds);
+                for (String triggerId : batchIds) {
+                    if (load(tenantId, triggerId, batchDefinitions)) {
+                        loaded++;
+                    } else {
+                        failed++;
+                    }
+                }
+                if (triggerIds.isEmpty()) {
+                    itTenants.remove();
+                }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Trigger migration progress: " + (loaded + failed) + " of " + total + " triggers");
+            }
+            if (pending.isEmpty()) {
+                finished = true;
+                endTime = System.currentTimeMillis();
+                cancel();
+                msgLog.infoMigrationFinished(loaded, failed, endTime - startTime);
+            }
+        }
+
+        private BatchDefinitions prefetch(String tenantId, List<String> triggerIds) {
+            BatchDefinitions batchDefinitions = new BatchDefinitions();
+            try {
+                TriggersCriteria criteria = new TriggersCriteria();
+                criteria.setTriggerIds(triggerIds);
+                for (Trigger t : definitions.getTriggers(tenantId, criteria, null)) {
+                    batchDefinitions.triggers.put(t.getId(), t);
+                }
+                for (Condition c : definitions.getConditions(tenantId, triggerIds)) {
+                    batchDefinitions.conditions.computeIfAbsent(c.getTriggerId(), k -> new ArrayList<>()).add(c);
+                }
+                for (Dampening d : definitions.getDampenings(tenantId, triggerIds)) {
+                    batchDefinitions.dampenings.computeIfAbsent(d.getTriggerId(), k -> new ArrayList<>()).add(d);
+                }
+                batchDefinitions.available = true;
+            } catch (Exception e) {
+                log.debug(e.getMessage(), e);
+                msgLog.errorDefinitionsService("Migration prefetch", e.getMessage());
+            }
+            return batchDefinitions;
+        }
+
+        private boolean load(String tenantId, String triggerId, BatchDefinitions batchDefinitions) {
+            try {
+                if (!batchDefinitions.available) {
+                    reloadTrigger(new Trigger(tenantId, triggerId, "reload-trigger"));
+                    return true;
+                }
+                Trigger trigger = batchDefinitions.triggers.get(triggerId);
+                if (trigger == null || !trigger.isLoadable()) {
+                    removeTrigger(new Trigger(tenantId, triggerId, "remove-trigger"));
+                    return true;
+                }
+                removeTrigger(trigger);
+                List<Condition> conditionSet = batchDefinitions.conditions.get(triggerId);
+                List<Dampening> dampenings = batchDefinitions.dampenings.get(triggerId);
+                loadTrigger(trigger,
+                        conditionSet != null ? conditionSet : new ArrayList<>(),
+                        dampenings != null ? dampenings : new ArrayList<>());
+                return true;
+            } catch (Exception e) {
+                log.errorf("Failed to migrate trigger [%s/%s]: %s", tenantId, triggerId, e);
+                return false;
+            }
+        }
+    }
+
+    /*
+        Definitions of a batch of triggers of a tenant pending to be migrated
+     */
+    private static class BatchDefinitions {
+        boolean available = false;
+        Map<String, Trigger> triggers = new HashMap<>();
+        Map<String, List<Condition>> conditions = new HashMap<>();
+        Map<String, List<Dampening>> dampenings = new HashMap<>();
     }
 
     private boolean isEmpty(String s) {
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * Support for the asynchronous reads of the services.
+ *
+ * Reads composed of Cassandra requests wait for no thread, the results of the requests are processed on a pool of
+ * callback threads instead of the I/O threads of the driver. Queries without a non-blocking form run on a fixed pool
+ * of <i>hawkular-alerts.query-threads</i> threads, which queues up to <i>hawkular-alerts.query-queue</i> queries, a
+ * query submitted beyond it fails with a {@link RejectedExecutionException} so the load is shed instead of queued
+ * without bound.
+ *
+ * The callbacks never block, so a blocking query waiting for requests of its own does not hold the threads that
+ * complete them.
+ */
+final class AsyncQueries {
+    static final String QUERY_THREADS = "hawkular-alerts.query-threads";
+    static final String QUERY_QUEUE = "hawkular-alerts.query-queue";
+
+    private static final int queryThreads = Integer.parseInt(AlertProperties.getProperty(QUERY_THREADS,
+            String.valueOf(Runtime.getRuntime().availableProcessors() * 2)));
+    private static final int queryQueue = Integer.parseInt(AlertProperties.getProperty(QUERY_QUEUE, "1000"));
+
+    private static final Executor executor = pool("AsyncQueries-", queryThreads,
+            new ThreadPoolExecutor.AbortPolicy());
+
+    /*
+        Results of requests already sent are processed even when the queue is full, on the thread completing them,
+        otherwise the futures waiting for them would never complete.
+     */
+    private static final Executor callbacks = pool("AsyncQueries-callback-",
+            Runtime.getRuntime().availableProcessors(), new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private static Executor pool(String name, int size, RejectedExecutionHandler rejected) {
+        AtomicInteger threads = new AtomicInteger();
+        return new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queryQueue),
+                r -> {
+                    Thread thread = new Thread(r, name + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, rejected);
+    }
+
+    private AsyncQueries() {
+    }
+
+    /**
+     * @param query a blocking query
+     * @return a future completed with the result of the query, run on the query threads, or failed with a
+     * {@link RejectedExecutionException} if the queue of the query threads is full
+     */
+    static <T> CompletableFuture<T> submit(Callable<T> query) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(query.call());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * @param future a request sent to Cassandra
+     * @return a future completed with the result of the request on the callback threads
+     */
+    static CompletableFuture<ResultSet> one(ResultSetFuture future) {
+        CompletableFuture<ResultSet> result = new CompletableFuture<>();
+        Futures.addCallback(future, new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(ResultSet resultSet) {
+                result.complete(resultSet);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, callbacks);
+        return result;
+    }
+
+    /**
+     * @param futures requests sent to Cassandra
+     * @return a future completed on the callback threads with the results of all the requests, in order, or with the
+     * first failure
+     */
+    static CompletableFuture<List<ResultSet>> all(List<ResultSetFuture> futures) {
+        CompletableFuture<List<ResultSet>> result = new CompletableFuture<>();
+        Futures.addCallback(Futures.allAsList(futures), new FutureCallback<List<ResultSet>>() {
+            @Override
+            public void onSuccess(List<ResultSet> resultSets) {
+                result.complete(resultSets);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, callbacks);
+        return result;
+    }
+
+    static <T> CompletableFuture<T> failed(Throwable t) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(t);
+        return result;
+    }
+
+    /**
+     * Wait for a future on the synchronous methods of the services, its failure is thrown as is.
+     *
+     * @param future the future to wait for
+     * @return the result of the future
+     * @throws Exception the failure of the future
+     */
+    static <T> T get(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -17,11 +17,13 @@
 package org.hawkular.alerts.engine.impl;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
@@ -44,7 +46,6 @@ import org.hawkular.alerts.api.services.ActionsService;
 import org.hawkular.alerts.engine.log.MsgLogger;
 import org.jboss.logging.Logger;
 
-import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.ResultSetFuture;
@@ -68,6 +69,9 @@ public class CassActionsServiceImpl implements ActionsService {
     private static final String WAITING_RESULT = "WAITING";
     private static final String UNKNOWN_RESULT = "UNKWON";
 
+    private static final String[] ACTION_HISTORY_CTIMES_CLUSTERING = { "ctime", "actionPlugin", "actionId",
+            "alertId" };
+
     List<ActionListener> listeners = new CopyOnWriteArrayList<>();
 
     private Session session;
@@ -113,35 +117,9 @@ public class CassActionsServiceImpl implements ActionsService {
         }
         try {
             session = CassCluster.getSession();
-            PreparedStatement insertActionHistory = CassStatement.get(session,
-                    CassStatement.INSERT_ACTION_HISTORY);
-            PreparedStatement insertActionHistoryAction = CassStatement.get(session,
-                    CassStatement.INSERT_ACTION_HISTORY_ACTION);
-            PreparedStatement insertActionHistoryAlert = CassStatement.get(session,
-                    CassStatement.INSERT_ACTION_HISTORY_ALERT);
-            PreparedStatement insertActionHistoryCtime = CassStatement.get(session,
-                    CassStatement.INSERT_ACTION_HISTORY_CTIME);
-            PreparedStatement insertActionHistoryResult = CassStatement.get(session,
-                    CassStatement.INSERT_ACTION_HISTORY_RESULT);
-
-            List<ResultSetFuture> futures = new ArrayList<>();
-
-            futures.add(session.executeAsync(insertActionHistory.bind(action.getTenantId(), action.getActionPlugin(),
-                    action.getActionId(), action.getEvent().getId(), action.getCtime(), JsonUtil.toJson(action))));
-            futures.add(session.executeAsync(insertActionHistoryAction.bind(action.getTenantId(),
-                    action.getActionId(), action.getActionPlugin(), action.getEvent().getId(),
-                    action.getCtime())));
-            futures.add(session.executeAsync(insertActionHistoryAlert.bind(action.getTenantId(),
-                    action.getEvent().getId(), action.getActionPlugin(), action.getActionId(),
-                    action.getCtime())));
-            futures.add(session.executeAsync(insertActionHistoryCtime.bind(action.getTenantId(),
-                    action.getCtime(), action.getActionPlugin(), action.getActionId(),
-                    action.getEvent().getId())));
-            futures.add(session.executeAsync(insertActionHistoryResult.bind(action.getTenantId(),
-                    action.getResult(), action.getActionPlugin(), action.getActionId(), action.getEvent().getId(),
-                    action.getCtime())));
-
-            Futures.allAsList(futures).get();
+            CassWriteBatch batch = new CassWriteBatch(session);
+            CassHistoryWriter.insertAction(action, batch);
+            batch.execute();
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
         }
@@ -153,8 +131,8 @@ public class CassActionsServiceImpl implements ActionsService {
         try {
             session = CassCluster.getSession();
             PreparedStatement selectActionHistory = CassStatement.get(session, CassStatement.SELECT_ACTION_HISTORY);
-            ResultSet rsActionHistory = session.execute(selectActionHistory.bind(tenantId, actionPlugin, actionId,
-                    alertId, ctime));
+            ResultSet rsActionHistory = session.execute(selectActionHistory.bind(tenantId, TimeBuckets.bucket(ctime),
+                    actionPlugin, actionId, alertId, ctime));
             Iterator<Row> itActionHistory = rsActionHistory.iterator();
             if (itActionHistory.hasNext()) {
                 Row row = itActionHistory.next();
@@ -179,26 +157,9 @@ public class CassActionsServiceImpl implements ActionsService {
             }
             String oldResult = oldActionHistory.getResult();
             session = CassCluster.getSession();
-            PreparedStatement deleteActionHistoryResult = CassStatement.get(session,
-                    CassStatement.DELETE_ACTION_HISTORY_RESULT);
-            PreparedStatement insertActionHistoryResult = CassStatement.get(session,
-                    CassStatement.INSERT_ACTION_HISTORY_RESULT);
-            PreparedStatement updateActionHistory = CassStatement.get(session, CassStatement.UPDATE_ACTION_HISTORY);
-
-            List<ResultSetFuture> futures = new ArrayList<>();
-
-            futures.add(session.executeAsync(deleteActionHistoryResult.bind(action.getTenantId(), oldResult,
-                    action.getActionPlugin(), action.getActionId(), action.getEvent().getId(),
-                    action.getCtime())));
-            futures.add(session.executeAsync(insertActionHistoryResult.bind(action.getTenantId(),
-                    action.getResult(), action.getActionPlugin(), action.getActionId(), action.getEvent().getId(),
-                    action.getCtime())));
-
-            futures.add(session.executeAsync(updateActionHistory.bind(JsonUtil.toJson(action), action.getTenantId(),
-                    action.getActionPlugin(), action.getActionId(), action.getEvent().getId(),
-                    action.getCtime())));
-
-            Futures.allAsList(futures).get();
+            CassWriteBatch batch = new CassWriteBatch(session);
+            CassHistoryWriter.updateActionResult(action, oldResult, batch);
+            batch.execute();
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
         }
@@ -213,6 +174,14 @@ public class CassActionsServiceImpl implements ActionsService {
         msgLog.infoActionListenerRegistered(listener.toString());
     }
 
+    /*
+        The actions history is read with blocking queries, they run on the query threads
+     */
+    @Override
+    public CompletionStage<Page<Action>> getActionsAsync(String tenantId, ActionsCriteria criteria, Pager pager) {
+        return AsyncQueries.submit(() -> getActions(tenantId, criteria, pager));
+    }
+
     @Override
     public Page<Action> getActions(String tenantId, ActionsCriteria criteria, Pager pager) throws Exception {
         if (isEmpty(tenantId)) {
@@ -222,15 +191,28 @@ public class CassActionsServiceImpl implements ActionsService {
         boolean thin = (null != criteria && criteria.isThin());
         boolean filter = (null != criteria && criteria.hasCriteria());
 
+        if (null != pager && pager.isCursor()) {
+            Page<Action> actionsSlice = getActionsSlice(tenantId, criteria, pager, thin);
+            if (null != actionsSlice) {
+                return actionsSlice;
+            }
+        }
+
         List<Action> actions = new ArrayList<>();
         Set<ActionHistoryPK> actionPks = new HashSet<>();
 
+        /*
+         * Buckets of the criteria time range, all the buckets of the tenant if there is none
+         */
+        List<Long> buckets = TimeBuckets.buckets(session, tenantId, TimeBuckets.ACTIONS,
+                filter ? criteria.getStartTime() : null, filter ? criteria.getEndTime() : null);
+
         if (filter) {
             /*
              * Get Action PKs filtered by ctime
              */
             Set<ActionHistoryPK> actionPKsfilteredByCtime = new HashSet<>();
-            boolean filterByCtime = filterByCtime(tenantId, actionPKsfilteredByCtime, criteria);
+            boolean filterByCtime = filterByCtime(tenantId, buckets, actionPKsfilteredByCtime, criteria);
             if (filterByCtime) {
                 actionPks.addAll(actionPKsfilteredByCtime);
                 if (actionPks.isEmpty()) {
@@ -242,7 +224,8 @@ public class CassActionsServiceImpl implements ActionsService {
              * Get Action PKs filtered by actionPlugin
              */
             Set<ActionHistoryPK> actionPKsfilteredByActionPlugin = new HashSet<>();
-            boolean filterByActionPlugin = filterByActionPlugin(tenantId, actionPKsfilteredByActionPlugin, criteria);
+            boolean filterByActionPlugin = filterByActionPlugin(tenantId, buckets, actionPKsfilteredByActionPlugin,
+                    criteria);
             if (filterByActionPlugin) {
                 if (actionPks.isEmpty()) {
                     actionPks.addAll(actionPKsfilteredByActionPlugin);
@@ -258,7 +241,7 @@ public class CassActionsServiceImpl implements ActionsService {
              * Get Action PKs filtered by actionId
              */
             Set<ActionHistoryPK> actionPKsfilteredByActionId = new HashSet<>();
-            boolean filterByActionId = filterByActionId(tenantId, actionPKsfilteredByActionId, criteria);
+            boolean filterByActionId = filterByActionId(tenantId, buckets, actionPKsfilteredByActionId, criteria);
             if (filterByActionId) {
                 if (actionPks.isEmpty()) {
                     actionPks.addAll(actionPKsfilteredByActionId);
@@ -290,7 +273,7 @@ public class CassActionsServiceImpl implements ActionsService {
              * Get Action PKs filtered by result
              */
             Set<ActionHistoryPK> actionPKsfilteredByResult = new HashSet<>();
-            boolean filterByResult = filterByResult(tenantId, actionPKsfilteredByResult, criteria);
+            boolean filterByResult = filterByResult(tenantId, buckets, actionPKsfilteredByResult, criteria);
             if (filterByResult) {
                 if (actionPks.isEmpty()) {
                     actionPks.addAll(actionPKsfilteredByResult);
@@ -307,21 +290,21 @@ public class CassActionsServiceImpl implements ActionsService {
             /*
              * Get all actions
              */
-            PreparedStatement selectActionHistoryByTenant = CassStatement.get(session,
-                    CassStatement.SELECT_ACTION_HISTORY_BY_TENANT);
-            ResultSet rsActionHistoryByTenant = session.execute(selectActionHistoryByTenant.bind(tenantId));
-            Iterator<Row> itActionHistoryByTenant = rsActionHistoryByTenant.iterator();
-            while (itActionHistoryByTenant.hasNext()) {
-                Row row = itActionHistoryByTenant.next();
-                Action actionHistory = JsonUtil.fromJson(row.getString("payload"), Action.class, thin);
-                actions.add(actionHistory);
-            }
+            List<ResultSet> rsActionHistoryByBucket = Futures.allAsList(TimeBuckets.selectAsync(session,
+                    CassStatement.SELECT_ACTION_HISTORY_BY_BUCKET, buckets, tenantId)).get();
+            rsActionHistoryByBucket.stream().forEach(r -> {
+                for (Row row : r) {
+                    Action actionHistory = JsonUtil.fromJson(row.getString("payload"), Action.class, thin);
+                    actions.add(actionHistory);
+                }
+            });
         } else {
             PreparedStatement selectActionHistory = CassStatement.get(session,
                     CassStatement.SELECT_ACTION_HISTORY);
             List<ResultSetFuture> futures = actionPks.stream().map(actionPk ->
-                    session.executeAsync(selectActionHistory.bind(actionPk.tenantId, actionPk.actionPlugin, actionPk
-                            .actionId, actionPk.alertId, actionPk.ctime))).collect(Collectors.toList());
+                    session.executeAsync(selectActionHistory.bind(actionPk.tenantId,
+                            TimeBuckets.bucket(actionPk.ctime), actionPk.actionPlugin, actionPk.actionId,
+                            actionPk.alertId, actionPk.ctime))).collect(Collectors.toList());
             List<ResultSet> rsActionHistory = Futures.allAsList(futures).get();
             rsActionHistory.stream().forEach(r -> {
                 for (Row row : r) {
@@ -334,62 +317,154 @@ public class CassActionsServiceImpl implements ActionsService {
         return preparePage(actions, pager);
     }
 
-    private boolean filterByCtime(String tenantId, Set<ActionHistoryPK> actionPks, ActionsCriteria criteria)
+    /*
+        Cursor pages that can be read in clustering order: all actions, or the actions within a ctime range, by ctime
+        from the actions_history_ctimes_by_bucket table. Without an order the cursor pages are the most recent actions
+        first. Other criteria and orders return null and take the general path, sorted in memory.
+     */
+    private Page<Action> getActionsSlice(String tenantId, ActionsCriteria criteria, Pager pager, boolean thin)
             throws Exception {
+        if (pager.getPageSize() <= 0) {
+            return null;
+        }
+        Order order = ctimeOrder(criteria, pager);
+        if (null == order) {
+            return null;
+        }
+        boolean filter = (null != criteria && criteria.hasCriteria());
+        Pager slicePager = Pager.cursor(pager.getCursor(), pager.getPageSize(), order);
+        try {
+            Long startTime = filter ? criteria.getStartTime() : null;
+            Long endTime = filter ? criteria.getEndTime() : null;
+            ClusteringSlice slice = ClusteringSlice.readCtimes(session, slicePager, tenantId, TimeBuckets.ACTIONS,
+                    CassStatement.SELECT_ACTION_HISTORY_CTIMES_SLICE, ACTION_HISTORY_CTIMES_CLUSTERING, startTime,
+                    endTime);
+            List<Action> actions = selectActions(tenantId, slice.getRows(), thin);
+            return new Page<>(actions, slicePager, Page.UNKNOWN_SIZE, slice.getNextCursor());
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+    }
+
+    /*
+        The ctime order of a query that can be read in clustering order from the actions_history_ctimes_by_bucket
+        table, null if it has other criteria or another order
+     */
+    private Order ctimeOrder(ActionsCriteria criteria, Pager pager) {
+        Order order = PageCursor.singleOrder(pager, Order.by(Field.CTIME.getText(), Order.Direction.DESCENDING));
+        if (null == order || !Field.CTIME.getText().equalsIgnoreCase(order.getField())) {
+            return null;
+        }
+        boolean filter = (null != criteria && criteria.hasCriteria());
+        return filter && !isCtimeOnly(criteria) ? null : order;
+    }
+
+    /*
+        The actions of rows of the actions_history_ctimes_by_bucket table
+     */
+    private List<Action> selectActions(String tenantId, List<Row> ctimeRows, boolean thin) throws Exception {
+        PreparedStatement selectActionHistory = CassStatement.get(session, CassStatement.SELECT_ACTION_HISTORY);
+        List<ResultSetFuture> futures = ctimeRows.stream().map(row ->
+                session.executeAsync(selectActionHistory.bind(tenantId, TimeBuckets.bucket(row.getLong("ctime")),
+                        row.getString("actionPlugin"), row.getString("actionId"), row.getString("alertId"),
+                        row.getLong("ctime"))))
+                .collect(Collectors.toList());
+        List<Action> actions = new ArrayList<>(futures.size());
+        for (ResultSet rs : Futures.allAsList(futures).get()) {
+            Row row = rs.one();
+            if (null != row) {
+                actions.add(JsonUtil.fromJson(row.getString("payload"), Action.class, thin));
+            }
+        }
+        return actions;
+    }
+
+    /*
+        A time slice is read in clustering order, bucket by bucket. Other queries read and sort the full match once.
+     */
+    @Override
+    public Iterator<Action> iterateActions(String tenantId, ActionsCriteria criteria, Pager pager) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        session = CassCluster.getSession();
+        boolean thin = (null != criteria && criteria.isThin());
+        boolean filter = (null != criteria && criteria.hasCriteria());
+        Pager ordered = null == pager || isEmpty(pager.getOrder())
+                ? Pager.unlimited(Order.by(Field.CTIME.getText(), Order.Direction.DESCENDING))
+                : Pager.unlimited(pager.getOrder());
+        Order order = ctimeOrder(criteria, ordered);
+        if (null == order) {
+            return getActions(tenantId, criteria, ordered).iterator();
+        }
+        Iterator<Row> rows = ResultIterators.ctimeRows(session, tenantId, TimeBuckets.ACTIONS,
+                CassStatement.SELECT_ACTION_HISTORY_CTIMES_SLICE, ACTION_HISTORY_CTIMES_CLUSTERING,
+                filter ? criteria.getStartTime() : null, filter ? criteria.getEndTime() : null,
+                !order.isAscending());
+        return ResultIterators.chunked(rows, chunk -> selectActions(tenantId, chunk, thin));
+    }
+
+    private boolean isCtimeOnly(ActionsCriteria criteria) {
+        return (null != criteria.getStartTime() || null != criteria.getEndTime())
+                && null == criteria.getActionPlugin() && isEmpty(criteria.getActionPlugins())
+                && null == criteria.getActionId() && isEmpty(criteria.getActionIds())
+                && null == criteria.getAlertId() && isEmpty(criteria.getAlertIds())
+                && null == criteria.getResult() && isEmpty(criteria.getResults());
+    }
+
+    private boolean filterByCtime(String tenantId, List<Long> buckets, Set<ActionHistoryPK> actionPks,
+            ActionsCriteria criteria) throws Exception {
         boolean filterByCtime = false;
         if (criteria.getStartTime() != null || criteria.getEndTime() != null) {
             filterByCtime = true;
 
-            BoundStatement boundCtime;
+            List<ResultSetFuture> futures;
             if (criteria.getStartTime() != null && criteria.getEndTime() != null) {
-                PreparedStatement selectActionHistoryCTimeStartEnd = CassStatement.get(session,
-                        CassStatement.SELECT_ACTION_HISTORY_CTIME_START_END);
-                boundCtime = selectActionHistoryCTimeStartEnd.bind(tenantId, criteria.getStartTime(),
-                        criteria.getEndTime());
+                futures = TimeBuckets.selectAsync(session, CassStatement.SELECT_ACTION_HISTORY_CTIME_START_END,
+                        buckets, tenantId, criteria.getStartTime(), criteria.getEndTime());
             } else if (criteria.getStartTime() != null) {
-                PreparedStatement selectActionHistoryCTimeStart = CassStatement.get(session,
-                        CassStatement.SELECT_ACTION_HISTORY_CTIME_START);
-                boundCtime = selectActionHistoryCTimeStart.bind(tenantId, criteria.getStartTime());
+                futures = TimeBuckets.selectAsync(session, CassStatement.SELECT_ACTION_HISTORY_CTIME_START, buckets,
+                        tenantId, criteria.getStartTime());
             } else {
-                PreparedStatement selectActionHistoryCTimeEnd = CassStatement.get(session,
-                        CassStatement.SELECT_ACTION_HISTORY_CTIME_END);
-                boundCtime = selectActionHistoryCTimeEnd.bind(tenantId, criteria.getEndTime());
+                futures = TimeBuckets.selectAsync(session, CassStatement.SELECT_ACTION_HISTORY_CTIME_END, buckets,
+                        tenantId, criteria.getEndTime());
             }
 
-            ResultSet rsActionHistoryCtimes = session.execute(boundCtime);
-            Iterator<Row> itActionHistoryCtimes = rsActionHistoryCtimes.iterator();
-            while (itActionHistoryCtimes.hasNext()) {
-                Row row = itActionHistoryCtimes.next();
-                ActionHistoryPK actionHistoryPK = new ActionHistoryPK();
-                actionHistoryPK.tenantId = tenantId;
-                actionHistoryPK.actionPlugin = row.getString("actionPlugin");
-                actionHistoryPK.actionId = row.getString("actionId");
-                actionHistoryPK.alertId = row.getString("alertId");
-                actionHistoryPK.ctime = row.getLong("ctime");
-                actionPks.add(actionHistoryPK);
-            }
+            List<ResultSet> rsActionHistoryCtimes = Futures.allAsList(futures).get();
+            rsActionHistoryCtimes.stream().forEach(r -> {
+                for (Row row : r) {
+                    ActionHistoryPK actionHistoryPK = new ActionHistoryPK();
+                    actionHistoryPK.tenantId = tenantId;
+                    actionHistoryPK.actionPlugin = row.getString("actionPlugin");
+                    actionHistoryPK.actionId = row.getString("actionId");
+                    actionHistoryPK.alertId = row.getString("alertId");
+                    actionHistoryPK.ctime = row.getLong("ctime");
+                    actionPks.add(actionHistoryPK);
+                }
+            });
         }
         return filterByCtime;
     }
 
-    private boolean filterByActionPlugin(String tenantId, Set<ActionHistoryPK> actionPks, ActionsCriteria criteria)
-            throws Exception {
+    private boolean filterByActionPlugin(String tenantId, List<Long> buckets, Set<ActionHistoryPK> actionPks,
+            ActionsCriteria criteria) throws Exception {
         boolean filterByActionPlugin = false;
         if (criteria.getActionPlugin() != null
                 || (criteria.getActionPlugins() != null && !criteria.getActionPlugins().isEmpty())) {
             filterByActionPlugin = true;
 
-            PreparedStatement selectActionHistoryActionPlugin = CassStatement.get(session,
-                    CassStatement.SELECT_ACTION_HISTORY_ACTION_PLUGIN);
-
             List<ResultSetFuture> futures = new ArrayList<>();
             if (criteria.getActionPlugin() != null) {
-                futures.add(session.executeAsync(selectActionHistoryActionPlugin.bind(tenantId,
-                        criteria.getActionPlugin())));
+                futures.addAll(TimeBuckets.selectAsync(session, CassStatement.SELECT_ACTION_HISTORY_ACTION_PLUGIN,
+                        buckets, tenantId, criteria.getActionPlugin()));
             }
             if (criteria.getActionPlugins() != null && !criteria.getActionPlugins().isEmpty()) {
                 for (String actionPlugin : criteria.getActionPlugins()) {
-                    futures.add(session.executeAsync(selectActionHistoryActionPlugin.bind(tenantId, actionPlugin)));
+                    futures.addAll(TimeBuckets.selectAsync(session, CassStatement.SELECT_ACTION_HISTORY_ACTION_PLUGIN,
+                            buckets, tenantId, actionPlugin));
                 }
             }
 
@@ -409,23 +484,22 @@ public class CassActionsServiceImpl implements ActionsService {
         return filterByActionPlugin;
     }
 
-    private boolean filterByActionId(String tenantId, Set<ActionHistoryPK> actionPks, ActionsCriteria criteria)
-            throws Exception {
+    private boolean filterByActionId(String tenantId, List<Long> buckets, Set<ActionHistoryPK> actionPks,
+            ActionsCriteria criteria) throws Exception {
         boolean filterByActionId = false;
         if (criteria.getActionId() != null
                 || (criteria.getActionIds() != null && !criteria.getActionIds().isEmpty())) {
             filterByActionId = true;
 
-            PreparedStatement selectActionHistoryActionId = CassStatement.get(session,
-                    CassStatement.SELECT_ACTION_HISTORY_ACTION_ID);
-
             List<ResultSetFuture> futures = new ArrayList<>();
             if (criteria.getActionId() != null) {
-                futures.add(session.executeAsync(selectActionHistoryActionId.bind(tenantId, criteria.getActionId())));
+                futures.addAll(TimeBuckets.selectAsync(session, CassStatement.SELECT_ACTION_HISTORY_ACTION_ID,
+                        buckets, tenantId, criteria.getActionId()));
             }
             if (criteria.getActionIds() != null && !criteria.getActionIds().isEmpty()) {
                 for (String actionId : criteria.getActionIds()) {
-                    futures.add(session.executeAsync(selectActionHistoryActionId.bind(tenantId, actionId)));
+                    futures.addAll(TimeBuckets.selectAsync(session, CassStatement.SELECT_ACTION_HISTORY_ACTION_ID,
+                            buckets, tenantId, actionId));
                 }
             }
 
@@ -481,23 +555,22 @@ public class CassActionsServiceImpl implements ActionsService {
         return filterByAlertId;
     }
 
-    private boolean filterByResult(String tenantId, Set<ActionHistoryPK> actionPks, ActionsCriteria criteria)
-            throws Exception {
+    private boolean filterByResult(String tenantId, List<Long> buckets, Set<ActionHistoryPK> actionPks,
+            ActionsCriteria criteria) throws Exception {
         boolean filterByResult = false;
         if (criteria.getResult() != null
                 || (criteria.getResults() != null && !criteria.getResults().isEmpty())) {
             filterByResult = true;
 
-            PreparedStatement selectActionHistoryResult = CassStatement.get(session,
-                    CassStatement.SELECT_ACTION_HISTORY_RESULT);
-
             List<ResultSetFuture> futures = new ArrayList<>();
             if (criteria.getResult() != null) {
-                futures.add(session.executeAsync(selectActionHistoryResult.bind(tenantId, criteria.getResult())));
+                futures.addAll(TimeBuckets.selectAsync(session, CassStatement.SELECT_ACTION_HISTORY_RESULT,
+                        buckets, tenantId, criteria.getResult()));
             }
             if (criteria.getResults() != null && !criteria.getResults().isEmpty()) {
                 for (String result : criteria.getResults()) {
-                    futures.add(session.executeAsync(selectActionHistoryResult.bind(tenantId, result)));
+                    futures.addAll(TimeBuckets.selectAsync(session, CassStatement.SELECT_ACTION_HISTORY_RESULT,
+                            buckets, tenantId, result));
                 }
             }
 
@@ -522,10 +595,14 @@ public class CassActionsServiceImpl implements ActionsService {
             if (pager.getOrder() != null
                     && !pager.getOrder().isEmpty()
                     && pager.getOrder().get(0).getField() == null) {
-                pager = Pager.builder()
+                Pager.Builder builder = Pager.builder()
                         .withPageSize(pager.getPageSize())
                         .withStartPage(pager.getPageNumber())
-                        .orderBy(Field.ALERT_ID.getText(), Order.Direction.DESCENDING).build();
+                        .orderBy(Field.ALERT_ID.getText(), Order.Direction.DESCENDING);
+                if (pager.isCursor()) {
+                    builder.withCursor(pager.getCursor());
+                }
+                pager = builder.build();
             }
             List<Action> ordered = actions;
             if (pager.getOrder() != null) {
@@ -537,6 +614,9 @@ public class CassActionsServiceImpl implements ActionsService {
                             Collections.sort(ordered, comparator);
                         });
             }
+            if (pager.isCursor()) {
+                return PageCursor.offsetPage(ordered, pager);
+            }
             if (!pager.isLimited() || ordered.size() < pager.getStart()) {
                 pager = new Pager(0, ordered.size(), pager.getOrder());
                 return new Page(ordered, pager, ordered.size());
@@ -566,34 +646,11 @@ public class CassActionsServiceImpl implements ActionsService {
             return 0;
         }
 
-        PreparedStatement deleteActionHistory = CassStatement.get(session,
-                CassStatement.DELETE_ACTION_HISTORY);
-        PreparedStatement deleteActionHistoryAction = CassStatement.get(session,
-                CassStatement.DELETE_ACTION_HISTORY_ACTION);
-        PreparedStatement deleteActionHistoryAlert = CassStatement.get(session,
-                CassStatement.DELETE_ACTION_HISTORY_ALERT);
-        PreparedStatement deleteActionHistoryCtime = CassStatement.get(session,
-                CassStatement.DELETE_ACTION_HISTORY_CTIME);
-        PreparedStatement deleteActionHistoryResult = CassStatement.get(session,
-                CassStatement.DELETE_ACTION_HISTORY_RESULT);
-
+        CassWriteBatch batch = new CassWriteBatch(session);
         for (Action action : actionsToDelete) {
-            List<ResultSetFuture> futures = new ArrayList<>();
-            futures.add(session.executeAsync(deleteActionHistory.bind(action.getTenantId(), action.getActionPlugin(),
-                    action.getActionId(), action.getEvent().getId(), action.getCtime())));
-            futures.add(session.executeAsync(deleteActionHistoryAction.bind(action.getTenantId(),
-                    action.getActionId(),
-                    action.getActionPlugin(), action.getEvent().getId(), action.getCtime())));
-            futures.add(session.executeAsync(deleteActionHistoryAlert.bind(action.getTenantId(),
-                    action.getEvent().getId(), action.getActionPlugin(), action.getActionId(),
-                    action.getCtime())));
-            futures.add(session.executeAsync(deleteActionHistoryCtime.bind(action.getTenantId(), action.getCtime(),
-                    action.getActionPlugin(), action.getActionId(), action.getEvent().getId())));
-            futures.add(session.executeAsync(deleteActionHistoryResult.bind(action.getTenantId(),
-                    action.getResult(), action.getActionPlugin(), action.getActionId(), action.getEvent().getId(),
-                    action.getCtime())));
-            Futures.allAsList(futures).get();
+            CassHistoryWriter.deleteAction(action, batch);
         }
+        batch.execute();
 
         return actionsToDelete.size();
     }
@@ -602,6 +659,10 @@ public class CassActionsServiceImpl implements ActionsService {
         return null == s || s.trim().isEmpty();
     }
 
+    private boolean isEmpty(Collection<?> c) {
+        return null == c || c.isEmpty();
+    }
+
     private class ActionHistoryPK {
         public String tenantId;
         public String actionPlugin;
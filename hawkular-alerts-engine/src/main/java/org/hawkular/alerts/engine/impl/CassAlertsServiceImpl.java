@@ -17,14 +17,22 @@
 package org.hawkular.alerts.engine.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.ejb.EJB;
@@ -46,15 +54,20 @@ import org.hawkular.alerts.api.model.paging.EventComparator;
 import org.hawkular.alerts.api.model.paging.Order;
 import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.Pager;
+import org.hawkular.alerts.api.model.stats.AlertsStats;
 import org.hawkular.alerts.api.model.trigger.Mode;
 import org.hawkular.alerts.api.model.trigger.Trigger;
 import org.hawkular.alerts.api.services.ActionsService;
 import org.hawkular.alerts.api.services.AlertsCriteria;
 import org.hawkular.alerts.api.services.AlertsService;
+import org.hawkular.alerts.api.services.AlertsStatsCriteria;
+import org.hawkular.alerts.api.services.AlertsStatsCriteria.GroupBy;
 import org.hawkular.alerts.api.services.DefinitionsService;
 import org.hawkular.alerts.api.services.EventsCriteria;
+import org.hawkular.alerts.api.services.EventsListener;
 import org.hawkular.alerts.engine.log.MsgLogger;
 import org.hawkular.alerts.engine.service.AlertsEngine;
+import org.hawkular.alerts.engine.service.PartitionManager;
 import org.jboss.logging.Logger;
 
 import com.datastax.driver.core.BoundStatement;
@@ -79,6 +92,28 @@ public class CassAlertsServiceImpl implements AlertsService {
     private final MsgLogger msgLog = MsgLogger.LOGGER;
     private final Logger log = Logger.getLogger(CassAlertsServiceImpl.class);
 
+    private static final String[] ALERTS_CTIMES_CLUSTERING = { "ctime", "alertId" };
+    private static final String[] EVENTS_CTIMES_CLUSTERING = { "ctime", "id" };
+    private static final String[] ALERTS_STATS_CLUSTERING = { "status", "severity", "triggerId" };
+    private static final String[] ALERTS_TAGS_STATS_CLUSTERING = { "status", "name", "value" };
+
+    /*
+        Selections of a page from the history index, when the previous ones found ids expired from the backend
+     */
+    private static final int INDEX_SELECT_ATTEMPTS = 3;
+
+    static final String LIFECYCLE_BATCH = "hawkular-alerts.lifecycle-batch";
+
+    /*
+        Alerts whose status writes are pipelined together on an ack or a resolve
+     */
+    private static final int lifecycleBatch = Integer.parseInt(AlertProperties.getProperty(LIFECYCLE_BATCH, "500"));
+
+    /*
+        Writes of the status of an alert changed meanwhile by a concurrent update, the last one is not conditional
+     */
+    private static final int STATUS_ATTEMPTS = 3;
+
     private Session session;
 
     @EJB
@@ -90,6 +125,9 @@ public class CassAlertsServiceImpl implements AlertsService {
     @EJB
     ActionsService actionsService;
 
+    @EJB
+    PartitionManager partitionManager;
+
     public CassAlertsServiceImpl() {
     }
 
@@ -105,39 +143,18 @@ public class CassAlertsServiceImpl implements AlertsService {
             log.debug("Adding " + alerts.size() + " alerts");
         }
         session = CassCluster.getSession();
-        PreparedStatement insertAlert = CassStatement.get(session, CassStatement.INSERT_ALERT);
-        PreparedStatement insertAlertTrigger = CassStatement.get(session, CassStatement.INSERT_ALERT_TRIGGER);
-        PreparedStatement insertAlertCtime = CassStatement.get(session, CassStatement.INSERT_ALERT_CTIME);
-        PreparedStatement insertAlertStatus = CassStatement.get(session, CassStatement.INSERT_ALERT_STATUS);
-        PreparedStatement insertAlertSeverity = CassStatement.get(session, CassStatement.INSERT_ALERT_SEVERITY);
-        PreparedStatement insertTag = CassStatement.get(session, CassStatement.INSERT_TAG);
-
         try {
-            List<ResultSetFuture> futures = new ArrayList<>();
-            alerts.stream().forEach(a -> {
-                futures.add(session.executeAsync(insertAlert.bind(a.getTenantId(), a.getAlertId(),
-                        JsonUtil.toJson(a))));
-                futures.add(session.executeAsync(insertAlertTrigger.bind(a.getTenantId(),
-                        a.getAlertId(),
-                        a.getTriggerId())));
-                futures.add(session.executeAsync(insertAlertCtime.bind(a.getTenantId(),
-                        a.getAlertId(), a.getCtime())));
-                futures.add(session.executeAsync(insertAlertStatus.bind(a.getTenantId(),
-                        a.getAlertId(),
-                        a.getStatus().name())));
-                futures.add(session.executeAsync(insertAlertSeverity.bind(a.getTenantId(),
-                        a.getAlertId(),
-                        a.getSeverity().name())));
-
-                a.getTags().entrySet().stream().forEach(tag -> {
-                    futures.add(session.executeAsync(insertTag.bind(a.getTenantId(), TagType.ALERT.name(),
-                            tag.getKey(), tag.getValue(), a.getId())));
-                });
-            });
+            CassWriteBatch batch = new CassWriteBatch(session);
+            for (Alert a : alerts) {
+                CassHistoryWriter.insertAlert(a, batch);
+                CassHistoryWriter.countAlert(a, a.getStatus(), 1, batch);
+            }
             /*
-                main method is synchronous so we need to wait until futures are completed
+                main method is synchronous so we need to wait until writes are completed
              */
-            Futures.allAsList(futures).get();
+            batch.execute();
+            HistoryIndex.getInstance().putAlerts(alerts);
+            EventsFeed.getInstance().alerts(alerts);
 
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
@@ -163,34 +180,15 @@ public class CassAlertsServiceImpl implements AlertsService {
             log.debug("Adding " + events.size() + " events");
         }
         session = CassCluster.getSession();
-        PreparedStatement insertEvent = CassStatement.get(session, CassStatement.INSERT_EVENT);
-        PreparedStatement insertEventCategory = CassStatement.get(session, CassStatement.INSERT_EVENT_CATEGORY);
-        PreparedStatement insertEventCtime = CassStatement.get(session, CassStatement.INSERT_EVENT_CTIME);
-        PreparedStatement insertEventTrigger = CassStatement.get(session, CassStatement.INSERT_EVENT_TRIGGER);
-        PreparedStatement insertTag = CassStatement.get(session, CassStatement.INSERT_TAG);
-
         try {
-            List<ResultSetFuture> futures = new ArrayList<>();
-            events.stream().forEach(e -> {
-                futures.add(session.executeAsync(insertEvent.bind(e.getTenantId(), e.getId(),
-                        JsonUtil.toJson(e))));
-                futures.add(session.executeAsync(insertEventCategory.bind(e.getTenantId(), e.getCategory(),
-                        e.getId())));
-                futures.add(session.executeAsync(insertEventCtime.bind(e.getTenantId(), e.getCtime(),
-                        e.getId())));
-                if (null != e.getTrigger()) {
-                    futures.add(session.executeAsync(insertEventTrigger.bind(e.getTenantId(), e.getTrigger().getId(),
-                            e.getId())));
-                }
-                e.getTags().entrySet().stream().forEach(tag -> {
-                    futures.add(session.executeAsync(insertTag.bind(e.getTenantId(), TagType.EVENT.name(),
-                            tag.getKey(), tag.getValue(), e.getId())));
-                });
-            });
+            CassWriteBatch batch = new CassWriteBatch(session);
+            events.stream().forEach(e -> CassHistoryWriter.insertEvent(e, batch));
             /*
-                main method is synchronous so we need to wait until futures are completed
+                main method is synchronous so we need to wait until writes are completed
              */
-            Futures.allAsList(futures).get();
+            batch.execute();
+            HistoryIndex.getInstance().putEvents(events);
+            EventsFeed.getInstance().events(events);
 
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
@@ -218,12 +216,10 @@ public class CassAlertsServiceImpl implements AlertsService {
         alert.addNote(user, text);
 
         session = CassCluster.getSession();
-        PreparedStatement updateAlert = CassStatement.get(session, CassStatement.UPDATE_ALERT);
-        if (updateAlert == null) {
-            throw new RuntimeException("updateAlert PreparedStatement is null");
-        }
         try {
-            session.execute(updateAlert.bind(JsonUtil.toJson(alert), alert.getTenantId(), alert.getAlertId()));
+            CassWriteBatch batch = new CassWriteBatch(session);
+            CassHistoryWriter.updateAlert(alert, batch);
+            batch.execute();
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
@@ -239,17 +235,11 @@ public class CassAlertsServiceImpl implements AlertsService {
             throw new IllegalArgumentException("AlertId must be not null");
         }
         session = CassCluster.getSession();
-        PreparedStatement selectAlert = CassStatement.get(session, CassStatement.SELECT_ALERT);
-        if (selectAlert == null) {
-            throw new RuntimeException("selectAlert PreparedStatement is null");
-        }
         Alert alert = null;
         try {
-            ResultSet rsAlert = session.execute(selectAlert.bind(tenantId, alertId));
-            Iterator<Row> itAlert = rsAlert.iterator();
-            if (itAlert.hasNext()) {
-                Row row = itAlert.next();
-                alert = JsonUtil.fromJson(row.getString("payload"), Alert.class, thin);
+            List<Alert> alerts = selectAlerts(tenantId, Collections.singletonList(alertId), thin);
+            if (!alerts.isEmpty()) {
+                alert = alerts.get(0);
             }
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
@@ -277,7 +267,7 @@ public class CassAlertsServiceImpl implements AlertsService {
             Iterator<Row> itEvent = rsEvent.iterator();
             if (itEvent.hasNext()) {
                 Row row = itEvent.next();
-                event = JsonUtil.fromJson(row.getString("payload"), Event.class, thin);
+                event = JsonUtil.fromPayload(row.getBytes("payload"), Event.class, thin);
             }
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
@@ -309,11 +299,29 @@ public class CassAlertsServiceImpl implements AlertsService {
             log.debug("getAlerts criteria: " + criteria.toString());
         }
 
+        if (null != pager && pager.isCursor()) {
+            Page<Alert> alertsSlice = getAlertsSlice(tenantId, criteria, pager, thin);
+            if (null != alertsSlice) {
+                return alertsSlice;
+            }
+        }
+
+        Page<Alert> indexedAlerts = getAlertsIndexed(tenantId, criteria, pager, thin);
+        if (null != indexedAlerts) {
+            return indexedAlerts;
+        }
+
         List<Alert> alerts = new ArrayList<>();
         Set<String> alertIds = new HashSet<>();
         boolean activeFilter = false;
 
         try {
+            /*
+                Buckets of the criteria time range, all the buckets of the tenant if there is none
+             */
+            List<Long> buckets = TimeBuckets.buckets(session, tenantId, TimeBuckets.ALERTS,
+                    filter ? criteria.getStartTime() : null, filter ? criteria.getEndTime() : null);
+
             if (filter) {
                 /*
                     Get alertsIds explicitly added into the criteria. Start with these as there is no query involved
@@ -351,7 +359,7 @@ public class CassAlertsServiceImpl implements AlertsService {
                     Get alertIds filtered by triggerIds clause
                  */
                 if (criteria.hasTriggerIdCriteria()) {
-                    Set<String> alertIdsFilteredByTriggers = filterByTriggers(tenantId, criteria);
+                    Set<String> alertIdsFilteredByTriggers = filterByTriggers(tenantId, buckets, criteria);
                     if (activeFilter) {
                         alertIds.retainAll(alertIdsFilteredByTriggers);
                         if (alertIds.isEmpty()) {
@@ -367,7 +375,7 @@ public class CassAlertsServiceImpl implements AlertsService {
                     Get alertsIds filtered by time clause
                  */
                 if (criteria.hasCTimeCriteria()) {
-                    Set<String> alertIdsFilteredByTime = filterByCTime(tenantId, criteria);
+                    Set<String> alertIdsFilteredByTime = filterByCTime(tenantId, buckets, criteria);
                     if (activeFilter) {
                         alertIds.retainAll(alertIdsFilteredByTime);
                         if (alertIds.isEmpty()) {
@@ -383,7 +391,7 @@ public class CassAlertsServiceImpl implements AlertsService {
                      Get alertsIds filtered by severities clause
                 */
                 if (criteria.hasSeverityCriteria()) {
-                    Set<String> alertIdsFilteredBySeverity = filterBySeverities(tenantId, criteria);
+                    Set<String> alertIdsFilteredBySeverity = filterBySeverities(tenantId, buckets, criteria);
                     if (activeFilter) {
                         alertIds.retainAll(alertIdsFilteredBySeverity);
                         if (alertIds.isEmpty()) {
@@ -399,7 +407,7 @@ public class CassAlertsServiceImpl implements AlertsService {
                     Get alertsIds filtered by statuses clause
                  */
                 if (criteria.hasStatusCriteria()) {
-                    Set<String> alertIdsFilteredByStatus = filterByStatuses(tenantId, criteria);
+                    Set<String> alertIdsFilteredByStatus = filterByStatuses(tenantId, buckets, criteria);
                     if (activeFilter) {
                         alertIds.retainAll(alertIdsFilteredByStatus);
                         if (alertIds.isEmpty()) {
@@ -411,38 +419,24 @@ public class CassAlertsServiceImpl implements AlertsService {
                     activeFilter = true;
                 }
 
+            } else {
                 /*
-                    If we have reached this point then we have at least 1 filtered alertId, so now
-                    get the resulting Alerts...
+                    Get all alerts - ids of each bucket from the ctimes index
                  */
-                PreparedStatement selectAlertsByTenantAndAlert = CassStatement
-                        .get(session, CassStatement.SELECT_ALERT);
-                List<ResultSetFuture> futures = alertIds.stream().map(alertId ->
-                        session.executeAsync(selectAlertsByTenantAndAlert.bind(tenantId, alertId)))
-                        .collect(Collectors.toList());
-                List<ResultSet> rsAlerts = Futures.allAsList(futures).get();
-                rsAlerts.stream().forEach(r -> {
+                List<ResultSet> rsAlertIds = Futures.allAsList(TimeBuckets.selectAsync(session,
+                        CassStatement.SELECT_ALERT_IDS_BY_BUCKET, buckets, tenantId)).get();
+                rsAlertIds.stream().forEach(r -> {
                     for (Row row : r) {
-                        String payload = row.getString("payload");
-                        Alert alert = JsonUtil.fromJson(payload, Alert.class, thin);
-                        alerts.add(alert);
+                        alertIds.add(row.getString("alertId"));
                     }
                 });
-
-            } else {
-                /*
-                    Get all alerts - Single query
-                 */
-                PreparedStatement selectAlertsByTenant = CassStatement.get(session,
-                        CassStatement.SELECT_ALERTS_BY_TENANT);
-                ResultSet rsAlerts = session.execute(selectAlertsByTenant.bind(tenantId));
-                for (Row row : rsAlerts) {
-                    String payload = row.getString("payload");
-                    Alert alert = JsonUtil.fromJson(payload, Alert.class, thin);
-                    alerts.add(alert);
-                }
             }
 
+            /*
+                If we have reached this point then we have at least 1 alertId, so now get the resulting Alerts...
+             */
+            alerts.addAll(selectAlerts(tenantId, alertIds, thin));
+
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
@@ -451,16 +445,290 @@ public class CassAlertsServiceImpl implements AlertsService {
         return preparePage(alerts, pager);
     }
 
+    /*
+        Time slices and queries resolved by the history index, tags included, are composed of Cassandra requests and
+        wait for no thread. A missing index is built on the query threads, meanwhile and without an index the
+        queries run the synchronous getAlerts() on the query threads, failing with a RejectedExecutionException when
+        they are saturated.
+     */
+    @Override
+    public CompletionStage<Page<Alert>> getAlertsAsync(String tenantId, AlertsCriteria criteria, Pager pager) {
+        if (isEmpty(tenantId)) {
+            return AsyncQueries.failed(new IllegalArgumentException("TenantId must be not null"));
+        }
+        session = CassCluster.getSession();
+        boolean thin = (null != criteria && criteria.isThin());
+        Order sliceOrder = alertsSliceOrder(criteria, pager);
+        if (null != sliceOrder) {
+            return alertsSlice(tenantId, criteria, pager, sliceOrder, thin);
+        }
+        HistoryIndex.Entries index = historyIndex(tenantId, TimeBuckets.ALERTS, false);
+        if (null == index) {
+            return AsyncQueries.submit(() -> getAlerts(tenantId, criteria, pager));
+        }
+        return alertsIndexFilter(tenantId, criteria).thenCompose(indexFilter ->
+                selectIndexedAlerts(tenantId, index, indexFilter, pager, thin, 1));
+    }
+
+    /*
+        The keys of the result are read in clustering order when the query is a time slice, or taken from the history
+        index when the order is on indexed fields. Otherwise the general path reads and sorts the full match, once.
+     */
+    @Override
+    public Iterator<Alert> iterateAlerts(String tenantId, AlertsCriteria criteria, Pager pager) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        session = CassCluster.getSession();
+        boolean filter = (null != criteria && criteria.hasCriteria());
+        boolean thin = (null != criteria && criteria.isThin());
+        Pager ordered = null == pager || isEmpty(pager.getOrder())
+                ? Pager.unlimited(Order.by(Field.CTIME.getText(), Order.Direction.DESCENDING))
+                : Pager.unlimited(pager.getOrder());
+
+        Order ctimeOrder = alertsCtimeOrder(criteria, ordered);
+        if (null != ctimeOrder) {
+            Iterator<Row> rows = ResultIterators.ctimeRows(session, tenantId, TimeBuckets.ALERTS,
+                    CassStatement.SELECT_ALERT_CTIMES_SLICE, ALERTS_CTIMES_CLUSTERING,
+                    filter ? criteria.getStartTime() : null, filter ? criteria.getEndTime() : null,
+                    !ctimeOrder.isAscending());
+            return ResultIterators.chunked(rows, chunk -> selectAlerts(tenantId, chunk.stream()
+                    .map(row -> row.getString("alertId")).collect(Collectors.toList()), thin));
+        }
+        HistoryIndex.Entries index = historyIndex(tenantId, TimeBuckets.ALERTS, true);
+        Comparator<HistoryIndex.Entry> order = HistoryIndex.alertsOrder(
+                defaultOrder(ordered, Field.ALERT_ID.getText()).getOrder());
+        if (null != index && null != order) {
+            List<String> alertIds = index.select(AsyncQueries.get(alertsIndexFilter(tenantId, criteria)), order);
+            return ResultIterators.chunked(alertIds.iterator(), chunk -> selectAlerts(tenantId, chunk, thin));
+        }
+        return getAlerts(tenantId, criteria, ordered).iterator();
+    }
+
+    /*
+        Cursor pages that can be read in clustering order: all alerts, or the alerts within a ctime range, by ctime
+        from the alerts_ctimes_by_bucket table. Without an order the cursor pages are the most recent alerts first.
+        Other criteria and orders return null and take the general path, sorted in memory.
+     */
+    private Page<Alert> getAlertsSlice(String tenantId, AlertsCriteria criteria, Pager pager, boolean thin)
+            throws Exception {
+        Order order = alertsSliceOrder(criteria, pager);
+        if (null == order) {
+            return null;
+        }
+        return AsyncQueries.get(alertsSlice(tenantId, criteria, pager, order, thin));
+    }
+
+    private CompletableFuture<Page<Alert>> alertsSlice(String tenantId, AlertsCriteria criteria, Pager pager,
+            Order order, boolean thin) {
+        boolean filter = (null != criteria && criteria.hasCriteria());
+        Pager slicePager = Pager.cursor(pager.getCursor(), pager.getPageSize(), order);
+        Long startTime = filter ? criteria.getStartTime() : null;
+        Long endTime = filter ? criteria.getEndTime() : null;
+        return ClusteringSlice.readCtimesAsync(session, slicePager, tenantId, TimeBuckets.ALERTS,
+                CassStatement.SELECT_ALERT_CTIMES_SLICE, ALERTS_CTIMES_CLUSTERING, startTime, endTime)
+                .thenCompose(slice -> {
+                    List<String> alertIds = slice.getRows().stream().map(row -> row.getString("alertId"))
+                            .collect(Collectors.toList());
+                    return selectAlertsAsync(tenantId, alertIds, thin).thenApply(alerts ->
+                            new Page<>(alerts, slicePager, Page.UNKNOWN_SIZE, slice.getNextCursor()));
+                }).whenComplete(this::logDatabaseFailure);
+    }
+
+    /*
+        The order of the cursor pages read by getAlertsSlice(), null if the query takes another path
+     */
+    private Order alertsSliceOrder(AlertsCriteria criteria, Pager pager) {
+        if (null == pager || !pager.isCursor() || pager.getPageSize() <= 0) {
+            return null;
+        }
+        return alertsCtimeOrder(criteria, pager);
+    }
+
+    /*
+        The ctime order of a query that can be read in clustering order from the alerts_ctimes_by_bucket table, null
+        if it has other criteria or another order
+     */
+    private Order alertsCtimeOrder(AlertsCriteria criteria, Pager pager) {
+        Order order = PageCursor.singleOrder(pager, Order.by(Field.CTIME.getText(), Order.Direction.DESCENDING));
+        if (null == order || !Field.CTIME.getText().equalsIgnoreCase(order.getField())) {
+            return null;
+        }
+        boolean filter = (null != criteria && criteria.hasCriteria());
+        boolean ctimeFilterOnly = filter && criteria.hasCTimeCriteria() && !criteria.hasAlertIdCriteria()
+                && !criteria.hasTagCriteria() && !criteria.hasTriggerIdCriteria() && !criteria.hasSeverityCriteria()
+                && !criteria.hasStatusCriteria();
+        return filter && !ctimeFilterOnly ? null : order;
+    }
+
+    /*
+        Criteria and order resolved by the in-memory HistoryIndex. If the order is on indexed fields only the alerts
+        of the requested page are read, otherwise all the matching alerts are read and paged as in the Cassandra path.
+        Ids no longer in the backend, as alerts expire by their ttl, are removed from the index and the page is
+        selected again. Returns null if the tenant has no index available, the query then takes the Cassandra path.
+     */
+    private Page<Alert> getAlertsIndexed(String tenantId, AlertsCriteria criteria, Pager pager, boolean thin)
+            throws Exception {
+        HistoryIndex.Entries index = historyIndex(tenantId, TimeBuckets.ALERTS, true);
+        if (null == index) {
+            return null;
+        }
+        try {
+            return AsyncQueries.get(alertsIndexFilter(tenantId, criteria).thenCompose(indexFilter ->
+                    selectIndexedAlerts(tenantId, index, indexFilter, pager, thin, 1)));
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+    }
+
+    /*
+        The tags are read without blocking, the rest of the criteria are resolved by the index
+     */
+    private CompletableFuture<HistoryIndex.Filter> alertsIndexFilter(String tenantId, AlertsCriteria criteria) {
+        HistoryIndex.Filter indexFilter = new HistoryIndex.Filter();
+        if (null != criteria && criteria.hasCriteria()) {
+            if (criteria.hasAlertIdCriteria()) {
+                indexFilter.ids(filterByAlerts(criteria));
+            }
+            if (criteria.hasTriggerIdCriteria()) {
+                indexFilter.triggerIds(extractTriggerIds(tenantId, criteria));
+            }
+            if (criteria.hasCTimeCriteria()) {
+                indexFilter.ctimes(criteria.getStartTime(), criteria.getEndTime());
+            }
+            if (criteria.hasSeverityCriteria()) {
+                indexFilter.severities(extractSeverities(criteria));
+            }
+            if (criteria.hasStatusCriteria()) {
+                indexFilter.statuses(extractStatuses(criteria));
+            }
+            if (criteria.hasTagCriteria()) {
+                return getIdsByTagsAsync(tenantId, TagType.ALERT, criteria.getTags()).thenApply(indexFilter::ids);
+            }
+        }
+        return CompletableFuture.completedFuture(indexFilter);
+    }
+
+    /*
+        The alerts of the page are read without blocking, the page is selected again on the completion if some of
+        them expired.
+     */
+    private CompletableFuture<Page<Alert>> selectIndexedAlerts(String tenantId, HistoryIndex.Entries index,
+            HistoryIndex.Filter indexFilter, Pager pager, boolean thin, int attempt) {
+        Pager ordered = null == pager ? null : defaultOrder(pager, Field.ALERT_ID.getText());
+        Comparator<HistoryIndex.Entry> order = null != ordered && ordered.isLimited()
+                ? HistoryIndex.alertsOrder(ordered.getOrder()) : null;
+        int start = null == order ? 0 : ordered.isCursor() ? PageCursor.offset(ordered) : ordered.getStart();
+        List<String> alertIds = index.select(indexFilter, order);
+        boolean pageOnly = null != order && alertIds.size() >= start;
+        List<String> selectedIds = pageOnly ? alertIds.subList(start,
+                Math.min(start + ordered.getPageSize(), alertIds.size())) : alertIds;
+        return selectAlertsAsync(tenantId, selectedIds, thin).thenCompose(alerts -> {
+            int missing = selectedIds.size() - alerts.size();
+            if (missing > 0) {
+                Set<String> missingIds = new HashSet<>(selectedIds);
+                alerts.forEach(a -> missingIds.remove(a.getAlertId()));
+                HistoryIndex.getInstance().purge(tenantId, TimeBuckets.ALERTS, missingIds);
+                if (pageOnly && attempt < INDEX_SELECT_ATTEMPTS) {
+                    return selectIndexedAlerts(tenantId, index, indexFilter, pager, thin, attempt + 1);
+                }
+            }
+            if (pageOnly && ordered.isCursor()) {
+                return CompletableFuture.completedFuture(PageCursor.offsetPage(alerts, ordered, start,
+                        alertIds.size() - missing));
+            }
+            if (pageOnly) {
+                return CompletableFuture.completedFuture(new Page<>(alerts, ordered, alertIds.size() - missing));
+            }
+            return CompletableFuture.completedFuture(preparePage(alerts, pager));
+        });
+    }
+
+    /*
+        The index is maintained by the writes of this node, so it is not used when the alerts are distributed.
+        Synchronous queries wait for the build of a missing index, asynchronous ones start it on the query threads.
+     */
+    private HistoryIndex.Entries historyIndex(String tenantId, String type, boolean wait) {
+        if (null != partitionManager && partitionManager.isDistributed()) {
+            return null;
+        }
+        return wait ? HistoryIndex.getInstance().get(session, tenantId, type)
+                : HistoryIndex.getInstance().lookup(session, tenantId, type);
+    }
+
+    private void logDatabaseFailure(Object result, Throwable e) {
+        Throwable cause = e instanceof CompletionException && null != e.getCause() ? e.getCause() : e;
+        if (null != cause && !(cause instanceof IllegalArgumentException)) {
+            msgLog.errorDatabaseException(cause.getMessage());
+        }
+    }
+
+    /*
+        Thin reads only fetch the alerts payload. Non thin reads also fetch the evalSets row of each alert, in
+        parallel, and complete the alert with it. Alerts written by previous versions keep their evalSets in the
+        payload and have no evalSets row.
+     */
+    private List<Alert> selectAlerts(String tenantId, Collection<String> alertIds, boolean thin) throws Exception {
+        return AsyncQueries.get(selectAlertsAsync(tenantId, alertIds, thin));
+    }
+
+    private CompletableFuture<List<Alert>> selectAlertsAsync(String tenantId, Collection<String> alertIds,
+            boolean thin) {
+        PreparedStatement selectAlert = CassStatement.get(session, CassStatement.SELECT_ALERT);
+        List<ResultSetFuture> futures = alertIds.stream().map(alertId ->
+                session.executeAsync(selectAlert.bind(tenantId, alertId)))
+                .collect(Collectors.toList());
+        List<ResultSetFuture> evalsFutures = Collections.emptyList();
+        if (!thin) {
+            PreparedStatement selectAlertEvals = CassStatement.get(session, CassStatement.SELECT_ALERT_EVALS);
+            evalsFutures = alertIds.stream().map(alertId ->
+                    session.executeAsync(selectAlertEvals.bind(tenantId, alertId)))
+                    .collect(Collectors.toList());
+        }
+        return AsyncQueries.all(futures).thenCombine(AsyncQueries.all(evalsFutures), (rsAlerts, rsEvals) -> {
+            List<Alert> alerts = new ArrayList<>(alertIds.size());
+            for (int i = 0; i < rsAlerts.size(); i++) {
+                Row row = rsAlerts.get(i).one();
+                if (null == row) {
+                    continue;
+                }
+                Alert alert = JsonUtil.fromPayload(row.getBytes("payload"), Alert.class, thin);
+                if (!thin) {
+                    Row evalsRow = rsEvals.get(i).one();
+                    if (null != evalsRow) {
+                        JsonUtil.fromPayload(evalsRow.getBytes("payload"), AlertEvalSets.class, false)
+                                .applyTo(alert);
+                    }
+                }
+                alerts.add(alert);
+            }
+            return alerts;
+        });
+    }
+
+    /*
+        A pager whose first order has no field is ordered by id, descending
+     */
+    private Pager defaultOrder(Pager pager, String idField) {
+        if (pager.getOrder() != null
+                && !pager.getOrder().isEmpty()
+                && pager.getOrder().get(0).getField() == null) {
+            Pager.Builder builder = Pager.builder()
+                    .withPageSize(pager.getPageSize())
+                    .withStartPage(pager.getPageNumber())
+                    .orderBy(idField, Order.Direction.DESCENDING);
+            if (pager.isCursor()) {
+                builder.withCursor(pager.getCursor());
+            }
+            return builder.build();
+        }
+        return pager;
+    }
+
     private Page<Alert> preparePage(List<Alert> alerts, Pager pager) {
         if (pager != null) {
-            if (pager.getOrder() != null
-                    && !pager.getOrder().isEmpty()
-                    && pager.getOrder().get(0).getField() == null) {
-                pager = Pager.builder()
-                        .withPageSize(pager.getPageSize())
-                        .withStartPage(pager.getPageNumber())
-                        .orderBy(Field.ALERT_ID.getText(), Order.Direction.DESCENDING).build();
-            }
+            pager = defaultOrder(pager, Field.ALERT_ID.getText());
             List<Alert> ordered = alerts;
             if (pager.getOrder() != null) {
                 pager.getOrder().stream().filter(o -> o.getField() != null && o.getDirection() != null)
@@ -469,6 +737,9 @@ public class CassAlertsServiceImpl implements AlertsService {
                             Collections.sort(ordered, comparator);
                         });
             }
+            if (pager.isCursor()) {
+                return PageCursor.offsetPage(ordered, pager);
+            }
             if (!pager.isLimited() || ordered.size() < pager.getStart()) {
                 pager = new Pager(0, ordered.size(), pager.getOrder());
                 return new Page(ordered, pager, ordered.size());
@@ -498,19 +769,20 @@ public class CassAlertsServiceImpl implements AlertsService {
         return result;
     }
 
-    private Set<String> filterByTriggers(String tenantId, AlertsCriteria criteria) throws Exception {
+    private Set<String> filterByTriggers(String tenantId, List<Long> buckets, AlertsCriteria criteria)
+            throws Exception {
         Set<String> result = Collections.EMPTY_SET;
         Set<String> triggerIds = extractTriggerIds(tenantId, criteria);
 
         if (triggerIds.size() > 0) {
             List<ResultSetFuture> futures = new ArrayList<>();
-            PreparedStatement selectAlertsTriggers = CassStatement.get(session, CassStatement.SELECT_ALERT_TRIGGER);
 
             for (String triggerId : triggerIds) {
                 if (isEmpty(triggerId)) {
                     continue;
                 }
-                futures.add(session.executeAsync(selectAlertsTriggers.bind(tenantId, triggerId)));
+                futures.addAll(TimeBuckets.selectAsync(session, CassStatement.SELECT_ALERT_TRIGGER, buckets, tenantId,
+                        triggerId));
             }
             List<ResultSet> rsAlertIdsByTriggerIds = Futures.allAsList(futures).get();
 
@@ -550,54 +822,44 @@ public class CassAlertsServiceImpl implements AlertsService {
         return triggerIds;
     }
 
-    private Set<String> filterByCTime(String tenantId, AlertsCriteria criteria) throws Exception {
+    private Set<String> filterByCTime(String tenantId, List<Long> buckets, AlertsCriteria criteria)
+            throws Exception {
         Set<String> result = Collections.EMPTY_SET;
 
         if (criteria.getStartTime() != null || criteria.getEndTime() != null) {
             result = new HashSet<>();
 
-            BoundStatement boundCtime;
+            List<ResultSetFuture> futures;
             if (criteria.getStartTime() != null && criteria.getEndTime() != null) {
-                PreparedStatement selectAlertCTimeStartEnd = CassStatement.get(session,
-                        CassStatement.SELECT_ALERT_CTIME_START_END);
-                boundCtime = selectAlertCTimeStartEnd.bind(tenantId, criteria.getStartTime(),
-                        criteria.getEndTime());
+                futures = TimeBuckets.selectAsync(session, CassStatement.SELECT_ALERT_CTIME_START_END, buckets,
+                        tenantId, criteria.getStartTime(), criteria.getEndTime());
             } else if (criteria.getStartTime() != null) {
-                PreparedStatement selectAlertCTimeStart = CassStatement.get(session,
-                        CassStatement.SELECT_ALERT_CTIME_START);
-                boundCtime = selectAlertCTimeStart.bind(tenantId, criteria.getStartTime());
+                futures = TimeBuckets.selectAsync(session, CassStatement.SELECT_ALERT_CTIME_START, buckets,
+                        tenantId, criteria.getStartTime());
             } else {
-                PreparedStatement selectAlertCTimeEnd = CassStatement.get(session,
-                        CassStatement.SELECT_ALERT_CTIME_END);
-                boundCtime = selectAlertCTimeEnd.bind(tenantId, criteria.getEndTime());
+                futures = TimeBuckets.selectAsync(session, CassStatement.SELECT_ALERT_CTIME_END, buckets,
+                        tenantId, criteria.getEndTime());
             }
 
-            ResultSet rsAlertsCtimes = session.execute(boundCtime);
-            for (Row row : rsAlertsCtimes) {
-                String alertId = row.getString("alertId");
-                result.add(alertId);
+            for (ResultSet rsAlertsCtimes : Futures.allAsList(futures).get()) {
+                for (Row row : rsAlertsCtimes) {
+                    String alertId = row.getString("alertId");
+                    result.add(alertId);
+                }
             }
         }
         return result;
     }
 
-    private Set<String> filterByStatuses(String tenantId, AlertsCriteria criteria) throws Exception {
+    private Set<String> filterByStatuses(String tenantId, List<Long> buckets, AlertsCriteria criteria)
+            throws Exception {
         Set<String> result = Collections.EMPTY_SET;
-
-        Set<Alert.Status> statuses = new HashSet<>();
-        if (isEmpty(criteria.getStatusSet())) {
-            if (criteria.getStatus() != null) {
-                statuses.add(criteria.getStatus());
-            }
-        } else {
-            statuses.addAll(criteria.getStatusSet());
-        }
+        Set<Alert.Status> statuses = extractStatuses(criteria);
 
         if (statuses.size() > 0) {
-            PreparedStatement selectAlertStatusByTenantAndStatus = CassStatement.get(session,
-                    CassStatement.SELECT_ALERT_STATUS);
-            List<ResultSetFuture> futures = statuses.stream().map(status ->
-                    session.executeAsync(selectAlertStatusByTenantAndStatus.bind(tenantId, status.name())))
+            List<ResultSetFuture> futures = statuses.stream().flatMap(status ->
+                    TimeBuckets.selectAsync(session, CassStatement.SELECT_ALERT_STATUS, buckets, tenantId,
+                            status.name()).stream())
                     .collect(Collectors.toList());
             List<ResultSet> rsAlertStatuses = Futures.allAsList(futures).get();
 
@@ -613,25 +875,16 @@ public class CassAlertsServiceImpl implements AlertsService {
         return result;
     }
 
-    private Set<String> filterBySeverities(String tenantId, AlertsCriteria criteria)
+    private Set<String> filterBySeverities(String tenantId, List<Long> buckets, AlertsCriteria criteria)
             throws Exception {
 
         Set<String> result = Collections.EMPTY_SET;
-
-        Set<Severity> severities = new HashSet<>();
-        if (isEmpty(criteria.getSeverities())) {
-            if (criteria.getSeverity() != null) {
-                severities.add(criteria.getSeverity());
-            }
-        } else {
-            severities.addAll(criteria.getSeverities());
-        }
+        Set<Severity> severities = extractSeverities(criteria);
 
         if (severities.size() > 0) {
-            PreparedStatement selectAlertSeverityByTenantAndSeverity = CassStatement.get(session,
-                    CassStatement.SELECT_ALERT_SEVERITY);
-            List<ResultSetFuture> futures = severities.stream().map(severity ->
-                    session.executeAsync(selectAlertSeverityByTenantAndSeverity.bind(tenantId, severity.name())))
+            List<ResultSetFuture> futures = severities.stream().flatMap(severity ->
+                    TimeBuckets.selectAsync(session, CassStatement.SELECT_ALERT_SEVERITY, buckets, tenantId,
+                            severity.name()).stream())
                     .collect(Collectors.toList());
             List<ResultSet> rsAlertSeverities = Futures.allAsList(futures).get();
 
@@ -648,6 +901,30 @@ public class CassAlertsServiceImpl implements AlertsService {
         return result;
     }
 
+    private Set<Alert.Status> extractStatuses(AlertsCriteria criteria) {
+        Set<Alert.Status> statuses = new HashSet<>();
+        if (isEmpty(criteria.getStatusSet())) {
+            if (criteria.getStatus() != null) {
+                statuses.add(criteria.getStatus());
+            }
+        } else {
+            statuses.addAll(criteria.getStatusSet());
+        }
+        return statuses;
+    }
+
+    private Set<Severity> extractSeverities(AlertsCriteria criteria) {
+        Set<Severity> severities = new HashSet<>();
+        if (isEmpty(criteria.getSeverities())) {
+            if (criteria.getSeverity() != null) {
+                severities.add(criteria.getSeverity());
+            }
+        } else {
+            severities.addAll(criteria.getSeverities());
+        }
+        return severities;
+    }
+
     private Set<String> filterByEvents(EventsCriteria criteria) {
         Set<String> result = Collections.EMPTY_SET;
         if (isEmpty(criteria.getEventIds())) {
@@ -664,7 +941,11 @@ public class CassAlertsServiceImpl implements AlertsService {
 
     private Set<String> getIdsByTags(String tenantId, TagType tagType, Map<String, String> tags)
             throws Exception {
-        Set<String> ids = new HashSet<>();
+        return AsyncQueries.get(getIdsByTagsAsync(tenantId, tagType, tags));
+    }
+
+    private CompletableFuture<Set<String>> getIdsByTagsAsync(String tenantId, TagType tagType,
+            Map<String, String> tags) {
         List<ResultSetFuture> futures = new ArrayList<>();
         PreparedStatement selectTagsByName = CassStatement.get(session, CassStatement.SELECT_TAGS_BY_NAME);
         PreparedStatement selectTagsByNameAndValue = CassStatement.get(session,
@@ -677,13 +958,159 @@ public class CassAlertsServiceImpl implements AlertsService {
                     selectTagsByNameAndValue.bind(tenantId, tagType.name(), tag.getKey(), tag.getValue());
             futures.add(session.executeAsync(bs));
         }
-        List<ResultSet> rsTags = Futures.allAsList(futures).get();
-        rsTags.stream().forEach(r -> {
-            for (Row row : r) {
-                ids.add(row.getString("id"));
-            }
+        return AsyncQueries.all(futures).thenApply(rsTags -> {
+            Set<String> ids = new HashSet<>();
+            rsTags.stream().forEach(r -> {
+                for (Row row : r) {
+                    ids.add(row.getString("id"));
+                }
+            });
+            return ids;
         });
-        return ids;
+    }
+
+    /*
+        The counts are read from the statistics counters of the buckets in the range, one partition per bucket. The
+        filters on the clustering columns are applied here, a partition holds few rows.
+     */
+    @Override
+    public AlertsStats getAlertsStats(String tenantId, AlertsStatsCriteria criteria) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (null == criteria) {
+            throw new IllegalArgumentException("Criteria must be not null");
+        }
+        boolean byTag = GroupBy.TAG == criteria.getGroupBy();
+        if (byTag && (criteria.hasSeverityCriteria() || criteria.hasTriggerIdCriteria())) {
+            throw new IllegalArgumentException("Severities and triggerIds criteria are not supported by TAG groupBy");
+        }
+        session = CassCluster.getSession();
+        AlertsStats stats = new AlertsStats(TimeBuckets.getSize());
+        try {
+            List<Long> buckets = TimeBuckets.buckets(session, tenantId, TimeBuckets.ALERTS,
+                    criteria.getStartTime(), criteria.getEndTime());
+            List<ResultSetFuture> futures = TimeBuckets.selectAsync(session, byTag
+                    ? CassStatement.SELECT_ALERTS_TAGS_STATS : CassStatement.SELECT_ALERTS_STATS, buckets, tenantId);
+            List<ResultSet> rsStats = Futures.allAsList(futures).get();
+            for (int i = 0; i < buckets.size(); i++) {
+                AlertsStats.Bucket bucket = new AlertsStats.Bucket(buckets.get(i));
+                for (Row row : rsStats.get(i)) {
+                    String group = byTag ? tagsStatsGroup(criteria, row) : statsGroup(criteria, row);
+                    if (null != group) {
+                        bucket.add(group, row.getLong("count"));
+                    }
+                }
+                stats.addBucket(bucket);
+            }
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+        return stats;
+    }
+
+    private String statsGroup(AlertsStatsCriteria criteria, Row row) {
+        String status = row.getString("status");
+        String severity = row.getString("severity");
+        String triggerId = row.getString("triggerId");
+        if ((criteria.hasStatusCriteria() && !criteria.getStatusSet().contains(Alert.Status.valueOf(status)))
+                || (criteria.hasSeverityCriteria() && !criteria.getSeverities().contains(Severity.valueOf(severity)))
+                || (criteria.hasTriggerIdCriteria() && !criteria.getTriggerIds().contains(triggerId))) {
+            return null;
+        }
+        switch (criteria.getGroupBy()) {
+            case SEVERITY:
+                return severity;
+            case TRIGGER:
+                return triggerId;
+            default:
+                return status;
+        }
+    }
+
+    private String tagsStatsGroup(AlertsStatsCriteria criteria, Row row) {
+        String status = row.getString("status");
+        String name = row.getString("name");
+        if ((criteria.hasStatusCriteria() && !criteria.getStatusSet().contains(Alert.Status.valueOf(status)))
+                || (!isEmpty(criteria.getTagName()) && !criteria.getTagName().equals(name))) {
+            return null;
+        }
+        return isEmpty(criteria.getTagName()) ? name + "|" + row.getString("value") : row.getString("value");
+    }
+
+    /*
+        Counters cannot be set, so the counts of the stored alerts are compared with the current counters and the
+        differences are added. Alerts added or updated while the rebuild runs may be counted twice or missed, a
+        rebuild is meant to be run on a quiet tenant.
+     */
+    @Override
+    public int rebuildAlertsStats(String tenantId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        AlertsCriteria criteria = new AlertsCriteria();
+        criteria.setThin(true);
+        List<Alert> alerts = getAlerts(tenantId, criteria, null);
+
+        Map<Long, Map<List<String>, Long>> stats = new HashMap<>();
+        Map<Long, Map<List<String>, Long>> tagsStats = new HashMap<>();
+        for (Alert a : alerts) {
+            long bucket = TimeBuckets.bucket(a.getCtime());
+            String status = a.getStatus().name();
+            stats.computeIfAbsent(bucket, b -> new HashMap<>())
+                    .merge(Arrays.asList(status, a.getSeverity().name(), a.getTriggerId()), 1L, Long::sum);
+            if (null != a.getTags()) {
+                a.getTags().forEach((name, value) -> {
+                    if (null != value) {
+                        tagsStats.computeIfAbsent(bucket, b -> new HashMap<>())
+                                .merge(Arrays.asList(status, name, value), 1L, Long::sum);
+                    }
+                });
+            }
+        }
+
+        session = CassCluster.getSession();
+        try {
+            CassWriteBatch batch = new CassWriteBatch(session);
+            repairCounters(tenantId, CassStatement.SELECT_ALERTS_STATS, CassStatement.UPDATE_ALERTS_STATS,
+                    ALERTS_STATS_CLUSTERING, stats, batch);
+            repairCounters(tenantId, CassStatement.SELECT_ALERTS_TAGS_STATS, CassStatement.UPDATE_ALERTS_TAGS_STATS,
+                    ALERTS_TAGS_STATS_CLUSTERING, tagsStats, batch);
+            if (log.isDebugEnabled()) {
+                log.debug("Rebuilding stats of " + alerts.size() + " alerts with " + batch.size() + " updates");
+            }
+            batch.execute();
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+        return alerts.size();
+    }
+
+    private void repairCounters(String tenantId, String select, String update, String[] clustering,
+            Map<Long, Map<List<String>, Long>> expected, CassWriteBatch batch) throws Exception {
+        Set<Long> bucketSet = new TreeSet<>(TimeBuckets.buckets(session, tenantId, TimeBuckets.ALERTS, null, null));
+        bucketSet.addAll(expected.keySet());
+        List<Long> buckets = new ArrayList<>(bucketSet);
+        List<ResultSet> rsCounters = Futures.allAsList(TimeBuckets.selectAsync(session, select, buckets, tenantId))
+                .get();
+        PreparedStatement updateCounter = CassStatement.get(session, update);
+        for (int i = 0; i < buckets.size(); i++) {
+            long bucket = buckets.get(i);
+            Map<List<String>, Long> deltas = new HashMap<>(expected.getOrDefault(bucket, Collections.emptyMap()));
+            for (Row row : rsCounters.get(i)) {
+                List<String> key = Arrays.asList(row.getString(clustering[0]), row.getString(clustering[1]),
+                        row.getString(clustering[2]));
+                deltas.merge(key, -row.getLong("count"), Long::sum);
+            }
+            deltas.forEach((key, delta) -> {
+                if (delta != 0) {
+                    batch.addCounter(tenantId + '|' + bucket, updateCounter.bind(delta, tenantId, bucket,
+                            key.get(0), key.get(1), key.get(2)));
+                }
+            });
+        }
     }
 
     // TODO (jshaughn) The DB-Level filtering approach implemented below is a best-practice for dealing
@@ -709,11 +1136,29 @@ public class CassAlertsServiceImpl implements AlertsService {
             log.debug("getEvents criteria: " + criteria.toString());
         }
 
+        if (null != pager && pager.isCursor()) {
+            Page<Event> eventsSlice = getEventsSlice(tenantId, criteria, pager, thin);
+            if (null != eventsSlice) {
+                return eventsSlice;
+            }
+        }
+
+        Page<Event> indexedEvents = getEventsIndexed(tenantId, criteria, pager, thin);
+        if (null != indexedEvents) {
+            return indexedEvents;
+        }
+
         List<Event> events = new ArrayList<>();
         Set<String> eventIds = new HashSet<>();
         boolean activeFilter = false;
 
         try {
+            /*
+                Buckets of the criteria time range, all the buckets of the tenant if there is none
+             */
+            List<Long> buckets = TimeBuckets.buckets(session, tenantId, TimeBuckets.EVENTS,
+                    filter ? criteria.getStartTime() : null, filter ? criteria.getEndTime() : null);
+
             if (filter) {
                 /*
                     Get eventIds explicitly added into the criteria. Start with these as there is no query involved
@@ -751,7 +1196,7 @@ public class CassAlertsServiceImpl implements AlertsService {
                     Get eventIds filtered by triggerIds clause
                  */
                 if (criteria.hasTriggerIdCriteria()) {
-                    Set<String> idsFilteredByTriggers = filterByTriggers(tenantId, criteria);
+                    Set<String> idsFilteredByTriggers = filterByTriggers(tenantId, buckets, criteria);
                     if (activeFilter) {
                         eventIds.retainAll(idsFilteredByTriggers);
                         if (eventIds.isEmpty()) {
@@ -767,7 +1212,7 @@ public class CassAlertsServiceImpl implements AlertsService {
                     Get alertsIds filtered by time clause
                  */
                 if (criteria.hasCTimeCriteria()) {
-                    Set<String> idsFilteredByTime = filterByCTime(tenantId, criteria);
+                    Set<String> idsFilteredByTime = filterByCTime(tenantId, buckets, criteria);
                     if (activeFilter) {
                         eventIds.retainAll(idsFilteredByTime);
                         if (eventIds.isEmpty()) {
@@ -783,7 +1228,7 @@ public class CassAlertsServiceImpl implements AlertsService {
                      Get alertsIds filtered by categories clause
                 */
                 if (criteria.hasCategoryCriteria()) {
-                    Set<String> idsFilteredByCategory = filterByCategories(tenantId, criteria);
+                    Set<String> idsFilteredByCategory = filterByCategories(tenantId, buckets, criteria);
                     if (activeFilter) {
                         eventIds.retainAll(idsFilteredByCategory);
                         if (eventIds.isEmpty()) {
@@ -795,86 +1240,242 @@ public class CassAlertsServiceImpl implements AlertsService {
                     activeFilter = true;
                 }
 
+            } else {
                 /*
-                    If we have reached this point then we have at least 1 filtered alertId, so now
-                    get the resulting Alerts...
+                    Get all events - ids of each bucket from the ctimes index
                  */
-                PreparedStatement selectEvent = CassStatement
-                        .get(session, CassStatement.SELECT_EVENT);
-                List<ResultSetFuture> futures = eventIds.stream().map(id ->
-                        session.executeAsync(selectEvent.bind(tenantId, id)))
-                        .collect(Collectors.toList());
-                List<ResultSet> rsEvents = Futures.allAsList(futures).get();
-                rsEvents.stream().forEach(r -> {
+                List<ResultSet> rsEventIds = Futures.allAsList(TimeBuckets.selectAsync(session,
+                        CassStatement.SELECT_EVENT_IDS_BY_BUCKET, buckets, tenantId)).get();
+                rsEventIds.stream().forEach(r -> {
                     for (Row row : r) {
-                        String payload = row.getString("payload");
-                        Event event = JsonUtil.fromJson(payload, Event.class, thin);
-                        events.add(event);
+                        eventIds.add(row.getString("id"));
                     }
                 });
+            }
 
-            } else {
-                /*
-                    Get all events for the tenant - We could pull all events and toss those outside the tenant
-                    but perhaps slightly better is to get the valid partitions and then concurrently query each...
-
-                PreparedStatement selectPartitionsEvents = CassStatement.get(session,
-                        CassStatement.SELECT_PARTITIONS_EVENTS);
-                PreparedStatement selectEventsByPartition = CassStatement.get(session,
-                        CassStatement.SELECT_EVENTS_BY_PARTITION);
-
-                Set<String> categories = new HashSet<>();
-                ResultSet rsPartitions = session.execute(selectPartitionsEvents.bind());
-                for (Row row : rsPartitions) {
-                    if (tenantId.equals(row.getString("tenantId"))) {
-                        categories.add(row.getString("category"));
-                    }
-                }
+            /*
+                If we have reached this point then we have at least 1 eventId, so now get the resulting Events...
+             */
+            events.addAll(selectEvents(tenantId, eventIds, thin));
 
-                List<ResultSetFuture> futures = categories.stream().map(category ->
-                        session.executeAsync(selectEventsByPartition.bind(tenantId, category)))
-                        .collect(Collectors.toList());
-                List<ResultSet> rsEvents = Futures.allAsList(futures).get();
-                rsEvents.stream().forEach(r -> {
-                    for (Row row : r) {
-                        String payload = row.getString("payload");
-                        Event event = JsonUtil.fromJson(payload, Event.class, thin);
-                        events.add(event);
-                    }
-                });
-                */
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
 
-                /*
-                Get all events - Single query
-                */
-                PreparedStatement selectEventsByTenant = CassStatement.get(session,
-                        CassStatement.SELECT_EVENTS_BY_TENANT);
-                ResultSet rsEvents = session.execute(selectEventsByTenant.bind(tenantId));
-                for (Row row : rsEvents) {
-                    String payload = row.getString("payload");
-                    Event event = JsonUtil.fromJson(payload, Event.class, thin);
-                    events.add(event);
-                }
+        return prepareEventsPage(events, pager);
+    }
 
-            }
+    /*
+        Same as getAlertsAsync(), the categories are not indexed and are read without blocking as the tags.
+     */
+    @Override
+    public CompletionStage<Page<Event>> getEventsAsync(String tenantId, EventsCriteria criteria, Pager pager) {
+        if (isEmpty(tenantId)) {
+            return AsyncQueries.failed(new IllegalArgumentException("TenantId must be not null"));
+        }
+        session = CassCluster.getSession();
+        boolean thin = (null != criteria && criteria.isThin());
+        Order sliceOrder = eventsSliceOrder(criteria, pager);
+        if (null != sliceOrder) {
+            return eventsSlice(tenantId, criteria, pager, sliceOrder, thin);
+        }
+        HistoryIndex.Entries index = historyIndex(tenantId, TimeBuckets.EVENTS, false);
+        if (null == index) {
+            return AsyncQueries.submit(() -> getEvents(tenantId, criteria, pager));
+        }
+        return eventsIndexFilter(tenantId, criteria).thenCompose(indexFilter ->
+                selectIndexedEvents(tenantId, index, indexFilter, pager, thin, 1));
+    }
+
+    /*
+        Same as iterateAlerts()
+     */
+    @Override
+    public Iterator<Event> iterateEvents(String tenantId, EventsCriteria criteria, Pager pager) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        session = CassCluster.getSession();
+        boolean filter = (null != criteria && criteria.hasCriteria());
+        boolean thin = (null != criteria && criteria.isThin());
+        Pager ordered = null == pager || isEmpty(pager.getOrder())
+                ? Pager.unlimited(Order.by(EventComparator.Field.CTIME.getName(), Order.Direction.DESCENDING))
+                : Pager.unlimited(pager.getOrder());
+
+        Order ctimeOrder = eventsCtimeOrder(criteria, ordered);
+        if (null != ctimeOrder) {
+            Iterator<Row> rows = ResultIterators.ctimeRows(session, tenantId, TimeBuckets.EVENTS,
+                    CassStatement.SELECT_EVENT_CTIMES_SLICE, EVENTS_CTIMES_CLUSTERING,
+                    filter ? criteria.getStartTime() : null, filter ? criteria.getEndTime() : null,
+                    !ctimeOrder.isAscending());
+            return ResultIterators.chunked(rows, chunk -> selectEvents(tenantId, chunk.stream()
+                    .map(row -> row.getString("id")).collect(Collectors.toList()), thin));
+        }
+        HistoryIndex.Entries index = historyIndex(tenantId, TimeBuckets.EVENTS, true);
+        Comparator<HistoryIndex.Entry> order = HistoryIndex.eventsOrder(
+                defaultOrder(ordered, EventComparator.Field.ID.getName()).getOrder());
+        if (null != index && null != order) {
+            List<String> eventIds = index.select(AsyncQueries.get(eventsIndexFilter(tenantId, criteria)), order);
+            return ResultIterators.chunked(eventIds.iterator(), chunk -> selectEvents(tenantId, chunk, thin));
+        }
+        return getEvents(tenantId, criteria, ordered).iterator();
+    }
+
+    /*
+        Same as getAlertsSlice(), all events or the events within a ctime range, by ctime from the
+        events_ctimes_by_bucket table.
+     */
+    private Page<Event> getEventsSlice(String tenantId, EventsCriteria criteria, Pager pager, boolean thin)
+            throws Exception {
+        Order order = eventsSliceOrder(criteria, pager);
+        if (null == order) {
+            return null;
+        }
+        return AsyncQueries.get(eventsSlice(tenantId, criteria, pager, order, thin));
+    }
+
+    private CompletableFuture<Page<Event>> eventsSlice(String tenantId, EventsCriteria criteria, Pager pager,
+            Order order, boolean thin) {
+        boolean filter = (null != criteria && criteria.hasCriteria());
+        Pager slicePager = Pager.cursor(pager.getCursor(), pager.getPageSize(), order);
+        Long startTime = filter ? criteria.getStartTime() : null;
+        Long endTime = filter ? criteria.getEndTime() : null;
+        return ClusteringSlice.readCtimesAsync(session, slicePager, tenantId, TimeBuckets.EVENTS,
+                CassStatement.SELECT_EVENT_CTIMES_SLICE, EVENTS_CTIMES_CLUSTERING, startTime, endTime)
+                .thenCompose(slice -> {
+                    List<String> eventIds = slice.getRows().stream().map(row -> row.getString("id"))
+                            .collect(Collectors.toList());
+                    return selectEventsAsync(tenantId, eventIds, thin).thenApply(events ->
+                            new Page<>(events, slicePager, Page.UNKNOWN_SIZE, slice.getNextCursor()));
+                }).whenComplete(this::logDatabaseFailure);
+    }
+
+    private Order eventsSliceOrder(EventsCriteria criteria, Pager pager) {
+        if (null == pager || !pager.isCursor() || pager.getPageSize() <= 0) {
+            return null;
+        }
+        return eventsCtimeOrder(criteria, pager);
+    }
+
+    private Order eventsCtimeOrder(EventsCriteria criteria, Pager pager) {
+        Order order = PageCursor.singleOrder(pager, Order.by(EventComparator.Field.CTIME.getName(),
+                Order.Direction.DESCENDING));
+        if (null == order || !EventComparator.Field.CTIME.getName().equalsIgnoreCase(order.getField())) {
+            return null;
+        }
+        boolean filter = (null != criteria && criteria.hasCriteria());
+        boolean ctimeFilterOnly = filter && criteria.hasCTimeCriteria() && !criteria.hasEventIdCriteria()
+                && !criteria.hasTagCriteria() && !criteria.hasTriggerIdCriteria() && !criteria.hasCategoryCriteria();
+        return filter && !ctimeFilterOnly ? null : order;
+    }
+
+    /*
+        Same as getAlertsIndexed(). Categories are not indexed, they are read from the events_categories_by_bucket
+        table as in the Cassandra path.
+     */
+    private Page<Event> getEventsIndexed(String tenantId, EventsCriteria criteria, Pager pager, boolean thin)
+            throws Exception {
+        HistoryIndex.Entries index = historyIndex(tenantId, TimeBuckets.EVENTS, true);
+        if (null == index) {
+            return null;
+        }
+        try {
+            return AsyncQueries.get(eventsIndexFilter(tenantId, criteria).thenCompose(indexFilter ->
+                    selectIndexedEvents(tenantId, index, indexFilter, pager, thin, 1)));
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
+    }
 
-        return prepareEventsPage(events, pager);
+    /*
+        The tags and the categories are read without blocking, the ids they match are applied to the filter one
+        after the other
+     */
+    private CompletableFuture<HistoryIndex.Filter> eventsIndexFilter(String tenantId, EventsCriteria criteria) {
+        HistoryIndex.Filter indexFilter = new HistoryIndex.Filter();
+        CompletableFuture<HistoryIndex.Filter> result = CompletableFuture.completedFuture(indexFilter);
+        if (null != criteria && criteria.hasCriteria()) {
+            if (criteria.hasEventIdCriteria()) {
+                indexFilter.ids(filterByEvents(criteria));
+            }
+            if (criteria.hasTriggerIdCriteria()) {
+                indexFilter.triggerIds(extractTriggerIds(tenantId, criteria));
+            }
+            if (criteria.hasCTimeCriteria()) {
+                indexFilter.ctimes(criteria.getStartTime(), criteria.getEndTime());
+            }
+            if (criteria.hasTagCriteria()) {
+                result = result.thenCombine(getIdsByTagsAsync(tenantId, TagType.EVENT, criteria.getTags()),
+                        HistoryIndex.Filter::ids);
+            }
+            if (criteria.hasCategoryCriteria()) {
+                result = result.thenCombine(TimeBuckets.bucketsAsync(session, tenantId, TimeBuckets.EVENTS,
+                        criteria.getStartTime(), criteria.getEndTime()).thenCompose(buckets ->
+                        filterByCategoriesAsync(tenantId, buckets, criteria)), HistoryIndex.Filter::ids);
+            }
+        }
+        return result;
+    }
+
+    private CompletableFuture<Page<Event>> selectIndexedEvents(String tenantId, HistoryIndex.Entries index,
+            HistoryIndex.Filter indexFilter, Pager pager, boolean thin, int attempt) {
+        Pager ordered = null == pager ? null : defaultOrder(pager, EventComparator.Field.ID.getName());
+        Comparator<HistoryIndex.Entry> order = null != ordered && ordered.isLimited()
+                ? HistoryIndex.eventsOrder(ordered.getOrder()) : null;
+        int start = null == order ? 0 : ordered.isCursor() ? PageCursor.offset(ordered) : ordered.getStart();
+        List<String> eventIds = index.select(indexFilter, order);
+        boolean pageOnly = null != order && eventIds.size() >= start;
+        List<String> selectedIds = pageOnly ? eventIds.subList(start,
+                Math.min(start + ordered.getPageSize(), eventIds.size())) : eventIds;
+        return selectEventsAsync(tenantId, selectedIds, thin).thenCompose(events -> {
+            int missing = selectedIds.size() - events.size();
+            if (missing > 0) {
+                Set<String> missingIds = new HashSet<>(selectedIds);
+                events.forEach(e -> missingIds.remove(e.getId()));
+                HistoryIndex.getInstance().purge(tenantId, TimeBuckets.EVENTS, missingIds);
+                if (pageOnly && attempt < INDEX_SELECT_ATTEMPTS) {
+                    return selectIndexedEvents(tenantId, index, indexFilter, pager, thin, attempt + 1);
+                }
+            }
+            if (pageOnly && ordered.isCursor()) {
+                return CompletableFuture.completedFuture(PageCursor.offsetPage(events, ordered, start,
+                        eventIds.size() - missing));
+            }
+            if (pageOnly) {
+                return CompletableFuture.completedFuture(new Page<>(events, ordered, eventIds.size() - missing));
+            }
+            return CompletableFuture.completedFuture(prepareEventsPage(events, pager));
+        });
+    }
+
+    private List<Event> selectEvents(String tenantId, Collection<String> eventIds, boolean thin)
+            throws Exception {
+        return AsyncQueries.get(selectEventsAsync(tenantId, eventIds, thin));
+    }
+
+    private CompletableFuture<List<Event>> selectEventsAsync(String tenantId, Collection<String> eventIds,
+            boolean thin) {
+        PreparedStatement selectEvent = CassStatement.get(session, CassStatement.SELECT_EVENT);
+        List<ResultSetFuture> futures = eventIds.stream().map(id ->
+                session.executeAsync(selectEvent.bind(tenantId, id)))
+                .collect(Collectors.toList());
+        return AsyncQueries.all(futures).thenApply(rsEvents -> {
+            List<Event> events = new ArrayList<>(eventIds.size());
+            rsEvents.stream().forEach(r -> {
+                for (Row row : r) {
+                    Event event = JsonUtil.fromPayload(row.getBytes("payload"), Event.class, thin);
+                    events.add(event);
+                }
+            });
+            return events;
+        });
     }
 
     private Page<Event> prepareEventsPage(List<Event> events, Pager pager) {
         if (pager != null) {
-            if (pager.getOrder() != null
-                    && !pager.getOrder().isEmpty()
-                    && pager.getOrder().get(0).getField() == null) {
-                pager = Pager.builder()
-                        .withPageSize(pager.getPageSize())
-                        .withStartPage(pager.getPageNumber())
-                        .orderBy(EventComparator.Field.ID.getName(), Order.Direction.DESCENDING).build();
-            }
+            pager = defaultOrder(pager, EventComparator.Field.ID.getName());
             List<Event> ordered = events;
             if (pager.getOrder() != null) {
                 pager.getOrder()
@@ -886,6 +1487,9 @@ public class CassAlertsServiceImpl implements AlertsService {
                             Collections.sort(ordered, comparator);
                         });
             }
+            if (pager.isCursor()) {
+                return PageCursor.offsetPage(ordered, pager);
+            }
             if (!pager.isLimited() || ordered.size() < pager.getStart()) {
                 pager = new Pager(0, ordered.size(), pager.getOrder());
                 return new Page(ordered, pager, ordered.size());
@@ -901,19 +1505,20 @@ public class CassAlertsServiceImpl implements AlertsService {
         }
     }
 
-    private Set<String> filterByTriggers(String tenantId, EventsCriteria criteria) throws Exception {
+    private Set<String> filterByTriggers(String tenantId, List<Long> buckets, EventsCriteria criteria)
+            throws Exception {
         Set<String> result = Collections.EMPTY_SET;
         Set<String> triggerIds = extractTriggerIds(tenantId, criteria);
 
         if (triggerIds.size() > 0) {
             List<ResultSetFuture> futures = new ArrayList<>();
-            PreparedStatement selectEventsTriggers = CassStatement.get(session, CassStatement.SELECT_EVENT_TRIGGER);
 
             for (String triggerId : triggerIds) {
                 if (isEmpty(triggerId)) {
                     continue;
                 }
-                futures.add(session.executeAsync(selectEventsTriggers.bind(tenantId, triggerId)));
+                futures.addAll(TimeBuckets.selectAsync(session, CassStatement.SELECT_EVENT_TRIGGER, buckets, tenantId,
+                        triggerId));
             }
             List<ResultSet> rsIdsByTriggerIds = Futures.allAsList(futures).get();
 
@@ -953,40 +1558,42 @@ public class CassAlertsServiceImpl implements AlertsService {
         return triggerIds;
     }
 
-    private Set<String> filterByCTime(String tenantId, EventsCriteria criteria) throws Exception {
+    private Set<String> filterByCTime(String tenantId, List<Long> buckets, EventsCriteria criteria)
+            throws Exception {
         Set<String> result = Collections.EMPTY_SET;
 
         if (criteria.getStartTime() != null || criteria.getEndTime() != null) {
             result = new HashSet<>();
 
-            BoundStatement boundCtime;
+            List<ResultSetFuture> futures;
             if (criteria.getStartTime() != null && criteria.getEndTime() != null) {
-                PreparedStatement selectEventCTimeStartEnd = CassStatement.get(session,
-                        CassStatement.SELECT_EVENT_CTIME_START_END);
-                boundCtime = selectEventCTimeStartEnd.bind(tenantId, criteria.getStartTime(),
-                        criteria.getEndTime());
+                futures = TimeBuckets.selectAsync(session, CassStatement.SELECT_EVENT_CTIME_START_END, buckets,
+                        tenantId, criteria.getStartTime(), criteria.getEndTime());
             } else if (criteria.getStartTime() != null) {
-                PreparedStatement selectEventCTimeStart = CassStatement.get(session,
-                        CassStatement.SELECT_EVENT_CTIME_START);
-                boundCtime = selectEventCTimeStart.bind(tenantId, criteria.getStartTime());
+                futures = TimeBuckets.selectAsync(session, CassStatement.SELECT_EVENT_CTIME_START, buckets,
+                        tenantId, criteria.getStartTime());
             } else {
-                PreparedStatement selectEventCTimeEnd = CassStatement.get(session,
-                        CassStatement.SELECT_EVENT_CTIME_END);
-                boundCtime = selectEventCTimeEnd.bind(tenantId, criteria.getEndTime());
+                futures = TimeBuckets.selectAsync(session, CassStatement.SELECT_EVENT_CTIME_END, buckets,
+                        tenantId, criteria.getEndTime());
             }
 
-            ResultSet rsIdsCtimes = session.execute(boundCtime);
-            for (Row row : rsIdsCtimes) {
-                String eventId = row.getString("id");
-                result.add(eventId);
+            for (ResultSet rsIdsCtimes : Futures.allAsList(futures).get()) {
+                for (Row row : rsIdsCtimes) {
+                    String eventId = row.getString("id");
+                    result.add(eventId);
+                }
             }
         }
         return result;
     }
 
-    private Set<String> filterByCategories(String tenantId, EventsCriteria criteria) throws Exception {
-        Set<String> result = Collections.EMPTY_SET;
+    private Set<String> filterByCategories(String tenantId, List<Long> buckets, EventsCriteria criteria)
+            throws Exception {
+        return AsyncQueries.get(filterByCategoriesAsync(tenantId, buckets, criteria));
+    }
 
+    private CompletableFuture<Set<String>> filterByCategoriesAsync(String tenantId, List<Long> buckets,
+            EventsCriteria criteria) {
         Set<String> categories = new HashSet<>();
         if (isEmpty(criteria.getCategories())) {
             if (criteria.getCategory() != null) {
@@ -996,24 +1603,23 @@ public class CassAlertsServiceImpl implements AlertsService {
             categories.addAll(criteria.getCategories());
         }
 
-        if (categories.size() > 0) {
-            PreparedStatement selectEventCategory = CassStatement.get(session,
-                    CassStatement.SELECT_EVENT_CATEGORY);
-            List<ResultSetFuture> futures = categories.stream().map(category ->
-                    session.executeAsync(selectEventCategory.bind(tenantId, category)))
-                    .collect(Collectors.toList());
-            List<ResultSet> rsAlertStatuses = Futures.allAsList(futures).get();
-
+        if (categories.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.EMPTY_SET);
+        }
+        List<ResultSetFuture> futures = categories.stream().flatMap(category ->
+                TimeBuckets.selectAsync(session, CassStatement.SELECT_EVENT_CATEGORY, buckets, tenantId,
+                        category).stream())
+                .collect(Collectors.toList());
+        return AsyncQueries.all(futures).thenApply(rsEventCategories -> {
             Set<String> eventIds = new HashSet<>();
-            rsAlertStatuses.stream().forEach(r -> {
+            rsEventCategories.stream().forEach(r -> {
                 for (Row row : r) {
                     String eventId = row.getString("id");
                     eventIds.add(eventId);
                 }
             });
-            result = eventIds;
-        }
-        return result;
+            return eventIds;
+        });
     }
 
     @Override
@@ -1037,14 +1643,14 @@ public class CassAlertsServiceImpl implements AlertsService {
         criteria.setAlertIds(alertIds);
         List<Alert> alertsToAck = getAlerts(tenantId, criteria, null);
 
-        for (Alert a : alertsToAck) {
+        final String by = ackBy;
+        final String notes = ackNotes;
+        updateAlertsStatus(tenantId, alertsToAck, a -> {
             a.setStatus(Alert.Status.ACKNOWLEDGED);
-            a.setAckBy(ackBy);
+            a.setAckBy(by);
             a.setAckTime(System.currentTimeMillis());
-            a.addNote(ackBy, ackNotes);
-            updateAlertStatus(a);
-            sendAction(a);
-        }
+            a.addNote(by, notes);
+        });
     }
 
     @Override
@@ -1064,26 +1670,14 @@ public class CassAlertsServiceImpl implements AlertsService {
             return 0;
         }
 
-        PreparedStatement deleteAlert = CassStatement.get(session, CassStatement.DELETE_ALERT);
-        PreparedStatement deleteAlertCtime = CassStatement.get(session, CassStatement.DELETE_ALERT_CTIME);
-        PreparedStatement deleteAlertSeverity = CassStatement.get(session, CassStatement.DELETE_ALERT_SEVERITY);
-        PreparedStatement deleteAlertStatus = CassStatement.get(session, CassStatement.DELETE_ALERT_STATUS);
-        PreparedStatement deleteAlertTrigger = CassStatement.get(session, CassStatement.DELETE_ALERT_TRIGGER);
-        if (deleteAlert == null || deleteAlertCtime == null || deleteAlertSeverity == null
-                || deleteAlertStatus == null || deleteAlertTrigger == null) {
-            throw new RuntimeException("delete*Alerts PreparedStatement is null");
-        }
-
+        CassWriteBatch batch = new CassWriteBatch(session);
         for (Alert a : alertsToDelete) {
-            String id = a.getAlertId();
-            List<ResultSetFuture> futures = new ArrayList<>();
-            futures.add(session.executeAsync(deleteAlert.bind(tenantId, id)));
-            futures.add(session.executeAsync(deleteAlertCtime.bind(tenantId, a.getCtime(), id)));
-            futures.add(session.executeAsync(deleteAlertSeverity.bind(tenantId, a.getSeverity().name(), id)));
-            futures.add(session.executeAsync(deleteAlertStatus.bind(tenantId, a.getStatus().name(), id)));
-            futures.add(session.executeAsync(deleteAlertTrigger.bind(tenantId, a.getTriggerId(), id)));
-            Futures.allAsList(futures).get();
+            CassHistoryWriter.deleteAlert(a, batch);
+            CassHistoryWriter.countAlert(a, a.getStatus(), -1, batch);
         }
+        batch.execute();
+        HistoryIndex.getInstance().remove(tenantId, TimeBuckets.ALERTS, alertsToDelete.stream()
+                .map(Alert::getAlertId).collect(Collectors.toList()));
 
         return alertsToDelete.size();
     }
@@ -1105,26 +1699,13 @@ public class CassAlertsServiceImpl implements AlertsService {
             return 0;
         }
 
-        PreparedStatement deleteEvent = CassStatement.get(session, CassStatement.DELETE_EVENT);
-        PreparedStatement deleteEventCategory = CassStatement.get(session, CassStatement.DELETE_EVENT_CATEGORY);
-        PreparedStatement deleteEventCTime = CassStatement.get(session, CassStatement.DELETE_EVENT_CTIME);
-        PreparedStatement deleteEventTrigger = CassStatement.get(session, CassStatement.DELETE_EVENT_TRIGGER);
-        if (deleteEvent == null || deleteEventCTime == null || deleteEventCategory == null
-                || deleteEventTrigger == null) {
-            throw new RuntimeException("delete*Events PreparedStatement is null");
-        }
-
+        CassWriteBatch batch = new CassWriteBatch(session);
         for (Event e : eventsToDelete) {
-            String id = e.getId();
-            List<ResultSetFuture> futures = new ArrayList<>();
-            futures.add(session.executeAsync(deleteEvent.bind(tenantId, id)));
-            futures.add(session.executeAsync(deleteEventCategory.bind(tenantId, e.getCategory(), id)));
-            futures.add(session.executeAsync(deleteEventCTime.bind(tenantId, e.getCtime(), id)));
-            if (null != e.getTrigger()) {
-                futures.add(session.executeAsync(deleteEventTrigger.bind(tenantId, e.getTrigger().getId(), id)));
-            }
-            Futures.allAsList(futures).get();
+            CassHistoryWriter.deleteEvent(e, batch);
         }
+        batch.execute();
+        HistoryIndex.getInstance().remove(tenantId, TimeBuckets.EVENTS, eventsToDelete.stream()
+                .map(Event::getId).collect(Collectors.toList()));
 
         return eventsToDelete.size();
     }
@@ -1152,21 +1733,13 @@ public class CassAlertsServiceImpl implements AlertsService {
         List<Alert> alertsToResolve = getAlerts(tenantId, criteria, null);
 
         // resolve the alerts
-        for (Alert a : alertsToResolve) {
-            a.setStatus(Alert.Status.RESOLVED);
-            a.setResolvedBy(resolvedBy);
-            a.setResolvedTime(System.currentTimeMillis());
-            a.addNote(resolvedBy, resolvedNotes);
-            a.setResolvedEvalSets(resolvedEvalSets);
-            updateAlertStatus(a);
-            sendAction(a);
-        }
+        updateAlertsStatus(tenantId, alertsToResolve, resolution(resolvedBy, resolvedNotes, resolvedEvalSets));
 
         // gather the triggerIds of the triggers we need to check for resolve options
         Set<String> triggerIds = alertsToResolve.stream().map(a -> a.getTriggerId()).collect(Collectors.toSet());
 
         // handle resolve options
-        triggerIds.stream().forEach(tid -> handleResolveOptions(tenantId, tid, true));
+        handleResolveOptions(tenantId, triggerIds, true);
     }
 
     @Override
@@ -1192,107 +1765,194 @@ public class CassAlertsServiceImpl implements AlertsService {
         criteria.setStatusSet(EnumSet.complementOf(EnumSet.of(Alert.Status.RESOLVED)));
         List<Alert> alertsToResolve = getAlerts(tenantId, criteria, null);
 
-        for (Alert a : alertsToResolve) {
+        updateAlertsStatus(tenantId, alertsToResolve, resolution(resolvedBy, resolvedNotes, resolvedEvalSets));
+
+        handleResolveOptions(tenantId, Collections.singleton(triggerId), false);
+    }
+
+    private static Consumer<Alert> resolution(String resolvedBy, String resolvedNotes,
+            List<Set<ConditionEval>> resolvedEvalSets) {
+        return a -> {
             a.setStatus(Alert.Status.RESOLVED);
             a.setResolvedBy(resolvedBy);
             a.setResolvedTime(System.currentTimeMillis());
             a.addNote(resolvedBy, resolvedNotes);
             a.setResolvedEvalSets(resolvedEvalSets);
-            updateAlertStatus(a);
-            sendAction(a);
-        }
-
-        handleResolveOptions(tenantId, triggerId, false);
+        };
     }
 
-    private Alert updateAlertStatus(Alert alert) throws Exception {
-        if (alert == null || alert.getAlertId() == null || alert.getAlertId().isEmpty()) {
-            throw new IllegalArgumentException("AlertId must be not null");
+    /*
+        The status writes of the alerts are pipelined in batches of hawkular-alerts.lifecycle-batch alerts, the write
+        limiter bounds the requests in flight. The actions of a batch are sent once its statuses are written.
+
+        The statistics counters move an alert from its previous status to the new one only when the conditional
+        delete of its previous status index row is applied, so of two concurrent updates of the same alert only one
+        counts the transition. The alerts changed meanwhile are read again and the change is applied on their current
+        state. After STATUS_ATTEMPTS they are written without counting, a rebuild of the statistics repairs them.
+     */
+    private void updateAlertsStatus(String tenantId, List<Alert> alerts, Consumer<Alert> change) throws Exception {
+        for (Alert alert : alerts) {
+            if (alert == null || alert.getAlertId() == null || alert.getAlertId().isEmpty()) {
+                throw new IllegalArgumentException("AlertId must be not null");
+            }
         }
         session = CassCluster.getSession();
-        try {
-            // we need to delete the current status index entry, and enter the new one. And update the
-            // alert.  We can do all of this concurrently/async because each call operates on a different key;
-            PreparedStatement deleteAlertStatus = CassStatement.get(session,
-                    CassStatement.DELETE_ALERT_STATUS);
-            PreparedStatement insertAlertStatus = CassStatement.get(session,
-                    CassStatement.INSERT_ALERT_STATUS);
-            PreparedStatement updateAlert = CassStatement.get(session,
-                    CassStatement.UPDATE_ALERT);
-
-            List<ResultSetFuture> futures = new ArrayList<>();
-            for (Alert.Status statusToDelete : EnumSet.complementOf(EnumSet.of(alert.getStatus()))) {
-                futures.add(session.executeAsync(deleteAlertStatus.bind(alert.getTenantId(), statusToDelete,
-                        alert.getAlertId())));
+        for (int i = 0; i < alerts.size(); i += lifecycleBatch) {
+            List<Alert> chunk = alerts.subList(i, Math.min(i + lifecycleBatch, alerts.size()));
+            for (int attempt = 1; !chunk.isEmpty(); attempt++) {
+                List<String> changed = writeAlertsStatus(chunk, change, attempt < STATUS_ATTEMPTS);
+                if (changed.isEmpty()) {
+                    break;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Alerts changed by a concurrent update, attempt " + attempt + ": " + changed);
+                }
+                AlertsCriteria criteria = new AlertsCriteria();
+                criteria.setAlertIds(changed);
+                chunk = getAlerts(tenantId, criteria, null);
             }
-            futures.add(session.executeAsync(insertAlertStatus.bind(alert.getTenantId(), alert.getAlertId(), alert
-                    .getStatus().name())));
-            futures.add(session.executeAsync(updateAlert.bind(JsonUtil.toJson(alert), alert.getTenantId(),
-                    alert.getAlertId())));
+        }
+    }
 
-            List<ResultSet> rsAlertsStatusToDelete = Futures.allAsList(futures).get();
+    /*
+        Apply the change to the alerts and write them. With conditional writes the alerts whose previous status was
+        changed by a concurrent update are not written.
+
+        @return the ids of the alerts not written
+     */
+    private List<String> writeAlertsStatus(List<Alert> alerts, Consumer<Alert> change, boolean conditional)
+            throws Exception {
+        Map<String, Alert.Status> previousStatus = new HashMap<>();
+        for (Alert a : alerts) {
+            previousStatus.put(a.getAlertId(), a.getStatus());
+            change.accept(a);
+        }
+        List<Alert> written = new ArrayList<>(alerts.size());
+        List<String> changed = new ArrayList<>();
+        try {
+            if (conditional) {
+                CassWriteLimiter limiter = CassWriteLimiter.getInstance();
+                List<Alert> moved = new ArrayList<>();
+                List<ResultSetFuture> futures = new ArrayList<>();
+                for (Alert a : alerts) {
+                    Alert.Status previous = previousStatus.get(a.getAlertId());
+                    if (previous == a.getStatus()) {
+                        written.add(a);
+                    } else {
+                        moved.add(a);
+                        futures.add(limiter.executeAsync(session,
+                                CassHistoryWriter.deleteAlertStatusIfExists(session, a, previous), 1));
+                    }
+                }
+                List<ResultSet> rsDeletes = Futures.allAsList(futures).get();
+                for (int i = 0; i < moved.size(); i++) {
+                    if (rsDeletes.get(i).wasApplied()) {
+                        written.add(moved.get(i));
+                    } else {
+                        changed.add(moved.get(i).getAlertId());
+                    }
+                }
+            } else {
+                written.addAll(alerts);
+            }
+            if (written.isEmpty()) {
+                return changed;
+            }
+            // we need to delete the current status index entries, and enter the new ones. And rewrite the alerts
+            // with the ttl of the new status. Each write operates on a different key so all of them are sent
+            // concurrently.
+            CassWriteBatch batch = new CassWriteBatch(session);
+            for (Alert a : written) {
+                CassHistoryWriter.updateAlertStatus(a, batch);
+                Alert.Status previous = previousStatus.get(a.getAlertId());
+                if (conditional && previous != a.getStatus()) {
+                    CassHistoryWriter.countAlert(a, previous, -1, batch);
+                    CassHistoryWriter.countAlert(a, a.getStatus(), 1, batch);
+                }
+            }
+            batch.execute();
+            HistoryIndex.getInstance().putAlerts(written);
+            EventsFeed.getInstance().alerts(written);
 
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
-        return alert;
+        written.forEach(this::sendAction);
+        return changed;
     }
 
-    private void handleResolveOptions(String tenantId, String triggerId, boolean checkIfAllResolved) {
+    private void handleResolveOptions(String tenantId, Collection<String> triggerIds, boolean checkIfAllResolved) {
 
         try {
-            Trigger trigger = definitionsService.getTrigger(tenantId, triggerId);
-            if (null == trigger) {
-                return;
-            }
+            Map<String, Trigger> candidates = new HashMap<>();
+            Set<String> toEnable = new HashSet<>();
+            for (String triggerId : triggerIds) {
+                Trigger trigger = definitionsService.getTrigger(tenantId, triggerId);
+                if (null == trigger) {
+                    continue;
+                }
 
-            boolean setEnabled = trigger.isAutoEnable() && !trigger.isEnabled();
-            boolean setFiring = trigger.isAutoResolve();
+                boolean setEnabled = trigger.isAutoEnable() && !trigger.isEnabled();
+                boolean setFiring = trigger.isAutoResolve();
+
+                // Only reload the trigger if it is not already in firing mode, otherwise we could lose partial
+                // matching. This is a rare case because a trigger with autoResolve=true will not be in firing mode
+                // with an unresolved trigger. But it is possible, either by mistake, or timing,  for a client to try
+                // and resolve an already-resolved alert.
+                if (setFiring) {
+                    Trigger loadedTrigger = alertsEngine.getLoadedTrigger(trigger);
+                    if (null != loadedTrigger && Mode.FIRING == loadedTrigger.getMode()) {
+                        if (log.isDebugEnabled()) {
+                            log.debug("Ignoring setFiring, loaded Trigger already in firing mode " +
+                                    loadedTrigger.toString());
+                        }
+                        setFiring = false;
+                    }
+                }
 
-            // Only reload the trigger if it is not already in firing mode, otherwise we could lose partial matching.
-            // This is a rare case because a trigger with autoResolve=true will not be in firing mode with an
-            // unresolved trigger. But it is possible, either by mistake, or timing,  for a client to try and
-            // resolve an already-resolved alert.
-            if (setFiring) {
-                Trigger loadedTrigger = alertsEngine.getLoadedTrigger(trigger);
-                if (null != loadedTrigger && Mode.FIRING == loadedTrigger.getMode()) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Ignoring setFiring, loaded Trigger already in firing mode " +
-                                loadedTrigger.toString());
+                if (setEnabled || setFiring) {
+                    candidates.put(triggerId, trigger);
+                    if (setEnabled) {
+                        toEnable.add(triggerId);
                     }
-                    setFiring = false;
                 }
             }
 
-            if (!(setEnabled || setFiring)) {
+            if (candidates.isEmpty()) {
                 return;
             }
 
-            boolean allResolved = true;
+            // A single query for the unresolved alerts of all the triggers
             if (checkIfAllResolved) {
                 AlertsCriteria ac = new AlertsCriteria();
-                ac.setTriggerId(triggerId);
+                ac.setTriggerIds(new ArrayList<>(candidates.keySet()));
                 ac.setStatusSet(EnumSet.complementOf(EnumSet.of(Alert.Status.RESOLVED)));
-                Page<Alert> unresolvedAlerts = getAlerts(tenantId, ac, new Pager(0, 1, Order.unspecified()));
-                allResolved = unresolvedAlerts.isEmpty();
-            }
-
-            if (!allResolved) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Ignoring resolveOptions, not all Alerts for Trigger " + trigger.toString() +
-                            " are resolved");
+                ac.setThin(true);
+                for (Alert unresolved : getAlerts(tenantId, ac, null)) {
+                    Trigger trigger = candidates.remove(unresolved.getTriggerId());
+                    if (null != trigger && log.isDebugEnabled()) {
+                        log.debug("Ignoring resolveOptions, not all Alerts for Trigger " + trigger.toString() +
+                                " are resolved");
+                    }
                 }
-                return;
             }
 
             // Either update the trigger, which implicitly reloads the trigger (and as such resets to firing mode)
             // or perform an explicit reload to reset to firing mode.
-            if (setEnabled) {
-                trigger.setEnabled(true);
-                definitionsService.updateTrigger(tenantId, trigger);
-            } else {
-                alertsEngine.reloadTrigger(tenantId, triggerId);
+            List<String> toReload = new ArrayList<>();
+            for (Trigger trigger : candidates.values()) {
+                if (toEnable.contains(trigger.getId())) {
+                    trigger.setEnabled(true);
+                    definitionsService.updateTrigger(tenantId, trigger);
+                } else {
+                    toReload.add(trigger.getId());
+                }
+            }
+            if (toReload.size() == 1) {
+                alertsEngine.reloadTrigger(tenantId, toReload.get(0));
+            } else if (!toReload.isEmpty()) {
+                alertsEngine.reloadTriggers(tenantId, toReload);
             }
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
@@ -1300,6 +1960,16 @@ public class CassAlertsServiceImpl implements AlertsService {
 
     }
 
+    @Override
+    public void registerListener(EventsListener listener) {
+        EventsFeed.getInstance().register(listener);
+    }
+
+    @Override
+    public void unregisterListener(EventsListener listener) {
+        EventsFeed.getInstance().unregister(listener);
+    }
+
     @Override
     public void sendData(Data data) throws Exception {
         alertsEngine.sendData(data);
@@ -1310,6 +1980,11 @@ public class CassAlertsServiceImpl implements AlertsService {
         alertsEngine.sendData(data);
     }
 
+    @Override
+    public void sendLocalData(Collection<Data> data) throws Exception {
+        alertsEngine.sendLocalData(data);
+    }
+
     @Override
     public void addEvents(Collection<Event> events) throws Exception {
         if (null == events || events.isEmpty()) {
@@ -28,6 +28,7 @@ import org.jboss.logging.Logger;
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.ProtocolVersion;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.CharStreams;
@@ -46,6 +47,8 @@ public class CassCluster {
     private static final String ALERTS_CASSANDRA_KEYSPACE = "hawkular-alerts.cassandra-keyspace";
     private static final String ALERTS_CASSANDRA_RETRY_ATTEMPTS = "hawkular-alerts.cassandra-retry-attempts";
     private static final String ALERTS_CASSANDRA_RETRY_TIMEOUT = "hawkular-alerts.cassandra-retry-timeout";
+    private static final String SCHEMA_VERSION = "1";
+    private static final String MIGRATION_DONE = "migration-done";
 
     private Cluster cluster = null;
 
@@ -70,13 +73,26 @@ public class CassCluster {
         ResultSet resultSet = session.execute("SELECT * FROM system.schema_keyspaces WHERE keyspace_name = '" +
                 keyspace + "'");
         if (!resultSet.isExhausted()) {
-            log.debug("Schema already exist. Skipping schema creation.");
+            if (tableExists(session, keyspace, "schema_info") && null != readSchemaInfo(session, keyspace, "version")) {
+                log.debug("Schema already exist. Skipping schema creation.");
+                readBucketSize(session, keyspace);
+            } else {
+                upgradeScheme(session, keyspace);
+            }
+            migrateLegacyTables(session, keyspace);
             initialized = true;
             return;
         }
 
         log.infof("Creating Schema for keyspace %s", keyspace);
+        createScheme(session, keyspace);
+        writeSchemaInfo(session, keyspace);
+        initialized = true;
+
+        log.infof("Done creating Schema for keyspace: " + keyspace);
+    }
 
+    private void createScheme(Session session, String keyspace) throws IOException {
         ImmutableMap<String, String> schemaVars = ImmutableMap.of("keyspace", keyspace);
 
         String updatedCQL = null;
@@ -96,9 +112,89 @@ public class CassCluster {
         } catch (Exception e) {
             log.errorf("Failed schema creation: %s\nEXECUTING CQL:\n%s", e, updatedCQL);
         }
-        initialized = true;
+    }
 
-        log.infof("Done creating Schema for keyspace: " + keyspace);
+    /*
+        The bucket size is fixed when the bucketed tables are created, the recorded value takes precedence over the
+        property.
+     */
+    private void writeSchemaInfo(Session session, String keyspace) {
+        writeSchemaInfo(session, keyspace, "bucket-size", String.valueOf(TimeBuckets.getSize()));
+        writeSchemaInfo(session, keyspace, "version", SCHEMA_VERSION);
+    }
+
+    private void writeSchemaInfo(Session session, String keyspace, String name, String value) {
+        session.execute("INSERT INTO " + keyspace + ".schema_info (name, value) VALUES (?, ?)", name, value);
+    }
+
+    private String readSchemaInfo(Session session, String keyspace, String name) {
+        Row row = session.execute("SELECT value FROM " + keyspace + ".schema_info WHERE name = ?", name).one();
+        return null == row ? null : row.getString("value");
+    }
+
+    private boolean tableExists(Session session, String keyspace, String table) {
+        return !session.execute("SELECT columnfamily_name FROM system.schema_columnfamilies WHERE keyspace_name = ? " +
+                "AND columnfamily_name = ?", keyspace, table).isExhausted();
+    }
+
+    /*
+        A keyspace with the legacy tables, partitioned only by tenant, gets its history copied into the bucketed
+        tables in the background, the history stored before the upgrade is not returned until the copy is done.
+        The migration-done row is written only once the copy succeeds, so a failed or interrupted copy is run again
+        on the next start. The copy does not count the alerts, the statistics are rebuilt per tenant afterwards.
+     */
+    private void migrateLegacyTables(Session session, String keyspace) {
+        if (null != readSchemaInfo(session, keyspace, MIGRATION_DONE) || !tableExists(session, keyspace, "alerts")) {
+            return;
+        }
+        log.infof("Migrating the history of keyspace %s in the background, alerts, events and actions stored " +
+                "before the upgrade are not returned until it is done", keyspace);
+        Thread migration = new Thread(() -> {
+            try {
+                CassSchemaMigration.migrate(session, keyspace);
+                writeSchemaInfo(session, keyspace, MIGRATION_DONE, "true");
+                log.infof("Done migrating the history of keyspace %s. Tables alerts, events and actions_history " +
+                        "are no longer used and can be dropped. Alerts statistics do not count the migrated " +
+                        "alerts, rebuild them per tenant with PUT /stats/rebuild.", keyspace);
+            } catch (Exception e) {
+                log.errorf(e, "Failed history migration of keyspace %s, it will be retried on the next start",
+                        keyspace);
+            }
+        }, "CassSchemaMigration");
+        migration.setDaemon(true);
+        migration.start();
+    }
+
+    private void readBucketSize(Session session, String keyspace) {
+        String value = readSchemaInfo(session, keyspace, "bucket-size");
+        if (null == value) {
+            return;
+        }
+        long bucketSize = Long.parseLong(value);
+        if (bucketSize != TimeBuckets.getSize()) {
+            log.warnf("Property %s [%s] differs from the bucket size of keyspace %s [%s], using the keyspace one",
+                    TimeBuckets.BUCKET_SIZE, TimeBuckets.getSize(), keyspace, bucketSize);
+            TimeBuckets.setSize(bucketSize);
+        }
+    }
+
+    /*
+        Keyspaces created before schema_info existed get the new tables and member_triggers filled from the stored
+        member triggers. The alerts statistics counters start empty, they are filled by a rebuild of each tenant.
+     */
+    private void upgradeScheme(Session session, String keyspace) throws IOException {
+        log.infof("Upgrading Schema for keyspace %s", keyspace);
+        createScheme(session, keyspace);
+        readBucketSize(session, keyspace);
+        try {
+            CassSchemaMigration.migrateMemberTriggers(session, keyspace);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed member triggers migration of keyspace " + keyspace +
+                    ", it will be retried on the next start", e);
+        }
+        writeSchemaInfo(session, keyspace);
+        log.infof("Done upgrading Schema for keyspace: %s. Alerts statistics count new alerts only, rebuild them " +
+                "per tenant with PUT /stats/rebuild to count the stored ones.", keyspace);
     }
 
     private String substituteVars(String cql, Map<String, String> vars) {
@@ -132,6 +228,7 @@ public class CassCluster {
                             .withPort(new Integer(cqlPort))
                             .withProtocolVersion(ProtocolVersion.V3)
                             .build();
+                    instance.cluster.register(CassStatementTracker.getInstance());
                     instance.session = instance.cluster.connect();
                 } catch (Exception e) {
                     log.warn("Could not connect to Cassandra cluster - assuming is not up yet. Cause: " +
@@ -153,6 +250,9 @@ public class CassCluster {
             if (instance.session != null && !instance.initialized) {
                 String keyspace = AlertProperties.getProperty(ALERTS_CASSANDRA_KEYSPACE, "hawkular_alerts");
                 instance.initScheme(instance.session, keyspace);
+                if (instance.initialized) {
+                    CassStatement.prepareAll(instance.session);
+                }
             }
         }
         if (instance.session == null) {
@@ -16,7 +16,6 @@
  */
 package org.hawkular.alerts.engine.impl;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -25,9 +24,12 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -56,6 +58,7 @@ import org.hawkular.alerts.api.model.paging.Order;
 import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.Pager;
 import org.hawkular.alerts.api.model.paging.TriggerComparator;
+import org.hawkular.alerts.api.model.trigger.FullTrigger;
 import org.hawkular.alerts.api.model.trigger.Match;
 import org.hawkular.alerts.api.model.trigger.Mode;
 import org.hawkular.alerts.api.model.trigger.Trigger;
@@ -67,6 +70,8 @@ import org.hawkular.alerts.api.services.TriggersCriteria;
 import org.hawkular.alerts.engine.exception.NotFoundApplicationException;
 import org.hawkular.alerts.engine.log.MsgLogger;
 import org.hawkular.alerts.engine.service.AlertsEngine;
+import org.hawkular.alerts.engine.service.PartitionDefinitionsListener;
+import org.hawkular.alerts.engine.service.PartitionManager;
 import org.jboss.logging.Logger;
 
 import com.datastax.driver.core.BoundStatement;
@@ -75,18 +80,22 @@ import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.datastax.driver.core.Statement;
 import com.google.common.util.concurrent.Futures;
 
 /**
  * A Cassandra implementation of {@link org.hawkular.alerts.api.services.DefinitionsService}.
  *
+ * Triggers, conditions, dampenings, actions and action plugin defaults are read through a {@link DefinitionsCache}.
+ * Every change invalidates the cached copies of the modified definitions on this node and, on a distributed
+ * scenario, on the rest of nodes through the {@link PartitionManager}.
+ *
  * @author Lucas Ponce
  */
-@Local(DefinitionsService.class)
+@Local({DefinitionsService.class, PartitionDefinitionsListener.class})
 @Singleton
 @TransactionAttribute(value = TransactionAttributeType.NOT_SUPPORTED)
-public class CassDefinitionsServiceImpl implements DefinitionsService {
+public class CassDefinitionsServiceImpl implements DefinitionsService, PartitionDefinitionsListener {
     /**
      * Used on distributed environments.
      * If present, the initial data are not loaded on this node.
@@ -95,18 +104,24 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
     private static final String JBOSS_DATA_DIR = "jboss.server.data.dir";
     private static final String INIT_FOLDER = "hawkular-alerts";
     private static final String CASSANDRA_KEYSPACE = "hawkular-alerts.cassandra-keyspace";
+    private static final int MEMBERS_FETCH = 500;
     private final MsgLogger msgLog = MsgLogger.LOGGER;
     private final Logger log = Logger.getLogger(CassDefinitionsServiceImpl.class);
-    private ObjectMapper objectMapper = new ObjectMapper();
     private Session session;
     private String keyspace;
     private boolean initialized = false;
+    private int importBatch = 200;
 
     private Map<DefinitionsListener, Set<Type>> listeners = new HashMap<>();
 
+    private final DefinitionsCache definitionsCache = new DefinitionsCache();
+
     @EJB
     AlertsEngine alertsEngine;
 
+    @EJB
+    PartitionManager partitionManager;
+
     public CassDefinitionsServiceImpl() {
     }
 
@@ -118,13 +133,23 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         this.alertsEngine = alertsEngine;
     }
 
+    public PartitionManager getPartitionManager() {
+        return partitionManager;
+    }
+
+    public void setPartitionManager(PartitionManager partitionManager) {
+        this.partitionManager = partitionManager;
+    }
+
     @PostConstruct
     public void init() {
         try {
             if (this.keyspace == null) {
                 this.keyspace = AlertProperties.getProperty(CASSANDRA_KEYSPACE, "hawkular_alerts");
             }
+            importBatch = new Integer(AlertProperties.getProperty(FullTriggers.IMPORT_BATCH, "200"));
             session = CassCluster.getSession();
+            definitionsCache.register();
             /*
                 Initial data works here because we are in a singleton
              */
@@ -150,231 +175,30 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
                 return;
             }
             String folder = data + "/" + INIT_FOLDER;
-            initFiles(folder);
-        }
-        initialized = true;
-    }
-
-    private void initFiles(String folder) {
-        if (folder == null) {
-            msgLog.errorFolderMustBeNotNull();
-            return;
-        }
-
-        File fFolder = new File(folder);
-        if (!fFolder.exists()) {
-            log.debug("Data folder doesn't exits. Skipping initialization.");
-            return;
-        }
-
-        try {
-            initTriggers(fFolder);
-            initConditions(fFolder);
-            initDampenings(fFolder);
-            initActions(fFolder);
-        } catch (Exception e) {
-            if (log.isDebugEnabled()) {
-                e.printStackTrace();
-            }
-            msgLog.errorDatabaseException("Error initializing files. Msg: " + e);
-        }
-
-    }
-
-    private void initTriggers(File fFolder) throws Exception {
-        File triggersFile = new File(fFolder, "triggers-data.json");
-        if (triggersFile.exists() && triggersFile.isFile()) {
-            Map<String, Object> triggers = objectMapper.readValue(triggersFile, Map.class);
-            if (triggers != null && !triggers.isEmpty() && triggers.get("triggers") != null) {
-                List<Map<String, Object>> aTriggers = (List<Map<String, Object>>) triggers.get("triggers");
-                for (Map<String, Object> t : aTriggers) {
-                    String tenantId = (String) t.get("tenantId");
-                    String triggerId = (String) t.get("triggerId");
-                    String eventTypeName = (String) t.get("eventType");
-                    EventType eventType = (null != eventTypeName) ?
-                            EventType.valueOf(eventTypeName) : EventType.ALERT;
-                    boolean enabled = (Boolean) t.get("enabled");
-                    String name = (String) t.get("name");
-                    String description = (String) t.get("description");
-                    boolean autoDisable = (Boolean) t.get("autoDisable");
-                    boolean autoEnable = (Boolean) t.get("autoEnable");
-                    boolean autoResolve = (Boolean) t.get("autoResolve");
-                    boolean autoResolveAlerts = (Boolean) t.get("autoResolveAlerts");
-                    Severity severity = Severity.valueOf((String) t.get("severity"));
-                    Match firingMatch = Match.valueOf((String) t.get("firingMatch"));
-                    Match autoResolveMatch = Match.valueOf((String) t.get("autoResolveMatch"));
-                    List<Map<String, String>> actions = (List<Map<String, String>>) t.get("actions");
-                    Map<String, String> context = (Map<String, String>) t.get("context");
-                    Map<String, String> tags = (Map<String, String>) t.get("tags");
-                    boolean group = (Boolean) t.get("group");
-                    String memberOf = (String) t.get("memberOf");
-                    boolean orphan = (Boolean) t.get("orphan");
-
-                    Trigger trigger = new Trigger(tenantId, triggerId, name);
-                    trigger.setEventType(eventType);
-                    trigger.setEnabled(enabled);
-                    trigger.setAutoDisable(autoDisable);
-                    trigger.setAutoEnable(autoEnable);
-                    trigger.setAutoResolve(autoResolve);
-                    trigger.setAutoResolveAlerts(autoResolveAlerts);
-                    trigger.setSeverity(severity);
-                    trigger.setDescription(description);
-                    trigger.setFiringMatch(firingMatch);
-                    trigger.setAutoResolveMatch(autoResolveMatch);
-                    for (Map<String, String> action : actions) {
-                        trigger.addAction(action.get("actionPlugin"), action.get("actionId"));
-                    }
-                    trigger.setContext(context);
-                    trigger.setTags(tags);
-                    trigger.setGroup(group);
-                    trigger.setMemberOf(memberOf);
-                    trigger.setOrphan(orphan);
+            InitialData.load(folder, new InitialData.Target() {
+                @Override
+                public void addTrigger(Trigger trigger) throws Exception {
+                    CassDefinitionsServiceImpl.this.addTrigger(trigger);
+                }
 
-                    addTrigger(trigger);
+                @Override
+                public void addCondition(Condition condition) throws Exception {
+                    initCondition(condition);
+                }
 
-                    if (log.isDebugEnabled()) {
-                        log.debug("Init registration - Inserting [" + trigger + "]");
-                    }
+                @Override
+                public void addDampening(Dampening dampening) throws Exception {
+                    CassDefinitionsServiceImpl.this.addDampening(dampening);
                 }
-            }
-        } else {
-            msgLog.warningFileNotFound("triggers-data.json");
-        }
-    }
-
-    private void initConditions(File initFolder) throws Exception {
-        File conditionsFile = new File(initFolder, "conditions-data.json");
-        if (conditionsFile.exists() && conditionsFile.isFile()) {
-            Map<String, Object> conditions = objectMapper.readValue(conditionsFile, Map.class);
-            if (conditions != null && !conditions.isEmpty() && conditions.get("conditions") != null) {
-                List<Map<String, Object>> aConditions = (List<Map<String, Object>>) conditions.get("conditions");
-                for (Map<String, Object> c : aConditions) {
-                    String tenantId = (String) c.get("tenantId");
-                    String triggerId = (String) c.get("triggerId");
-                    Mode triggerMode = Mode.valueOf((String) c.get("triggerMode"));
-                    int conditionSetSize = (Integer) c.get("conditionSetSize");
-                    int conditionSetIndex = (Integer) c.get("conditionSetIndex");
-                    String type = (String) c.get("type");
-                    Map<String, String> context = (Map<String, String>) c.get("context");
-                    if (type != null && !type.isEmpty() && type.equals("threshold")) {
-                        String dataId = (String) c.get("dataId");
-                        String operator = (String) c.get("operator");
-                        Double threshold = (Double) c.get("threshold");
-
-                        ThresholdCondition newCondition = new ThresholdCondition();
-                        newCondition.setTriggerId(triggerId);
-                        newCondition.setTriggerMode(triggerMode);
-                        newCondition.setConditionSetSize(conditionSetSize);
-                        newCondition.setConditionSetIndex(conditionSetIndex);
-                        newCondition.setDataId(dataId);
-                        newCondition.setOperator(ThresholdCondition.Operator.valueOf(operator));
-                        newCondition.setThreshold(threshold);
-                        newCondition.setTenantId(tenantId);
-                        newCondition.setContext(context);
-
-                        initCondition(newCondition);
-                        if (log.isDebugEnabled()) {
-                            log.debug("Init registration - Inserting [" + newCondition + "]");
-                        }
-                    }
-                    if (type != null && !type.isEmpty() && type.equals("range")) {
-                        String dataId = (String) c.get("dataId");
-                        String operatorLow = (String) c.get("operatorLow");
-                        String operatorHigh = (String) c.get("operatorHigh");
-                        Double thresholdLow = (Double) c.get("thresholdLow");
-                        Double thresholdHigh = (Double) c.get("thresholdHigh");
-                        boolean inRange = (Boolean) c.get("inRange");
-
-                        ThresholdRangeCondition newCondition = new ThresholdRangeCondition();
-                        newCondition.setTriggerId(triggerId);
-                        newCondition.setTriggerMode(triggerMode);
-                        newCondition.setConditionSetSize(conditionSetSize);
-                        newCondition.setConditionSetIndex(conditionSetIndex);
-                        newCondition.setDataId(dataId);
-                        newCondition.setOperatorLow(ThresholdRangeCondition.Operator.valueOf(operatorLow));
-                        newCondition.setOperatorHigh(ThresholdRangeCondition.Operator.valueOf(operatorHigh));
-                        newCondition.setThresholdLow(thresholdLow);
-                        newCondition.setThresholdHigh(thresholdHigh);
-                        newCondition.setInRange(inRange);
-                        newCondition.setTenantId(tenantId);
-                        newCondition.setContext(context);
-
-                        initCondition(newCondition);
-                        if (log.isDebugEnabled()) {
-                            log.debug("Init registration - Inserting [" + newCondition + "]");
-                        }
-                    }
-                    if (type != null && !type.isEmpty() && type.equals("compare")) {
-                        String dataId = (String) c.get("dataId");
-                        String operator = (String) c.get("operator");
-                        Double data2Multiplier = (Double) c.get("data2Multiplier");
-                        String data2Id = (String) c.get("data2Id");
-
-                        CompareCondition newCondition = new CompareCondition();
-                        newCondition.setTriggerId(triggerId);
-                        newCondition.setTriggerMode(triggerMode);
-                        newCondition.setConditionSetSize(conditionSetSize);
-                        newCondition.setConditionSetIndex(conditionSetIndex);
-                        newCondition.setDataId(dataId);
-                        newCondition.setOperator(CompareCondition.Operator.valueOf(operator));
-                        newCondition.setData2Multiplier(data2Multiplier);
-                        newCondition.setData2Id(data2Id);
-                        newCondition.setTenantId(tenantId);
-                        newCondition.setContext(context);
-
-                        initCondition(newCondition);
-                        if (log.isDebugEnabled()) {
-                            log.debug("Init registration - Inserting [" + newCondition + "]");
-                        }
-                    }
-                    if (type != null && !type.isEmpty() && type.equals("string")) {
-                        String dataId = (String) c.get("dataId");
-                        String operator = (String) c.get("operator");
-                        String pattern = (String) c.get("pattern");
-                        boolean ignoreCase = (Boolean) c.get("ignoreCase");
-
-                        StringCondition newCondition = new StringCondition();
-                        newCondition.setTriggerId(triggerId);
-                        newCondition.setTriggerMode(triggerMode);
-                        newCondition.setConditionSetSize(conditionSetSize);
-                        newCondition.setConditionSetIndex(conditionSetIndex);
-                        newCondition.setDataId(dataId);
-                        newCondition.setOperator(StringCondition.Operator.valueOf(operator));
-                        newCondition.setPattern(pattern);
-                        newCondition.setIgnoreCase(ignoreCase);
-                        newCondition.setTenantId(tenantId);
-                        newCondition.setContext(context);
-
-                        initCondition(newCondition);
-                        if (log.isDebugEnabled()) {
-                            log.debug("Init registration - Inserting [" + newCondition + "]");
-                        }
-                    }
-                    if (type != null && !type.isEmpty() && type.equals("availability")) {
-                        String dataId = (String) c.get("dataId");
-                        String operator = (String) c.get("operator");
-
-                        AvailabilityCondition newCondition = new AvailabilityCondition();
-                        newCondition.setTriggerId(triggerId);
-                        newCondition.setTriggerMode(triggerMode);
-                        newCondition.setConditionSetSize(conditionSetSize);
-                        newCondition.setConditionSetIndex(conditionSetIndex);
-                        newCondition.setDataId(dataId);
-                        newCondition.setOperator(AvailabilityCondition.Operator.valueOf(operator));
-                        newCondition.setTenantId(tenantId);
-                        newCondition.setContext(context);
-
-                        initCondition(newCondition);
-                        if (log.isDebugEnabled()) {
-                            log.debug("Init registration - Inserting [" + newCondition + "]");
-                        }
-                    }
 
+                @Override
+                public void addAction(String tenantId, String actionPlugin, String actionId,
+                        Map<String, String> properties) throws Exception {
+                    CassDefinitionsServiceImpl.this.addAction(tenantId, actionPlugin, actionId, properties);
                 }
-            }
-        } else {
-            msgLog.warningFileNotFound("conditions-data.json");
+            });
         }
+        initialized = true;
     }
 
     private void initCondition(Condition condition) throws Exception {
@@ -384,63 +208,6 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         setConditions(condition.getTenantId(), condition.getTriggerId(), condition.getTriggerMode(), conditions);
     }
 
-    private void initDampenings(File initFolder) throws Exception {
-        File dampeningFile = new File(initFolder, "dampening-data.json");
-        if (dampeningFile.exists() && dampeningFile.isFile()) {
-            Map<String, Object> dampenings = objectMapper.readValue(dampeningFile, Map.class);
-            if (dampenings != null && !dampenings.isEmpty() && dampenings.get("dampenings") != null) {
-                List<Map<String, Object>> aDampenings = (List<Map<String, Object>>) dampenings.get("dampenings");
-                for (Map<String, Object> d : aDampenings) {
-                    String tenantId = (String) d.get("tenantId");
-                    String triggerId = (String) d.get("triggerId");
-                    Mode triggerMode = Mode.valueOf((String) d.get("triggerMode"));
-                    String type = (String) d.get("type");
-                    int evalTrueSetting = (Integer) d.get("evalTrueSetting");
-                    int evalTotalSetting = (Integer) d.get("evalTotalSetting");
-                    long evalTimeSetting = (Integer) d.get("evalTimeSetting");
-
-                    Dampening newDampening = new Dampening(triggerId, triggerMode, Dampening.Type.valueOf(type),
-                            evalTrueSetting, evalTotalSetting, evalTimeSetting);
-
-                    newDampening.setTenantId(tenantId);
-                    addDampening(newDampening);
-                    if (log.isDebugEnabled()) {
-                        log.debug("Init registration - Inserting [" + newDampening + "]");
-                    }
-                }
-            }
-        } else {
-            msgLog.warningFileNotFound("dampening-data.json");
-        }
-    }
-
-    private void initActions(File initFolder) throws Exception {
-        File actionsFile = new File(initFolder, "actions-data.json");
-        if (actionsFile.exists() && actionsFile.isFile()) {
-            Map<String, Object> actions = objectMapper.readValue(actionsFile, Map.class);
-            if (actions != null && !actions.isEmpty() && actions.get("actions") != null) {
-                List<Map<String, Object>> aActions = (List) actions.get("actions");
-                for (Map<String, Object> a : aActions) {
-                    Map<String, String> newAction = new HashMap<>();
-                    String tenantId = (String) a.get("tenantId");
-                    newAction.put("tenantId", tenantId);
-                    String actionPlugin = (String) a.get("actionPlugin");
-                    newAction.put("actionPlugin", actionPlugin);
-                    String actionId = (String) a.get("actionId");
-                    newAction.put("actionId", actionId);
-                    Map<String, String> properties = (Map<String, String>) a.get("properties");
-                    newAction.putAll(properties);
-                    addAction(tenantId, actionPlugin, actionId, newAction);
-                    if (log.isDebugEnabled()) {
-                        log.debug("Init registration - Inserting [" + newAction + "]");
-                    }
-                }
-            }
-        } else {
-            msgLog.warningFileNotFound("actions-data.json");
-        }
-    }
-
     @Override
     public void addAction(String tenantId, String actionPlugin, String actionId, Map<String, String> properties)
             throws Exception {
@@ -471,6 +238,7 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
+        invalidate(Collections.singletonList(DefinitionsCache.actionKey(tenantId, actionPlugin, actionId)));
     }
 
     @Override
@@ -506,17 +274,17 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
     private void addTrigger(Trigger trigger) throws Exception {
         session = CassCluster.getSession();
         PreparedStatement insertTrigger = CassStatement.get(session, CassStatement.INSERT_TRIGGER);
-        if (insertTrigger == null) {
+        PreparedStatement insertMemberTrigger = CassStatement.get(session, CassStatement.INSERT_MEMBER_TRIGGER);
+        if (insertTrigger == null || insertMemberTrigger == null) {
             throw new RuntimeException("insertTrigger PreparedStatement is null");
         }
 
         try {
-            session.execute(insertTrigger.bind(trigger.getTenantId(), trigger.getId(), trigger.isAutoDisable(),
-                    trigger.isAutoEnable(), trigger.isAutoResolve(), trigger.isAutoResolveAlerts(),
-                    trigger.getAutoResolveMatch().name(), trigger.getContext(), trigger.getDescription(),
-                    trigger.isEnabled(), trigger.getEventCategory(), trigger.getEventText(), trigger.getEventType(),
-                    trigger.getFiringMatch().name(), trigger.isGroup(), trigger.getMemberOf(), trigger.getName(),
-                    trigger.isOrphan(), trigger.getSeverity().name(), trigger.getTags()));
+            session.execute(bindTrigger(insertTrigger, trigger));
+            if (trigger.isMember()) {
+                session.execute(insertMemberTrigger.bind(trigger.getTenantId(), trigger.getMemberOf(),
+                        trigger.getId()));
+            }
 
             insertTriggerActions(trigger);
             insertTags(trigger.getTenantId(), TagType.TRIGGER, trigger.getId(), trigger.getTags());
@@ -526,6 +294,8 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             throw e;
         }
 
+        invalidate(DefinitionsCache.triggerKeys(trigger.getTenantId(), trigger.getId()));
+
         if (initialized && null!=alertsEngine) {
             alertsEngine.addTrigger(trigger.getTenantId(), trigger.getId());
         }
@@ -533,6 +303,15 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         notifyListeners(DefinitionsEvent.Type.TRIGGER_CREATE);
     }
 
+    private BoundStatement bindTrigger(PreparedStatement insertTrigger, Trigger trigger) {
+        return insertTrigger.bind(trigger.getTenantId(), trigger.getId(), trigger.isAutoDisable(),
+                trigger.isAutoEnable(), trigger.isAutoResolve(), trigger.isAutoResolveAlerts(),
+                trigger.getAutoResolveMatch().name(), trigger.getContext(), trigger.getDescription(),
+                trigger.isEnabled(), trigger.getEventCategory(), trigger.getEventText(), trigger.getEventType(),
+                trigger.getFiringMatch().name(), trigger.isGroup(), trigger.getMemberOf(), trigger.getName(),
+                trigger.isOrphan(), trigger.getSeverity().name(), trigger.getTags());
+    }
+
     private void insertTriggerActions(Trigger trigger) throws Exception {
         PreparedStatement insertTriggerActions = CassStatement.get(session, CassStatement.INSERT_TRIGGER_ACTIONS);
         if (insertTriggerActions == null) {
@@ -591,50 +370,48 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             throw new IllegalArgumentException("Trigger [" + tenantId + "/" + groupId + "] is not a group trigger");
         }
 
-        Collection<Trigger> memberTriggers = getMemberTriggers(tenantId, groupId, true);
+        List<Trigger> triggers = new ArrayList<>(getMemberTriggers(tenantId, groupId, true));
+        triggers.add(doomedTrigger);
 
-        for (Trigger member : memberTriggers) {
-            if ((keepNonOrphans && !member.isOrphan()) || (keepOrphans && member.isOrphan())) {
-                member.setMemberOf(null);
-                member.setOrphan(false);
-                updateTrigger(member, member.getActions(), member.getTags());
-                continue;
+        Set<Type> changes = EnumSet.of(Type.TRIGGER_REMOVE);
+        writeTriggers(triggers, (trigger, deletes, inserts) -> {
+            if (trigger.isMember()
+                    && ((keepNonOrphans && !trigger.isOrphan()) || (keepOrphans && trigger.isOrphan()))) {
+                trigger.setMemberOf(null);
+                trigger.setOrphan(false);
+                addUpdateTrigger(trigger, trigger.getActions(), trigger.getTags(), deletes, inserts);
+                changes.add(Type.TRIGGER_UPDATE);
+            } else {
+                addRemoveTrigger(trigger, deletes);
             }
+        });
 
-            removeTrigger(member);
+        // The kept members are no longer members of the group
+        PreparedStatement deleteMemberTriggers = CassStatement.get(session, CassStatement.DELETE_MEMBER_TRIGGERS);
+        if (deleteMemberTriggers == null) {
+            throw new RuntimeException("deleteMemberTriggers PreparedStatement is null");
+        }
+        try {
+            session.execute(deleteMemberTriggers.bind(tenantId, groupId));
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
         }
 
-        removeTrigger(doomedTrigger);
+        List<String> keys = new ArrayList<>();
+        for (Trigger trigger : triggers) {
+            keys.addAll(DefinitionsCache.triggerKeys(tenantId, trigger.getId()));
+        }
+        triggersChanged(tenantId, triggers, keys, changes);
     }
 
     private void removeTrigger(Trigger trigger) throws Exception {
-        session = CassCluster.getSession();
-
         String tenantId = trigger.getTenantId();
         String triggerId = trigger.getId();
 
-        PreparedStatement deleteDampenings = CassStatement.get(session, CassStatement.DELETE_DAMPENINGS);
-        PreparedStatement deleteConditions = CassStatement.get(session, CassStatement.DELETE_CONDITIONS);
-        PreparedStatement deleteActions = CassStatement.get(session, CassStatement.DELETE_TRIGGER_ACTIONS);
-        PreparedStatement deleteTrigger = CassStatement.get(session, CassStatement.DELETE_TRIGGER);
-        session.execute(deleteActions.bind(trigger.getTenantId(), trigger.getId()));
-        if (deleteDampenings == null || deleteConditions == null || deleteActions == null || deleteTrigger == null) {
-            throw new RuntimeException("delete*Triggers PreparedStatement is null");
-        }
+        writeTriggers(Collections.singletonList(trigger), (t, deletes, inserts) -> addRemoveTrigger(t, deletes));
 
-        try {
-            deleteTags(tenantId, TagType.TRIGGER, triggerId, trigger.getTags());
-            deleteTriggerActions(tenantId, triggerId);
-            List<ResultSetFuture> futures = new ArrayList<>();
-            futures.add(session.executeAsync(deleteDampenings.bind(tenantId, triggerId)));
-            futures.add(session.executeAsync(deleteConditions.bind(tenantId, triggerId)));
-            futures.add(session.executeAsync(deleteActions.bind(tenantId, triggerId)));
-            futures.add(session.executeAsync(deleteTrigger.bind(tenantId, triggerId)));
-            Futures.allAsList(futures).get();
-        } catch (Exception e) {
-            msgLog.errorDatabaseException(e.getMessage());
-            throw e;
-        }
+        invalidate(DefinitionsCache.triggerKeys(tenantId, triggerId));
 
         /*
             Trigger should be removed from the alerts engine.
@@ -707,15 +484,25 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         Map<String, Set<String>> existingActions = existingGroupTrigger.getActions();
         Map<String, String> existingTags = existingGroupTrigger.getTags();
 
+        List<Trigger> triggers = new ArrayList<>(memberTriggers.size() + 1);
         for (Trigger member : memberTriggers) {
-            copyGroupTrigger(groupTrigger, member);
-            updateTrigger(member, existingActions, existingTags);
+            triggers.add(copyGroupTrigger(groupTrigger, member));
         }
+        triggers.add(groupTrigger);
 
-        return updateTrigger(groupTrigger, existingActions, existingTags);
+        writeTriggers(triggers, (trigger, deletes, inserts) -> addUpdateTrigger(trigger, existingActions,
+                existingTags, deletes, inserts));
+
+        List<String> keys = new ArrayList<>(triggers.size());
+        for (Trigger trigger : triggers) {
+            keys.add(DefinitionsCache.triggerKey(tenantId, trigger.getId()));
+        }
+        triggersChanged(tenantId, triggers, keys, EnumSet.of(Type.TRIGGER_UPDATE));
+
+        return groupTrigger;
     }
 
-    private Trigger copyGroupTrigger(Trigger group, Trigger member) {
+    static Trigger copyGroupTrigger(Trigger group, Trigger member) {
         member.setActions(group.getActions());
         member.setAutoDisable(group.isAutoDisable());
         member.setAutoEnable(group.isAutoEnable());
@@ -737,38 +524,151 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
     private Trigger updateTrigger(Trigger trigger, Map<String, Set<String>> existingActions,
             Map<String, String> existingTags)
             throws Exception {
-        session = CassCluster.getSession();
-        PreparedStatement updateTrigger = CassStatement.get(session, CassStatement.UPDATE_TRIGGER);
-        if (updateTrigger == null) {
-            throw new RuntimeException("updateTrigger PreparedStatement is null");
+        writeTriggers(Collections.singletonList(trigger), (t, deletes, inserts) -> addUpdateTrigger(t,
+                existingActions, existingTags, deletes, inserts));
+
+        invalidate(Collections.singletonList(DefinitionsCache.triggerKey(trigger.getTenantId(),
+                trigger.getId())));
+
+        if (initialized && null != alertsEngine) {
+            alertsEngine.reloadTrigger(trigger.getTenantId(), trigger.getId());
         }
+
+        notifyListeners(DefinitionsEvent.Type.TRIGGER_UPDATE);
+
+        return trigger;
+    }
+
+    /**
+     * The writes of a trigger, split in the deletes and the inserts of its rows.
+     */
+    @FunctionalInterface
+    private interface TriggerWrites {
+        void add(Trigger trigger, CassWriteBatch deletes, CassWriteBatch inserts) throws Exception;
+    }
+
+    /*
+        The writes of all the triggers are sent as partition batches, all the deletes are written before any insert
+        as a delete and an insert of the same row (i.e. a tag kept on an update) would race otherwise.
+     */
+    private void writeTriggers(Collection<Trigger> triggers, TriggerWrites writes) throws Exception {
+        session = CassCluster.getSession();
+        CassWriteBatch deletes = new CassWriteBatch(session);
+        CassWriteBatch inserts = new CassWriteBatch(session);
         try {
-            session.execute(updateTrigger.bind(trigger.isAutoDisable(), trigger.isAutoEnable(),
-                    trigger.isAutoResolve(), trigger.isAutoResolveAlerts(), trigger.getAutoResolveMatch().name(),
-                    trigger.getContext(), trigger.getDescription(), trigger.isEnabled(), trigger.getEventCategory(),
-                    trigger.getEventText(), trigger.getFiringMatch().name(), trigger.isGroup(), trigger.getMemberOf(),
-                    trigger.getName(), trigger.isOrphan(), trigger.getSeverity().name(), trigger.getTags(),
-                    trigger.getTenantId(), trigger.getId()));
-            if (!trigger.getActions().equals(existingActions)) {
-                deleteTriggerActions(trigger.getTenantId(), trigger.getId());
-                insertTriggerActions(trigger);
-            }
-            if (!trigger.getTags().equals(existingTags)) {
-                deleteTags(trigger.getTenantId(), TagType.TRIGGER, trigger.getId(), existingTags);
-                insertTags(trigger.getTenantId(), TagType.TRIGGER, trigger.getId(), trigger.getTags());
+            for (Trigger trigger : triggers) {
+                writes.add(trigger, deletes, inserts);
             }
+            deletes.execute();
+            inserts.execute();
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
+    }
+
+    /*
+        A single invalidation, bulk reload and notification for all the triggers written by a group operation
+     */
+    private void triggersChanged(String tenantId, Collection<Trigger> triggers, List<String> keys,
+            Set<Type> eventTypes) {
+        invalidate(keys);
 
         if (initialized && null != alertsEngine) {
-            alertsEngine.reloadTrigger(trigger.getTenantId(), trigger.getId());
+            alertsEngine.reloadTriggers(tenantId, triggers.stream().map(Trigger::getId)
+                    .collect(Collectors.toList()));
         }
 
-        notifyListeners(DefinitionsEvent.Type.TRIGGER_UPDATE);
+        notifyListeners(eventTypes);
+    }
 
-        return trigger;
+    private void addUpdateTrigger(Trigger trigger, Map<String, Set<String>> existingActions,
+            Map<String, String> existingTags, CassWriteBatch deletes, CassWriteBatch inserts) {
+        PreparedStatement updateTrigger = CassStatement.get(session, CassStatement.UPDATE_TRIGGER);
+        PreparedStatement deleteTriggerActions = CassStatement.get(session, CassStatement.DELETE_TRIGGER_ACTIONS);
+        PreparedStatement insertTriggerActions = CassStatement.get(session, CassStatement.INSERT_TRIGGER_ACTIONS);
+        PreparedStatement deleteTag = CassStatement.get(session, CassStatement.DELETE_TAG);
+        PreparedStatement insertTag = CassStatement.get(session, CassStatement.INSERT_TAG);
+        if (updateTrigger == null || deleteTriggerActions == null || insertTriggerActions == null
+                || deleteTag == null || insertTag == null) {
+            throw new RuntimeException("updateTrigger PreparedStatement is null");
+        }
+
+        String tenantId = trigger.getTenantId();
+        String triggerId = trigger.getId();
+        inserts.add(tenantKey(tenantId), updateTrigger.bind(trigger.isAutoDisable(), trigger.isAutoEnable(),
+                trigger.isAutoResolve(), trigger.isAutoResolveAlerts(), trigger.getAutoResolveMatch().name(),
+                trigger.getContext(), trigger.getDescription(), trigger.isEnabled(), trigger.getEventCategory(),
+                trigger.getEventText(), trigger.getFiringMatch().name(), trigger.isGroup(), trigger.getMemberOf(),
+                trigger.getName(), trigger.isOrphan(), trigger.getSeverity().name(), trigger.getTags(),
+                tenantId, triggerId));
+        if (!trigger.getActions().equals(existingActions)) {
+            deletes.add(tenantKey(tenantId), deleteTriggerActions.bind(tenantId, triggerId));
+            for (Map.Entry<String, Set<String>> actions : trigger.getActions().entrySet()) {
+                if (actions.getValue() != null && !actions.getValue().isEmpty()) {
+                    inserts.add(tenantKey(tenantId), insertTriggerActions.bind(tenantId, triggerId,
+                            actions.getKey(), actions.getValue()));
+                }
+            }
+        }
+        if (!trigger.getTags().equals(existingTags)) {
+            if (!isEmpty(existingTags)) {
+                for (Map.Entry<String, String> tag : existingTags.entrySet()) {
+                    deletes.add(tagKey(tenantId, TagType.TRIGGER, tag.getKey()), deleteTag.bind(tenantId,
+                            TagType.TRIGGER.name(), tag.getKey(), tag.getValue(), triggerId));
+                }
+            }
+            for (Map.Entry<String, String> tag : trigger.getTags().entrySet()) {
+                inserts.add(tagKey(tenantId, TagType.TRIGGER, tag.getKey()), insertTag.bind(tenantId,
+                        TagType.TRIGGER.name(), tag.getKey(), tag.getValue(), triggerId));
+            }
+        }
+    }
+
+    private void addRemoveTrigger(Trigger trigger, CassWriteBatch deletes) {
+        PreparedStatement deleteDampenings = CassStatement.get(session, CassStatement.DELETE_DAMPENINGS);
+        PreparedStatement deleteConditions = CassStatement.get(session, CassStatement.DELETE_CONDITIONS);
+        PreparedStatement deleteActions = CassStatement.get(session, CassStatement.DELETE_TRIGGER_ACTIONS);
+        PreparedStatement deleteTrigger = CassStatement.get(session, CassStatement.DELETE_TRIGGER);
+        PreparedStatement deleteTag = CassStatement.get(session, CassStatement.DELETE_TAG);
+        PreparedStatement deleteMemberTrigger = CassStatement.get(session, CassStatement.DELETE_MEMBER_TRIGGER);
+        if (deleteDampenings == null || deleteConditions == null || deleteActions == null || deleteTrigger == null
+                || deleteTag == null || deleteMemberTrigger == null) {
+            throw new RuntimeException("delete*Triggers PreparedStatement is null");
+        }
+
+        String tenantId = trigger.getTenantId();
+        String triggerId = trigger.getId();
+        if (!isEmpty(trigger.getTags())) {
+            for (Map.Entry<String, String> tag : trigger.getTags().entrySet()) {
+                deletes.add(tagKey(tenantId, TagType.TRIGGER, tag.getKey()), deleteTag.bind(tenantId,
+                        TagType.TRIGGER.name(), tag.getKey(), tag.getValue(), triggerId));
+            }
+        }
+        deletes.add(tenantKey(tenantId), deleteActions.bind(tenantId, triggerId));
+        deletes.add(tenantKey(tenantId), deleteDampenings.bind(tenantId, triggerId));
+        deletes.add(tenantKey(tenantId), deleteConditions.bind(tenantId, triggerId));
+        deletes.add(tenantKey(tenantId), deleteTrigger.bind(tenantId, triggerId));
+        if (trigger.isMember()) {
+            deletes.add(memberKey(tenantId, trigger.getMemberOf()), deleteMemberTrigger.bind(tenantId,
+                    trigger.getMemberOf(), triggerId));
+        }
+    }
+
+    /*
+        Partition keys of the definitions writes, the triggers, actions, conditions and dampenings tables are
+        partitioned by tenant
+     */
+    private static String tenantKey(String tenantId) {
+        return "tenant|" + tenantId;
+    }
+
+    private static String tagKey(String tenantId, TagType type, String name) {
+        return "tag|" + tenantId + "|" + type.name() + "|" + name;
+    }
+
+    private static String memberKey(String tenantId, String groupId) {
+        return "member|" + tenantId + "|" + groupId;
     }
 
     @Override
@@ -825,14 +725,6 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         return member;
     }
 
-    private void deleteTriggerActions(String tenantId, String triggerId) throws Exception {
-        PreparedStatement deleteTriggerActions = CassStatement.get(session, CassStatement.DELETE_TRIGGER_ACTIONS);
-        if (deleteTriggerActions == null) {
-            throw new RuntimeException("updateTrigger PreparedStatement is null");
-        }
-        session.execute(deleteTriggerActions.bind(tenantId, triggerId));
-    }
-
     @Override
     public Trigger getTrigger(String tenantId, String triggerId) throws Exception {
         if (isEmpty(tenantId)) {
@@ -841,6 +733,11 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         if (isEmpty(triggerId)) {
             throw new IllegalArgumentException("TriggerId must be not null");
         }
+        return definitionsCache.get(DefinitionsCache.triggerKey(tenantId, triggerId),
+                () -> loadTrigger(tenantId, triggerId));
+    }
+
+    private Trigger loadTrigger(String tenantId, String triggerId) throws Exception {
         session = CassCluster.getSession();
         PreparedStatement selectTrigger = CassStatement.get(session, CassStatement.SELECT_TRIGGER);
         if (selectTrigger == null) {
@@ -870,6 +767,14 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         return selectTriggers(null);
     }
 
+    /*
+        The trigger queries are blocking, they run on the query threads
+     */
+    @Override
+    public CompletionStage<Page<Trigger>> getTriggersAsync(String tenantId, TriggersCriteria criteria, Pager pager) {
+        return AsyncQueries.submit(() -> getTriggers(tenantId, criteria, pager));
+    }
+
     // TODO (jshaughn) The DB-Level filtering approach implemented below is a best-practice for dealing
     // with Cassandra.  It's basically a series of queries, one for each filter, with a progressive
     // intersection of the resulting ID set.
@@ -939,6 +844,7 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
                         triggers.add(mapTrigger(row));
                     }
                 });
+                selectTriggersActions(triggers);
 
             } else {
                 triggers.addAll(selectTriggers(tenantId));
@@ -1005,10 +911,9 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
                     selectTriggers.bind() :
                     selectTriggers.bind(tenantId));
             for (Row row : rsTriggers) {
-                Trigger trigger = mapTrigger(row);
-                selectTriggerActions(trigger);
-                triggers.add(trigger);
+                triggers.add(mapTrigger(row));
             }
+            selectTriggersActions(triggers);
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
@@ -1120,6 +1025,7 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
                     }
                 });
             }
+            selectTriggersActions(triggers);
 
             return triggers;
 
@@ -1129,33 +1035,40 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         }
     }
 
-    // This impl is not efficient. It actually pulls all triggers for the tenant and then filters out the
-    // triggers that are not the requested members.  To make this more efficient we'd likely need to
-    // create a new member_triggers table which duplicated the triggers table, and where we would maintain
-    // a replica entry for each member trigger.  We'd need a primary key like ((tenantId,groupId),memberId) and
-    // then we could query for member triggers directly.  Because this method is expected to be called
-    // rarely, and because the trigger population is not expected to be huge (likely maxing out in the thousands),
-    // we may just get away with this dumb impl.
+    /*
+        The ids of the members are read from the member_triggers lookup, then the member triggers are read by id in
+        concurrent queries of MEMBERS_FETCH ids each.
+     */
     @Override
     public Collection<Trigger> getMemberTriggers(String tenantId, String groupId, boolean includeOrphans)
             throws Exception {
 
         session = CassCluster.getSession();
-        PreparedStatement selectTriggersTenant = CassStatement.get(session, CassStatement.SELECT_TRIGGERS_TENANT);
-        if (null == selectTriggersTenant) {
-            throw new RuntimeException("selectTriggersMemberOf PreparedStatement is null");
+        PreparedStatement selectMemberTriggers = CassStatement.get(session, CassStatement.SELECT_MEMBER_TRIGGERS);
+        PreparedStatement selectTriggersIds = CassStatement.get(session, CassStatement.SELECT_TRIGGERS_IDS);
+        if (null == selectMemberTriggers || null == selectTriggersIds) {
+            throw new RuntimeException("selectMemberTriggers PreparedStatement is null");
         }
 
         List<Trigger> triggers = new ArrayList<>();
         try {
-            ResultSet rsTriggers = session.execute(selectTriggersTenant.bind(tenantId));
-            for (Row row : rsTriggers) {
-                if (groupId.equals(row.getString("memberOf")) && (includeOrphans || !row.getBool("orphan"))) {
-                    Trigger trigger = mapTrigger(row);
-                    selectTriggerActions(trigger);
-                    triggers.add(trigger);
+            List<String> memberIds = new ArrayList<>();
+            for (Row row : session.execute(selectMemberTriggers.bind(tenantId, groupId))) {
+                memberIds.add(row.getString("memberId"));
+            }
+            List<ResultSetFuture> futures = new ArrayList<>();
+            for (int i = 0; i < memberIds.size(); i += MEMBERS_FETCH) {
+                List<String> ids = memberIds.subList(i, Math.min(i + MEMBERS_FETCH, memberIds.size()));
+                futures.add(session.executeAsync(selectTriggersIds.bind(tenantId, new ArrayList<>(ids))));
+            }
+            for (ResultSet rsTriggers : Futures.allAsList(futures).get()) {
+                for (Row row : rsTriggers) {
+                    if (groupId.equals(row.getString("memberOf")) && (includeOrphans || !row.getBool("orphan"))) {
+                        triggers.add(mapTrigger(row));
+                    }
                 }
             }
+            selectTriggersActions(triggers);
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
@@ -1180,6 +1093,64 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         }
     }
 
+    /*
+        The actions of some triggers of a tenant, read by trigger id
+     */
+    private void selectTriggerActions(String tenantId, List<Trigger> triggers) throws Exception {
+        PreparedStatement selectTriggerActions = CassStatement.get(session, CassStatement.SELECT_TRIGGER_ACTIONS);
+        if (selectTriggerActions == null) {
+            throw new RuntimeException("selectTriggerActions PreparedStatement is null");
+        }
+        try {
+            List<ResultSetFuture> futures = triggers.stream().map(trigger ->
+                    session.executeAsync(selectTriggerActions.bind(tenantId, trigger.getId())))
+                    .collect(Collectors.toList());
+            List<ResultSet> rsTriggerActions = Futures.allAsList(futures).get();
+            for (int i = 0; i < triggers.size(); i++) {
+                for (Row row : rsTriggerActions.get(i)) {
+                    triggers.get(i).addActions(row.getString("actionPlugin"), row.getSet("actions", String.class));
+                }
+            }
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+    }
+
+    /*
+        triggers_actions is partitioned by tenantId, the actions of a set of triggers are read with one query per
+        tenant instead of one query per trigger.
+     */
+    private void selectTriggersActions(Collection<Trigger> triggers) throws Exception {
+        if (triggers.isEmpty()) {
+            return;
+        }
+        PreparedStatement selectTriggerActionsTenant = CassStatement.get(session,
+                CassStatement.SELECT_TRIGGER_ACTIONS_TENANT);
+        if (selectTriggerActionsTenant == null) {
+            throw new RuntimeException("selectTriggerActionsTenant PreparedStatement is null");
+        }
+        Map<String, Map<String, Trigger>> triggersByTenant = new HashMap<>();
+        for (Trigger trigger : triggers) {
+            triggersByTenant.computeIfAbsent(trigger.getTenantId(), tenantId -> new HashMap<>())
+                    .put(trigger.getId(), trigger);
+        }
+        List<String> tenantIds = new ArrayList<>(triggersByTenant.keySet());
+        List<ResultSetFuture> futures = tenantIds.stream()
+                .map(tenantId -> session.executeAsync(selectTriggerActionsTenant.bind(tenantId)))
+                .collect(Collectors.toList());
+        List<ResultSet> rsTriggerActions = Futures.allAsList(futures).get();
+        for (int i = 0; i < tenantIds.size(); i++) {
+            Map<String, Trigger> tenantTriggers = triggersByTenant.get(tenantIds.get(i));
+            for (Row row : rsTriggerActions.get(i)) {
+                Trigger trigger = tenantTriggers.get(row.getString("triggerId"));
+                if (trigger != null) {
+                    trigger.addActions(row.getString("actionPlugin"), row.getSet("actions", String.class));
+                }
+            }
+        }
+    }
+
     private Trigger mapTrigger(Row row) {
         Trigger trigger = new Trigger();
 
@@ -1285,7 +1256,7 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         return member;
     }
 
-    private Condition getMemberCondition(Trigger member, Condition groupCondition, Map<String, String> dataIdMap) {
+    static Condition getMemberCondition(Trigger member, Condition groupCondition, Map<String, String> dataIdMap) {
         Condition newCondition = null;
         switch (groupCondition.getType()) {
             case AVAILABILITY:
@@ -1356,6 +1327,202 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         return newCondition;
     }
 
+    @Override
+    public int importTriggers(String tenantId, Iterator<FullTrigger> fullTriggers) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (fullTriggers == null) {
+            throw new IllegalArgumentException("FullTriggers must be not null");
+        }
+
+        Map<String, Trigger> stored = new HashMap<>();
+        for (Trigger trigger : selectTriggers(tenantId)) {
+            stored.put(trigger.getId(), trigger);
+        }
+        Set<String> imported = new LinkedHashSet<>();
+        Set<Type> changes = EnumSet.noneOf(Type.class);
+        try {
+            // A trigger repeated on a batch is imported once, with its last definition
+            Map<String, FullTrigger> batch = new LinkedHashMap<>();
+            while (fullTriggers.hasNext()) {
+                FullTrigger fullTrigger = fullTriggers.next();
+                FullTriggers.prepare(tenantId, fullTrigger);
+                batch.put(fullTrigger.getTrigger().getId(), fullTrigger);
+                if (batch.size() == importBatch || !fullTriggers.hasNext()) {
+                    importTriggers(tenantId, batch.values(), stored, changes);
+                    imported.addAll(batch.keySet());
+                    batch.clear();
+                }
+            }
+        } finally {
+            /*
+                Triggers are loaded and listeners notified once for the whole import, also for the batches imported
+                before a failure
+             */
+            if (!imported.isEmpty()) {
+                if (initialized && null != alertsEngine) {
+                    alertsEngine.reloadTriggers(tenantId, imported);
+                }
+                notifyListeners(changes);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Imported " + imported.size() + " triggers on tenant " + tenantId);
+        }
+        return imported.size();
+    }
+
+    /*
+        The prior definitions of the replaced triggers are deleted first, then all the definitions of the batch are
+        written concurrently.
+     */
+    private void importTriggers(String tenantId, Collection<FullTrigger> batch, Map<String, Trigger> stored,
+            Set<Type> changes) throws Exception {
+        session = CassCluster.getSession();
+        PreparedStatement deleteDampenings = CassStatement.get(session, CassStatement.DELETE_DAMPENINGS);
+        PreparedStatement deleteConditions = CassStatement.get(session, CassStatement.DELETE_CONDITIONS);
+        PreparedStatement deleteActions = CassStatement.get(session, CassStatement.DELETE_TRIGGER_ACTIONS);
+        PreparedStatement deleteTag = CassStatement.get(session, CassStatement.DELETE_TAG);
+        PreparedStatement deleteMemberTrigger = CassStatement.get(session, CassStatement.DELETE_MEMBER_TRIGGER);
+        PreparedStatement insertAction = CassStatement.get(session, CassStatement.INSERT_ACTION);
+        PreparedStatement insertTrigger = CassStatement.get(session, CassStatement.INSERT_TRIGGER);
+        PreparedStatement insertTriggerActions = CassStatement.get(session, CassStatement.INSERT_TRIGGER_ACTIONS);
+        PreparedStatement insertTag = CassStatement.get(session, CassStatement.INSERT_TAG);
+        PreparedStatement insertDampening = CassStatement.get(session, CassStatement.INSERT_DAMPENING);
+        PreparedStatement insertMemberTrigger = CassStatement.get(session, CassStatement.INSERT_MEMBER_TRIGGER);
+        if (deleteDampenings == null || deleteConditions == null || deleteActions == null || deleteTag == null
+                || deleteMemberTrigger == null || insertAction == null || insertTrigger == null
+                || insertTriggerActions == null || insertTag == null || insertDampening == null
+                || insertMemberTrigger == null) {
+            throw new RuntimeException("import*Triggers PreparedStatement is null");
+        }
+
+        List<String> keys = new ArrayList<>();
+        try {
+            List<ResultSetFuture> futures = new ArrayList<>();
+            for (FullTrigger fullTrigger : batch) {
+                Trigger prior = stored.get(fullTrigger.getTrigger().getId());
+                if (prior == null) {
+                    continue;
+                }
+                futures.add(session.executeAsync(deleteDampenings.bind(tenantId, prior.getId())));
+                futures.add(session.executeAsync(deleteConditions.bind(tenantId, prior.getId())));
+                futures.add(session.executeAsync(deleteActions.bind(tenantId, prior.getId())));
+                if (prior.isMember()) {
+                    futures.add(session.executeAsync(deleteMemberTrigger.bind(tenantId, prior.getMemberOf(),
+                            prior.getId())));
+                }
+                if (!isEmpty(prior.getTags())) {
+                    for (Map.Entry<String, String> tag : prior.getTags().entrySet()) {
+                        futures.add(session.executeAsync(deleteTag.bind(tenantId, TagType.TRIGGER.name(),
+                                tag.getKey(), tag.getValue(), prior.getId())));
+                    }
+                }
+            }
+            Futures.allAsList(futures).get();
+
+            futures.clear();
+            for (FullTrigger fullTrigger : batch) {
+                Trigger trigger = fullTrigger.getTrigger();
+                for (Map<String, String> action : fullTrigger.getActions()) {
+                    String actionPlugin = action.get("actionPlugin");
+                    String actionId = action.get("actionId");
+                    futures.add(session.executeAsync(insertAction.bind(tenantId, actionPlugin, actionId, action)));
+                    keys.add(DefinitionsCache.actionKey(tenantId, actionPlugin, actionId));
+                }
+                futures.add(session.executeAsync(bindTrigger(insertTrigger, trigger)));
+                if (trigger.isMember()) {
+                    futures.add(session.executeAsync(insertMemberTrigger.bind(tenantId, trigger.getMemberOf(),
+                            trigger.getId())));
+                }
+                if (trigger.getActions() != null) {
+                    for (Map.Entry<String, Set<String>> pluginActions : trigger.getActions().entrySet()) {
+                        if (!isEmpty(pluginActions.getValue())) {
+                            futures.add(session.executeAsync(insertTriggerActions.bind(tenantId, trigger.getId(),
+                                    pluginActions.getKey(), pluginActions.getValue())));
+                        }
+                    }
+                }
+                if (!isEmpty(trigger.getTags())) {
+                    for (Map.Entry<String, String> tag : trigger.getTags().entrySet()) {
+                        futures.add(session.executeAsync(insertTag.bind(tenantId, TagType.TRIGGER.name(),
+                                tag.getKey(), tag.getValue(), trigger.getId())));
+                    }
+                }
+                futures.addAll(insertConditions(fullTrigger.getConditions()));
+                for (Dampening dampening : fullTrigger.getDampenings()) {
+                    futures.add(session.executeAsync(bindDampening(insertDampening, dampening)));
+                }
+                keys.addAll(DefinitionsCache.triggerKeys(tenantId, trigger.getId()));
+            }
+            Futures.allAsList(futures).get();
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+
+        invalidate(keys);
+
+        for (FullTrigger fullTrigger : batch) {
+            Trigger trigger = fullTrigger.getTrigger();
+            Trigger prior = stored.put(trigger.getId(), trigger);
+            changes.add(prior == null ? Type.TRIGGER_CREATE : Type.TRIGGER_UPDATE);
+            if (prior != null || !fullTrigger.getConditions().isEmpty()) {
+                changes.add(Type.CONDITION_CHANGE);
+            }
+            if (prior != null || !fullTrigger.getDampenings().isEmpty()) {
+                changes.add(Type.DAMPENING_CHANGE);
+            }
+        }
+    }
+
+    @Override
+    public Collection<FullTrigger> getFullTriggers(String tenantId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        return FullTriggers.assemble(selectTriggers(tenantId), getConditions(tenantId), getDampenings(tenantId),
+                (actionPlugin, actionId) -> getAction(tenantId, actionPlugin, actionId));
+    }
+
+    /*
+        The triggers of the tenant are paged by the driver, the conditions, dampenings and actions are read by trigger
+        id for each chunk of triggers.
+     */
+    @Override
+    public Iterator<FullTrigger> iterateFullTriggers(String tenantId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        session = CassCluster.getSession();
+        PreparedStatement selectTriggersTenant = CassStatement.get(session, CassStatement.SELECT_TRIGGERS_TENANT);
+        if (null == selectTriggersTenant) {
+            throw new RuntimeException("selectTriggersTenant PreparedStatement is null");
+        }
+        Iterator<Row> rows;
+        try {
+            rows = session.execute(selectTriggersTenant.bind(tenantId).setFetchSize(ResultIterators.CHUNK_SIZE))
+                    .iterator();
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+        return ResultIterators.chunked(rows, chunk -> {
+            List<Trigger> triggers = new ArrayList<>(chunk.size());
+            List<String> triggerIds = new ArrayList<>(chunk.size());
+            for (Row row : chunk) {
+                Trigger trigger = mapTrigger(row);
+                triggers.add(trigger);
+                triggerIds.add(trigger.getId());
+            }
+            selectTriggerActions(tenantId, triggers);
+            return FullTriggers.assemble(triggers, getConditions(tenantId, triggerIds),
+                    getDampenings(tenantId, triggerIds),
+                    (actionPlugin, actionId) -> getAction(tenantId, actionPlugin, actionId));
+        });
+    }
+
     @Override
     public Dampening addDampening(String tenantId, Dampening dampening) throws Exception {
         if (isEmpty(tenantId)) {
@@ -1403,15 +1570,18 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             throw new IllegalArgumentException("Trigger [" + tenantId + "/" + groupId + "] is not a group trigger.");
         }
 
-        Collection<Trigger> memberTriggers = getMemberTriggers(tenantId, groupId, false);
+        List<Trigger> triggers = new ArrayList<>(getMemberTriggers(tenantId, groupId, false));
+        triggers.add(groupTrigger);
 
-        for (Trigger member : memberTriggers) {
-            dampening.setTriggerId(member.getId());
-            addDampening(dampening);
+        PreparedStatement insertDampening = CassStatement.get(session, CassStatement.INSERT_DAMPENING);
+        if (insertDampening == null) {
+            throw new RuntimeException("insertDampening PreparedStatement is null");
         }
+        writeTriggers(triggers, (trigger, deletes, inserts) -> inserts.add(tenantKey(tenantId),
+                bindDampening(insertDampening, copyDampening(dampening, trigger.getId()))));
+        groupDampeningChanged(tenantId, triggers);
 
-        dampening.setTriggerId(groupTrigger.getId());
-        return addDampening(dampening);
+        return dampening;
     }
 
     private Dampening addDampening(Dampening dampening) throws Exception {
@@ -1422,14 +1592,14 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         }
 
         try {
-            session.execute(insertDampening.bind(dampening.getTriggerId(), dampening.getTriggerMode().name(),
-                    dampening.getType().name(), dampening.getEvalTrueSetting(), dampening.getEvalTotalSetting(),
-                    dampening.getEvalTimeSetting(), dampening.getDampeningId(), dampening.getTenantId()));
+            session.execute(bindDampening(insertDampening, dampening));
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
 
+        invalidate(DefinitionsCache.dampeningsKeys(dampening.getTenantId(), dampening.getTriggerId()));
+
         if (initialized && null != alertsEngine) {
             alertsEngine.reloadTrigger(dampening.getTenantId(), dampening.getTriggerId());
         }
@@ -1439,6 +1609,46 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         return dampening;
     }
 
+    private BoundStatement bindDampening(PreparedStatement insertDampening, Dampening dampening) {
+        return insertDampening.bind(dampening.getTriggerId(), dampening.getTriggerMode().name(),
+                dampening.getType().name(), dampening.getEvalTrueSetting(), dampening.getEvalTotalSetting(),
+                dampening.getEvalTimeSetting(), dampening.getDampeningId(), dampening.getTenantId());
+    }
+
+    private BoundStatement bindUpdateDampening(Dampening dampening) {
+        PreparedStatement updateDampeningId = CassStatement.get(session, CassStatement.UPDATE_DAMPENING_ID);
+        if (updateDampeningId == null) {
+            throw new RuntimeException("updateDampeningId PreparedStatement is null");
+        }
+        return updateDampeningId.bind(dampening.getType().name(), dampening.getEvalTrueSetting(),
+                dampening.getEvalTotalSetting(), dampening.getEvalTimeSetting(), dampening.getTenantId(),
+                dampening.getTriggerId(), dampening.getTriggerMode().name(), dampening.getDampeningId());
+    }
+
+    private BoundStatement bindDeleteDampening(Dampening dampening) {
+        PreparedStatement deleteDampeningId = CassStatement.get(session, CassStatement.DELETE_DAMPENING_ID);
+        if (deleteDampeningId == null) {
+            throw new RuntimeException("deleteDampeningId PreparedStatement is null");
+        }
+        return deleteDampeningId.bind(dampening.getTenantId(), dampening.getTriggerId(),
+                dampening.getTriggerMode().name(), dampening.getDampeningId());
+    }
+
+    private static Dampening copyDampening(Dampening dampening, String triggerId) {
+        Dampening copy = new Dampening(triggerId, dampening.getTriggerMode(), dampening.getType(),
+                dampening.getEvalTrueSetting(), dampening.getEvalTotalSetting(), dampening.getEvalTimeSetting());
+        copy.setTenantId(dampening.getTenantId());
+        return copy;
+    }
+
+    private void groupDampeningChanged(String tenantId, List<Trigger> triggers) {
+        List<String> keys = new ArrayList<>();
+        for (Trigger trigger : triggers) {
+            keys.addAll(DefinitionsCache.dampeningsKeys(tenantId, trigger.getId()));
+        }
+        triggersChanged(tenantId, triggers, keys, EnumSet.of(Type.DAMPENING_CHANGE));
+    }
+
     @Override
     public void removeDampening(String tenantId, String dampeningId) throws Exception {
         if (isEmpty(tenantId)) {
@@ -1498,35 +1708,26 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             throw new IllegalArgumentException("Trigger [" + tenantId + "/" + groupId + "] is not a group trigger.");
         }
 
-        Collection<Trigger> memberTriggers = getMemberTriggers(tenantId, groupId, false);
-
-        for (Trigger member : memberTriggers) {
-            Collection<Dampening> dampenings = getTriggerDampenings(tenantId, member.getId(),
-                    dampening.getTriggerMode());
-            if (dampenings.isEmpty()) {
-                continue;
-            }
-            removeDampening(dampenings.iterator().next());
-        }
+        List<Trigger> triggers = new ArrayList<>(getMemberTriggers(tenantId, groupId, false));
+        triggers.add(groupTrigger);
 
-        removeDampening(dampening);
+        // The dampening of a trigger for a mode has a well known id, the one of the member needs no lookup
+        writeTriggers(triggers, (trigger, deletes, inserts) -> deletes.add(tenantKey(tenantId),
+                bindDeleteDampening(copyDampening(dampening, trigger.getId()))));
+        groupDampeningChanged(tenantId, triggers);
     }
 
     private void removeDampening(Dampening dampening) throws Exception {
         session = CassCluster.getSession();
-        PreparedStatement deleteDampeningId = CassStatement.get(session, CassStatement.DELETE_DAMPENING_ID);
-        if (deleteDampeningId == null) {
-            throw new RuntimeException("deleteDampeningId PreparedStatement is null");
-        }
-
         try {
-            session.execute(deleteDampeningId.bind(dampening.getTenantId(), dampening.getTriggerId(),
-                    dampening.getTriggerMode().name(), dampening.getDampeningId()));
+            session.execute(bindDeleteDampening(dampening));
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
 
+        invalidate(DefinitionsCache.dampeningsKeys(dampening.getTenantId(), dampening.getTriggerId()));
+
         if (initialized && null != alertsEngine) {
             alertsEngine.reloadTrigger(dampening.getTenantId(), dampening.getTriggerId());
         }
@@ -1581,33 +1782,27 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             throw new IllegalArgumentException("Trigger [" + tenantId + "/" + groupId + "] is not a group trigger.");
         }
 
-        Collection<Trigger> memberTriggers = getMemberTriggers(tenantId, groupId, false);
+        List<Trigger> triggers = new ArrayList<>(getMemberTriggers(tenantId, groupId, false));
+        triggers.add(groupTrigger);
 
-        for (Trigger member : memberTriggers) {
-            dampening.setTriggerId(member.getId());
-            updateDampening(dampening);
-        }
+        writeTriggers(triggers, (trigger, deletes, inserts) -> inserts.add(tenantKey(tenantId),
+                bindUpdateDampening(copyDampening(dampening, trigger.getId()))));
+        groupDampeningChanged(tenantId, triggers);
 
-        dampening.setTriggerId(groupTrigger.getId());
-        return updateDampening(dampening);
+        return dampening;
     }
 
     private Dampening updateDampening(Dampening dampening) throws Exception {
         session = CassCluster.getSession();
-        PreparedStatement updateDampeningId = CassStatement.get(session, CassStatement.UPDATE_DAMPENING_ID);
-        if (updateDampeningId == null) {
-            throw new RuntimeException("updateDampeningId PreparedStatement is null");
-        }
-
         try {
-            session.execute(updateDampeningId.bind(dampening.getType().name(), dampening.getEvalTrueSetting(),
-                    dampening.getEvalTotalSetting(), dampening.getEvalTimeSetting(), dampening.getTenantId(),
-                    dampening.getTriggerId(), dampening.getTriggerMode().name(), dampening.getDampeningId()));
+            session.execute(bindUpdateDampening(dampening));
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
 
+        invalidate(DefinitionsCache.dampeningsKeys(dampening.getTenantId(), dampening.getTriggerId()));
+
         if (initialized && null != alertsEngine) {
             alertsEngine.reloadTrigger(dampening.getTenantId(), dampening.getTriggerId());
         }
@@ -1655,6 +1850,12 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         if (isEmpty(triggerId)) {
             throw new IllegalArgumentException("TriggerId must be not null");
         }
+        return definitionsCache.get(DefinitionsCache.dampeningsKey(tenantId, triggerId, triggerMode),
+                () -> loadTriggerDampenings(tenantId, triggerId, triggerMode));
+    }
+
+    private Collection<Dampening> loadTriggerDampenings(String tenantId, String triggerId, Mode triggerMode)
+            throws Exception {
         session = CassCluster.getSession();
         PreparedStatement selectTriggerDampenings = CassStatement
                 .get(session, CassStatement.SELECT_TRIGGER_DAMPENINGS);
@@ -1721,6 +1922,35 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         return dampenings;
     }
 
+    @Override
+    public Collection<Dampening> getDampenings(String tenantId, Collection<String> triggerIds) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (null == triggerIds) {
+            throw new IllegalArgumentException("TriggerIds must be not null");
+        }
+        session = CassCluster.getSession();
+        PreparedStatement selectTriggerDampenings = CassStatement
+                .get(session, CassStatement.SELECT_TRIGGER_DAMPENINGS);
+        if (selectTriggerDampenings == null) {
+            throw new RuntimeException("selectTriggerDampenings PreparedStatement is null");
+        }
+        List<Dampening> dampenings = new ArrayList<>();
+        try {
+            List<ResultSetFuture> futures = triggerIds.stream().map(id ->
+                    session.executeAsync(selectTriggerDampenings.bind(tenantId, id)))
+                    .collect(Collectors.toList());
+            for (ResultSet rsDampenings : Futures.allAsList(futures).get()) {
+                mapDampenings(rsDampenings, dampenings);
+            }
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+        return dampenings;
+    }
+
     private void mapDampenings(ResultSet rsDampenings, List<Dampening> dampenings) throws Exception {
         for (Row row : rsDampenings) {
             Dampening dampening = mapDampening(row);
@@ -1841,35 +2071,41 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             }
         }
 
-        // ensure conditions are set properly
-        for (Condition groupCondition : groupConditions) {
-            groupCondition.setTenantId(group.getTenantId());
-            groupCondition.setTriggerId(group.getId());
-            groupCondition.setTriggerMode(triggerMode);
-        }
-
-        // set conditions on the members
-        Map<String, String> dataIdMap = new HashMap<>();
-        Collection<Condition> memberConditions = new ArrayList<>(groupConditions.size());
-        for (Trigger member : memberTriggers) {
-            dataIdMap.clear();
-            memberConditions.clear();
-            for (Map.Entry<String, Map<String, String>> entry : dataIdMemberMap.entrySet()) {
-                dataIdMap.put(entry.getKey(), entry.getValue().get(member.getId()));
-            }
+        // ensure conditions are set properly, the member conditions are numbered as the group ones
+        setConditionSet(tenantId, groupId, triggerMode, groupConditions);
 
-            for (Condition groupCondition : groupConditions) {
-                Condition memberCondition = getMemberCondition(member, groupCondition, dataIdMap);
-                memberConditions.add(memberCondition);
+        // set conditions on the members and on the group trigger
+        List<Trigger> triggers = new ArrayList<>(memberTriggers);
+        triggers.add(group);
+        PreparedStatement deleteConditionsMode = CassStatement.get(session, CassStatement.DELETE_CONDITIONS_MODE);
+        if (deleteConditionsMode == null) {
+            throw new RuntimeException("deleteConditionsMode PreparedStatement is null");
+        }
+        writeTriggers(triggers, (trigger, deletes, inserts) -> {
+            Collection<Condition> conditions = groupConditions;
+            if (trigger != group) {
+                Map<String, String> dataIdMap = new HashMap<>();
+                for (Map.Entry<String, Map<String, String>> entry : dataIdMemberMap.entrySet()) {
+                    dataIdMap.put(entry.getKey(), entry.getValue().get(trigger.getId()));
+                }
+                conditions = new ArrayList<>(groupConditions.size());
+                for (Condition groupCondition : groupConditions) {
+                    conditions.add(getMemberCondition(trigger, groupCondition, dataIdMap));
+                }
             }
-            Collection memberConditionSet = setConditions(tenantId, member.getId(), triggerMode, memberConditions);
-            if (log.isDebugEnabled()) {
-                log.debug("Member condition set: " + memberConditionSet);
+            deletes.add(tenantKey(tenantId), deleteConditionsMode.bind(tenantId, trigger.getId(), triggerMode.name()));
+            for (Statement insertCondition : bindConditions(conditions)) {
+                inserts.add(tenantKey(tenantId), insertCondition);
             }
+        });
+
+        List<String> keys = new ArrayList<>();
+        for (Trigger trigger : triggers) {
+            keys.addAll(DefinitionsCache.conditionsKeys(tenantId, trigger.getId()));
         }
+        triggersChanged(tenantId, triggers, keys, EnumSet.of(Type.CONDITION_CHANGE));
 
-        // set conditions on the group trigger
-        return setConditions(tenantId, groupId, triggerMode, groupConditions);
+        return groupConditions;
     }
 
     private Collection<Condition> addCondition(Condition condition) throws Exception {
@@ -2021,6 +2257,49 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             throw new IllegalArgumentException("Conditions must be not null");
         }
         session = CassCluster.getSession();
+        // Get rid of the prior condition set
+        removeConditions(tenantId, triggerId, triggerMode);
+
+        // Now add the new condition set
+        setConditionSet(tenantId, triggerId, triggerMode, conditions);
+        try {
+            Futures.allAsList(insertConditions(conditions)).get();
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+
+        invalidate(DefinitionsCache.conditionsKeys(tenantId, triggerId));
+
+        if (initialized && alertsEngine != null) {
+            alertsEngine.reloadTrigger(tenantId, triggerId);
+        }
+
+        notifyListeners(DefinitionsEvent.Type.CONDITION_CHANGE);
+
+        return conditions;
+    }
+
+    static void setConditionSet(String tenantId, String triggerId, Mode triggerMode,
+            Collection<Condition> conditions) {
+        int i = 0;
+        for (Condition cond : conditions) {
+            cond.setTenantId(tenantId);
+            cond.setTriggerId(triggerId);
+            cond.setTriggerMode(triggerMode);
+            cond.setConditionSetSize(conditions.size());
+            cond.setConditionSetIndex(++i);
+        }
+    }
+
+    /*
+        Start the inserts of conditions already numbered into their condition set, the caller waits for the futures
+     */
+    private List<ResultSetFuture> insertConditions(Collection<Condition> conditions) {
+        return bindConditions(conditions).stream().map(session::executeAsync).collect(Collectors.toList());
+    }
+
+    private List<Statement> bindConditions(Collection<Condition> conditions) {
         PreparedStatement insertConditionAvailability = CassStatement.get(session,
                 CassStatement.INSERT_CONDITION_AVAILABILITY);
         PreparedStatement insertConditionCompare = CassStatement.get(session, CassStatement.INSERT_CONDITION_COMPARE);
@@ -2045,102 +2324,76 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
                 || insertConditionThresholdRange == null) {
             throw new RuntimeException("insert*Condition PreparedStatement is null");
         }
-        // Get rid of the prior condition set
-        removeConditions(tenantId, triggerId, triggerMode);
-
-        // Now add the new condition set
-        try {
-            List<ResultSetFuture> futures = new ArrayList<>();
-
-            int i = 0;
-            for (Condition cond : conditions) {
-                cond.setTenantId(tenantId);
-                cond.setTriggerId(triggerId);
-                cond.setTriggerMode(triggerMode);
-                cond.setConditionSetSize(conditions.size());
-                cond.setConditionSetIndex(++i);
-
-                switch (cond.getType()) {
-                    case AVAILABILITY:
-                        AvailabilityCondition aCond = (AvailabilityCondition) cond;
-                        futures.add(session.executeAsync(insertConditionAvailability.bind(aCond.getTenantId(),
-                                aCond.getTriggerId(), aCond.getTriggerMode().name(), aCond.getContext(),
-                                aCond.getConditionSetSize(), aCond.getConditionSetIndex(),
-                                aCond.getConditionId(), aCond.getDataId(), aCond.getOperator().name())));
-                        break;
-                    case COMPARE:
-                        CompareCondition cCond = (CompareCondition) cond;
-                        futures.add(session.executeAsync(insertConditionCompare.bind(cCond.getTenantId(),
-                                cCond.getTriggerId(), cCond.getTriggerMode().name(), cCond.getContext(),
-                                cCond.getConditionSetSize(), cCond.getConditionSetIndex(),
-                                cCond.getConditionId(), cCond.getDataId(), cCond.getOperator().name(),
-                                cCond.getData2Id(),
-                                cCond.getData2Multiplier())));
-                        break;
-                    case EVENT:
-                        EventCondition evCond = (EventCondition) cond;
-                        futures.add(session.executeAsync(insertConditionEvent.bind(evCond.getTenantId(),
-                                evCond.getTriggerId(), evCond.getTriggerMode().name(), evCond.getContext(),
-                                evCond.getConditionSetSize(), evCond.getConditionSetIndex(), evCond.getConditionId(),
-                                evCond.getDataId(), evCond.getExpression())));
-                        break;
-                    case EXTERNAL:
-                        ExternalCondition eCond = (ExternalCondition) cond;
-                        futures.add(session.executeAsync(insertConditionExternal.bind(eCond.getTenantId(),
-                                eCond.getTriggerId(), eCond.getTriggerMode().name(), eCond.getContext(),
-                                eCond.getConditionSetSize(), eCond.getConditionSetIndex(), eCond.getConditionId(),
-                                eCond.getDataId(), eCond.getSystemId(), eCond.getExpression())));
-                        break;
-                    case RANGE:
-                        ThresholdRangeCondition rCond = (ThresholdRangeCondition) cond;
-                        futures.add(session.executeAsync(insertConditionThresholdRange.bind(rCond.getTenantId(),
-                                rCond.getTriggerId(), rCond.getTriggerMode().name(), rCond.getContext(),
-                                rCond.getConditionSetSize(), rCond.getConditionSetIndex(), rCond.getConditionId(),
-                                rCond.getDataId(), rCond.getOperatorLow().name(), rCond.getOperatorHigh().name(),
-                                rCond.getThresholdLow(), rCond.getThresholdHigh(), rCond.isInRange())));
-                        break;
-                    case RATE:
-                        RateCondition rateCond = (RateCondition) cond;
-                        futures.add(session.executeAsync(insertConditionRate.bind(rateCond.getTenantId(),
-                                rateCond.getTriggerId(), rateCond.getTriggerMode().name(), rateCond.getContext(),
-                                rateCond.getConditionSetSize(), rateCond.getConditionSetIndex(),
-                                rateCond.getConditionId(), rateCond.getDataId(), rateCond.getDirection(),
-                                rateCond.getPeriod(), rateCond.getOperator().name(), rateCond.getThreshold())));
-                        break;
-                    case STRING:
-                        StringCondition sCond = (StringCondition) cond;
-                        futures.add(session.executeAsync(insertConditionString.bind(sCond.getTenantId(),
-                                sCond.getTriggerId(), sCond.getTriggerMode().name(), sCond.getContext(),
-                                sCond.getConditionSetSize(), sCond.getConditionSetIndex(), sCond.getConditionId(),
-                                sCond.getDataId(), sCond.getOperator().name(), sCond.getPattern(),
-                                sCond.isIgnoreCase())));
-                        break;
-                    case THRESHOLD:
-                        ThresholdCondition tCond = (ThresholdCondition) cond;
-                        futures.add(session.executeAsync(insertConditionThreshold.bind(tCond.getTenantId(),
-                                tCond.getTriggerId(), tCond.getTriggerMode().name(), tCond.getContext(),
-                                tCond.getConditionSetSize(), tCond.getConditionSetIndex(),
-                                tCond.getConditionId(), tCond.getDataId(), tCond.getOperator().name(),
-                                tCond.getThreshold())));
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Unexpected ConditionType: " + cond);
-                }
+        List<Statement> statements = new ArrayList<>();
+        for (Condition cond : conditions) {
+            switch (cond.getType()) {
+                case AVAILABILITY:
+                    AvailabilityCondition aCond = (AvailabilityCondition) cond;
+                    statements.add(insertConditionAvailability.bind(aCond.getTenantId(),
+                            aCond.getTriggerId(), aCond.getTriggerMode().name(), aCond.getContext(),
+                            aCond.getConditionSetSize(), aCond.getConditionSetIndex(),
+                            aCond.getConditionId(), aCond.getDataId(), aCond.getOperator().name()));
+                    break;
+                case COMPARE:
+                    CompareCondition cCond = (CompareCondition) cond;
+                    statements.add(insertConditionCompare.bind(cCond.getTenantId(),
+                            cCond.getTriggerId(), cCond.getTriggerMode().name(), cCond.getContext(),
+                            cCond.getConditionSetSize(), cCond.getConditionSetIndex(),
+                            cCond.getConditionId(), cCond.getDataId(), cCond.getOperator().name(),
+                            cCond.getData2Id(),
+                            cCond.getData2Multiplier()));
+                    break;
+                case EVENT:
+                    EventCondition evCond = (EventCondition) cond;
+                    statements.add(insertConditionEvent.bind(evCond.getTenantId(),
+                            evCond.getTriggerId(), evCond.getTriggerMode().name(), evCond.getContext(),
+                            evCond.getConditionSetSize(), evCond.getConditionSetIndex(), evCond.getConditionId(),
+                            evCond.getDataId(), evCond.getExpression()));
+                    break;
+                case EXTERNAL:
+                    ExternalCondition eCond = (ExternalCondition) cond;
+                    statements.add(insertConditionExternal.bind(eCond.getTenantId(),
+                            eCond.getTriggerId(), eCond.getTriggerMode().name(), eCond.getContext(),
+                            eCond.getConditionSetSize(), eCond.getConditionSetIndex(), eCond.getConditionId(),
+                            eCond.getDataId(), eCond.getSystemId(), eCond.getExpression()));
+                    break;
+                case RANGE:
+                    ThresholdRangeCondition rCond = (ThresholdRangeCondition) cond;
+                    statements.add(insertConditionThresholdRange.bind(rCond.getTenantId(),
+                            rCond.getTriggerId(), rCond.getTriggerMode().name(), rCond.getContext(),
+                            rCond.getConditionSetSize(), rCond.getConditionSetIndex(), rCond.getConditionId(),
+                            rCond.getDataId(), rCond.getOperatorLow().name(), rCond.getOperatorHigh().name(),
+                            rCond.getThresholdLow(), rCond.getThresholdHigh(), rCond.isInRange()));
+                    break;
+                case RATE:
+                    RateCondition rateCond = (RateCondition) cond;
+                    statements.add(insertConditionRate.bind(rateCond.getTenantId(),
+                            rateCond.getTriggerId(), rateCond.getTriggerMode().name(), rateCond.getContext(),
+                            rateCond.getConditionSetSize(), rateCond.getConditionSetIndex(),
+                            rateCond.getConditionId(), rateCond.getDataId(), rateCond.getDirection(),
+                            rateCond.getPeriod(), rateCond.getOperator().name(), rateCond.getThreshold()));
+                    break;
+                case STRING:
+                    StringCondition sCond = (StringCondition) cond;
+                    statements.add(insertConditionString.bind(sCond.getTenantId(),
+                            sCond.getTriggerId(), sCond.getTriggerMode().name(), sCond.getContext(),
+                            sCond.getConditionSetSize(), sCond.getConditionSetIndex(), sCond.getConditionId(),
+                            sCond.getDataId(), sCond.getOperator().name(), sCond.getPattern(),
+                            sCond.isIgnoreCase()));
+                    break;
+                case THRESHOLD:
+                    ThresholdCondition tCond = (ThresholdCondition) cond;
+                    statements.add(insertConditionThreshold.bind(tCond.getTenantId(),
+                            tCond.getTriggerId(), tCond.getTriggerMode().name(), tCond.getContext(),
+                            tCond.getConditionSetSize(), tCond.getConditionSetIndex(),
+                            tCond.getConditionId(), tCond.getDataId(), tCond.getOperator().name(),
+                            tCond.getThreshold()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected ConditionType: " + cond);
             }
-            Futures.allAsList(futures).get();
-
-        } catch (Exception e) {
-            msgLog.errorDatabaseException(e.getMessage());
-            throw e;
         }
-
-        if (initialized && alertsEngine != null) {
-            alertsEngine.reloadTrigger(tenantId, triggerId);
-        }
-
-        notifyListeners(DefinitionsEvent.Type.CONDITION_CHANGE);
-
-        return conditions;
+        return statements;
     }
 
     private void insertTags(String tenantId, TagType type, String id, Map<String, String> tags)
@@ -2185,20 +2438,6 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         }
     }
 
-    private void deleteTags(String tenantId, TagType type, String id, Map<String, String> tags) throws Exception {
-        if (isEmpty(tags)) {
-            return;
-        }
-
-        PreparedStatement deleteTag = CassStatement.get(session, CassStatement.DELETE_TAG);
-
-        List<ResultSetFuture> futures = new ArrayList<>(tags.size());
-        for (Map.Entry<String, String> tag : tags.entrySet()) {
-            futures.add(session.executeAsync(deleteTag.bind(tenantId, type.name(), tag.getKey(), tag.getValue(), id)));
-        }
-        Futures.allAsList(futures).get();
-    }
-
     @Override
     @Deprecated
     public Condition getCondition(String tenantId, String conditionId) throws Exception {
@@ -2238,6 +2477,12 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         if (isEmpty(triggerId)) {
             throw new IllegalArgumentException("triggerId must be not null");
         }
+        return definitionsCache.get(DefinitionsCache.conditionsKey(tenantId, triggerId, triggerMode),
+                () -> loadTriggerConditions(tenantId, triggerId, triggerMode));
+    }
+
+    private Collection<Condition> loadTriggerConditions(String tenantId, String triggerId, Mode triggerMode)
+            throws Exception {
         session = CassCluster.getSession();
         PreparedStatement selectTriggerConditions = CassStatement
                 .get(session, CassStatement.SELECT_TRIGGER_CONDITIONS);
@@ -2305,6 +2550,35 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         return conditions;
     }
 
+    @Override
+    public Collection<Condition> getConditions(String tenantId, Collection<String> triggerIds) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (null == triggerIds) {
+            throw new IllegalArgumentException("TriggerIds must be not null");
+        }
+        session = CassCluster.getSession();
+        PreparedStatement selectTriggerConditions = CassStatement
+                .get(session, CassStatement.SELECT_TRIGGER_CONDITIONS);
+        if (selectTriggerConditions == null) {
+            throw new RuntimeException("selectTriggerConditions PreparedStatement is null");
+        }
+        List<Condition> conditions = new ArrayList<>();
+        try {
+            List<ResultSetFuture> futures = triggerIds.stream().map(id ->
+                    session.executeAsync(selectTriggerConditions.bind(tenantId, id)))
+                    .collect(Collectors.toList());
+            for (ResultSet rsConditions : Futures.allAsList(futures).get()) {
+                mapConditions(rsConditions, conditions);
+            }
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+        return conditions;
+    }
+
     private void mapConditions(ResultSet rsConditions, List<Condition> conditions) throws Exception {
         for (Row row : rsConditions) {
             Condition condition = mapCondition(row);
@@ -2461,6 +2735,7 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
+        invalidate(Collections.singletonList(DefinitionsCache.actionPluginKey(actionPlugin)));
     }
 
     @Override
@@ -2484,6 +2759,7 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
+        invalidate(Collections.singletonList(DefinitionsCache.actionPluginKey(actionPlugin)));
     }
 
     @Override
@@ -2502,6 +2778,7 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
+        invalidate(Collections.singletonList(DefinitionsCache.actionPluginKey(actionPlugin)));
     }
 
     @Override
@@ -2523,6 +2800,7 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
+        invalidate(Collections.singletonList(DefinitionsCache.actionPluginKey(actionPlugin)));
     }
 
     @Override
@@ -2546,6 +2824,7 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
+        invalidate(Collections.singletonList(DefinitionsCache.actionPluginKey(actionPlugin)));
     }
 
     @Override
@@ -2599,6 +2878,11 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         if (isEmpty(actionPlugin)) {
             throw new IllegalArgumentException("actionPlugin must be not null");
         }
+        return definitionsCache.get(DefinitionsCache.actionPluginKey(actionPlugin),
+                () -> loadDefaultActionPlugin(actionPlugin));
+    }
+
+    private Map<String, String> loadDefaultActionPlugin(String actionPlugin) throws Exception {
         session = CassCluster.getSession();
         PreparedStatement selectActionPluginDefaultProperties = CassStatement.get(session,
                 CassStatement.SELECT_ACTION_PLUGIN_DEFAULT_PROPERTIES);
@@ -2642,6 +2926,7 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
+        invalidate(Collections.singletonList(DefinitionsCache.actionKey(tenantId, actionPlugin, actionId)));
     }
 
     @Override
@@ -2673,6 +2958,7 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
+        invalidate(Collections.singletonList(DefinitionsCache.actionKey(tenantId, actionPlugin, actionId)));
     }
 
     // TODO: This getAll* fetches are cross-tenant fetch and may be inefficient at scale
@@ -2771,6 +3057,11 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         if (isEmpty(actionId)) {
             throw new IllegalArgumentException("actionId must be not null");
         }
+        return definitionsCache.get(DefinitionsCache.actionKey(tenantId, actionPlugin, actionId),
+                () -> loadAction(tenantId, actionPlugin, actionId));
+    }
+
+    private Map<String, String> loadAction(String tenantId, String actionPlugin, String actionId) throws Exception {
         session = CassCluster.getSession();
         PreparedStatement selectAction = CassStatement.get(session, CassStatement.SELECT_ACTION);
         if (selectAction == null) {
@@ -2791,6 +3082,22 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         return properties;
     }
 
+    @Override
+    public void onDefinitionsInvalidation(Collection<String> keys) {
+        definitionsCache.invalidate(keys);
+    }
+
+    /*
+        Definitions changed by the initial data are not notified, the PartitionManager reads the triggers of this
+        service on its own initialization.
+     */
+    private void invalidate(List<String> keys) {
+        definitionsCache.invalidate(keys);
+        if (initialized && null != partitionManager && partitionManager.isDistributed()) {
+            partitionManager.notifyDefinitionsInvalidation(keys);
+        }
+    }
+
     @Override
     public void registerListener(DefinitionsListener listener, Type eventType, Type... eventTypes) {
         EnumSet<Type> types = EnumSet.of(eventType, eventTypes);
@@ -2800,6 +3107,23 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         listeners.put(listener, types);
     }
 
+    /*
+        Coalesced notification of several changes, a listener is notified once if it is interested in any of them
+     */
+    private void notifyListeners(Set<Type> eventTypes) {
+        for (Map.Entry<DefinitionsListener, Set<Type>> me : listeners.entrySet()) {
+            for (Type eventType : eventTypes) {
+                if (me.getValue().contains(eventType)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Notified Listener " + eventType.name() + " of changes " + eventTypes);
+                    }
+                    me.getKey().onChange(new DefinitionsEvent(eventType));
+                    break;
+                }
+            }
+        }
+    }
+
     private void notifyListeners(Type eventType) {
         DefinitionsEvent de = new DefinitionsEvent(eventType);
         if (log.isDebugEnabled()) {
@@ -2824,7 +3148,7 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
                 dampening.getDampeningId() == null || dampening.getDampeningId().trim().isEmpty();
     }
 
-    private boolean isEmpty(String id) {
+    private static boolean isEmpty(String id) {
         return id == null || id.trim().isEmpty();
     }
 
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Map;
+
+import org.hawkular.alerts.api.json.JsonUtil;
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+/**
+ * Writes of the alerts, events and actions history rows: the payload, the index rows in the time bucket of the
+ * ctime, and the registration of that bucket. Rows are written with the ttl of the {@link RetentionPolicy}.
+ *
+ * Writes are added to the given {@link CassWriteBatch} with the partition key of their table, so the rows of a
+ * partition are written together. The actions history inserts are conditional and are sent alone. Callers execute
+ * the batch.
+ *
+ * The alerts statistics counters are not written with the alert rows, callers count an alert when it is added, when
+ * its status changes and when it is deleted. Counter updates are not idempotent, a failed write leaves the counters
+ * to be repaired by a rebuild of the tenant statistics.
+ */
+final class CassHistoryWriter {
+
+    static final String PAYLOAD_FORMAT = "hawkular-alerts.payload-format";
+    static final String DEFAULT_PAYLOAD_FORMAT = "binary";
+
+    private static final boolean binaryPayloads = !"json".equalsIgnoreCase(
+            AlertProperties.getProperty(PAYLOAD_FORMAT, DEFAULT_PAYLOAD_FORMAT));
+
+    private CassHistoryWriter() {
+    }
+
+    static void insertAlert(Alert a, CassWriteBatch batch) {
+        Session session = batch.getSession();
+        PreparedStatement insertAlertTrigger = CassStatement.get(session, CassStatement.INSERT_ALERT_TRIGGER);
+        PreparedStatement insertAlertCtime = CassStatement.get(session, CassStatement.INSERT_ALERT_CTIME);
+        PreparedStatement insertAlertStatus = CassStatement.get(session, CassStatement.INSERT_ALERT_STATUS);
+        PreparedStatement insertAlertSeverity = CassStatement.get(session, CassStatement.INSERT_ALERT_SEVERITY);
+
+        String tenantId = a.getTenantId();
+        long bucket = TimeBuckets.bucket(a.getCtime());
+        int ttl = RetentionPolicy.ttl(tenantId, a.getStatus());
+        String key = bucketKey(tenantId, bucket);
+
+        insertAlertPayload(a, ttl, batch);
+        batch.add(key, insertAlertTrigger.bind(tenantId, bucket, a.getAlertId(), a.getTriggerId(), ttl));
+        batch.add(key, insertAlertCtime.bind(tenantId, bucket, a.getAlertId(), a.getCtime(), ttl));
+        batch.add(key, insertAlertStatus.bind(tenantId, bucket, a.getAlertId(), a.getStatus().name(), ttl));
+        batch.add(key, insertAlertSeverity.bind(tenantId, bucket, a.getAlertId(), a.getSeverity().name(), ttl));
+        insertTags(tenantId, TagType.ALERT, a.getTags(), a.getId(), ttl, batch);
+        TimeBuckets.register(batch, tenantId, TimeBuckets.ALERTS, bucket);
+    }
+
+    /**
+     * Update the payload of an alert whose status, and so ttl, has not changed.
+     */
+    static void updateAlert(Alert a, CassWriteBatch batch) {
+        insertAlertPayload(a, RetentionPolicy.ttl(a.getTenantId(), a.getStatus()), batch);
+    }
+
+    /*
+        The alert payload is written without its thin fields, those go to alerts_evals_by_id. Both tables share the
+        partition key so the two rows are written in the same batch.
+     */
+    private static void insertAlertPayload(Alert a, int ttl, CassWriteBatch batch) {
+        Session session = batch.getSession();
+        PreparedStatement insertAlert = CassStatement.get(session, CassStatement.INSERT_ALERT);
+        PreparedStatement insertAlertEvals = CassStatement.get(session, CassStatement.INSERT_ALERT_EVALS);
+
+        String tenantId = a.getTenantId();
+        String key = idKey(tenantId, a.getAlertId());
+        batch.add(key, insertAlert.bind(tenantId, a.getAlertId(), payload(a, true), ttl));
+        batch.add(key, insertAlertEvals.bind(tenantId, a.getAlertId(), payload(new AlertEvalSets(a), false), ttl));
+    }
+
+    /**
+     * Rewrite all the rows of an alert with the ttl of its new status, and remove the index rows of the other
+     * statuses.
+     */
+    static void updateAlertStatus(Alert a, CassWriteBatch batch) {
+        PreparedStatement deleteAlertStatus = CassStatement.get(batch.getSession(), CassStatement.DELETE_ALERT_STATUS);
+        long bucket = TimeBuckets.bucket(a.getCtime());
+        for (Alert.Status statusToDelete : EnumSet.complementOf(EnumSet.of(a.getStatus()))) {
+            batch.add(bucketKey(a.getTenantId(), bucket), deleteAlertStatus.bind(a.getTenantId(), bucket,
+                    statusToDelete.name(), a.getAlertId()));
+        }
+        insertAlert(a, batch);
+    }
+
+    /**
+     * The conditional delete of the status index row of an alert. Of the concurrent updates moving an alert out of
+     * that status only one has its delete applied, it is the one that counts the status change.
+     */
+    static Statement deleteAlertStatusIfExists(Session session, Alert a, Alert.Status status) {
+        PreparedStatement deleteAlertStatus = CassStatement.get(session, CassStatement.DELETE_ALERT_STATUS_IF_EXISTS);
+        return deleteAlertStatus.bind(a.getTenantId(), TimeBuckets.bucket(a.getCtime()), status.name(),
+                a.getAlertId());
+    }
+
+    static void deleteAlert(Alert a, CassWriteBatch batch) {
+        Session session = batch.getSession();
+        PreparedStatement deleteAlert = CassStatement.get(session, CassStatement.DELETE_ALERT);
+        PreparedStatement deleteAlertCtime = CassStatement.get(session, CassStatement.DELETE_ALERT_CTIME);
+        PreparedStatement deleteAlertEvals = CassStatement.get(session, CassStatement.DELETE_ALERT_EVALS);
+        PreparedStatement deleteAlertSeverity = CassStatement.get(session, CassStatement.DELETE_ALERT_SEVERITY);
+        PreparedStatement deleteAlertStatus = CassStatement.get(session, CassStatement.DELETE_ALERT_STATUS);
+        PreparedStatement deleteAlertTrigger = CassStatement.get(session, CassStatement.DELETE_ALERT_TRIGGER);
+
+        String tenantId = a.getTenantId();
+        String id = a.getAlertId();
+        long bucket = TimeBuckets.bucket(a.getCtime());
+        String key = bucketKey(tenantId, bucket);
+        batch.add(idKey(tenantId, id), deleteAlert.bind(tenantId, id));
+        batch.add(idKey(tenantId, id), deleteAlertEvals.bind(tenantId, id));
+        batch.add(key, deleteAlertCtime.bind(tenantId, bucket, a.getCtime(), id));
+        batch.add(key, deleteAlertSeverity.bind(tenantId, bucket, a.getSeverity().name(), id));
+        batch.add(key, deleteAlertStatus.bind(tenantId, bucket, a.getStatus().name(), id));
+        batch.add(key, deleteAlertTrigger.bind(tenantId, bucket, a.getTriggerId(), id));
+    }
+
+    /**
+     * Add a delta to the statistics counters of an alert with the given status: the count by status, severity and
+     * trigger, and the count by status of each of its tags.
+     */
+    static void countAlert(Alert a, Alert.Status status, long delta, CassWriteBatch batch) {
+        Session session = batch.getSession();
+        PreparedStatement updateAlertsStats = CassStatement.get(session, CassStatement.UPDATE_ALERTS_STATS);
+        PreparedStatement updateAlertsTagsStats = CassStatement.get(session, CassStatement.UPDATE_ALERTS_TAGS_STATS);
+
+        String tenantId = a.getTenantId();
+        long bucket = TimeBuckets.bucket(a.getCtime());
+        String key = bucketKey(tenantId, bucket);
+        batch.addCounter(key, updateAlertsStats.bind(delta, tenantId, bucket, status.name(),
+                a.getSeverity().name(), a.getTriggerId()));
+        if (null != a.getTags()) {
+            for (Map.Entry<String, String> tag : a.getTags().entrySet()) {
+                if (null != tag.getValue()) {
+                    batch.addCounter(key, updateAlertsTagsStats.bind(delta, tenantId, bucket, status.name(),
+                            tag.getKey(), tag.getValue()));
+                }
+            }
+        }
+    }
+
+    static void insertEvent(Event e, CassWriteBatch batch) {
+        Session session = batch.getSession();
+        PreparedStatement insertEvent = CassStatement.get(session, CassStatement.INSERT_EVENT);
+        PreparedStatement insertEventCategory = CassStatement.get(session, CassStatement.INSERT_EVENT_CATEGORY);
+        PreparedStatement insertEventCtime = CassStatement.get(session, CassStatement.INSERT_EVENT_CTIME);
+        PreparedStatement insertEventTrigger = CassStatement.get(session, CassStatement.INSERT_EVENT_TRIGGER);
+
+        String tenantId = e.getTenantId();
+        long bucket = TimeBuckets.bucket(e.getCtime());
+        int ttl = RetentionPolicy.ttl(tenantId);
+        String key = bucketKey(tenantId, bucket);
+
+        batch.add(idKey(tenantId, e.getId()), insertEvent.bind(tenantId, e.getId(), payload(e, false), ttl));
+        batch.add(categoryKey(tenantId, bucket, e.getCategory()), insertEventCategory.bind(tenantId, bucket,
+                e.getCategory(), e.getId(), ttl));
+        batch.add(key, insertEventCtime.bind(tenantId, bucket, e.getCtime(), e.getId(), ttl));
+        if (null != e.getTrigger()) {
+            batch.add(key, insertEventTrigger.bind(tenantId, bucket, e.getTrigger().getId(), e.getId(), ttl));
+        }
+        insertTags(tenantId, TagType.EVENT, e.getTags(), e.getId(), ttl, batch);
+        TimeBuckets.register(batch, tenantId, TimeBuckets.EVENTS, bucket);
+    }
+
+    static void deleteEvent(Event e, CassWriteBatch batch) {
+        Session session = batch.getSession();
+        PreparedStatement deleteEvent = CassStatement.get(session, CassStatement.DELETE_EVENT);
+        PreparedStatement deleteEventCategory = CassStatement.get(session, CassStatement.DELETE_EVENT_CATEGORY);
+        PreparedStatement deleteEventCTime = CassStatement.get(session, CassStatement.DELETE_EVENT_CTIME);
+        PreparedStatement deleteEventTrigger = CassStatement.get(session, CassStatement.DELETE_EVENT_TRIGGER);
+
+        String tenantId = e.getTenantId();
+        String id = e.getId();
+        long bucket = TimeBuckets.bucket(e.getCtime());
+        String key = bucketKey(tenantId, bucket);
+        batch.add(idKey(tenantId, id), deleteEvent.bind(tenantId, id));
+        batch.add(categoryKey(tenantId, bucket, e.getCategory()), deleteEventCategory.bind(tenantId, bucket,
+                e.getCategory(), id));
+        batch.add(key, deleteEventCTime.bind(tenantId, bucket, e.getCtime(), id));
+        if (null != e.getTrigger()) {
+            batch.add(key, deleteEventTrigger.bind(tenantId, bucket, e.getTrigger().getId(), id));
+        }
+    }
+
+    static void insertAction(Action action, CassWriteBatch batch) {
+        Session session = batch.getSession();
+        PreparedStatement insertActionHistory = CassStatement.get(session, CassStatement.INSERT_ACTION_HISTORY);
+        PreparedStatement insertActionHistoryAction = CassStatement.get(session,
+                CassStatement.INSERT_ACTION_HISTORY_ACTION);
+        PreparedStatement insertActionHistoryAlert = CassStatement.get(session,
+                CassStatement.INSERT_ACTION_HISTORY_ALERT);
+        PreparedStatement insertActionHistoryCtime = CassStatement.get(session,
+                CassStatement.INSERT_ACTION_HISTORY_CTIME);
+        PreparedStatement insertActionHistoryResult = CassStatement.get(session,
+                CassStatement.INSERT_ACTION_HISTORY_RESULT);
+
+        String tenantId = action.getTenantId();
+        String alertId = action.getEvent().getId();
+        long bucket = TimeBuckets.bucket(action.getCtime());
+        int ttl = RetentionPolicy.ttl(tenantId);
+
+        batch.add(insertActionHistory.bind(tenantId, bucket, action.getActionPlugin(),
+                action.getActionId(), alertId, action.getCtime(), JsonUtil.toJson(action), ttl));
+        batch.add(insertActionHistoryAction.bind(tenantId, bucket, action.getActionId(),
+                action.getActionPlugin(), alertId, action.getCtime(), ttl));
+        batch.add(insertActionHistoryAlert.bind(tenantId, alertId, action.getActionPlugin(),
+                action.getActionId(), action.getCtime(), ttl));
+        batch.add(insertActionHistoryCtime.bind(tenantId, bucket, action.getCtime(),
+                action.getActionPlugin(), action.getActionId(), alertId, ttl));
+        batch.add(insertActionHistoryResult.bind(tenantId, bucket, action.getResult(),
+                action.getActionPlugin(), action.getActionId(), alertId, action.getCtime(), ttl));
+        TimeBuckets.register(batch, tenantId, TimeBuckets.ACTIONS, bucket);
+    }
+
+    static void updateActionResult(Action action, String oldResult, CassWriteBatch batch) {
+        Session session = batch.getSession();
+        PreparedStatement deleteActionHistoryResult = CassStatement.get(session,
+                CassStatement.DELETE_ACTION_HISTORY_RESULT);
+        PreparedStatement insertActionHistoryResult = CassStatement.get(session,
+                CassStatement.INSERT_ACTION_HISTORY_RESULT);
+        PreparedStatement updateActionHistory = CassStatement.get(session, CassStatement.UPDATE_ACTION_HISTORY);
+
+        String tenantId = action.getTenantId();
+        String alertId = action.getEvent().getId();
+        long bucket = TimeBuckets.bucket(action.getCtime());
+        int ttl = RetentionPolicy.ttl(tenantId);
+
+        String key = bucketKey(tenantId, bucket);
+
+        batch.add(key, deleteActionHistoryResult.bind(tenantId, bucket, oldResult,
+                action.getActionPlugin(), action.getActionId(), alertId, action.getCtime()));
+        batch.add(insertActionHistoryResult.bind(tenantId, bucket, action.getResult(),
+                action.getActionPlugin(), action.getActionId(), alertId, action.getCtime(), ttl));
+        batch.add(key, updateActionHistory.bind(ttl, JsonUtil.toJson(action), tenantId, bucket,
+                action.getActionPlugin(), action.getActionId(), alertId, action.getCtime()));
+    }
+
+    static void deleteAction(Action action, CassWriteBatch batch) {
+        Session session = batch.getSession();
+        PreparedStatement deleteActionHistory = CassStatement.get(session, CassStatement.DELETE_ACTION_HISTORY);
+        PreparedStatement deleteActionHistoryAction = CassStatement.get(session,
+                CassStatement.DELETE_ACTION_HISTORY_ACTION);
+        PreparedStatement deleteActionHistoryAlert = CassStatement.get(session,
+                CassStatement.DELETE_ACTION_HISTORY_ALERT);
+        PreparedStatement deleteActionHistoryCtime = CassStatement.get(session,
+                CassStatement.DELETE_ACTION_HISTORY_CTIME);
+        PreparedStatement deleteActionHistoryResult = CassStatement.get(session,
+                CassStatement.DELETE_ACTION_HISTORY_RESULT);
+
+        String tenantId = action.getTenantId();
+        String alertId = action.getEvent().getId();
+        long bucket = TimeBuckets.bucket(action.getCtime());
+        String key = bucketKey(tenantId, bucket);
+
+        batch.add(key, deleteActionHistory.bind(tenantId, bucket, action.getActionPlugin(),
+                action.getActionId(), alertId, action.getCtime()));
+        batch.add(key, deleteActionHistoryAction.bind(tenantId, bucket, action.getActionId(),
+                action.getActionPlugin(), alertId, action.getCtime()));
+        batch.add(idKey(tenantId, alertId), deleteActionHistoryAlert.bind(tenantId, alertId, action.getActionPlugin(),
+                action.getActionId(), action.getCtime()));
+        batch.add(key, deleteActionHistoryCtime.bind(tenantId, bucket, action.getCtime(),
+                action.getActionPlugin(), action.getActionId(), alertId));
+        batch.add(key, deleteActionHistoryResult.bind(tenantId, bucket, action.getResult(),
+                action.getActionPlugin(), action.getActionId(), alertId, action.getCtime()));
+    }
+
+    private static void insertTags(String tenantId, TagType type, Map<String, String> tags, String id, int ttl,
+            CassWriteBatch batch) {
+        if (null == tags || tags.isEmpty()) {
+            return;
+        }
+        PreparedStatement insertTag = CassStatement.get(batch.getSession(), CassStatement.INSERT_TAG_TTL);
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            batch.add(tagKey(tenantId, type, tag.getKey()), insertTag.bind(tenantId, type.name(), tag.getKey(),
+                    tag.getValue(), id, ttl));
+        }
+    }
+
+    /*
+        Alerts and events payloads are stored in the binary format unless json is configured, both are readable.
+     */
+    private static ByteBuffer payload(Object o, boolean thin) {
+        return binaryPayloads ? JsonUtil.toBinary(o, thin) : StandardCharsets.UTF_8.encode(JsonUtil.toJson(o, thin));
+    }
+
+    private static String bucketKey(String tenantId, long bucket) {
+        return "bucket|" + tenantId + '|' + bucket;
+    }
+
+    private static String idKey(String tenantId, String id) {
+        return "id|" + tenantId + '|' + id;
+    }
+
+    private static String categoryKey(String tenantId, long bucket, String category) {
+        return "category|" + tenantId + '|' + bucket + '|' + category;
+    }
+
+    private static String tagKey(String tenantId, TagType type, String name) {
+        return "tag|" + tenantId + '|' + type.name() + '|' + name;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import org.hawkular.alerts.api.json.JsonUtil;
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.jboss.logging.Logger;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+
+/**
+ * Copy of the alerts, events and actions history of the legacy tables, partitioned by tenant, into the time bucketed
+ * tables, and of the members of the group triggers into the member_triggers lookup.
+ *
+ * The legacy tables are read with paged full scans and left untouched, they can be dropped once the migration is
+ * done. The history is copied while the alerts are served, so an alert already in the bucketed tables, copied by an
+ * interrupted migration and maybe updated since, is not copied again. Events and actions are not updated once
+ * stored, their writes are idempotent.
+ */
+final class CassSchemaMigration {
+    private static final Logger log = Logger.getLogger(CassSchemaMigration.class);
+
+    private static final int FETCH_SIZE = 500;
+    private static final int MAX_PENDING = 5000;
+
+    private CassSchemaMigration() {
+    }
+
+    static void migrate(Session session, String keyspace) throws Exception {
+        int alerts = 0;
+        CassWriteBatch batch = new CassWriteBatch(session);
+        PreparedStatement selectAlert = CassStatement.get(session, CassStatement.SELECT_ALERT);
+        for (Row row : session.execute(scan(keyspace, "alerts"))) {
+            Alert alert = JsonUtil.fromJson(row.getString("payload"), Alert.class, false);
+            if (null != session.execute(selectAlert.bind(alert.getTenantId(), alert.getAlertId())).one()) {
+                continue;
+            }
+            CassHistoryWriter.insertAlert(alert, batch);
+            alerts++;
+            flush(batch, MAX_PENDING);
+        }
+        int events = 0;
+        for (Row row : session.execute(scan(keyspace, "events"))) {
+            Event event = JsonUtil.fromJson(row.getString("payload"), Event.class, false);
+            CassHistoryWriter.insertEvent(event, batch);
+            events++;
+            flush(batch, MAX_PENDING);
+        }
+        int actions = 0;
+        for (Row row : session.execute(scan(keyspace, "actions_history"))) {
+            Action action = JsonUtil.fromJson(row.getString("payload"), Action.class, false);
+            CassHistoryWriter.insertAction(action, batch);
+            actions++;
+            flush(batch, MAX_PENDING);
+        }
+        flush(batch, 0);
+        log.infof("Migrated %s alerts, %s events and %s actions of keyspace %s", alerts, events, actions, keyspace);
+    }
+
+    /**
+     * Fill member_triggers with the members of the group triggers already stored.
+     */
+    static void migrateMemberTriggers(Session session, String keyspace) throws Exception {
+        int members = 0;
+        CassWriteBatch batch = new CassWriteBatch(session);
+        PreparedStatement insertMemberTrigger = CassStatement.get(session, CassStatement.INSERT_MEMBER_TRIGGER);
+        Statement scan = new SimpleStatement("SELECT tenantId, id, memberOf FROM " + keyspace + ".triggers")
+                .setFetchSize(FETCH_SIZE);
+        for (Row row : session.execute(scan)) {
+            String groupId = row.getString("memberOf");
+            if (null == groupId || groupId.isEmpty()) {
+                continue;
+            }
+            String tenantId = row.getString("tenantId");
+            batch.add(tenantId + '|' + groupId, insertMemberTrigger.bind(tenantId, groupId, row.getString("id")));
+            members++;
+            flush(batch, MAX_PENDING);
+        }
+        flush(batch, 0);
+        log.infof("Migrated %s member triggers of keyspace %s", members, keyspace);
+    }
+
+    private static Statement scan(String keyspace, String table) {
+        return new SimpleStatement("SELECT payload FROM " + keyspace + "." + table).setFetchSize(FETCH_SIZE);
+    }
+
+    private static void flush(CassWriteBatch batch, int maxPending) throws Exception {
+        if (batch.size() > maxPending) {
+            batch.execute();
+        }
+    }
+}
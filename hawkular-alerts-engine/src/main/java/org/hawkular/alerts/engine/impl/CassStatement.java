@@ -16,16 +16,27 @@
  */
 package org.hawkular.alerts.engine.impl;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.logging.Logger;
 
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Session;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * PreparedStatements need to be prepared only one time for the Datastax driver.  Avoid overhead and warnings by
  * caching the PreparedStatements in one place.
  *
+ * The statements of this class are prepared in parallel at startup into an immutable map, so reads take no lock.
+ * Statements built at runtime, as the slices, are prepared on first use.
+ *
  * @author Jay Shaughnessy
  * @author Lucas Ponce
  */
@@ -34,7 +45,16 @@ public class CassStatement {
 
     private static final String keyspace;
 
-    private static final Map<String, PreparedStatement> statementMap = new HashMap<>();
+    private static final Logger log = Logger.getLogger(CassStatement.class);
+
+    /*
+        Name of the constant of every statement of this class
+     */
+    private static final Map<String, String> names;
+
+    private static volatile Map<String, PreparedStatement> prepared = Collections.emptyMap();
+
+    private static final ConcurrentMap<String, PreparedStatement> preparedOnUse = new ConcurrentHashMap<>();
 
     public static final String DELETE_ACTION;
     public static final String DELETE_ACTION_HISTORY;
@@ -45,8 +65,10 @@ public class CassStatement {
     public static final String DELETE_ACTION_PLUGIN;
     public static final String DELETE_ALERT;
     public static final String DELETE_ALERT_CTIME;
+    public static final String DELETE_ALERT_EVALS;
     public static final String DELETE_ALERT_SEVERITY;
     public static final String DELETE_ALERT_STATUS;
+    public static final String DELETE_ALERT_STATUS_IF_EXISTS;
     public static final String DELETE_ALERT_TRIGGER;
     public static final String DELETE_CONDITIONS;
     public static final String DELETE_CONDITIONS_MODE;
@@ -56,6 +78,8 @@ public class CassStatement {
     public static final String DELETE_EVENT_CATEGORY;
     public static final String DELETE_EVENT_CTIME;
     public static final String DELETE_EVENT_TRIGGER;
+    public static final String DELETE_MEMBER_TRIGGER;
+    public static final String DELETE_MEMBER_TRIGGERS;
     public static final String DELETE_TAG;
     public static final String DELETE_TRIGGER_ACTIONS;
     public static final String DELETE_TRIGGER;
@@ -70,9 +94,11 @@ public class CassStatement {
     public static final String INSERT_ACTION_PLUGIN_DEFAULT_PROPERTIES;
     public static final String INSERT_ALERT;
     public static final String INSERT_ALERT_CTIME;
+    public static final String INSERT_ALERT_EVALS;
     public static final String INSERT_ALERT_SEVERITY;
     public static final String INSERT_ALERT_STATUS;
     public static final String INSERT_ALERT_TRIGGER;
+    public static final String INSERT_BUCKET;
     public static final String INSERT_CONDITION_AVAILABILITY;
     public static final String INSERT_CONDITION_COMPARE;
     public static final String INSERT_CONDITION_EVENT;
@@ -86,7 +112,9 @@ public class CassStatement {
     public static final String INSERT_EVENT_CATEGORY;
     public static final String INSERT_EVENT_CTIME;
     public static final String INSERT_EVENT_TRIGGER;
+    public static final String INSERT_MEMBER_TRIGGER;
     public static final String INSERT_TAG;
+    public static final String INSERT_TAG_TTL;
     public static final String INSERT_TRIGGER;
     public static final String INSERT_TRIGGER_ACTIONS;
 
@@ -95,10 +123,11 @@ public class CassStatement {
     public static final String SELECT_ACTION_HISTORY_ACTION_ID;
     public static final String SELECT_ACTION_HISTORY_ACTION_PLUGIN;
     public static final String SELECT_ACTION_HISTORY_ALERT_ID;
-    public static final String SELECT_ACTION_HISTORY_BY_TENANT;
+    public static final String SELECT_ACTION_HISTORY_BY_BUCKET;
     public static final String SELECT_ACTION_HISTORY_CTIME_END;
     public static final String SELECT_ACTION_HISTORY_CTIME_START;
     public static final String SELECT_ACTION_HISTORY_CTIME_START_END;
+    public static final String SELECT_ACTION_HISTORY_CTIMES_SLICE;
     public static final String SELECT_ACTION_HISTORY_RESULT;
     public static final String SELECT_ACTIONS_ALL;
     public static final String SELECT_ACTIONS_BY_TENANT;
@@ -107,13 +136,21 @@ public class CassStatement {
     public static final String SELECT_ACTION_PLUGINS;
     public static final String SELECT_ACTIONS_PLUGIN;
     public static final String SELECT_ALERT;
+    public static final String SELECT_ALERT_EVALS;
     public static final String SELECT_ALERT_CTIME_END;
     public static final String SELECT_ALERT_CTIME_START;
     public static final String SELECT_ALERT_CTIME_START_END;
+    public static final String SELECT_ALERT_CTIMES_SLICE;
+    public static final String SELECT_ALERT_IDS_BY_BUCKET;
     public static final String SELECT_ALERT_STATUS;
     public static final String SELECT_ALERT_SEVERITY;
+    public static final String SELECT_ALERT_SEVERITIES_BY_BUCKET;
+    public static final String SELECT_ALERT_STATUSES_BY_BUCKET;
     public static final String SELECT_ALERT_TRIGGER;
-    public static final String SELECT_ALERTS_BY_TENANT;
+    public static final String SELECT_ALERT_TRIGGERS_BY_BUCKET;
+    public static final String SELECT_ALERTS_STATS;
+    public static final String SELECT_ALERTS_TAGS_STATS;
+    public static final String SELECT_BUCKETS;
     public static final String SELECT_CONDITION_ID;
     public static final String SELECT_CONDITIONS_ALL;
     public static final String SELECT_CONDITIONS_BY_TENANT;
@@ -125,8 +162,11 @@ public class CassStatement {
     public static final String SELECT_EVENT_CTIME_END;
     public static final String SELECT_EVENT_CTIME_START;
     public static final String SELECT_EVENT_CTIME_START_END;
+    public static final String SELECT_EVENT_CTIMES_SLICE;
+    public static final String SELECT_EVENT_IDS_BY_BUCKET;
     public static final String SELECT_EVENT_TRIGGER;
-    public static final String SELECT_EVENTS_BY_TENANT;
+    public static final String SELECT_EVENT_TRIGGERS_BY_BUCKET;
+    public static final String SELECT_MEMBER_TRIGGERS;
     //public static final String SELECT_EVENTS_BY_PARTITION;
     // public static final String SELECT_PARTITIONS_EVENTS;
     public static final String SELECT_PARTITIONS_TRIGGERS;
@@ -134,18 +174,21 @@ public class CassStatement {
     public static final String SELECT_TAGS_BY_NAME_AND_VALUE;
     public static final String SELECT_TRIGGER;
     public static final String SELECT_TRIGGER_ACTIONS;
+    public static final String SELECT_TRIGGER_ACTIONS_TENANT;
     public static final String SELECT_TRIGGER_CONDITIONS;
     public static final String SELECT_TRIGGER_CONDITIONS_TRIGGER_MODE;
     public static final String SELECT_TRIGGER_DAMPENINGS;
     public static final String SELECT_TRIGGER_DAMPENINGS_MODE;
     public static final String SELECT_TRIGGERS_ALL;
+    public static final String SELECT_TRIGGERS_IDS;
     public static final String SELECT_TRIGGERS_TENANT;
 
     public static final String UPDATE_ACTION;
     public static final String UPDATE_ACTION_HISTORY;
     public static final String UPDATE_ACTION_PLUGIN;
     public static final String UPDATE_ACTION_PLUGIN_DEFAULT_PROPERTIES;
-    public static final String UPDATE_ALERT;
+    public static final String UPDATE_ALERTS_STATS;
+    public static final String UPDATE_ALERTS_TAGS_STATS;
     public static final String UPDATE_DAMPENING_ID;
     public static final String UPDATE_TRIGGER;
 
@@ -155,36 +198,42 @@ public class CassStatement {
         DELETE_ACTION = "DELETE FROM " + keyspace + ".actions "
                 + "WHERE tenantId = ? AND actionPlugin = ? AND actionId = ? ";
 
-        DELETE_ACTION_HISTORY = "DELETE FROM " + keyspace + ".actions_history " +
-                "WHERE tenantId = ? AND actionPlugin = ? AND actionId = ? AND alertId = ? AND ctime = ?";
+        DELETE_ACTION_HISTORY = "DELETE FROM " + keyspace + ".actions_history_by_bucket " +
+                "WHERE tenantId = ? AND bucket = ? AND actionPlugin = ? AND actionId = ? AND alertId = ? AND ctime = ?";
 
-        DELETE_ACTION_HISTORY_ACTION = "DELETE FROM " + keyspace + ".actions_history_actions " +
-                "WHERE tenantId = ? AND actionId = ? AND actionPlugin = ? AND alertId = ? AND ctime = ?";
+        DELETE_ACTION_HISTORY_ACTION = "DELETE FROM " + keyspace + ".actions_history_actions_by_bucket " +
+                "WHERE tenantId = ? AND bucket = ? AND actionId = ? AND actionPlugin = ? AND alertId = ? AND ctime = ?";
 
-        DELETE_ACTION_HISTORY_ALERT = "DELETE FROM " + keyspace + ".actions_history_alerts " +
+        DELETE_ACTION_HISTORY_ALERT = "DELETE FROM " + keyspace + ".actions_history_alerts_by_id " +
                 "WHERE tenantId = ? AND alertId = ? AND actionPlugin = ? AND actionId = ? AND ctime = ?";
 
-        DELETE_ACTION_HISTORY_CTIME = "DELETE FROM " + keyspace + ".actions_history_ctimes " +
-                "WHERE tenantId = ? AND ctime = ? AND actionPlugin = ? AND actionId = ? AND alertId = ?";
+        DELETE_ACTION_HISTORY_CTIME = "DELETE FROM " + keyspace + ".actions_history_ctimes_by_bucket " +
+                "WHERE tenantId = ? AND bucket = ? AND ctime = ? AND actionPlugin = ? AND actionId = ? AND alertId = ?";
 
-        DELETE_ACTION_HISTORY_RESULT = "DELETE FROM " + keyspace + ".actions_history_results " +
-                "WHERE tenantId = ? AND result = ? AND actionPlugin = ? AND actionId = ? AND alertId = ? AND ctime = ?";
+        DELETE_ACTION_HISTORY_RESULT = "DELETE FROM " + keyspace + ".actions_history_results_by_bucket " +
+                "WHERE tenantId = ? AND bucket = ? AND result = ? AND actionPlugin = ? AND actionId = ? " +
+                "AND alertId = ? AND ctime = ?";
 
         DELETE_ACTION_PLUGIN = "DELETE FROM " + keyspace + ".action_plugins WHERE actionPlugin = ? ";
 
-        DELETE_ALERT = "DELETE FROM " + keyspace + ".alerts " + "WHERE tenantId = ? AND alertId = ? ";
+        DELETE_ALERT = "DELETE FROM " + keyspace + ".alerts_by_id " + "WHERE tenantId = ? AND alertId = ? ";
+
+        DELETE_ALERT_CTIME = "DELETE FROM " + keyspace + ".alerts_ctimes_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime = ? AND alertId = ? ";
+
+        DELETE_ALERT_EVALS = "DELETE FROM " + keyspace + ".alerts_evals_by_id WHERE tenantId = ? AND alertId = ? ";
 
-        DELETE_ALERT_CTIME = "DELETE FROM " + keyspace + ".alerts_ctimes "
-                + "WHERE tenantId = ? AND ctime = ? AND alertId = ? ";
+        DELETE_ALERT_SEVERITY = "DELETE FROM " + keyspace + ".alerts_severities_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND severity = ? AND alertId = ? ";
 
-        DELETE_ALERT_SEVERITY = "DELETE FROM " + keyspace + ".alerts_severities "
-                + "WHERE tenantId = ? AND severity = ? AND alertId = ? ";
+        DELETE_ALERT_STATUS = "DELETE FROM " + keyspace + ".alerts_statuses_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND status = ? AND alertId = ? ";
 
-        DELETE_ALERT_STATUS = "DELETE FROM " + keyspace + ".alerts_statuses "
-                + "WHERE tenantId = ? AND status = ? AND alertId = ? ";
+        DELETE_ALERT_STATUS_IF_EXISTS = "DELETE FROM " + keyspace + ".alerts_statuses_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND status = ? AND alertId = ? IF EXISTS";
 
-        DELETE_ALERT_TRIGGER = "DELETE FROM " + keyspace + ".alerts_triggers "
-                + "WHERE tenantId = ? AND triggerId = ? AND alertId = ? ";
+        DELETE_ALERT_TRIGGER = "DELETE FROM " + keyspace + ".alerts_triggers_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND triggerId = ? AND alertId = ? ";
 
         DELETE_CONDITIONS = "DELETE FROM " + keyspace + ".conditions " + "WHERE tenantId = ? AND triggerId = ? ";
 
@@ -196,16 +245,22 @@ public class CassStatement {
 
         DELETE_DAMPENINGS = "DELETE FROM " + keyspace + ".dampenings " + "WHERE tenantId = ? AND triggerId = ? ";
 
-        DELETE_EVENT = "DELETE FROM " + keyspace + ".events " + "WHERE tenantId = ? AND id = ? ";
+        DELETE_EVENT = "DELETE FROM " + keyspace + ".events_by_id " + "WHERE tenantId = ? AND id = ? ";
 
-        DELETE_EVENT_CTIME = "DELETE FROM " + keyspace + ".events_ctimes "
-                + "WHERE tenantId = ? AND ctime = ? AND id = ? ";
+        DELETE_EVENT_CTIME = "DELETE FROM " + keyspace + ".events_ctimes_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime = ? AND id = ? ";
 
-        DELETE_EVENT_CATEGORY = "DELETE FROM " + keyspace + ".events_categories "
-                + "WHERE tenantId = ? AND category = ? AND id = ? ";
+        DELETE_EVENT_CATEGORY = "DELETE FROM " + keyspace + ".events_categories_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND category = ? AND id = ? ";
 
-        DELETE_EVENT_TRIGGER = "DELETE FROM " + keyspace + ".events_triggers "
-                + "WHERE tenantId = ? AND triggerId = ? AND id = ? ";
+        DELETE_EVENT_TRIGGER = "DELETE FROM " + keyspace + ".events_triggers_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND triggerId = ? AND id = ? ";
+
+        DELETE_MEMBER_TRIGGER = "DELETE FROM " + keyspace + ".member_triggers "
+                + "WHERE tenantId = ? AND groupId = ? AND memberId = ? ";
+
+        DELETE_MEMBER_TRIGGERS = "DELETE FROM " + keyspace + ".member_triggers "
+                + "WHERE tenantId = ? AND groupId = ? ";
 
         DELETE_TAG = "DELETE FROM " + keyspace + ".tags "
                 + "WHERE tenantId = ? AND type = ? AND name = ? and value = ? AND id = ?";
@@ -218,25 +273,25 @@ public class CassStatement {
         INSERT_ACTION = "INSERT INTO " + keyspace + ".actions "
                 + "(tenantId, actionPlugin, actionId, properties) VALUES (?, ?, ?, ?) ";
 
-        INSERT_ACTION_HISTORY = "INSERT INTO " + keyspace + ".actions_history "
-                + "(tenantId, actionPlugin, actionId, alertId, ctime, payload) VALUES (?, ?, ?, ?, ?, ?) " +
-                "IF NOT EXISTS";
+        INSERT_ACTION_HISTORY = "INSERT INTO " + keyspace + ".actions_history_by_bucket "
+                + "(tenantId, bucket, actionPlugin, actionId, alertId, ctime, payload) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+                "IF NOT EXISTS USING TTL ?";
 
-        INSERT_ACTION_HISTORY_ACTION = "INSERT INTO " + keyspace + ".actions_history_actions "
-                + "(tenantId, actionId, actionPlugin, alertId, ctime) VALUES (?, ?, ?, ?, ?) " +
-                "IF NOT EXISTS";
+        INSERT_ACTION_HISTORY_ACTION = "INSERT INTO " + keyspace + ".actions_history_actions_by_bucket "
+                + "(tenantId, bucket, actionId, actionPlugin, alertId, ctime) VALUES (?, ?, ?, ?, ?, ?) " +
+                "IF NOT EXISTS USING TTL ?";
 
-        INSERT_ACTION_HISTORY_ALERT = "INSERT INTO " + keyspace + ".actions_history_alerts "
+        INSERT_ACTION_HISTORY_ALERT = "INSERT INTO " + keyspace + ".actions_history_alerts_by_id "
                 + "(tenantId, alertId, actionPlugin, actionId, ctime) VALUES (?, ?, ?, ?, ?) " +
-                "IF NOT EXISTS";
+                "IF NOT EXISTS USING TTL ?";
 
-        INSERT_ACTION_HISTORY_CTIME = "INSERT INTO " + keyspace + ".actions_history_ctimes "
-                + "(tenantId, ctime, actionPlugin, actionId, alertId) VALUES (?, ?, ?, ?, ?) " +
-                "IF NOT EXISTS";
+        INSERT_ACTION_HISTORY_CTIME = "INSERT INTO " + keyspace + ".actions_history_ctimes_by_bucket "
+                + "(tenantId, bucket, ctime, actionPlugin, actionId, alertId) VALUES (?, ?, ?, ?, ?, ?) " +
+                "IF NOT EXISTS USING TTL ?";
 
-        INSERT_ACTION_HISTORY_RESULT = "INSERT INTO " + keyspace + ".actions_history_results "
-                + "(tenantId, result, actionPlugin, actionId, alertId, ctime) VALUES (?, ?, ?, ?, ?, ?) " +
-                "IF NOT EXISTS";
+        INSERT_ACTION_HISTORY_RESULT = "INSERT INTO " + keyspace + ".actions_history_results_by_bucket "
+                + "(tenantId, bucket, result, actionPlugin, actionId, alertId, ctime) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+                "IF NOT EXISTS USING TTL ?";
 
         INSERT_ACTION_PLUGIN = "INSERT INTO " + keyspace + ".action_plugins "
                 + "(actionPlugin, properties) VALUES (?, ?) ";
@@ -244,19 +299,26 @@ public class CassStatement {
         INSERT_ACTION_PLUGIN_DEFAULT_PROPERTIES = "INSERT INTO " + keyspace + ".action_plugins "
                 + "(actionPlugin, properties, defaultProperties) VALUES (?, ?, ?) ";
 
-        INSERT_ALERT = "INSERT INTO " + keyspace + ".alerts " + "(tenantId, alertId, payload) VALUES (?, ?, ?) ";
+        INSERT_ALERT = "INSERT INTO " + keyspace + ".alerts_by_id " + "(tenantId, alertId, payload) VALUES (?, ?, ?) "
+                + "USING TTL ? ";
+
+        INSERT_ALERT_CTIME = "INSERT INTO " + keyspace + ".alerts_ctimes_by_bucket "
+                + "(tenantId, bucket, alertId, ctime) VALUES (?, ?, ?, ?) USING TTL ? ";
 
-        INSERT_ALERT_CTIME = "INSERT INTO " + keyspace + ".alerts_ctimes "
-                + "(tenantId, alertId, ctime) VALUES (?, ?, ?) ";
+        INSERT_ALERT_EVALS = "INSERT INTO " + keyspace + ".alerts_evals_by_id "
+                + "(tenantId, alertId, payload) VALUES (?, ?, ?) USING TTL ? ";
 
-        INSERT_ALERT_SEVERITY = "INSERT INTO " + keyspace + ".alerts_severities "
-                + "(tenantId, alertId, severity) VALUES (?, ?, ?) ";
+        INSERT_ALERT_SEVERITY = "INSERT INTO " + keyspace + ".alerts_severities_by_bucket "
+                + "(tenantId, bucket, alertId, severity) VALUES (?, ?, ?, ?) USING TTL ? ";
 
-        INSERT_ALERT_STATUS = "INSERT INTO " + keyspace + ".alerts_statuses "
-                + "(tenantId, alertId, status) VALUES (?, ?, ?) ";
+        INSERT_ALERT_STATUS = "INSERT INTO " + keyspace + ".alerts_statuses_by_bucket "
+                + "(tenantId, bucket, alertId, status) VALUES (?, ?, ?, ?) USING TTL ? ";
 
-        INSERT_ALERT_TRIGGER = "INSERT INTO " + keyspace + ".alerts_triggers "
-                + "(tenantId, alertId, triggerId) VALUES (?, ?, ?) ";
+        INSERT_ALERT_TRIGGER = "INSERT INTO " + keyspace + ".alerts_triggers_by_bucket "
+                + "(tenantId, bucket, alertId, triggerId) VALUES (?, ?, ?, ?) USING TTL ? ";
+
+        INSERT_BUCKET = "INSERT INTO " + keyspace + ".buckets "
+                + "(tenantId, type, bucket) VALUES (?, ?, ?) ";
 
         INSERT_CONDITION_AVAILABILITY = "INSERT INTO " + keyspace + ".conditions "
                 + "(tenantId, triggerId, triggerMode, type, context, conditionSetSize, conditionSetIndex, " +
@@ -298,21 +360,27 @@ public class CassStatement {
                 + "(triggerId, triggerMode, type, evalTrueSetting, evalTotalSetting, evalTimeSetting, "
                 + "dampeningId, tenantId) VALUES (?, ?, ?, ?, ?, ?, ?, ?) ";
 
-        INSERT_EVENT = "INSERT INTO " + keyspace + ".events "
-                + "(tenantId, id, payload) VALUES (?, ?, ?) ";
+        INSERT_EVENT = "INSERT INTO " + keyspace + ".events_by_id "
+                + "(tenantId, id, payload) VALUES (?, ?, ?) USING TTL ? ";
+
+        INSERT_EVENT_CTIME = "INSERT INTO " + keyspace + ".events_ctimes_by_bucket "
+                + "(tenantId, bucket, ctime, id) VALUES (?, ?, ?, ?) USING TTL ? ";
 
-        INSERT_EVENT_CTIME = "INSERT INTO " + keyspace + ".events_ctimes "
-                + "(tenantId, ctime, id) VALUES (?, ?, ?) ";
+        INSERT_EVENT_CATEGORY = "INSERT INTO " + keyspace + ".events_categories_by_bucket "
+                + "(tenantId, bucket, category, id) VALUES (?, ?, ?, ?) USING TTL ? ";
 
-        INSERT_EVENT_CATEGORY = "INSERT INTO " + keyspace + ".events_categories "
-                + "(tenantId, category, id) VALUES (?, ?, ?) ";
+        INSERT_EVENT_TRIGGER = "INSERT INTO " + keyspace + ".events_triggers_by_bucket "
+                + "(tenantId, bucket, triggerId, id) VALUES (?, ?, ?, ?) USING TTL ? ";
 
-        INSERT_EVENT_TRIGGER = "INSERT INTO " + keyspace + ".events_triggers "
-                + "(tenantId, triggerId, id) VALUES (?, ?, ?) ";
+        INSERT_MEMBER_TRIGGER = "INSERT INTO " + keyspace + ".member_triggers "
+                + "(tenantId, groupId, memberId) VALUES (?, ?, ?) ";
 
         INSERT_TAG = "INSERT INTO " + keyspace + ".tags "
                 + "(tenantId, type, name, value, id) VALUES (?, ?, ?, ?, ?) ";
 
+        INSERT_TAG_TTL = "INSERT INTO " + keyspace + ".tags "
+                + "(tenantId, type, name, value, id) VALUES (?, ?, ?, ?, ?) USING TTL ? ";
+
         INSERT_TRIGGER = "INSERT INTO " + keyspace + ".triggers " +
                 "(tenantId, id, autoDisable, autoEnable, autoResolve, autoResolveAlerts, autoResolveMatch, "
                 + "context, description, enabled, eventCategory, eventText, eventType, firingMatch, group, memberOf, "
@@ -325,32 +393,37 @@ public class CassStatement {
         SELECT_ACTION = "SELECT properties FROM " + keyspace + ".actions "
                 + "WHERE tenantId = ? AND actionPlugin = ? AND actionId = ? ";
 
-        SELECT_ACTION_HISTORY = "SELECT payload FROM " + keyspace + ".actions_history " +
-                "WHERE tenantId = ? AND actionPlugin = ? AND actionId = ? AND alertId = ? and ctime = ?";
+        SELECT_ACTION_HISTORY = "SELECT payload FROM " + keyspace + ".actions_history_by_bucket " +
+                "WHERE tenantId = ? AND bucket = ? AND actionPlugin = ? AND actionId = ? AND alertId = ? and ctime = ?";
 
         SELECT_ACTION_HISTORY_ACTION_ID = "SELECT tenantId, actionPlugin, actionId, alertId, ctime FROM " +
-                keyspace + ".actions_history_actions WHERE tenantId = ? AND actionId = ?";
+                keyspace + ".actions_history_actions_by_bucket WHERE tenantId = ? AND bucket = ? AND actionId = ?";
 
         SELECT_ACTION_HISTORY_ACTION_PLUGIN = "SELECT tenantId, actionPlugin, actionId, alertId, ctime FROM " +
-                keyspace + ".actions_history WHERE tenantId = ? AND actionPlugin = ?";
+                keyspace + ".actions_history_by_bucket WHERE tenantId = ? AND bucket = ? AND actionPlugin = ?";
 
         SELECT_ACTION_HISTORY_ALERT_ID = "SELECT tenantId, actionPlugin, actionId, alertId, ctime FROM " +
-                keyspace + ".actions_history_alerts WHERE tenantId = ? AND alertId = ?";
+                keyspace + ".actions_history_alerts_by_id WHERE tenantId = ? AND alertId = ?";
 
-        SELECT_ACTION_HISTORY_BY_TENANT = "SELECT payload FROM " + keyspace + ".actions_history " +
-                "WHERE tenantId = ?";
+        SELECT_ACTION_HISTORY_BY_BUCKET = "SELECT payload FROM " + keyspace + ".actions_history_by_bucket " +
+                "WHERE tenantId = ? AND bucket = ?";
 
         SELECT_ACTION_HISTORY_CTIME_END = "SELECT tenantId, actionPlugin, actionId, alertId, ctime FROM " + keyspace +
-                ".actions_history_ctimes WHERE tenantId = ? AND ctime <= ?";
+                ".actions_history_ctimes_by_bucket WHERE tenantId = ? AND bucket = ? AND ctime <= ?";
 
         SELECT_ACTION_HISTORY_CTIME_START = "SELECT tenantId, actionPlugin, actionId, alertId, ctime FROM " + keyspace +
-                ".actions_history_ctimes WHERE tenantId = ? AND ctime >= ?";
+                ".actions_history_ctimes_by_bucket WHERE tenantId = ? AND bucket = ? AND ctime >= ?";
 
         SELECT_ACTION_HISTORY_CTIME_START_END = "SELECT tenantId, actionPlugin, actionId, alertId, ctime FROM " +
-                keyspace + ".actions_history_ctimes WHERE tenantId = ? AND ctime >= ? AND ctime <= ?";
+                keyspace + ".actions_history_ctimes_by_bucket WHERE tenantId = ? AND bucket = ? AND ctime >= ? " +
+                "AND ctime <= ?";
+
+        SELECT_ACTION_HISTORY_CTIMES_SLICE = "SELECT tenantId, actionPlugin, actionId, alertId, ctime FROM " +
+                keyspace + ".actions_history_ctimes_by_bucket WHERE tenantId = ? AND bucket = ? ";
+
 
         SELECT_ACTION_HISTORY_RESULT = "SELECT tenantId, actionPlugin, actionId, alertId, ctime FROM " +
-                keyspace + ".actions_history_results WHERE tenantId = ? AND result = ?";
+                keyspace + ".actions_history_results_by_bucket WHERE tenantId = ? AND bucket = ? AND result = ?";
 
         SELECT_ACTIONS_ALL = "SELECT tenantId, actionPlugin, actionId " + "FROM " + keyspace + ".actions ";
 
@@ -367,28 +440,54 @@ public class CassStatement {
         SELECT_ACTIONS_PLUGIN = "SELECT actionId FROM " + keyspace + ".actions "
                 + "WHERE tenantId = ? AND actionPlugin = ? ";
 
-        SELECT_ALERT = "SELECT payload FROM " + keyspace + ".alerts "
+        SELECT_ALERT = "SELECT payload FROM " + keyspace + ".alerts_by_id "
                 + "WHERE tenantId = ? AND alertId = ? ";
 
-        SELECT_ALERT_CTIME_END = "SELECT alertId FROM " + keyspace + ".alerts_ctimes "
-                + "WHERE tenantId = ? AND ctime <= ? ";
+        SELECT_ALERT_EVALS = "SELECT payload FROM " + keyspace + ".alerts_evals_by_id "
+                + "WHERE tenantId = ? AND alertId = ? ";
 
-        SELECT_ALERT_CTIME_START = "SELECT alertId FROM " + keyspace + ".alerts_ctimes "
-                + "WHERE tenantId = ? AND ctime >= ? ";
+        SELECT_ALERT_CTIME_END = "SELECT alertId FROM " + keyspace + ".alerts_ctimes_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime <= ? ";
 
-        SELECT_ALERT_CTIME_START_END = "SELECT alertId FROM " + keyspace + ".alerts_ctimes "
-                + "WHERE tenantId = ? AND ctime >= ? AND ctime <= ? ";
+        SELECT_ALERT_CTIME_START = "SELECT alertId FROM " + keyspace + ".alerts_ctimes_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime >= ? ";
 
-        SELECT_ALERT_SEVERITY = "SELECT alertId FROM " + keyspace + ".alerts_severities "
-                + "WHERE tenantId = ? AND severity = ? ";
+        SELECT_ALERT_CTIME_START_END = "SELECT alertId FROM " + keyspace + ".alerts_ctimes_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime >= ? AND ctime <= ? ";
 
-        SELECT_ALERT_STATUS = "SELECT alertId FROM " + keyspace + ".alerts_statuses "
-                + "WHERE tenantId = ? AND status = ? ";
+        SELECT_ALERT_CTIMES_SLICE = "SELECT ctime, alertId FROM " + keyspace + ".alerts_ctimes_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? ";
 
-        SELECT_ALERTS_BY_TENANT = "SELECT payload FROM " + keyspace + ".alerts " + "WHERE tenantId = ? ";
+        SELECT_ALERT_SEVERITY = "SELECT alertId FROM " + keyspace + ".alerts_severities_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND severity = ? ";
 
-        SELECT_ALERT_TRIGGER = "SELECT alertId FROM " + keyspace + ".alerts_triggers "
-                + "WHERE tenantId = ? AND triggerId = ? ";
+        SELECT_ALERT_STATUS = "SELECT alertId FROM " + keyspace + ".alerts_statuses_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND status = ? ";
+
+        SELECT_ALERT_SEVERITIES_BY_BUCKET = "SELECT severity, alertId FROM " + keyspace
+                + ".alerts_severities_by_bucket WHERE tenantId = ? AND bucket = ? ";
+
+        SELECT_ALERT_STATUSES_BY_BUCKET = "SELECT status, alertId FROM " + keyspace + ".alerts_statuses_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? ";
+
+        SELECT_ALERT_IDS_BY_BUCKET = "SELECT alertId FROM " + keyspace + ".alerts_ctimes_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? ";
+
+
+        SELECT_ALERT_TRIGGER = "SELECT alertId FROM " + keyspace + ".alerts_triggers_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND triggerId = ? ";
+
+        SELECT_ALERT_TRIGGERS_BY_BUCKET = "SELECT triggerId, alertId FROM " + keyspace + ".alerts_triggers_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? ";
+
+        SELECT_ALERTS_STATS = "SELECT status, severity, triggerId, count FROM " + keyspace
+                + ".alerts_stats_by_bucket WHERE tenantId = ? AND bucket = ? ";
+
+        SELECT_ALERTS_TAGS_STATS = "SELECT status, name, value, count FROM " + keyspace
+                + ".alerts_tags_stats_by_bucket WHERE tenantId = ? AND bucket = ? ";
+
+        SELECT_BUCKETS = "SELECT bucket FROM " + keyspace + ".buckets "
+                + "WHERE tenantId = ? AND type = ? AND bucket >= ? AND bucket <= ? ";
 
         SELECT_CONDITION_ID = "SELECT triggerId, triggerMode, type, conditionSetSize, "
                 + "conditionSetIndex, conditionId, dataId, operator, data2Id, data2Multiplier, pattern, "
@@ -424,28 +523,39 @@ public class CassStatement {
                 + "FROM " + keyspace + ".dampenings "
                 + "WHERE tenantId = ? ";
 
-        SELECT_EVENT = "SELECT payload FROM " + keyspace + ".events "
-                + "WHERE tenantId = ? AND  id = ? ";
+        SELECT_EVENT = "SELECT payload FROM " + keyspace + ".events_by_id "
+                + "WHERE tenantId = ? AND id = ? ";
 
-        SELECT_EVENT_CATEGORY = "SELECT id FROM " + keyspace + ".events_categories "
-                + "WHERE tenantId = ? AND category = ? ";
+        SELECT_EVENT_CATEGORY = "SELECT id FROM " + keyspace + ".events_categories_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND category = ? ";
 
-        SELECT_EVENT_CTIME_END = "SELECT id FROM " + keyspace + ".events_ctimes "
-                + "WHERE tenantId = ? AND ctime <= ? ";
+        SELECT_EVENT_CTIME_END = "SELECT id FROM " + keyspace + ".events_ctimes_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime <= ? ";
 
-        SELECT_EVENT_CTIME_START = "SELECT id FROM " + keyspace + ".events_ctimes "
-                + "WHERE tenantId = ? AND ctime >= ? ";
+        SELECT_EVENT_CTIME_START = "SELECT id FROM " + keyspace + ".events_ctimes_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime >= ? ";
 
-        SELECT_EVENT_CTIME_START_END = "SELECT id FROM " + keyspace + ".events_ctimes "
-                + "WHERE tenantId = ? AND ctime >= ? AND ctime <= ? ";
+        SELECT_EVENT_CTIME_START_END = "SELECT id FROM " + keyspace + ".events_ctimes_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime >= ? AND ctime <= ? ";
 
-        SELECT_EVENT_TRIGGER = "SELECT id FROM " + keyspace + ".events_triggers "
-                + "WHERE tenantId = ? AND triggerId = ? ";
+        SELECT_EVENT_CTIMES_SLICE = "SELECT ctime, id FROM " + keyspace + ".events_ctimes_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? ";
+
+        SELECT_EVENT_TRIGGER = "SELECT id FROM " + keyspace + ".events_triggers_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? AND triggerId = ? ";
+
+        SELECT_EVENT_TRIGGERS_BY_BUCKET = "SELECT triggerId, id FROM " + keyspace + ".events_triggers_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? ";
+
+        SELECT_MEMBER_TRIGGERS = "SELECT memberId FROM " + keyspace + ".member_triggers "
+                + "WHERE tenantId = ? AND groupId = ? ";
 
         //SELECT_EVENTS_BY_PARTITION = "SELECT payload FROM " + keyspace + ".events "
         //        + "WHERE tenantId = ? AND category = ? ";
 
-        SELECT_EVENTS_BY_TENANT = "SELECT payload FROM " + keyspace + ".events " + "WHERE tenantId = ? ";
+        SELECT_EVENT_IDS_BY_BUCKET = "SELECT id FROM " + keyspace + ".events_ctimes_by_bucket "
+                + "WHERE tenantId = ? AND bucket = ? ";
+
 
         // This is for use as a pre-query to gather all partitions to be subsequently queried. If the
         // partition key changes this should also change.
@@ -473,6 +583,10 @@ public class CassStatement {
                 + "FROM " + keyspace + ".triggers_actions "
                 + "WHERE tenantId = ? AND triggerId = ? ";
 
+        SELECT_TRIGGER_ACTIONS_TENANT = "SELECT tenantId, triggerId, actionPlugin, actions "
+                + "FROM " + keyspace + ".triggers_actions "
+                + "WHERE tenantId = ? ";
+
         SELECT_TRIGGER_CONDITIONS = "SELECT triggerId, triggerMode, type, conditionSetSize, "
                 + "conditionSetIndex, conditionId, dataId, operator, data2Id, data2Multiplier, pattern, "
                 + "ignoreCase, threshold, operatorLow, operatorHigh, thresholdLow, thresholdHigh, inRange, "
@@ -502,6 +616,11 @@ public class CassStatement {
                 + "firingMatch, group, memberOf, name, orphan, severity, tags "
                 + "FROM " + keyspace + ".triggers ";
 
+        SELECT_TRIGGERS_IDS = "SELECT tenantId, id, autoDisable, autoEnable, autoResolve, autoResolveAlerts, "
+                + "autoResolveMatch, context, description, enabled, eventCategory, eventText, eventType, "
+                + "firingMatch, group, memberOf, name, orphan, severity, tags "
+                + "FROM " + keyspace + ".triggers WHERE tenantId = ? AND id IN ? ";
+
         SELECT_TRIGGERS_TENANT = "SELECT tenantId, id, autoDisable, autoEnable, autoResolve, autoResolveAlerts, "
                 + "autoResolveMatch, context, description, enabled, eventCategory, eventText, eventType, "
                 + "firingMatch, group, memberOf, name, orphan, severity, tags "
@@ -510,16 +629,20 @@ public class CassStatement {
         UPDATE_ACTION = "UPDATE " + keyspace + ".actions SET properties = ? "
                 + "WHERE tenantId = ? AND actionPlugin = ? AND actionId = ? ";
 
-        UPDATE_ACTION_HISTORY = "UPDATE " + keyspace + ".actions_history " +
+        UPDATE_ACTION_HISTORY = "UPDATE " + keyspace + ".actions_history_by_bucket USING TTL ? " +
                 "SET payload = ? " +
-                "WHERE tenantId = ? AND actionPlugin = ? AND actionId = ? AND alertId = ? AND ctime = ?";
+                "WHERE tenantId = ? AND bucket = ? AND actionPlugin = ? AND actionId = ? AND alertId = ? AND ctime = ?";
 
         UPDATE_ACTION_PLUGIN = "UPDATE " + keyspace + ".action_plugins SET properties = ? WHERE actionPlugin = ? ";
 
         UPDATE_ACTION_PLUGIN_DEFAULT_PROPERTIES = "UPDATE " + keyspace + ".action_plugins " +
                 "SET properties = ?, defaultProperties = ? WHERE actionPlugin = ? ";
 
-        UPDATE_ALERT = "UPDATE " + keyspace + ".alerts SET payload = ? WHERE tenantId = ? AND alertId = ? ";
+        UPDATE_ALERTS_STATS = "UPDATE " + keyspace + ".alerts_stats_by_bucket SET count = count + ? "
+                + "WHERE tenantId = ? AND bucket = ? AND status = ? AND severity = ? AND triggerId = ? ";
+
+        UPDATE_ALERTS_TAGS_STATS = "UPDATE " + keyspace + ".alerts_tags_stats_by_bucket SET count = count + ? "
+                + "WHERE tenantId = ? AND bucket = ? AND status = ? AND name = ? AND value = ? ";
 
         UPDATE_DAMPENING_ID = "UPDATE " + keyspace + ".dampenings "
                 + "SET type = ?, evalTrueSetting = ?, evalTotalSetting = ?, evalTimeSetting = ? "
@@ -531,13 +654,92 @@ public class CassStatement {
                 + "group = ?, memberOf = ?, name = ?, orphan = ?, severity = ?, tags = ? "
                 + "WHERE tenantId = ? AND id = ? ";
 
+        Map<String, String> statementNames = new HashMap<>();
+        for (Field field : CassStatement.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                try {
+                    statementNames.putIfAbsent((String) field.get(null), field.getName());
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        names = Collections.unmodifiableMap(statementNames);
+    }
+
+    /**
+     * @param statement a statement
+     * @return the name of the constant of the statement, or the statement itself if it is not one of this class
+     */
+    public static String name(String statement) {
+        String name = names.get(statement);
+        return null == name ? statement : name;
+    }
+
+    /**
+     * @return the number of statements prepared
+     */
+    public static int size() {
+        return prepared.size() + preparedOnUse.size();
+    }
+
+    /**
+     * Prepare all the statements of this class, in parallel. A statement that fails, as one on a legacy table that
+     * was dropped, is left to be prepared on use.
+     *
+     * @param session the Cassandra session
+     */
+    public static void prepareAll(Session session) {
+        Map<String, ListenableFuture<PreparedStatement>> futures = new HashMap<>();
+        for (String statement : names.keySet()) {
+            futures.put(statement, session.prepareAsync(statement));
+        }
+        Map<String, PreparedStatement> result = new HashMap<>(prepared);
+        for (Map.Entry<String, ListenableFuture<PreparedStatement>> future : futures.entrySet()) {
+            try {
+                result.put(future.getKey(), future.getValue().get());
+            } catch (Exception e) {
+                log.debugf("Cannot prepare %s: %s", names.get(future.getKey()), e);
+            }
+        }
+        prepared = Collections.unmodifiableMap(result);
+        log.debugf("Prepared %s of %s statements", result.size(), names.size());
+    }
+
+    /**
+     * Complete a *_SLICE select to read a page of a partition in clustering order. The statement binds the partition
+     * key, the restrictions, the clustering key after which the page starts and the limit, in that order.
+     *
+     * @param select a *_SLICE select
+     * @param restrictions additional restrictions on the clustering columns, or empty
+     * @param clustering the clustering columns of the table
+     * @param after true if the page starts after a clustering key
+     * @param descending true to read in reverse clustering order
+     * @return the statement
+     */
+    public static String slice(String select, String restrictions, String[] clustering, boolean after,
+            boolean descending) {
+        StringBuilder statement = new StringBuilder(select).append(restrictions);
+        if (after) {
+            statement.append("AND (").append(String.join(", ", clustering)).append(descending ? ") < (" : ") > (");
+            for (int i = 0; i < clustering.length; i++) {
+                statement.append(i == 0 ? "?" : ", ?");
+            }
+            statement.append(") ");
+        }
+        statement.append("ORDER BY ").append(clustering[0]).append(descending ? " DESC " : " ASC ")
+                .append("LIMIT ?");
+        return statement.toString();
     }
 
-    public static synchronized PreparedStatement get(Session session, String statement) {
-        PreparedStatement result = statementMap.get(statement);
+    public static PreparedStatement get(Session session, String statement) {
+        PreparedStatement result = prepared.get(statement);
         if (null == result) {
-            result = session.prepare(statement);
-            statementMap.put(statement, result);
+            // get() first, computeIfAbsent() locks the bin even when the statement is there
+            result = preparedOnUse.get(statement);
+            if (null == result) {
+                result = preparedOnUse.computeIfAbsent(statement, session::prepare);
+            }
         }
         return result;
     }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Metrics of the executions of a Cassandra statement, latencies in milliseconds.
+ */
+public class CassStatementStats {
+
+    private final String statement;
+    private final long requests;
+    private final long errors;
+    private final long timeouts;
+    private final double meanLatency;
+    private final double maxLatency;
+    private final double p50Latency;
+    private final double p95Latency;
+    private final double p99Latency;
+
+    @ConstructorProperties({ "statement", "requests", "errors", "timeouts", "meanLatency", "maxLatency",
+            "p50Latency", "p95Latency", "p99Latency" })
+    public CassStatementStats(String statement, long requests, long errors, long timeouts, double meanLatency,
+            double maxLatency, double p50Latency, double p95Latency, double p99Latency) {
+        this.statement = statement;
+        this.requests = requests;
+        this.errors = errors;
+        this.timeouts = timeouts;
+        this.meanLatency = meanLatency;
+        this.maxLatency = maxLatency;
+        this.p50Latency = p50Latency;
+        this.p95Latency = p95Latency;
+        this.p99Latency = p99Latency;
+    }
+
+    /**
+     * @return the name of the statement in {@link CassStatement}, or the statement itself
+     */
+    public String getStatement() {
+        return statement;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public double getMeanLatency() {
+        return meanLatency;
+    }
+
+    public double getMaxLatency() {
+        return maxLatency;
+    }
+
+    public double getP50Latency() {
+        return p50Latency;
+    }
+
+    public double getP95Latency() {
+        return p95Latency;
+    }
+
+    public double getP99Latency() {
+        return p99Latency;
+    }
+
+    @Override
+    public String toString() {
+        return "CassStatementStats [statement=" + statement + ", requests=" + requests + ", errors=" + errors
+                + ", timeouts=" + timeouts + ", meanLatency=" + meanLatency + ", maxLatency=" + maxLatency
+                + ", p50Latency=" + p50Latency + ", p95Latency=" + p95Latency + ", p99Latency=" + p99Latency + "]";
+    }
+}
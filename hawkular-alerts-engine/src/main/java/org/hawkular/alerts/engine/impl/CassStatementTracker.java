@@ -0,0 +1,221 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.hawkular.alerts.engine.log.MsgLogger;
+import org.jboss.logging.Logger;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.LatencyTracker;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.QueryTimeoutException;
+
+/**
+ * Latencies, errors and timeouts of every statement executed by the engine, sync or async.
+ *
+ * It is registered in the Cassandra cluster, so the driver reports every request without wrapping the calls to the
+ * session. A request that takes hawkular-alerts.cassandra-slow-threshold milliseconds or more is logged as slow.
+ */
+final class CassStatementTracker implements LatencyTracker, CassStatementsMXBean {
+    private static final MsgLogger msgLog = MsgLogger.LOGGER;
+    private static final Logger log = Logger.getLogger(CassStatementTracker.class);
+
+    static final String SLOW_THRESHOLD = "hawkular-alerts.cassandra-slow-threshold";
+    static final String DEFAULT_SLOW_THRESHOLD = "1000";
+
+    private static final String OBJECT_NAME = "org.hawkular.alerts:type=CassStatements";
+
+    static final String BATCH = "BATCH";
+    static final String OTHER = "OTHER";
+
+    /*
+        Bound of the statements tracked apart, the rest are tracked as OTHER
+     */
+    private static final int MAX_STATEMENTS = 1000;
+
+    private static final CassStatementTracker instance = new CassStatementTracker(Long.parseLong(
+            AlertProperties.getProperty(SLOW_THRESHOLD, DEFAULT_SLOW_THRESHOLD)));
+
+    static {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(instance, name);
+            }
+        } catch (Exception e) {
+            log.debugf("Cannot register %s: %s", OBJECT_NAME, e);
+        }
+    }
+
+    private static final class Metrics {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+    }
+
+    private final ConcurrentMap<String, Metrics> statements = new ConcurrentHashMap<>();
+    private final LongAdder slowRequests = new LongAdder();
+    private volatile long slowThreshold;
+
+    CassStatementTracker(long slowThreshold) {
+        setSlowThreshold(slowThreshold);
+    }
+
+    static CassStatementTracker getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param statement a statement executed
+     * @return the name of the statement in {@link CassStatement}, or the statement itself
+     */
+    static String name(Statement statement) {
+        if (statement instanceof BoundStatement) {
+            return CassStatement.name(((BoundStatement) statement).preparedStatement().getQueryString());
+        }
+        if (statement instanceof BatchStatement) {
+            return BATCH;
+        }
+        if (statement instanceof RegularStatement) {
+            return CassStatement.name(((RegularStatement) statement).getQueryString());
+        }
+        return statement.getClass().getSimpleName();
+    }
+
+    /*
+        Timeouts of the coordinator are QueryTimeoutExceptions, the client-side timeout exception changed of package
+        between driver versions so it is matched by name
+     */
+    static boolean isTimeout(Exception exception) {
+        return exception instanceof QueryTimeoutException
+                || exception.getClass().getSimpleName().equals("OperationTimedOutException");
+    }
+
+    @Override
+    public void update(Host host, Statement statement, Exception exception, long newLatencyNanos) {
+        record(name(statement), null == host ? null : host.toString(), exception, newLatencyNanos);
+    }
+
+    /**
+     * Hook of the drivers whose LatencyTracker is notified of its registration.
+     */
+    public void onRegister(Cluster cluster) {
+    }
+
+    /**
+     * Hook of the drivers whose LatencyTracker is notified of its unregistration.
+     */
+    public void onUnregister(Cluster cluster) {
+    }
+
+    void record(String statement, String host, Exception exception, long latencyNanos) {
+        Metrics metrics = statements.get(statement);
+        if (null == metrics) {
+            metrics = statements.size() < MAX_STATEMENTS ? statements.computeIfAbsent(statement, s -> new Metrics())
+                    : statements.computeIfAbsent(OTHER, s -> new Metrics());
+        }
+        metrics.latency.update(latencyNanos);
+        if (null != exception) {
+            metrics.errors.increment();
+            if (isTimeout(exception)) {
+                metrics.timeouts.increment();
+            }
+        }
+        long latency = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+        long threshold = slowThreshold;
+        if (threshold > 0 && latency >= threshold) {
+            slowRequests.increment();
+            msgLog.warnSlowStatement(statement, latency, host);
+        }
+    }
+
+    @Override
+    public int getPrepared() {
+        return CassStatement.size();
+    }
+
+    @Override
+    public long getRequests() {
+        return statements.values().stream().mapToLong(m -> m.latency.getCount()).sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return statements.values().stream().mapToLong(m -> m.errors.sum()).sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return statements.values().stream().mapToLong(m -> m.timeouts.sum()).sum();
+    }
+
+    @Override
+    public long getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    @Override
+    public void setSlowThreshold(long slowThreshold) {
+        if (slowThreshold < 0) {
+            throw new IllegalArgumentException("Slow threshold must be non negative: " + slowThreshold);
+        }
+        this.slowThreshold = slowThreshold;
+    }
+
+    @Override
+    public long getSlowRequests() {
+        return slowRequests.sum();
+    }
+
+    @Override
+    public List<CassStatementStats> getStatementStats() {
+        List<CassStatementStats> stats = new ArrayList<>(statements.size());
+        for (Map.Entry<String, Metrics> statement : statements.entrySet()) {
+            Metrics metrics = statement.getValue();
+            LatencyHistogram latency = metrics.latency;
+            stats.add(new CassStatementStats(statement.getKey(), latency.getCount(), metrics.errors.sum(),
+                    metrics.timeouts.sum(), latency.getMean(), latency.getMax(), latency.getPercentile(0.5),
+                    latency.getPercentile(0.95), latency.getPercentile(0.99)));
+        }
+        stats.sort(Comparator.comparingLong(CassStatementStats::getRequests).reversed());
+        return stats;
+    }
+
+    @Override
+    public void reset() {
+        statements.clear();
+        slowRequests.reset();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.List;
+
+/**
+ * Metrics of the Cassandra statements executed by the engine, registered as
+ * <code>org.hawkular.alerts:type=CassStatements</code>.
+ */
+public interface CassStatementsMXBean {
+
+    /**
+     * @return the number of prepared statements
+     */
+    int getPrepared();
+
+    /**
+     * @return the number of requests executed, a batch is one request
+     */
+    long getRequests();
+
+    /**
+     * @return the number of requests failed
+     */
+    long getErrors();
+
+    /**
+     * @return the number of requests failed by a timeout, of the client or of the coordinator
+     */
+    long getTimeouts();
+
+    /**
+     * @return the latency in milliseconds from which a request is logged as slow, 0 if disabled
+     */
+    long getSlowThreshold();
+
+    /**
+     * @param slowThreshold the latency in milliseconds from which a request is logged as slow, 0 to disable
+     */
+    void setSlowThreshold(long slowThreshold);
+
+    /**
+     * @return the number of requests logged as slow
+     */
+    long getSlowRequests();
+
+    /**
+     * @return the metrics of each statement, the most executed first
+     */
+    List<CassStatementStats> getStatementStats();
+
+    /**
+     * Reset the counters.
+     */
+    void reset();
+}
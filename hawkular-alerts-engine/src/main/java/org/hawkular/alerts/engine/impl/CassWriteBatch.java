@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * Writes collected by partition and sent as UNLOGGED batches.
+ *
+ * Statements added with the same partition key are grouped in batches of at most
+ * hawkular-alerts.cassandra-batch-size statements, each batch is a single request to the replicas of that partition.
+ * Statements that cannot be batched, i.e. conditional updates, are added without a partition key and sent alone.
+ * Counter updates cannot be mixed with other writes, they are added apart and sent as COUNTER batches.
+ * All the requests go through the {@link CassWriteLimiter}.
+ *
+ * A batch is not thread safe, it is meant to collect the writes of a single operation.
+ */
+final class CassWriteBatch {
+
+    static final String BATCH_SIZE = "hawkular-alerts.cassandra-batch-size";
+    static final String DEFAULT_BATCH_SIZE = "20";
+
+    private static final int batchSize = Integer.parseInt(AlertProperties.getProperty(BATCH_SIZE,
+            DEFAULT_BATCH_SIZE));
+
+    private final Session session;
+    private final Map<String, List<Statement>> partitions = new LinkedHashMap<>();
+    private final Map<String, List<Statement>> counters = new LinkedHashMap<>();
+    private final List<Statement> singles = new ArrayList<>();
+    private final List<Runnable> onSuccess = new ArrayList<>();
+    private int size = 0;
+
+    CassWriteBatch(Session session) {
+        this.session = session;
+    }
+
+    Session getSession() {
+        return session;
+    }
+
+    /**
+     * @param partition the partition key of the statement, statements of the same partition key are batched
+     * @param statement the write statement
+     */
+    void add(String partition, Statement statement) {
+        partitions.computeIfAbsent(partition, p -> new ArrayList<>()).add(statement);
+        size++;
+    }
+
+    /**
+     * @param partition the partition key of the counter update, updates of the same partition key are batched
+     * @param statement the counter update statement
+     */
+    void addCounter(String partition, Statement statement) {
+        counters.computeIfAbsent(partition, p -> new ArrayList<>()).add(statement);
+        size++;
+    }
+
+    /**
+     * @param statement a write statement to send alone
+     */
+    void add(Statement statement) {
+        singles.add(statement);
+        size++;
+    }
+
+    /**
+     * @param action to run once the pending statements are written
+     */
+    void onSuccess(Runnable action) {
+        onSuccess.add(action);
+    }
+
+    /**
+     * @return the number of pending statements
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Send the pending statements and wait until they are written.
+     *
+     * @throws Exception if any of the writes fails
+     */
+    void execute() throws Exception {
+        CassWriteLimiter limiter = CassWriteLimiter.getInstance();
+        List<ResultSetFuture> futures = new ArrayList<>();
+        List<Runnable> actions = new ArrayList<>(onSuccess);
+        try {
+            send(limiter, partitions, BatchStatement.Type.UNLOGGED, futures);
+            send(limiter, counters, BatchStatement.Type.COUNTER, futures);
+            for (Statement statement : singles) {
+                futures.add(limiter.executeAsync(session, statement, 1));
+            }
+        } finally {
+            partitions.clear();
+            counters.clear();
+            singles.clear();
+            onSuccess.clear();
+            size = 0;
+        }
+        Futures.allAsList(futures).get();
+        actions.forEach(Runnable::run);
+    }
+
+    private void send(CassWriteLimiter limiter, Map<String, List<Statement>> statementsByPartition,
+            BatchStatement.Type type, List<ResultSetFuture> futures) throws InterruptedException {
+        for (List<Statement> statements : statementsByPartition.values()) {
+            for (int i = 0; i < statements.size(); i += batchSize) {
+                List<Statement> chunk = statements.subList(i, Math.min(i + batchSize, statements.size()));
+                if (chunk.size() == 1) {
+                    futures.add(limiter.executeAsync(session, chunk.get(0), 1));
+                } else {
+                    BatchStatement batch = new BatchStatement(type);
+                    batch.addAll(chunk);
+                    futures.add(limiter.executeAsync(session, batch, chunk.size()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jboss.logging.Logger;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * Bound of the write requests in flight to Cassandra.
+ *
+ * A write waits for a permit before it is sent and releases it on completion, so a storm of alerts or events is
+ * written at the pace of the cluster instead of overrunning the connection pool of the driver. The maximum number of
+ * requests in flight is defined by the hawkular-alerts.cassandra-max-inflight-writes property.
+ */
+final class CassWriteLimiter implements CassWritesMXBean {
+    private static final Logger log = Logger.getLogger(CassWriteLimiter.class);
+
+    static final String MAX_INFLIGHT = "hawkular-alerts.cassandra-max-inflight-writes";
+    static final String DEFAULT_MAX_INFLIGHT = "128";
+
+    private static final String OBJECT_NAME = "org.hawkular.alerts:type=CassWrites";
+
+    private static final CassWriteLimiter instance = new CassWriteLimiter(Integer.parseInt(
+            AlertProperties.getProperty(MAX_INFLIGHT, DEFAULT_MAX_INFLIGHT)));
+
+    static {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(instance, name);
+            }
+        } catch (Exception e) {
+            log.debugf("Cannot register %s: %s", OBJECT_NAME, e);
+        }
+    }
+
+    private final int maxInFlight;
+    private final Semaphore permits;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder latency = new LongAdder();
+    private final LongAccumulator maxLatency = new LongAccumulator(Long::max, 0);
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder throttledTime = new LongAdder();
+
+    CassWriteLimiter(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in flight writes must be positive: " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    static CassWriteLimiter getInstance() {
+        return instance;
+    }
+
+    /**
+     * Send a write once there is a permit available, waiting for it if needed.
+     *
+     * @param session the Cassandra session
+     * @param statement the write statement, a batch counts as one request
+     * @param size the number of statements of the write
+     * @return the future of the write
+     * @throws InterruptedException if interrupted while waiting for a permit
+     */
+    ResultSetFuture executeAsync(Session session, Statement statement, int size) throws InterruptedException {
+        acquire();
+        long sent = System.nanoTime();
+        ResultSetFuture future;
+        try {
+            future = session.executeAsync(statement);
+        } catch (RuntimeException e) {
+            permits.release();
+            errors.increment();
+            throw e;
+        }
+        requests.increment();
+        statements.add(size);
+        Futures.addCallback(future, new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(ResultSet result) {
+                release(sent);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                errors.increment();
+                release(sent);
+            }
+        });
+        return future;
+    }
+
+    void acquire() throws InterruptedException {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        long start = System.nanoTime();
+        permits.acquire();
+        throttled.increment();
+        throttledTime.add(System.nanoTime() - start);
+    }
+
+    private void release(long sent) {
+        permits.release();
+        long elapsed = System.nanoTime() - sent;
+        latency.add(elapsed);
+        maxLatency.accumulate(elapsed);
+    }
+
+    @Override
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    @Override
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanLatency() {
+        long n = requests.sum();
+        return n == 0 ? 0 : (double) TimeUnit.NANOSECONDS.toMicros(latency.sum()) / n / 1000;
+    }
+
+    @Override
+    public long getMaxLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatency.get());
+    }
+
+    @Override
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    @Override
+    public long getThrottledTime() {
+        return TimeUnit.NANOSECONDS.toMillis(throttledTime.sum());
+    }
+
+    @Override
+    public void reset() {
+        requests.reset();
+        statements.reset();
+        errors.reset();
+        latency.reset();
+        maxLatency.reset();
+        throttled.reset();
+        throttledTime.reset();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+/**
+ * Metrics of the writes of alerts, events and actions history, registered as
+ * <code>org.hawkular.alerts:type=CassWrites</code>.
+ */
+public interface CassWritesMXBean {
+
+    /**
+     * @return the maximum number of write requests in flight
+     */
+    int getMaxInFlight();
+
+    /**
+     * @return the number of write requests in flight
+     */
+    int getInFlight();
+
+    /**
+     * @return the number of write requests sent, a batch is one request
+     */
+    long getRequests();
+
+    /**
+     * @return the number of statements written, alone or in batches
+     */
+    long getStatements();
+
+    /**
+     * @return the number of write requests failed
+     */
+    long getErrors();
+
+    /**
+     * @return the mean latency of the write requests in milliseconds
+     */
+    double getMeanLatency();
+
+    /**
+     * @return the max latency of the write requests in milliseconds
+     */
+    long getMaxLatency();
+
+    /**
+     * @return the number of write requests that waited for a request in flight to complete
+     */
+    long getThrottled();
+
+    /**
+     * @return the total time waited by the throttled write requests in milliseconds
+     */
+    long getThrottledTime();
+
+    /**
+     * Reset the counters.
+     */
+    void reset();
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+
+import org.hawkular.alerts.api.model.paging.Pager;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+/**
+ * A page of rows of a time bucketed ctime index table read in clustering order, for the cursor mode of the
+ * {@link Pager}.
+ *
+ * The page is a slice starting after the clustering key of the cursor and limited to the page size plus one row,
+ * the extra row only tells whether there is a next page. When a bucket has not enough rows the slice continues on the
+ * next bucket in the reading direction. Reading cost is proportional to the page size, not to the size of the
+ * partitions.
+ */
+final class ClusteringSlice {
+
+    private final List<Row> rows;
+    private final String nextCursor;
+
+    private ClusteringSlice(List<Row> rows, String nextCursor) {
+        this.rows = rows;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return the rows of the page in the pager order
+     */
+    List<Row> getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the cursor of the next page, or null if this is the last one
+     */
+    String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Read a page of a ctime index table, partitioned by (tenantId, bucket) and ordered by ctime.
+     *
+     * @see #readCtimesAsync(Session, Pager, String, String, String, String[], Long, Long)
+     * @return the page of rows
+     * @throws IllegalArgumentException if the cursor of the pager is not valid for this read
+     */
+    static ClusteringSlice readCtimes(Session session, Pager pager, String tenantId, String type, String select,
+            String[] clustering, Long startTime, Long endTime) {
+        try {
+            return readCtimesAsync(session, pager, tenantId, type, select, clustering, startTime, endTime).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Read a page of a ctime index table, partitioned by (tenantId, bucket) and ordered by ctime, without blocking.
+     * The buckets are read one after the other, each read sent on the completion of the previous one, until the page
+     * is full.
+     *
+     * Cassandra does not allow to mix single and multi column restrictions on the clustering columns, so the ctime
+     * range can not be combined with the cursor restriction in the bucket of the cursor. There the bound opposite to
+     * the reading direction ends the page on the client side.
+     *
+     * @param session the Cassandra session
+     * @param pager a limited cursor pager ordered by ctime
+     * @param tenantId the tenant to read
+     * @param type the type of the buckets to read, one of the {@link TimeBuckets} types
+     * @param select the select of the ctime index table, restricted by tenantId and bucket
+     * @param clustering the clustering columns of the table, starting with ctime
+     * @param startTime the start of the ctime range, or null
+     * @param endTime the end of the ctime range, or null
+     * @return a future completed with the page of rows, or failed with an IllegalArgumentException if the cursor of
+     * the pager is not valid for this read
+     */
+    static CompletableFuture<ClusteringSlice> readCtimesAsync(Session session, Pager pager, String tenantId,
+            String type, String select, String[] clustering, Long startTime, Long endTime) {
+        Read read;
+        try {
+            read = new Read(session, pager, tenantId, select, clustering, startTime, endTime);
+        } catch (IllegalArgumentException e) {
+            return AsyncQueries.failed(e);
+        }
+
+        /*
+            Buckets from the one of the cursor, or the start of the range, in the reading direction
+         */
+        Long fromTime = startTime;
+        Long toTime = endTime;
+        if (null != read.cursorCtime) {
+            if (read.descending) {
+                toTime = null == toTime ? read.cursorCtime : Math.min(toTime, read.cursorCtime);
+            } else {
+                fromTime = null == fromTime ? read.cursorCtime : Math.max(fromTime, read.cursorCtime);
+            }
+        }
+        return TimeBuckets.bucketsAsync(session, tenantId, type, fromTime, toTime).thenCompose(buckets -> {
+            if (read.descending) {
+                Collections.reverse(buckets);
+            }
+            return read.next(buckets.iterator());
+        }).thenApply(v -> read.slice());
+    }
+
+    /*
+        The state of a slice read, its rows are only accessed by the callback of the last request
+     */
+    private static final class Read {
+        private final Session session;
+        private final Pager pager;
+        private final String tenantId;
+        private final String select;
+        private final String[] clustering;
+        private final PageCursor cursor;
+        private final Long cursorCtime;
+        private final boolean descending;
+        private final String restrictions;
+        private final List<Object> restrictionValues = new ArrayList<>(2);
+        private final Predicate<Row> within;
+        private final int limit;
+        private final List<Row> rows;
+        private boolean ended;
+
+        private Read(Session session, Pager pager, String tenantId, String select, String[] clustering,
+                Long startTime, Long endTime) {
+            this.session = session;
+            this.pager = pager;
+            this.tenantId = tenantId;
+            this.select = select;
+            this.clustering = clustering;
+            cursor = PageCursor.decode(pager.getCursor(), PageCursor.Type.KEY, pager.getOrder());
+            descending = !pager.getOrder().get(0).isAscending();
+            if (cursor != null) {
+                if (cursor.getValues().size() != clustering.length) {
+                    throw new IllegalArgumentException("Invalid cursor: " + pager.getCursor());
+                }
+                try {
+                    cursorCtime = Long.valueOf(cursor.getValues().get(0));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid cursor: " + pager.getCursor(), e);
+                }
+            } else {
+                cursorCtime = null;
+            }
+
+            StringBuilder restrictions = new StringBuilder();
+            if (null != startTime) {
+                restrictions.append("AND ctime >= ? ");
+                restrictionValues.add(startTime);
+            }
+            if (null != endTime) {
+                restrictions.append("AND ctime <= ? ");
+                restrictionValues.add(endTime);
+            }
+            this.restrictions = restrictions.toString();
+            if (!descending && null != endTime) {
+                within = row -> row.getLong("ctime") <= endTime;
+            } else if (descending && null != startTime) {
+                within = row -> row.getLong("ctime") >= startTime;
+            } else {
+                within = null;
+            }
+
+            limit = pager.getPageSize() + 1;
+            rows = new ArrayList<>(limit);
+        }
+
+        private CompletableFuture<Void> next(Iterator<Long> buckets) {
+            if (ended || rows.size() == limit || !buckets.hasNext()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            Long bucket = buckets.next();
+            boolean after = null != cursorCtime && bucket == TimeBuckets.bucket(cursorCtime);
+            String cql = CassStatement.slice(select, after ? "" : restrictions, clustering, after, descending);
+            PreparedStatement selectSlice = CassStatement.get(session, cql);
+
+            List<Object> values = new ArrayList<>();
+            values.add(tenantId);
+            values.add(bucket);
+            if (after) {
+                for (String value : cursor.getValues()) {
+                    values.add(bindValue(selectSlice, values.size(), value));
+                }
+            } else {
+                values.addAll(restrictionValues);
+            }
+            int remaining = limit - rows.size();
+            values.add(remaining);
+
+            /*
+                The fetch size covers the limit, so iterating the result never fetches a page on the callback
+             */
+            Statement bound = selectSlice.bind(values.toArray()).setFetchSize(remaining);
+            return AsyncQueries.one(session.executeAsync(bound)).thenCompose(rs -> add(rs, buckets));
+        }
+
+        private CompletableFuture<Void> add(ResultSet rs, Iterator<Long> buckets) {
+            for (Row row : rs) {
+                if (within != null && !within.test(row)) {
+                    ended = true;
+                    break;
+                }
+                rows.add(row);
+            }
+            return next(buckets);
+        }
+
+        private ClusteringSlice slice() {
+            String nextCursor = null;
+            if (rows.size() == limit) {
+                rows.remove(rows.size() - 1);
+                Row last = rows.get(rows.size() - 1);
+                String[] key = new String[clustering.length];
+                for (int i = 0; i < clustering.length; i++) {
+                    key[i] = keyValue(last, clustering[i]);
+                }
+                nextCursor = new PageCursor(PageCursor.Type.KEY, pager.getOrder(), key).encode();
+            }
+            return new ClusteringSlice(rows, nextCursor);
+        }
+    }
+
+    private static String keyValue(Row row, String column) {
+        if (row.getColumnDefinitions().getType(column).getName() == DataType.Name.BIGINT) {
+            return String.valueOf(row.getLong(column));
+        }
+        return row.getString(column);
+    }
+
+    private static Object bindValue(PreparedStatement statement, int index, String value) {
+        if (statement.getVariables().getType(index).getName() == DataType.Name.BIGINT) {
+            return Long.valueOf(value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.jboss.logging.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Read-through cache of the definitions read on every evaluation and every action: triggers, their conditions and
+ * dampenings, actions and default properties of action plugins.
+ *
+ * Definitions are kept serialized and every read returns a new copy, so callers can modify what they get as they do
+ * with the definitions read from the backend. The cache holds up to hawkular-alerts.definitions-cache-size entries,
+ * least recently used are evicted first, and an entry expires hawkular-alerts.definitions-cache-ttl seconds after it
+ * was written, as a safety net for a lost invalidation. A size of 0 disables the cache.
+ *
+ * A definition read from the backend is cached only if no invalidation happened meanwhile, so a read racing with a
+ * change never leaves the previous definition in the cache.
+ */
+final class DefinitionsCache implements DefinitionsCacheMXBean {
+    private static final Logger log = Logger.getLogger(DefinitionsCache.class);
+
+    static final String CACHE_SIZE = "hawkular-alerts.definitions-cache-size";
+    static final String DEFAULT_CACHE_SIZE = "10000";
+    static final String CACHE_TTL = "hawkular-alerts.definitions-cache-ttl";
+    static final String DEFAULT_CACHE_TTL = "300";
+
+    private static final String OBJECT_NAME = "org.hawkular.alerts:type=DefinitionsCache";
+
+    private static final String TRIGGER = "trigger";
+    private static final String CONDITIONS = "conditions";
+    private static final String DAMPENINGS = "dampenings";
+    private static final String ACTION = "action";
+    private static final String ACTION_PLUGIN = "actionPlugin";
+
+    /**
+     * Read of a definition from the backend.
+     *
+     * @param <T> type of the definition
+     */
+    @FunctionalInterface
+    interface Loader<T> {
+        T load() throws Exception;
+    }
+
+    private final long maxSize;
+    private final Cache<String, byte[]> cache;
+
+    /*
+        Incremented on every invalidation, a load is cached only if the generation has not changed since it started
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    DefinitionsCache() {
+        this(Long.parseLong(AlertProperties.getProperty(CACHE_SIZE, DEFAULT_CACHE_SIZE)),
+                Long.parseLong(AlertProperties.getProperty(CACHE_TTL, DEFAULT_CACHE_TTL)), TimeUnit.SECONDS);
+    }
+
+    DefinitionsCache(long maxSize, long ttl, TimeUnit unit) {
+        this.maxSize = Math.max(0, maxSize);
+        if (this.maxSize > 0) {
+            CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(this.maxSize);
+            if (ttl > 0) {
+                builder.expireAfterWrite(ttl, unit);
+            }
+            cache = builder.<String, byte[]> removalListener(notification -> {
+                if (notification.wasEvicted()) {
+                    evictions.increment();
+                }
+            }).build();
+        } else {
+            cache = null;
+        }
+    }
+
+    /**
+     * Register this cache as the DefinitionsCache MBean, replacing a previous registration.
+     */
+    void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (Exception e) {
+            log.debugf("Cannot register %s: %s", OBJECT_NAME, e);
+        }
+    }
+
+    boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * @param key the key of the definition
+     * @param loader the read of the definition from the backend, used on a miss
+     * @param <T> type of the definition
+     * @return a copy of the cached definition, or the definition read from the backend
+     * @throws Exception if the read from the backend fails
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(String key, Loader<T> loader) throws Exception {
+        if (cache == null) {
+            return loader.load();
+        }
+        byte[] cached = cache.getIfPresent(key);
+        if (cached != null) {
+            try {
+                T value = (T) deserialize(cached);
+                hits.increment();
+                return value;
+            } catch (IOException | ClassNotFoundException e) {
+                log.debugf("Cannot read cached definition %s: %s", key, e);
+                cache.invalidate(key);
+            }
+        }
+        misses.increment();
+        long startGeneration = generation.get();
+        T value = loader.load();
+        if (value != null) {
+            try {
+                cache.put(key, serialize(value));
+                if (generation.get() != startGeneration) {
+                    cache.invalidate(key);
+                }
+            } catch (IOException e) {
+                log.debugf("Cannot cache definition %s: %s", key, e);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @param keys the keys of the definitions modified
+     */
+    void invalidate(Collection<String> keys) {
+        if (cache == null || keys == null || keys.isEmpty()) {
+            return;
+        }
+        generation.incrementAndGet();
+        cache.invalidateAll(keys);
+        invalidations.add(keys.size());
+    }
+
+    static String triggerKey(String tenantId, String triggerId) {
+        return key(TRIGGER, tenantId, triggerId);
+    }
+
+    static String conditionsKey(String tenantId, String triggerId, Mode triggerMode) {
+        return key(CONDITIONS, tenantId, triggerId, triggerMode == null ? "" : triggerMode.name());
+    }
+
+    static String dampeningsKey(String tenantId, String triggerId, Mode triggerMode) {
+        return key(DAMPENINGS, tenantId, triggerId, triggerMode == null ? "" : triggerMode.name());
+    }
+
+    /**
+     * @return the keys of a trigger and of its conditions and dampenings on any mode
+     */
+    static List<String> triggerKeys(String tenantId, String triggerId) {
+        List<String> keys = new ArrayList<>();
+        keys.add(triggerKey(tenantId, triggerId));
+        keys.addAll(conditionsKeys(tenantId, triggerId));
+        keys.addAll(dampeningsKeys(tenantId, triggerId));
+        return keys;
+    }
+
+    /**
+     * @return the keys of the conditions of a trigger on any mode
+     */
+    static List<String> conditionsKeys(String tenantId, String triggerId) {
+        List<String> keys = new ArrayList<>();
+        keys.add(conditionsKey(tenantId, triggerId, null));
+        for (Mode mode : Mode.values()) {
+            keys.add(conditionsKey(tenantId, triggerId, mode));
+        }
+        return keys;
+    }
+
+    /**
+     * @return the keys of the dampenings of a trigger on any mode
+     */
+    static List<String> dampeningsKeys(String tenantId, String triggerId) {
+        List<String> keys = new ArrayList<>();
+        keys.add(dampeningsKey(tenantId, triggerId, null));
+        for (Mode mode : Mode.values()) {
+            keys.add(dampeningsKey(tenantId, triggerId, mode));
+        }
+        return keys;
+    }
+
+    static String actionKey(String tenantId, String actionPlugin, String actionId) {
+        return key(ACTION, tenantId, actionPlugin, actionId);
+    }
+
+    static String actionPluginKey(String actionPlugin) {
+        return key(ACTION_PLUGIN, actionPlugin);
+    }
+
+    /*
+        Parts are prefixed with their length, ids may contain any character
+     */
+    private static String key(String type, String... parts) {
+        StringBuilder key = new StringBuilder(type);
+        for (String part : parts) {
+            key.append('|').append(part.length()).append(':').append(part);
+        }
+        return key.toString();
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(value);
+        }
+        return bos.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        }
+    }
+
+    @Override
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public long getSize() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        invalidations.reset();
+    }
+
+    @Override
+    public void clear() {
+        if (cache != null) {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+/**
+ * Metrics of the cache of definitions, registered as <code>org.hawkular.alerts:type=DefinitionsCache</code>.
+ */
+public interface DefinitionsCacheMXBean {
+
+    /**
+     * @return the maximum number of cached definitions, 0 if the cache is disabled
+     */
+    long getMaxSize();
+
+    /**
+     * @return the number of cached definitions
+     */
+    long getSize();
+
+    /**
+     * @return the number of reads served from the cache
+     */
+    long getHits();
+
+    /**
+     * @return the number of reads served from the backend
+     */
+    long getMisses();
+
+    /**
+     * @return the ratio of reads served from the cache, 0 if there were no reads
+     */
+    double getHitRatio();
+
+    /**
+     * @return the number of definitions evicted by size or expiration
+     */
+    long getEvictions();
+
+    /**
+     * @return the number of definitions invalidated by a change, local or notified by another node
+     */
+    long getInvalidations();
+
+    /**
+     * Reset the counters.
+     */
+    void reset();
+
+    /**
+     * Drop all the cached definitions.
+     */
+    void clear();
+}
@@ -16,6 +16,7 @@
  */
 package org.hawkular.alerts.engine.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.TreeSet;
 import java.util.function.Predicate;
@@ -293,6 +294,23 @@ public class DroolsRulesEngineImpl implements RulesEngine {
         }
     }
 
+    @Override
+    public Collection<Object> getFacts(Predicate<Object> factFilter) {
+        Collection<Object> facts = new ArrayList<>();
+        Collection<FactHandle> handles = kSession.getFactHandles(new ObjectFilter() {
+            @Override
+            public boolean accept(Object object) {
+                return factFilter.test(object);
+            }
+        });
+        if (null != handles) {
+            for (FactHandle h : handles) {
+                facts.add(kSession.getObject(h));
+            }
+        }
+        return facts;
+    }
+
     @Override
     public void removeFacts(Predicate<Object> factFilter) {
         Collection<FactHandle> handles = kSession.getFactHandles(new ObjectFilter() {
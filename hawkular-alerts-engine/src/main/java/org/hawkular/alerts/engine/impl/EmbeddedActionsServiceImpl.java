@@ -0,0 +1,320 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hawkular.alerts.api.json.JsonUtil;
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.paging.ActionComparator;
+import org.hawkular.alerts.api.model.paging.ActionComparator.Field;
+import org.hawkular.alerts.api.model.paging.Order;
+import org.hawkular.alerts.api.model.paging.Page;
+import org.hawkular.alerts.api.model.paging.Pager;
+import org.hawkular.alerts.api.services.ActionListener;
+import org.hawkular.alerts.api.services.ActionsCriteria;
+import org.hawkular.alerts.api.services.ActionsService;
+import org.hawkular.alerts.engine.log.MsgLogger;
+import org.jboss.logging.Logger;
+
+/**
+ * An embedded implementation of {@link org.hawkular.alerts.api.services.ActionsService}, created by
+ * {@link org.hawkular.alerts.engine.StandaloneAlerts} only.
+ *
+ * The actions history is written to an {@link EmbeddedStore} with the ttl of the Cassandra backend. The fields the
+ * criteria filter on are kept in memory per tenant, the payloads are read from the mapped log.
+ */
+public class EmbeddedActionsServiceImpl implements ActionsService {
+    private final MsgLogger msgLog = MsgLogger.LOGGER;
+    private final Logger log = Logger.getLogger(EmbeddedActionsServiceImpl.class);
+
+    private static final String WAITING_RESULT = "WAITING";
+    private static final String UNKNOWN_RESULT = "UNKWON";
+
+    private static final String ACTIONS_HISTORY = "actionsHistory";
+
+    /*
+        The filtered fields of an action of the history
+     */
+    private static final class Entry {
+        final String actionPlugin;
+        final String actionId;
+        final String alertId;
+        final long ctime;
+        final String result;
+
+        Entry(Action action) {
+            actionPlugin = action.getActionPlugin();
+            actionId = action.getActionId();
+            alertId = action.getEvent().getId();
+            ctime = action.getCtime();
+            result = action.getResult();
+        }
+    }
+
+    List<ActionListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final EmbeddedStore store;
+
+    // tenantId -> key -> entry
+    private final Map<String, Map<String, Entry>> tenants = new ConcurrentHashMap<>();
+
+    public EmbeddedActionsServiceImpl(EmbeddedStore store) {
+        this.store = store;
+        store.forEach(ACTIONS_HISTORY, (key, value) -> {
+            Action action = JsonUtil.fromJson(new String(value, UTF_8), Action.class, true);
+            history(action.getTenantId()).put(key, new Entry(action));
+        });
+    }
+
+    @Override
+    public void send(Action action) {
+        if (action == null || action.getActionPlugin() == null || action.getActionId() == null
+                || action.getActionPlugin().isEmpty()
+                || action.getActionId().isEmpty()) {
+            throw new IllegalArgumentException("Action must be not null");
+        }
+        if (action.getEvent() == null) {
+            throw new IllegalArgumentException("Action must have an alert");
+        }
+        for (ActionListener listener : listeners) {
+            listener.process(action);
+        }
+        if (action.getResult() == null) {
+            action.setResult(WAITING_RESULT);
+        }
+        writeAction(action);
+    }
+
+    @Override
+    public void updateResult(Action action) {
+        if (action == null || action.getActionPlugin() == null || action.getActionId() == null
+                || action.getActionPlugin().isEmpty()
+                || action.getActionId().isEmpty()) {
+            throw new IllegalArgumentException("Action must be not null");
+        }
+        if (action.getEvent() == null) {
+            throw new IllegalArgumentException("Action must have an alert");
+        }
+        if (action.getResult() == null) {
+            action.setResult(UNKNOWN_RESULT);
+        }
+        writeAction(action);
+    }
+
+    private void writeAction(Action action) {
+        try {
+            String key = key(action.getTenantId(), action.getActionPlugin(), action.getActionId(),
+                    action.getEvent().getId(), action.getCtime());
+            int ttl = RetentionPolicy.ttl(action.getTenantId());
+            long expiration = ttl == 0 ? 0 : System.currentTimeMillis() + ttl * 1000L;
+            store.put(ACTIONS_HISTORY, key, JsonUtil.toJson(action).getBytes(UTF_8), expiration);
+            history(action.getTenantId()).put(key, new Entry(action));
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void addListener(ActionListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("ActionListener must not be null");
+        }
+        listeners.add(listener);
+        msgLog.infoActionListenerRegistered(listener.toString());
+    }
+
+    /*
+        The store is read from memory, the query completes on the calling thread
+     */
+    @Override
+    public CompletionStage<Page<Action>> getActionsAsync(String tenantId, ActionsCriteria criteria, Pager pager) {
+        try {
+            return CompletableFuture.completedFuture(getActions(tenantId, criteria, pager));
+        } catch (Exception e) {
+            return AsyncQueries.failed(e);
+        }
+    }
+
+    /*
+        The history of the tenant is a map without order, the full match is read and sorted once
+     */
+    @Override
+    public Iterator<Action> iterateActions(String tenantId, ActionsCriteria criteria, Pager pager) throws Exception {
+        Pager ordered = null == pager || isEmpty(pager.getOrder())
+                ? Pager.unlimited(Order.by(Field.CTIME.getText(), Order.Direction.DESCENDING))
+                : Pager.unlimited(pager.getOrder());
+        return getActions(tenantId, criteria, ordered).iterator();
+    }
+
+    @Override
+    public Page<Action> getActions(String tenantId, ActionsCriteria criteria, Pager pager) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        boolean thin = (null != criteria && criteria.isThin());
+        boolean filter = (null != criteria && criteria.hasCriteria());
+
+        if (filter && log.isDebugEnabled()) {
+            log.debug("getActions criteria: " + criteria.toString());
+        }
+
+        Set<String> actionPlugins = filter ? values(criteria.getActionPlugin(), criteria.getActionPlugins()) : null;
+        Set<String> actionIds = filter ? values(criteria.getActionId(), criteria.getActionIds()) : null;
+        Set<String> alertIds = filter ? values(criteria.getAlertId(), criteria.getAlertIds()) : null;
+        Set<String> results = filter ? values(criteria.getResult(), criteria.getResults()) : null;
+
+        List<Action> actions = new ArrayList<>();
+        List<String> expired = new ArrayList<>();
+        Map<String, Entry> history = history(tenantId);
+        for (Map.Entry<String, Entry> historyEntry : history.entrySet()) {
+            Entry entry = historyEntry.getValue();
+            if (filter) {
+                if ((null != criteria.getStartTime() && entry.ctime < criteria.getStartTime())
+                        || (null != criteria.getEndTime() && entry.ctime > criteria.getEndTime())
+                        || (null != actionPlugins && !actionPlugins.contains(entry.actionPlugin))
+                        || (null != actionIds && !actionIds.contains(entry.actionId))
+                        || (null != alertIds && !alertIds.contains(entry.alertId))
+                        || (null != results && !results.contains(entry.result))) {
+                    continue;
+                }
+            }
+            byte[] payload = store.get(ACTIONS_HISTORY, historyEntry.getKey());
+            if (null == payload) {
+                expired.add(historyEntry.getKey());
+                continue;
+            }
+            actions.add(JsonUtil.fromJson(new String(payload, UTF_8), Action.class, thin));
+        }
+        expired.forEach(history::remove);
+
+        return preparePage(actions, pager);
+    }
+
+    private Page<Action> preparePage(List<Action> actions, Pager pager) {
+        if (pager != null) {
+            if (pager.getOrder() != null
+                    && !pager.getOrder().isEmpty()
+                    && pager.getOrder().get(0).getField() == null) {
+                Pager.Builder builder = Pager.builder()
+                        .withPageSize(pager.getPageSize())
+                        .withStartPage(pager.getPageNumber())
+                        .orderBy(Field.ALERT_ID.getText(), Order.Direction.DESCENDING);
+                if (pager.isCursor()) {
+                    builder.withCursor(pager.getCursor());
+                }
+                pager = builder.build();
+            }
+            List<Action> ordered = actions;
+            if (pager.getOrder() != null) {
+                pager.getOrder().stream().filter(o -> o.getField() != null && o.getDirection() != null)
+                        .forEach(o -> {
+                            ActionComparator comparator = new ActionComparator(
+                                    Field.getField(o.getField()),
+                                    o.getDirection());
+                            Collections.sort(ordered, comparator);
+                        });
+            }
+            if (pager.isCursor()) {
+                return PageCursor.offsetPage(ordered, pager);
+            }
+            if (!pager.isLimited() || ordered.size() < pager.getStart()) {
+                pager = new Pager(0, ordered.size(), pager.getOrder());
+                return new Page<>(ordered, pager, ordered.size());
+            }
+            if (pager.getEnd() >= ordered.size()) {
+                return new Page<>(ordered.subList(pager.getStart(), ordered.size()), pager, ordered.size());
+            }
+            return new Page<>(ordered.subList(pager.getStart(), pager.getEnd()), pager, ordered.size());
+        } else {
+            pager = Pager.builder().withPageSize(actions.size()).orderBy(Field.ALERT_ID.getText(),
+                    Order.Direction.ASCENDING).build();
+            return new Page<>(actions, pager, actions.size());
+        }
+    }
+
+    @Override
+    public int deleteActions(String tenantId, ActionsCriteria criteria) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (null == criteria) {
+            throw new IllegalArgumentException("Criteria must be not null");
+        }
+
+        List<Action> actionsToDelete = getActions(tenantId, criteria, null);
+        if (actionsToDelete == null || actionsToDelete.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Entry> history = history(tenantId);
+        for (Action action : actionsToDelete) {
+            String key = key(tenantId, action.getActionPlugin(), action.getActionId(), action.getEvent().getId(),
+                    action.getCtime());
+            store.remove(ACTIONS_HISTORY, key);
+            history.remove(key);
+        }
+
+        return actionsToDelete.size();
+    }
+
+    private Map<String, Entry> history(String tenantId) {
+        return tenants.computeIfAbsent(tenantId, t -> new ConcurrentHashMap<>());
+    }
+
+    private static String key(String tenantId, String actionPlugin, String actionId, String alertId, long ctime) {
+        return EmbeddedStore.key(tenantId, actionPlugin, actionId, alertId, String.valueOf(ctime));
+    }
+
+    /*
+        The values of a criteria, null if the criteria does not restrict them
+     */
+    private Set<String> values(String value, Collection<String> values) {
+        if (null == value && isEmpty(values)) {
+            return null;
+        }
+        Set<String> result = new HashSet<>();
+        if (null != value) {
+            result.add(value);
+        }
+        if (!isEmpty(values)) {
+            result.addAll(values);
+        }
+        return result;
+    }
+
+    private boolean isEmpty(String s) {
+        return null == s || s.trim().isEmpty();
+    }
+
+    private boolean isEmpty(Collection<?> c) {
+        return null == c || c.isEmpty();
+    }
+}
@@ -0,0 +1,1116 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.hawkular.alerts.api.json.JsonUtil;
+import org.hawkular.alerts.api.model.Severity;
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.paging.AlertComparator;
+import org.hawkular.alerts.api.model.paging.AlertComparator.Field;
+import org.hawkular.alerts.api.model.paging.EventComparator;
+import org.hawkular.alerts.api.model.paging.Order;
+import org.hawkular.alerts.api.model.paging.Page;
+import org.hawkular.alerts.api.model.paging.Pager;
+import org.hawkular.alerts.api.model.stats.AlertsStats;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.services.ActionsService;
+import org.hawkular.alerts.api.services.AlertsCriteria;
+import org.hawkular.alerts.api.services.AlertsService;
+import org.hawkular.alerts.api.services.AlertsStatsCriteria;
+import org.hawkular.alerts.api.services.AlertsStatsCriteria.GroupBy;
+import org.hawkular.alerts.api.services.DefinitionsService;
+import org.hawkular.alerts.api.services.EventsCriteria;
+import org.hawkular.alerts.api.services.EventsListener;
+import org.hawkular.alerts.engine.log.MsgLogger;
+import org.hawkular.alerts.engine.service.AlertsEngine;
+import org.jboss.logging.Logger;
+
+/**
+ * An embedded implementation of {@link org.hawkular.alerts.api.services.AlertsService}, created by
+ * {@link org.hawkular.alerts.engine.StandaloneAlerts} only.
+ *
+ * Alerts and events are written to an {@link EmbeddedStore} with the payloads and the ttls of the Cassandra backend,
+ * and queried with a {@link HistoryIndex.Entries} per tenant kept over the whole history. Payloads are read from the
+ * mapped log by id, so only the indexed fields live in the heap.
+ */
+public class EmbeddedAlertsServiceImpl implements AlertsService {
+
+    private final MsgLogger msgLog = MsgLogger.LOGGER;
+    private final Logger log = Logger.getLogger(EmbeddedAlertsServiceImpl.class);
+
+    private static final String ALERTS = "alerts";
+    private static final String ALERT_EVALS = "alertEvals";
+    private static final String EVENTS = "events";
+
+    /*
+        Selections of a page from the index, when the previous ones found ids expired from the store
+     */
+    private static final int INDEX_SELECT_ATTEMPTS = 3;
+
+    /*
+        Indexes of the alerts and events of a tenant
+     */
+    private static final class History {
+        final HistoryIndex.Entries alerts = new HistoryIndex.Entries(Integer.MAX_VALUE, TimeBuckets.getSize());
+        final HistoryIndex.Entries events = new HistoryIndex.Entries(Integer.MAX_VALUE, TimeBuckets.getSize());
+        final Map<String, Map<String, String>> alertTags = new ConcurrentHashMap<>();
+        final Map<String, Map<String, String>> eventTags = new ConcurrentHashMap<>();
+        final Map<String, String> eventCategories = new ConcurrentHashMap<>();
+
+        History() {
+            alerts.complete(Collections.emptyList());
+            events.complete(Collections.emptyList());
+        }
+    }
+
+    private final EmbeddedStore store;
+    private final Map<String, History> tenants = new ConcurrentHashMap<>();
+
+    AlertsEngine alertsEngine;
+
+    DefinitionsService definitionsService;
+
+    ActionsService actionsService;
+
+    public EmbeddedAlertsServiceImpl(EmbeddedStore store) {
+        this.store = store;
+        load();
+    }
+
+    public void setAlertsEngine(AlertsEngine alertsEngine) {
+        this.alertsEngine = alertsEngine;
+    }
+
+    public void setDefinitionsService(DefinitionsService definitionsService) {
+        this.definitionsService = definitionsService;
+    }
+
+    public void setActionsService(ActionsService actionsService) {
+        this.actionsService = actionsService;
+    }
+
+    /*
+        Index the history of the store, one put per tenant and type
+     */
+    private void load() {
+        Map<String, List<HistoryIndex.Entry>> alertEntries = new HashMap<>();
+        store.forEach(ALERTS, (key, value) -> {
+            Alert alert = JsonUtil.fromPayload(ByteBuffer.wrap(value), Alert.class, true);
+            alertEntries.computeIfAbsent(alert.getTenantId(), t -> new ArrayList<>()).add(HistoryIndex.Entry.of(alert));
+            indexTags(history(alert.getTenantId()).alertTags, alert);
+        });
+        alertEntries.forEach((tenantId, entries) -> history(tenantId).alerts.put(entries));
+
+        Map<String, List<HistoryIndex.Entry>> eventEntries = new HashMap<>();
+        store.forEach(EVENTS, (key, value) -> {
+            Event event = JsonUtil.fromPayload(ByteBuffer.wrap(value), Event.class, true);
+            eventEntries.computeIfAbsent(event.getTenantId(), t -> new ArrayList<>()).add(HistoryIndex.Entry.of(event));
+            History history = history(event.getTenantId());
+            indexTags(history.eventTags, event);
+            if (null != event.getCategory()) {
+                history.eventCategories.put(event.getId(), event.getCategory());
+            }
+        });
+        eventEntries.forEach((tenantId, entries) -> history(tenantId).events.put(entries));
+    }
+
+    @Override
+    public void addAlerts(Collection<Alert> alerts) throws Exception {
+        if (alerts == null) {
+            throw new IllegalArgumentException("Alerts must be not null");
+        }
+        if (alerts.isEmpty()) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Adding " + alerts.size() + " alerts");
+        }
+        try {
+            alerts.stream().forEach(this::writeAlert);
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+        EventsFeed.getInstance().alerts(alerts);
+
+        // Every Alert has a corresponding Event
+        List<Event> events = alerts.stream()
+                .map(Event::new)
+                .collect(Collectors.toList());
+        persistEvents(events);
+    }
+
+    @Override
+    public void persistEvents(Collection<Event> events) throws Exception {
+        if (events == null) {
+            throw new IllegalArgumentException("Events must be not null");
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Adding " + events.size() + " events");
+        }
+        try {
+            events.stream().forEach(this::writeEvent);
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+        EventsFeed.getInstance().events(events);
+    }
+
+    @Override
+    public void addNote(String tenantId, String alertId, String user, String text) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(alertId)) {
+            throw new IllegalArgumentException("AlertId must be not null");
+        }
+        if (isEmpty(user) || isEmpty(text)) {
+            throw new IllegalArgumentException("user or text must be not null");
+        }
+
+        Alert alert = getAlert(tenantId, alertId, false);
+        if (alert == null) {
+            return;
+        }
+
+        alert.addNote(user, text);
+
+        try {
+            writeAlert(alert);
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+    }
+
+    @Override
+    public Alert getAlert(String tenantId, String alertId, boolean thin) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(alertId)) {
+            throw new IllegalArgumentException("AlertId must be not null");
+        }
+        List<Alert> alerts = selectAlerts(tenantId, Collections.singletonList(alertId), thin);
+        return alerts.isEmpty() ? null : alerts.get(0);
+    }
+
+    @Override
+    public Event getEvent(String tenantId, String eventId, boolean thin) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(eventId)) {
+            throw new IllegalArgumentException("EventId must be not null");
+        }
+        List<Event> events = selectEvents(tenantId, Collections.singletonList(eventId), thin);
+        return events.isEmpty() ? null : events.get(0);
+    }
+
+    /*
+        Same as the indexed path of the Cassandra backend, with tags also resolved in memory. If the order is on
+        indexed fields only the alerts of the requested page are read.
+     */
+    @Override
+    public Page<Alert> getAlerts(String tenantId, AlertsCriteria criteria, Pager pager) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        boolean filter = (null != criteria && criteria.hasCriteria());
+        boolean thin = (null != criteria && criteria.isThin());
+
+        if (filter && log.isDebugEnabled()) {
+            log.debug("getAlerts criteria: " + criteria.toString());
+        }
+
+        History history = history(tenantId);
+        HistoryIndex.Filter indexFilter = alertsIndexFilter(history, criteria);
+        Pager ordered = null == pager ? null : defaultOrder(pager, Field.ALERT_ID.getText());
+        Comparator<HistoryIndex.Entry> order = null != ordered && ordered.isLimited()
+                ? HistoryIndex.alertsOrder(ordered.getOrder()) : null;
+        int start = null == order ? 0 : ordered.isCursor() ? PageCursor.offset(ordered) : ordered.getStart();
+        for (int attempt = 1;; attempt++) {
+            List<String> alertIds = history.alerts.select(indexFilter, order);
+            boolean pageOnly = null != order && alertIds.size() >= start;
+            List<String> selectedIds = pageOnly ? alertIds.subList(start,
+                    Math.min(start + ordered.getPageSize(), alertIds.size())) : alertIds;
+            List<Alert> alerts = selectAlerts(tenantId, selectedIds, thin);
+            int missing = selectedIds.size() - alerts.size();
+            if (missing > 0 && pageOnly && attempt < INDEX_SELECT_ATTEMPTS) {
+                continue;
+            }
+            if (pageOnly && ordered.isCursor()) {
+                return PageCursor.offsetPage(alerts, ordered, start, alertIds.size() - missing);
+            }
+            if (pageOnly) {
+                return new Page<>(alerts, ordered, alertIds.size() - missing);
+            }
+            return preparePage(alerts, pager);
+        }
+    }
+
+    /*
+        Counted from the index of the tenant, with the time range rounded to the buckets as the Cassandra backend
+        does. The index is always up to date with the store, so there are no counters to rebuild.
+     */
+    @Override
+    public AlertsStats getAlertsStats(String tenantId, AlertsStatsCriteria criteria) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (null == criteria) {
+            throw new IllegalArgumentException("Criteria must be not null");
+        }
+        boolean byTag = GroupBy.TAG == criteria.getGroupBy();
+        if (byTag && (criteria.hasSeverityCriteria() || criteria.hasTriggerIdCriteria())) {
+            throw new IllegalArgumentException("Severities and triggerIds criteria are not supported by TAG groupBy");
+        }
+
+        History history = history(tenantId);
+        HistoryIndex.Filter indexFilter = new HistoryIndex.Filter();
+        if (null != criteria.getStartTime() || null != criteria.getEndTime()) {
+            indexFilter.ctimes(null == criteria.getStartTime() ? null : TimeBuckets.bucket(criteria.getStartTime()),
+                    null == criteria.getEndTime() ? null
+                            : TimeBuckets.bucket(criteria.getEndTime()) + TimeBuckets.getSize() - 1);
+        }
+        if (criteria.hasStatusCriteria()) {
+            indexFilter.statuses(criteria.getStatusSet());
+        }
+        if (criteria.hasSeverityCriteria()) {
+            indexFilter.severities(criteria.getSeverities());
+        }
+        if (criteria.hasTriggerIdCriteria()) {
+            indexFilter.triggerIds(criteria.getTriggerIds());
+        }
+
+        Map<Long, AlertsStats.Bucket> buckets = new TreeMap<>();
+        for (HistoryIndex.Entry entry : history.alerts.selectEntries(indexFilter, null)) {
+            AlertsStats.Bucket bucket = buckets.computeIfAbsent(TimeBuckets.bucket(entry.ctime),
+                    AlertsStats.Bucket::new);
+            if (!byTag) {
+                bucket.add(statsGroup(criteria.getGroupBy(), entry), 1);
+                continue;
+            }
+            Map<String, String> tags = history.alertTags.get(entry.id);
+            if (null == tags) {
+                continue;
+            }
+            tags.forEach((name, value) -> {
+                if (null == value) {
+                    return;
+                }
+                if (isEmpty(criteria.getTagName())) {
+                    bucket.add(name + "|" + value, 1);
+                } else if (criteria.getTagName().equals(name)) {
+                    bucket.add(value, 1);
+                }
+            });
+        }
+        AlertsStats stats = new AlertsStats(TimeBuckets.getSize());
+        buckets.values().forEach(stats::addBucket);
+        return stats;
+    }
+
+    private String statsGroup(GroupBy groupBy, HistoryIndex.Entry entry) {
+        switch (groupBy) {
+            case SEVERITY:
+                return entry.severity.name();
+            case TRIGGER:
+                return entry.triggerId;
+            default:
+                return entry.status.name();
+        }
+    }
+
+    @Override
+    public int rebuildAlertsStats(String tenantId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        return history(tenantId).alerts.size();
+    }
+
+    @Override
+    public Page<Event> getEvents(String tenantId, EventsCriteria criteria, Pager pager) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        boolean filter = (null != criteria && criteria.hasCriteria());
+        boolean thin = (null != criteria && criteria.isThin());
+
+        if (filter && log.isDebugEnabled()) {
+            log.debug("getEvents criteria: " + criteria.toString());
+        }
+
+        History history = history(tenantId);
+        HistoryIndex.Filter indexFilter = eventsIndexFilter(history, criteria);
+        Pager ordered = null == pager ? null : defaultOrder(pager, EventComparator.Field.ID.getName());
+        Comparator<HistoryIndex.Entry> order = null != ordered && ordered.isLimited()
+                ? HistoryIndex.eventsOrder(ordered.getOrder()) : null;
+        int start = null == order ? 0 : ordered.isCursor() ? PageCursor.offset(ordered) : ordered.getStart();
+        for (int attempt = 1;; attempt++) {
+            List<String> eventIds = history.events.select(indexFilter, order);
+            boolean pageOnly = null != order && eventIds.size() >= start;
+            List<String> selectedIds = pageOnly ? eventIds.subList(start,
+                    Math.min(start + ordered.getPageSize(), eventIds.size())) : eventIds;
+            List<Event> events = selectEvents(tenantId, selectedIds, thin);
+            int missing = selectedIds.size() - events.size();
+            if (missing > 0 && pageOnly && attempt < INDEX_SELECT_ATTEMPTS) {
+                continue;
+            }
+            if (pageOnly && ordered.isCursor()) {
+                return PageCursor.offsetPage(events, ordered, start, eventIds.size() - missing);
+            }
+            if (pageOnly) {
+                return new Page<>(events, ordered, eventIds.size() - missing);
+            }
+            return prepareEventsPage(events, pager);
+        }
+    }
+
+    /*
+        Alerts expired from the store are removed from the index as they are found
+     */
+    private List<Alert> selectAlerts(String tenantId, Collection<String> alertIds, boolean thin) {
+        List<Alert> alerts = new ArrayList<>(alertIds.size());
+        List<String> expired = new ArrayList<>();
+        for (String alertId : alertIds) {
+            String key = EmbeddedStore.key(tenantId, alertId);
+            byte[] payload = store.get(ALERTS, key);
+            if (null == payload) {
+                expired.add(alertId);
+                continue;
+            }
+            Alert alert = JsonUtil.fromPayload(ByteBuffer.wrap(payload), Alert.class, thin);
+            if (!thin) {
+                byte[] evals = store.get(ALERT_EVALS, key);
+                if (null != evals) {
+                    JsonUtil.fromPayload(ByteBuffer.wrap(evals), AlertEvalSets.class, false).applyTo(alert);
+                }
+            }
+            alerts.add(alert);
+        }
+        if (!expired.isEmpty()) {
+            History history = history(tenantId);
+            history.alerts.remove(expired);
+            expired.forEach(history.alertTags::remove);
+        }
+        return alerts;
+    }
+
+    private List<Event> selectEvents(String tenantId, Collection<String> eventIds, boolean thin) {
+        List<Event> events = new ArrayList<>(eventIds.size());
+        List<String> expired = new ArrayList<>();
+        for (String eventId : eventIds) {
+            byte[] payload = store.get(EVENTS, EmbeddedStore.key(tenantId, eventId));
+            if (null == payload) {
+                expired.add(eventId);
+                continue;
+            }
+            events.add(JsonUtil.fromPayload(ByteBuffer.wrap(payload), Event.class, thin));
+        }
+        if (!expired.isEmpty()) {
+            History history = history(tenantId);
+            history.events.remove(expired);
+            expired.forEach(history.eventTags::remove);
+            expired.forEach(history.eventCategories::remove);
+        }
+        return events;
+    }
+
+    /*
+        A pager whose first order has no field is ordered by id, descending
+     */
+    private Pager defaultOrder(Pager pager, String idField) {
+        if (pager.getOrder() != null
+                && !pager.getOrder().isEmpty()
+                && pager.getOrder().get(0).getField() == null) {
+            Pager.Builder builder = Pager.builder()
+                    .withPageSize(pager.getPageSize())
+                    .withStartPage(pager.getPageNumber())
+                    .orderBy(idField, Order.Direction.DESCENDING);
+            if (pager.isCursor()) {
+                builder.withCursor(pager.getCursor());
+            }
+            return builder.build();
+        }
+        return pager;
+    }
+
+    private Page<Alert> preparePage(List<Alert> alerts, Pager pager) {
+        if (pager != null) {
+            pager = defaultOrder(pager, Field.ALERT_ID.getText());
+            List<Alert> ordered = alerts;
+            if (pager.getOrder() != null) {
+                pager.getOrder().stream().filter(o -> o.getField() != null && o.getDirection() != null)
+                        .forEach(o -> {
+                            AlertComparator comparator = new AlertComparator(o.getField(), o.getDirection());
+                            Collections.sort(ordered, comparator);
+                        });
+            }
+            if (pager.isCursor()) {
+                return PageCursor.offsetPage(ordered, pager);
+            }
+            if (!pager.isLimited() || ordered.size() < pager.getStart()) {
+                pager = new Pager(0, ordered.size(), pager.getOrder());
+                return new Page<>(ordered, pager, ordered.size());
+            }
+            if (pager.getEnd() >= ordered.size()) {
+                return new Page<>(ordered.subList(pager.getStart(), ordered.size()), pager, ordered.size());
+            }
+            return new Page<>(ordered.subList(pager.getStart(), pager.getEnd()), pager, ordered.size());
+        } else {
+            pager = Pager.builder().withPageSize(alerts.size()).orderBy(Field.ALERT_ID.getText(),
+                    Order.Direction.ASCENDING).build();
+            return new Page<>(alerts, pager, alerts.size());
+        }
+    }
+
+    private Page<Event> prepareEventsPage(List<Event> events, Pager pager) {
+        if (pager != null) {
+            pager = defaultOrder(pager, EventComparator.Field.ID.getName());
+            List<Event> ordered = events;
+            if (pager.getOrder() != null) {
+                pager.getOrder()
+                        .stream()
+                        .filter(o -> o.getField() != null && o.getDirection() != null)
+                        .forEach(o -> {
+                            EventComparator comparator = new EventComparator(EventComparator.Field.getField(
+                                    o.getField()), o.getDirection());
+                            Collections.sort(ordered, comparator);
+                        });
+            }
+            if (pager.isCursor()) {
+                return PageCursor.offsetPage(ordered, pager);
+            }
+            if (!pager.isLimited() || ordered.size() < pager.getStart()) {
+                pager = new Pager(0, ordered.size(), pager.getOrder());
+                return new Page<>(ordered, pager, ordered.size());
+            }
+            if (pager.getEnd() >= ordered.size()) {
+                return new Page<>(ordered.subList(pager.getStart(), ordered.size()), pager, ordered.size());
+            }
+            return new Page<>(ordered.subList(pager.getStart(), pager.getEnd()), pager, ordered.size());
+        } else {
+            pager = Pager.builder().withPageSize(events.size()).orderBy(EventComparator.Field.ID.getName(),
+                    Order.Direction.ASCENDING).build();
+            return new Page<>(events, pager, events.size());
+        }
+    }
+
+    private Set<String> filterByAlerts(AlertsCriteria criteria) {
+        Set<String> result = new HashSet<>();
+        if (isEmpty(criteria.getAlertIds())) {
+            if (!isEmpty(criteria.getAlertId())) {
+                result.add(criteria.getAlertId());
+            }
+        } else {
+            result.addAll(criteria.getAlertIds());
+        }
+        return result;
+    }
+
+    private Set<String> filterByEvents(EventsCriteria criteria) {
+        Set<String> result = new HashSet<>();
+        if (isEmpty(criteria.getEventIds())) {
+            if (!isEmpty(criteria.getEventId())) {
+                result.add(criteria.getEventId());
+            }
+        } else {
+            result.addAll(criteria.getEventIds());
+        }
+        return result;
+    }
+
+    private Set<String> extractTriggerIds(String triggerId, Collection<String> criteriaTriggerIds) {
+        Set<String> triggerIds = new HashSet<>();
+        if (isEmpty(criteriaTriggerIds)) {
+            if (!isEmpty(triggerId)) {
+                triggerIds.add(triggerId);
+            }
+        } else {
+            for (String id : criteriaTriggerIds) {
+                if (!isEmpty(id)) {
+                    triggerIds.add(id);
+                }
+            }
+        }
+        return triggerIds;
+    }
+
+    private Set<Alert.Status> extractStatuses(AlertsCriteria criteria) {
+        Set<Alert.Status> statuses = new HashSet<>();
+        if (isEmpty(criteria.getStatusSet())) {
+            if (criteria.getStatus() != null) {
+                statuses.add(criteria.getStatus());
+            }
+        } else {
+            statuses.addAll(criteria.getStatusSet());
+        }
+        return statuses;
+    }
+
+    private Set<Severity> extractSeverities(AlertsCriteria criteria) {
+        Set<Severity> severities = new HashSet<>();
+        if (isEmpty(criteria.getSeverities())) {
+            if (criteria.getSeverity() != null) {
+                severities.add(criteria.getSeverity());
+            }
+        } else {
+            severities.addAll(criteria.getSeverities());
+        }
+        return severities;
+    }
+
+    private Set<String> filterByCategories(History history, EventsCriteria criteria) {
+        Set<String> categories = new HashSet<>();
+        if (isEmpty(criteria.getCategories())) {
+            if (criteria.getCategory() != null) {
+                categories.add(criteria.getCategory());
+            }
+        } else {
+            categories.addAll(criteria.getCategories());
+        }
+        Set<String> eventIds = new HashSet<>();
+        history.eventCategories.forEach((eventId, category) -> {
+            if (categories.contains(category)) {
+                eventIds.add(eventId);
+            }
+        });
+        return eventIds;
+    }
+
+    /*
+        Ids with any of the tags, a tag value of '*' matches any value
+     */
+    private Set<String> getIdsByTags(Map<String, Map<String, String>> idTags, Map<String, String> tags) {
+        Set<String> ids = new HashSet<>();
+        idTags.forEach((id, idTag) -> {
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                String value = idTag.get(tag.getKey());
+                if (value != null && ("*".equals(tag.getValue()) || value.equals(tag.getValue()))) {
+                    ids.add(id);
+                    break;
+                }
+            }
+        });
+        return ids;
+    }
+
+    @Override
+    public void ackAlerts(String tenantId, Collection<String> alertIds, String ackBy, String ackNotes)
+            throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(alertIds)) {
+            return;
+        }
+
+        if (isEmpty(ackBy)) {
+            ackBy = "unknown";
+        }
+        if (isEmpty(ackNotes)) {
+            ackNotes = "none";
+        }
+
+        AlertsCriteria criteria = new AlertsCriteria();
+        criteria.setAlertIds(alertIds);
+        List<Alert> alertsToAck = getAlerts(tenantId, criteria, null);
+
+        for (Alert a : alertsToAck) {
+            a.setStatus(Alert.Status.ACKNOWLEDGED);
+            a.setAckBy(ackBy);
+            a.setAckTime(System.currentTimeMillis());
+            a.addNote(ackBy, ackNotes);
+            updateAlertStatus(a);
+            sendAction(a);
+        }
+        EventsFeed.getInstance().alerts(alertsToAck);
+    }
+
+    @Override
+    public int deleteAlerts(String tenantId, AlertsCriteria criteria) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (null == criteria) {
+            throw new IllegalArgumentException("Criteria must be not null");
+        }
+
+        // no need to fetch the evalSets to perform the necessary deletes
+        criteria.setThin(true);
+        List<Alert> alertsToDelete = getAlerts(tenantId, criteria, null);
+
+        if (alertsToDelete.isEmpty()) {
+            return 0;
+        }
+
+        History history = history(tenantId);
+        List<String> alertIds = new ArrayList<>(alertsToDelete.size());
+        for (Alert a : alertsToDelete) {
+            String key = EmbeddedStore.key(tenantId, a.getAlertId());
+            store.remove(ALERTS, key);
+            store.remove(ALERT_EVALS, key);
+            history.alertTags.remove(a.getAlertId());
+            alertIds.add(a.getAlertId());
+        }
+        history.alerts.remove(alertIds);
+
+        return alertsToDelete.size();
+    }
+
+    @Override
+    public int deleteEvents(String tenantId, EventsCriteria criteria) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (null == criteria) {
+            throw new IllegalArgumentException("Criteria must be not null");
+        }
+
+        // no need to fetch the evalSets to perform the necessary deletes
+        criteria.setThin(true);
+        List<Event> eventsToDelete = getEvents(tenantId, criteria, null);
+
+        if (eventsToDelete.isEmpty()) {
+            return 0;
+        }
+
+        History history = history(tenantId);
+        List<String> eventIds = new ArrayList<>(eventsToDelete.size());
+        for (Event e : eventsToDelete) {
+            store.remove(EVENTS, EmbeddedStore.key(tenantId, e.getId()));
+            history.eventTags.remove(e.getId());
+            history.eventCategories.remove(e.getId());
+            eventIds.add(e.getId());
+        }
+        history.events.remove(eventIds);
+
+        return eventsToDelete.size();
+    }
+
+    @Override
+    public void resolveAlerts(String tenantId, Collection<String> alertIds, String resolvedBy, String resolvedNotes,
+            List<Set<ConditionEval>> resolvedEvalSets) throws Exception {
+
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(alertIds)) {
+            return;
+        }
+
+        if (isEmpty(resolvedBy)) {
+            resolvedBy = "unknown";
+        }
+        if (isEmpty(resolvedNotes)) {
+            resolvedNotes = "none";
+        }
+
+        AlertsCriteria criteria = new AlertsCriteria();
+        criteria.setAlertIds(alertIds);
+        List<Alert> alertsToResolve = getAlerts(tenantId, criteria, null);
+
+        // resolve the alerts
+        for (Alert a : alertsToResolve) {
+            a.setStatus(Alert.Status.RESOLVED);
+            a.setResolvedBy(resolvedBy);
+            a.setResolvedTime(System.currentTimeMillis());
+            a.addNote(resolvedBy, resolvedNotes);
+            a.setResolvedEvalSets(resolvedEvalSets);
+            updateAlertStatus(a);
+            sendAction(a);
+        }
+        EventsFeed.getInstance().alerts(alertsToResolve);
+
+        // gather the triggerIds of the triggers we need to check for resolve options
+        Set<String> triggerIds = alertsToResolve.stream().map(a -> a.getTriggerId()).collect(Collectors.toSet());
+
+        // handle resolve options
+        handleResolveOptions(tenantId, triggerIds, true);
+    }
+
+    @Override
+    public void resolveAlertsForTrigger(String tenantId, String triggerId, String resolvedBy, String resolvedNotes,
+            List<Set<ConditionEval>> resolvedEvalSets) throws Exception {
+
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(triggerId)) {
+            throw new IllegalArgumentException("TriggerId must be not null");
+        }
+
+        if (isEmpty(resolvedBy)) {
+            resolvedBy = "unknown";
+        }
+        if (isEmpty(resolvedNotes)) {
+            resolvedNotes = "none";
+        }
+
+        AlertsCriteria criteria = new AlertsCriteria();
+        criteria.setTriggerId(triggerId);
+        criteria.setStatusSet(EnumSet.complementOf(EnumSet.of(Alert.Status.RESOLVED)));
+        List<Alert> alertsToResolve = getAlerts(tenantId, criteria, null);
+
+        for (Alert a : alertsToResolve) {
+            a.setStatus(Alert.Status.RESOLVED);
+            a.setResolvedBy(resolvedBy);
+            a.setResolvedTime(System.currentTimeMillis());
+            a.addNote(resolvedBy, resolvedNotes);
+            a.setResolvedEvalSets(resolvedEvalSets);
+            updateAlertStatus(a);
+            sendAction(a);
+        }
+        EventsFeed.getInstance().alerts(alertsToResolve);
+
+        handleResolveOptions(tenantId, Collections.singleton(triggerId), false);
+    }
+
+    private Alert updateAlertStatus(Alert alert) throws Exception {
+        if (alert == null || alert.getAlertId() == null || alert.getAlertId().isEmpty()) {
+            throw new IllegalArgumentException("AlertId must be not null");
+        }
+        try {
+            writeAlert(alert);
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+        return alert;
+    }
+
+    private void handleResolveOptions(String tenantId, Collection<String> triggerIds, boolean checkIfAllResolved) {
+
+        try {
+            Map<String, Trigger> candidates = new HashMap<>();
+            Set<String> toEnable = new HashSet<>();
+            for (String triggerId : triggerIds) {
+                Trigger trigger = definitionsService.getTrigger(tenantId, triggerId);
+                if (null == trigger) {
+                    continue;
+                }
+
+                boolean setEnabled = trigger.isAutoEnable() && !trigger.isEnabled();
+                boolean setFiring = trigger.isAutoResolve();
+
+                // Only reload the trigger if it is not already in firing mode, otherwise we could lose partial
+                // matching.
+                if (setFiring) {
+                    Trigger loadedTrigger = alertsEngine.getLoadedTrigger(trigger);
+                    if (null != loadedTrigger && Mode.FIRING == loadedTrigger.getMode()) {
+                        if (log.isDebugEnabled()) {
+                            log.debug("Ignoring setFiring, loaded Trigger already in firing mode " +
+                                    loadedTrigger.toString());
+                        }
+                        setFiring = false;
+                    }
+                }
+
+                if (setEnabled || setFiring) {
+                    candidates.put(triggerId, trigger);
+                    if (setEnabled) {
+                        toEnable.add(triggerId);
+                    }
+                }
+            }
+
+            if (candidates.isEmpty()) {
+                return;
+            }
+
+            // A single query for the unresolved alerts of all the triggers
+            if (checkIfAllResolved) {
+                AlertsCriteria ac = new AlertsCriteria();
+                ac.setTriggerIds(new ArrayList<>(candidates.keySet()));
+                ac.setStatusSet(EnumSet.complementOf(EnumSet.of(Alert.Status.RESOLVED)));
+                ac.setThin(true);
+                for (Alert unresolved : getAlerts(tenantId, ac, null)) {
+                    Trigger trigger = candidates.remove(unresolved.getTriggerId());
+                    if (null != trigger && log.isDebugEnabled()) {
+                        log.debug("Ignoring resolveOptions, not all Alerts for Trigger " + trigger.toString() +
+                                " are resolved");
+                    }
+                }
+            }
+
+            // Either update the trigger, which implicitly reloads the trigger (and as such resets to firing mode)
+            // or perform an explicit reload to reset to firing mode.
+            List<String> toReload = new ArrayList<>();
+            for (Trigger trigger : candidates.values()) {
+                if (toEnable.contains(trigger.getId())) {
+                    trigger.setEnabled(true);
+                    definitionsService.updateTrigger(tenantId, trigger);
+                } else {
+                    toReload.add(trigger.getId());
+                }
+            }
+            if (toReload.size() == 1) {
+                alertsEngine.reloadTrigger(tenantId, toReload.get(0));
+            } else if (!toReload.isEmpty()) {
+                alertsEngine.reloadTriggers(tenantId, toReload);
+            }
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+        }
+
+    }
+
+    /*
+        The index and the payloads are read from memory, the asynchronous queries complete on the calling thread
+     */
+    @Override
+    public CompletionStage<Page<Alert>> getAlertsAsync(String tenantId, AlertsCriteria criteria, Pager pager) {
+        try {
+            return CompletableFuture.completedFuture(getAlerts(tenantId, criteria, pager));
+        } catch (Exception e) {
+            return AsyncQueries.failed(e);
+        }
+    }
+
+    @Override
+    public CompletionStage<Page<Event>> getEventsAsync(String tenantId, EventsCriteria criteria, Pager pager) {
+        try {
+            return CompletableFuture.completedFuture(getEvents(tenantId, criteria, pager));
+        } catch (Exception e) {
+            return AsyncQueries.failed(e);
+        }
+    }
+
+    /*
+        The ids are selected from the index in the order of the pager and the payloads read by chunks. An order on
+        fields not indexed is sorted in memory from the full match.
+     */
+    @Override
+    public Iterator<Alert> iterateAlerts(String tenantId, AlertsCriteria criteria, Pager pager) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        boolean thin = (null != criteria && criteria.isThin());
+        Pager ordered = null == pager || isEmpty(pager.getOrder())
+                ? Pager.unlimited(Order.by(Field.CTIME.getText(), Order.Direction.DESCENDING))
+                : Pager.unlimited(pager.getOrder());
+        Comparator<HistoryIndex.Entry> order = HistoryIndex.alertsOrder(
+                defaultOrder(ordered, Field.ALERT_ID.getText()).getOrder());
+        if (null == order) {
+            return getAlerts(tenantId, criteria, ordered).iterator();
+        }
+        History history = history(tenantId);
+        List<String> alertIds = history.alerts.select(alertsIndexFilter(history, criteria), order);
+        return ResultIterators.chunked(alertIds.iterator(), chunk -> selectAlerts(tenantId, chunk, thin));
+    }
+
+    @Override
+    public Iterator<Event> iterateEvents(String tenantId, EventsCriteria criteria, Pager pager) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        boolean thin = (null != criteria && criteria.isThin());
+        Pager ordered = null == pager || isEmpty(pager.getOrder())
+                ? Pager.unlimited(Order.by(EventComparator.Field.CTIME.getName(), Order.Direction.DESCENDING))
+                : Pager.unlimited(pager.getOrder());
+        Comparator<HistoryIndex.Entry> order = HistoryIndex.eventsOrder(
+                defaultOrder(ordered, EventComparator.Field.ID.getName()).getOrder());
+        if (null == order) {
+            return getEvents(tenantId, criteria, ordered).iterator();
+        }
+        History history = history(tenantId);
+        List<String> eventIds = history.events.select(eventsIndexFilter(history, criteria), order);
+        return ResultIterators.chunked(eventIds.iterator(), chunk -> selectEvents(tenantId, chunk, thin));
+    }
+
+    private HistoryIndex.Filter alertsIndexFilter(History history, AlertsCriteria criteria) {
+        HistoryIndex.Filter indexFilter = new HistoryIndex.Filter();
+        if (null != criteria && criteria.hasCriteria()) {
+            if (criteria.hasAlertIdCriteria()) {
+                indexFilter.ids(filterByAlerts(criteria));
+            }
+            if (criteria.hasTagCriteria()) {
+                indexFilter.ids(getIdsByTags(history.alertTags, criteria.getTags()));
+            }
+            if (criteria.hasTriggerIdCriteria()) {
+                indexFilter.triggerIds(extractTriggerIds(criteria.getTriggerId(), criteria.getTriggerIds()));
+            }
+            if (criteria.hasCTimeCriteria()) {
+                indexFilter.ctimes(criteria.getStartTime(), criteria.getEndTime());
+            }
+            if (criteria.hasSeverityCriteria()) {
+                indexFilter.severities(extractSeverities(criteria));
+            }
+            if (criteria.hasStatusCriteria()) {
+                indexFilter.statuses(extractStatuses(criteria));
+            }
+        }
+        return indexFilter;
+    }
+
+    private HistoryIndex.Filter eventsIndexFilter(History history, EventsCriteria criteria) {
+        HistoryIndex.Filter indexFilter = new HistoryIndex.Filter();
+        if (null != criteria && criteria.hasCriteria()) {
+            if (criteria.hasEventIdCriteria()) {
+                indexFilter.ids(filterByEvents(criteria));
+            }
+            if (criteria.hasTagCriteria()) {
+                indexFilter.ids(getIdsByTags(history.eventTags, criteria.getTags()));
+            }
+            if (criteria.hasTriggerIdCriteria()) {
+                indexFilter.triggerIds(extractTriggerIds(criteria.getTriggerId(), criteria.getTriggerIds()));
+            }
+            if (criteria.hasCTimeCriteria()) {
+                indexFilter.ctimes(criteria.getStartTime(), criteria.getEndTime());
+            }
+            if (criteria.hasCategoryCriteria()) {
+                indexFilter.ids(filterByCategories(history, criteria));
+            }
+        }
+        return indexFilter;
+    }
+
+    @Override
+    public void registerListener(EventsListener listener) {
+        EventsFeed.getInstance().register(listener);
+    }
+
+    @Override
+    public void unregisterListener(EventsListener listener) {
+        EventsFeed.getInstance().unregister(listener);
+    }
+
+    @Override
+    public void sendData(Data data) throws Exception {
+        alertsEngine.sendData(data);
+    }
+
+    @Override
+    public void sendData(Collection<Data> data) throws Exception {
+        alertsEngine.sendData(data);
+    }
+
+    @Override
+    public void sendLocalData(Collection<Data> data) throws Exception {
+        alertsEngine.sendLocalData(data);
+    }
+
+    @Override
+    public void addEvents(Collection<Event> events) throws Exception {
+        if (null == events || events.isEmpty()) {
+            return;
+        }
+        persistEvents(events);
+        alertsEngine.sendEvents(events);
+    }
+
+    private void sendAction(Alert a) {
+        if (actionsService != null && a != null && a.getTrigger() != null && a.getTrigger().getActions() != null) {
+            Map<String, Set<String>> actions = a.getTrigger().getActions();
+            for (String actionPlugin : actions.keySet()) {
+                for (String actionId : actions.get(actionPlugin)) {
+                    Action action = new Action(a.getTrigger().getTenantId(), actionPlugin, actionId, a);
+                    actionsService.send(action);
+                }
+            }
+        }
+    }
+
+    /*
+        The thin payload and the evalSets of an alert are written apart, as on the Cassandra backend, with the ttl
+        of the alert status
+     */
+    private void writeAlert(Alert a) {
+        String key = EmbeddedStore.key(a.getTenantId(), a.getAlertId());
+        long expiration = expiration(RetentionPolicy.ttl(a.getTenantId(), a.getStatus()));
+        store.put(ALERTS, key, bytes(JsonUtil.toBinary(a, true)), expiration);
+        store.put(ALERT_EVALS, key, bytes(JsonUtil.toBinary(new AlertEvalSets(a), false)), expiration);
+        History history = history(a.getTenantId());
+        indexTags(history.alertTags, a);
+        history.alerts.put(Collections.singletonList(HistoryIndex.Entry.of(a)));
+    }
+
+    private void writeEvent(Event e) {
+        long expiration = expiration(RetentionPolicy.ttl(e.getTenantId()));
+        store.put(EVENTS, EmbeddedStore.key(e.getTenantId(), e.getId()), bytes(JsonUtil.toBinary(e, false)),
+                expiration);
+        History history = history(e.getTenantId());
+        indexTags(history.eventTags, e);
+        if (null != e.getCategory()) {
+            history.eventCategories.put(e.getId(), e.getCategory());
+        }
+        history.events.put(Collections.singletonList(HistoryIndex.Entry.of(e)));
+    }
+
+    private static void indexTags(Map<String, Map<String, String>> idTags, Event e) {
+        if (null == e.getTags() || e.getTags().isEmpty()) {
+            idTags.remove(e.getId());
+        } else {
+            idTags.put(e.getId(), new HashMap<>(e.getTags()));
+        }
+    }
+
+    private History history(String tenantId) {
+        return tenants.computeIfAbsent(tenantId, t -> new History());
+    }
+
+    /*
+        A ttl of 0 never expires, as in Cassandra
+     */
+    private static long expiration(int ttl) {
+        return ttl == 0 ? 0 : System.currentTimeMillis() + ttl * 1000L;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private boolean isEmpty(Collection<?> c) {
+        return null == c || c.isEmpty();
+    }
+
+    private boolean isEmpty(String s) {
+        return null == s || s.trim().isEmpty();
+    }
+
+}
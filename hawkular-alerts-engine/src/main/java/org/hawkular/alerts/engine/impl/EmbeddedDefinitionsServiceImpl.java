@@ -0,0 +1,1842 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hawkular.alerts.api.json.JacksonDeserializer;
+import org.hawkular.alerts.api.model.condition.CompareCondition;
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.paging.Order;
+import org.hawkular.alerts.api.model.paging.Page;
+import org.hawkular.alerts.api.model.paging.Pager;
+import org.hawkular.alerts.api.model.paging.TriggerComparator;
+import org.hawkular.alerts.api.model.trigger.FullTrigger;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.services.DefinitionsEvent;
+import org.hawkular.alerts.api.services.DefinitionsEvent.Type;
+import org.hawkular.alerts.api.services.DefinitionsListener;
+import org.hawkular.alerts.api.services.DefinitionsService;
+import org.hawkular.alerts.api.services.TriggersCriteria;
+import org.hawkular.alerts.engine.exception.NotFoundApplicationException;
+import org.hawkular.alerts.engine.log.MsgLogger;
+import org.hawkular.alerts.engine.service.AlertsEngine;
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * An embedded implementation of {@link org.hawkular.alerts.api.services.DefinitionsService}, created by
+ * {@link org.hawkular.alerts.engine.StandaloneAlerts} only. The EJB deployment always uses the Cassandra services.
+ *
+ * Definitions are kept serialized in memory, indexed per tenant, and written through to the log of an
+ * {@link EmbeddedStore}; the indexes are rebuilt from the log on {@link #init()}. Reads never leave the JVM and every
+ * read returns a new copy, so callers can modify what they get as they do with the definitions read from Cassandra.
+ * Validations, group semantics and notifications are the ones of {@link CassDefinitionsServiceImpl}.
+ */
+public class EmbeddedDefinitionsServiceImpl implements DefinitionsService {
+    private static final String JBOSS_DATA_DIR = "jboss.server.data.dir";
+    private static final String INIT_FOLDER = "hawkular-alerts";
+
+    private static final String TRIGGERS = "triggers";
+    private static final String CONDITIONS = "conditions";
+    private static final String DAMPENINGS = "dampenings";
+    private static final String ACTIONS = "actions";
+    private static final String ACTION_PLUGINS = "actionPlugins";
+
+    private final MsgLogger msgLog = MsgLogger.LOGGER;
+    private final Logger log = Logger.getLogger(EmbeddedDefinitionsServiceImpl.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final EmbeddedStore store;
+    private boolean initialized = false;
+
+    private Map<DefinitionsListener, Set<Type>> listeners = new HashMap<>();
+
+    /*
+        Serialized definitions of a tenant
+     */
+    private static final class Definitions {
+        final Map<String, byte[]> triggers = new ConcurrentHashMap<>();
+
+        // triggerId -> tags of the trigger
+        final Map<String, Map<String, String>> tags = new ConcurrentHashMap<>();
+
+        // member triggerId -> group triggerId
+        final Map<String, String> memberOf = new ConcurrentHashMap<>();
+
+        // group triggerId -> member triggerIds
+        final Map<String, Set<String>> members = new ConcurrentHashMap<>();
+
+        // triggerId -> mode -> condition set
+        final Map<String, Map<Mode, byte[]>> conditions = new ConcurrentHashMap<>();
+
+        final Map<String, byte[]> dampenings = new ConcurrentHashMap<>();
+
+        // dampeningId -> triggerId
+        final Map<String, String> dampeningTriggers = new ConcurrentHashMap<>();
+
+        // actionPlugin -> actionId -> properties
+        final Map<String, Map<String, byte[]>> actions = new ConcurrentHashMap<>();
+    }
+
+    private final Map<String, Definitions> tenants = new ConcurrentHashMap<>();
+
+    // actionPlugin -> properties and default properties
+    private final Map<String, byte[]> actionPlugins = new ConcurrentHashMap<>();
+
+    AlertsEngine alertsEngine;
+
+    public EmbeddedDefinitionsServiceImpl(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    public AlertsEngine getAlertsEngine() {
+        return alertsEngine;
+    }
+
+    public void setAlertsEngine(AlertsEngine alertsEngine) {
+        this.alertsEngine = alertsEngine;
+    }
+
+    public void init() {
+        try {
+            load();
+            initialData();
+        } catch (Throwable t) {
+            msgLog.errorCannotInitializeDefinitionsService(t.getMessage());
+            t.printStackTrace();
+        }
+    }
+
+    private void load() {
+        store.forEach(TRIGGERS, (key, value) -> indexTrigger(decode(value, Trigger.class), value));
+        store.forEach(CONDITIONS, (key, value) -> {
+            List<String> parts = EmbeddedStore.parts(key);
+            definitions(parts.get(0)).conditions.computeIfAbsent(parts.get(1), t -> new ConcurrentHashMap<>())
+                    .put(Mode.valueOf(parts.get(2)), value);
+        });
+        store.forEach(DAMPENINGS, (key, value) -> indexDampening(decode(value, Dampening.class), value));
+        store.forEach(ACTIONS, (key, value) -> {
+            List<String> parts = EmbeddedStore.parts(key);
+            definitions(parts.get(0)).actions.computeIfAbsent(parts.get(1), p -> new ConcurrentHashMap<>())
+                    .put(parts.get(2), value);
+        });
+        store.forEach(ACTION_PLUGINS, (key, value) -> actionPlugins.put(EmbeddedStore.parts(key).get(0), value));
+    }
+
+    private void initialData() throws IOException {
+        if (!System.getProperties().containsKey(CassDefinitionsServiceImpl.SKIP_INIT_DATA)) {
+            String data = System.getProperty(JBOSS_DATA_DIR);
+            if (data == null || data.isEmpty()) {
+                msgLog.errorFolderNotFound(data);
+                return;
+            }
+            String folder = data + "/" + INIT_FOLDER;
+            InitialData.load(folder, new InitialData.Target() {
+                @Override
+                public void addTrigger(Trigger trigger) throws Exception {
+                    EmbeddedDefinitionsServiceImpl.this.addTrigger(trigger);
+                }
+
+                @Override
+                public void addCondition(Condition condition) throws Exception {
+                    Collection<Condition> conditions = getTriggerConditions(condition.getTenantId(),
+                            condition.getTriggerId(), condition.getTriggerMode());
+                    conditions.add(condition);
+                    setConditions(condition.getTenantId(), condition.getTriggerId(), condition.getTriggerMode(),
+                            conditions);
+                }
+
+                @Override
+                public void addDampening(Dampening dampening) throws Exception {
+                    EmbeddedDefinitionsServiceImpl.this.addDampening(dampening);
+                }
+
+                @Override
+                public void addAction(String tenantId, String actionPlugin, String actionId,
+                        Map<String, String> properties) throws Exception {
+                    EmbeddedDefinitionsServiceImpl.this.addAction(tenantId, actionPlugin, actionId, properties);
+                }
+            });
+        }
+        initialized = true;
+    }
+
+    @Override
+    public void addAction(String tenantId, String actionPlugin, String actionId, Map<String, String> properties)
+            throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(actionPlugin)) {
+            throw new IllegalArgumentException("ActionPlugin must be not null");
+        }
+        if (isEmpty(actionId)) {
+            throw new IllegalArgumentException("ActionId must be not null");
+        }
+        if (properties == null || properties.isEmpty()) {
+            throw new IllegalArgumentException("Properties must be not null");
+        }
+        properties.put("actionId", actionId);
+        properties.put("actionPlugin", actionPlugin);
+        properties.put("tenantId", tenantId);
+        storeAction(tenantId, actionPlugin, actionId, properties);
+    }
+
+    @Override
+    public void addTrigger(String tenantId, Trigger trigger) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(trigger)) {
+            throw new IllegalArgumentException("Trigger must be not null");
+        }
+
+        checkTenantId(tenantId, trigger);
+        trigger.setGroup(false);
+
+        addTrigger(trigger);
+    }
+
+    @Override
+    public void addGroupTrigger(String tenantId, Trigger groupTrigger) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(groupTrigger)) {
+            throw new IllegalArgumentException("TriggerId must be not null");
+        }
+
+        checkTenantId(tenantId, groupTrigger);
+        groupTrigger.setGroup(true);
+
+        addTrigger(groupTrigger);
+    }
+
+    private void addTrigger(Trigger trigger) throws Exception {
+        storeTrigger(trigger);
+
+        if (initialized && null != alertsEngine) {
+            alertsEngine.addTrigger(trigger.getTenantId(), trigger.getId());
+        }
+
+        notifyListeners(DefinitionsEvent.Type.TRIGGER_CREATE);
+    }
+
+    @Override
+    public void removeTrigger(String tenantId, String triggerId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(triggerId)) {
+            throw new IllegalArgumentException("TriggerId must be not null");
+        }
+
+        Trigger doomedTrigger = getTrigger(tenantId, triggerId);
+        if (null == doomedTrigger) {
+            throw new NotFoundApplicationException(Trigger.class.getName(), tenantId, triggerId);
+        }
+        if (doomedTrigger.isGroup()) {
+            throw new IllegalArgumentException("Trigger [" + tenantId + "/" + triggerId + "] is a group trigger.");
+        }
+        if (doomedTrigger.isMember()) {
+            throw new IllegalArgumentException("Trigger [" + tenantId + "/" + triggerId
+                    + "] is a member trigger and must be removed via the group.");
+        }
+
+        removeTrigger(doomedTrigger);
+    }
+
+    @Override
+    public void removeGroupTrigger(String tenantId, String groupId, boolean keepNonOrphans, boolean keepOrphans)
+            throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(groupId)) {
+            throw new IllegalArgumentException("GroupId must be not null");
+        }
+
+        Trigger doomedTrigger = getTrigger(tenantId, groupId);
+        if (null == doomedTrigger) {
+            throw new NotFoundApplicationException(Trigger.class.getName(), tenantId, groupId);
+        }
+        if (!doomedTrigger.isGroup()) {
+            throw new IllegalArgumentException("Trigger [" + tenantId + "/" + groupId + "] is not a group trigger");
+        }
+
+        Collection<Trigger> memberTriggers = getMemberTriggers(tenantId, groupId, true);
+
+        Set<Type> changes = EnumSet.of(Type.TRIGGER_REMOVE);
+        List<String> triggerIds = new ArrayList<>(memberTriggers.size() + 1);
+        for (Trigger member : memberTriggers) {
+            if ((keepNonOrphans && !member.isOrphan()) || (keepOrphans && member.isOrphan())) {
+                member.setMemberOf(null);
+                member.setOrphan(false);
+                storeTrigger(member);
+                changes.add(Type.TRIGGER_UPDATE);
+            } else {
+                deleteTrigger(tenantId, member.getId());
+            }
+            triggerIds.add(member.getId());
+        }
+        deleteTrigger(tenantId, groupId);
+        triggerIds.add(groupId);
+
+        triggersChanged(tenantId, triggerIds, changes);
+    }
+
+    private void removeTrigger(Trigger trigger) throws Exception {
+        String tenantId = trigger.getTenantId();
+        String triggerId = trigger.getId();
+
+        deleteTrigger(tenantId, triggerId);
+
+        /*
+            Trigger should be removed from the alerts engine.
+         */
+        if (initialized && null != alertsEngine) {
+            alertsEngine.removeTrigger(tenantId, triggerId);
+        }
+
+        notifyListeners(DefinitionsEvent.Type.TRIGGER_REMOVE);
+    }
+
+    @Override
+    public Trigger updateTrigger(String tenantId, Trigger trigger) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(trigger)) {
+            throw new IllegalArgumentException("TriggerId must be not null");
+        }
+
+        checkTenantId(tenantId, trigger);
+        String triggerId = trigger.getId();
+        Trigger existingTrigger = getTrigger(tenantId, trigger.getId());
+        if (null == existingTrigger) {
+            throw new NotFoundApplicationException(Trigger.class.getName(), tenantId, trigger.getId());
+        }
+        if (existingTrigger.isGroup()) {
+            throw new IllegalArgumentException("Trigger [" + tenantId + "/" + triggerId + "] is a group trigger.");
+        }
+        if (existingTrigger.isMember()) {
+            if (!existingTrigger.isOrphan()) {
+                throw new IllegalArgumentException("Trigger [" + tenantId + "/" + triggerId
+                        + "] is a member trigger and must be updated via the group.");
+            }
+            if (!existingTrigger.getMemberOf().equals(trigger.getMemberOf())) {
+                throw new IllegalArgumentException("A member trigger can not change groups.");
+            }
+            if (existingTrigger.isOrphan() != trigger.isOrphan()) {
+                throw new IllegalArgumentException("Orphan status can not be changed by this method.");
+            }
+        }
+
+        return updateTrigger(trigger);
+    }
+
+    @Override
+    public Trigger updateGroupTrigger(String tenantId, Trigger groupTrigger) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(groupTrigger)) {
+            throw new IllegalArgumentException("Trigger must be not null");
+        }
+
+        checkTenantId(tenantId, groupTrigger);
+        String groupId = groupTrigger.getId();
+
+        Trigger existingGroupTrigger = getTrigger(tenantId, groupId);
+        if (null == existingGroupTrigger) {
+            throw new NotFoundApplicationException(Trigger.class.getName(), tenantId, groupTrigger.getId());
+        }
+        if (!existingGroupTrigger.isGroup()) {
+            throw new IllegalArgumentException("Trigger [" + tenantId + "/" + groupId + "] is not a group trigger");
+        }
+
+        groupTrigger.setGroup(true);
+        Collection<Trigger> memberTriggers = getMemberTriggers(tenantId, groupId, false);
+
+        List<String> triggerIds = new ArrayList<>(memberTriggers.size() + 1);
+        for (Trigger member : memberTriggers) {
+            storeTrigger(CassDefinitionsServiceImpl.copyGroupTrigger(groupTrigger, member));
+            triggerIds.add(member.getId());
+        }
+        storeTrigger(groupTrigger);
+        triggerIds.add(groupId);
+
+        triggersChanged(tenantId, triggerIds, EnumSet.of(Type.TRIGGER_UPDATE));
+
+        return groupTrigger;
+    }
+
+    private Trigger updateTrigger(Trigger trigger) throws Exception {
+        storeTrigger(trigger);
+
+        if (initialized && null != alertsEngine) {
+            alertsEngine.reloadTrigger(trigger.getTenantId(), trigger.getId());
+        }
+
+        notifyListeners(DefinitionsEvent.Type.TRIGGER_UPDATE);
+
+        return trigger;
+    }
+
+    @Override
+    public Trigger orphanMemberTrigger(String tenantId, String memberId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(memberId)) {
+            throw new IllegalArgumentException("TriggerId must be not null");
+        }
+
+        Trigger member = getTrigger(tenantId, memberId);
+        if (null == member) {
+            throw new NotFoundApplicationException(Trigger.class.getName(), tenantId, memberId);
+        }
+        if (!member.isMember()) {
+            throw new IllegalArgumentException("Trigger is not a member trigger: [" + tenantId + "/" + memberId + "]");
+        }
+        if (member.isOrphan()) {
+            throw new IllegalArgumentException("Trigger is already an orphan: [" + tenantId + "/" + memberId + "]");
+        }
+
+        member.setOrphan(true);
+        return updateTrigger(member);
+    }
+
+    @Override
+    public Trigger unorphanMemberTrigger(String tenantId, String memberId, Map<String, String> memberContext,
+            Map<String, String> dataIdMap) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(memberId)) {
+            throw new IllegalArgumentException("TriggerId must be not null");
+        }
+
+        Trigger orphanMember = getTrigger(tenantId, memberId);
+        if (null == orphanMember) {
+            throw new NotFoundApplicationException(Trigger.class.getName(), tenantId, memberId);
+        }
+        if (!orphanMember.isMember()) {
+            throw new IllegalArgumentException("Trigger is not a member trigger: [" + tenantId + "/" + memberId + "]");
+        }
+        if (!orphanMember.isOrphan()) {
+            throw new IllegalArgumentException("Trigger is not an orphan: [" + tenantId + "/" + memberId + "]");
+        }
+
+        String groupId = orphanMember.getMemberOf();
+        String memberName = orphanMember.getName();
+
+        removeTrigger(orphanMember);
+        return addMemberTrigger(tenantId, groupId, memberId, memberName, memberContext, dataIdMap);
+    }
+
+    @Override
+    public Trigger getTrigger(String tenantId, String triggerId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(triggerId)) {
+            throw new IllegalArgumentException("TriggerId must be not null");
+        }
+        Definitions definitions = tenants.get(tenantId);
+        byte[] trigger = definitions == null ? null : definitions.triggers.get(triggerId);
+        return trigger == null ? null : decode(trigger, Trigger.class);
+    }
+
+    @Override
+    public Collection<Trigger> getAllTriggers() throws Exception {
+        List<Trigger> triggers = new ArrayList<>();
+        for (Definitions definitions : tenants.values()) {
+            for (byte[] trigger : definitions.triggers.values()) {
+                triggers.add(decode(trigger, Trigger.class));
+            }
+        }
+        return triggers;
+    }
+
+    /*
+        The store is read from memory, the query completes on the calling thread
+     */
+    @Override
+    public CompletionStage<Page<Trigger>> getTriggersAsync(String tenantId, TriggersCriteria criteria, Pager pager) {
+        try {
+            return CompletableFuture.completedFuture(getTriggers(tenantId, criteria, pager));
+        } catch (Exception e) {
+            return AsyncQueries.failed(e);
+        }
+    }
+
+    @Override
+    public Page<Trigger> getTriggers(String tenantId, TriggersCriteria criteria, Pager pager) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        boolean filter = (null != criteria && criteria.hasCriteria());
+
+        if (filter && log.isDebugEnabled()) {
+            log.debug("getTriggers criteria: " + criteria.toString());
+        }
+
+        List<Trigger> triggers = new ArrayList<>();
+        Definitions definitions = tenants.get(tenantId);
+        if (definitions == null) {
+            return prepareTriggersPage(triggers, pager);
+        }
+
+        Collection<String> triggerIds = definitions.triggers.keySet();
+        if (filter) {
+            Set<String> filteredIds = null;
+            if (criteria.hasTriggerIdCriteria()) {
+                filteredIds = filterByTriggers(criteria);
+            }
+            if (criteria.hasTagCriteria()) {
+                Set<String> idsFilteredByTags = getIdsByTags(definitions, criteria.getTags());
+                if (filteredIds == null) {
+                    filteredIds = idsFilteredByTags;
+                } else {
+                    filteredIds.retainAll(idsFilteredByTags);
+                }
+            }
+            if (filteredIds.isEmpty()) {
+                return new Page<>(triggers, pager, 0);
+            }
+            triggerIds = filteredIds;
+        }
+        for (String triggerId : triggerIds) {
+            byte[] trigger = definitions.triggers.get(triggerId);
+            if (trigger != null) {
+                triggers.add(decode(trigger, Trigger.class));
+            }
+        }
+
+        return prepareTriggersPage(triggers, pager);
+    }
+
+    private Set<String> filterByTriggers(TriggersCriteria criteria) {
+        Set<String> result = new HashSet<>();
+        if (isEmpty(criteria.getTriggerIds())) {
+            if (!isEmpty(criteria.getTriggerId())) {
+                result.add(criteria.getTriggerId());
+            }
+        } else {
+            result.addAll(criteria.getTriggerIds());
+        }
+        return result;
+    }
+
+    /*
+        Ids of the triggers with any of the tags, a tag value of '*' matches any value
+     */
+    private Set<String> getIdsByTags(Definitions definitions, Map<String, String> tags) {
+        Set<String> ids = new HashSet<>();
+        for (Map.Entry<String, Map<String, String>> triggerTags : definitions.tags.entrySet()) {
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                String value = triggerTags.getValue().get(tag.getKey());
+                if (value != null && ("*".equals(tag.getValue()) || value.equals(tag.getValue()))) {
+                    ids.add(triggerTags.getKey());
+                    break;
+                }
+            }
+        }
+        return ids;
+    }
+
+    private Page<Trigger> prepareTriggersPage(List<Trigger> triggers, Pager pager) {
+        if (pager != null) {
+            if (pager.getOrder() != null
+                    && !pager.getOrder().isEmpty()
+                    && pager.getOrder().get(0).getField() == null) {
+                pager = Pager.builder()
+                        .withPageSize(pager.getPageSize())
+                        .withStartPage(pager.getPageNumber())
+                        .orderBy(TriggerComparator.Field.NAME.getName(), Order.Direction.DESCENDING).build();
+            }
+            List<Trigger> ordered = triggers;
+            if (pager.getOrder() != null) {
+                pager.getOrder()
+                        .stream()
+                        .filter(o -> o.getField() != null && o.getDirection() != null)
+                        .forEach(o -> {
+                            TriggerComparator comparator = new TriggerComparator(TriggerComparator.Field.getName(
+                                    o.getField()), o.getDirection());
+                            Collections.sort(ordered, comparator);
+                        });
+            }
+            if (!pager.isLimited() || ordered.size() < pager.getStart()) {
+                pager = new Pager(0, ordered.size(), pager.getOrder());
+                return new Page<>(ordered, pager, ordered.size());
+            }
+            if (pager.getEnd() >= ordered.size()) {
+                return new Page<>(ordered.subList(pager.getStart(), ordered.size()), pager, ordered.size());
+            }
+            return new Page<>(ordered.subList(pager.getStart(), pager.getEnd()), pager, ordered.size());
+        } else {
+            pager = Pager.builder().withPageSize(triggers.size()).orderBy(TriggerComparator.Field.ID.getName(),
+                    Order.Direction.ASCENDING).build();
+            return new Page<>(triggers, pager, triggers.size());
+        }
+    }
+
+    @Override
+    public Collection<Trigger> getAllTriggersByTag(String name, String value) throws Exception {
+        if (isEmpty(name)) {
+            throw new IllegalArgumentException("name must be not null");
+        }
+        if (isEmpty(value)) {
+            throw new IllegalArgumentException("value must be not null (use '*' for all");
+        }
+        List<Trigger> triggers = new ArrayList<>();
+        for (Definitions definitions : tenants.values()) {
+            for (String triggerId : getIdsByTags(definitions, Collections.singletonMap(name, value))) {
+                byte[] trigger = definitions.triggers.get(triggerId);
+                if (trigger != null) {
+                    triggers.add(decode(trigger, Trigger.class));
+                }
+            }
+        }
+        return triggers;
+    }
+
+    @Override
+    public Collection<Trigger> getMemberTriggers(String tenantId, String groupId, boolean includeOrphans)
+            throws Exception {
+        List<Trigger> triggers = new ArrayList<>();
+        Definitions definitions = tenants.get(tenantId);
+        if (definitions == null) {
+            return triggers;
+        }
+        Set<String> memberIds = definitions.members.getOrDefault(groupId, Collections.emptySet());
+        for (String memberId : memberIds) {
+            byte[] value = definitions.triggers.get(memberId);
+            Trigger member = value == null ? null : decode(value, Trigger.class);
+            if (member != null && (includeOrphans || !member.isOrphan())) {
+                triggers.add(member);
+            }
+        }
+        return triggers;
+    }
+
+    @Override
+    public Trigger addMemberTrigger(String tenantId, String groupId, String memberId, String memberName,
+            Map<String, String> memberContext, Map<String, String> dataIdMap) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(groupId)) {
+            throw new IllegalArgumentException("TriggerId must be not null");
+        }
+        if (isEmpty(memberName)) {
+            throw new IllegalArgumentException("MemberName must be not null");
+        }
+        if (isEmpty(dataIdMap)) {
+            throw new IllegalArgumentException("DataIdMap must be not null");
+        }
+
+        // fetch the group trigger
+        Trigger group = getTrigger(tenantId, groupId);
+        if (group == null) {
+            throw new IllegalArgumentException("Trigger not found for tenantId/triggerId [ " + tenantId + "]/[" +
+                    groupId + "]");
+        }
+
+        // ensure we have a 1-1 mapping for the dataId substitution
+        Set<String> dataIdTokens = new HashSet<>();
+        Collection<Condition> conditions = getTriggerConditions(tenantId, groupId, null);
+        for (Condition c : conditions) {
+            if (Condition.Type.COMPARE == c.getType()) {
+                dataIdTokens.add(c.getDataId());
+                dataIdTokens.add(((CompareCondition) c).getData2Id());
+            } else {
+                dataIdTokens.add(c.getDataId());
+            }
+        }
+        if (!dataIdTokens.equals(dataIdMap.keySet())) {
+            throw new IllegalArgumentException(
+                    "DataIdMap must contain the exact dataIds (keyset) expected by the condition set. Expected: "
+                            + dataIdTokens + ", dataIdMap: " + dataIdMap.keySet());
+        }
+
+        // create a member trigger like the group trigger
+        memberId = (null == memberId) ? Trigger.generateId() : memberId;
+        Trigger member = new Trigger(tenantId, memberId, memberName);
+        CassDefinitionsServiceImpl.copyGroupTrigger(group, member);
+        if (null != memberContext) {
+            member.setContext(memberContext);
+        }
+
+        addTrigger(tenantId, member);
+
+        // add any conditions
+        for (Condition c : conditions) {
+            Condition newCondition = CassDefinitionsServiceImpl.getMemberCondition(member, c, dataIdMap);
+            if (newCondition != null) {
+                addCondition(newCondition);
+            }
+        }
+
+        // add any dampening
+        Collection<Dampening> dampenings = getTriggerDampenings(tenantId, groupId, null);
+        for (Dampening d : dampenings) {
+            Dampening newDampening = new Dampening(member.getId(), d.getTriggerMode(), d.getType(),
+                    d.getEvalTrueSetting(), d.getEvalTotalSetting(), d.getEvalTimeSetting());
+            newDampening.setTenantId(member.getTenantId());
+
+            addDampening(newDampening);
+        }
+
+        return member;
+    }
+
+    @Override
+    public int importTriggers(String tenantId, Iterator<FullTrigger> fullTriggers) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (fullTriggers == null) {
+            throw new IllegalArgumentException("FullTriggers must be not null");
+        }
+
+        Set<String> imported = new LinkedHashSet<>();
+        Set<Type> changes = EnumSet.noneOf(Type.class);
+        try {
+            while (fullTriggers.hasNext()) {
+                FullTrigger fullTrigger = fullTriggers.next();
+                Map<Mode, List<Condition>> conditionSets = FullTriggers.prepare(tenantId, fullTrigger);
+                importTrigger(fullTrigger, conditionSets, changes);
+                imported.add(fullTrigger.getTrigger().getId());
+            }
+        } finally {
+            /*
+                Triggers are loaded and listeners notified once for the whole import, also for the triggers imported
+                before a failure
+             */
+            if (!imported.isEmpty()) {
+                if (initialized && null != alertsEngine) {
+                    alertsEngine.reloadTriggers(tenantId, imported);
+                }
+                notifyListeners(changes);
+            }
+        }
+        return imported.size();
+    }
+
+    private synchronized void importTrigger(FullTrigger fullTrigger, Map<Mode, List<Condition>> conditionSets,
+            Set<Type> changes) {
+        Trigger trigger = fullTrigger.getTrigger();
+        String tenantId = trigger.getTenantId();
+        Definitions definitions = tenants.get(tenantId);
+        boolean replaced = definitions != null && definitions.triggers.containsKey(trigger.getId());
+        if (replaced) {
+            deleteTrigger(tenantId, trigger.getId());
+        }
+        for (Map<String, String> action : fullTrigger.getActions()) {
+            storeAction(tenantId, action.get("actionPlugin"), action.get("actionId"), action);
+        }
+        storeTrigger(trigger);
+        for (Map.Entry<Mode, List<Condition>> conditionSet : conditionSets.entrySet()) {
+            if (!conditionSet.getValue().isEmpty()) {
+                storeConditions(tenantId, trigger.getId(), conditionSet.getKey(), conditionSet.getValue());
+            }
+        }
+        for (Dampening dampening : fullTrigger.getDampenings()) {
+            storeDampening(dampening);
+        }
+        changes.add(replaced ? Type.TRIGGER_UPDATE : Type.TRIGGER_CREATE);
+        if (replaced || !fullTrigger.getConditions().isEmpty()) {
+            changes.add(Type.CONDITION_CHANGE);
+        }
+        if (replaced || !fullTrigger.getDampenings().isEmpty()) {
+            changes.add(Type.DAMPENING_CHANGE);
+        }
+    }
+
+    @Override
+    public Collection<FullTrigger> getFullTriggers(String tenantId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        return FullTriggers.assemble(getTriggers(tenantId, null, null), getConditions(tenantId),
+                getDampenings(tenantId), (actionPlugin, actionId) -> getAction(tenantId, actionPlugin, actionId));
+    }
+
+    /*
+        Only the trigger ids of the tenant are copied upfront, the definitions are decoded for each chunk of ids.
+     */
+    @Override
+    public Iterator<FullTrigger> iterateFullTriggers(String tenantId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        Definitions definitions = tenants.get(tenantId);
+        List<String> ids = definitions == null ? new ArrayList<>() : new ArrayList<>(definitions.triggers.keySet());
+        return ResultIterators.chunked(ids.iterator(), triggerIds -> {
+            List<Trigger> triggers = new ArrayList<>(triggerIds.size());
+            for (String triggerId : triggerIds) {
+                byte[] trigger = definitions.triggers.get(triggerId);
+                if (trigger != null) {
+                    triggers.add(decode(trigger, Trigger.class));
+                }
+            }
+            return FullTriggers.assemble(triggers, getConditions(tenantId, triggerIds),
+                    getDampenings(tenantId, triggerIds),
+                    (actionPlugin, actionId) -> getAction(tenantId, actionPlugin, actionId));
+        });
+    }
+
+    @Override
+    public Dampening addDampening(String tenantId, Dampening dampening) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(dampening)) {
+            throw new IllegalArgumentException("TriggerId must be not null");
+        }
+
+        checkTenantId(tenantId, dampening);
+        checkManagedTrigger(tenantId, dampening.getTriggerId());
+
+        return addDampening(dampening);
+    }
+
+    @Override
+    public Dampening addGroupDampening(String tenantId, Dampening dampening) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(dampening)) {
+            throw new IllegalArgumentException("TriggerId must be not null");
+        }
+
+        checkTenantId(tenantId, dampening);
+        String groupId = dampening.getTriggerId();
+        Trigger groupTrigger = checkGroupTrigger(tenantId, groupId);
+
+        return storeGroupDampening(tenantId, groupTrigger, dampening);
+    }
+
+    private Dampening storeGroupDampening(String tenantId, Trigger groupTrigger, Dampening dampening)
+            throws Exception {
+        Collection<Trigger> memberTriggers = getMemberTriggers(tenantId, groupTrigger.getId(), false);
+        List<String> triggerIds = new ArrayList<>(memberTriggers.size() + 1);
+        for (Trigger member : memberTriggers) {
+            dampening.setTriggerId(member.getId());
+            storeDampening(dampening);
+            triggerIds.add(member.getId());
+        }
+        dampening.setTriggerId(groupTrigger.getId());
+        storeDampening(dampening);
+        triggerIds.add(groupTrigger.getId());
+
+        triggersChanged(tenantId, triggerIds, EnumSet.of(Type.DAMPENING_CHANGE));
+
+        return dampening;
+    }
+
+    private Dampening addDampening(Dampening dampening) throws Exception {
+        storeDampening(dampening);
+
+        if (initialized && null != alertsEngine) {
+            alertsEngine.reloadTrigger(dampening.getTenantId(), dampening.getTriggerId());
+        }
+
+        notifyListeners(DefinitionsEvent.Type.DAMPENING_CHANGE);
+
+        return dampening;
+    }
+
+    @Override
+    public void removeDampening(String tenantId, String dampeningId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(dampeningId)) {
+            throw new IllegalArgumentException("dampeningId must be not null");
+        }
+
+        Dampening dampening = getDampening(tenantId, dampeningId);
+        if (null == dampening) {
+            if (log.isDebugEnabled()) {
+                log.debug("Ignoring removeDampening(" + dampeningId + "), the Dampening does not exist.");
+            }
+            return;
+        }
+
+        checkManagedTrigger(tenantId, dampening.getTriggerId());
+
+        removeDampening(dampening);
+    }
+
+    @Override
+    public void removeGroupDampening(String tenantId, String dampeningId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(dampeningId)) {
+            throw new IllegalArgumentException("dampeningId must be not null");
+        }
+
+        Dampening dampening = getDampening(tenantId, dampeningId);
+        if (null == dampening) {
+            if (log.isDebugEnabled()) {
+                log.debug("Ignoring removeDampening(" + dampeningId + "), the Dampening does not exist.");
+            }
+            return;
+        }
+
+        String groupId = dampening.getTriggerId();
+        checkGroupTrigger(tenantId, groupId);
+
+        Collection<Trigger> memberTriggers = getMemberTriggers(tenantId, groupId, false);
+        List<String> triggerIds = new ArrayList<>(memberTriggers.size() + 1);
+        for (Trigger member : memberTriggers) {
+            Collection<Dampening> dampenings = getTriggerDampenings(tenantId, member.getId(),
+                    dampening.getTriggerMode());
+            if (dampenings.isEmpty()) {
+                continue;
+            }
+            deleteDampening(tenantId, dampenings.iterator().next().getDampeningId());
+            triggerIds.add(member.getId());
+        }
+        deleteDampening(tenantId, dampeningId);
+        triggerIds.add(groupId);
+
+        triggersChanged(tenantId, triggerIds, EnumSet.of(Type.DAMPENING_CHANGE));
+    }
+
+    private void removeDampening(Dampening dampening) throws Exception {
+        deleteDampening(dampening.getTenantId(), dampening.getDampeningId());
+
+        if (initialized && null != alertsEngine) {
+            alertsEngine.reloadTrigger(dampening.getTenantId(), dampening.getTriggerId());
+        }
+
+        notifyListeners(DefinitionsEvent.Type.DAMPENING_CHANGE);
+    }
+
+    @Override
+    public Dampening updateDampening(String tenantId, Dampening dampening) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(dampening)) {
+            throw new IllegalArgumentException("DampeningId must be not null");
+        }
+
+        checkTenantId(tenantId, dampening);
+        checkManagedTrigger(tenantId, dampening.getTriggerId());
+
+        return addDampening(dampening);
+    }
+
+    @Override
+    public Dampening updateGroupDampening(String tenantId, Dampening dampening) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(dampening)) {
+            throw new IllegalArgumentException("DampeningId must be not null");
+        }
+
+        checkTenantId(tenantId, dampening);
+        String groupId = dampening.getTriggerId();
+        Trigger groupTrigger = checkGroupTrigger(tenantId, groupId);
+
+        return storeGroupDampening(tenantId, groupTrigger, dampening);
+    }
+
+    @Override
+    public Dampening getDampening(String tenantId, String dampeningId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(dampeningId)) {
+            throw new IllegalArgumentException("DampeningId must be not null");
+        }
+        Definitions definitions = tenants.get(tenantId);
+        byte[] dampening = definitions == null ? null : definitions.dampenings.get(dampeningId);
+        return dampening == null ? null : decode(dampening, Dampening.class);
+    }
+
+    @Override
+    public Collection<Dampening> getTriggerDampenings(String tenantId, String triggerId, Mode triggerMode)
+            throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(triggerId)) {
+            throw new IllegalArgumentException("TriggerId must be not null");
+        }
+        List<Dampening> dampenings = new ArrayList<>();
+        Definitions definitions = tenants.get(tenantId);
+        if (definitions == null) {
+            return dampenings;
+        }
+        for (Map.Entry<String, String> dampeningTrigger : definitions.dampeningTriggers.entrySet()) {
+            if (!dampeningTrigger.getValue().equals(triggerId)) {
+                continue;
+            }
+            byte[] value = definitions.dampenings.get(dampeningTrigger.getKey());
+            Dampening dampening = value == null ? null : decode(value, Dampening.class);
+            if (dampening != null && (triggerMode == null || triggerMode == dampening.getTriggerMode())) {
+                dampenings.add(dampening);
+            }
+        }
+        return dampenings;
+    }
+
+    @Override
+    public Collection<Dampening> getAllDampenings() throws Exception {
+        List<Dampening> dampenings = new ArrayList<>();
+        for (Definitions definitions : tenants.values()) {
+            for (byte[] dampening : definitions.dampenings.values()) {
+                dampenings.add(decode(dampening, Dampening.class));
+            }
+        }
+        return dampenings;
+    }
+
+    @Override
+    public Collection<Dampening> getDampenings(String tenantId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        List<Dampening> dampenings = new ArrayList<>();
+        Definitions definitions = tenants.get(tenantId);
+        if (definitions != null) {
+            for (byte[] dampening : definitions.dampenings.values()) {
+                dampenings.add(decode(dampening, Dampening.class));
+            }
+        }
+        return dampenings;
+    }
+
+    @Override
+    public Collection<Dampening> getDampenings(String tenantId, Collection<String> triggerIds) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (null == triggerIds) {
+            throw new IllegalArgumentException("TriggerIds must be not null");
+        }
+        List<Dampening> dampenings = new ArrayList<>();
+        Definitions definitions = tenants.get(tenantId);
+        if (definitions == null || triggerIds.isEmpty()) {
+            return dampenings;
+        }
+        Set<String> triggerIdSet = new HashSet<>(triggerIds);
+        for (Map.Entry<String, String> dampeningTrigger : definitions.dampeningTriggers.entrySet()) {
+            if (!triggerIdSet.contains(dampeningTrigger.getValue())) {
+                continue;
+            }
+            byte[] value = definitions.dampenings.get(dampeningTrigger.getKey());
+            if (value != null) {
+                dampenings.add(decode(value, Dampening.class));
+            }
+        }
+        return dampenings;
+    }
+
+    @Override
+    @Deprecated
+    public Collection<Condition> addCondition(String tenantId, String triggerId, Mode triggerMode,
+            Condition condition) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(triggerId)) {
+            throw new IllegalArgumentException("TriggerId must be not null");
+        }
+        if (triggerMode == null) {
+            throw new IllegalArgumentException("TriggerMode must be not null");
+        }
+        if (condition == null) {
+            throw new IllegalArgumentException("Condition must be not null");
+        }
+
+        checkManagedTrigger(tenantId, triggerId);
+
+        condition.setTenantId(tenantId);
+        condition.setTriggerId(triggerId);
+        condition.setTriggerMode(triggerMode);
+
+        return addCondition(condition);
+    }
+
+    @Override
+    public Collection<Condition> setGroupConditions(String tenantId, String groupId, Mode triggerMode,
+            Collection<Condition> groupConditions, Map<String, Map<String, String>> dataIdMemberMap) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(groupId)) {
+            throw new IllegalArgumentException("TriggerId must be not null");
+        }
+        if (triggerMode == null) {
+            throw new IllegalArgumentException("TriggerMode must be not null");
+        }
+        if (groupConditions == null) {
+            throw new IllegalArgumentException("GroupConditions must be not null");
+        }
+
+        Trigger group = getTrigger(tenantId, groupId);
+        if (null == group) {
+            throw new NotFoundApplicationException(Trigger.class.getName(), tenantId, groupId);
+        }
+        if (!group.isGroup()) {
+            throw new IllegalArgumentException("Trigger [" + tenantId + "/" + groupId + "] is not a group trigger.");
+        }
+
+        Collection<Trigger> memberTriggers = getMemberTriggers(tenantId, groupId, false);
+
+        // allow the dataIdMap to be empty when there are no member triggers
+        if (!memberTriggers.isEmpty()) {
+            if (dataIdMemberMap == null) {
+                throw new IllegalArgumentException("DataIdMemberMap must be not null when member triggers exist.");
+            }
+
+            // first, validate the dataIdMap
+            for (Condition groupCondition : groupConditions) {
+                if (!dataIdMemberMap.containsKey(groupCondition.getDataId())) {
+                    throw new IllegalArgumentException("Missing dataIdMap entry for dataId token ["
+                            + groupCondition.getDataId() + "]");
+                }
+                if (Condition.Type.COMPARE == groupCondition.getType()) {
+                    CompareCondition cc = (CompareCondition) groupCondition;
+                    if (!dataIdMemberMap.containsKey(cc.getData2Id())) {
+                        throw new IllegalArgumentException(
+                                "Missing dataIdMap entry for CompareCondition data2Id token ["
+                                        + cc.getData2Id() + "]");
+                    }
+                }
+                for (Map.Entry<String, Map<String, String>> entry : dataIdMemberMap.entrySet()) {
+                    String dataId = entry.getKey();
+                    Map<String, String> memberMap = entry.getValue();
+                    if (memberMap.size() != memberTriggers.size()) {
+                        throw new IllegalArgumentException("memberMap size [" + memberMap.size() + "] for dataId ["
+                                + dataId + "] must equal number of member triggers [" + memberTriggers.size() + "]");
+                    }
+                    for (Trigger member : memberTriggers) {
+                        String value = memberMap.get(member.getId());
+                        if (isEmpty(value)) {
+                            throw new IllegalArgumentException(
+                                    "Invalid mapping. DataId=[" + dataId + "], Member=[" + member.getId()
+                                            + "], value=[" + value + "]");
+                        }
+                    }
+                }
+            }
+        }
+
+        CassDefinitionsServiceImpl.setConditionSet(tenantId, groupId, triggerMode, groupConditions);
+
+        // set conditions on the members
+        List<String> triggerIds = new ArrayList<>(memberTriggers.size() + 1);
+        Map<String, String> dataIdMap = new HashMap<>();
+        for (Trigger member : memberTriggers) {
+            dataIdMap.clear();
+            for (Map.Entry<String, Map<String, String>> entry : dataIdMemberMap.entrySet()) {
+                dataIdMap.put(entry.getKey(), entry.getValue().get(member.getId()));
+            }
+            List<Condition> memberConditions = new ArrayList<>(groupConditions.size());
+            for (Condition groupCondition : groupConditions) {
+                memberConditions.add(CassDefinitionsServiceImpl.getMemberCondition(member, groupCondition,
+                        dataIdMap));
+            }
+            storeConditions(tenantId, member.getId(), triggerMode, memberConditions);
+            triggerIds.add(member.getId());
+        }
+
+        // set conditions on the group trigger
+        storeConditions(tenantId, groupId, triggerMode, groupConditions);
+        triggerIds.add(groupId);
+
+        triggersChanged(tenantId, triggerIds, EnumSet.of(Type.CONDITION_CHANGE));
+
+        return groupConditions;
+    }
+
+    private Collection<Condition> addCondition(Condition condition) throws Exception {
+        String tenantId = condition.getTenantId();
+        String triggerId = condition.getTriggerId();
+        Mode triggerMode = condition.getTriggerMode();
+        Collection<Condition> conditions = getTriggerConditions(tenantId, triggerId, triggerMode);
+        conditions.add(condition);
+        return setConditions(tenantId, triggerId, triggerMode, conditions);
+    }
+
+    @Override
+    @Deprecated
+    public Collection<Condition> removeCondition(String tenantId, String conditionId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(conditionId)) {
+            throw new IllegalArgumentException("ConditionId must be not null");
+        }
+
+        Condition condition = getCondition(tenantId, conditionId);
+        if (null == condition) {
+            if (log.isDebugEnabled()) {
+                log.debug("Ignoring removeCondition [" + conditionId + "], the condition does not exist.");
+            }
+            return null;
+        }
+
+        checkManagedTrigger(tenantId, condition.getTriggerId());
+
+        Collection<Condition> conditions = getTriggerConditions(tenantId, condition.getTriggerId(),
+                condition.getTriggerMode());
+        conditions.removeIf(c -> c.getConditionId().equals(conditionId));
+        return setConditions(tenantId, condition.getTriggerId(), condition.getTriggerMode(), conditions);
+    }
+
+    @Override
+    @Deprecated
+    public Collection<Condition> updateCondition(String tenantId, Condition condition) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (condition == null) {
+            throw new IllegalArgumentException("Condition must be not null");
+        }
+        String conditionId = condition.getConditionId();
+        if (isEmpty(conditionId)) {
+            throw new IllegalArgumentException("ConditionId must be not null");
+        }
+
+        Condition existingCondition = getCondition(tenantId, conditionId);
+        if (null == existingCondition) {
+            throw new IllegalArgumentException("ConditionId [" + conditionId + "] on tenant " + tenantId +
+                    " does not exist.");
+        }
+        if (existingCondition.getTriggerMode() != condition.getTriggerMode()) {
+            throw new IllegalArgumentException("The condition trigger mode ["
+                    + existingCondition.getTriggerMode().name() + "] can not be changed.");
+        }
+
+        String triggerId = existingCondition.getTriggerId();
+        checkManagedTrigger(tenantId, triggerId);
+
+        Collection<Condition> conditions = getTriggerConditions(tenantId, triggerId, condition.getTriggerMode());
+        Collection<Condition> newConditions = new ArrayList<>(conditions.size());
+        for (Condition c : conditions) {
+            newConditions.add(c.getConditionId().equals(conditionId) ? condition : c);
+        }
+        return setConditions(tenantId, triggerId, condition.getTriggerMode(), newConditions);
+    }
+
+    @Override
+    public Collection<Condition> setConditions(String tenantId, String triggerId, Mode triggerMode,
+            Collection<Condition> conditions) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(triggerId)) {
+            throw new IllegalArgumentException("TriggerId must be not null");
+        }
+        if (triggerMode == null) {
+            throw new IllegalArgumentException("TriggerMode must be not null");
+        }
+        if (conditions == null) {
+            throw new IllegalArgumentException("Conditions must be not null");
+        }
+
+        int i = 0;
+        for (Condition cond : conditions) {
+            cond.setTenantId(tenantId);
+            cond.setTriggerId(triggerId);
+            cond.setTriggerMode(triggerMode);
+            cond.setConditionSetSize(conditions.size());
+            cond.setConditionSetIndex(++i);
+        }
+        storeConditions(tenantId, triggerId, triggerMode, conditions);
+
+        if (initialized && alertsEngine != null) {
+            alertsEngine.reloadTrigger(tenantId, triggerId);
+        }
+
+        notifyListeners(DefinitionsEvent.Type.CONDITION_CHANGE);
+
+        return conditions;
+    }
+
+    @Override
+    @Deprecated
+    public Condition getCondition(String tenantId, String conditionId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(conditionId)) {
+            throw new IllegalArgumentException("conditionId must be not null");
+        }
+        Definitions definitions = tenants.get(tenantId);
+        if (definitions == null) {
+            return null;
+        }
+        for (Map<Mode, byte[]> modes : definitions.conditions.values()) {
+            for (byte[] conditionSet : modes.values()) {
+                for (Condition condition : decodeConditions(conditionSet)) {
+                    if (conditionId.equals(condition.getConditionId())) {
+                        return condition;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Collection<Condition> getTriggerConditions(String tenantId, String triggerId, Mode triggerMode)
+            throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(triggerId)) {
+            throw new IllegalArgumentException("triggerId must be not null");
+        }
+        List<Condition> conditions = new ArrayList<>();
+        Definitions definitions = tenants.get(tenantId);
+        Map<Mode, byte[]> modes = definitions == null ? null : definitions.conditions.get(triggerId);
+        if (modes == null) {
+            return conditions;
+        }
+        for (Mode mode : Mode.values()) {
+            byte[] conditionSet = modes.get(mode);
+            if (conditionSet != null && (triggerMode == null || triggerMode == mode)) {
+                conditions.addAll(decodeConditions(conditionSet));
+            }
+        }
+        return conditions;
+    }
+
+    @Override
+    public Collection<Condition> getConditions(String tenantId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        List<Condition> conditions = new ArrayList<>();
+        Definitions definitions = tenants.get(tenantId);
+        if (definitions != null) {
+            for (Map<Mode, byte[]> modes : definitions.conditions.values()) {
+                for (byte[] conditionSet : modes.values()) {
+                    conditions.addAll(decodeConditions(conditionSet));
+                }
+            }
+        }
+        return conditions;
+    }
+
+    @Override
+    public Collection<Condition> getConditions(String tenantId, Collection<String> triggerIds) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (null == triggerIds) {
+            throw new IllegalArgumentException("TriggerIds must be not null");
+        }
+        List<Condition> conditions = new ArrayList<>();
+        Definitions definitions = tenants.get(tenantId);
+        if (definitions == null) {
+            return conditions;
+        }
+        for (String triggerId : triggerIds) {
+            Map<Mode, byte[]> modes = definitions.conditions.get(triggerId);
+            if (modes == null) {
+                continue;
+            }
+            for (Mode mode : Mode.values()) {
+                byte[] conditionSet = modes.get(mode);
+                if (conditionSet != null) {
+                    conditions.addAll(decodeConditions(conditionSet));
+                }
+            }
+        }
+        return conditions;
+    }
+
+    @Override
+    public Collection<Condition> getAllConditions() throws Exception {
+        List<Condition> conditions = new ArrayList<>();
+        for (String tenantId : tenants.keySet()) {
+            conditions.addAll(getConditions(tenantId));
+        }
+        return conditions;
+    }
+
+    @Override
+    public void addActionPlugin(String actionPlugin, Set<String> properties) throws Exception {
+        if (isEmpty(actionPlugin)) {
+            throw new IllegalArgumentException("actionPlugin must be not null");
+        }
+        if (properties == null || properties.isEmpty()) {
+            throw new IllegalArgumentException("properties must be not null");
+        }
+        storeActionPlugin(actionPlugin, properties, getDefaultActionPlugin(actionPlugin));
+    }
+
+    @Override
+    public void addActionPlugin(String actionPlugin, Map<String, String> defaultProperties) throws Exception {
+        if (isEmpty(actionPlugin)) {
+            throw new IllegalArgumentException("actionPlugin must be not null");
+        }
+        if (defaultProperties == null || defaultProperties.isEmpty()) {
+            throw new IllegalArgumentException("defaultProperties must be not null");
+        }
+        storeActionPlugin(actionPlugin, defaultProperties.keySet(), defaultProperties);
+    }
+
+    @Override
+    public synchronized void removeActionPlugin(String actionPlugin) throws Exception {
+        if (isEmpty(actionPlugin)) {
+            throw new IllegalArgumentException("actionPlugin must be not null");
+        }
+        store.remove(ACTION_PLUGINS, EmbeddedStore.key(actionPlugin));
+        actionPlugins.remove(actionPlugin);
+    }
+
+    @Override
+    public void updateActionPlugin(String actionPlugin, Set<String> properties) throws Exception {
+        addActionPlugin(actionPlugin, properties);
+    }
+
+    @Override
+    public void updateActionPlugin(String actionPlugin, Map<String, String> defaultProperties) throws Exception {
+        addActionPlugin(actionPlugin, defaultProperties);
+    }
+
+    @Override
+    public Collection<String> getActionPlugins() throws Exception {
+        return new ArrayList<>(actionPlugins.keySet());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<String> getActionPlugin(String actionPlugin) throws Exception {
+        if (isEmpty(actionPlugin)) {
+            throw new IllegalArgumentException("actionPlugin must be not null");
+        }
+        byte[] value = actionPlugins.get(actionPlugin);
+        if (value == null) {
+            return null;
+        }
+        return new HashSet<>((Collection<String>) decode(value, Map.class).get("properties"));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, String> getDefaultActionPlugin(String actionPlugin) throws Exception {
+        if (isEmpty(actionPlugin)) {
+            throw new IllegalArgumentException("actionPlugin must be not null");
+        }
+        byte[] value = actionPlugins.get(actionPlugin);
+        if (value == null) {
+            return null;
+        }
+        return (Map<String, String>) decode(value, Map.class).get("defaultProperties");
+    }
+
+    @Override
+    public void removeAction(String tenantId, String actionPlugin, String actionId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(actionPlugin)) {
+            throw new IllegalArgumentException("ActionPlugin must be not null");
+        }
+        if (isEmpty(actionId)) {
+            throw new IllegalArgumentException("ActionId must be not null");
+        }
+        deleteAction(tenantId, actionPlugin, actionId);
+    }
+
+    @Override
+    public void updateAction(String tenantId, String actionPlugin, String actionId, Map<String, String> properties)
+            throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(actionPlugin)) {
+            throw new IllegalArgumentException("ActionPlugin must be not null");
+        }
+        if (isEmpty(actionId)) {
+            throw new IllegalArgumentException("ActionId must be not null");
+        }
+        if (properties == null || properties.isEmpty()) {
+            throw new IllegalArgumentException("Properties must be not null");
+        }
+        properties.put("actionId", actionId);
+        properties.put("actionPlugin", actionPlugin);
+        storeAction(tenantId, actionPlugin, actionId, properties);
+    }
+
+    @Override
+    public Map<String, Map<String, Set<String>>> getAllActions() throws Exception {
+        Map<String, Map<String, Set<String>>> actions = new HashMap<>();
+        for (String tenantId : tenants.keySet()) {
+            Map<String, Set<String>> tenantActions = getActions(tenantId);
+            if (!tenantActions.isEmpty()) {
+                actions.put(tenantId, tenantActions);
+            }
+        }
+        return actions;
+    }
+
+    @Override
+    public Map<String, Set<String>> getActions(String tenantId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        Map<String, Set<String>> actions = new HashMap<>();
+        Definitions definitions = tenants.get(tenantId);
+        if (definitions != null) {
+            for (Map.Entry<String, Map<String, byte[]>> pluginActions : definitions.actions.entrySet()) {
+                if (!pluginActions.getValue().isEmpty()) {
+                    actions.put(pluginActions.getKey(), new HashSet<>(pluginActions.getValue().keySet()));
+                }
+            }
+        }
+        return actions;
+    }
+
+    @Override
+    public Collection<String> getActions(String tenantId, String actionPlugin) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(actionPlugin)) {
+            throw new IllegalArgumentException("actionPlugin must be not null");
+        }
+        Definitions definitions = tenants.get(tenantId);
+        Map<String, byte[]> pluginActions = definitions == null ? null : definitions.actions.get(actionPlugin);
+        return pluginActions == null ? new ArrayList<>() : new ArrayList<>(pluginActions.keySet());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, String> getAction(String tenantId, String actionPlugin, String actionId) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        if (isEmpty(actionPlugin)) {
+            throw new IllegalArgumentException("ActionPlugin must be not null");
+        }
+        if (isEmpty(actionId)) {
+            throw new IllegalArgumentException("actionId must be not null");
+        }
+        Definitions definitions = tenants.get(tenantId);
+        Map<String, byte[]> pluginActions = definitions == null ? null : definitions.actions.get(actionPlugin);
+        byte[] value = pluginActions == null ? null : pluginActions.get(actionId);
+        return value == null ? null : decode(value, Map.class);
+    }
+
+    @Override
+    public void registerListener(DefinitionsListener listener, Type eventType, Type... eventTypes) {
+        EnumSet<Type> types = EnumSet.of(eventType, eventTypes);
+        if (log.isDebugEnabled()) {
+            log.debug("Registering listeners " + listener + " for event types " + types);
+        }
+        listeners.put(listener, types);
+    }
+
+    /*
+        Coalesced notification of several changes, a listener is notified once if it is interested in any of them
+     */
+    /*
+        A single bulk reload and notification for all the triggers written by a group operation
+     */
+    private void triggersChanged(String tenantId, List<String> triggerIds, Set<Type> eventTypes) {
+        if (initialized && null != alertsEngine) {
+            alertsEngine.reloadTriggers(tenantId, triggerIds);
+        }
+
+        notifyListeners(eventTypes);
+    }
+
+    private void notifyListeners(Set<Type> eventTypes) {
+        for (Map.Entry<DefinitionsListener, Set<Type>> me : listeners.entrySet()) {
+            for (Type eventType : eventTypes) {
+                if (me.getValue().contains(eventType)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Notified Listener " + eventType.name() + " of changes " + eventTypes);
+                    }
+                    me.getKey().onChange(new DefinitionsEvent(eventType));
+                    break;
+                }
+            }
+        }
+    }
+
+    private void notifyListeners(Type eventType) {
+        DefinitionsEvent de = new DefinitionsEvent(eventType);
+        if (log.isDebugEnabled()) {
+            log.debug("Notifying applicable listeners " + listeners + " of event " + eventType.name());
+        }
+        for (Map.Entry<DefinitionsListener, Set<Type>> me : listeners.entrySet()) {
+            if (me.getValue().contains(eventType)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Notified Listener " + eventType.name());
+                }
+                me.getKey().onChange(de);
+            }
+        }
+    }
+
+    /*
+        Writes of the indexes and the store, serialized so the log and the indexes agree
+     */
+
+    private synchronized void storeTrigger(Trigger trigger) {
+        byte[] value = encode(trigger);
+        store.put(TRIGGERS, EmbeddedStore.key(trigger.getTenantId(), trigger.getId()), value);
+        indexTrigger(trigger, value);
+    }
+
+    private void indexTrigger(Trigger trigger, byte[] value) {
+        Definitions definitions = definitions(trigger.getTenantId());
+        definitions.triggers.put(trigger.getId(), value);
+        definitions.tags.put(trigger.getId(), trigger.getTags() == null ? Collections.emptyMap() :
+                new HashMap<>(trigger.getTags()));
+        String groupId = trigger.isMember() ? trigger.getMemberOf() : null;
+        String previousGroupId = groupId == null ? definitions.memberOf.remove(trigger.getId()) :
+                definitions.memberOf.put(trigger.getId(), groupId);
+        if (previousGroupId != null && !previousGroupId.equals(groupId)) {
+            unindexMember(definitions, previousGroupId, trigger.getId());
+        }
+        if (groupId != null) {
+            definitions.members.computeIfAbsent(groupId, g -> ConcurrentHashMap.newKeySet()).add(trigger.getId());
+        }
+    }
+
+    private void unindexMember(Definitions definitions, String groupId, String memberId) {
+        definitions.members.computeIfPresent(groupId, (g, memberIds) -> {
+            memberIds.remove(memberId);
+            return memberIds.isEmpty() ? null : memberIds;
+        });
+    }
+
+    /*
+        Removes a trigger with its conditions and dampenings
+     */
+    private synchronized void deleteTrigger(String tenantId, String triggerId) {
+        Definitions definitions = tenants.get(tenantId);
+        if (definitions == null) {
+            return;
+        }
+        for (Map.Entry<String, String> dampeningTrigger : definitions.dampeningTriggers.entrySet()) {
+            if (dampeningTrigger.getValue().equals(triggerId)) {
+                deleteDampening(tenantId, dampeningTrigger.getKey());
+            }
+        }
+        Map<Mode, byte[]> modes = definitions.conditions.remove(triggerId);
+        if (modes != null) {
+            for (Mode mode : modes.keySet()) {
+                store.remove(CONDITIONS, EmbeddedStore.key(tenantId, triggerId, mode.name()));
+            }
+        }
+        store.remove(TRIGGERS, EmbeddedStore.key(tenantId, triggerId));
+        definitions.triggers.remove(triggerId);
+        definitions.tags.remove(triggerId);
+        String groupId = definitions.memberOf.remove(triggerId);
+        if (groupId != null) {
+            unindexMember(definitions, groupId, triggerId);
+        }
+    }
+
+    private synchronized void storeConditions(String tenantId, String triggerId, Mode triggerMode,
+            Collection<Condition> conditions) {
+        String key = EmbeddedStore.key(tenantId, triggerId, triggerMode.name());
+        Definitions definitions = definitions(tenantId);
+        if (conditions.isEmpty()) {
+            store.remove(CONDITIONS, key);
+            Map<Mode, byte[]> modes = definitions.conditions.get(triggerId);
+            if (modes != null) {
+                modes.remove(triggerMode);
+            }
+            return;
+        }
+        byte[] value = encode(new ArrayList<>(conditions));
+        store.put(CONDITIONS, key, value);
+        definitions.conditions.computeIfAbsent(triggerId, t -> new ConcurrentHashMap<>()).put(triggerMode, value);
+    }
+
+    private synchronized void storeDampening(Dampening dampening) {
+        byte[] value = encode(dampening);
+        store.put(DAMPENINGS, EmbeddedStore.key(dampening.getTenantId(), dampening.getDampeningId()), value);
+        indexDampening(dampening, value);
+    }
+
+    private void indexDampening(Dampening dampening, byte[] value) {
+        Definitions definitions = definitions(dampening.getTenantId());
+        definitions.dampenings.put(dampening.getDampeningId(), value);
+        definitions.dampeningTriggers.put(dampening.getDampeningId(), dampening.getTriggerId());
+    }
+
+    private synchronized void deleteDampening(String tenantId, String dampeningId) {
+        store.remove(DAMPENINGS, EmbeddedStore.key(tenantId, dampeningId));
+        Definitions definitions = tenants.get(tenantId);
+        if (definitions != null) {
+            definitions.dampenings.remove(dampeningId);
+            definitions.dampeningTriggers.remove(dampeningId);
+        }
+    }
+
+    private synchronized void storeAction(String tenantId, String actionPlugin, String actionId,
+            Map<String, String> properties) {
+        byte[] value = encode(properties);
+        store.put(ACTIONS, EmbeddedStore.key(tenantId, actionPlugin, actionId), value);
+        definitions(tenantId).actions.computeIfAbsent(actionPlugin, p -> new ConcurrentHashMap<>())
+                .put(actionId, value);
+    }
+
+    private synchronized void deleteAction(String tenantId, String actionPlugin, String actionId) {
+        store.remove(ACTIONS, EmbeddedStore.key(tenantId, actionPlugin, actionId));
+        Definitions definitions = tenants.get(tenantId);
+        Map<String, byte[]> pluginActions = definitions == null ? null : definitions.actions.get(actionPlugin);
+        if (pluginActions != null) {
+            pluginActions.remove(actionId);
+        }
+    }
+
+    private synchronized void storeActionPlugin(String actionPlugin, Set<String> properties,
+            Map<String, String> defaultProperties) {
+        Map<String, Object> plugin = new LinkedHashMap<>();
+        plugin.put("properties", properties);
+        plugin.put("defaultProperties", defaultProperties);
+        byte[] value = encode(plugin);
+        store.put(ACTION_PLUGINS, EmbeddedStore.key(actionPlugin), value);
+        actionPlugins.put(actionPlugin, value);
+    }
+
+    private Definitions definitions(String tenantId) {
+        return tenants.computeIfAbsent(tenantId, t -> new Definitions());
+    }
+
+    private byte[] encode(Object definition) {
+        try {
+            return objectMapper.writeValueAsBytes(definition);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private <T> T decode(byte[] value, Class<T> type) {
+        try {
+            return objectMapper.readValue(value, type);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<Condition> decodeConditions(byte[] value) {
+        try {
+            List<Condition> conditions = new ArrayList<>();
+            for (JsonNode node : objectMapper.readTree(value)) {
+                conditions.add(JacksonDeserializer.deserializeCondition(node));
+            }
+            return conditions;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+        Conditions and dampenings of a member trigger are managed via its group, unless it is an orphan
+     */
+    private void checkManagedTrigger(String tenantId, String triggerId) throws Exception {
+        Trigger trigger = getTrigger(tenantId, triggerId);
+        if (null == trigger) {
+            throw new IllegalArgumentException("Trigger [" + tenantId + "/" + triggerId + "] does not exist.");
+        }
+        if (trigger.isGroup()) {
+            throw new IllegalArgumentException("Trigger [" + tenantId + "/" + triggerId + "] is a group trigger.");
+        }
+        if (trigger.isMember() && !trigger.isOrphan()) {
+            throw new IllegalArgumentException("Trigger [" + tenantId + "/" + triggerId
+                    + "] is a member trigger and must be managed via the group.");
+        }
+    }
+
+    private Trigger checkGroupTrigger(String tenantId, String groupId) throws Exception {
+        Trigger groupTrigger = getTrigger(tenantId, groupId);
+        if (null == groupTrigger) {
+            throw new IllegalArgumentException("Trigger [" + tenantId + "/" + groupId + "] does not exist.");
+        }
+        if (!groupTrigger.isGroup()) {
+            throw new IllegalArgumentException("Trigger [" + tenantId + "/" + groupId + "] is not a group trigger.");
+        }
+        return groupTrigger;
+    }
+
+    private boolean isEmpty(Trigger trigger) {
+        return trigger == null || trigger.getId() == null || trigger.getId().trim().isEmpty();
+    }
+
+    private boolean isEmpty(Dampening dampening) {
+        return dampening == null || dampening.getTriggerId() == null || dampening.getTriggerId().trim().isEmpty() ||
+                dampening.getDampeningId() == null || dampening.getDampeningId().trim().isEmpty();
+    }
+
+    private boolean isEmpty(String id) {
+        return id == null || id.trim().isEmpty();
+    }
+
+    private boolean isEmpty(Map<String, String> map) {
+        return map == null || map.isEmpty();
+    }
+
+    private boolean isEmpty(Collection collection) {
+        return collection == null || collection.isEmpty();
+    }
+
+    /*
+        As on the Cassandra backend, a tenantId parameter overwrites the tenantId of a trigger or a dampening.
+     */
+    private void checkTenantId(String tenantId, Object obj) {
+        if (isEmpty(tenantId) || obj == null) {
+            return;
+        }
+        if (obj instanceof Trigger) {
+            ((Trigger) obj).setTenantId(tenantId);
+        } else if (obj instanceof Dampening) {
+            ((Dampening) obj).setTenantId(tenantId);
+        }
+    }
+}
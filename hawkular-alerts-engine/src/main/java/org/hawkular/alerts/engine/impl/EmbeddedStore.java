@@ -0,0 +1,566 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.hawkular.alerts.engine.log.MsgLogger;
+import org.jboss.logging.Logger;
+
+/**
+ * Storage of the embedded backend: an append-only log, mapped in memory, of records that put or remove the value of a
+ * key in a table. The log is replayed on open to locate the live record of every key, a value is then read from the
+ * mapped log by its key; the services keep their own indexes of the values.
+ *
+ * Records are checksummed and the replay stops at the first record not written completely, the tail left by a crash.
+ * The log is forced to disk every hawkular-alerts.embedded-sync-interval milliseconds, 0 forces it on every write.
+ * When it grows over hawkular-alerts.embedded-compaction-size bytes and more than twice the live records, the live
+ * records are copied into a new log that atomically replaces the previous one.
+ *
+ * A record may have an expiration; expired records are skipped by the replay and dropped by the compaction.
+ */
+public final class EmbeddedStore implements EmbeddedStoreMXBean, Closeable {
+    private static final MsgLogger msgLog = MsgLogger.LOGGER;
+    private static final Logger log = Logger.getLogger(EmbeddedStore.class);
+
+    static final String DIR = "hawkular-alerts.embedded-dir";
+    static final String SYNC_INTERVAL = "hawkular-alerts.embedded-sync-interval";
+    static final String DEFAULT_SYNC_INTERVAL = "1000";
+    static final String COMPACTION_SIZE = "hawkular-alerts.embedded-compaction-size";
+    static final String DEFAULT_COMPACTION_SIZE = "67108864";
+
+    private static final String JBOSS_DATA_DIR = "jboss.server.data.dir";
+    private static final String STORE_FOLDER = "hawkular-alerts-store";
+    private static final String OBJECT_NAME = "org.hawkular.alerts:type=EmbeddedStore";
+
+    static final String LOG_FILE = "alerts.log";
+    static final String COMPACTION_FILE = "alerts.log.compaction";
+
+    private static final int MIN_CAPACITY = 1 << 22;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE;
+
+    /*
+        A record is [int length][int crc32][byte op][long expiration][int][table][int][key][value], length and crc32
+        of the bytes after the header. A length of 0 marks the end of the log.
+     */
+    private static final int HEADER = 8;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    /*
+        The live record of a key
+     */
+    private static final class Location {
+        final int offset;
+        final int size;
+        final int valueOffset;
+        final long expiration;
+
+        Location(int offset, int size, int valueOffset, long expiration) {
+            this.offset = offset;
+            this.size = size;
+            this.valueOffset = valueOffset;
+            this.expiration = expiration;
+        }
+
+        boolean isExpired(long now) {
+            return expiration > 0 && expiration <= now;
+        }
+    }
+
+    private final File logFile;
+    private final File compactionFile;
+    private final long compactionSize;
+    private final boolean syncOnWrite;
+    private final ScheduledExecutorService syncer;
+
+    private final Map<String, Map<String, Location>> tables = new HashMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+    private long liveSize;
+    private long keys;
+    private boolean dirty;
+    private boolean closed;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+
+    /**
+     * @return the store in hawkular-alerts.embedded-dir, by default in the data dir of the server or in the temporary
+     * dir when there is no server
+     * @throws IOException if the log can not be opened
+     */
+    public static EmbeddedStore open() throws IOException {
+        String dir = AlertProperties.getProperty(DIR, null);
+        if (dir == null || dir.isEmpty()) {
+            String data = System.getProperty(JBOSS_DATA_DIR, System.getProperty("java.io.tmpdir"));
+            dir = data + File.separator + STORE_FOLDER;
+        }
+        EmbeddedStore store = new EmbeddedStore(new File(dir),
+                Long.parseLong(AlertProperties.getProperty(SYNC_INTERVAL, DEFAULT_SYNC_INTERVAL)),
+                Long.parseLong(AlertProperties.getProperty(COMPACTION_SIZE, DEFAULT_COMPACTION_SIZE)));
+        store.register();
+        return store;
+    }
+
+    EmbeddedStore(File dir, long syncInterval, long compactionSize) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        this.logFile = new File(dir, LOG_FILE);
+        this.compactionFile = new File(dir, COMPACTION_FILE);
+        this.compactionSize = compactionSize;
+        this.syncOnWrite = syncInterval <= 0;
+
+        // a compaction interrupted before the move, the log is still complete
+        Files.deleteIfExists(compactionFile.toPath());
+
+        channel = FileChannel.open(logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size > MAX_CAPACITY) {
+            channel.close();
+            throw new IOException("Log " + logFile + " is larger than " + MAX_CAPACITY + " bytes");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(MIN_CAPACITY, size));
+        replay();
+
+        if (syncOnWrite) {
+            syncer = null;
+        } else {
+            syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "hawkular-alerts-embedded-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::sync, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Register this store as the EmbeddedStore MBean, replacing a previous registration.
+     */
+    void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (Exception e) {
+            log.debugf("Cannot register %s: %s", OBJECT_NAME, e);
+        }
+    }
+
+    private void replay() {
+        long start = System.currentTimeMillis();
+        int records = 0;
+        CRC32 crc = new CRC32();
+        while (position + HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            boolean complete = length > 0 && length <= buffer.capacity() - position - HEADER;
+            if (complete) {
+                crc.reset();
+                crc.update(slice(position + HEADER, length));
+                complete = (int) crc.getValue() == buffer.getInt(position + 4);
+            }
+            if (!complete) {
+                msgLog.warnEmbeddedStoreTruncated(logFile.getPath(), position);
+                break;
+            }
+            ByteBuffer record = slice(position + HEADER, length);
+            byte op = record.get();
+            long expiration = record.getLong();
+            String table = string(record);
+            String key = string(record);
+            if (op == PUT && !(expiration > 0 && expiration <= start)) {
+                live(table, key, new Location(position, HEADER + length, position + HEADER + record.position(),
+                        expiration));
+            } else {
+                dead(table, key);
+            }
+            position += HEADER + length;
+            records++;
+        }
+        end();
+        msgLog.infoEmbeddedStoreOpened(logFile.getPath(), records, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @param table the table of the key
+     * @param key the key
+     * @param value the value
+     */
+    void put(String table, String key, byte[] value) {
+        put(table, key, value, 0);
+    }
+
+    /**
+     * @param table the table of the key
+     * @param key the key
+     * @param value the value
+     * @param expiration the time in milliseconds when the value expires, 0 if it never expires
+     */
+    synchronized void put(String table, String key, byte[] value, long expiration) {
+        checkOpen();
+        byte[] record = record(PUT, table, key, value, expiration);
+        int offset = append(record);
+        live(table, key, new Location(offset, record.length, offset + record.length - value.length, expiration));
+        written();
+    }
+
+    /**
+     * @param table the table of the key
+     * @param key the key to remove, ignored if the key has no value
+     */
+    synchronized void remove(String table, String key) {
+        checkOpen();
+        Map<String, Location> locations = tables.get(table);
+        if (locations == null || !locations.containsKey(key)) {
+            return;
+        }
+        append(record(REMOVE, table, key, new byte[0], 0));
+        dead(table, key);
+        written();
+    }
+
+    /**
+     * @param table the table of the key
+     * @param key the key
+     * @return the value of the key, null if the key has no value or the value has expired
+     */
+    synchronized byte[] get(String table, String key) {
+        checkOpen();
+        Map<String, Location> locations = tables.get(table);
+        Location location = locations == null ? null : locations.get(key);
+        if (location == null || location.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        return value(location);
+    }
+
+    /**
+     * @param table the table to read
+     * @param consumer the consumer of the key and the value of every live record in the table
+     */
+    synchronized void forEach(String table, BiConsumer<String, byte[]> consumer) {
+        checkOpen();
+        Map<String, Location> locations = tables.get(table);
+        if (locations == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Location> entry : locations.entrySet()) {
+            Location location = entry.getValue();
+            if (location.isExpired(now)) {
+                continue;
+            }
+            consumer.accept(entry.getKey(), value(location));
+        }
+    }
+
+    private byte[] value(Location location) {
+        ByteBuffer value = slice(location.valueOffset, location.offset + location.size - location.valueOffset);
+        byte[] bytes = new byte[value.remaining()];
+        value.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return the key composed of the parts, unambiguous whatever the parts contain
+     */
+    static String key(String... parts) {
+        StringBuilder key = new StringBuilder();
+        for (String part : parts) {
+            String s = part == null ? "" : part;
+            key.append('|').append(s.length()).append(':').append(s);
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return the parts of a key composed by {@link #key(String...)}
+     */
+    static List<String> parts(String key) {
+        List<String> parts = new ArrayList<>();
+        int i = 0;
+        while (i < key.length()) {
+            int colon = key.indexOf(':', i);
+            int length = Integer.parseInt(key.substring(i + 1, colon));
+            parts.add(key.substring(colon + 1, colon + 1 + length));
+            i = colon + 1 + length;
+        }
+        return parts;
+    }
+
+    private void live(String table, String key, Location location) {
+        Location previous = tables.computeIfAbsent(table, t -> new HashMap<>()).put(key, location);
+        if (previous == null) {
+            keys++;
+        } else {
+            liveSize -= previous.size;
+        }
+        liveSize += location.size;
+    }
+
+    private void dead(String table, String key) {
+        Map<String, Location> locations = tables.get(table);
+        Location previous = locations == null ? null : locations.remove(key);
+        if (previous != null) {
+            keys--;
+            liveSize -= previous.size;
+        }
+    }
+
+    private static byte[] record(byte op, String table, String key, byte[] value, long expiration) {
+        byte[] tableBytes = table.getBytes(UTF_8);
+        byte[] keyBytes = key.getBytes(UTF_8);
+        int length = 1 + 8 + 4 + tableBytes.length + 4 + keyBytes.length + value.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER + length);
+        record.putInt(length).putInt(0).put(op).putLong(expiration)
+                .putInt(tableBytes.length).put(tableBytes)
+                .putInt(keyBytes.length).put(keyBytes)
+                .put(value);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER, length);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    private static String string(ByteBuffer record) {
+        byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private ByteBuffer slice(int offset, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(offset + length).position(offset);
+        return slice.slice();
+    }
+
+    private int append(byte[] record) {
+        ensureCapacity(record.length);
+        int offset = position;
+        ByteBuffer target = buffer.duplicate();
+        target.position(offset);
+        target.put(record);
+        position += record.length;
+        end();
+        return offset;
+    }
+
+    /*
+        Marks the end of the log after the last record, overwriting the tail of a crash if any
+     */
+    private void end() {
+        if (position + 4 <= buffer.capacity()) {
+            buffer.putInt(position, 0);
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if ((long) position + length + 4 <= buffer.capacity()) {
+            return;
+        }
+        if (position > 2 * liveSize) {
+            compact();
+            if ((long) position + length + 4 <= buffer.capacity()) {
+                return;
+            }
+        }
+        long capacity = Math.min(MAX_CAPACITY, Math.max(2L * buffer.capacity(), (long) position + length + 4));
+        if ((long) position + length > capacity) {
+            throw new IllegalStateException("Log " + logFile + " is full, live records take " + liveSize + " bytes");
+        }
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void written() {
+        writes.increment();
+        dirty = true;
+        if (syncOnWrite) {
+            sync();
+        }
+        if (position > compactionSize && position > 2 * liveSize) {
+            compact();
+        }
+    }
+
+    /*
+        Forces the log outside of the lock, writes are not blocked by the disk
+     */
+    private void sync() {
+        MappedByteBuffer dirtyBuffer;
+        synchronized (this) {
+            if (!dirty || closed) {
+                return;
+            }
+            dirty = false;
+            dirtyBuffer = buffer;
+        }
+        dirtyBuffer.force();
+        syncs.increment();
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Log " + logFile + " is closed");
+        }
+    }
+
+    @Override
+    public synchronized void compact() {
+        checkOpen();
+        long now = System.currentTimeMillis();
+        int capacity = (int) Math.min(MAX_CAPACITY, Math.max(MIN_CAPACITY, 2 * liveSize));
+        Map<String, Map<String, Location>> compacted = new HashMap<>();
+        int compactedPosition = 0;
+        long compactedSize = 0;
+        long compactedKeys = 0;
+        try {
+            MappedByteBuffer target;
+            try (FileChannel compaction = FileChannel.open(compactionFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                target = compaction.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+                for (Map.Entry<String, Map<String, Location>> table : tables.entrySet()) {
+                    Map<String, Location> locations = new HashMap<>();
+                    for (Map.Entry<String, Location> entry : table.getValue().entrySet()) {
+                        Location location = entry.getValue();
+                        if (location.isExpired(now)) {
+                            continue;
+                        }
+                        target.position(compactedPosition);
+                        target.put(slice(location.offset, location.size));
+                        locations.put(entry.getKey(), new Location(compactedPosition, location.size,
+                                compactedPosition + location.valueOffset - location.offset, location.expiration));
+                        compactedPosition += location.size;
+                        compactedSize += location.size;
+                        compactedKeys++;
+                    }
+                    if (!locations.isEmpty()) {
+                        compacted.put(table.getKey(), locations);
+                    }
+                }
+                target.force();
+            }
+            Files.move(compactionFile.toPath(), logFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            channel.close();
+            channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        tables.clear();
+        tables.putAll(compacted);
+        position = compactedPosition;
+        liveSize = compactedSize;
+        keys = compactedKeys;
+        dirty = false;
+        end();
+        compactions.increment();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    @Override
+    public synchronized long getLogSize() {
+        return position;
+    }
+
+    @Override
+    public synchronized long getLiveSize() {
+        return liveSize;
+    }
+
+    @Override
+    public synchronized long getKeys() {
+        return keys;
+    }
+
+    @Override
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    @Override
+    public long getSyncs() {
+        return syncs.sum();
+    }
+
+    @Override
+    public long getCompactions() {
+        return compactions.sum();
+    }
+
+    @Override
+    public void reset() {
+        writes.reset();
+        syncs.reset();
+        compactions.reset();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+/**
+ * Metrics of the log of the embedded backend, registered as <code>org.hawkular.alerts:type=EmbeddedStore</code>.
+ */
+public interface EmbeddedStoreMXBean {
+
+    /**
+     * @return the bytes written to the log, live and overwritten records
+     */
+    long getLogSize();
+
+    /**
+     * @return the bytes of the live records, the size of the log after a compaction
+     */
+    long getLiveSize();
+
+    /**
+     * @return the number of live keys
+     */
+    long getKeys();
+
+    /**
+     * @return the number of records written since the last reset
+     */
+    long getWrites();
+
+    /**
+     * @return the number of times the log was forced to disk since the last reset
+     */
+    long getSyncs();
+
+    /**
+     * @return the number of compactions since the last reset
+     */
+    long getCompactions();
+
+    /**
+     * Rewrite the log with the live records only.
+     */
+    void compact();
+
+    /**
+     * Reset the counters.
+     */
+    void reset();
+}
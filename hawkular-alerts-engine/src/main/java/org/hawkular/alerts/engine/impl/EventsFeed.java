@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.services.EventsListener;
+import org.hawkular.alerts.engine.log.MsgLogger;
+import org.jboss.logging.Logger;
+
+/**
+ * The listeners of the alerts and events stored by this node. The alerts services are stateless, so the listeners
+ * are kept here and shared by all their instances, as the {@link HistoryIndex}.
+ *
+ * Notifications are made on the storing thread, a listener failure is logged and does not affect the writes or the
+ * rest of the listeners.
+ */
+final class EventsFeed {
+    private static final MsgLogger msgLog = MsgLogger.LOGGER;
+    private static final Logger log = Logger.getLogger(EventsFeed.class);
+
+    private static final EventsFeed instance = new EventsFeed();
+
+    private final List<EventsListener> listeners = new CopyOnWriteArrayList<>();
+
+    private EventsFeed() {
+    }
+
+    static EventsFeed getInstance() {
+        return instance;
+    }
+
+    void register(EventsListener listener) {
+        if (null == listener) {
+            throw new IllegalArgumentException("Listener must be not null");
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Registering events listener " + listener);
+        }
+        listeners.add(listener);
+    }
+
+    void unregister(EventsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @param alerts alerts added or whose lifecycle changed, once written
+     */
+    void alerts(Collection<Alert> alerts) {
+        notifyListeners(alerts, l -> l.onAlerts(alerts));
+    }
+
+    /**
+     * @param events events persisted, once written
+     */
+    void events(Collection<Event> events) {
+        notifyListeners(events, l -> l.onEvents(events));
+    }
+
+    private void notifyListeners(Collection<?> changes, Consumer<EventsListener> notification) {
+        if (listeners.isEmpty() || null == changes || changes.isEmpty()) {
+            return;
+        }
+        for (EventsListener listener : listeners) {
+            try {
+                notification.accept(listener);
+            } catch (Exception e) {
+                msgLog.warnEventsListenerFailed(listener.toString(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.trigger.FullTrigger;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+
+/**
+ * Preparation and assembly of full trigger definitions, shared by the bulk import and export of the
+ * DefinitionsService implementations.
+ */
+final class FullTriggers {
+
+    static final String IMPORT_BATCH = "hawkular-alerts.import-batch";
+
+    /**
+     * Lookup of the definition of an action of the exported tenant
+     */
+    interface ActionLookup {
+        Map<String, String> getAction(String actionPlugin, String actionId) throws Exception;
+    }
+
+    private FullTriggers() {
+    }
+
+    /**
+     * Check a full trigger to be imported and bind its definitions to the tenant and to the trigger. Conditions are
+     * numbered into the condition set of their mode as setConditions() does.
+     *
+     * @return the condition set of every mode of the trigger, empty if the trigger has no conditions on a mode, so
+     * the prior conditions of a replaced trigger are always discarded
+     */
+    static Map<Mode, List<Condition>> prepare(String tenantId, FullTrigger fullTrigger) {
+        if (fullTrigger == null || fullTrigger.getTrigger() == null || isEmpty(fullTrigger.getTrigger().getId())) {
+            throw new IllegalArgumentException("Trigger must be not null");
+        }
+        Trigger trigger = fullTrigger.getTrigger();
+        trigger.setTenantId(tenantId);
+        String triggerId = trigger.getId();
+
+        if (fullTrigger.getDampenings() == null) {
+            fullTrigger.setDampenings(new ArrayList<>());
+        }
+        for (Dampening dampening : fullTrigger.getDampenings()) {
+            if (dampening == null || dampening.getTriggerMode() == null || dampening.getType() == null) {
+                throw new IllegalArgumentException("Dampening of trigger [" + tenantId + "/" + triggerId
+                        + "] must have a triggerMode and a type");
+            }
+            dampening.setTenantId(tenantId);
+            dampening.setTriggerId(triggerId);
+        }
+
+        Map<Mode, List<Condition>> conditionSets = new EnumMap<>(Mode.class);
+        for (Mode mode : Mode.values()) {
+            conditionSets.put(mode, new ArrayList<>());
+        }
+        if (fullTrigger.getConditions() == null) {
+            fullTrigger.setConditions(new ArrayList<>());
+        }
+        for (Condition condition : fullTrigger.getConditions()) {
+            if (condition == null || condition.getTriggerMode() == null) {
+                throw new IllegalArgumentException("Condition of trigger [" + tenantId + "/" + triggerId
+                        + "] must have a triggerMode");
+            }
+            conditionSets.get(condition.getTriggerMode()).add(condition);
+        }
+        for (Map.Entry<Mode, List<Condition>> conditionSet : conditionSets.entrySet()) {
+            List<Condition> conditions = conditionSet.getValue();
+            int i = 0;
+            for (Condition condition : conditions) {
+                condition.setTenantId(tenantId);
+                condition.setTriggerId(triggerId);
+                condition.setTriggerMode(conditionSet.getKey());
+                condition.setConditionSetSize(conditions.size());
+                condition.setConditionSetIndex(++i);
+            }
+        }
+
+        if (fullTrigger.getActions() == null) {
+            fullTrigger.setActions(new ArrayList<>());
+        }
+        for (Map<String, String> action : fullTrigger.getActions()) {
+            if (action == null || isEmpty(action.get("actionPlugin")) || isEmpty(action.get("actionId"))) {
+                throw new IllegalArgumentException("Action of trigger [" + tenantId + "/" + triggerId
+                        + "] must have an actionPlugin and an actionId");
+            }
+            action.put("tenantId", tenantId);
+        }
+        return conditionSets;
+    }
+
+    /**
+     * Assemble the full definitions of the triggers of a tenant from the definitions of the tenant. The definition
+     * of an action referenced by several triggers is looked up once.
+     */
+    static List<FullTrigger> assemble(Collection<Trigger> triggers, Collection<Condition> conditions,
+            Collection<Dampening> dampenings, ActionLookup actions) throws Exception {
+        Map<String, List<Condition>> triggerConditions = new HashMap<>();
+        for (Condition condition : conditions) {
+            triggerConditions.computeIfAbsent(condition.getTriggerId(), t -> new ArrayList<>()).add(condition);
+        }
+        Map<String, List<Dampening>> triggerDampenings = new HashMap<>();
+        for (Dampening dampening : dampenings) {
+            triggerDampenings.computeIfAbsent(dampening.getTriggerId(), t -> new ArrayList<>()).add(dampening);
+        }
+        Map<String, Map<String, String>> actionDefinitions = new HashMap<>();
+
+        List<FullTrigger> fullTriggers = new ArrayList<>(triggers.size());
+        for (Trigger trigger : triggers) {
+            List<Condition> conditionSets = triggerConditions.getOrDefault(trigger.getId(), new ArrayList<>());
+            conditionSets.sort(Comparator.comparing(Condition::getTriggerMode)
+                    .thenComparingInt(Condition::getConditionSetIndex));
+            List<Map<String, String>> triggerActions = new ArrayList<>();
+            if (trigger.getActions() != null) {
+                for (Map.Entry<String, Set<String>> pluginActions : trigger.getActions().entrySet()) {
+                    for (String actionId : pluginActions.getValue()) {
+                        String key = pluginActions.getKey().length() + ":" + pluginActions.getKey() + actionId;
+                        Map<String, String> action = actionDefinitions.get(key);
+                        if (action == null && !actionDefinitions.containsKey(key)) {
+                            action = actions.getAction(pluginActions.getKey(), actionId);
+                            actionDefinitions.put(key, action);
+                        }
+                        if (action != null) {
+                            triggerActions.add(action);
+                        }
+                    }
+                }
+            }
+            fullTriggers.add(new FullTrigger(trigger,
+                    triggerDampenings.getOrDefault(trigger.getId(), new ArrayList<>()), conditionSets,
+                    triggerActions));
+        }
+        return fullTriggers;
+    }
+
+    private static boolean isEmpty(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+}
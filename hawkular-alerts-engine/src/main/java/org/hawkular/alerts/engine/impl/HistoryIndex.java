@@ -0,0 +1,841 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.hawkular.alerts.api.model.Severity;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.paging.AlertComparator;
+import org.hawkular.alerts.api.model.paging.EventComparator;
+import org.hawkular.alerts.api.model.paging.Order;
+import org.jboss.logging.Logger;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * In-memory index of the alerts and events history, used to resolve the criteria and the order of the alerts and
+ * events queries without reading the index tables of Cassandra.
+ *
+ * Every tenant has an index of its alerts and an index of its events. An index maps the ids to dense ints and keeps
+ * an {@link IdBitmap} per trigger and per time bucket and, for alerts, per status and per severity, so the criteria
+ * of a query are an intersection of bitmaps and only the alerts or events of the requested page are read from
+ * Cassandra. The ctime, trigger, status and severity of every entry are kept to sort the matches.
+ *
+ * An index is built from the index tables on the first query of the tenant and then maintained by the writes of this
+ * node, the writes done while it is built are replayed once it is complete. Tags and event categories cannot be read
+ * by tenant from their tables and are not indexed, they are resolved per query.
+ *
+ * An index holds up to hawkular-alerts.history-index-max-size entries, a tenant with a larger history is not indexed
+ * and its queries take the Cassandra path. A size of 0 disables the index.
+ */
+final class HistoryIndex implements HistoryIndexMXBean {
+    private static final Logger log = Logger.getLogger(HistoryIndex.class);
+
+    static final String MAX_SIZE = "hawkular-alerts.history-index-max-size";
+    static final String DEFAULT_MAX_SIZE = "1000000";
+
+    private static final String OBJECT_NAME = "org.hawkular.alerts:type=HistoryIndex";
+
+    private static final HistoryIndex instance = new HistoryIndex(Integer.parseInt(
+            AlertProperties.getProperty(MAX_SIZE, DEFAULT_MAX_SIZE)));
+
+    static {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(instance, name);
+            }
+        } catch (Exception e) {
+            log.debugf("Cannot register %s: %s", OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * The indexed fields of an alert or an event.
+     */
+    static final class Entry {
+        final String id;
+        long ctime;
+        String triggerId;
+        Alert.Status status;
+        Severity severity;
+
+        Entry(String id, long ctime) {
+            this.id = id;
+            this.ctime = ctime;
+        }
+
+        static Entry of(Alert alert) {
+            Entry entry = new Entry(alert.getAlertId(), alert.getCtime());
+            entry.triggerId = alert.getTriggerId();
+            entry.status = alert.getStatus();
+            entry.severity = alert.getSeverity();
+            return entry;
+        }
+
+        static Entry of(Event event) {
+            Entry entry = new Entry(event.getId(), event.getCtime());
+            entry.triggerId = null == event.getTrigger() ? null : event.getTrigger().getId();
+            return entry;
+        }
+    }
+
+    /**
+     * The criteria of a query, each restriction is optional.
+     */
+    static final class Filter {
+        private Set<String> ids;
+        private Set<String> triggerIds;
+        private Set<Alert.Status> statuses;
+        private Set<Severity> severities;
+        private boolean ctimes;
+        private Long startTime;
+        private Long endTime;
+
+        /**
+         * @param ids the ids to match, intersected with the ids of a previous call
+         */
+        Filter ids(Collection<String> ids) {
+            if (null == this.ids) {
+                this.ids = new HashSet<>(ids);
+            } else {
+                this.ids.retainAll(ids);
+            }
+            return this;
+        }
+
+        Filter triggerIds(Collection<String> triggerIds) {
+            this.triggerIds = new HashSet<>(triggerIds);
+            return this;
+        }
+
+        Filter statuses(Collection<Alert.Status> statuses) {
+            this.statuses = new HashSet<>(statuses);
+            return this;
+        }
+
+        Filter severities(Collection<Severity> severities) {
+            this.severities = new HashSet<>(severities);
+            return this;
+        }
+
+        /**
+         * @param startTime the start of the ctime range, inclusive, or null
+         * @param endTime the end of the ctime range, inclusive, or null
+         */
+        Filter ctimes(Long startTime, Long endTime) {
+            this.ctimes = true;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            return this;
+        }
+    }
+
+    /**
+     * The index of the alerts or the events of a tenant.
+     */
+    static final class Entries {
+        private enum State {
+            BUILDING, READY, OVERFLOW
+        }
+
+        private final int maxSize;
+        private final long bucketSize;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private volatile State state = State.BUILDING;
+        private List<Runnable> pending = new ArrayList<>();
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private Entry[] entries = new Entry[16];
+        private int next;
+        private int[] free = new int[16];
+        private int freeSize;
+
+        private IdBitmap all = new IdBitmap();
+        private final Map<String, IdBitmap> triggers = new HashMap<>();
+        private final Map<Alert.Status, IdBitmap> statuses = new EnumMap<>(Alert.Status.class);
+        private final Map<Severity, IdBitmap> severities = new EnumMap<>(Severity.class);
+        private final NavigableMap<Long, IdBitmap> buckets = new TreeMap<>();
+
+        /**
+         * @param maxSize the maximum number of entries
+         * @param bucketSize the time span of the ctime buckets in milliseconds
+         */
+        Entries(int maxSize, long bucketSize) {
+            this.maxSize = maxSize;
+            this.bucketSize = bucketSize;
+        }
+
+        boolean isReady() {
+            return state == State.READY;
+        }
+
+        boolean isOverflow() {
+            return state == State.OVERFLOW;
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return ids.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Complete the build of the index with the entries read from the backend, and replay the writes done
+         * meanwhile.
+         *
+         * @param loaded the entries read from the backend, null if there were too many
+         */
+        void complete(Collection<Entry> loaded) {
+            lock.writeLock().lock();
+            try {
+                if (state != State.BUILDING) {
+                    return;
+                }
+                if (null == loaded) {
+                    overflow();
+                    return;
+                }
+                loaded.forEach(this::doPut);
+                pending.forEach(Runnable::run);
+                pending = null;
+                state = State.READY;
+                checkSize();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * @param added the entries to add or to update
+         */
+        void put(Collection<Entry> added) {
+            lock.writeLock().lock();
+            try {
+                if (state == State.BUILDING) {
+                    added.forEach(entry -> pending.add(() -> doPut(entry)));
+                } else if (state == State.READY) {
+                    added.forEach(this::doPut);
+                    checkSize();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * @param removed the ids of the entries to remove
+         */
+        void remove(Collection<String> removed) {
+            lock.writeLock().lock();
+            try {
+                if (state == State.BUILDING) {
+                    removed.forEach(id -> pending.add(() -> doRemove(id)));
+                } else if (state == State.READY) {
+                    removed.forEach(this::doRemove);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * @param filter the criteria of the query
+         * @param order the order of the matches, null for no particular order
+         * @return the ids of the entries that match the criteria, in the given order
+         */
+        List<String> select(Filter filter, Comparator<Entry> order) {
+            List<Entry> selected = selectEntries(filter, order);
+            List<String> result = new ArrayList<>(selected.size());
+            for (Entry entry : selected) {
+                result.add(entry.id);
+            }
+            return result;
+        }
+
+        /**
+         * @param filter the criteria of the query
+         * @param order the order of the matches, null for no particular order
+         * @return the entries that match the criteria, in the given order. Entries are replaced, not updated, on a
+         * put, so they can be read without the lock.
+         */
+        List<Entry> selectEntries(Filter filter, Comparator<Entry> order) {
+            lock.readLock().lock();
+            try {
+                IdBitmap matches = all;
+                if (null != filter.ids) {
+                    IdBitmap byIds = new IdBitmap();
+                    for (String id : filter.ids) {
+                        Integer i = ids.get(id);
+                        if (null != i) {
+                            byIds.add(i);
+                        }
+                    }
+                    matches = matches.and(byIds);
+                }
+                if (null != filter.triggerIds) {
+                    matches = matches.and(union(triggers, filter.triggerIds));
+                }
+                if (null != filter.statuses) {
+                    matches = matches.and(union(statuses, filter.statuses));
+                }
+                if (null != filter.severities) {
+                    matches = matches.and(union(severities, filter.severities));
+                }
+                if (filter.ctimes && !matches.isEmpty()) {
+                    matches = matches.and(ctimes(filter.startTime, filter.endTime));
+                }
+                int[] found = matches.toArray();
+                Entry[] selected = new Entry[found.length];
+                for (int i = 0; i < found.length; i++) {
+                    selected[i] = entries[found[i]];
+                }
+                if (null != order) {
+                    Arrays.sort(selected, order);
+                }
+                return Arrays.asList(selected);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private <K> IdBitmap union(Map<K, IdBitmap> bitmaps, Set<K> keys) {
+            List<IdBitmap> selected = new ArrayList<>(keys.size());
+            for (K key : keys) {
+                IdBitmap bitmap = bitmaps.get(key);
+                if (null != bitmap) {
+                    selected.add(bitmap);
+                }
+            }
+            return IdBitmap.or(selected);
+        }
+
+        /*
+            Buckets entirely within the range are taken as they are, the entries of the buckets at the boundaries are
+            checked one by one
+         */
+        private IdBitmap ctimes(Long startTime, Long endTime) {
+            if (null != startTime && null != endTime && startTime > endTime) {
+                return new IdBitmap();
+            }
+            NavigableMap<Long, IdBitmap> range = buckets;
+            if (null != startTime) {
+                range = range.tailMap(bucket(startTime), true);
+            }
+            if (null != endTime) {
+                range = range.headMap(endTime, true);
+            }
+            List<IdBitmap> selected = new ArrayList<>(range.size());
+            IdBitmap boundaries = new IdBitmap();
+            for (Map.Entry<Long, IdBitmap> bucket : range.entrySet()) {
+                long first = bucket.getKey();
+                long last = first + bucketSize - 1;
+                if ((null == startTime || first >= startTime) && (null == endTime || last <= endTime)) {
+                    selected.add(bucket.getValue());
+                    continue;
+                }
+                for (int i : bucket.getValue().toArray()) {
+                    long ctime = entries[i].ctime;
+                    if ((null == startTime || ctime >= startTime) && (null == endTime || ctime <= endTime)) {
+                        boundaries.add(i);
+                    }
+                }
+            }
+            selected.add(boundaries);
+            return IdBitmap.or(selected);
+        }
+
+        private long bucket(long ctime) {
+            return ctime - Math.floorMod(ctime, bucketSize);
+        }
+
+        private void doPut(Entry entry) {
+            Integer i = ids.get(entry.id);
+            if (null != i) {
+                unindex(i, entries[i]);
+            } else {
+                i = freeSize > 0 ? free[--freeSize] : next++;
+                if (i == entries.length) {
+                    entries = Arrays.copyOf(entries, entries.length * 2);
+                }
+                ids.put(entry.id, i);
+            }
+            entries[i] = entry;
+            all.add(i);
+            buckets.computeIfAbsent(bucket(entry.ctime), b -> new IdBitmap()).add(i);
+            if (null != entry.triggerId) {
+                triggers.computeIfAbsent(entry.triggerId, t -> new IdBitmap()).add(i);
+            }
+            if (null != entry.status) {
+                statuses.computeIfAbsent(entry.status, s -> new IdBitmap()).add(i);
+            }
+            if (null != entry.severity) {
+                severities.computeIfAbsent(entry.severity, s -> new IdBitmap()).add(i);
+            }
+        }
+
+        private void doRemove(String id) {
+            Integer i = ids.remove(id);
+            if (null == i) {
+                return;
+            }
+            unindex(i, entries[i]);
+            entries[i] = null;
+            if (freeSize == free.length) {
+                free = Arrays.copyOf(free, free.length * 2);
+            }
+            free[freeSize++] = i;
+        }
+
+        private void unindex(int i, Entry entry) {
+            all.remove(i);
+            unindex(buckets, bucket(entry.ctime), i);
+            unindex(triggers, entry.triggerId, i);
+            unindex(statuses, entry.status, i);
+            unindex(severities, entry.severity, i);
+        }
+
+        private <K> void unindex(Map<K, IdBitmap> bitmaps, K key, int i) {
+            if (null == key) {
+                return;
+            }
+            IdBitmap bitmap = bitmaps.get(key);
+            if (null != bitmap && bitmap.remove(i) && bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+
+        private void checkSize() {
+            if (ids.size() > maxSize) {
+                overflow();
+            }
+        }
+
+        private void overflow() {
+            state = State.OVERFLOW;
+            pending = null;
+            ids.clear();
+            entries = new Entry[1];
+            free = new int[1];
+            freeSize = 0;
+            next = 0;
+            triggers.clear();
+            statuses.clear();
+            severities.clear();
+            buckets.clear();
+            all = new IdBitmap();
+        }
+    }
+
+    private final int maxSize;
+    private final ConcurrentMap<String, Entries> indexes = new ConcurrentHashMap<>();
+
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder buildTime = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder purged = new LongAdder();
+
+    HistoryIndex(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("History index max size must be non negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    static HistoryIndex getInstance() {
+        return instance;
+    }
+
+    boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    private static String key(String tenantId, String type) {
+        return type + '|' + tenantId;
+    }
+
+    /**
+     * Get the index of a tenant, building it from the backend on the first call.
+     *
+     * @param session the Cassandra session
+     * @param tenantId the tenant
+     * @param type {@link TimeBuckets#ALERTS} or {@link TimeBuckets#EVENTS}
+     * @return the index, or null if it is disabled, being built by another query, too large or failed to build
+     */
+    Entries get(Session session, String tenantId, String type) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String key = key(tenantId, type);
+        Entries entries = indexes.get(key);
+        if (null == entries) {
+            Entries building = new Entries(maxSize, TimeBuckets.getSize());
+            entries = indexes.putIfAbsent(key, building);
+            if (null == entries) {
+                entries = building;
+                if (!build(session, tenantId, type, building)) {
+                    return null;
+                }
+            }
+        }
+        return ready(entries);
+    }
+
+    /**
+     * Get the index of a tenant without waiting for it, the first call starts building it on the query threads.
+     *
+     * @param session the Cassandra session
+     * @param tenantId the tenant
+     * @param type {@link TimeBuckets#ALERTS} or {@link TimeBuckets#EVENTS}
+     * @return the index, or null if it is disabled, not built yet, too large or failed to build
+     */
+    Entries lookup(Session session, String tenantId, String type) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String key = key(tenantId, type);
+        Entries entries = indexes.get(key);
+        if (null == entries) {
+            Entries building = new Entries(maxSize, TimeBuckets.getSize());
+            if (null == indexes.putIfAbsent(key, building)) {
+                AsyncQueries.submit(() -> build(session, tenantId, type, building)).whenComplete((built, e) -> {
+                    if (null != e) {
+                        log.debugf("Cannot build the %s index of tenant %s: %s", type, tenantId, e);
+                        indexes.remove(key, building);
+                    }
+                });
+            }
+            return null;
+        }
+        return ready(entries);
+    }
+
+    private Entries ready(Entries entries) {
+        if (!entries.isReady()) {
+            return null;
+        }
+        queries.increment();
+        return entries;
+    }
+
+    /*
+        Build an index registered in the indexes, it is removed if the build fails
+     */
+    private boolean build(Session session, String tenantId, String type, Entries building) {
+        long start = System.nanoTime();
+        try {
+            building.complete(load(session, tenantId, type));
+        } catch (Exception e) {
+            log.debugf("Cannot build the %s index of tenant %s: %s", type, tenantId, e);
+            indexes.remove(key(tenantId, type), building);
+            return false;
+        }
+        builds.increment();
+        buildTime.add(System.nanoTime() - start);
+        if (building.isOverflow()) {
+            overflows.increment();
+            log.debugf("The %s history of tenant %s exceeds %s entries, it is not indexed", type, tenantId,
+                    maxSize);
+        }
+        return true;
+    }
+
+    /*
+        The entries of all the buckets of the tenant, null as soon as there are more than maxSize
+     */
+    private Collection<Entry> load(Session session, String tenantId, String type) throws Exception {
+        boolean alerts = TimeBuckets.ALERTS.equals(type);
+        String idColumn = alerts ? "alertId" : "id";
+        List<Long> tenantBuckets = TimeBuckets.buckets(session, tenantId, type, null, null);
+        Map<String, Entry> loaded = new HashMap<>();
+        for (ResultSet rs : Futures.allAsList(TimeBuckets.selectAsync(session, alerts
+                ? CassStatement.SELECT_ALERT_CTIMES_SLICE : CassStatement.SELECT_EVENT_CTIMES_SLICE,
+                tenantBuckets, tenantId)).get()) {
+            for (Row row : rs) {
+                String id = row.getString(idColumn);
+                loaded.put(id, new Entry(id, row.getLong("ctime")));
+                if (loaded.size() > maxSize) {
+                    return null;
+                }
+            }
+        }
+        for (ResultSet rs : Futures.allAsList(TimeBuckets.selectAsync(session, alerts
+                ? CassStatement.SELECT_ALERT_TRIGGERS_BY_BUCKET : CassStatement.SELECT_EVENT_TRIGGERS_BY_BUCKET,
+                tenantBuckets, tenantId)).get()) {
+            for (Row row : rs) {
+                Entry entry = loaded.get(row.getString(idColumn));
+                if (null != entry) {
+                    entry.triggerId = row.getString("triggerId");
+                }
+            }
+        }
+        if (alerts) {
+            for (ResultSet rs : Futures.allAsList(TimeBuckets.selectAsync(session,
+                    CassStatement.SELECT_ALERT_STATUSES_BY_BUCKET, tenantBuckets, tenantId)).get()) {
+                for (Row row : rs) {
+                    Entry entry = loaded.get(row.getString(idColumn));
+                    if (null != entry) {
+                        entry.status = Alert.Status.valueOf(row.getString("status"));
+                    }
+                }
+            }
+            for (ResultSet rs : Futures.allAsList(TimeBuckets.selectAsync(session,
+                    CassStatement.SELECT_ALERT_SEVERITIES_BY_BUCKET, tenantBuckets, tenantId)).get()) {
+                for (Row row : rs) {
+                    Entry entry = loaded.get(row.getString(idColumn));
+                    if (null != entry) {
+                        entry.severity = Severity.valueOf(row.getString("severity"));
+                    }
+                }
+            }
+        }
+        return loaded.values();
+    }
+
+    /**
+     * Update the indexes with alerts written to the backend.
+     *
+     * @param alerts the alerts added or updated
+     */
+    void putAlerts(Collection<Alert> alerts) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        alerts.stream().collect(Collectors.groupingBy(Alert::getTenantId)).forEach((tenantId, tenantAlerts) -> {
+            Entries entries = indexes.get(key(tenantId, TimeBuckets.ALERTS));
+            if (null != entries) {
+                entries.put(tenantAlerts.stream().map(Entry::of).collect(Collectors.toList()));
+            }
+        });
+    }
+
+    /**
+     * Update the indexes with events written to the backend.
+     *
+     * @param events the events added
+     */
+    void putEvents(Collection<Event> events) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        events.stream().collect(Collectors.groupingBy(Event::getTenantId)).forEach((tenantId, tenantEvents) -> {
+            Entries entries = indexes.get(key(tenantId, TimeBuckets.EVENTS));
+            if (null != entries) {
+                entries.put(tenantEvents.stream().map(Entry::of).collect(Collectors.toList()));
+            }
+        });
+    }
+
+    /**
+     * Update the index of a tenant with alerts or events deleted from the backend.
+     *
+     * @param tenantId the tenant
+     * @param type {@link TimeBuckets#ALERTS} or {@link TimeBuckets#EVENTS}
+     * @param ids the ids of the alerts or events deleted
+     */
+    void remove(String tenantId, String type, Collection<String> ids) {
+        Entries entries = indexes.get(key(tenantId, type));
+        if (null != entries) {
+            entries.remove(ids);
+        }
+    }
+
+    /**
+     * Remove from the index of a tenant the ids selected by a query that were no longer in the backend, as the
+     * alerts and events expire by their ttl.
+     *
+     * @param tenantId the tenant
+     * @param type {@link TimeBuckets#ALERTS} or {@link TimeBuckets#EVENTS}
+     * @param ids the ids not found
+     */
+    void purge(String tenantId, String type, Collection<String> ids) {
+        remove(tenantId, type, ids);
+        purged.add(ids.size());
+    }
+
+    /**
+     * @param orders the orders of a pager, applied as successive stable sorts like the in-memory paging does, so the
+     * last order is the primary one
+     * @return the order of the alerts entries, or null if some field is not indexed
+     */
+    static Comparator<Entry> alertsOrder(List<Order> orders) {
+        Comparator<Entry> result = null;
+        if (null != orders) {
+            for (Order order : orders) {
+                if (null == order.getField() || null == order.getDirection()) {
+                    continue;
+                }
+                boolean ascending = order.getDirection() == Order.Direction.ASCENDING;
+                Comparator<Entry> comparator;
+                switch (AlertComparator.Field.getField(order.getField())) {
+                    case ALERT_ID:
+                        comparator = direction(Comparator.comparing(e -> e.id), ascending);
+                        break;
+                    case CTIME:
+                        comparator = direction(Comparator.comparingLong(e -> e.ctime), ascending);
+                        break;
+                    case TRIGGER_ID:
+                        comparator = Comparator.comparing(e -> e.triggerId, nullsLast(ascending));
+                        break;
+                    case SEVERITY:
+                        comparator = Comparator.comparing(e -> e.severity, nullsLast(ascending));
+                        break;
+                    case STATUS:
+                        comparator = Comparator.comparing(e -> e.status, nullsLast(ascending));
+                        break;
+                    default:
+                        return null;
+                }
+                result = null == result ? comparator : comparator.thenComparing(result);
+            }
+        }
+        Comparator<Entry> byId = Comparator.comparing(e -> e.id);
+        return null == result ? byId : result.thenComparing(byId);
+    }
+
+    /**
+     * @param orders the orders of a pager, applied as successive stable sorts like the in-memory paging does, so the
+     * last order is the primary one
+     * @return the order of the events entries, or null if some field is not indexed
+     */
+    static Comparator<Entry> eventsOrder(List<Order> orders) {
+        Comparator<Entry> result = null;
+        if (null != orders) {
+            for (Order order : orders) {
+                if (null == order.getField() || null == order.getDirection()) {
+                    continue;
+                }
+                boolean ascending = order.getDirection() == Order.Direction.ASCENDING;
+                Comparator<Entry> comparator;
+                switch (EventComparator.Field.getField(order.getField())) {
+                    case ID:
+                        comparator = direction(Comparator.comparing(e -> e.id), ascending);
+                        break;
+                    case CTIME:
+                        comparator = direction(Comparator.comparingLong(e -> e.ctime), ascending);
+                        break;
+                    case TRIGGER_ID:
+                        comparator = Comparator.comparing(e -> e.triggerId, nullsLast(ascending));
+                        break;
+                    default:
+                        return null;
+                }
+                result = null == result ? comparator : comparator.thenComparing(result);
+            }
+        }
+        Comparator<Entry> byId = Comparator.comparing(e -> e.id);
+        return null == result ? byId : result.thenComparing(byId);
+    }
+
+    private static Comparator<Entry> direction(Comparator<Entry> comparator, boolean ascending) {
+        return ascending ? comparator : comparator.reversed();
+    }
+
+    /*
+        Missing values go last in both directions, as in AlertComparator and EventComparator
+     */
+    private static <T extends Comparable<? super T>> Comparator<T> nullsLast(boolean ascending) {
+        return Comparator.nullsLast(ascending ? Comparator.<T> naturalOrder() : Comparator.<T> reverseOrder());
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public int getIndexes() {
+        return (int) indexes.values().stream().filter(Entries::isReady).count();
+    }
+
+    @Override
+    public long getSize() {
+        return indexes.values().stream().filter(Entries::isReady).mapToLong(Entries::size).sum();
+    }
+
+    @Override
+    public long getBuilds() {
+        return builds.sum();
+    }
+
+    @Override
+    public long getBuildTime() {
+        return TimeUnit.NANOSECONDS.toMillis(buildTime.sum());
+    }
+
+    @Override
+    public long getOverflows() {
+        return overflows.sum();
+    }
+
+    @Override
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    @Override
+    public long getPurged() {
+        return purged.sum();
+    }
+
+    @Override
+    public void reset() {
+        builds.reset();
+        buildTime.reset();
+        overflows.reset();
+        queries.reset();
+        purged.reset();
+    }
+
+    @Override
+    public void clear() {
+        indexes.clear();
+    }
+}
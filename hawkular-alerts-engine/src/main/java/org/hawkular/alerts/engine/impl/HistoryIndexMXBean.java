@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+/**
+ * Metrics of the in-memory index of alerts and events history, registered as
+ * <code>org.hawkular.alerts:type=HistoryIndex</code>.
+ */
+public interface HistoryIndexMXBean {
+
+    /**
+     * @return the maximum number of entries of an index, 0 if the index is disabled
+     */
+    int getMaxSize();
+
+    /**
+     * @return the number of alerts and events indexes available for queries
+     */
+    int getIndexes();
+
+    /**
+     * @return the number of alerts and events in the indexes
+     */
+    long getSize();
+
+    /**
+     * @return the number of indexes built from the backend
+     */
+    long getBuilds();
+
+    /**
+     * @return the total time spent building indexes in milliseconds
+     */
+    long getBuildTime();
+
+    /**
+     * @return the number of indexes discarded because they exceeded the maximum size
+     */
+    long getOverflows();
+
+    /**
+     * @return the number of queries resolved by an index
+     */
+    long getQueries();
+
+    /**
+     * @return the number of entries removed from an index because they were no longer in the backend
+     */
+    long getPurged();
+
+    /**
+     * Reset the counters.
+     */
+    void reset();
+
+    /**
+     * Discard all the indexes, they are built again from the backend on the next query.
+     */
+    void clear();
+}
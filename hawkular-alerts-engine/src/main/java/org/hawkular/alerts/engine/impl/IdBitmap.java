@@ -0,0 +1,452 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compressed set of non negative int ids.
+ *
+ * Ids are split in chunks of 65536 by their high 16 bits. A chunk with few ids keeps them as a sorted array of their
+ * low 16 bits, a dense chunk as a bitmap of 1024 longs, so a set takes at most 8KB per chunk and intersections and
+ * unions work chunk by chunk.
+ *
+ * Not thread safe.
+ */
+final class IdBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    /*
+        A chunk of ids, either a sorted array or a bitmap
+     */
+    private static final class Chunk {
+        char[] array;
+        long[] bits;
+        int cardinality;
+
+        static Chunk ofArray(char[] array, int cardinality) {
+            Chunk chunk = new Chunk();
+            chunk.array = array;
+            chunk.cardinality = cardinality;
+            return chunk;
+        }
+
+        static Chunk ofBits(long[] bits, int cardinality) {
+            if (cardinality <= ARRAY_MAX) {
+                char[] array = new char[cardinality];
+                int n = 0;
+                for (int i = 0; i < WORDS; i++) {
+                    long word = bits[i];
+                    while (word != 0) {
+                        array[n++] = (char) (i * 64 + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+                return ofArray(array, cardinality);
+            }
+            Chunk chunk = new Chunk();
+            chunk.bits = bits;
+            chunk.cardinality = cardinality;
+            return chunk;
+        }
+
+        long[] toBits() {
+            if (null != bits) {
+                return bits.clone();
+            }
+            long[] result = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                result[array[i] >>> 6] |= 1L << array[i];
+            }
+            return result;
+        }
+
+        boolean contains(char low) {
+            if (null != bits) {
+                return (bits[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(array, 0, cardinality, low) >= 0;
+        }
+
+        boolean add(char low) {
+            if (null != bits) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) != 0) {
+                    return false;
+                }
+                bits[low >>> 6] |= mask;
+                cardinality++;
+                return true;
+            }
+            int i = Arrays.binarySearch(array, 0, cardinality, low);
+            if (i >= 0) {
+                return false;
+            }
+            i = -i - 1;
+            if (cardinality == ARRAY_MAX) {
+                bits = toBits();
+                array = null;
+                bits[low >>> 6] |= 1L << low;
+                cardinality++;
+                return true;
+            }
+            if (cardinality == array.length) {
+                array = Arrays.copyOf(array, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(array, i, array, i + 1, cardinality - i);
+            array[i] = low;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (null != bits) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) == 0) {
+                    return false;
+                }
+                bits[low >>> 6] &= ~mask;
+                cardinality--;
+                if (cardinality <= ARRAY_MAX) {
+                    Chunk chunk = ofBits(bits, cardinality);
+                    array = chunk.array;
+                    bits = null;
+                }
+                return true;
+            }
+            int i = Arrays.binarySearch(array, 0, cardinality, low);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(array, i + 1, array, i, cardinality - i - 1);
+            cardinality--;
+            return true;
+        }
+
+        Chunk and(Chunk other) {
+            if (null != bits && null != other.bits) {
+                long[] result = new long[WORDS];
+                int n = 0;
+                for (int i = 0; i < WORDS; i++) {
+                    result[i] = bits[i] & other.bits[i];
+                    n += Long.bitCount(result[i]);
+                }
+                return ofBits(result, n);
+            }
+            if (null != bits || null != other.bits) {
+                Chunk sparse = null != bits ? other : this;
+                Chunk dense = null != bits ? this : other;
+                char[] result = new char[sparse.cardinality];
+                int n = 0;
+                for (int i = 0; i < sparse.cardinality; i++) {
+                    if (dense.contains(sparse.array[i])) {
+                        result[n++] = sparse.array[i];
+                    }
+                }
+                return ofArray(result, n);
+            }
+            char[] result = new char[Math.min(cardinality, other.cardinality)];
+            int n = 0;
+            for (int i = 0, j = 0; i < cardinality && j < other.cardinality;) {
+                if (array[i] < other.array[j]) {
+                    i++;
+                } else if (array[i] > other.array[j]) {
+                    j++;
+                } else {
+                    result[n++] = array[i];
+                    i++;
+                    j++;
+                }
+            }
+            return ofArray(result, n);
+        }
+
+        Chunk or(Chunk other) {
+            if (null == bits && null == other.bits && cardinality + other.cardinality <= ARRAY_MAX) {
+                char[] result = new char[cardinality + other.cardinality];
+                int n = 0;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < other.cardinality) {
+                    if (array[i] < other.array[j]) {
+                        result[n++] = array[i++];
+                    } else if (array[i] > other.array[j]) {
+                        result[n++] = other.array[j++];
+                    } else {
+                        result[n++] = array[i++];
+                        j++;
+                    }
+                }
+                while (i < cardinality) {
+                    result[n++] = array[i++];
+                }
+                while (j < other.cardinality) {
+                    result[n++] = other.array[j++];
+                }
+                return ofArray(result, n);
+            }
+            long[] result = toBits();
+            if (null != other.bits) {
+                for (int i = 0; i < WORDS; i++) {
+                    result[i] |= other.bits[i];
+                }
+            } else {
+                for (int i = 0; i < other.cardinality; i++) {
+                    result[other.array[i] >>> 6] |= 1L << other.array[i];
+                }
+            }
+            int n = 0;
+            for (int i = 0; i < WORDS; i++) {
+                n += Long.bitCount(result[i]);
+            }
+            return ofBits(result, n);
+        }
+
+        Chunk copy() {
+            return null != bits ? ofBits(bits.clone(), cardinality) : ofArray(Arrays.copyOf(array, cardinality),
+                    cardinality);
+        }
+
+        int forEach(int high, int[] target, int offset) {
+            if (null != bits) {
+                for (int i = 0; i < WORDS; i++) {
+                    long word = bits[i];
+                    while (word != 0) {
+                        target[offset++] = high | (i * 64 + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+                return offset;
+            }
+            for (int i = 0; i < cardinality; i++) {
+                target[offset++] = high | array[i];
+            }
+            return offset;
+        }
+    }
+
+    private char[] keys;
+    private Chunk[] chunks;
+    private int size;
+
+    IdBitmap() {
+        this(new char[4], new Chunk[4], 0);
+    }
+
+    private IdBitmap(char[] keys, Chunk[] chunks, int size) {
+        this.keys = keys;
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * @param ids the ids of the new bitmap
+     * @return a bitmap with the given ids
+     */
+    static IdBitmap of(int... ids) {
+        IdBitmap bitmap = new IdBitmap();
+        for (int id : ids) {
+            bitmap.add(id);
+        }
+        return bitmap;
+    }
+
+    private static void checkId(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Id must be non negative: " + id);
+        }
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    /**
+     * @param id the id to add
+     * @return true if the id was not in the bitmap
+     */
+    boolean add(int id) {
+        checkId(id);
+        char key = (char) (id >>> 16);
+        int i = indexOf(key);
+        if (i >= 0) {
+            return chunks[i].add((char) id);
+        }
+        i = -i - 1;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(chunks, i, chunks, i + 1, size - i);
+        keys[i] = key;
+        chunks[i] = Chunk.ofArray(new char[] { (char) id, 0, 0, 0 }, 1);
+        size++;
+        return true;
+    }
+
+    /**
+     * @param id the id to remove
+     * @return true if the id was in the bitmap
+     */
+    boolean remove(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int i = indexOf((char) (id >>> 16));
+        if (i < 0 || !chunks[i].remove((char) id)) {
+            return false;
+        }
+        if (chunks[i].cardinality == 0) {
+            System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+            System.arraycopy(chunks, i + 1, chunks, i, size - i - 1);
+            size--;
+            chunks[size] = null;
+        }
+        return true;
+    }
+
+    boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int i = indexOf((char) (id >>> 16));
+        return i >= 0 && chunks[i].contains((char) id);
+    }
+
+    /**
+     * @return the number of ids in the bitmap
+     */
+    int cardinality() {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            n += chunks[i].cardinality;
+        }
+        return n;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param other a bitmap
+     * @return a new bitmap with the ids in both bitmaps
+     */
+    IdBitmap and(IdBitmap other) {
+        IdBitmap result = new IdBitmap(new char[Math.max(1, Math.min(size, other.size))],
+                new Chunk[Math.max(1, Math.min(size, other.size))], 0);
+        for (int i = 0, j = 0; i < size && j < other.size;) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Chunk chunk = chunks[i].and(other.chunks[j]);
+                if (chunk.cardinality > 0) {
+                    result.keys[result.size] = keys[i];
+                    result.chunks[result.size] = chunk;
+                    result.size++;
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param other a bitmap
+     * @return a new bitmap with the ids in any of the bitmaps
+     */
+    IdBitmap or(IdBitmap other) {
+        IdBitmap result = new IdBitmap(new char[Math.max(1, size + other.size)],
+                new Chunk[Math.max(1, size + other.size)], 0);
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.keys[result.size] = keys[i];
+                result.chunks[result.size] = chunks[i++].copy();
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.keys[result.size] = other.keys[j];
+                result.chunks[result.size] = other.chunks[j++].copy();
+            } else {
+                result.keys[result.size] = keys[i];
+                result.chunks[result.size] = chunks[i++].or(other.chunks[j++]);
+            }
+            result.size++;
+        }
+        return result;
+    }
+
+    /**
+     * @param bitmaps the bitmaps to merge
+     * @return a new bitmap with the ids in any of the bitmaps, merged chunk by chunk
+     */
+    static IdBitmap or(Collection<IdBitmap> bitmaps) {
+        TreeMap<Character, Chunk> merged = new TreeMap<>();
+        for (IdBitmap bitmap : bitmaps) {
+            for (int i = 0; i < bitmap.size; i++) {
+                Chunk chunk = merged.get(bitmap.keys[i]);
+                merged.put(bitmap.keys[i], null == chunk ? bitmap.chunks[i].copy() : chunk.or(bitmap.chunks[i]));
+            }
+        }
+        IdBitmap result = new IdBitmap(new char[Math.max(1, merged.size())], new Chunk[Math.max(1, merged.size())],
+                0);
+        for (Map.Entry<Character, Chunk> chunk : merged.entrySet()) {
+            result.keys[result.size] = chunk.getKey();
+            result.chunks[result.size] = chunk.getValue();
+            result.size++;
+        }
+        return result;
+    }
+
+    /**
+     * @return a new bitmap with the same ids
+     */
+    IdBitmap copy() {
+        IdBitmap result = new IdBitmap(Arrays.copyOf(keys, Math.max(1, size)),
+                new Chunk[Math.max(1, size)], size);
+        for (int i = 0; i < size; i++) {
+            result.chunks[i] = chunks[i].copy();
+        }
+        return result;
+    }
+
+    /**
+     * @return the ids in ascending order
+     */
+    int[] toArray() {
+        int[] result = new int[cardinality()];
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+            offset = chunks[i].forEach(keys[i] << 16, result, offset);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "IdBitmap" + Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hawkular.alerts.api.model.paging.Order;
+import org.hawkular.alerts.api.model.paging.Page;
+import org.hawkular.alerts.api.model.paging.Pager;
+
+/**
+ * Continuation tokens of the {@link Pager} cursor mode.
+ *
+ * A cursor is either the clustering key of the last row returned, when the requested order is the clustering order
+ * of the table read and the next page is a slice after that key, or the offset of the next page on a result sorted
+ * in memory, for the orders and filters Cassandra can not serve.
+ *
+ * The token also carries the order it was created for, a cursor used with a different order is rejected.
+ */
+final class PageCursor {
+
+    private static final byte VERSION = 1;
+
+    enum Type {
+        KEY, OFFSET
+    }
+
+    private final Type type;
+    private final String order;
+    private final List<String> values;
+
+    PageCursor(Type type, List<Order> order, String... values) {
+        this(type, orderKey(order), Arrays.asList(values));
+    }
+
+    private PageCursor(Type type, String order, List<String> values) {
+        this.type = type;
+        this.order = order;
+        this.values = values;
+    }
+
+    /**
+     * @return the clustering key values, or the offset, of the cursor
+     */
+    List<String> getValues() {
+        return values;
+    }
+
+    String encode() {
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bos);
+            out.writeByte(VERSION);
+            out.writeByte(type.ordinal());
+            out.writeUTF(order);
+            out.writeShort(values.size());
+            for (String value : values) {
+                out.writeUTF(value);
+            }
+            out.flush();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bos.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param cursor the cursor of a pager
+     * @param type the type of cursor expected by the query
+     * @param order the resolved order of the query
+     * @return the decoded cursor, or null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed or was not created for this query order
+     */
+    static PageCursor decode(String cursor, Type type, List<Order> order) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        PageCursor decoded;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder()
+                    .decode(cursor)));
+            if (in.readByte() != VERSION) {
+                throw new IllegalArgumentException("Unsupported cursor version: " + cursor);
+            }
+            int typeIndex = in.readByte();
+            if (typeIndex < 0 || typeIndex >= Type.values().length) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            String cursorOrder = in.readUTF();
+            int numValues = in.readShort();
+            List<String> values = new ArrayList<>(numValues);
+            for (int i = 0; i < numValues; i++) {
+                values.add(in.readUTF());
+            }
+            decoded = new PageCursor(Type.values()[typeIndex], cursorOrder, Collections.unmodifiableList(values));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+        if (decoded.type != type || !decoded.order.equals(orderKey(order))) {
+            throw new IllegalArgumentException("Cursor [" + cursor + "] does not belong to a query ordered by "
+                    + orderKey(order));
+        }
+        return decoded;
+    }
+
+    /**
+     * The single order that a clustering read can serve. Unspecified order is resolved to the given default.
+     *
+     * @param pager a cursor pager
+     * @param defaultOrder the order used when the pager does not specify one
+     * @return the order of the query, or null if the pager sorts by more than one field
+     */
+    static Order singleOrder(Pager pager, Order defaultOrder) {
+        List<Order> order = pager.getOrder();
+        if (order == null || order.isEmpty()) {
+            return defaultOrder;
+        }
+        if (order.size() > 1 || order.get(0).getDirection() == null) {
+            return null;
+        }
+        return order.get(0).isSpecific() ? order.get(0) : defaultOrder;
+    }
+
+    /**
+     * Page of an already sorted result for a cursor pager, the cursor is the offset of the page.
+     *
+     * @param ordered the full result sorted by the pager order
+     * @param pager a cursor pager with the order resolved
+     * @return the page at the cursor offset
+     */
+    static <T> Page<T> offsetPage(List<T> ordered, Pager pager) {
+        int start = Math.min(offset(pager), ordered.size());
+        int end = pager.isLimited() ? (int) Math.min((long) start + pager.getPageSize(), ordered.size())
+                : ordered.size();
+        return offsetPage(ordered.subList(start, end), pager, start, ordered.size());
+    }
+
+    /**
+     * Page already selected at the offset of a cursor pager, as the pages read from an index sorted result.
+     *
+     * @param page the elements of the page
+     * @param pager a cursor pager with the order resolved
+     * @param start the offset of the page, see {@link #offset(Pager)}
+     * @param total the size of the full result
+     * @return the page, with the cursor of the next one if there are more elements
+     */
+    static <T> Page<T> offsetPage(List<T> page, Pager pager, int start, int total) {
+        int end = pager.isLimited() ? (int) Math.min((long) start + pager.getPageSize(), total) : total;
+        String next = end < total ? new PageCursor(Type.OFFSET, pager.getOrder(), String.valueOf(end)).encode() : null;
+        return new Page<>(page, pager, total, next);
+    }
+
+    /**
+     * @param pager a cursor pager with the order resolved
+     * @return the offset of the page of the cursor, 0 for the first page
+     */
+    static int offset(Pager pager) {
+        PageCursor cursor = decode(pager.getCursor(), Type.OFFSET, pager.getOrder());
+        if (cursor == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(cursor.getValues().get(0)));
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + pager.getCursor(), e);
+        }
+    }
+
+    private static String orderKey(List<Order> order) {
+        return order.stream()
+                .map(o -> o.getField() + ":" + (o.getDirection() == null ? "" : o.getDirection().getShortString()))
+                .collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Event;
+
+/**
+ * Compact binary encoding of the messages exchanged by {@link PartitionManagerImpl} across the cluster.
+ *
+ * Default java serialization writes class descriptors and full strings for every datum, which dominates the
+ * payload when nodes forward data at high rates. This codec uses:
+ *  - variable length integers for sizes, indexes and timestamps,
+ *  - a string table per message, so repeated dataIds, tenantIds and context keys are written once,
+ *  - timestamps delta coded against the previous one in the message,
+ *  - numeric data values written as a primitive double when the value round-trips from its string form.
+ *
+ * Events carrying a trigger, dampening or evaluation sets (i.e. alerting events) are not hot path messages,
+ * they are written with the regular object serialization.
+ *
+ * Writer and Reader are not thread safe, a new instance is expected per message.
+ */
+final class PartitionCodec {
+
+    /**
+     * Version of the encoding, written as first byte of every message.
+     */
+    static final byte VERSION = 1;
+
+    private static final int NULL_STRING = 0;
+    private static final int NEW_STRING = 1;
+    private static final int STRING_REF = 2;
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_DOUBLE = 1;
+    private static final byte VALUE_STRING = 2;
+
+    private static final byte EVENT_COMPACT = 0;
+    private static final byte EVENT_OBJECT = 1;
+
+    private PartitionCodec() {
+
+    }
+
+    static class Writer {
+        private final ObjectOutput out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private long lastTime = 0;
+
+        Writer(ObjectOutput out) {
+            this.out = out;
+        }
+
+        void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+
+        void writeNode(Integer node) throws IOException {
+            if (node == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                out.writeInt(node);
+            }
+        }
+
+        void writeString(String s) throws IOException {
+            if (s == null) {
+                writeVarInt(NULL_STRING);
+                return;
+            }
+            Integer index = strings.get(s);
+            if (index != null) {
+                writeVarInt(STRING_REF + index);
+                return;
+            }
+            strings.put(s, strings.size());
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(NEW_STRING);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+
+        void writeMap(Map<String, String> map) throws IOException {
+            if (map == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(map.size() + 1);
+            for (Entry<String, String> entry : map.entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+
+        void writeTime(long time) throws IOException {
+            long delta = time - lastTime;
+            lastTime = time;
+            // zigzag, so unordered timestamps are still small
+            writeVarLong((delta << 1) ^ (delta >> 63));
+        }
+
+        void writeValue(String value) throws IOException {
+            if (value == null) {
+                out.writeByte(VALUE_NULL);
+                return;
+            }
+            Double number = toDouble(value);
+            if (number != null) {
+                out.writeByte(VALUE_DOUBLE);
+                out.writeDouble(number);
+            } else {
+                out.writeByte(VALUE_STRING);
+                writeString(value);
+            }
+        }
+
+        void writeData(Data data) throws IOException {
+            writeString(data.getId());
+            writeTime(data.getTimestamp());
+            writeValue(data.getValue());
+            writeMap(data.getContext());
+        }
+
+        void writeDataCollection(Collection<Data> data) throws IOException {
+            writeVarInt(data.size());
+            for (Data d : data) {
+                writeData(d);
+            }
+        }
+
+        void writeEvent(Event event) throws IOException {
+            if (!isCompact(event)) {
+                out.writeByte(EVENT_OBJECT);
+                out.writeObject(event);
+                return;
+            }
+            out.writeByte(EVENT_COMPACT);
+            writeString(event.getEventType());
+            writeString(event.getTenantId());
+            writeString(event.getId());
+            writeTime(event.getCtime());
+            writeString(event.getDataId());
+            writeString(event.getCategory());
+            writeString(event.getText());
+            writeMap(event.getContext());
+            writeMap(event.getTags());
+        }
+
+        void writeEventCollection(Collection<Event> events) throws IOException {
+            writeVarInt(events.size());
+            for (Event e : events) {
+                writeEvent(e);
+            }
+        }
+    }
+
+    static class Reader {
+        private final ObjectInput in;
+        private final List<String> strings = new ArrayList<>();
+        private long lastTime = 0;
+
+        Reader(ObjectInput in) {
+            this.in = in;
+        }
+
+        int readVarInt() throws IOException {
+            int value = 0;
+            int shift = 0;
+            int b;
+            do {
+                if (shift > 28) {
+                    throw new IOException("Malformed varint");
+                }
+                b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do {
+                if (shift > 63) {
+                    throw new IOException("Malformed varlong");
+                }
+                b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        Integer readNode() throws IOException {
+            return in.readBoolean() ? in.readInt() : null;
+        }
+
+        String readString() throws IOException {
+            int tag = readVarInt();
+            if (tag == NULL_STRING) {
+                return null;
+            }
+            if (tag == NEW_STRING) {
+                byte[] bytes = new byte[readVarInt()];
+                in.readFully(bytes);
+                String s = new String(bytes, StandardCharsets.UTF_8);
+                strings.add(s);
+                return s;
+            }
+            int index = tag - STRING_REF;
+            if (index >= strings.size()) {
+                throw new IOException("Malformed string reference [" + index + "]");
+            }
+            return strings.get(index);
+        }
+
+        Map<String, String> readMap() throws IOException {
+            int size = readVarInt() - 1;
+            if (size < 0) {
+                return null;
+            }
+            Map<String, String> map = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                map.put(readString(), readString());
+            }
+            return map;
+        }
+
+        long readTime() throws IOException {
+            long zigzag = readVarLong();
+            lastTime += (zigzag >>> 1) ^ -(zigzag & 1);
+            return lastTime;
+        }
+
+        String readValue() throws IOException {
+            byte tag = in.readByte();
+            switch (tag) {
+                case VALUE_NULL:
+                    return null;
+                case VALUE_DOUBLE:
+                    return String.valueOf(in.readDouble());
+                case VALUE_STRING:
+                    return readString();
+                default:
+                    throw new IOException("Unknown value tag [" + tag + "]");
+            }
+        }
+
+        Data readData() throws IOException {
+            Data data = new Data();
+            data.setId(readString());
+            data.setTimestamp(readTime());
+            data.setValue(readValue());
+            data.setContext(readMap());
+            return data;
+        }
+
+        List<Data> readDataCollection() throws IOException {
+            int size = readVarInt();
+            List<Data> data = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                data.add(readData());
+            }
+            return data;
+        }
+
+        Event readEvent() throws IOException, ClassNotFoundException {
+            byte tag = in.readByte();
+            if (tag == EVENT_OBJECT) {
+                return (Event) in.readObject();
+            }
+            if (tag != EVENT_COMPACT) {
+                throw new IOException("Unknown event tag [" + tag + "]");
+            }
+            Event event = new Event();
+            event.setEventType(readString());
+            event.setTenantId(readString());
+            event.setId(readString());
+            event.setCtime(readTime());
+            event.setDataId(readString());
+            event.setCategory(readString());
+            event.setText(readString());
+            event.setContext(readMap());
+            event.setTags(readMap());
+            return event;
+        }
+
+        List<Event> readEventCollection() throws IOException, ClassNotFoundException {
+            int size = readVarInt();
+            List<Event> events = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                events.add(readEvent());
+            }
+            return events;
+        }
+    }
+
+    /*
+        A value is sent as a double only if the receiver rebuilds exactly the same string, this is the case for
+        data created with Data.forNumeric().
+     */
+    static Double toDouble(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        char first = value.charAt(0);
+        if (first != '-' && (first < '0' || first > '9')) {
+            return null;
+        }
+        try {
+            double d = Double.parseDouble(value);
+            return String.valueOf(d).equals(value) ? d : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static boolean isCompact(Event event) {
+        return Event.class.equals(event.getClass())
+                && event.getTrigger() == null
+                && event.getDampening() == null
+                && event.getEvalSets() == null;
+    }
+}
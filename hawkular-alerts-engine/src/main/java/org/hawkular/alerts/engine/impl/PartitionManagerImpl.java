@@ -16,17 +16,30 @@
  */
 package org.hawkular.alerts.engine.impl;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.Local;
@@ -41,8 +54,10 @@ import org.hawkular.alerts.api.model.trigger.Trigger;
 import org.hawkular.alerts.api.services.DefinitionsService;
 import org.hawkular.alerts.engine.log.MsgLogger;
 import org.hawkular.alerts.engine.service.PartitionDataListener;
+import org.hawkular.alerts.engine.service.PartitionDefinitionsListener;
 import org.hawkular.alerts.engine.service.PartitionManager;
 import org.hawkular.alerts.engine.service.PartitionTriggerListener;
+import org.hawkular.alerts.engine.util.TriggerState;
 import org.infinispan.Cache;
 import org.infinispan.context.Flag;
 import org.infinispan.manager.EmbeddedCacheManager;
@@ -62,6 +77,11 @@ import com.google.common.hash.Hashing;
  * This implementation uses a consistent hashing strategy {@see https://en.wikipedia.org/wiki/Consistent_hashing}
  * as a method to partition triggers across nodes.
  *
+ * Trigger, data and event notifications are sent as direct messages on the JGroups channel of the cache container
+ * transport {@see PartitionMessenger}, the "partition" cache holds the partition table shared by the nodes.
+ * When the transport channel is not multiplexed, notifications fall back to entries on the "triggers" and "data"
+ * caches.
+ *
  * It needs three caches added into Wildfly/JBoss configuration files.
  *
  * standalone.xml:
@@ -105,6 +125,26 @@ public class PartitionManagerImpl implements PartitionManager {
     private static final String LIFESPAN_PROPERTY = "hawkular-alerts.partition-lifespan";
     private static final int LIFESPAN = Integer.parseInt(System.getProperty(LIFESPAN_PROPERTY, "100"));
 
+    /**
+     * Data and events notified to the partition are grouped in a single message per flush.
+     * A flush happens when the batch reaches BATCH_SIZE items or BATCH_DELAY ms after the first queued item.
+     * A BATCH_DELAY <= 0 sends every notification immediately.
+     */
+    private static final String BATCH_SIZE_PROPERTY = "hawkular-alerts.partition-batch-size";
+    private static final String BATCH_SIZE_DEFAULT = "1000";
+    private static final String BATCH_DELAY_PROPERTY = "hawkular-alerts.partition-batch-delay";
+    private static final String BATCH_DELAY_DEFAULT = "20";
+
+    /**
+     * Notifications are sent as direct messages on the cluster transport ("jgroups") or as entries of the
+     * "triggers" and "data" caches ("cache").
+     * MESSAGING_SCOPE identifies the partition messages on the multiplexed channel, it must be the same on all nodes.
+     */
+    private static final String MESSAGING_PROPERTY = "hawkular-alerts.partition-messaging";
+    private static final String MESSAGING_DEFAULT = "jgroups";
+    private static final String MESSAGING_SCOPE_PROPERTY = "hawkular-alerts.partition-messaging-scope";
+    private static final String MESSAGING_SCOPE_DEFAULT = "22000";
+
     public static final String BUCKETS = "buckets";
     public static final String PREVIOUS = "previousPartition";
     public static final String CURRENT = "currentPartition";
@@ -116,6 +156,12 @@ public class PartitionManagerImpl implements PartitionManager {
     @EJB
     DefinitionsService definitionsService;
 
+    /**
+     * Local cache of definitions, invalidated when definitions are changed on other nodes
+     */
+    @EJB
+    PartitionDefinitionsListener definitionsListener;
+
     /**
      * Indicate if the deployment is on a clustering scenario.
      * With distributed == false PartitionManager services are simply ignored.
@@ -172,6 +218,28 @@ public class PartitionManagerImpl implements PartitionManager {
      */
     private PartitionDataListener dataListener;
 
+    /**
+     * Sequence of the definitions invalidations sent through the "triggers" cache
+     */
+    private final AtomicLong definitionsInvalidations = new AtomicLong();
+
+    /**
+     * Direct messaging between nodes, null when notifications are sent through the caches
+     */
+    private PartitionMessenger messenger;
+
+    private int batchSize;
+    private int batchDelay;
+
+    /**
+     * Data and events pending to be sent, guarded by batchLock
+     */
+    private final Object batchLock = new Object();
+    private List<Data> pendingData = new ArrayList<>();
+    private List<Event> pendingEvents = new ArrayList<>();
+    private boolean flushScheduled = false;
+    private Timer batchTimer;
+
     @Override
     public boolean isDistributed() {
         return distributed;
@@ -187,10 +255,24 @@ public class PartitionManagerImpl implements PartitionManager {
             msgLog.infoPartitionManagerDisabled();
         } else {
             currentNode = cacheManager.getAddress().hashCode();
+            batchSize = new Integer(AlertProperties.getProperty(BATCH_SIZE_PROPERTY, BATCH_SIZE_DEFAULT));
+            batchDelay = new Integer(AlertProperties.getProperty(BATCH_DELAY_PROPERTY, BATCH_DELAY_DEFAULT));
+            if (batchDelay > 0) {
+                batchTimer = new Timer("PartitionManager-Batch", true);
+            }
+            String messaging = AlertProperties.getProperty(MESSAGING_PROPERTY, MESSAGING_DEFAULT);
+            if (MESSAGING_DEFAULT.equals(messaging)) {
+                short scope = new Short(AlertProperties.getProperty(MESSAGING_SCOPE_PROPERTY,
+                        MESSAGING_SCOPE_DEFAULT));
+                messenger = PartitionMessenger.create(cacheManager, scope, this::onMessage);
+            }
+            msgLog.infoPartitionMessaging(messenger != null ? "jgroups" : "cache");
             cacheManager.addListener(new TopologyChangeListener());
             partitionCache.addListener(new PartitionChangeListener());
-            triggersCache.addListener(new NewTriggerListener());
-            dataCache.addListener(new NewDataListener());
+            if (messenger == null) {
+                triggersCache.addListener(new NewTriggerListener());
+                dataCache.addListener(new NewDataListener());
+            }
             /*
                 Initial partition
              */
@@ -202,63 +284,228 @@ public class PartitionManagerImpl implements PartitionManager {
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        if (batchTimer != null) {
+            batchTimer.cancel();
+            flush();
+        }
+        if (messenger != null) {
+            messenger.stop();
+        }
+    }
+
     @Override
     public void notifyTrigger(Operation operation, String tenantId, String triggerId) {
         if (distributed) {
             PartitionEntry newEntry = new PartitionEntry(tenantId, triggerId);
             int toNode = calculateNewEntry(newEntry, (Map<Integer, Integer>)partitionCache.get(BUCKETS));
             NotifyTrigger nTrigger = new NotifyTrigger(currentNode, toNode, operation, tenantId, triggerId);
+            if (messenger != null) {
+                try {
+                    messenger.send(toNode, nTrigger);
+                } catch (Exception e) {
+                    msgLog.errorCannotProcessPartitionMessage(e.toString());
+                }
+                return;
+            }
             Integer key = nTrigger.hashCode();
             triggersCache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES)
                     .putAsync(key, nTrigger, LIFESPAN, TimeUnit.MILLISECONDS);
         }
     }
 
+    @Override
+    public void notifyTriggers(Operation operation, Map<String, Set<String>> triggers) {
+        if (distributed && triggers != null && !triggers.isEmpty()) {
+            Map<Integer, Map<String, Set<String>>> nodeTriggers = calculateNodeTriggers(triggers,
+                    (Map<Integer, Integer>) partitionCache.get(BUCKETS));
+            for (Entry<Integer, Map<String, Set<String>>> entry : nodeTriggers.entrySet()) {
+                NotifyTriggers nTriggers = new NotifyTriggers(currentNode, entry.getKey(), operation,
+                        entry.getValue());
+                if (messenger != null) {
+                    try {
+                        messenger.send(entry.getKey(), nTriggers);
+                    } catch (Exception e) {
+                        msgLog.errorCannotProcessPartitionMessage(e.toString());
+                    }
+                } else {
+                    Integer key = nTriggers.hashCode();
+                    triggersCache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES)
+                            .putAsync(key, nTriggers, LIFESPAN, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
     @Override
     public void registerTriggerListener(PartitionTriggerListener triggerListener) {
         this.triggerListener = triggerListener;
     }
 
+    @Override
+    public void notifyTriggerStates(Collection<TriggerState> states) {
+        if (distributed && states != null && !states.isEmpty()) {
+            if (messenger != null) {
+                sendTriggerStates(states);
+                return;
+            }
+            NotifyTriggerStates nStates = new NotifyTriggerStates(currentNode, states);
+            Integer key = nStates.hashCode();
+            triggersCache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES)
+                    .putAsync(key, nStates, LIFESPAN, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /*
+        States are sent to their new owner on the current partition, one message per node.
+     */
+    private void sendTriggerStates(Collection<TriggerState> states) {
+        Map<PartitionEntry, Integer> current = (Map<PartitionEntry, Integer>) partitionCache.get(CURRENT);
+        if (current == null) {
+            return;
+        }
+        Map<Integer, List<TriggerState>> statesByNode = new HashMap<>();
+        for (TriggerState state : states) {
+            Integer node = current.get(new PartitionEntry(state.getTenantId(), state.getTriggerId()));
+            if (node != null && !node.equals(currentNode)) {
+                statesByNode.computeIfAbsent(node, n -> new ArrayList<>()).add(state);
+            }
+        }
+        for (Entry<Integer, List<TriggerState>> entry : statesByNode.entrySet()) {
+            try {
+                messenger.send(entry.getKey(), new NotifyTriggerStates(currentNode, entry.getValue()));
+            } catch (Exception e) {
+                msgLog.errorCannotProcessPartitionMessage(e.toString());
+            }
+        }
+    }
+
+    @Override
+    public void notifyDefinitionsInvalidation(Collection<String> keys) {
+        if (distributed && keys != null && !keys.isEmpty()) {
+            NotifyDefinitionsInvalidation nInvalidation = new NotifyDefinitionsInvalidation(currentNode, keys);
+            if (messenger != null) {
+                try {
+                    messenger.multicast(nInvalidation);
+                } catch (Exception e) {
+                    msgLog.errorCannotProcessPartitionMessage(e.toString());
+                }
+                return;
+            }
+            /*
+                A new entry is needed to fire the listeners, the same keys can be invalidated again within the
+                lifespan of a previous entry
+             */
+            String key = "definitions-" + currentNode + "-" + definitionsInvalidations.incrementAndGet();
+            triggersCache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES)
+                    .putAsync(key, nInvalidation, LIFESPAN, TimeUnit.MILLISECONDS);
+        }
+    }
+
     @Override
     public void notifyData(Data data) {
         if (distributed) {
-            NotifyData nData = new NotifyData(currentNode, data);
-            Integer key = nData.hashCode();
-            dataCache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES)
-                    .putAsync(key, nData, LIFESPAN, TimeUnit.MILLISECONDS);
+            queue(Collections.singletonList(data), Collections.emptyList());
         }
     }
 
     @Override
     public void notifyData(Collection<Data> data) {
         if (distributed) {
-            NotifyData nData = new NotifyData(currentNode, data, Data.class);
-            Integer key = nData.hashCode();
-            dataCache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES)
-                    .putAsync(key, nData, LIFESPAN, TimeUnit.MILLISECONDS);
+            queue(data, Collections.emptyList());
         }
     }
 
     @Override
     public void notifyEvent(Event event) {
         if (distributed) {
-            NotifyData nEvent = new NotifyData(currentNode, event);
-            Integer key = nEvent.hashCode();
-            dataCache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES)
-                    .putAsync(key, nEvent, LIFESPAN, TimeUnit.MILLISECONDS);
+            queue(Collections.emptyList(), Collections.singletonList(event));
         }
     }
 
     @Override
     public void notifyEvents(Collection<Event> events) {
         if (distributed) {
-            NotifyData nEvent = new NotifyData(currentNode, events, Event.class);
-            Integer key = nEvent.hashCode();
-            dataCache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES)
-                    .putAsync(key, nEvent, LIFESPAN, TimeUnit.MILLISECONDS);
+            queue(Collections.emptyList(), events);
         }
     }
 
+    /*
+        Micro-batching of data and events.
+        Sending a message per datum is dominated by the per message overhead of the cache replication, so
+        notifications are grouped and sent as a single collection per flush.
+     */
+    private void queue(Collection<Data> data, Collection<Event> events) {
+        if (batchTimer == null) {
+            send(data, events);
+            return;
+        }
+        List<Data> drainedData = null;
+        List<Event> drainedEvents = null;
+        synchronized (batchLock) {
+            pendingData.addAll(data);
+            pendingEvents.addAll(events);
+            if (pendingData.size() + pendingEvents.size() >= batchSize) {
+                drainedData = pendingData;
+                drainedEvents = pendingEvents;
+                pendingData = new ArrayList<>();
+                pendingEvents = new ArrayList<>();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                batchTimer.schedule(new TimerTask() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, batchDelay);
+            }
+        }
+        if (drainedData != null) {
+            send(drainedData, drainedEvents);
+        }
+    }
+
+    private void flush() {
+        List<Data> drainedData;
+        List<Event> drainedEvents;
+        synchronized (batchLock) {
+            flushScheduled = false;
+            drainedData = pendingData;
+            drainedEvents = pendingEvents;
+            pendingData = new ArrayList<>();
+            pendingEvents = new ArrayList<>();
+        }
+        try {
+            send(drainedData, drainedEvents);
+        } catch (Exception e) {
+            msgLog.errorCannotSendPartitionBatch(e.toString());
+        }
+    }
+
+    private void send(Collection<Data> data, Collection<Event> events) {
+        if (!data.isEmpty()) {
+            put(new NotifyData(currentNode, data, Data.class));
+        }
+        if (!events.isEmpty()) {
+            put(new NotifyData(currentNode, events, Event.class));
+        }
+    }
+
+    private void put(NotifyData nData) {
+        if (messenger != null) {
+            try {
+                messenger.multicast(nData);
+            } catch (Exception e) {
+                msgLog.errorCannotSendPartitionBatch(e.toString());
+            }
+            return;
+        }
+        Integer key = nData.hashCode();
+        dataCache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES)
+                .putAsync(key, nData, LIFESPAN, TimeUnit.MILLISECONDS);
+    }
+
     @Override
     public void registerDataListener(PartitionDataListener dataListener) {
         this.dataListener = dataListener;
@@ -423,6 +670,41 @@ public class PartitionManagerImpl implements PartitionManager {
         return buckets.get(Hashing.consistentHash(md5.hashInt(newEntry.hashCode()), numBuckets));
     }
 
+    /**
+     * Distribute a set of entries across buckets using a consistent hashing strategy.
+     * The returned entries are represented by a Map<Integer, Map<String, Set<String>>> where:
+     *  - key is the code of a node
+     *  - value is a Map of tenantId to the triggerIds placed on the node
+     *
+     * @param triggers a Map of tenantId to triggerIds to distribute
+     * @param buckets a table of nodes
+     * @return the triggers grouped by the node where they are placed
+     */
+    public Map<Integer, Map<String, Set<String>>> calculateNodeTriggers(Map<String, Set<String>> triggers,
+                                                                      Map<Integer, Integer> buckets) {
+        if (triggers == null) {
+            throw new IllegalArgumentException("triggers must be not null");
+        }
+        if (buckets == null || buckets.isEmpty()) {
+            throw new IllegalArgumentException("buckets must be not null");
+        }
+        HashFunction md5 = Hashing.md5();
+        int numBuckets = buckets.size();
+        Map<Integer, Map<String, Set<String>>> nodeTriggers = new HashMap<>();
+        for (Entry<String, Set<String>> entry : triggers.entrySet()) {
+            String tenantId = entry.getKey();
+            for (String triggerId : entry.getValue()) {
+                PartitionEntry partitionEntry = new PartitionEntry(tenantId, triggerId);
+                Integer node = buckets.get(Hashing.consistentHash(md5.hashInt(partitionEntry.hashCode()),
+                        numBuckets));
+                nodeTriggers.computeIfAbsent(node, n -> new LinkedHashMap<>())
+                        .computeIfAbsent(tenantId, t -> new LinkedHashSet<>())
+                        .add(triggerId);
+            }
+        }
+        return nodeTriggers;
+    }
+
     /**
      * Return the entries assigned for a node into a partition.
      * The returned entries are represented by a Map<String, List<String>> where:
@@ -473,13 +755,17 @@ public class PartitionManagerImpl implements PartitionManager {
                 add(output.get("added"), entry.getKey());
             });
         } else {
-            List<PartitionEntry> previousNode = new ArrayList();
+            /*
+                Hashed sets keep the delta linear on the size of the partition, a List.contains() approach is
+                quadratic and it stalls the nodes on large partitions.
+             */
+            Set<PartitionEntry> previousNode = new HashSet<>();
             for (Entry<PartitionEntry, Integer> entry : previous.entrySet()) {
                 if (entry.getValue().equals(node)) {
                     previousNode.add(entry.getKey());
                 }
             }
-            List<PartitionEntry> currentNode = new ArrayList();
+            Set<PartitionEntry> currentNode = new HashSet<>();
             for (Entry<PartitionEntry, Integer> entry : current.entrySet()) {
                 if (entry.getValue().equals(node)) {
                     currentNode.add(entry.getKey());
@@ -555,87 +841,221 @@ public class PartitionManagerImpl implements PartitionManager {
         }
     }
 
-    @Listener
-    public class NewTriggerListener {
-        @CacheEntryCreated
-        public void onNewTrigger(CacheEntryCreatedEvent cacheEvent) {
-            if (cacheEvent.isPre()) {
-                if (log.isTraceEnabled()) {
-                    log.trace("Discarding pre onNewTrigger(@CacheEntryCreated) event");
-                }
-                return;
-            }
+    /*
+        Dispatch of the messages received through the PartitionMessenger
+     */
+    private void onMessage(Object message) {
+        if (message instanceof NotifyTrigger) {
+            processNotifyTrigger((NotifyTrigger) message);
+        } else if (message instanceof NotifyTriggers) {
+            processNotifyTriggers((NotifyTriggers) message);
+        } else if (message instanceof NotifyTriggerStates) {
+            processTriggerStates((NotifyTriggerStates) message);
+        } else if (message instanceof NotifyDefinitionsInvalidation) {
+            processDefinitionsInvalidation((NotifyDefinitionsInvalidation) message);
+        } else if (message instanceof NotifyData) {
+            processNotifyData((NotifyData) message);
+        }
+    }
+
+    private void processNotifyTrigger(NotifyTrigger newTrigger) {
+        if (log.isDebugEnabled()) {
+            log.debug("NotifyTrigger received on " + currentNode);
+            log.debug("NotifyTrigger: " + newTrigger);
+        }
+        /*
+            A trigger should be processed on the target node
+         */
+        if (null != newTrigger.toNode && null != currentNode && newTrigger.toNode.equals(currentNode)) {
             /*
-                When a trigger is added, updated or removed it should be notified on the PartitionManager.
-                PartitionManager adds an entry on "triggers" cache to fire an event that will place the trigger
-                on the partition and invoke PartitionTriggerListener previously registered to process the event.
+                Update partition
              */
-            NotifyTrigger newTrigger = (NotifyTrigger)triggersCache.get(cacheEvent.getKey());
-            if (log.isDebugEnabled()) {
-                log.debug("onNewTrigger(@CacheEntryCreated) received on " + currentNode);
-                log.debug("CacheEvent: " + cacheEvent);
-                log.debug("NotifyTrigger: " + newTrigger);
+            Map<PartitionEntry, Integer> current = (Map) partitionCache.get(CURRENT);
+            PartitionEntry newEntry = new PartitionEntry(newTrigger.getTenantId(),
+                    newTrigger.getTriggerId());
+            boolean exist = current.containsKey(newEntry);
+            if (exist) {
+                Integer partitionNode = current.get(newEntry);
+                switch (newTrigger.getOperation()) {
+                    case ADD:
+                    case UPDATE:
+                        /*
+                            Partition is updated if information is outdated
+                         */
+                        if (!partitionNode.equals(currentNode)) {
+                            modifyPartition(newEntry, current, newTrigger.getOperation());
+                        }
+                        break;
+                    case REMOVE:
+                        modifyPartition(newEntry, current, newTrigger.getOperation());
+                        break;
+                }
+            } else {
+                if (!newTrigger.getOperation().equals(Operation.REMOVE)) {
+                    modifyPartition(newEntry, current, newTrigger.getOperation());
+                }
             }
             /*
-                A trigger should be processed on the target node
+                Finally invoke listener
              */
-            if (null != newTrigger.toNode && null != currentNode && newTrigger.toNode.equals(currentNode)) {
-                /*
-                    Update partition
-                 */
-                Map<PartitionEntry, Integer> current = (Map) partitionCache.get(CURRENT);
-                PartitionEntry newEntry = new PartitionEntry(newTrigger.getTenantId(),
+            if (triggerListener != null) {
+                triggerListener.onTriggerChange(newTrigger.getOperation(), newTrigger.getTenantId(),
                         newTrigger.getTriggerId());
-                boolean exist = current.containsKey(newEntry);
-                if (exist) {
-                    Integer partitionNode = current.get(newEntry);
-                    switch (newTrigger.getOperation()) {
-                        case ADD:
-                        case UPDATE:
-                            /*
-                                Partition is updated if information is outdated
-                             */
-                            if (!partitionNode.equals(currentNode)) {
-                                modifyPartition(newEntry, current, newTrigger.getOperation());
-                            }
-                            break;
-                        case REMOVE:
-                            modifyPartition(newEntry, current, newTrigger.getOperation());
-                            break;
-                    }
-                } else {
-                    if (!newTrigger.getOperation().equals(Operation.REMOVE)) {
-                        modifyPartition(newEntry, current, newTrigger.getOperation());
-                    }
-                }
-                /*
-                    Finally invoke listener
-                 */
-                if (triggerListener != null) {
-                    triggerListener.onTriggerChange(newTrigger.getOperation(), newTrigger.getTenantId(),
-                            newTrigger.getTriggerId());
+            }
+        }
+    }
+
+    /*
+        Bulk version of processNotifyTrigger(), the partition is updated once for the whole set of triggers.
+     */
+    private void processNotifyTriggers(NotifyTriggers nTriggers) {
+        if (log.isDebugEnabled()) {
+            log.debug("NotifyTriggers received on " + currentNode);
+            log.debug("NotifyTriggers: " + nTriggers);
+        }
+        if (null == nTriggers.getToNode() || null == currentNode || !nTriggers.getToNode().equals(currentNode)) {
+            return;
+        }
+        Map<PartitionEntry, Integer> current = (Map) partitionCache.get(CURRENT);
+        List<PartitionEntry> outdated = new ArrayList<>();
+        for (Entry<String, Set<String>> entry : nTriggers.getTriggers().entrySet()) {
+            for (String triggerId : entry.getValue()) {
+                PartitionEntry partitionEntry = new PartitionEntry(entry.getKey(), triggerId);
+                Integer partitionNode = current.get(partitionEntry);
+                if (nTriggers.getOperation().equals(Operation.REMOVE)
+                        ? partitionNode != null
+                        : !currentNode.equals(partitionNode)) {
+                    outdated.add(partitionEntry);
                 }
             }
         }
+        if (!outdated.isEmpty()) {
+            modifyPartition(outdated, current, nTriggers.getOperation());
+        }
+        if (triggerListener != null) {
+            triggerListener.onTriggersChange(nTriggers.getOperation(), nTriggers.getTriggers());
+        }
+    }
+
+    /*
+        Each node keeps the states of the triggers it holds on the current partition.
+     */
+    private void processTriggerStates(NotifyTriggerStates nStates) {
+        if (log.isDebugEnabled()) {
+            log.debug("NotifyTriggerStates received on " + currentNode);
+            log.debug("NotifyTriggerStates: " + nStates);
+        }
+        if (triggerListener == null || null == currentNode || currentNode.equals(nStates.getFromNode())) {
+            return;
+        }
+        Map<PartitionEntry, Integer> current = (Map) partitionCache.get(CURRENT);
+        if (current == null) {
+            return;
+        }
+        List<TriggerState> localStates = new ArrayList<>();
+        for (TriggerState state : nStates.getStates()) {
+            PartitionEntry entry = new PartitionEntry(state.getTenantId(), state.getTriggerId());
+            if (currentNode.equals(current.get(entry))) {
+                localStates.add(state);
+            }
+        }
+        if (!localStates.isEmpty()) {
+            triggerListener.onTriggerStates(localStates);
+        }
+    }
 
-        private void modifyPartition(PartitionEntry entry, Map<PartitionEntry, Integer> current, Operation operation) {
-            Map<PartitionEntry, Integer> newPartition= new HashMap<>(current);
+    /*
+        Definitions are invalidated on every node but the sender, which has already invalidated its own cache.
+     */
+    private void processDefinitionsInvalidation(NotifyDefinitionsInvalidation nInvalidation) {
+        if (log.isDebugEnabled()) {
+            log.debug("NotifyDefinitionsInvalidation received on " + currentNode);
+            log.debug("NotifyDefinitionsInvalidation: " + nInvalidation);
+        }
+        if (definitionsListener == null || null == currentNode
+                || currentNode.equals(nInvalidation.getFromNode())) {
+            return;
+        }
+        try {
+            definitionsListener.onDefinitionsInvalidation(nInvalidation.getKeys());
+        } catch (Exception e) {
+            msgLog.errorCannotProcessPartitionMessage(e.toString());
+        }
+    }
+
+    private void modifyPartition(PartitionEntry entry, Map<PartitionEntry, Integer> current, Operation operation) {
+        modifyPartition(Collections.singletonList(entry), current, operation);
+    }
+
+    private void modifyPartition(Collection<PartitionEntry> entries, Map<PartitionEntry, Integer> current,
+                                 Operation operation) {
+        Map<PartitionEntry, Integer> newPartition= new HashMap<>(current);
+        for (PartitionEntry entry : entries) {
             if (operation.equals(Operation.REMOVE)) {
                 newPartition.remove(entry);
             } else {
                 newPartition.put(entry, currentNode);
             }
-            partitionCache.startBatch();
-            partitionCache.put(PREVIOUS, current);
-            partitionCache.put(CURRENT, newPartition);
-            partitionCache.endBatch(true);
-            if (log.isDebugEnabled()) {
-                log.debug("modifyPartition()");
-                log.debug("Previous: " + current);
-                log.debug("Current: " + newPartition);
+        }
+        partitionCache.startBatch();
+        partitionCache.put(PREVIOUS, current);
+        partitionCache.put(CURRENT, newPartition);
+        partitionCache.endBatch(true);
+        if (log.isDebugEnabled()) {
+            log.debug("modifyPartition()");
+            log.debug("Previous: " + current);
+            log.debug("Current: " + newPartition);
+        }
+    }
+
+    private void processNotifyData(NotifyData newData) {
+        if (log.isDebugEnabled()) {
+            log.debug("NotifyData received on " + currentNode);
+            log.debug("NotifyData: " + newData);
+        }
+        /*
+            Finally invoke listener on non-sender nodes
+         */
+        if (dataListener != null && !currentNode.equals(newData.getFromNode())) {
+            if (newData.getData() != null) {
+                dataListener.onNewData(newData.getData());
+            } else if (newData.getEvent() != null) {
+                dataListener.onNewEvent(newData.getEvent());
+            } else if (newData.getDataCollection() != null) {
+                dataListener.onNewData(newData.getDataCollection());
+            } else if (newData.getEventCollection() != null) {
+                dataListener.onNewEvents(newData.getEventCollection());
             }
         }
+    }
 
+    @Listener
+    public class NewTriggerListener {
+        @CacheEntryCreated
+        public void onNewTrigger(CacheEntryCreatedEvent cacheEvent) {
+            if (cacheEvent.isPre()) {
+                if (log.isTraceEnabled()) {
+                    log.trace("Discarding pre onNewTrigger(@CacheEntryCreated) event");
+                }
+                return;
+            }
+            /*
+                When a trigger is added, updated or removed it should be notified on the PartitionManager.
+                PartitionManager adds an entry on "triggers" cache to fire an event that will place the trigger
+                on the partition and invoke PartitionTriggerListener previously registered to process the event.
+                States and definitions invalidations are broadcasted.
+             */
+            Object value = triggersCache.get(cacheEvent.getKey());
+            if (value instanceof NotifyTriggerStates) {
+                processTriggerStates((NotifyTriggerStates) value);
+            } else if (value instanceof NotifyDefinitionsInvalidation) {
+                processDefinitionsInvalidation((NotifyDefinitionsInvalidation) value);
+            } else if (value instanceof NotifyTriggers) {
+                processNotifyTriggers((NotifyTriggers) value);
+            } else if (value instanceof NotifyTrigger) {
+                processNotifyTrigger((NotifyTrigger) value);
+            }
+        }
     }
 
     @Listener
@@ -653,24 +1073,9 @@ public class PartitionManagerImpl implements PartitionManager {
                 PartitionManager adds an entry on "data" cache to fire an event that will propagate the
                 across the nodes invoking previously registered PartitionDataListener.
              */
-            NotifyData newData = (NotifyData)dataCache.get(cacheEvent.getKey());
-            if (log.isDebugEnabled()) {
-                log.debug("onNewData(@CacheEntryCreated) received.");
-                log.debug("NotifyData: " + newData);
-            }
-            /*
-                Finally invoke listener on non-sender nodes
-             */
-            if (dataListener != null && newData.getFromNode() != currentNode) {
-                if (newData.getData() != null) {
-                    dataListener.onNewData(newData.getData());
-                } else if (newData.getEvent() != null) {
-                    dataListener.onNewEvent(newData.getEvent());
-                } else if (newData.getDataCollection() != null) {
-                    dataListener.onNewData(newData.getDataCollection());
-                } else if (newData.getEventCollection() != null) {
-                    dataListener.onNewEvents(newData.getEventCollection());
-                }
+            Object value = dataCache.get(cacheEvent.getKey());
+            if (value instanceof NotifyData) {
+                processNotifyData((NotifyData) value);
             }
         }
     }
@@ -679,13 +1084,17 @@ public class PartitionManagerImpl implements PartitionManager {
      * Auxiliary class to store in the cache an operation for a Trigger.
      * Used internally in the context of the PartitionManager services.
      */
-    public static class NotifyTrigger implements Serializable {
+    public static class NotifyTrigger implements Externalizable {
         private Integer fromNode;
         private Integer toNode;
         private Operation operation;
         private String tenantId;
         private String triggerId;
 
+        public NotifyTrigger() {
+            // externalizable construction
+        }
+
         public NotifyTrigger(Integer fromNode, Integer toNode, Operation operation, String tenantId, String triggerId) {
             this.fromNode = fromNode;
             this.toNode = toNode;
@@ -734,6 +1143,32 @@ public class PartitionManagerImpl implements PartitionManager {
             this.triggerId = triggerId;
         }
 
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeByte(PartitionCodec.VERSION);
+            PartitionCodec.Writer writer = new PartitionCodec.Writer(out);
+            writer.writeNode(fromNode);
+            writer.writeNode(toNode);
+            writer.writeVarInt(operation == null ? 0 : operation.ordinal() + 1);
+            writer.writeString(tenantId);
+            writer.writeString(triggerId);
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            byte version = in.readByte();
+            if (version != PartitionCodec.VERSION) {
+                throw new IOException("Unsupported NotifyTrigger version [" + version + "]");
+            }
+            PartitionCodec.Reader reader = new PartitionCodec.Reader(in);
+            fromNode = reader.readNode();
+            toNode = reader.readNode();
+            int op = reader.readVarInt();
+            operation = op == 0 ? null : Operation.values()[op - 1];
+            tenantId = reader.readString();
+            triggerId = reader.readString();
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -771,17 +1206,266 @@ public class PartitionManagerImpl implements PartitionManager {
         }
     }
 
+    /**
+     * Auxiliary class to store in the cache an operation for a set of Triggers placed on the same node.
+     * Used internally in the context of the PartitionManager services.
+     */
+    public static class NotifyTriggers implements Externalizable {
+        private Integer fromNode;
+        private Integer toNode;
+        private Operation operation;
+        private Map<String, Set<String>> triggers;
+
+        public NotifyTriggers() {
+            // externalizable construction
+        }
+
+        public NotifyTriggers(Integer fromNode, Integer toNode, Operation operation,
+                              Map<String, Set<String>> triggers) {
+            this.fromNode = fromNode;
+            this.toNode = toNode;
+            this.operation = operation;
+            this.triggers = triggers;
+        }
+
+        public Integer getFromNode() {
+            return fromNode;
+        }
+
+        public void setFromNode(Integer fromNode) {
+            this.fromNode = fromNode;
+        }
+
+        public Integer getToNode() {
+            return toNode;
+        }
+
+        public void setToNode(Integer toNode) {
+            this.toNode = toNode;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        public void setOperation(Operation operation) {
+            this.operation = operation;
+        }
+
+        public Map<String, Set<String>> getTriggers() {
+            return triggers;
+        }
+
+        public void setTriggers(Map<String, Set<String>> triggers) {
+            this.triggers = triggers;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeByte(PartitionCodec.VERSION);
+            PartitionCodec.Writer writer = new PartitionCodec.Writer(out);
+            writer.writeNode(fromNode);
+            writer.writeNode(toNode);
+            writer.writeVarInt(operation == null ? 0 : operation.ordinal() + 1);
+            writer.writeVarInt(triggers.size());
+            for (Entry<String, Set<String>> entry : triggers.entrySet()) {
+                writer.writeString(entry.getKey());
+                writer.writeVarInt(entry.getValue().size());
+                for (String triggerId : entry.getValue()) {
+                    writer.writeString(triggerId);
+                }
+            }
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            byte version = in.readByte();
+            if (version != PartitionCodec.VERSION) {
+                throw new IOException("Unsupported NotifyTriggers version [" + version + "]");
+            }
+            PartitionCodec.Reader reader = new PartitionCodec.Reader(in);
+            fromNode = reader.readNode();
+            toNode = reader.readNode();
+            int op = reader.readVarInt();
+            operation = op == 0 ? null : Operation.values()[op - 1];
+            int numTenants = reader.readVarInt();
+            triggers = new LinkedHashMap<>();
+            for (int i = 0; i < numTenants; i++) {
+                String tenantId = reader.readString();
+                int numTriggers = reader.readVarInt();
+                Set<String> triggerIds = new LinkedHashSet<>();
+                for (int j = 0; j < numTriggers; j++) {
+                    triggerIds.add(reader.readString());
+                }
+                triggers.put(tenantId, triggerIds);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            NotifyTriggers that = (NotifyTriggers) o;
+
+            if (fromNode != null ? !fromNode.equals(that.fromNode) : that.fromNode != null) return false;
+            if (toNode != null ? !toNode.equals(that.toNode) : that.toNode != null) return false;
+            if (operation != that.operation) return false;
+            return !(triggers != null ? !triggers.equals(that.triggers) : that.triggers != null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = fromNode != null ? fromNode.hashCode() : 0;
+            result = 31 * result + (toNode != null ? toNode.hashCode() : 0);
+            result = 31 * result + (operation != null ? operation.hashCode() : 0);
+            result = 31 * result + (triggers != null ? triggers.hashCode() : 0);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "NotifyTriggers" + '[' +
+                    "fromNode=" + fromNode +
+                    ", toNode=" + toNode +
+                    ", operation=" + operation +
+                    ", triggers=" + triggers +
+                    ']';
+        }
+    }
+
+    /**
+     * Auxiliary class to store in the cache the evaluation state of the triggers released by a node.
+     * Used internally in the context of the PartitionManager services.
+     */
+    public static class NotifyTriggerStates implements Serializable {
+        private Integer fromNode;
+        private List<TriggerState> states;
+
+        public NotifyTriggerStates(Integer fromNode, Collection<TriggerState> states) {
+            this.fromNode = fromNode;
+            this.states = new ArrayList<>(states);
+        }
+
+        public Integer getFromNode() {
+            return fromNode;
+        }
+
+        public void setFromNode(Integer fromNode) {
+            this.fromNode = fromNode;
+        }
+
+        public List<TriggerState> getStates() {
+            return states;
+        }
+
+        public void setStates(List<TriggerState> states) {
+            this.states = states;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            NotifyTriggerStates that = (NotifyTriggerStates) o;
+
+            if (fromNode != null ? !fromNode.equals(that.fromNode) : that.fromNode != null) return false;
+            return !(states != null ? !states.equals(that.states) : that.states != null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = fromNode != null ? fromNode.hashCode() : 0;
+            result = 31 * result + (states != null ? states.hashCode() : 0);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "NotifyTriggerStates" + '[' +
+                    "fromNode=" + fromNode +
+                    ", states=" + states +
+                    ']';
+        }
+    }
+
+    /**
+     * Auxiliary class to store in the cache the keys of the definitions modified by a node.
+     * Used internally in the context of the PartitionManager services.
+     */
+    public static class NotifyDefinitionsInvalidation implements Serializable {
+        private Integer fromNode;
+        private List<String> keys;
+
+        public NotifyDefinitionsInvalidation(Integer fromNode, Collection<String> keys) {
+            this.fromNode = fromNode;
+            this.keys = new ArrayList<>(keys);
+        }
+
+        public Integer getFromNode() {
+            return fromNode;
+        }
+
+        public void setFromNode(Integer fromNode) {
+            this.fromNode = fromNode;
+        }
+
+        public List<String> getKeys() {
+            return keys;
+        }
+
+        public void setKeys(List<String> keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            NotifyDefinitionsInvalidation that = (NotifyDefinitionsInvalidation) o;
+
+            if (fromNode != null ? !fromNode.equals(that.fromNode) : that.fromNode != null) return false;
+            return !(keys != null ? !keys.equals(that.keys) : that.keys != null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = fromNode != null ? fromNode.hashCode() : 0;
+            result = 31 * result + (keys != null ? keys.hashCode() : 0);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "NotifyDefinitionsInvalidation" + '[' +
+                    "fromNode=" + fromNode +
+                    ", keys=" + keys +
+                    ']';
+        }
+    }
+
     /**
      * Auxiliary class to store in the cache an operation for a Data/Event
      * Used internally in the context of the PartitionManager services.
      */
-    public static class NotifyData implements Serializable {
+    public static class NotifyData implements Externalizable {
+        private static final byte DATA = 1;
+        private static final byte EVENT = 2;
+        private static final byte DATA_COLLECTION = 3;
+        private static final byte EVENT_COLLECTION = 4;
+
         private Integer fromNode = null;
         private Data data = null;
         private Event event = null;
         private Collection<Data> dataCollection = null;
         private Collection<Event> eventCollection = null;
 
+        public NotifyData() {
+            // externalizable construction
+        }
+
         public NotifyData(Integer fromNode, Data data) {
             this.fromNode = fromNode;
             this.data = data;
@@ -841,6 +1525,55 @@ public class PartitionManagerImpl implements PartitionManager {
             this.eventCollection = eventCollection;
         }
 
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeByte(PartitionCodec.VERSION);
+            PartitionCodec.Writer writer = new PartitionCodec.Writer(out);
+            writer.writeNode(fromNode);
+            if (data != null) {
+                out.writeByte(DATA);
+                writer.writeData(data);
+            } else if (event != null) {
+                out.writeByte(EVENT);
+                writer.writeEvent(event);
+            } else if (dataCollection != null) {
+                out.writeByte(DATA_COLLECTION);
+                writer.writeDataCollection(dataCollection);
+            } else if (eventCollection != null) {
+                out.writeByte(EVENT_COLLECTION);
+                writer.writeEventCollection(eventCollection);
+            } else {
+                out.writeByte(0);
+            }
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            byte version = in.readByte();
+            if (version != PartitionCodec.VERSION) {
+                throw new IOException("Unsupported NotifyData version [" + version + "]");
+            }
+            PartitionCodec.Reader reader = new PartitionCodec.Reader(in);
+            fromNode = reader.readNode();
+            byte kind = in.readByte();
+            switch (kind) {
+                case DATA:
+                    data = reader.readData();
+                    break;
+                case EVENT:
+                    event = reader.readEvent();
+                    break;
+                case DATA_COLLECTION:
+                    dataCollection = reader.readDataCollection();
+                    break;
+                case EVENT_COLLECTION:
+                    eventCollection = reader.readEventCollection();
+                    break;
+                default:
+                    break;
+            }
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
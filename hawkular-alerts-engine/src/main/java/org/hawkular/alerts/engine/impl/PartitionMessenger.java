@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.hawkular.alerts.engine.log.MsgLogger;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.remoting.transport.Transport;
+import org.infinispan.remoting.transport.jgroups.JGroupsTransport;
+import org.jboss.logging.Logger;
+import org.jgroups.Address;
+import org.jgroups.Channel;
+import org.jgroups.Message;
+import org.jgroups.View;
+import org.jgroups.blocks.MessageDispatcher;
+import org.jgroups.blocks.RequestHandler;
+import org.jgroups.blocks.RequestOptions;
+import org.jgroups.blocks.mux.MuxMessageDispatcher;
+import org.jgroups.blocks.mux.Muxer;
+
+/**
+ * Direct messaging between nodes for the {@link PartitionManagerImpl} notifications.
+ *
+ * Messages are sent on the JGroups channel of the cache container transport, multiplexed under its own scope, so
+ * a notification is a single asynchronous unicast or multicast instead of a replicated cache write plus a listener
+ * callback and an expiration per entry.
+ *
+ * Ordering per sender is given by the default (non OOB) JGroups delivery, messages are handed off to a single
+ * delivery thread so the processing on the receiver keeps the same order and the JGroups threads are not blocked
+ * by the partition listeners.
+ *
+ * Nodes are identified as in the rest of the PartitionManager, by the hashCode of the member Address.
+ */
+final class PartitionMessenger implements RequestHandler {
+
+    private final MsgLogger msgLog = MsgLogger.LOGGER;
+    private final Logger log = Logger.getLogger(PartitionMessenger.class);
+
+    private final Channel channel;
+    private final MessageDispatcher dispatcher;
+    private final Consumer<Object> receiver;
+    private final ExecutorService delivery;
+
+    PartitionMessenger(Channel channel, short scopeId, Consumer<Object> receiver) {
+        this.channel = channel;
+        this.receiver = receiver;
+        this.delivery = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "PartitionManager-Messages");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new MuxMessageDispatcher(scopeId, channel, null, null, this);
+    }
+
+    /**
+     * @param cacheManager the cache container used by the PartitionManager
+     * @param scopeId the scope of the partition messages on the multiplexed channel
+     * @param receiver the callback invoked with every received message
+     * @return a messenger on the transport channel, or null if the transport does not expose a multiplexed
+     *         JGroups channel
+     */
+    static PartitionMessenger create(EmbeddedCacheManager cacheManager, short scopeId, Consumer<Object> receiver) {
+        Transport transport = cacheManager.getTransport();
+        if (!(transport instanceof JGroupsTransport)) {
+            return null;
+        }
+        Channel channel = ((JGroupsTransport) transport).getChannel();
+        if (channel == null || !(channel.getUpHandler() instanceof Muxer)) {
+            return null;
+        }
+        return new PartitionMessenger(channel, scopeId, receiver);
+    }
+
+    public void stop() {
+        dispatcher.stop();
+        delivery.shutdown();
+    }
+
+    /**
+     * Send a message to a single node.
+     *
+     * @param toNode the code of the target node
+     * @param message the message to send
+     * @return false if the node is not a member of the current view
+     */
+    public boolean send(Integer toNode, Object message) throws Exception {
+        Address dest = findMember(toNode);
+        if (dest == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("Node " + toNode + " not found on current view, message discarded: " + message);
+            }
+            return false;
+        }
+        if (dest.equals(channel.getAddress())) {
+            deliver(message);
+            return true;
+        }
+        dispatcher.sendMessage(new Message(dest, null, marshall(message)), RequestOptions.ASYNC());
+        return true;
+    }
+
+    /**
+     * Send a message to all nodes of the cluster but the sender.
+     *
+     * @param message the message to send
+     */
+    public void multicast(Object message) throws Exception {
+        View view = channel.getView();
+        if (view == null || view.getMembers().size() < 2) {
+            return;
+        }
+        RequestOptions options = RequestOptions.ASYNC().setExclusionList(channel.getAddress());
+        dispatcher.castMessage(null, new Message(null, null, marshall(message)), options);
+    }
+
+    /**
+     * Process a message on this node, in order with the messages received from the cluster.
+     *
+     * @param message the message to process
+     */
+    public void deliver(Object message) {
+        delivery.execute(() -> {
+            try {
+                receiver.accept(message);
+            } catch (Exception e) {
+                msgLog.errorCannotProcessPartitionMessage(e.toString());
+            }
+        });
+    }
+
+    @Override
+    public Object handle(Message msg) throws Exception {
+        deliver(unmarshall(msg.getBuffer()));
+        return null;
+    }
+
+    private Address findMember(Integer node) {
+        View view = channel.getView();
+        if (view == null || node == null) {
+            return null;
+        }
+        for (Address member : view.getMembers()) {
+            if (node == member.hashCode()) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    static byte[] marshall(Object message) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(message);
+        }
+        return bos.toByteArray();
+    }
+
+    static Object unmarshall(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new DeploymentObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        }
+    }
+
+    /*
+        Messages are read on JGroups threads, classes are resolved against the deployment instead of the
+        JGroups module.
+     */
+    private static class DeploymentObjectInputStream extends ObjectInputStream {
+
+        DeploymentObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, PartitionMessenger.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
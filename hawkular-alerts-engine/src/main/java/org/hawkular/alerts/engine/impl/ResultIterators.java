@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+/**
+ * Iterators over the full result of a query, for the streaming of large results.
+ *
+ * The result is read as the iteration proceeds: the keys of the matches are read from a ctime index table, one
+ * driver result set per bucket paged by its fetch size, or taken from an already resolved list, and the payloads are
+ * read by chunks of {@link #CHUNK_SIZE} keys. Only one chunk of payloads is held at a time.
+ */
+final class ResultIterators {
+
+    static final int CHUNK_SIZE = 500;
+
+    /**
+     * Read of the payloads of a chunk of keys, keys whose payload is gone are skipped.
+     */
+    interface ChunkReader<K, T> {
+        List<T> read(List<K> keys) throws Exception;
+    }
+
+    private ResultIterators() {
+    }
+
+    /**
+     * Rows of a ctime index table, partitioned by (tenantId, bucket) and ordered by ctime, over all the buckets of the
+     * ctime range in the reading direction. The buckets are read one after the other with a single statement each.
+     *
+     * @param session the Cassandra session
+     * @param tenantId the tenant to read
+     * @param type the type of the buckets to read, one of the {@link TimeBuckets} types
+     * @param select the select of the ctime index table, restricted by tenantId and bucket
+     * @param clustering the clustering columns of the table, starting with ctime
+     * @param startTime the start of the ctime range, or null
+     * @param endTime the end of the ctime range, or null
+     * @param descending true to read the most recent rows first
+     * @return the rows, read as the iteration proceeds
+     */
+    static Iterator<Row> ctimeRows(Session session, String tenantId, String type, String select,
+            String[] clustering, Long startTime, Long endTime, boolean descending) {
+        StringBuilder restrictions = new StringBuilder();
+        List<Object> restrictionValues = new ArrayList<>(2);
+        if (null != startTime) {
+            restrictions.append("AND ctime >= ? ");
+            restrictionValues.add(startTime);
+        }
+        if (null != endTime) {
+            restrictions.append("AND ctime <= ? ");
+            restrictionValues.add(endTime);
+        }
+        PreparedStatement selectSlice = CassStatement.get(session, CassStatement.slice(select,
+                restrictions.toString(), clustering, false, descending));
+        List<Long> buckets = TimeBuckets.buckets(session, tenantId, type, startTime, endTime);
+        if (descending) {
+            Collections.reverse(buckets);
+        }
+        Iterator<Long> bucketsIterator = buckets.iterator();
+        return new Iterator<Row>() {
+            private Iterator<Row> rows = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!rows.hasNext() && bucketsIterator.hasNext()) {
+                    List<Object> values = new ArrayList<>(restrictionValues.size() + 3);
+                    values.add(tenantId);
+                    values.add(bucketsIterator.next());
+                    values.addAll(restrictionValues);
+                    values.add(Integer.MAX_VALUE);
+                    Statement bucketSlice = selectSlice.bind(values.toArray()).setFetchSize(CHUNK_SIZE);
+                    rows = session.execute(bucketSlice).iterator();
+                }
+                return rows.hasNext();
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return rows.next();
+            }
+        };
+    }
+
+    /**
+     * @param keys the keys of the result, in order
+     * @param reader the read of the payloads of a chunk of keys
+     * @return the payloads of the keys, in order, read by chunks as the iteration proceeds
+     */
+    static <K, T> Iterator<T> chunked(Iterator<K> keys, ChunkReader<K, T> reader) {
+        return new Iterator<T>() {
+            private Iterator<T> chunk = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!chunk.hasNext() && keys.hasNext()) {
+                    List<K> chunkKeys = new ArrayList<>(CHUNK_SIZE);
+                    while (chunkKeys.size() < CHUNK_SIZE && keys.hasNext()) {
+                        chunkKeys.add(keys.next());
+                    }
+                    try {
+                        chunk = reader.read(chunkKeys).iterator();
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return chunk.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return chunk.next();
+            }
+        };
+    }
+}
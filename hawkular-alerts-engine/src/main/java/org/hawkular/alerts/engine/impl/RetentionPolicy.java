@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hawkular.alerts.api.model.event.Alert;
+
+/**
+ * Time to live, in seconds, of the alerts, events and actions history rows.
+ *
+ * The ttl is resolved from the most specific property defined:
+ * <ul>
+ *     <li>hawkular-alerts.cassandra-ttl.tenant.&lt;tenantId&gt;.&lt;status&gt;</li>
+ *     <li>hawkular-alerts.cassandra-ttl.tenant.&lt;tenantId&gt;</li>
+ *     <li>hawkular-alerts.cassandra-ttl.&lt;status&gt;</li>
+ *     <li>hawkular-alerts.cassandra-ttl</li>
+ * </ul>
+ * where the status properties only apply to alerts. A ttl of 0 keeps the rows until they are deleted.
+ *
+ * The ttl counts from the last write of a row, an alert is rewritten with the ttl of its new status when the status
+ * changes.
+ */
+final class RetentionPolicy {
+
+    static final String TTL = "hawkular-alerts.cassandra-ttl";
+    static final String DEFAULT_TTL = "0";
+
+    private static final Map<String, Integer> ttls = new ConcurrentHashMap<>();
+
+    private RetentionPolicy() {
+    }
+
+    /**
+     * @param tenantId the tenant of the alert
+     * @param status the status of the alert
+     * @return the ttl of the alert rows, in seconds
+     */
+    static int ttl(String tenantId, Alert.Status status) {
+        return ttls.computeIfAbsent(tenantId + '|' + status, k -> resolve(tenantId, status));
+    }
+
+    /**
+     * @param tenantId the tenant of the event or action
+     * @return the ttl of the events and actions history rows, in seconds
+     */
+    static int ttl(String tenantId) {
+        return ttls.computeIfAbsent(tenantId + '|', k -> resolve(tenantId, null));
+    }
+
+    /**
+     * Forget the resolved ttls, so changes of the system properties are applied.
+     */
+    static void reset() {
+        ttls.clear();
+    }
+
+    private static int resolve(String tenantId, Alert.Status status) {
+        String tenantKey = TTL + ".tenant." + tenantId;
+        String value = null;
+        if (null != status) {
+            value = AlertProperties.getProperty(tenantKey + "." + status.name(), null);
+        }
+        if (null == value) {
+            value = AlertProperties.getProperty(tenantKey, null);
+        }
+        if (null == value && null != status) {
+            value = AlertProperties.getProperty(TTL + "." + status.name(), null);
+        }
+        if (null == value) {
+            value = AlertProperties.getProperty(TTL, DEFAULT_TTL);
+        }
+        int ttl;
+        try {
+            ttl = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Invalid ttl [" + value + "] for tenant [" + tenantId + "]", e);
+        }
+        if (ttl < 0) {
+            throw new IllegalStateException("Invalid ttl [" + value + "] for tenant [" + tenantId + "]");
+        }
+        return ttl;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+/**
+ * Time buckets of the alerts, events and actions history tables.
+ *
+ * Rows of these tables are partitioned by (tenantId, bucket), the bucket being the start of the time window of fixed
+ * size that contains the ctime of the row. The buckets used by a tenant are recorded in the buckets table, so range
+ * scans only visit the partitions that hold data.
+ *
+ * The bucket size is part of the schema: it is recorded in the schema_info table when the tables are created and
+ * must not change afterwards.
+ */
+final class TimeBuckets {
+
+    static final String ALERTS = "alerts";
+    static final String EVENTS = "events";
+    static final String ACTIONS = "actions";
+
+    static final String BUCKET_SIZE = "hawkular-alerts.cassandra-bucket-size";
+    static final String DEFAULT_BUCKET_SIZE = "86400000";
+
+    private static volatile long size = Long.parseLong(AlertProperties.getProperty(BUCKET_SIZE,
+            DEFAULT_BUCKET_SIZE));
+
+    /*
+        Max number of buckets remembered as recorded
+     */
+    private static final int MAX_REGISTERED = 10000;
+
+    /*
+        Buckets already recorded in the buckets table, to avoid writing the same row on every insert.
+        Inserts go to the recent buckets, the least recently used ones are evicted and just written again if needed.
+     */
+    private static final Map<String, Boolean> registered = Collections.synchronizedMap(
+            new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_REGISTERED;
+                }
+            });
+
+    private TimeBuckets() {
+    }
+
+    /**
+     * @return the size of the buckets in milliseconds
+     */
+    static long getSize() {
+        return size;
+    }
+
+    /**
+     * @param bucketSize the size of the buckets in milliseconds, as recorded in the schema
+     */
+    static void setSize(long bucketSize) {
+        if (bucketSize <= 0) {
+            throw new IllegalArgumentException("Bucket size must be positive: " + bucketSize);
+        }
+        size = bucketSize;
+        registered.clear();
+    }
+
+    /**
+     * @param ctime a creation time in milliseconds
+     * @return the bucket that contains the ctime
+     */
+    static long bucket(long ctime) {
+        return ctime - Math.floorMod(ctime, size);
+    }
+
+    /**
+     * Record a bucket of a tenant in the buckets table, if not done yet by this node.
+     *
+     * @param batch the batch where the insert, if any, is added
+     * @param tenantId the tenant
+     * @param type the type of the bucketed data, {@link #ALERTS}, {@link #EVENTS} or {@link #ACTIONS}
+     * @param bucket the bucket to record
+     */
+    static void register(CassWriteBatch batch, String tenantId, String type, long bucket) {
+        String key = tenantId + '|' + type + '|' + bucket;
+        if (null != registered.get(key)) {
+            return;
+        }
+        PreparedStatement insertBucket = CassStatement.get(batch.getSession(), CassStatement.INSERT_BUCKET);
+        batch.add("buckets|" + tenantId + '|' + type, insertBucket.bind(tenantId, type, bucket));
+        batch.onSuccess(() -> registered.put(key, Boolean.TRUE));
+    }
+
+    /**
+     * @param session the Cassandra session
+     * @param tenantId the tenant
+     * @param type the type of the bucketed data
+     * @param startTime the start of the ctime range, or null
+     * @param endTime the end of the ctime range, or null
+     * @return the recorded buckets that overlap the ctime range, in ascending order
+     */
+    static List<Long> buckets(Session session, String tenantId, String type, Long startTime, Long endTime) {
+        if (null != startTime && null != endTime && startTime > endTime) {
+            return Collections.emptyList();
+        }
+        return buckets(session.execute(selectBuckets(session, tenantId, type, startTime, endTime)));
+    }
+
+    /**
+     * Same as {@link #buckets(Session, String, String, Long, Long)} without blocking.
+     *
+     * @return a future completed with the recorded buckets that overlap the ctime range, in ascending order
+     */
+    static CompletableFuture<List<Long>> bucketsAsync(Session session, String tenantId, String type, Long startTime,
+            Long endTime) {
+        if (null != startTime && null != endTime && startTime > endTime) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        return AsyncQueries.one(session.executeAsync(selectBuckets(session, tenantId, type, startTime, endTime)))
+                .thenApply(TimeBuckets::buckets);
+    }
+
+    private static Statement selectBuckets(Session session, String tenantId, String type, Long startTime,
+            Long endTime) {
+        PreparedStatement selectBuckets = CassStatement.get(session, CassStatement.SELECT_BUCKETS);
+        long start = null == startTime ? Long.MIN_VALUE : bucket(startTime);
+        long end = null == endTime ? Long.MAX_VALUE : bucket(endTime);
+        return selectBuckets.bind(tenantId, type, start, end);
+    }
+
+    private static List<Long> buckets(ResultSet rs) {
+        List<Long> buckets = new ArrayList<>();
+        for (Row row : rs) {
+            buckets.add(row.getLong("bucket"));
+        }
+        return buckets;
+    }
+
+    /**
+     * Execute a bucketed select on each of the given buckets. The statement binds the tenant, the bucket and the
+     * given values, in that order.
+     *
+     * @param session the Cassandra session
+     * @param statement a select restricted by tenantId and bucket
+     * @param buckets the buckets to read
+     * @param tenantId the tenant
+     * @param values the values of the rest of the restrictions
+     * @return the futures of the selects, one per bucket
+     */
+    static List<ResultSetFuture> selectAsync(Session session, String statement, List<Long> buckets,
+            String tenantId, Object... values) {
+        PreparedStatement select = CassStatement.get(session, statement);
+        List<ResultSetFuture> futures = new ArrayList<>(buckets.size());
+        for (Long bucket : buckets) {
+            Object[] bound = new Object[values.length + 2];
+            bound[0] = tenantId;
+            bound[1] = bucket;
+            System.arraycopy(values, 0, bound, 2, values.length);
+            futures.add(session.executeAsync(select.bind(bound)));
+        }
+        return futures;
+    }
+}
@@ -96,4 +96,40 @@ public interface MsgLogger extends BasicLogger {
     @LogMessage(level = Logger.Level.ERROR)
     @Message(id = 220016, value = "PartitionManager cannot be initialized. Msg: [%s]")
     void errorCannotInitializePartitionManager(String msg);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 220017, value = "Trigger migration started. [%s] triggers to load on this node")
+    void infoMigrationStarted(int total);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 220018, value = "Trigger migration finished. [%s] triggers loaded, [%s] failed in [%s] ms")
+    void infoMigrationFinished(int loaded, int failed, long time);
+
+    @LogMessage(level = Logger.Level.ERROR)
+    @Message(id = 220019, value = "Cannot send data/events batch to the partition. Msg: [%s]")
+    void errorCannotSendPartitionBatch(String msg);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 220020, value = "PartitionManager messages sent through [%s]")
+    void infoPartitionMessaging(String messaging);
+
+    @LogMessage(level = Logger.Level.ERROR)
+    @Message(id = 220021, value = "Cannot send/process a partition message. Msg: [%s]")
+    void errorCannotProcessPartitionMessage(String msg);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 220022, value = "Slow Cassandra statement [%s] took [%s] ms on host [%s]")
+    void warnSlowStatement(String statement, long time, String host);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 220023, value = "Embedded store [%s] opened, [%s] records replayed in [%s] ms")
+    void infoEmbeddedStoreOpened(String file, int records, long time);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 220024, value = "Embedded store [%s] truncated at offset [%s], the last record was not complete")
+    void warnEmbeddedStoreTruncated(String file, int offset);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 220025, value = "Events listener [%s] failed on a notification. Msg: [%s]")
+    void warnEventsListenerFailed(String listener, String msg);
 }
@@ -57,6 +57,24 @@ public interface AlertsEngine {
      */
     void sendData(Collection<Data> data) throws Exception;
 
+    /**
+     * Send data into the alerting system for evaluation on this node only, the data is not propagated to the rest
+     * of the nodes in a distributed scenario.
+     *
+     * @param data Not Null.  The data to be evaluated by the alerting engine.
+     * @throws Exception any problem.
+     */
+    void sendLocalData(Collection<Data> data) throws Exception;
+
+    /**
+     * Check if data with a given dataId would be evaluated, data with an inactive dataId is discarded on
+     * {@link #sendData(Collection)}. A data source can use it to drop that data before it is built.
+     *
+     * @param dataId the dataId of the data
+     * @return true if the data can be evaluated by some trigger, false if it would be discarded
+     */
+    boolean isDataIdActive(String dataId);
+
     /**
      * Send event into the alerting system for evaluation.
      * Events are persisted after inference.
@@ -99,10 +117,25 @@ public interface AlertsEngine {
      */
     void reloadTrigger(String tenantId, String triggerId);
 
+    /**
+     * Reload the specified Triggers in bulk, i.e. after an import.  Definitions are fetched per batch of triggers
+     * instead of once per trigger and triggers are loaded in the background, on the nodes they belong to in
+     * distributed scenarios.  The progress is returned by {@link #getMigrationStatus()}.
+     * @param tenantId Tenant where Triggers are stored
+     * @param triggerIds Trigger ids to be reloaded
+     */
+    void reloadTriggers(String tenantId, Collection<String> triggerIds);
+
     /**
      * Remove the specified Trigger from the engine.
      * @param tenantId Tenant where Trigger is stored
      * @param triggerId Trigger id to be removed
      */
     void removeTrigger(String tenantId, String triggerId);
+
+    /**
+     * @return the status of the last trigger migration executed on this node, or null if there has not been any
+     *         topology change nor bulk reload
+     */
+    MigrationStatus getMigrationStatus();
 }
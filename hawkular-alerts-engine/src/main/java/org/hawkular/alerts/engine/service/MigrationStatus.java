@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.service;
+
+/**
+ * Progress of the background load of triggers on a node, after a topology change or a bulk reload.
+ */
+public class MigrationStatus {
+    private final int total;
+    private final int loaded;
+    private final int failed;
+    private final long startTime;
+    private final long endTime;
+
+    public MigrationStatus(int total, int loaded, int failed, long startTime, long endTime) {
+        this.total = total;
+        this.loaded = loaded;
+        this.failed = failed;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getLoaded() {
+        return loaded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public int getPending() {
+        return total - loaded - failed;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return the time when the migration finished, 0 if it is still in progress
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public boolean isFinished() {
+        return endTime > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "MigrationStatus" + '[' +
+                "total=" + total +
+                ", loaded=" + loaded +
+                ", failed=" + failed +
+                ", startTime=" + startTime +
+                ", endTime=" + endTime +
+                ']';
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.service;
+
+import java.util.Collection;
+
+/**
+ * A listener for reacting to definitions changed on other nodes of the partition.
+ *
+ * Each node caches the definitions it reads most, a change performed on a node is notified to the rest of nodes so
+ * they drop their cached copies of the modified definitions.
+ */
+public interface PartitionDefinitionsListener {
+
+    /**
+     * Invoked on the non-sender nodes when definitions have been added, modified or removed on another node.
+     *
+     * @param keys the cache keys of the definitions modified
+     */
+    void onDefinitionsInvalidation(Collection<String> keys);
+}
@@ -17,9 +17,12 @@
 package org.hawkular.alerts.engine.service;
 
 import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.engine.util.TriggerState;
 
 /**
  * Interface that defines an abstract API with the clustering services used by the engine.
@@ -81,6 +84,16 @@ public interface PartitionManager {
      */
     void notifyTrigger(Operation operation, String tenantId, String triggerId);
 
+    /**
+     * Notify partition manager when a set of triggers has been added, updated or removed at once, i.e. on a full
+     * reload. PartitionManager will assign each trigger to a node and will send a single notification to each node
+     * with the triggers it holds.
+     *
+     * @param operation type of operation performed on the triggers
+     * @param triggers a Map of tenantId to the triggerIds affected
+     */
+    void notifyTriggers(Operation operation, Map<String, Set<String>> triggers);
+
     /**
      * Register a listener to process partition events linked with triggers.
      *
@@ -88,6 +101,22 @@ public interface PartitionManager {
      */
     void registerTriggerListener(PartitionTriggerListener triggerListener);
 
+    /**
+     * Notify partition manager with the live evaluation state of triggers released by this node on a partition
+     * change. PartitionManager will deliver each state to the node that holds the trigger in the new partition.
+     *
+     * @param states the states of the triggers moved out of this node
+     */
+    void notifyTriggerStates(Collection<TriggerState> states);
+
+    /**
+     * Notify partition manager when definitions cached by the nodes have been added, modified or removed.
+     * PartitionManager will notify the rest of nodes to drop their cached copies.
+     *
+     * @param keys the cache keys of the definitions modified
+     */
+    void notifyDefinitionsInvalidation(Collection<String> keys);
+
     /**
      * Notify partition manager when a new data has been received.
      *
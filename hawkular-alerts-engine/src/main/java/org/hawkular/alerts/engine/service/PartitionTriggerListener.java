@@ -16,10 +16,13 @@
  */
 package org.hawkular.alerts.engine.service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.hawkular.alerts.engine.service.PartitionManager.Operation;
+import org.hawkular.alerts.engine.util.TriggerState;
 
 /**
  * A listener for reacting to partition events related to triggers.
@@ -47,6 +50,15 @@ public interface PartitionTriggerListener {
      */
     void onTriggerChange(Operation operation, String tenantId, String triggerId);
 
+    /**
+     * Invoked on the node that holds the triggers when a set of triggers has been added, modified or removed at
+     * once. The triggers are placed on this node.
+     *
+     * @param operation the operation performed on the Triggers
+     * @param triggers a Map of tenantId to the triggerIds affected
+     */
+    void onTriggersChange(Operation operation, Map<String, Set<String>> triggers);
+
     /**
      * Invoked when the topology has changed in the partition.
      * It updates the local partition after re-calculate triggers distribution across the partition.
@@ -65,4 +77,12 @@ public interface PartitionTriggerListener {
      */
     void onPartitionChange(Map<String, List<String>> partition, Map<String, List<String>> removed,
                            Map<String, List<String>> added);
+
+    /**
+     * Invoked on the node that holds the triggers after a partition change, with the evaluation state captured by
+     * the node that held them before.
+     *
+     * @param states the states of the triggers moved into this node
+     */
+    void onTriggerStates(Collection<TriggerState> states);
 }
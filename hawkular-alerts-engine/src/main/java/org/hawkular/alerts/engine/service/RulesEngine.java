@@ -50,6 +50,12 @@ public interface RulesEngine {
      */
     Object getFact(Object fact);
 
+    /**
+     * @param factFilter the factFilter
+     * @return The Fact Objects matching the <code>factFilter</code>, an empty collection if there is no one.
+     */
+    Collection<Object> getFacts(Predicate<Object> factFilter);
+
     /**
      * Retrieves the FactHandle for <code>fact</code> and then deletes the fact from the rules engine.
      * @param fact the fact
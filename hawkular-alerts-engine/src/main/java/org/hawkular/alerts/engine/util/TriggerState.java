@@ -0,0 +1,221 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.trigger.Mode;
+
+/**
+ * Live evaluation state of a trigger in the rules engine.
+ *
+ * The trigger mode and the dampening evaluation fields are not part of the definition stored in the backend, and
+ * RateData facts only exist in the working memory of the node that holds the trigger. When a trigger moves to a
+ * different node on a topology change this state is captured on the releasing node and installed on the new owner,
+ * so multi-sample dampenings and rate conditions don't start over.
+ */
+public class TriggerState implements Serializable {
+
+    private String tenantId;
+
+    private String triggerId;
+
+    private long captureTime;
+
+    /** Mode of the trigger, AUTORESOLVE after firing if the trigger has autoResolve enabled */
+    private Mode mode;
+
+    private List<DampeningState> dampenings = new ArrayList<>();
+
+    /** Previous datum of each dataId used by a RateCondition of the trigger */
+    private List<Data> rateData = new ArrayList<>();
+
+    public TriggerState(String tenantId, String triggerId) {
+        this.tenantId = tenantId;
+        this.triggerId = triggerId;
+        this.captureTime = System.currentTimeMillis();
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getTriggerId() {
+        return triggerId;
+    }
+
+    public long getCaptureTime() {
+        return captureTime;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public List<DampeningState> getDampenings() {
+        return dampenings;
+    }
+
+    public void addDampening(Dampening dampening) {
+        dampenings.add(new DampeningState(dampening));
+    }
+
+    public List<Data> getRateData() {
+        return rateData;
+    }
+
+    public void addRateData(Data data) {
+        rateData.add(data);
+    }
+
+    /**
+     * @return true if there is not state worth to be transferred
+     */
+    public boolean isEmpty() {
+        return mode != Mode.AUTORESOLVE && rateData.isEmpty()
+                && dampenings.stream().noneMatch(DampeningState::isActive);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        TriggerState that = (TriggerState) o;
+
+        if (tenantId != null ? !tenantId.equals(that.tenantId) : that.tenantId != null) return false;
+        return !(triggerId != null ? !triggerId.equals(that.triggerId) : that.triggerId != null);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = tenantId != null ? tenantId.hashCode() : 0;
+        result = 31 * result + (triggerId != null ? triggerId.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "TriggerState" + '[' +
+                "tenantId='" + tenantId + '\'' +
+                ", triggerId='" + triggerId + '\'' +
+                ", captureTime=" + captureTime +
+                ", mode=" + mode +
+                ", dampenings=" + dampenings +
+                ", rateData=" + rateData +
+                ']';
+    }
+
+    /**
+     * Dampening definition plus the evaluation fields that are transient in {@link Dampening}.
+     */
+    public static class DampeningState implements Serializable {
+        private Dampening dampening;
+        private int numTrueEvals;
+        private int numEvals;
+        private long trueEvalsStartTime;
+        private boolean satisfied;
+        private HashMap<Integer, ConditionEval> currentEvals;
+        private ArrayList<Set<ConditionEval>> satisfyingEvals;
+
+        public DampeningState(Dampening dampening) {
+            this.dampening = dampening;
+            this.numTrueEvals = dampening.getNumTrueEvals();
+            this.numEvals = dampening.getNumEvals();
+            this.trueEvalsStartTime = dampening.getTrueEvalsStartTime();
+            this.satisfied = dampening.isSatisfied();
+            this.currentEvals = new HashMap<>(dampening.getCurrentEvals());
+            this.satisfyingEvals = new ArrayList<>();
+            for (Set<ConditionEval> evalSet : dampening.getSatisfyingEvals()) {
+                this.satisfyingEvals.add(new HashSet<>(evalSet));
+            }
+        }
+
+        /**
+         * @return the dampening definition, evaluation fields are not restored on it
+         */
+        public Dampening getDampening() {
+            return dampening;
+        }
+
+        public int getNumEvals() {
+            return numEvals;
+        }
+
+        public int getNumTrueEvals() {
+            return numTrueEvals;
+        }
+
+        /**
+         * @return true if the dampening has started to track evaluations
+         */
+        public boolean isActive() {
+            return numEvals > 0 || numTrueEvals > 0 || satisfied;
+        }
+
+        /**
+         * @param target a dampening loaded on the new owner
+         * @return true if the target has the same definition than the captured dampening
+         */
+        public boolean isCompatible(Dampening target) {
+            return target != null
+                    && dampening.getDampeningId().equals(target.getDampeningId())
+                    && dampening.getType() == target.getType()
+                    && dampening.getEvalTrueSetting() == target.getEvalTrueSetting()
+                    && dampening.getEvalTotalSetting() == target.getEvalTotalSetting()
+                    && dampening.getEvalTimeSetting() == target.getEvalTimeSetting();
+        }
+
+        /**
+         * Copy the evaluation fields into a dampening loaded on the new owner.
+         *
+         * @param target the dampening to update
+         */
+        public void applyTo(Dampening target) {
+            target.setNumTrueEvals(numTrueEvals);
+            target.setNumEvals(numEvals);
+            target.setTrueEvalsStartTime(trueEvalsStartTime);
+            target.setSatisfied(satisfied);
+            target.getCurrentEvals().clear();
+            target.getCurrentEvals().putAll(currentEvals);
+            target.setSatisfyingEvals(new ArrayList<>(satisfyingEvals));
+        }
+
+        @Override
+        public String toString() {
+            return "DampeningState" + '[' +
+                    "dampeningId='" + dampening.getDampeningId() + '\'' +
+                    ", numTrueEvals=" + numTrueEvals +
+                    ", numEvals=" + numEvals +
+                    ", trueEvalsStartTime=" + trueEvalsStartTime +
+                    ", satisfied=" + satisfied +
+                    ']';
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.hawkular.alerts.api.services.ActionsCriteria;
+import org.hawkular.alerts.api.services.AlertsCriteria;
+import org.hawkular.alerts.api.services.EventsCriteria;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+/**
+ * The persistence tests against the embedded backend, in a temporary store.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class EmbeddedPersistenceTest extends PersistenceTest {
+
+    private static final String JBOSS_DATA_DIR = "jboss.server.data.dir";
+
+    static File storeDir;
+
+    @BeforeClass
+    public static void initStore() throws Exception {
+        String testFolder = EmbeddedPersistenceTest.class.getResource("/").getPath();
+        System.setProperty(JBOSS_DATA_DIR, testFolder);
+
+        storeDir = Files.createTempDirectory("hawkular-alerts-store").toFile();
+        System.setProperty("hawkular-alerts.embedded-dir", storeDir.getAbsolutePath());
+        System.setProperty(StandaloneAlerts.BACKEND, StandaloneAlerts.EMBEDDED_BACKEND);
+
+        definitionsService = StandaloneAlerts.getDefinitionsService();
+        alertsService = StandaloneAlerts.getAlertsService();
+        actionsService = StandaloneAlerts.getActionsService();
+    }
+
+    @AfterClass
+    public static void cleanStore() throws Exception {
+        StandaloneAlerts.shutdown();
+        System.clearProperty(StandaloneAlerts.BACKEND);
+        System.clearProperty("hawkular-alerts.embedded-dir");
+        File[] files = storeDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        storeDir.delete();
+    }
+
+    @Before
+    public void cleanAlerts() throws Exception {
+        AlertsCriteria criteria = new AlertsCriteria();
+        System.out.printf("Deleted [%s] Alerts before test.\n", alertsService.deleteAlerts(TEST_TENANT, criteria));
+    }
+
+    @Before
+    public void cleanEvents() throws Exception {
+        EventsCriteria criteria = new EventsCriteria();
+        System.out.printf("Deleted [%s] Events before test.\n", alertsService.deleteEvents(TEST_TENANT, criteria));
+    }
+
+    @Before
+    public void cleanActions() throws Exception {
+        ActionsCriteria criteria = new ActionsCriteria();
+        System.out.printf("Deleted [%s] Actions before test.\n", actionsService.deleteActions(TEST_TENANT, criteria));
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hawkular.alerts.api.model.Severity;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.paging.Page;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.services.AlertsCriteria;
+import org.hawkular.alerts.api.services.AlertsService;
+import org.hawkular.alerts.api.services.DefinitionsService;
+import org.jboss.logging.Logger;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Throughput of the definitions and alerts services of a backend, the embedded one unless hawkular-alerts.backend is
+ * set. Run it with -Dhawkular-alerts.backend=cassandra against a running Cassandra to compare both.
+ */
+public class PerfBackendTest {
+    private static final Logger log = Logger.getLogger(PerfBackendTest.class);
+
+    private static final String TENANT = "perf-backend-tenant";
+    private static final int TRIGGERS = 1000;
+    private static final int READS = 20000;
+    private static final int ALERTS = 20000;
+    private static final int BATCH = 100;
+    private static final int QUERIES = 200;
+
+    static String backend;
+    static File storeDir;
+    static DefinitionsService definitionsService;
+    static AlertsService alertsService;
+
+    @BeforeClass
+    public static void initServices() throws Exception {
+        System.setProperty("hawkular-alerts.skip-init-data", "true");
+        backend = System.getProperty(StandaloneAlerts.BACKEND, StandaloneAlerts.EMBEDDED_BACKEND);
+        if (StandaloneAlerts.EMBEDDED_BACKEND.equals(backend)) {
+            storeDir = Files.createTempDirectory("hawkular-alerts-perf").toFile();
+            System.setProperty("hawkular-alerts.embedded-dir", storeDir.getAbsolutePath());
+        }
+        System.setProperty(StandaloneAlerts.BACKEND, backend);
+        definitionsService = StandaloneAlerts.getDefinitionsService();
+        alertsService = StandaloneAlerts.getAlertsService();
+    }
+
+    @AfterClass
+    public static void closeServices() throws Exception {
+        for (int i = 0; i < TRIGGERS; i++) {
+            definitionsService.removeTrigger(TENANT, "perf-trigger-" + i);
+        }
+        alertsService.deleteAlerts(TENANT, new AlertsCriteria());
+        StandaloneAlerts.shutdown();
+        System.clearProperty(StandaloneAlerts.BACKEND);
+        System.clearProperty("hawkular-alerts.skip-init-data");
+        if (storeDir != null) {
+            System.clearProperty("hawkular-alerts.embedded-dir");
+            File[] files = storeDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            storeDir.delete();
+        }
+    }
+
+    private static double perSecond(int operations, long start) {
+        return operations * 1e9 / (System.nanoTime() - start);
+    }
+
+    @Test
+    public void backendThroughput() throws Exception {
+        long start = System.nanoTime();
+        List<Trigger> triggers = new ArrayList<>(TRIGGERS);
+        for (int i = 0; i < TRIGGERS; i++) {
+            Trigger trigger = new Trigger(TENANT, "perf-trigger-" + i, "Perf Trigger " + i);
+            trigger.addTag("perf-tag", String.valueOf(i % 10));
+            definitionsService.addTrigger(TENANT, trigger);
+            definitionsService.addDampening(TENANT, Dampening.forStrict(trigger.getId(), Mode.FIRING, 3));
+            triggers.add(trigger);
+        }
+        log.info(String.format("[%s] addTrigger: %.0f triggers/s", backend, perSecond(TRIGGERS, start)));
+
+        start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            assertNotNull(definitionsService.getTrigger(TENANT, "perf-trigger-" + (i % TRIGGERS)));
+        }
+        log.info(String.format("[%s] getTrigger: %.0f reads/s", backend, perSecond(READS, start)));
+
+        start = System.nanoTime();
+        List<Alert> batch = new ArrayList<>(BATCH);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < ALERTS; i++) {
+            Alert alert = new Alert(TENANT, triggers.get(i % TRIGGERS), null);
+            alert.setCtime(now - i);
+            alert.setSeverity(Severity.values()[i % Severity.values().length]);
+            batch.add(alert);
+            if (batch.size() == BATCH) {
+                alertsService.addAlerts(batch);
+                batch = new ArrayList<>(BATCH);
+            }
+        }
+        log.info(String.format("[%s] addAlerts: %.0f alerts/s", backend, perSecond(ALERTS, start)));
+
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            AlertsCriteria criteria = new AlertsCriteria();
+            criteria.setTriggerId("perf-trigger-" + (i % TRIGGERS));
+            criteria.setThin(true);
+            Page<Alert> alerts = alertsService.getAlerts(TENANT, criteria, null);
+            assertEquals(ALERTS / TRIGGERS, alerts.size());
+        }
+        log.info(String.format("[%s] getAlerts by trigger: %.0f queries/s", backend, perSecond(QUERIES, start)));
+    }
+}
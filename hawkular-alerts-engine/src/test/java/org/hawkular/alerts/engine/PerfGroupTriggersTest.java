@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.condition.ThresholdCondition;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.services.DefinitionsService;
+import org.jboss.logging.Logger;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Timings of the operations on a group trigger with many members, the embedded backend unless hawkular-alerts.backend
+ * is set. Run it with -Dhawkular-alerts.backend=cassandra against a running Cassandra to time the member lookups and
+ * the batched member writes, -Dperf.group.members sets the number of members.
+ *
+ * The test uses the definitions service only, so the same class run on a tree without the member_triggers lookup
+ * times the previous full scans of the tenant triggers. Use a new keyspace for each run, an existing one is upgraded
+ * on start and its member_triggers filled from the stored triggers.
+ */
+public class PerfGroupTriggersTest {
+    private static final Logger log = Logger.getLogger(PerfGroupTriggersTest.class);
+
+    private static final String TENANT = "perf-group-tenant";
+    private static final String GROUP = "perf-group-trigger";
+    private static final int MEMBERS = Integer.getInteger("perf.group.members", 10000);
+
+    static String backend;
+    static File storeDir;
+    static DefinitionsService definitionsService;
+
+    @BeforeClass
+    public static void initServices() throws Exception {
+        System.setProperty("hawkular-alerts.skip-init-data", "true");
+        backend = System.getProperty(StandaloneAlerts.BACKEND, StandaloneAlerts.EMBEDDED_BACKEND);
+        if (StandaloneAlerts.EMBEDDED_BACKEND.equals(backend)) {
+            storeDir = Files.createTempDirectory("hawkular-alerts-perf").toFile();
+            System.setProperty("hawkular-alerts.embedded-dir", storeDir.getAbsolutePath());
+        }
+        System.setProperty(StandaloneAlerts.BACKEND, backend);
+        definitionsService = StandaloneAlerts.getDefinitionsService();
+    }
+
+    @AfterClass
+    public static void closeServices() throws Exception {
+        if (definitionsService.getTrigger(TENANT, GROUP) != null) {
+            definitionsService.removeGroupTrigger(TENANT, GROUP, false, false);
+        }
+        StandaloneAlerts.shutdown();
+        System.clearProperty(StandaloneAlerts.BACKEND);
+        System.clearProperty("hawkular-alerts.skip-init-data");
+        if (storeDir != null) {
+            System.clearProperty("hawkular-alerts.embedded-dir");
+            File[] files = storeDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            storeDir.delete();
+        }
+    }
+
+    private static long millis(long start) {
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    private static Collection<Condition> conditions(ThresholdCondition.Operator operator) {
+        Collection<Condition> conditions = new ArrayList<>();
+        conditions.add(new ThresholdCondition(GROUP, Mode.FIRING, "Data-Token", operator, 10.0));
+        return conditions;
+    }
+
+    @Test
+    public void groupOperations() throws Exception {
+        Trigger group = new Trigger(TENANT, GROUP, "Perf Group Trigger");
+        group.addTag("perf-group", "v1");
+        definitionsService.addGroupTrigger(TENANT, group);
+        definitionsService.setGroupConditions(TENANT, GROUP, Mode.FIRING, conditions(ThresholdCondition.Operator.GT),
+                null);
+
+        long start = System.nanoTime();
+        Map<String, String> dataIdMemberMap = new HashMap<>(MEMBERS);
+        for (int i = 0; i < MEMBERS; i++) {
+            String memberId = "perf-member-" + i;
+            definitionsService.addMemberTrigger(TENANT, GROUP, memberId, "Perf Member " + i, null,
+                    Collections.singletonMap("Data-Token", "perf-data-" + i));
+            dataIdMemberMap.put(memberId, "perf-data-" + i);
+        }
+        log.info(String.format("[%s] addMemberTrigger x %d: %d ms", backend, MEMBERS, millis(start)));
+
+        start = System.nanoTime();
+        assertEquals(MEMBERS, definitionsService.getMemberTriggers(TENANT, GROUP, false).size());
+        log.info(String.format("[%s] getMemberTriggers of %d members: %d ms", backend, MEMBERS, millis(start)));
+
+        group = definitionsService.getTrigger(TENANT, GROUP);
+        group.setDescription("Updated Perf Group Trigger");
+        group.addTag("perf-group", "v2");
+        start = System.nanoTime();
+        definitionsService.updateGroupTrigger(TENANT, group);
+        log.info(String.format("[%s] updateGroupTrigger of %d members: %d ms", backend, MEMBERS, millis(start)));
+
+        start = System.nanoTime();
+        definitionsService.setGroupConditions(TENANT, GROUP, Mode.FIRING, conditions(ThresholdCondition.Operator.LT),
+                Collections.singletonMap("Data-Token", dataIdMemberMap));
+        log.info(String.format("[%s] setGroupConditions of %d members: %d ms", backend, MEMBERS, millis(start)));
+
+        Dampening dampening = Dampening.forStrict(GROUP, Mode.FIRING, 3);
+        start = System.nanoTime();
+        definitionsService.addGroupDampening(TENANT, dampening);
+        log.info(String.format("[%s] addGroupDampening of %d members: %d ms", backend, MEMBERS, millis(start)));
+
+        start = System.nanoTime();
+        definitionsService.removeGroupDampening(TENANT, dampening.getDampeningId());
+        log.info(String.format("[%s] removeGroupDampening of %d members: %d ms", backend, MEMBERS,
+                millis(start)));
+
+        start = System.nanoTime();
+        definitionsService.removeGroupTrigger(TENANT, GROUP, false, false);
+        log.info(String.format("[%s] removeGroupTrigger of %d members: %d ms", backend, MEMBERS, millis(start)));
+
+        assertNull(definitionsService.getTrigger(TENANT, "perf-member-0"));
+    }
+}
@@ -32,6 +32,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 import org.hawkular.alerts.api.model.Severity;
 import org.hawkular.alerts.api.model.action.Action;
@@ -55,14 +56,18 @@ import org.hawkular.alerts.api.model.paging.EventComparator;
 import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.Pager;
 import org.hawkular.alerts.api.model.paging.TriggerComparator;
+import org.hawkular.alerts.api.model.stats.AlertsStats;
+import org.hawkular.alerts.api.model.trigger.FullTrigger;
 import org.hawkular.alerts.api.model.trigger.Mode;
 import org.hawkular.alerts.api.model.trigger.Trigger;
 import org.hawkular.alerts.api.services.ActionsCriteria;
 import org.hawkular.alerts.api.services.ActionsService;
 import org.hawkular.alerts.api.services.AlertsCriteria;
 import org.hawkular.alerts.api.services.AlertsService;
+import org.hawkular.alerts.api.services.AlertsStatsCriteria;
 import org.hawkular.alerts.api.services.DefinitionsService;
 import org.hawkular.alerts.api.services.EventsCriteria;
+import org.hawkular.alerts.api.services.EventsListener;
 import org.hawkular.alerts.api.services.TriggersCriteria;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
@@ -663,6 +668,90 @@ public abstract class PersistenceTest {
         assertNull(t);
     }
 
+    @Test
+    public void test0023GroupMembersFanOut() throws Exception {
+        System.out.println("test0023GroupMembersFanOut...");
+
+        int numMembers = 50;
+        String groupId = "fanout-group-trigger";
+        Trigger group = new Trigger(TEST_TENANT, groupId, "Fan-out Group");
+        group.addTag("fanout", "v1");
+        definitionsService.addGroupTrigger(TEST_TENANT, group);
+
+        Collection<Condition> groupConditions = new ArrayList<>();
+        groupConditions.add(new ThresholdCondition(groupId, Mode.FIRING, "Data-Token",
+                ThresholdCondition.Operator.GT, 10.0));
+        definitionsService.setGroupConditions(TEST_TENANT, groupId, Mode.FIRING, groupConditions, null);
+
+        Map<String, String> dataIdMemberMap = new HashMap<>();
+        for (int i = 0; i < numMembers; i++) {
+            String memberId = "fanout-member-" + i;
+            Map<String, String> dataIdMap = Collections.singletonMap("Data-Token", "fanout-data-" + i);
+            assertNotNull(definitionsService.addMemberTrigger(TEST_TENANT, groupId, memberId, "Member-" + i, null,
+                    dataIdMap));
+            dataIdMemberMap.put(memberId, "fanout-data-" + i);
+        }
+        definitionsService.orphanMemberTrigger(TEST_TENANT, "fanout-member-0");
+        dataIdMemberMap.remove("fanout-member-0");
+
+        assertEquals(numMembers - 1, definitionsService.getMemberTriggers(TEST_TENANT, groupId, false).size());
+        assertEquals(numMembers, definitionsService.getMemberTriggers(TEST_TENANT, groupId, true).size());
+
+        group = definitionsService.getTrigger(TEST_TENANT, groupId);
+        group.setDescription("Updated Fan-out Group");
+        group.addTag("fanout", "v2");
+        definitionsService.updateGroupTrigger(TEST_TENANT, group);
+
+        groupConditions = new ArrayList<>();
+        groupConditions.add(new ThresholdCondition(groupId, Mode.FIRING, "Data-Token",
+                ThresholdCondition.Operator.LT, 5.0));
+        definitionsService.setGroupConditions(TEST_TENANT, groupId, Mode.FIRING, groupConditions,
+                Collections.singletonMap("Data-Token", dataIdMemberMap));
+
+        definitionsService.addGroupDampening(TEST_TENANT, Dampening.forStrict(groupId, Mode.FIRING, 3));
+
+        Collection<Trigger> members = definitionsService.getMemberTriggers(TEST_TENANT, groupId, false);
+        assertEquals(numMembers - 1, members.size());
+        for (Trigger member : members) {
+            assertEquals(member.toString(), groupId, member.getMemberOf());
+            assertEquals(member.toString(), "Updated Fan-out Group", member.getDescription());
+            assertEquals(member.toString(), "v2", member.getTags().get("fanout"));
+
+            Collection<Condition> conditions = definitionsService.getTriggerConditions(TEST_TENANT, member.getId(),
+                    Mode.FIRING);
+            assertEquals(1, conditions.size());
+            ThresholdCondition condition = (ThresholdCondition) conditions.iterator().next();
+            assertEquals(condition.toString(), ThresholdCondition.Operator.LT, condition.getOperator());
+            assertEquals(condition.toString(), dataIdMemberMap.get(member.getId()), condition.getDataId());
+
+            assertEquals(1, definitionsService.getTriggerDampenings(TEST_TENANT, member.getId(), null).size());
+        }
+
+        // the orphan is not changed by the group
+        Trigger orphan = definitionsService.getTrigger(TEST_TENANT, "fanout-member-0");
+        assertTrue(orphan.isOrphan());
+        assertEquals("v1", orphan.getTags().get("fanout"));
+        assertTrue(definitionsService.getTriggerDampenings(TEST_TENANT, orphan.getId(), null).isEmpty());
+
+        TriggersCriteria criteria = new TriggersCriteria();
+        criteria.setTags(Collections.singletonMap("fanout", "v2"));
+        assertEquals(numMembers, definitionsService.getTriggers(TEST_TENANT, criteria, null).size());
+
+        definitionsService.removeGroupTrigger(TEST_TENANT, groupId, false, true);
+
+        assertNull(definitionsService.getTrigger(TEST_TENANT, groupId));
+        assertTrue(definitionsService.getMemberTriggers(TEST_TENANT, groupId, true).isEmpty());
+        for (int i = 1; i < numMembers; i++) {
+            assertNull(definitionsService.getTrigger(TEST_TENANT, "fanout-member-" + i));
+        }
+        assertTrue(definitionsService.getTriggers(TEST_TENANT, criteria, null).isEmpty());
+
+        orphan = definitionsService.getTrigger(TEST_TENANT, "fanout-member-0");
+        assertNotNull(orphan);
+        assertTrue(!orphan.isMember());
+        definitionsService.removeTrigger(TEST_TENANT, orphan.getId());
+    }
+
     @Test
     public void test0030BasicTags() throws Exception {
         System.out.println("test0030BasicTags...");
@@ -706,6 +795,184 @@ public abstract class PersistenceTest {
         assertEquals(1, triggers.size());
     }
 
+    @Test
+    public void test0031DefinitionsReadAfterUpdate() throws Exception {
+        System.out.println("test0031DefinitionsReadAfterUpdate...");
+        String tenant = "test-definitions-cache";
+
+        Trigger t = new Trigger("cache-trigger", "Cache Trigger");
+        definitionsService.addTrigger(tenant, t);
+        assertEquals("Cache Trigger", definitionsService.getTrigger(tenant, "cache-trigger").getName());
+        t.setName("Updated Cache Trigger");
+        definitionsService.updateTrigger(tenant, t);
+        assertEquals("Updated Cache Trigger", definitionsService.getTrigger(tenant, "cache-trigger").getName());
+
+        Collection<Condition> conditions = new ArrayList<>();
+        conditions.add(new ThresholdCondition("cache-trigger", Mode.FIRING, "cache-metric",
+                ThresholdCondition.Operator.GT, 10.0));
+        definitionsService.setConditions(tenant, "cache-trigger", Mode.FIRING, conditions);
+        Collection<Condition> cs = definitionsService.getTriggerConditions(tenant, "cache-trigger", Mode.FIRING);
+        assertEquals(10.0, ((ThresholdCondition) cs.iterator().next()).getThreshold(), 0.0);
+        cs = definitionsService.getTriggerConditions(tenant, "cache-trigger", null);
+        assertEquals(1, cs.size());
+        conditions.clear();
+        conditions.add(new ThresholdCondition("cache-trigger", Mode.FIRING, "cache-metric",
+                ThresholdCondition.Operator.GT, 20.0));
+        definitionsService.setConditions(tenant, "cache-trigger", Mode.FIRING, conditions);
+        cs = definitionsService.getTriggerConditions(tenant, "cache-trigger", Mode.FIRING);
+        assertEquals(20.0, ((ThresholdCondition) cs.iterator().next()).getThreshold(), 0.0);
+        cs = definitionsService.getTriggerConditions(tenant, "cache-trigger", null);
+        assertEquals(20.0, ((ThresholdCondition) cs.iterator().next()).getThreshold(), 0.0);
+
+        Dampening d = Dampening.forStrict("cache-trigger", Mode.FIRING, 2);
+        definitionsService.addDampening(tenant, d);
+        Collection<Dampening> ds = definitionsService.getTriggerDampenings(tenant, "cache-trigger", Mode.FIRING);
+        assertEquals(2, ds.iterator().next().getEvalTrueSetting());
+        d.setEvalTrueSetting(3);
+        d.setEvalTotalSetting(3);
+        definitionsService.updateDampening(tenant, d);
+        ds = definitionsService.getTriggerDampenings(tenant, "cache-trigger", Mode.FIRING);
+        assertEquals(3, ds.iterator().next().getEvalTrueSetting());
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put("to", "admin@example.org");
+        definitionsService.addAction(tenant, "email", "cache-action", properties);
+        assertEquals("admin@example.org",
+                definitionsService.getAction(tenant, "email", "cache-action").get("to"));
+        properties = new HashMap<>();
+        properties.put("to", "ops@example.org");
+        definitionsService.updateAction(tenant, "email", "cache-action", properties);
+        assertEquals("ops@example.org", definitionsService.getAction(tenant, "email", "cache-action").get("to"));
+        definitionsService.removeAction(tenant, "email", "cache-action");
+        assertNull(definitionsService.getAction(tenant, "email", "cache-action"));
+
+        definitionsService.removeTrigger(tenant, "cache-trigger");
+        assertNull(definitionsService.getTrigger(tenant, "cache-trigger"));
+        assertTrue(definitionsService.getTriggerConditions(tenant, "cache-trigger", null).isEmpty());
+        assertTrue(definitionsService.getTriggerDampenings(tenant, "cache-trigger", null).isEmpty());
+    }
+
+    @Test
+    public void test0032TriggersActions() throws Exception {
+        System.out.println("test0032TriggersActions...");
+        String tenant = "test-triggers-actions";
+
+        for (int i = 0; i < 5; i++) {
+            Trigger t = new Trigger("actions-trigger-" + i, "Actions Trigger " + i);
+            for (int j = 0; j <= i; j++) {
+                t.addAction("email", "email-" + j);
+            }
+            if (i % 2 == 0) {
+                t.addAction("sms", "sms-" + i);
+            }
+            definitionsService.addTrigger(tenant, t);
+        }
+
+        Page<Trigger> page = definitionsService.getTriggers(tenant, null, null);
+        assertEquals(5, page.size());
+        for (Trigger t : page) {
+            int i = Integer.parseInt(t.getId().substring("actions-trigger-".length()));
+            assertEquals(t.toString(), i + 1, t.getActions().get("email").size());
+            assertEquals(t.toString(), i % 2 == 0, t.getActions().containsKey("sms"));
+        }
+
+        TriggersCriteria criteria = new TriggersCriteria();
+        criteria.setTriggerIds(Arrays.asList("actions-trigger-1", "actions-trigger-2"));
+        page = definitionsService.getTriggers(tenant, criteria, null);
+        assertEquals(2, page.size());
+        for (Trigger t : page) {
+            assertTrue(t.toString(), t.getActions().get("email").contains("email-1"));
+        }
+
+        int found = 0;
+        for (Trigger t : definitionsService.getAllTriggers()) {
+            if (tenant.equals(t.getTenantId())) {
+                assertTrue(t.toString(), t.getActions().get("email").contains("email-0"));
+                found++;
+            }
+        }
+        assertEquals(5, found);
+
+        for (int i = 0; i < 5; i++) {
+            definitionsService.removeTrigger(tenant, "actions-trigger-" + i);
+        }
+    }
+
+    private FullTrigger fullTrigger(int i, int numConditions) {
+        Trigger t = new Trigger("import-trigger-" + i, "Import Trigger " + i);
+        t.setAutoResolve(true);
+        t.addTag("import-tag", "value-" + numConditions);
+        t.addAction("email", "import-email");
+        List<Condition> conditions = new ArrayList<>();
+        for (int j = 0; j < numConditions; j++) {
+            conditions.add(new ThresholdCondition(t.getId(), Mode.FIRING, "import-data-" + j,
+                    ThresholdCondition.Operator.GT, 10.0 * j));
+        }
+        conditions.add(new AvailabilityCondition(t.getId(), Mode.AUTORESOLVE, "import-avail",
+                AvailabilityCondition.Operator.UP));
+        List<Dampening> dampenings = new ArrayList<>();
+        if (numConditions > 1) {
+            dampenings.add(Dampening.forStrict(t.getId(), Mode.FIRING, numConditions));
+        }
+        Map<String, String> action = new HashMap<>();
+        action.put("actionPlugin", "email");
+        action.put("actionId", "import-email");
+        action.put("to", "import@hawkular.org");
+        return new FullTrigger(t, dampenings, conditions, Collections.singletonList(action));
+    }
+
+    @Test
+    public void test0033ImportExportTriggers() throws Exception {
+        System.out.println("test0033ImportExportTriggers...");
+        String tenant = "test-import-export";
+
+        List<FullTrigger> fullTriggers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            fullTriggers.add(fullTrigger(i, i + 1));
+        }
+        assertEquals(5, definitionsService.importTriggers(tenant, fullTriggers.iterator()));
+
+        for (int i = 0; i < 5; i++) {
+            String triggerId = "import-trigger-" + i;
+            Trigger t = definitionsService.getTrigger(tenant, triggerId);
+            assertNotNull(triggerId, t);
+            assertEquals(tenant, t.getTenantId());
+            assertTrue(t.toString(), t.getActions().get("email").contains("import-email"));
+            assertEquals(i + 1, definitionsService.getTriggerConditions(tenant, triggerId, Mode.FIRING).size());
+            assertEquals(1, definitionsService.getTriggerConditions(tenant, triggerId, Mode.AUTORESOLVE).size());
+            assertEquals(i > 0 ? 1 : 0, definitionsService.getTriggerDampenings(tenant, triggerId, null).size());
+        }
+        Map<String, String> action = definitionsService.getAction(tenant, "email", "import-email");
+        assertNotNull(action);
+        assertEquals("import@hawkular.org", action.get("to"));
+
+        // an imported trigger replaces the stored one, with no stale conditions, dampenings or tags
+        assertEquals(1, definitionsService.importTriggers(tenant,
+                Collections.singletonList(fullTrigger(4, 1)).iterator()));
+        assertEquals(1, definitionsService.getTriggerConditions(tenant, "import-trigger-4", Mode.FIRING).size());
+        assertTrue(definitionsService.getTriggerDampenings(tenant, "import-trigger-4", null).isEmpty());
+        TriggersCriteria criteria = new TriggersCriteria();
+        criteria.setTags(Collections.singletonMap("import-tag", "value-5"));
+        assertTrue(definitionsService.getTriggers(tenant, criteria, null).isEmpty());
+
+        Collection<FullTrigger> exported = definitionsService.getFullTriggers(tenant);
+        assertEquals(5, exported.size());
+        for (FullTrigger fullTrigger : exported) {
+            String triggerId = fullTrigger.getTrigger().getId();
+            int numConditions = triggerId.equals("import-trigger-4") ? 1 :
+                    Integer.parseInt(triggerId.substring("import-trigger-".length())) + 1;
+            assertEquals(triggerId, numConditions + 1, fullTrigger.getConditions().size());
+            assertEquals(triggerId, numConditions > 1 ? 1 : 0, fullTrigger.getDampenings().size());
+            assertEquals(triggerId, 1, fullTrigger.getActions().size());
+            assertEquals("import@hawkular.org", fullTrigger.getActions().get(0).get("to"));
+        }
+
+        for (int i = 0; i < 5; i++) {
+            definitionsService.removeTrigger(tenant, "import-trigger-" + i);
+        }
+        definitionsService.removeAction(tenant, "email", "import-email");
+    }
+
     @Test
     public void test0035PagingTriggers() throws Exception {
         System.out.println("test0035PagingTriggers...");
@@ -1376,6 +1643,404 @@ public abstract class PersistenceTest {
         assertTrue(firstContext.compareTo(lastContext) < 0);
     }
 
+    @Test
+    public void test0052CursorPagingAlerts() throws Exception {
+        List<Alert> all = alertsService.getAlerts(TEST_TENANT, null, null);
+        assertTrue(all.size() > 10);
+
+        /*
+            Clustering order reads, by alertId and by ctime, and in memory sort, by status
+         */
+        List<Pager> pagers = Arrays.asList(
+                Pager.builder().withCursor(null).withPageSize(10)
+                        .orderByAscending(AlertComparator.Field.ALERT_ID.getText()).build(),
+                Pager.builder().withCursor(null).withPageSize(10)
+                        .orderByDescending(AlertComparator.Field.CTIME.getText()).build(),
+                Pager.builder().withCursor(null).withPageSize(10)
+                        .orderByAscending(AlertComparator.Field.STATUS.getText()).build());
+
+        for (Pager pager : pagers) {
+            Set<String> alertIds = new HashSet<>();
+            Alert previous = null;
+            AlertComparator comparator = new AlertComparator(pager.getOrder().get(0).getField(),
+                    pager.getOrder().get(0).getDirection());
+            Page<Alert> page;
+            do {
+                page = alertsService.getAlerts(TEST_TENANT, null, pager);
+                assertTrue(page.size() <= 10);
+                for (Alert alert : page) {
+                    assertTrue(pager + " repeated " + alert.getAlertId(), alertIds.add(alert.getAlertId()));
+                    if (previous != null) {
+                        assertTrue(pager + " out of order " + alert.getAlertId(),
+                                comparator.compare(previous, alert) <= 0);
+                    }
+                    previous = alert;
+                }
+                pager = pager.nextPage(page.getNextCursor());
+            } while (page.getNextCursor() != null);
+
+            assertEquals(pager.toString(), all.size(), alertIds.size());
+        }
+
+        /*
+            Filtered reads, resolved by the history index when available, a page at a time
+         */
+        AlertsCriteria filtered = new AlertsCriteria();
+        filtered.setStatusSet(Arrays.asList(Alert.Status.values()));
+        Pager filteredPager = Pager.builder().withCursor(null).withPageSize(10)
+                .orderByDescending(AlertComparator.Field.CTIME.getText()).build();
+        Set<String> filteredIds = new HashSet<>();
+        Page<Alert> filteredPage;
+        do {
+            filteredPage = alertsService.getAlerts(TEST_TENANT, filtered, filteredPager);
+            assertTrue(filteredPage.size() <= 10);
+            for (Alert alert : filteredPage) {
+                assertTrue("repeated " + alert.getAlertId(), filteredIds.add(alert.getAlertId()));
+            }
+            filteredPager = filteredPager.nextPage(filteredPage.getNextCursor());
+        } while (filteredPage.getNextCursor() != null);
+        assertEquals(all.size(), filteredIds.size());
+
+        /*
+            Streamed reads iterate the full result once, in the order of the pager
+         */
+        for (Pager pager : pagers) {
+            Set<String> alertIds = new HashSet<>();
+            Alert previous = null;
+            AlertComparator comparator = new AlertComparator(pager.getOrder().get(0).getField(),
+                    pager.getOrder().get(0).getDirection());
+            Iterator<Alert> iterated = alertsService.iterateAlerts(TEST_TENANT, null, pager);
+            while (iterated.hasNext()) {
+                Alert alert = iterated.next();
+                assertTrue(pager + " repeated " + alert.getAlertId(), alertIds.add(alert.getAlertId()));
+                if (previous != null) {
+                    assertTrue(pager + " out of order " + alert.getAlertId(), comparator.compare(previous, alert) <= 0);
+                }
+                previous = alert;
+            }
+            assertEquals(pager.toString(), all.size(), alertIds.size());
+        }
+
+        Pager byCtime = Pager.builder().withCursor(null).withPageSize(10)
+                .orderByDescending(AlertComparator.Field.CTIME.getText()).build();
+        Page<Alert> page = alertsService.getAlerts(TEST_TENANT, null, byCtime);
+        Pager byAlertId = Pager.builder().withCursor(page.getNextCursor()).withPageSize(10)
+                .orderByAscending(AlertComparator.Field.ALERT_ID.getText()).build();
+        try {
+            alertsService.getAlerts(TEST_TENANT, null, byAlertId);
+            fail("A cursor must not be accepted for a different order");
+        } catch (Exception e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void test0053CursorPagingAlertsAcrossBuckets() throws Exception {
+        String tenantId = "test-buckets";
+        Trigger t = definitionsService.getTrigger(TEST_TENANT, "trigger-6");
+        assertNotNull(t);
+
+        Collection<Condition> cs = definitionsService.getTriggerConditions(TEST_TENANT, t.getId(), null);
+        AvailabilityCondition availability = (AvailabilityCondition) cs.iterator().next();
+
+        /*
+            Alerts every half hour, spread over the hourly buckets of the test configuration
+         */
+        long now = System.currentTimeMillis();
+        long halfHour = 30 * 60 * 1000L;
+        List<Alert> alerts = new ArrayList<>();
+        for (int i = 0; i < 24; i++) {
+            Data data = Data.forAvailability("Availability-01", now, AvailabilityType.DOWN);
+            Set<ConditionEval> evalSet = new HashSet<>();
+            evalSet.add(new AvailabilityConditionEval(availability, data));
+            List<Set<ConditionEval>> evals = new ArrayList<>();
+            evals.add(evalSet);
+            Alert alert = new Alert(tenantId, t, evals);
+            alert.setCtime(now - i * halfHour);
+            alerts.add(alert);
+            Thread.sleep(2);
+        }
+        alertsService.addAlerts(alerts);
+
+        assertEquals(24, alertsService.getAlerts(tenantId, null, null).size());
+
+        AlertsCriteria criteria = new AlertsCriteria();
+        criteria.setStartTime(now - 10 * halfHour);
+        criteria.setEndTime(now - 2 * halfHour);
+        assertEquals(9, alertsService.getAlerts(tenantId, criteria, null).size());
+
+        Pager pager = Pager.builder().withCursor(null).withPageSize(4)
+                .orderByDescending(AlertComparator.Field.CTIME.getText()).build();
+        List<Long> ctimes = new ArrayList<>();
+        Page<Alert> page;
+        do {
+            page = alertsService.getAlerts(tenantId, criteria, pager);
+            assertTrue(page.size() <= 4);
+            for (Alert alert : page) {
+                ctimes.add(alert.getCtime());
+            }
+            pager = pager.nextPage(page.getNextCursor());
+        } while (page.getNextCursor() != null);
+
+        List<Long> expected = new ArrayList<>();
+        for (int i = 2; i <= 10; i++) {
+            expected.add(now - i * halfHour);
+        }
+        assertEquals(expected, ctimes);
+    }
+
+    @Test
+    public void test0054ThinAlertsEvalSets() throws Exception {
+        String tenantId = "test-evals";
+        Trigger t = definitionsService.getTrigger(TEST_TENANT, "trigger-6");
+        assertNotNull(t);
+
+        Collection<Condition> cs = definitionsService.getTriggerConditions(TEST_TENANT, t.getId(), null);
+        AvailabilityCondition availability = (AvailabilityCondition) cs.iterator().next();
+
+        Data data = Data.forAvailability("Availability-01", System.currentTimeMillis(), AvailabilityType.DOWN);
+        Set<ConditionEval> evalSet = new HashSet<>();
+        evalSet.add(new AvailabilityConditionEval(availability, data));
+        List<Set<ConditionEval>> evals = new ArrayList<>();
+        evals.add(evalSet);
+        Alert alert = new Alert(tenantId, t, evals);
+        alertsService.addAlerts(Collections.singletonList(alert));
+
+        Alert thin = alertsService.getAlert(tenantId, alert.getAlertId(), true);
+        assertNotNull(thin);
+        assertNull(thin.getEvalSets());
+        assertEquals(Alert.Status.OPEN, thin.getStatus());
+
+        Alert full = alertsService.getAlert(tenantId, alert.getAlertId(), false);
+        assertNotNull(full);
+        assertEquals(1, full.getEvalSets().size());
+        assertNull(full.getResolvedEvalSets());
+
+        alertsService.resolveAlerts(tenantId, Collections.singletonList(alert.getAlertId()), "user1", "resolved",
+                evals);
+
+        AlertsCriteria criteria = new AlertsCriteria();
+        criteria.setThin(true);
+        List<Alert> alerts = alertsService.getAlerts(tenantId, criteria, null);
+        assertEquals(1, alerts.size());
+        assertEquals(Alert.Status.RESOLVED, alerts.get(0).getStatus());
+        assertNull(alerts.get(0).getEvalSets());
+        assertNull(alerts.get(0).getResolvedEvalSets());
+
+        alerts = alertsService.getAlerts(tenantId, null, null);
+        assertEquals(1, alerts.size());
+        assertEquals(1, alerts.get(0).getEvalSets().size());
+        assertEquals(1, alerts.get(0).getResolvedEvalSets().size());
+
+        alertsService.deleteAlerts(tenantId, criteria);
+        assertNull(alertsService.getAlert(tenantId, alert.getAlertId(), false));
+    }
+
+    @Test
+    public void test0055AlertsStats() throws Exception {
+        String tenantId = "test-stats";
+        Trigger t = definitionsService.getTrigger(TEST_TENANT, "trigger-6");
+        assertNotNull(t);
+
+        Collection<Condition> cs = definitionsService.getTriggerConditions(TEST_TENANT, t.getId(), null);
+        AvailabilityCondition availability = (AvailabilityCondition) cs.iterator().next();
+
+        /*
+            Six alerts in the current bucket and one two days before
+         */
+        long now = System.currentTimeMillis();
+        List<Alert> alerts = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Data data = Data.forAvailability("Availability-01", now, AvailabilityType.DOWN);
+            Set<ConditionEval> evalSet = new HashSet<>();
+            evalSet.add(new AvailabilityConditionEval(availability, data));
+            List<Set<ConditionEval>> evals = new ArrayList<>();
+            evals.add(evalSet);
+            Alert alert = new Alert(tenantId, t, evals);
+            alert.setCtime(i < 6 ? now : now - 2 * 24 * 60 * 60 * 1000L);
+            alert.setSeverity(i < 3 || i == 6 ? Severity.HIGH : Severity.LOW);
+            Map<String, String> tags = new HashMap<>();
+            tags.put("env", i == 2 || i == 5 ? "dev" : "prod");
+            alert.setTags(tags);
+            alerts.add(alert);
+            Thread.sleep(2);
+        }
+        alertsService.addAlerts(alerts);
+
+        AlertsStatsCriteria criteria = new AlertsStatsCriteria();
+        AlertsStats stats = alertsService.getAlertsStats(tenantId, criteria);
+        assertEquals(2, stats.getBuckets().size());
+        assertEquals(Long.valueOf(7), stats.getTotals().get("OPEN"));
+
+        alertsService.ackAlerts(tenantId, Arrays.asList(alerts.get(0).getAlertId(), alerts.get(1).getAlertId()),
+                "user1", "acked");
+        alertsService.resolveAlerts(tenantId, Collections.singletonList(alerts.get(3).getAlertId()), "user1",
+                "resolved", null);
+
+        stats = alertsService.getAlertsStats(tenantId, criteria);
+        assertEquals(3, stats.getTotals().size());
+        assertEquals(Long.valueOf(4), stats.getTotals().get("OPEN"));
+        assertEquals(Long.valueOf(2), stats.getTotals().get("ACKNOWLEDGED"));
+        assertEquals(Long.valueOf(1), stats.getTotals().get("RESOLVED"));
+
+        criteria.setStartTime(now);
+        stats = alertsService.getAlertsStats(tenantId, criteria);
+        assertEquals(1, stats.getBuckets().size());
+        assertEquals(Long.valueOf(3), stats.getTotals().get("OPEN"));
+        criteria.setStartTime(null);
+
+        criteria.setGroupBy(AlertsStatsCriteria.GroupBy.SEVERITY);
+        criteria.setStatusSet(Collections.singleton(Alert.Status.OPEN));
+        stats = alertsService.getAlertsStats(tenantId, criteria);
+        assertEquals(Long.valueOf(2), stats.getTotals().get("HIGH"));
+        assertEquals(Long.valueOf(2), stats.getTotals().get("LOW"));
+
+        criteria.setGroupBy(AlertsStatsCriteria.GroupBy.TAG);
+        criteria.setTagName("env");
+        stats = alertsService.getAlertsStats(tenantId, criteria);
+        assertEquals(Long.valueOf(2), stats.getTotals().get("prod"));
+        assertEquals(Long.valueOf(2), stats.getTotals().get("dev"));
+
+        criteria.setTagName(null);
+        criteria.setStatusSet(null);
+        stats = alertsService.getAlertsStats(tenantId, criteria);
+        assertEquals(Long.valueOf(5), stats.getTotals().get("env|prod"));
+
+        criteria.setSeverities(Collections.singleton(Severity.HIGH));
+        try {
+            alertsService.getAlertsStats(tenantId, criteria);
+            fail("Severities are not supported by TAG groupBy");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        criteria = new AlertsStatsCriteria();
+        criteria.setGroupBy(AlertsStatsCriteria.GroupBy.TRIGGER);
+        stats = alertsService.getAlertsStats(tenantId, criteria);
+        assertEquals(Long.valueOf(7), stats.getTotals().get(t.getId()));
+
+        AlertsCriteria deleteCriteria = new AlertsCriteria();
+        deleteCriteria.setStatusSet(Collections.singleton(Alert.Status.RESOLVED));
+        assertEquals(1, alertsService.deleteAlerts(tenantId, deleteCriteria));
+
+        criteria = new AlertsStatsCriteria();
+        stats = alertsService.getAlertsStats(tenantId, criteria);
+        assertNull(stats.getTotals().get("RESOLVED"));
+        assertEquals(Long.valueOf(4), stats.getTotals().get("OPEN"));
+
+        assertEquals(6, alertsService.rebuildAlertsStats(tenantId));
+        assertEquals(stats.getTotals(), alertsService.getAlertsStats(tenantId, criteria).getTotals());
+
+        alertsService.deleteAlerts(tenantId, new AlertsCriteria());
+        assertTrue(alertsService.getAlertsStats(tenantId, criteria).getBuckets().isEmpty());
+    }
+
+    @Test
+    public void test0056EventsListener() throws Exception {
+        String tenantId = "test-listener";
+        Trigger t = definitionsService.getTrigger(TEST_TENANT, "trigger-6");
+        assertNotNull(t);
+
+        List<Alert> notifiedAlerts = new ArrayList<>();
+        List<Event> notifiedEvents = new ArrayList<>();
+        EventsListener listener = new EventsListener() {
+            @Override
+            public void onAlerts(Collection<Alert> alerts) {
+                notifiedAlerts.addAll(alerts);
+            }
+
+            @Override
+            public void onEvents(Collection<Event> events) {
+                notifiedEvents.addAll(events);
+            }
+        };
+        alertsService.registerListener(listener);
+        try {
+            List<Alert> alerts = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                Alert alert = new Alert(tenantId, t, null);
+                alert.setSeverity(i == 0 ? Severity.HIGH : Severity.LOW);
+                alert.addTag("env", i == 0 ? "prod" : "dev");
+                alerts.add(alert);
+                Thread.sleep(2);
+            }
+            alertsService.addAlerts(alerts);
+            assertEquals(3, notifiedAlerts.size());
+            assertEquals(3, notifiedEvents.size());
+
+            alertsService.ackAlerts(tenantId, Collections.singletonList(alerts.get(0).getAlertId()), "user1", "acked");
+            assertEquals(4, notifiedAlerts.size());
+            Alert acked = notifiedAlerts.get(3);
+            assertEquals(alerts.get(0).getAlertId(), acked.getAlertId());
+            assertEquals(Alert.Status.ACKNOWLEDGED, acked.getStatus());
+
+            AlertsCriteria criteria = new AlertsCriteria();
+            criteria.setStatusSet(Collections.singleton(Alert.Status.ACKNOWLEDGED));
+            assertTrue(criteria.matches(acked));
+            assertTrue(!criteria.matches(notifiedAlerts.get(1)));
+            criteria = new AlertsCriteria();
+            criteria.addTag("env", "dev");
+            assertTrue(!criteria.matches(acked));
+            criteria.addTag("env", "*");
+            assertTrue(criteria.matches(acked));
+            criteria.setTriggerIds(Collections.singleton("another-trigger"));
+            assertTrue(!criteria.matches(acked));
+
+            EventsCriteria eventsCriteria = new EventsCriteria();
+            eventsCriteria.setCategories(Collections.singleton(notifiedEvents.get(0).getCategory()));
+            assertTrue(eventsCriteria.matches(notifiedEvents.get(0)));
+            eventsCriteria.setCategories(Collections.singleton("another-category"));
+            assertTrue(!eventsCriteria.matches(notifiedEvents.get(0)));
+
+            alertsService.unregisterListener(listener);
+            alertsService.resolveAlerts(tenantId, Collections.singletonList(alerts.get(1).getAlertId()), "user1",
+                    "resolved", null);
+            assertEquals(4, notifiedAlerts.size());
+
+        } finally {
+            alertsService.unregisterListener(listener);
+            alertsService.deleteAlerts(tenantId, new AlertsCriteria());
+            alertsService.deleteEvents(tenantId, new EventsCriteria());
+        }
+    }
+
+    @Test
+    public void test0057AsyncQueries() throws Exception {
+        Pager pager = Pager.builder().withPageSize(5)
+                .orderByDescending(AlertComparator.Field.CTIME.getText()).build();
+
+        AlertsCriteria criteria = new AlertsCriteria();
+        criteria.setStatusSet(Arrays.asList(Alert.Status.values()));
+        Page<Alert> alerts = alertsService.getAlerts(TEST_TENANT, criteria, pager);
+        assertTrue(alerts.size() > 0);
+        Page<Alert> asyncAlerts = alertsService.getAlertsAsync(TEST_TENANT, criteria, pager)
+                .toCompletableFuture().get();
+        assertEquals(alerts.getTotalSize(), asyncAlerts.getTotalSize());
+        assertEquals(alerts.size(), asyncAlerts.size());
+        for (int i = 0; i < alerts.size(); i++) {
+            assertEquals(alerts.get(i).getAlertId(), asyncAlerts.get(i).getAlertId());
+        }
+
+        EventsCriteria eventsCriteria = new EventsCriteria();
+        eventsCriteria.setStartTime(0L);
+        Page<Event> events = alertsService.getEvents(TEST_TENANT, eventsCriteria, null);
+        Page<Event> asyncEvents = alertsService.getEventsAsync(TEST_TENANT, eventsCriteria, null)
+                .toCompletableFuture().get();
+        assertEquals(events.size(), asyncEvents.size());
+
+        Page<Trigger> triggers = definitionsService.getTriggers(TEST_TENANT, null, null);
+        Page<Trigger> asyncTriggers = definitionsService.getTriggersAsync(TEST_TENANT, null, null)
+                .toCompletableFuture().get();
+        assertEquals(triggers.size(), asyncTriggers.size());
+
+        try {
+            alertsService.getAlertsAsync(null, criteria, pager).toCompletableFuture().get();
+            fail("TenantId is required");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
     @Test
     public void test0060BasicEvent() throws Exception {
         System.out.println("test0060BasicEvent...");
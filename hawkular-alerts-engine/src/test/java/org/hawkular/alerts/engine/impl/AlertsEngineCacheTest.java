@@ -19,6 +19,12 @@ package org.hawkular.alerts.engine.impl;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 import org.hawkular.alerts.engine.impl.AlertsEngineCache.DataEntry;
 import org.junit.Test;
 
@@ -55,4 +61,32 @@ public class AlertsEngineCacheTest {
         assertFalse(cache.isDataIdActive("d3"));
     }
 
+    @Test
+    public void bulkRemoveTest() {
+        AlertsEngineCache cache = new AlertsEngineCache();
+
+        cache.add(new DataEntry("o1", "t1", "d1"));
+        cache.add(new DataEntry("o1", "t1", "d2"));
+        cache.add(new DataEntry("o1", "t2", "d3"));
+        cache.add(new DataEntry("o1", "t4", "d1"));
+        cache.add(new DataEntry("o2", "t1", "d4"));
+
+        Map<String, Set<String>> triggers = new HashMap<>();
+        triggers.put("o1", new HashSet<>(Arrays.asList("t1", "t2")));
+        cache.remove(triggers);
+
+        assertTrue(cache.isDataIdActive("d1"));
+        assertFalse(cache.isDataIdActive("d2"));
+        assertFalse(cache.isDataIdActive("d3"));
+        assertTrue(cache.isDataIdActive("d4"));
+
+        triggers.clear();
+        triggers.put("o1", new HashSet<>(Arrays.asList("t4")));
+        triggers.put("o2", new HashSet<>(Arrays.asList("t1")));
+        cache.remove(triggers);
+
+        assertFalse(cache.isDataIdActive("d1"));
+        assertFalse(cache.isDataIdActive("d4"));
+    }
+
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class CassStatementTrackerTest {
+
+    @Test
+    public void statementNames() {
+        assertEquals("SELECT_ALERT", CassStatement.name(CassStatement.SELECT_ALERT));
+        assertEquals("SELECT now() FROM system.local", CassStatement.name("SELECT now() FROM system.local"));
+    }
+
+    @Test
+    public void record() {
+        CassStatementTracker tracker = new CassStatementTracker(50);
+        String insert = CassStatement.name(CassStatement.INSERT_ALERT);
+        String select = CassStatement.name(CassStatement.SELECT_ALERT);
+
+        tracker.record(insert, "host", null, TimeUnit.MILLISECONDS.toNanos(2));
+        tracker.record(insert, "host", new RuntimeException("failed"), TimeUnit.MILLISECONDS.toNanos(60));
+        tracker.record(select, "host", null, TimeUnit.MILLISECONDS.toNanos(1));
+
+        assertEquals(3, tracker.getRequests());
+        assertEquals(1, tracker.getErrors());
+        assertEquals(0, tracker.getTimeouts());
+        assertEquals(1, tracker.getSlowRequests());
+
+        List<CassStatementStats> stats = tracker.getStatementStats();
+        assertEquals(2, stats.size());
+        assertEquals("INSERT_ALERT", stats.get(0).getStatement());
+        assertEquals(2, stats.get(0).getRequests());
+        assertEquals(1, stats.get(0).getErrors());
+        assertEquals(60, stats.get(0).getMaxLatency(), 0.001);
+
+        tracker.setSlowThreshold(0);
+        tracker.record(select, "host", null, TimeUnit.SECONDS.toNanos(10));
+        assertEquals(1, tracker.getSlowRequests());
+
+        tracker.reset();
+        assertEquals(0, tracker.getRequests());
+        assertEquals(0, tracker.getStatementStats().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeSlowThreshold() {
+        new CassStatementTracker(-1);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+public class CassWriteLimiterTest {
+
+    /*
+        Session whose writes complete when the test sets their futures
+     */
+    private final LinkedBlockingQueue<SettableFuture<ResultSet>> pending = new LinkedBlockingQueue<>();
+
+    private final Session session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class[] { Session.class }, (proxy, method, args) -> {
+                if (!"executeAsync".equals(method.getName())) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                SettableFuture<ResultSet> future = SettableFuture.create();
+                pending.add(future);
+                return resultSetFuture(future);
+            });
+
+    private static ResultSetFuture resultSetFuture(SettableFuture<ResultSet> future) {
+        return (ResultSetFuture) Proxy.newProxyInstance(CassWriteLimiterTest.class.getClassLoader(),
+                new Class[] { ResultSetFuture.class }, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == ListenableFuture.class
+                            || method.getDeclaringClass() == Future.class) {
+                        return method.invoke(future, args);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Test
+    public void boundInFlightWrites() throws Exception {
+        CassWriteLimiter limiter = new CassWriteLimiter(2);
+
+        limiter.executeAsync(session, new SimpleStatement("write-1"), 1);
+        limiter.executeAsync(session, new SimpleStatement("write-2"), 5);
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(0, limiter.getThrottled());
+
+        CountDownLatch sent = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            try {
+                limiter.executeAsync(session, new SimpleStatement("write-3"), 1);
+                sent.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        writer.start();
+        assertFalse(sent.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(2, pending.size());
+
+        pending.take().set(null);
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+        writer.join();
+
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getThrottled());
+        assertEquals(3, limiter.getRequests());
+        assertEquals(7, limiter.getStatements());
+
+        pending.take().setException(new RuntimeException("write failed"));
+        pending.take().set(null);
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(1, limiter.getErrors());
+    }
+
+    @Test
+    public void resetCounters() throws Exception {
+        CassWriteLimiter limiter = new CassWriteLimiter(1);
+        limiter.executeAsync(session, new SimpleStatement("write"), 1);
+        pending.take().set(null);
+        assertEquals(1, limiter.getRequests());
+
+        limiter.reset();
+        assertEquals(0, limiter.getRequests());
+        assertEquals(0, limiter.getStatements());
+        assertEquals(0, limiter.getMaxLatency());
+    }
+}
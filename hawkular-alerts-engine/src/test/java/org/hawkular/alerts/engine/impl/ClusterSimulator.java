@@ -0,0 +1,571 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.ThresholdCondition;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.paging.Page;
+import org.hawkular.alerts.api.model.paging.Pager;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.services.ActionsService;
+import org.hawkular.alerts.api.services.AlertsService;
+import org.hawkular.alerts.api.services.DefinitionsService;
+import org.hawkular.alerts.api.services.TriggersCriteria;
+import org.hawkular.alerts.engine.service.MigrationStatus;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.remoting.transport.jgroups.JGroupsChannelLookup;
+import org.infinispan.remoting.transport.jgroups.JGroupsTransport;
+import org.infinispan.transaction.TransactionMode;
+import org.jboss.logging.Logger;
+import org.jgroups.Channel;
+import org.jgroups.JChannel;
+import org.jgroups.blocks.mux.MuxUpHandler;
+
+/**
+ * Single JVM cluster of PartitionManagerImpl + AlertsEngineImpl pairs.
+ *
+ * Each node has its own Infinispan cache manager, connected to the other nodes through the JGroups
+ * SHARED_LOOPBACK transport, and its own rules engine. Definitions are kept in memory and shared by all nodes,
+ * alerts are recorded in memory to detect triggers evaluated by more than one node (duplicates) or by none (missed).
+ *
+ * Simulated triggers have a single threshold condition on its own dataId, so every datum sent generates exactly
+ * one alert on the cluster.
+ */
+public class ClusterSimulator {
+    private static final Logger log = Logger.getLogger(ClusterSimulator.class);
+
+    private static final String CLUSTER_NAME = "hawkular-alerts-simulator";
+    private static final String STACK = "simulator-loopback.xml";
+    private static final String LEGACY_STACK = "simulator-loopback-legacy.xml";
+    private static final double THRESHOLD = 10.0;
+
+    private final String messaging;
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<String, Set<String>> triggers = new LinkedHashMap<>();
+    private final Map<String, AtomicInteger> evaluations = new ConcurrentHashMap<>();
+    private final Random random = new Random(1);
+    private int nextNode = 0;
+
+    /**
+     * @param messaging messaging of the PartitionManager, "jgroups" or "cache"
+     */
+    public ClusterSimulator(String messaging) {
+        this.messaging = messaging;
+    }
+
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    public int getNumTriggers() {
+        int total = 0;
+        for (Set<String> triggerIds : triggers.values()) {
+            total += triggerIds.size();
+        }
+        return total;
+    }
+
+    /**
+     * Define triggers on the in memory definitions. They are loaded on the nodes started later, or on the next
+     * reload of the engine.
+     */
+    public void addTriggers(int numTenants, int numTriggers) {
+        for (int i = 0; i < numTenants; i++) {
+            Set<String> triggerIds = triggers.computeIfAbsent("tenant-" + i, t -> new LinkedHashSet<>());
+            for (int j = 0; j < numTriggers; j++) {
+                triggerIds.add("trigger-" + j);
+            }
+        }
+    }
+
+    public Node startNode() throws Exception {
+        String name = "node-" + (nextNode++);
+        long start = System.currentTimeMillis();
+        Node node = new Node(name);
+        nodes.add(node);
+        if (log.isDebugEnabled()) {
+            log.debug(name + " started in " + (System.currentTimeMillis() - start) + " ms");
+        }
+        return node;
+    }
+
+    public void stopNode(Node node) {
+        nodes.remove(node);
+        node.stop();
+    }
+
+    public void stop() {
+        for (Node node : new ArrayList<>(nodes)) {
+            stopNode(node);
+        }
+    }
+
+    /**
+     * Wait until every trigger is loaded on exactly one node and there are not pending migrations.
+     *
+     * @return the time waited in ms, -1 if the cluster is not balanced after the timeout
+     */
+    public long awaitBalanced(long timeout) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (System.currentTimeMillis() - start < timeout) {
+            if (isBalanced()) {
+                return System.currentTimeMillis() - start;
+            }
+            Thread.sleep(50);
+        }
+        return -1;
+    }
+
+    private boolean isBalanced() {
+        int total = 0;
+        Set<String> loaded = new LinkedHashSet<>();
+        for (Node node : nodes) {
+            MigrationStatus status = node.engine.getMigrationStatus();
+            if (status != null && !status.isFinished()) {
+                return false;
+            }
+            Collection<String> nodeTriggers = node.getLoadedTriggers();
+            if (nodeTriggers == null) {
+                return false;
+            }
+            total += nodeTriggers.size();
+            loaded.addAll(nodeTriggers);
+        }
+        return total == getNumTriggers() && loaded.size() == total;
+    }
+
+    /**
+     * Send a datum for every trigger, distributed across random nodes.
+     *
+     * @param round the timestamp of the data, it identifies the round on the evaluations
+     */
+    public void sendData(long round) {
+        Map<Node, List<Data>> nodeData = new HashMap<>();
+        for (Entry<String, Set<String>> entry : triggers.entrySet()) {
+            for (String triggerId : entry.getValue()) {
+                Node node = nodes.get(random.nextInt(nodes.size()));
+                nodeData.computeIfAbsent(node, n -> new ArrayList<>())
+                        .add(Data.forNumeric(dataId(entry.getKey(), triggerId), round, THRESHOLD + 1));
+            }
+        }
+        for (Entry<Node, List<Data>> entry : nodeData.entrySet()) {
+            entry.getKey().engine.sendData(entry.getValue());
+        }
+    }
+
+    /**
+     * Wait until all the triggers have been evaluated for a round.
+     *
+     * @return the evaluations of the round after all triggers are evaluated or the timeout expires
+     */
+    public RoundResult awaitRound(long round, long timeout) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        RoundResult result = getRound(round);
+        while (result.getMissed() > 0 && System.currentTimeMillis() - start < timeout) {
+            Thread.sleep(50);
+            result = getRound(round);
+        }
+        // Give late duplicates a chance to show up
+        Thread.sleep(500);
+        result = getRound(round);
+        result.time = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    private RoundResult getRound(long round) {
+        RoundResult result = new RoundResult(round);
+        for (Entry<String, Set<String>> entry : triggers.entrySet()) {
+            for (String triggerId : entry.getValue()) {
+                AtomicInteger count = evaluations.get(evaluationKey(entry.getKey(), triggerId, round));
+                if (count == null) {
+                    result.missed++;
+                } else if (count.get() > 1) {
+                    result.duplicates += count.get() - 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-8s %10s %10s %14s%n", "node", "triggers", "alerts", "bytes sent"));
+        for (Node node : nodes) {
+            Collection<String> loaded = node.getLoadedTriggers();
+            report.append(String.format("%-8s %10d %10d %14d%n", node.name, loaded != null ? loaded.size() : -1,
+                    node.alerts.get(), node.getBytesSent()));
+        }
+        return report.toString();
+    }
+
+    private static String dataId(String tenantId, String triggerId) {
+        return tenantId + "-" + triggerId + "-data";
+    }
+
+    private static String evaluationKey(String tenantId, String triggerId, long timestamp) {
+        return tenantId + "/" + triggerId + "/" + timestamp;
+    }
+
+    private static String stack() {
+        try {
+            Class.forName("org.jgroups.protocols.SHARED_LOOPBACK_PING");
+            return STACK;
+        } catch (ClassNotFoundException e) {
+            return LEGACY_STACK;
+        }
+    }
+
+    private static void inject(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static Configuration cacheConfiguration(CacheMode cacheMode) {
+        ConfigurationBuilder builder = new ConfigurationBuilder();
+        builder.clustering().cacheMode(cacheMode);
+        builder.transaction().transactionMode(TransactionMode.TRANSACTIONAL);
+        builder.invocationBatching().enable();
+        return builder.build();
+    }
+
+    /*
+        Definitions service backed by the simulator triggers. A new instance of the definitions is returned on
+        every call, as every node has its own copy in a real cluster.
+     */
+    @SuppressWarnings("unchecked")
+    private Object definitions(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getAllTriggers": {
+                List<Trigger> all = new ArrayList<>();
+                for (Entry<String, Set<String>> entry : triggers.entrySet()) {
+                    for (String triggerId : entry.getValue()) {
+                        all.add(trigger(entry.getKey(), triggerId));
+                    }
+                }
+                return all;
+            }
+            case "getTrigger": {
+                String tenantId = (String) args[0];
+                String triggerId = (String) args[1];
+                return exists(tenantId, triggerId) ? trigger(tenantId, triggerId) : null;
+            }
+            case "getTriggers": {
+                String tenantId = (String) args[0];
+                TriggersCriteria criteria = (TriggersCriteria) args[1];
+                List<Trigger> tenantTriggers = new ArrayList<>();
+                for (String triggerId : triggers.getOrDefault(tenantId, Collections.emptySet())) {
+                    if (criteria == null || criteria.getTriggerIds() == null
+                            || criteria.getTriggerIds().contains(triggerId)) {
+                        tenantTriggers.add(trigger(tenantId, triggerId));
+                    }
+                }
+                return new Page<>(tenantTriggers, Pager.unlimited(), tenantTriggers.size());
+            }
+            case "getTriggerConditions": {
+                String tenantId = (String) args[0];
+                String triggerId = (String) args[1];
+                Mode mode = (Mode) args[2];
+                List<Condition> conditions = new ArrayList<>();
+                if (exists(tenantId, triggerId) && (mode == null || mode == Mode.FIRING)) {
+                    conditions.add(condition(tenantId, triggerId));
+                }
+                return conditions;
+            }
+            case "getConditions": {
+                String tenantId = (String) args[0];
+                Collection<String> triggerIds = args.length > 1 ? (Collection<String>) args[1] : null;
+                List<Condition> conditions = new ArrayList<>();
+                for (String triggerId : triggers.getOrDefault(tenantId, Collections.emptySet())) {
+                    if (triggerIds == null || triggerIds.contains(triggerId)) {
+                        conditions.add(condition(tenantId, triggerId));
+                    }
+                }
+                return conditions;
+            }
+            case "getTriggerDampenings":
+            case "getDampenings":
+                // Rules insert a default strict dampening
+                return new ArrayList<>();
+            default:
+                throw new UnsupportedOperationException("DefinitionsService." + method.getName());
+        }
+    }
+
+    private boolean exists(String tenantId, String triggerId) {
+        return triggers.containsKey(tenantId) && triggers.get(tenantId).contains(triggerId);
+    }
+
+    private static Trigger trigger(String tenantId, String triggerId) {
+        Trigger trigger = new Trigger(tenantId, triggerId, "Simulated " + triggerId);
+        trigger.setEnabled(true);
+        return trigger;
+    }
+
+    private static Condition condition(String tenantId, String triggerId) {
+        ThresholdCondition condition = new ThresholdCondition(triggerId, 1, 1, dataId(tenantId, triggerId),
+                ThresholdCondition.Operator.GT, THRESHOLD);
+        condition.setTenantId(tenantId);
+        return condition;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> service, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(ClusterSimulator.class.getClassLoader(), new Class[] { service },
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        switch (method.getName()) {
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            default:
+                                return service.getSimpleName() + "@simulator";
+                        }
+                    }
+                    return handler.invoke(proxy, method, args);
+                });
+    }
+
+    /**
+     * A node of the simulated cluster.
+     */
+    public class Node {
+        private final String name;
+        private final DefaultCacheManager cacheManager;
+        private final PartitionManagerImpl partitionManager;
+        private final DefinitionsCache definitionsCache = new DefinitionsCache(1000, 0, TimeUnit.SECONDS);
+        private final AlertsEngineImpl engine;
+        private final AtomicInteger alerts = new AtomicInteger();
+
+        Node(String name) throws Exception {
+            this.name = name;
+
+            GlobalConfigurationBuilder global = GlobalConfigurationBuilder.defaultClusteredBuilder();
+            global.globalJmxStatistics().allowDuplicateDomains(true);
+            global.transport().clusterName(CLUSTER_NAME).nodeName(name);
+            if ("jgroups".equals(messaging)) {
+                /*
+                    Channel multiplexed like in the application server, so partition messages can be sent on it
+                 */
+                JChannel channel = new JChannel(stack());
+                channel.setUpHandler(new MuxUpHandler());
+                LoopbackChannelLookup.next.set(channel);
+                global.transport().addProperty("channelLookup", LoopbackChannelLookup.class.getName());
+            } else {
+                global.transport().addProperty("configurationFile", stack());
+            }
+            cacheManager = new DefaultCacheManager(global.build(), cacheConfiguration(CacheMode.REPL_SYNC), false);
+            cacheManager.defineConfiguration("partition", cacheConfiguration(CacheMode.REPL_SYNC));
+            cacheManager.defineConfiguration("triggers", cacheConfiguration(CacheMode.REPL_ASYNC));
+            cacheManager.defineConfiguration("data", cacheConfiguration(CacheMode.REPL_ASYNC));
+            cacheManager.start();
+            LoopbackChannelLookup.next.remove();
+
+            DefinitionsService definitionsService = proxy(DefinitionsService.class,
+                    (proxy, method, args) -> definitions(method, args));
+            AlertsService alertsService = proxy(AlertsService.class, (proxy, method, args) -> {
+                if ("addAlerts".equals(method.getName())) {
+                    addAlerts((Collection<Alert>) args[0]);
+                }
+                return null;
+            });
+            ActionsService actionsService = proxy(ActionsService.class, (proxy, method, args) -> null);
+
+            System.setProperty("hawkular-alerts.partition-messaging", messaging);
+            partitionManager = new PartitionManagerImpl();
+            partitionManager.definitionsService = definitionsService;
+            partitionManager.definitionsListener = definitionsCache::invalidate;
+            inject(partitionManager, "cacheManager", cacheManager);
+            inject(partitionManager, "partitionCache", cacheManager.getCache("partition"));
+            inject(partitionManager, "triggersCache", cacheManager.getCache("triggers"));
+            inject(partitionManager, "dataCache", cacheManager.getCache("data"));
+            partitionManager.init();
+
+            engine = new AlertsEngineImpl();
+            engine.setRules(new DroolsRulesEngineImpl());
+            engine.setDefinitions(definitionsService);
+            engine.setActions(actionsService);
+            engine.setAlertsService(alertsService);
+            engine.partitionManager = partitionManager;
+            engine.initServices();
+        }
+
+        private void addAlerts(Collection<Alert> newAlerts) {
+            for (Alert alert : newAlerts) {
+                alerts.incrementAndGet();
+                long timestamp = 0;
+                for (Set<ConditionEval> evalSet : alert.getEvalSets()) {
+                    for (ConditionEval eval : evalSet) {
+                        timestamp = eval.getDataTimestamp();
+                    }
+                }
+                evaluations.computeIfAbsent(evaluationKey(alert.getTenantId(), alert.getTriggerId(), timestamp),
+                        k -> new AtomicInteger()).incrementAndGet();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public AlertsEngineImpl getEngine() {
+            return engine;
+        }
+
+        public PartitionManagerImpl getPartitionManager() {
+            return partitionManager;
+        }
+
+        public DefinitionsCache getDefinitionsCache() {
+            return definitionsCache;
+        }
+
+        /**
+         * @return the tenantId/triggerId of the triggers loaded on the rules engine of the node,
+         *         null if the rules engine is busy
+         */
+        public Collection<String> getLoadedTriggers() {
+            try {
+                List<String> loaded = new ArrayList<>();
+                for (Object fact : engine.getRules().getFacts(f -> f instanceof Trigger)) {
+                    Trigger trigger = (Trigger) fact;
+                    loaded.add(trigger.getTenantId() + "/" + trigger.getId());
+                }
+                return loaded;
+            } catch (RuntimeException e) {
+                // The working memory is modified concurrently by the rules and the migration tasks
+                return null;
+            }
+        }
+
+        /**
+         * @return the bytes sent by the JGroups transport of the node, including the cache replication
+         */
+        public long getBytesSent() {
+            Channel channel = ((JGroupsTransport) cacheManager.getTransport()).getChannel();
+            return channel.getProtocolStack().getTransport().getNumBytesSent();
+        }
+
+        void stop() {
+            engine.shutdown();
+            partitionManager.shutdown();
+            cacheManager.stop();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Evaluations of the triggers for a round of data.
+     */
+    public static class RoundResult {
+        private final long round;
+        private int missed = 0;
+        private int duplicates = 0;
+        private long time = 0;
+
+        RoundResult(long round) {
+            this.round = round;
+        }
+
+        public int getMissed() {
+            return missed;
+        }
+
+        public int getDuplicates() {
+            return duplicates;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        @Override
+        public String toString() {
+            return "RoundResult" + '[' +
+                    "round=" + round +
+                    ", missed=" + missed +
+                    ", duplicates=" + duplicates +
+                    ", time=" + time +
+                    ']';
+        }
+    }
+
+    /**
+     * Hands a channel created by the simulator to the Infinispan transport of the node being started.
+     * Methods of the JGroupsChannelLookup of Infinispan 5.2 and 8.0 are both implemented.
+     */
+    public static class LoopbackChannelLookup implements JGroupsChannelLookup {
+        static final ThreadLocal<Channel> next = new ThreadLocal<>();
+
+        public Channel getJGroupsChannel(Properties p) {
+            return next.get();
+        }
+
+        public boolean shouldStartAndConnect() {
+            return true;
+        }
+
+        public boolean shouldStopAndDisconnect() {
+            return true;
+        }
+
+        public boolean shouldConnect() {
+            return true;
+        }
+
+        public boolean shouldDisconnect() {
+            return true;
+        }
+
+        public boolean shouldClose() {
+            return true;
+        }
+    }
+}
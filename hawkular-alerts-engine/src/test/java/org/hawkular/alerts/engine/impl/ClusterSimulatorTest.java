@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.hawkular.alerts.engine.impl.ClusterSimulator.Node;
+import org.hawkular.alerts.engine.impl.ClusterSimulator.RoundResult;
+import org.jboss.logging.Logger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Partitioning, rebalancing and data forwarding of the PartitionManager on a simulated cluster.
+ *
+ * Size of the cluster can be changed with the simulator.nodes, simulator.tenants and simulator.triggers system
+ * properties, and the messaging with simulator.messaging ("jgroups" or "cache").
+ */
+public class ClusterSimulatorTest {
+    private static final Logger log = Logger.getLogger(ClusterSimulatorTest.class);
+
+    private static final int NUM_NODES = Integer.getInteger("simulator.nodes", 3);
+    private static final int NUM_TENANTS = Integer.getInteger("simulator.tenants", 5);
+    private static final int NUM_TRIGGERS = Integer.getInteger("simulator.triggers", 100);
+    private static final String MESSAGING = System.getProperty("simulator.messaging", "jgroups");
+    private static final long TIMEOUT = 60000;
+
+    private static final String[] ENGINE_PROPERTIES = {
+            "hawkular-alerts.engine-delay", "hawkular-alerts.engine-period",
+            "hawkular-alerts.engine-migration-period", "hawkular-alerts.partition-messaging"
+    };
+
+    private ClusterSimulator cluster;
+
+    @BeforeClass
+    public static void engineProperties() {
+        System.setProperty("hawkular-alerts.engine-delay", "100");
+        System.setProperty("hawkular-alerts.engine-period", "200");
+        System.setProperty("hawkular-alerts.engine-migration-period", "100");
+    }
+
+    @AfterClass
+    public static void clearProperties() {
+        for (String property : ENGINE_PROPERTIES) {
+            System.clearProperty(property);
+        }
+    }
+
+    @Before
+    public void before() {
+        cluster = new ClusterSimulator(MESSAGING);
+        cluster.addTriggers(NUM_TENANTS, NUM_TRIGGERS);
+    }
+
+    @After
+    public void after() {
+        cluster.stop();
+    }
+
+    private void evaluate(String phase, long round) throws Exception {
+        cluster.sendData(round);
+        RoundResult result = cluster.awaitRound(round, TIMEOUT);
+        log.info(phase + ": " + result + "\n" + cluster.report());
+        assertEquals(phase + " missed evaluations", 0, result.getMissed());
+        assertEquals(phase + " duplicated evaluations", 0, result.getDuplicates());
+    }
+
+    @Test
+    public void rebalance() throws Exception {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < NUM_NODES; i++) {
+            cluster.startNode();
+        }
+        long balanced = cluster.awaitBalanced(TIMEOUT);
+        assertTrue("Cluster not balanced after start", balanced >= 0);
+        log.info(NUM_NODES + " nodes with " + cluster.getNumTriggers() + " triggers balanced in "
+                + (System.currentTimeMillis() - start) + " ms");
+        evaluate("Start", 1000L);
+
+        cluster.startNode();
+        balanced = cluster.awaitBalanced(TIMEOUT);
+        assertTrue("Cluster not balanced after a node joined", balanced >= 0);
+        log.info("Rebalanced after join in " + balanced + " ms");
+        evaluate("Join", 2000L);
+
+        Node coordinator = cluster.getNodes().get(0);
+        cluster.stopNode(coordinator);
+        balanced = cluster.awaitBalanced(TIMEOUT);
+        assertTrue("Cluster not balanced after the coordinator left", balanced >= 0);
+        log.info("Rebalanced after leave in " + balanced + " ms");
+        evaluate("Leave", 3000L);
+    }
+
+    @Test
+    public void reload() throws Exception {
+        for (int i = 0; i < NUM_NODES; i++) {
+            cluster.startNode();
+        }
+        assertTrue(cluster.awaitBalanced(TIMEOUT) >= 0);
+
+        cluster.addTriggers(NUM_TENANTS + 1, NUM_TRIGGERS);
+        long start = System.currentTimeMillis();
+        cluster.getNodes().get(NUM_NODES - 1).getEngine().reload();
+        long balanced = cluster.awaitBalanced(TIMEOUT);
+        assertTrue("Cluster not balanced after reload", balanced >= 0);
+        log.info("Reload of " + cluster.getNumTriggers() + " triggers in " + (System.currentTimeMillis() - start)
+                + " ms");
+        evaluate("Reload", 4000L);
+    }
+
+    @Test
+    public void definitionsInvalidation() throws Exception {
+        for (int i = 0; i < NUM_NODES; i++) {
+            cluster.startNode();
+        }
+        assertTrue(cluster.awaitBalanced(TIMEOUT) >= 0);
+
+        String key = DefinitionsCache.triggerKey("tenant0", "trigger0");
+        for (Node node : cluster.getNodes()) {
+            assertEquals("v1", node.getDefinitionsCache().get(key, () -> "v1"));
+            assertEquals("v1", node.getDefinitionsCache().get(key, () -> "v2"));
+        }
+
+        Node sender = cluster.getNodes().get(0);
+        List<String> keys = DefinitionsCache.triggerKeys("tenant0", "trigger0");
+        sender.getDefinitionsCache().invalidate(keys);
+        sender.getPartitionManager().notifyDefinitionsInvalidation(keys);
+
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        for (Node node : cluster.getNodes()) {
+            while (node.getDefinitionsCache().getSize() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(node + " kept a stale definition", "v2", node.getDefinitionsCache().get(key, () -> "v2"));
+        }
+    }
+}
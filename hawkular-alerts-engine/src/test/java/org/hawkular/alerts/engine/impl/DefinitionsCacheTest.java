@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.junit.Test;
+
+public class DefinitionsCacheTest {
+
+    @Test
+    public void readThrough() throws Exception {
+        DefinitionsCache cache = new DefinitionsCache(100, 0, TimeUnit.SECONDS);
+        AtomicInteger loads = new AtomicInteger();
+        String key = DefinitionsCache.triggerKey("tenant", "trigger");
+
+        for (int i = 0; i < 3; i++) {
+            Trigger trigger = cache.get(key, () -> {
+                loads.incrementAndGet();
+                return new Trigger("tenant", "trigger", "Trigger");
+            });
+            assertEquals("trigger", trigger.getId());
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(2.0 / 3, cache.getHitRatio(), 0.001);
+
+        cache.reset();
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void copiesAreIndependent() throws Exception {
+        DefinitionsCache cache = new DefinitionsCache(100, 0, TimeUnit.SECONDS);
+        String key = DefinitionsCache.triggerKey("tenant", "trigger");
+
+        Trigger loaded = cache.get(key, () -> new Trigger("tenant", "trigger", "Trigger"));
+        loaded.setName("Modified by the caller");
+        Trigger cached = cache.get(key, () -> null);
+        cached.addContext("k", "v");
+
+        Trigger again = cache.get(key, () -> null);
+        assertEquals("Trigger", again.getName());
+        assertTrue(again.getContext().isEmpty());
+    }
+
+    @Test
+    public void nullIsNotCached() throws Exception {
+        DefinitionsCache cache = new DefinitionsCache(100, 0, TimeUnit.SECONDS);
+        String key = DefinitionsCache.actionKey("tenant", "email", "action");
+
+        assertNull(cache.get(key, () -> null));
+        assertEquals("created", cache.get(key, () -> "created"));
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void boundedSize() throws Exception {
+        DefinitionsCache cache = new DefinitionsCache(10, 0, TimeUnit.SECONDS);
+        for (int i = 0; i < 100; i++) {
+            String id = "trigger" + i;
+            cache.get(DefinitionsCache.triggerKey("tenant", id), () -> id);
+        }
+        assertTrue(cache.getSize() <= 10);
+        assertTrue(cache.getEvictions() >= 90);
+    }
+
+    @Test
+    public void expiration() throws Exception {
+        DefinitionsCache cache = new DefinitionsCache(10, 50, TimeUnit.MILLISECONDS);
+        String key = DefinitionsCache.actionPluginKey("email");
+        cache.get(key, () -> "v1");
+        Thread.sleep(100);
+        assertEquals("v2", cache.get(key, () -> "v2"));
+    }
+
+    @Test
+    public void invalidation() throws Exception {
+        DefinitionsCache cache = new DefinitionsCache(100, 0, TimeUnit.SECONDS);
+        for (Mode mode : Mode.values()) {
+            cache.get(DefinitionsCache.conditionsKey("tenant", "trigger", mode), () -> "conditions");
+            cache.get(DefinitionsCache.dampeningsKey("tenant", "trigger", mode), () -> "dampenings");
+        }
+        cache.get(DefinitionsCache.triggerKey("tenant", "trigger"), () -> "trigger");
+        cache.get(DefinitionsCache.triggerKey("tenant", "other"), () -> "other");
+
+        cache.invalidate(DefinitionsCache.conditionsKeys("tenant", "trigger"));
+        assertEquals(1 + Mode.values().length + 1, cache.getSize());
+
+        cache.invalidate(DefinitionsCache.triggerKeys("tenant", "trigger"));
+        assertEquals(1, cache.getSize());
+        assertEquals("other", cache.get(DefinitionsCache.triggerKey("tenant", "other"), () -> "stale"));
+    }
+
+    @Test
+    public void keysAreUnambiguous() {
+        assertFalse(DefinitionsCache.triggerKey("a|b", "c").equals(DefinitionsCache.triggerKey("a", "b|c")));
+        assertFalse(DefinitionsCache.conditionsKey("tenant", "trigger", null)
+                .equals(DefinitionsCache.dampeningsKey("tenant", "trigger", null)));
+    }
+
+    /*
+        A change committed while a read is loading the previous definition must not leave it in the cache
+     */
+    @Test
+    public void invalidationDuringLoad() throws Exception {
+        DefinitionsCache cache = new DefinitionsCache(100, 0, TimeUnit.SECONDS);
+        String key = DefinitionsCache.triggerKey("tenant", "trigger");
+
+        String loaded = cache.get(key, () -> {
+            cache.invalidate(Collections.singletonList(key));
+            return "previous";
+        });
+        assertEquals("previous", loaded);
+        assertEquals(0, cache.getSize());
+        assertEquals("current", cache.get(key, () -> "current"));
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        DefinitionsCache cache = new DefinitionsCache(0, 0, TimeUnit.SECONDS);
+        AtomicInteger loads = new AtomicInteger();
+        String key = DefinitionsCache.triggerKey("tenant", "trigger");
+        for (int i = 0; i < 3; i++) {
+            cache.get(key, loads::incrementAndGet);
+        }
+        assertFalse(cache.isEnabled());
+        assertEquals(3, loads.get());
+        assertEquals(0, cache.getSize());
+    }
+}
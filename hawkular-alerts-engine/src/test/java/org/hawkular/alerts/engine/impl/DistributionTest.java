@@ -16,10 +16,15 @@
  */
 package org.hawkular.alerts.engine.impl;
 
+import static org.junit.Assert.assertEquals;
+
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.hawkular.alerts.engine.impl.PartitionManagerImpl.PartitionEntry;
 import org.junit.Test;
@@ -182,5 +187,36 @@ public class DistributionTest {
         }
     }
 
+    @Test
+    public void nodeTriggers() {
+        PartitionManagerImpl pm = new PartitionManagerImpl();
+
+        Map<Integer, Integer> buckets = new HashMap<>();
+        buckets.put(0, 1000);
+        buckets.put(1, 1001);
+        buckets.put(2, 1002);
 
+        Map<String, Set<String>> triggers = new LinkedHashMap<>();
+        List<PartitionEntry> entries = generateTriggers(3, 1000);
+        for (PartitionEntry entry : entries) {
+            triggers.computeIfAbsent(entry.getTenantId(), t -> new LinkedHashSet<>()).add(entry.getTriggerId());
+        }
+
+        Map<Integer, Map<String, Set<String>>> nodeTriggers = pm.calculateNodeTriggers(triggers, buckets);
+        assertEquals(3, nodeTriggers.size());
+
+        Map<PartitionEntry, Integer> partition = pm.calculatePartition(entries, buckets);
+        int total = 0;
+        for (Map.Entry<Integer, Map<String, Set<String>>> node : nodeTriggers.entrySet()) {
+            for (Map.Entry<String, Set<String>> tenant : node.getValue().entrySet()) {
+                for (String triggerId : tenant.getValue()) {
+                    assertEquals(partition.get(new PartitionEntry(tenant.getKey(), triggerId)), node.getKey());
+                    total++;
+                }
+            }
+            print("Node " + node.getKey() + ": " + node.getValue().values().stream().mapToInt(Set::size).sum()
+                    + " triggers");
+        }
+        assertEquals(entries.size(), total);
+    }
 }
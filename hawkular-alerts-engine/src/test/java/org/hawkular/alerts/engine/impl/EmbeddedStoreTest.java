@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EmbeddedStoreTest {
+
+    private File dir;
+    private EmbeddedStore store;
+
+    @Before
+    public void openStore() throws IOException {
+        dir = Files.createTempDirectory("embedded-store-test").toFile();
+        store = new EmbeddedStore(dir, 0, Long.MAX_VALUE);
+    }
+
+    @After
+    public void deleteStore() throws IOException {
+        store.close();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private EmbeddedStore reopen() throws IOException {
+        store.close();
+        store = new EmbeddedStore(dir, 0, Long.MAX_VALUE);
+        return store;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(UTF_8);
+    }
+
+    private Map<String, String> table(String table) {
+        Map<String, String> values = new HashMap<>();
+        store.forEach(table, (key, value) -> values.put(key, new String(value, UTF_8)));
+        return values;
+    }
+
+    @Test
+    public void replay() throws IOException {
+        store.put("t1", "k1", bytes("v1"));
+        store.put("t1", "k1", bytes("v2"));
+        store.put("t1", "k2", bytes("v3"));
+        store.put("t2", "k1", new byte[0]);
+        store.remove("t1", "k2");
+        store.remove("t1", "unknown");
+
+        reopen();
+        assertArrayEquals(bytes("v2"), store.get("t1", "k1"));
+        assertNull(store.get("t1", "k2"));
+        assertArrayEquals(new byte[0], store.get("t2", "k1"));
+        assertEquals(Collections.singletonMap("k1", "v2"), table("t1"));
+        assertEquals(2, store.getKeys());
+    }
+
+    @Test
+    public void expiration() throws IOException {
+        long now = System.currentTimeMillis();
+        store.put("t1", "expired", bytes("v1"), now - 1);
+        store.put("t1", "live", bytes("v2"), now + 60000);
+        assertNull(store.get("t1", "expired"));
+        assertArrayEquals(bytes("v2"), store.get("t1", "live"));
+
+        reopen();
+        assertEquals(Collections.singletonMap("live", "v2"), table("t1"));
+    }
+
+    @Test
+    public void tornTail() throws IOException {
+        store.put("t1", "k1", bytes("v1"));
+        store.put("t1", "k2", bytes("v2"));
+        long end = store.getLogSize();
+        store.close();
+
+        // a record header whose bytes were not written completely
+        try (RandomAccessFile log = new RandomAccessFile(new File(dir, EmbeddedStore.LOG_FILE), "rw")) {
+            log.seek(end);
+            log.writeInt(100);
+            log.writeInt(12345);
+            log.write(new byte[] { 1, 0, 0 });
+        }
+
+        store = new EmbeddedStore(dir, 0, Long.MAX_VALUE);
+        assertEquals(end, store.getLogSize());
+        assertEquals(2, store.getKeys());
+
+        // the tail is overwritten by the next records
+        store.put("t1", "k3", bytes("v3"));
+        reopen();
+        assertEquals(3, store.getKeys());
+        assertArrayEquals(bytes("v3"), store.get("t1", "k3"));
+    }
+
+    @Test
+    public void compaction() throws IOException {
+        for (int i = 0; i < 1000; i++) {
+            store.put("t1", "k" + (i % 10), bytes("v" + i));
+        }
+        store.put("t1", "expired", bytes("v"), System.currentTimeMillis() - 1);
+        long size = store.getLogSize();
+
+        store.compact();
+        assertEquals(1, store.getCompactions());
+        assertTrue(store.getLogSize() < size / 50);
+        assertArrayEquals(bytes("v999"), store.get("t1", "k9"));
+        assertNull(store.get("t1", "expired"));
+        assertFalse(new File(dir, EmbeddedStore.COMPACTION_FILE).exists());
+
+        // the compacted log accepts writes and replays
+        store.put("t1", "k0", bytes("last"));
+        reopen();
+        assertEquals(10, store.getKeys());
+        assertArrayEquals(bytes("last"), store.get("t1", "k0"));
+        assertArrayEquals(bytes("v991"), store.get("t1", "k1"));
+    }
+
+    @Test
+    public void growth() throws IOException {
+        byte[] value = new byte[64 * 1024];
+        Arrays.fill(value, (byte) 7);
+        for (int i = 0; i < 100; i++) {
+            store.put("t1", "k" + i, value);
+        }
+        assertTrue(store.getLogSize() > 100 * value.length);
+
+        reopen();
+        assertEquals(100, store.getKeys());
+        assertArrayEquals(value, store.get("t1", "k99"));
+    }
+
+    @Test
+    public void keys() {
+        String key = EmbeddedStore.key("a|1:b", "", null, "c");
+        assertEquals(Arrays.asList("a|1:b", "", "", "c"), EmbeddedStore.parts(key));
+        assertFalse(EmbeddedStore.key("a", "bc").equals(EmbeddedStore.key("ab", "c")));
+    }
+}
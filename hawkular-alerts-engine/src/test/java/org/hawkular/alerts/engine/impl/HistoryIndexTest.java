@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.hawkular.alerts.api.model.Severity;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.paging.Order;
+import org.junit.Test;
+
+public class HistoryIndexTest {
+
+    private static final long BUCKET = 1000;
+
+    private static HistoryIndex.Entry alert(String id, long ctime, String triggerId, Alert.Status status,
+            Severity severity) {
+        HistoryIndex.Entry entry = new HistoryIndex.Entry(id, ctime);
+        entry.triggerId = triggerId;
+        entry.status = status;
+        entry.severity = severity;
+        return entry;
+    }
+
+    private static HistoryIndex.Entries index(HistoryIndex.Entry... entries) {
+        HistoryIndex.Entries index = new HistoryIndex.Entries(100, BUCKET);
+        index.complete(Arrays.asList(entries));
+        return index;
+    }
+
+    private static HistoryIndex.Entries sample() {
+        return index(
+                alert("a1", 100, "t1", Alert.Status.OPEN, Severity.LOW),
+                alert("a2", 1500, "t1", Alert.Status.RESOLVED, Severity.HIGH),
+                alert("a3", 2500, "t2", Alert.Status.OPEN, Severity.CRITICAL),
+                alert("a4", 2999, "t2", Alert.Status.ACKNOWLEDGED, Severity.LOW),
+                alert("a5", 4000, "t3", Alert.Status.OPEN, Severity.MEDIUM));
+    }
+
+    private static HashSet<String> select(HistoryIndex.Entries index, HistoryIndex.Filter filter) {
+        return new HashSet<>(index.select(filter, null));
+    }
+
+    private static HashSet<String> ids(String... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    @Test
+    public void filters() {
+        HistoryIndex.Entries index = sample();
+
+        assertEquals(ids("a1", "a2", "a3", "a4", "a5"), select(index, new HistoryIndex.Filter()));
+        assertEquals(ids("a1", "a2", "a5"), select(index, new HistoryIndex.Filter()
+                .triggerIds(Arrays.asList("t1", "t3", "unknown"))));
+        assertEquals(ids("a1", "a3", "a5"), select(index, new HistoryIndex.Filter()
+                .statuses(Collections.singleton(Alert.Status.OPEN))));
+        assertEquals(ids("a3"), select(index, new HistoryIndex.Filter()
+                .statuses(Collections.singleton(Alert.Status.OPEN))
+                .severities(Arrays.asList(Severity.CRITICAL, Severity.HIGH))));
+        assertEquals(ids("a2"), select(index, new HistoryIndex.Filter()
+                .ids(Arrays.asList("a1", "a2", "unknown"))
+                .ids(Arrays.asList("a2", "a3"))));
+        assertTrue(select(index, new HistoryIndex.Filter().triggerIds(Collections.emptyList())).isEmpty());
+    }
+
+    @Test
+    public void ctimes() {
+        HistoryIndex.Entries index = sample();
+
+        assertEquals(ids("a2", "a3", "a4"), select(index, new HistoryIndex.Filter().ctimes(1500L, 2999L)));
+        assertEquals(ids("a3"), select(index, new HistoryIndex.Filter().ctimes(1501L, 2998L)));
+        assertEquals(ids("a3", "a4", "a5"), select(index, new HistoryIndex.Filter().ctimes(2000L, null)));
+        assertEquals(ids("a1", "a2"), select(index, new HistoryIndex.Filter().ctimes(null, 1999L)));
+        assertEquals(ids("a1", "a2", "a3", "a4", "a5"), select(index, new HistoryIndex.Filter().ctimes(-5000L,
+                null)));
+        assertTrue(select(index, new HistoryIndex.Filter().ctimes(3000L, 2000L)).isEmpty());
+        assertEquals(ids("a4"), select(index, new HistoryIndex.Filter().ctimes(2600L, 3500L)
+                .triggerIds(Collections.singleton("t2"))));
+    }
+
+    @Test
+    public void updates() {
+        HistoryIndex.Entries index = sample();
+
+        index.put(Collections.singletonList(alert("a1", 100, "t1", Alert.Status.RESOLVED, Severity.LOW)));
+        index.put(Collections.singletonList(alert("a6", 5000, "t1", Alert.Status.OPEN, Severity.LOW)));
+        index.remove(Arrays.asList("a3", "unknown"));
+
+        assertEquals(5, index.size());
+        assertEquals(ids("a5", "a6"), select(index, new HistoryIndex.Filter()
+                .statuses(Collections.singleton(Alert.Status.OPEN))));
+        assertEquals(ids("a1", "a2"), select(index, new HistoryIndex.Filter()
+                .statuses(Collections.singleton(Alert.Status.RESOLVED))));
+        assertEquals(ids("a4"), select(index, new HistoryIndex.Filter().triggerIds(Collections.singleton("t2"))));
+
+        // the int of a removed entry is reused
+        index.put(Collections.singletonList(alert("a7", 2500, "t4", Alert.Status.OPEN, Severity.HIGH)));
+        assertEquals(ids("a7"), select(index, new HistoryIndex.Filter().triggerIds(Collections.singleton("t4"))));
+        assertEquals(ids("a4", "a7"), select(index, new HistoryIndex.Filter().ctimes(2000L, 2999L)));
+    }
+
+    @Test
+    public void order() {
+        HistoryIndex.Entries index = sample();
+
+        List<String> byCtime = index.select(new HistoryIndex.Filter(), HistoryIndex.alertsOrder(
+                Collections.singletonList(Order.by("ctime", Order.Direction.DESCENDING))));
+        assertEquals(Arrays.asList("a5", "a4", "a3", "a2", "a1"), byCtime);
+
+        // successive sorts, the last order is the primary one
+        List<String> bySeverity = index.select(new HistoryIndex.Filter(), HistoryIndex.alertsOrder(
+                Arrays.asList(Order.by("ctime", Order.Direction.DESCENDING),
+                        Order.by("severity", Order.Direction.ASCENDING))));
+        assertEquals(Arrays.asList("a4", "a1", "a5", "a2", "a3"), bySeverity);
+
+        assertNull(HistoryIndex.alertsOrder(Collections.singletonList(Order.by("trigger.name",
+                Order.Direction.ASCENDING))));
+        assertNull(HistoryIndex.eventsOrder(Collections.singletonList(Order.by("category",
+                Order.Direction.ASCENDING))));
+    }
+
+    @Test
+    public void writesDuringBuild() {
+        HistoryIndex.Entries index = new HistoryIndex.Entries(100, BUCKET);
+        assertFalse(index.isReady());
+
+        index.put(Collections.singletonList(alert("a1", 100, "t1", Alert.Status.RESOLVED, Severity.LOW)));
+        index.remove(Collections.singletonList("a2"));
+        index.put(Collections.singletonList(alert("a9", 9000, "t9", Alert.Status.OPEN, Severity.LOW)));
+
+        index.complete(Arrays.asList(
+                alert("a1", 100, "t1", Alert.Status.OPEN, Severity.LOW),
+                alert("a2", 1500, "t1", Alert.Status.OPEN, Severity.HIGH)));
+        assertTrue(index.isReady());
+
+        assertEquals(ids("a1", "a9"), select(index, new HistoryIndex.Filter()));
+        assertEquals(ids("a9"), select(index, new HistoryIndex.Filter()
+                .statuses(Collections.singleton(Alert.Status.OPEN))));
+    }
+
+    @Test
+    public void overflow() {
+        HistoryIndex.Entries index = new HistoryIndex.Entries(3, BUCKET);
+        index.complete(null);
+        assertFalse(index.isReady());
+        assertTrue(index.isOverflow());
+
+        index = new HistoryIndex.Entries(3, BUCKET);
+        List<HistoryIndex.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            entries.add(alert("a" + i, i, "t", Alert.Status.OPEN, Severity.LOW));
+        }
+        index.complete(entries);
+        assertTrue(index.isReady());
+
+        index.put(Collections.singletonList(alert("a3", 3, "t", Alert.Status.OPEN, Severity.LOW)));
+        assertTrue(index.isOverflow());
+        assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class IdBitmapTest {
+
+    private static int[] toArray(TreeSet<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    public void addAndRemove() {
+        IdBitmap bitmap = new IdBitmap();
+        assertTrue(bitmap.isEmpty());
+
+        assertTrue(bitmap.add(5));
+        assertFalse(bitmap.add(5));
+        assertTrue(bitmap.add(70000));
+        assertTrue(bitmap.add(0));
+        assertEquals(3, bitmap.cardinality());
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.contains(6));
+        assertArrayEquals(new int[] { 0, 5, 70000 }, bitmap.toArray());
+
+        assertTrue(bitmap.remove(70000));
+        assertFalse(bitmap.remove(70000));
+        assertFalse(bitmap.remove(-1));
+        assertArrayEquals(new int[] { 0, 5 }, bitmap.toArray());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeId() {
+        new IdBitmap().add(-1);
+    }
+
+    @Test
+    public void denseChunks() {
+        IdBitmap bitmap = new IdBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 20000; i += 2) {
+            bitmap.add(i);
+            expected.add(i);
+        }
+        assertEquals(expected.size(), bitmap.cardinality());
+        assertArrayEquals(toArray(expected), bitmap.toArray());
+
+        for (int i = 0; i < 20000; i += 4) {
+            bitmap.remove(i);
+            expected.remove(i);
+        }
+        assertEquals(expected.size(), bitmap.cardinality());
+        assertArrayEquals(toArray(expected), bitmap.toArray());
+        assertTrue(bitmap.contains(2));
+        assertFalse(bitmap.contains(4));
+    }
+
+    @Test
+    public void andOr() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            int range = round % 2 == 0 ? 200000 : 10000;
+            IdBitmap a = new IdBitmap();
+            IdBitmap b = new IdBitmap();
+            TreeSet<Integer> ea = new TreeSet<>();
+            TreeSet<Integer> eb = new TreeSet<>();
+            for (int i = 0; i < 6000; i++) {
+                int x = random.nextInt(range);
+                int y = random.nextInt(range);
+                a.add(x);
+                ea.add(x);
+                b.add(y);
+                eb.add(y);
+            }
+
+            TreeSet<Integer> and = new TreeSet<>(ea);
+            and.retainAll(eb);
+            assertArrayEquals(toArray(and), a.and(b).toArray());
+
+            TreeSet<Integer> or = new TreeSet<>(ea);
+            or.addAll(eb);
+            assertArrayEquals(toArray(or), a.or(b).toArray());
+            assertArrayEquals(toArray(or), IdBitmap.or(Arrays.asList(a, b, new IdBitmap())).toArray());
+
+            // operands are not modified
+            assertArrayEquals(toArray(ea), a.toArray());
+            assertArrayEquals(toArray(eb), b.toArray());
+        }
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        IdBitmap bitmap = IdBitmap.of(1, 2, 3);
+        IdBitmap copy = bitmap.copy();
+        copy.add(4);
+        bitmap.remove(1);
+        assertArrayEquals(new int[] { 2, 3 }, bitmap.toArray());
+        assertArrayEquals(new int[] { 1, 2, 3, 4 }, copy.toArray());
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(0.99), 0);
+        assertEquals(0, histogram.getMean(), 0);
+
+        for (int i = 0; i < 90; i++) {
+            histogram.update(TimeUnit.MICROSECONDS.toNanos(500));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.update(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals((90 * 0.5 + 10 * 100) / 100, histogram.getMean(), 0.001);
+        assertEquals(100, histogram.getMax(), 0.001);
+        // 500 us fall in the bucket up to 512 us
+        assertEquals(0.512, histogram.getPercentile(0.5), 0.001);
+        assertEquals(0.512, histogram.getPercentile(0.9), 0.001);
+        // bounded by the max
+        assertEquals(100, histogram.getPercentile(0.99), 0.001);
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax(), 0);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hawkular.alerts.api.model.paging.Order;
+import org.hawkular.alerts.api.model.paging.Page;
+import org.hawkular.alerts.api.model.paging.Pager;
+import org.junit.Test;
+
+public class PageCursorTest {
+
+    private static final Order BY_ID = Order.by("alertId", Order.Direction.ASCENDING);
+    private static final Order BY_CTIME = Order.by("ctime", Order.Direction.DESCENDING);
+
+    @Test
+    public void keyRoundTrip() {
+        String encoded = new PageCursor(PageCursor.Type.KEY, Arrays.asList(BY_CTIME), "1450000000000",
+                "alert|with,separators:").encode();
+        assertTrue(encoded, encoded.matches("[A-Za-z0-9_-]+"));
+
+        PageCursor decoded = PageCursor.decode(encoded, PageCursor.Type.KEY, Arrays.asList(BY_CTIME));
+        assertEquals(Arrays.asList("1450000000000", "alert|with,separators:"), decoded.getValues());
+
+        assertNull(PageCursor.decode(null, PageCursor.Type.KEY, Arrays.asList(BY_CTIME)));
+        assertNull(PageCursor.decode("", PageCursor.Type.KEY, Arrays.asList(BY_CTIME)));
+    }
+
+    @Test
+    public void rejectInvalidCursors() {
+        String encoded = new PageCursor(PageCursor.Type.KEY, Arrays.asList(BY_CTIME), "1", "a").encode();
+        List<String> invalid = Arrays.asList("not a cursor", "AAAA", encoded.substring(0, encoded.length() - 2));
+        for (String cursor : invalid) {
+            try {
+                PageCursor.decode(cursor, PageCursor.Type.KEY, Arrays.asList(BY_CTIME));
+                fail("Cursor " + cursor + " should be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        try {
+            PageCursor.decode(encoded, PageCursor.Type.KEY, Arrays.asList(BY_ID));
+            fail("Cursor of a different order should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            PageCursor.decode(encoded, PageCursor.Type.OFFSET, Arrays.asList(BY_CTIME));
+            fail("Cursor of a different type should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void singleOrder() {
+        Pager unspecified = Pager.cursor(null, 10, Order.unspecified());
+        assertEquals(BY_ID, PageCursor.singleOrder(unspecified, BY_ID));
+
+        Pager byCtime = Pager.cursor(null, 10, BY_CTIME);
+        assertEquals(BY_CTIME, PageCursor.singleOrder(byCtime, BY_ID));
+
+        Pager twoFields = Pager.cursor(null, 10, BY_CTIME, BY_ID);
+        assertNull(PageCursor.singleOrder(twoFields, BY_ID));
+    }
+
+    @Test
+    public void offsetPages() {
+        List<Integer> ordered = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            ordered.add(i);
+        }
+
+        Pager pager = Pager.cursor(null, 10, BY_ID);
+        List<Integer> read = new ArrayList<>();
+        int pages = 0;
+        Page<Integer> page;
+        do {
+            page = PageCursor.offsetPage(ordered, pager);
+            assertEquals(25, page.getTotalSize());
+            read.addAll(page);
+            pages++;
+            pager = pager.nextPage(page.getNextCursor());
+        } while (page.getNextCursor() != null);
+
+        assertEquals(3, pages);
+        assertEquals(ordered, read);
+
+        Page<Integer> unlimited = PageCursor.offsetPage(ordered, Pager.cursor(null, -1, BY_ID));
+        assertEquals(25, unlimited.size());
+        assertNull(unlimited.getNextCursor());
+    }
+}
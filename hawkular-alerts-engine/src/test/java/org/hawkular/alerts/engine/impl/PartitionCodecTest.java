@@ -0,0 +1,177 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hawkular.alerts.api.model.data.AvailabilityType;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.impl.PartitionManagerImpl.NotifyData;
+import org.hawkular.alerts.engine.impl.PartitionManagerImpl.NotifyTrigger;
+import org.hawkular.alerts.engine.impl.PartitionManagerImpl.NotifyTriggers;
+import org.hawkular.alerts.engine.service.PartitionManager.Operation;
+import org.junit.Test;
+
+/**
+ * Round trip and size checks of the compact encoding used by the PartitionManager messages.
+ */
+public class PartitionCodecTest {
+
+    static byte[] serialize(Object o) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bos);
+        oos.writeObject(o);
+        oos.close();
+        return bos.toByteArray();
+    }
+
+    static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        return ois.readObject();
+    }
+
+    static List<Data> generateData(int numMetrics, int numSamples) {
+        List<Data> data = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < numSamples; i++) {
+            for (int j = 0; j < numMetrics; j++) {
+                data.add(Data.forNumeric("tenant-metric-" + j, now + (i * 1000), Math.random() * 1000));
+            }
+        }
+        return data;
+    }
+
+    @Test
+    public void dataRoundTrip() throws Exception {
+        Map<String, String> context = new HashMap<>();
+        context.put("source", "agent-1");
+        List<Data> data = new ArrayList<>();
+        data.add(Data.forNumeric("metric-1", 1000L, 12.5));
+        data.add(Data.forNumeric("metric-1", 900L, -3.25E-7));
+        data.add(Data.forAvailability("avail-1", 2000L, AvailabilityType.DOWN));
+        data.add(new Data("string-1", 3000L, "1e5"));
+        data.add(new Data("string-1", 3001L, "12"));
+        data.add(new Data("string-1", 3002L, (String) null));
+        Data withContext = new Data("string-2", 4000L, "\u00f1and\u00fa");
+        withContext.setContext(context);
+        data.add(withContext);
+
+        NotifyData nData = (NotifyData) deserialize(serialize(new NotifyData(7, data, Data.class)));
+        assertEquals(7, nData.getFromNode().intValue());
+        assertNull(nData.getData());
+        assertNull(nData.getEventCollection());
+        Collection<Data> received = nData.getDataCollection();
+        assertEquals(data.size(), received.size());
+        Iterator<Data> it = received.iterator();
+        for (Data expected : data) {
+            Data d = it.next();
+            assertEquals(expected.getId(), d.getId());
+            assertEquals(expected.getTimestamp(), d.getTimestamp());
+            assertEquals(expected.getValue(), d.getValue());
+            assertEquals(expected.getContext(), d.getContext());
+        }
+
+        nData = (NotifyData) deserialize(serialize(new NotifyData(null, withContext)));
+        assertNull(nData.getFromNode());
+        assertEquals("\u00f1and\u00fa", nData.getData().getValue());
+        assertEquals(context, nData.getData().getContext());
+    }
+
+    @Test
+    public void eventRoundTrip() throws Exception {
+        Map<String, String> context = new HashMap<>();
+        context.put("resource", "server-1");
+        Event external = new Event("tenant", "event-1", 1000L, "data-1", "LOG", "Server restarted", context);
+        external.addTag("env", "prod");
+        Trigger trigger = new Trigger("tenant", "trigger-1", "Trigger 1");
+        Event alerting = new Event("tenant", trigger, null, null);
+        List<Event> events = new ArrayList<>();
+        events.add(external);
+        events.add(alerting);
+
+        NotifyData nData = (NotifyData) deserialize(serialize(new NotifyData(3, events, Event.class)));
+        List<Event> received = new ArrayList<>(nData.getEventCollection());
+        assertEquals(2, received.size());
+
+        Event e = received.get(0);
+        assertEquals(external, e);
+        assertEquals(external.getEventType(), e.getEventType());
+        assertEquals(1000L, e.getCtime());
+        assertEquals("data-1", e.getDataId());
+        assertEquals("LOG", e.getCategory());
+        assertEquals("Server restarted", e.getText());
+        assertEquals(context, e.getContext());
+        assertEquals("prod", e.getTags().get("env"));
+
+        e = received.get(1);
+        assertEquals(alerting, e);
+        assertEquals(alerting.getCtime(), e.getCtime());
+        assertNotNull(e.getTrigger());
+        assertEquals("trigger-1", e.getTrigger().getId());
+    }
+
+    @Test
+    public void triggerRoundTrip() throws Exception {
+        NotifyTrigger nTrigger = new NotifyTrigger(1, -2, Operation.UPDATE, "tenant", "trigger-1");
+        assertEquals(nTrigger, deserialize(serialize(nTrigger)));
+
+        nTrigger = new NotifyTrigger(1, null, null, "tenant", null);
+        assertEquals(nTrigger, deserialize(serialize(nTrigger)));
+    }
+
+    @Test
+    public void triggersRoundTrip() throws Exception {
+        Map<String, Set<String>> triggers = new LinkedHashMap<>();
+        for (int i = 0; i < 3; i++) {
+            Set<String> triggerIds = new LinkedHashSet<>();
+            for (int j = 0; j < 100; j++) {
+                triggerIds.add("trigger-" + j);
+            }
+            triggers.put("tenant-" + i, triggerIds);
+        }
+        NotifyTriggers nTriggers = new NotifyTriggers(1, 2, Operation.UPDATE, triggers);
+        assertEquals(nTriggers, deserialize(serialize(nTriggers)));
+    }
+
+    @Test
+    public void compactSize() throws Exception {
+        List<Data> data = generateData(100, 10);
+        byte[] plain = serialize(new ArrayList<>(data));
+        byte[] compact = serialize(new NotifyData(1, data, Data.class));
+        assertTrue(compact.length * 2 < plain.length);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.hawkular.alerts.api.json.DataCodec;
+import org.hawkular.alerts.api.json.JsonUtil;
+import org.hawkular.alerts.api.model.data.Data;
+import org.jboss.logging.Logger;
+import org.junit.Test;
+
+/**
+ * Ingestion throughput of data, in datums per second on a single thread (i.e. per core): json array deserialized as
+ * a whole and then filtered, as POST /data does, versus the streaming readers of NDJSON and binary batches.
+ * Half of the dataIds are not active in the engine.
+ */
+public class PerfDataIngestTest {
+    private static final Logger log = Logger.getLogger(PerfDataIngestTest.class);
+
+    private static final int DATA_IDS = 1000;
+    private static final int DATUMS = 100000;
+    private static final int CHUNK_SIZE = 1000;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 10;
+
+    private interface Reader {
+        List<Data> read(byte[] body) throws IOException;
+    }
+
+    private final AlertsEngineCache cache = new AlertsEngineCache();
+
+    private List<Data> datums() {
+        List<Data> datums = new ArrayList<>(DATUMS);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < DATUMS; i++) {
+            datums.add(Data.forNumeric("perf-metric-" + (i % DATA_IDS), now + i, i * 0.5));
+        }
+        for (int i = 0; i < DATA_IDS; i += 2) {
+            cache.add(new AlertsEngineCache.DataEntry("perf-tenant", "perf-trigger-" + i, "perf-metric-" + i));
+        }
+        return datums;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private List<Data> readArray(byte[] body) {
+        Data[] datums = JsonUtil.fromJson(new String(body, StandardCharsets.UTF_8), Data[].class);
+        List<Data> filtered = new ArrayList<>(Arrays.asList(datums));
+        filtered.removeIf(d -> !cache.isDataIdActive(d.getId()));
+        return filtered;
+    }
+
+    private List<Data> readJson(InputStream in) throws IOException {
+        List<Data> filtered = new ArrayList<>();
+        assertEquals(DATUMS, DataCodec.readJson(in, cache::isDataIdActive, CHUNK_SIZE, filtered::addAll));
+        return filtered;
+    }
+
+    private List<Data> readBatch(InputStream in) throws IOException {
+        List<Data> filtered = new ArrayList<>();
+        assertEquals(DATUMS, DataCodec.readBatch(in, cache::isDataIdActive, CHUNK_SIZE, filtered::addAll));
+        return filtered;
+    }
+
+    private static double throughput(byte[] body, Reader reader) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            reader.read(body);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            reader.read(body);
+        }
+        return (double) DATUMS * ITERATIONS * 1e9 / (System.nanoTime() - start);
+    }
+
+    @Test
+    public void ingestData() throws Exception {
+        List<Data> datums = datums();
+
+        byte[] array = JsonUtil.toJson(datums).getBytes(StandardCharsets.UTF_8);
+        StringBuilder ndjson = new StringBuilder();
+        for (Data d : datums) {
+            ndjson.append(JsonUtil.toJson(d)).append('\n');
+        }
+        byte[] lines = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataCodec.writeBatch(datums, out);
+        byte[] batch = out.toByteArray();
+        byte[] gzipLines = gzip(lines);
+        byte[] gzipBatch = gzip(batch);
+        log.info(String.format("%d datums: json array %d bytes, ndjson %d bytes (gzip %d), batch %d bytes (gzip %d)",
+                DATUMS, array.length, lines.length, gzipLines.length, batch.length, gzipBatch.length));
+
+        double arrayRate = throughput(array, this::readArray);
+        double linesRate = throughput(lines, b -> readJson(new ByteArrayInputStream(b)));
+        double gzipLinesRate = throughput(gzipLines, b -> readJson(new GZIPInputStream(new ByteArrayInputStream(b))));
+        double batchRate = throughput(batch, b -> readBatch(new ByteArrayInputStream(b)));
+        double gzipBatchRate = throughput(gzipBatch,
+                b -> readBatch(new GZIPInputStream(new ByteArrayInputStream(b))));
+        log.info(String.format("Datums/s per core: json array %.0f, ndjson %.0f (gzip %.0f), batch %.0f (gzip %.0f)",
+                arrayRate, linesRate, gzipLinesRate, batchRate, gzipBatchRate));
+    }
+}
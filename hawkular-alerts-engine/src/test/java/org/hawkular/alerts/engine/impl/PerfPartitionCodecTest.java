@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.hawkular.alerts.engine.impl.PartitionCodecTest.deserialize;
+import static org.hawkular.alerts.engine.impl.PartitionCodecTest.generateData;
+import static org.hawkular.alerts.engine.impl.PartitionCodecTest.serialize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.engine.impl.PartitionManagerImpl.NotifyData;
+import org.jboss.logging.Logger;
+import org.junit.Test;
+
+/**
+ * Size and round trip throughput of the data sent on PartitionManager messages, plain java serialization versus the
+ * compact encoding.
+ */
+public class PerfPartitionCodecTest {
+    private static final Logger log = Logger.getLogger(PerfPartitionCodecTest.class);
+
+    private static final int METRICS = 100;
+    private static final int SAMPLES = 10;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 2000;
+
+    @Test
+    public void sizeAndThroughput() throws Exception {
+        List<Data> data = generateData(METRICS, SAMPLES);
+
+        byte[] plain = serialize(new ArrayList<>(data));
+        byte[] compact = serialize(new NotifyData(1, data, Data.class));
+        log.info(String.format("Bytes/datum: plain serialization %.1f, compact encoding %.1f",
+                (double) plain.length / data.size(), (double) compact.length / data.size()));
+
+        for (int i = 0; i < WARMUP; i++) {
+            deserialize(serialize(new ArrayList<>(data)));
+            deserialize(serialize(new NotifyData(1, data, Data.class)));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            deserialize(serialize(new ArrayList<>(data)));
+        }
+        long plainTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            deserialize(serialize(new NotifyData(1, data, Data.class)));
+        }
+        long compactTime = System.nanoTime() - start;
+
+        double total = (double) ITERATIONS * data.size();
+        log.info(String.format("Datum/s: plain serialization %.0f, compact encoding %.0f",
+                total * 1e9 / plainTime, total * 1e9 / compactTime));
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.engine.impl.PartitionManagerImpl.NotifyData;
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.context.Flag;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.jboss.logging.Logger;
+import org.jgroups.JChannel;
+import org.jgroups.blocks.mux.MuxUpHandler;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+/**
+ * End to end latency and throughput of the PartitionManager notifications between two nodes on the same JVM,
+ * replicated cache entries with a listener versus direct messages on a multiplexed channel.
+ *
+ * Both scenarios use the default UDP stack, so it needs multicast enabled on the host.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class PerfPartitionMessagingTest {
+    private static final Logger log = Logger.getLogger(PerfPartitionMessagingTest.class);
+
+    private static final int NUM_MESSAGES = 5000;
+    private static final int BATCH = 10;
+    private static final short SCOPE = 22000;
+
+    private static NotifyData message(int i) {
+        List<Data> data = new ArrayList<>(BATCH);
+        // first timestamp carries the send time
+        data.add(Data.forNumeric("perf-metric-0", System.nanoTime(), (double) i));
+        for (int j = 1; j < BATCH; j++) {
+            data.add(Data.forNumeric("perf-metric-" + j, System.currentTimeMillis(), (double) i));
+        }
+        return new NotifyData(1, data, Data.class);
+    }
+
+    private static class Stats {
+        final long[] latencies = new long[NUM_MESSAGES];
+        final CountDownLatch latch = new CountDownLatch(NUM_MESSAGES);
+        int received = 0;
+
+        synchronized void receive(NotifyData nData) {
+            long sent = nData.getDataCollection().iterator().next().getTimestamp();
+            if (received < NUM_MESSAGES) {
+                latencies[received++] = System.nanoTime() - sent;
+            }
+            latch.countDown();
+        }
+
+        void report(String test, long start, long end) {
+            long[] sorted = Arrays.copyOf(latencies, received);
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long l : sorted) {
+                total += l;
+            }
+            log.info(String.format("%s: %d messages of %d data in %d ms, %d data/s, latency avg %d us, " +
+                            "p50 %d us, p99 %d us", test, received, BATCH, (end - start) / 1000000,
+                    (long) received * BATCH * 1000000000L / (end - start),
+                    total / sorted.length / 1000, sorted[sorted.length / 2] / 1000,
+                    sorted[(int) (sorted.length * 0.99)] / 1000));
+        }
+    }
+
+    @Listener
+    public static class DataListener {
+        private final Cache cache;
+        private final Stats stats;
+
+        public DataListener(Cache cache, Stats stats) {
+            this.cache = cache;
+            this.stats = stats;
+        }
+
+        @CacheEntryCreated
+        public void onNewData(CacheEntryCreatedEvent cacheEvent) {
+            if (cacheEvent.isPre()) {
+                return;
+            }
+            Object value = cache.get(cacheEvent.getKey());
+            if (value instanceof NotifyData) {
+                stats.receive((NotifyData) value);
+            }
+        }
+    }
+
+    private static DefaultCacheManager cacheManager() {
+        return new DefaultCacheManager(
+                GlobalConfigurationBuilder.defaultClusteredBuilder().transport().clusterName("perf-cache").build(),
+                new ConfigurationBuilder().clustering().cacheMode(CacheMode.REPL_ASYNC).build());
+    }
+
+    private static JChannel channel() throws Exception {
+        JChannel channel = new JChannel();
+        channel.setUpHandler(new MuxUpHandler());
+        channel.connect("perf-messaging");
+        return channel;
+    }
+
+    private static void waitForView(int members, long timeout, IntSupplier size)
+            throws InterruptedException {
+        long end = System.currentTimeMillis() + timeout;
+        while (size.getAsInt() < members && System.currentTimeMillis() < end) {
+            Thread.sleep(100);
+        }
+        assertTrue(size.getAsInt() >= members);
+    }
+
+    @Test
+    public void test001CacheMessaging() throws Exception {
+        DefaultCacheManager sender = cacheManager();
+        DefaultCacheManager receiver = cacheManager();
+        try {
+            Cache senderCache = sender.getCache("data");
+            Cache receiverCache = receiver.getCache("data");
+            waitForView(2, 30000, () -> sender.getMembers().size());
+            Stats stats = new Stats();
+            receiverCache.addListener(new DataListener(receiverCache, stats));
+
+            long start = System.nanoTime();
+            for (int i = 0; i < NUM_MESSAGES; i++) {
+                NotifyData nData = message(i);
+                senderCache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES)
+                        .putAsync(nData.hashCode(), nData, 100, TimeUnit.MILLISECONDS);
+            }
+            stats.latch.await(60, TimeUnit.SECONDS);
+            stats.report("Cache messaging", start, System.nanoTime());
+        } finally {
+            receiver.stop();
+            sender.stop();
+        }
+    }
+
+    @Test
+    public void test002DirectMessaging() throws Exception {
+        JChannel senderChannel = channel();
+        JChannel receiverChannel = channel();
+        Stats stats = new Stats();
+        PartitionMessenger sender = new PartitionMessenger(senderChannel, SCOPE, m -> { });
+        PartitionMessenger receiver = new PartitionMessenger(receiverChannel, SCOPE,
+                m -> stats.receive((NotifyData) m));
+        try {
+            waitForView(2, 30000, () -> senderChannel.getView().getMembers().size());
+
+            long start = System.nanoTime();
+            for (int i = 0; i < NUM_MESSAGES; i++) {
+                sender.multicast(message(i));
+            }
+            stats.latch.await(60, TimeUnit.SECONDS);
+            stats.report("Direct messaging", start, System.nanoTime());
+        } finally {
+            receiver.stop();
+            sender.stop();
+            receiverChannel.close();
+            senderChannel.close();
+        }
+    }
+}
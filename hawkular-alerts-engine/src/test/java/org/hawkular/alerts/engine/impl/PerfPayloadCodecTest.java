@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.hawkular.alerts.api.json.JsonUtil;
+import org.hawkular.alerts.api.model.Severity;
+import org.hawkular.alerts.api.model.condition.AvailabilityCondition;
+import org.hawkular.alerts.api.model.condition.AvailabilityConditionEval;
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.ThresholdCondition;
+import org.hawkular.alerts.api.model.condition.ThresholdConditionEval;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.data.AvailabilityType;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.jboss.logging.Logger;
+import org.junit.Test;
+
+/**
+ * Size and encode/decode throughput of the stored alert payloads, json text versus binary format.
+ */
+public class PerfPayloadCodecTest {
+    private static final Logger log = Logger.getLogger(PerfPayloadCodecTest.class);
+
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 20000;
+    private static final int EVAL_SETS = 5;
+
+    private static Alert alert() {
+        Trigger trigger = new Trigger("perf-tenant", "perf-trigger", "Perf Trigger");
+        trigger.addContext("resourceType", "App Server");
+        trigger.addContext("resourceName", "perf-server-01");
+        ThresholdCondition tCond = new ThresholdCondition("perf-trigger", Mode.FIRING, "perf-metric-heap",
+                ThresholdCondition.Operator.GT, 1000.0);
+        AvailabilityCondition aCond = new AvailabilityCondition("perf-trigger", Mode.FIRING, "perf-metric-avail",
+                AvailabilityCondition.Operator.NOT_UP);
+        List<Set<ConditionEval>> evalSets = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < EVAL_SETS; i++) {
+            Set<ConditionEval> evalSet = new HashSet<>();
+            evalSet.add(new ThresholdConditionEval(tCond, Data.forNumeric("perf-metric-heap", now + i, 1000.0 + i)));
+            evalSet.add(new AvailabilityConditionEval(aCond, Data.forAvailability("perf-metric-avail", now + i,
+                    AvailabilityType.DOWN)));
+            evalSets.add(evalSet);
+        }
+        Dampening dampening = Dampening.forStrict("perf-trigger", Mode.FIRING, EVAL_SETS);
+        Alert alert = new Alert("perf-tenant", trigger, dampening, evalSets);
+        alert.setSeverity(Severity.HIGH);
+        return alert;
+    }
+
+    private static double throughput(Object input, Function<Object, Object> f) {
+        for (int i = 0; i < WARMUP; i++) {
+            assertNotNull(f.apply(input));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertNotNull(f.apply(input));
+        }
+        return ITERATIONS * 1e9 / (System.nanoTime() - start);
+    }
+
+    @Test
+    public void payloadCodecs() {
+        Alert alert = alert();
+        String json = JsonUtil.toJson(alert);
+        ByteBuffer binary = JsonUtil.toBinary(alert);
+        int jsonSize = json.getBytes(StandardCharsets.UTF_8).length;
+        int binarySize = binary.remaining();
+        log.info(String.format("Alert payload with %d evalSets: json %d bytes, binary %d bytes (%.0f%%)", EVAL_SETS,
+                jsonSize, binarySize, 100.0 * binarySize / jsonSize));
+
+        double jsonEncode = throughput(alert, JsonUtil::toJson);
+        double binaryEncode = throughput(alert, JsonUtil::toBinary);
+        log.info(String.format("Encode: json %.0f alerts/s, binary %.0f alerts/s", jsonEncode, binaryEncode));
+
+        ByteBuffer jsonBytes = StandardCharsets.UTF_8.encode(json);
+        for (boolean thin : new boolean[] { false, true }) {
+            double jsonDecode = throughput(jsonBytes, p -> JsonUtil.fromPayload((ByteBuffer) p, Alert.class, thin));
+            double binaryDecode = throughput(binary, p -> JsonUtil.fromPayload((ByteBuffer) p, Alert.class, thin));
+            log.info(String.format("Decode%s: json %.0f alerts/s, binary %.0f alerts/s", thin ? " thin" : "",
+                    jsonDecode, binaryDecode));
+        }
+
+        assertTrue(binarySize < jsonSize);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.hawkular.alerts.api.model.event.Alert;
+import org.junit.After;
+import org.junit.Test;
+
+public class RetentionPolicyTest {
+
+    private static final String TTL = RetentionPolicy.TTL;
+
+    @After
+    public void clearProperties() {
+        System.clearProperty(TTL);
+        System.clearProperty(TTL + ".RESOLVED");
+        System.clearProperty(TTL + ".tenant.t1");
+        System.clearProperty(TTL + ".tenant.t1.OPEN");
+        RetentionPolicy.reset();
+    }
+
+    @Test
+    public void mostSpecificPropertyWins() {
+        System.setProperty(TTL, "100");
+        System.setProperty(TTL + ".RESOLVED", "200");
+        System.setProperty(TTL + ".tenant.t1", "300");
+        System.setProperty(TTL + ".tenant.t1.OPEN", "400");
+        RetentionPolicy.reset();
+
+        assertEquals(100, RetentionPolicy.ttl("t2"));
+        assertEquals(100, RetentionPolicy.ttl("t2", Alert.Status.OPEN));
+        assertEquals(200, RetentionPolicy.ttl("t2", Alert.Status.RESOLVED));
+        assertEquals(300, RetentionPolicy.ttl("t1"));
+        assertEquals(300, RetentionPolicy.ttl("t1", Alert.Status.RESOLVED));
+        assertEquals(400, RetentionPolicy.ttl("t1", Alert.Status.OPEN));
+    }
+
+    @Test
+    public void rejectInvalidTtl() {
+        System.setProperty(TTL, "-1");
+        RetentionPolicy.reset();
+        try {
+            RetentionPolicy.ttl("t1");
+            fail("Negative ttl should be rejected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimeBucketsTest {
+
+    private long size;
+
+    @Before
+    public void saveSize() {
+        size = TimeBuckets.getSize();
+        TimeBuckets.setSize(1000L);
+    }
+
+    @After
+    public void restoreSize() {
+        TimeBuckets.setSize(size);
+    }
+
+    @Test
+    public void bucketOfCtime() {
+        assertEquals(0L, TimeBuckets.bucket(0L));
+        assertEquals(0L, TimeBuckets.bucket(999L));
+        assertEquals(1000L, TimeBuckets.bucket(1000L));
+        assertEquals(1450000000000L, TimeBuckets.bucket(1450000000999L));
+    }
+
+    @Test
+    public void bucketOfNegativeCtime() {
+        assertEquals(-1000L, TimeBuckets.bucket(-1L));
+        assertEquals(-1000L, TimeBuckets.bucket(-1000L));
+        assertEquals(-2000L, TimeBuckets.bucket(-1001L));
+    }
+
+    @Test
+    public void rejectInvalidSize() {
+        try {
+            TimeBuckets.setSize(0L);
+            fail("Bucket size 0 should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(1000L, TimeBuckets.getSize());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.hawkular.alerts.api.model.condition.ThresholdCondition;
+import org.hawkular.alerts.api.model.condition.ThresholdConditionEval;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.trigger.Match;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.junit.Test;
+
+/**
+ * Evaluation state handoff of a trigger moved between nodes.
+ */
+public class TriggerStateTest {
+
+    private static TriggerState copy(TriggerState state) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bos);
+        oos.writeObject(state);
+        oos.close();
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+        return (TriggerState) ois.readObject();
+    }
+
+    @Test
+    public void relaxedCountHandoff() throws Exception {
+        ThresholdCondition condition = new ThresholdCondition("trigger-1", "data-1",
+                ThresholdCondition.Operator.GT, 10.0);
+        Dampening releasing = Dampening.forRelaxedCount("trigger-1", Mode.FIRING, 3, 10);
+        releasing.perform(Match.ALL, new ThresholdConditionEval(condition, Data.forNumeric("data-1", 1000L, 15.0)));
+        releasing.perform(Match.ALL, new ThresholdConditionEval(condition, Data.forNumeric("data-1", 2000L, 5.0)));
+        releasing.perform(Match.ALL, new ThresholdConditionEval(condition, Data.forNumeric("data-1", 3000L, 20.0)));
+        assertEquals(2, releasing.getNumTrueEvals());
+        assertEquals(3, releasing.getNumEvals());
+
+        TriggerState state = new TriggerState("tenant", "trigger-1");
+        state.setMode(Mode.FIRING);
+        state.addDampening(releasing);
+        state.addRateData(Data.forNumeric("data-2", 3000L, 1.0));
+        assertFalse(state.isEmpty());
+
+        TriggerState received = copy(state);
+        assertEquals(state, received);
+        assertEquals(1, received.getRateData().size());
+
+        // Dampening loaded on the new owner from the definitions, with a fresh state
+        Dampening loaded = Dampening.forRelaxedCount("trigger-1", Mode.FIRING, 3, 10);
+        TriggerState.DampeningState ds = received.getDampenings().get(0);
+        assertTrue(ds.isCompatible(loaded));
+        ds.applyTo(loaded);
+        assertEquals(2, loaded.getNumTrueEvals());
+        assertEquals(3, loaded.getNumEvals());
+        assertEquals(2, loaded.getSatisfyingEvals().size());
+        assertFalse(loaded.isSatisfied());
+
+        // Next true evaluation satisfies the dampening without starting over
+        loaded.perform(Match.ALL, new ThresholdConditionEval(condition, Data.forNumeric("data-1", 4000L, 25.0)));
+        assertTrue(loaded.isSatisfied());
+    }
+
+    @Test
+    public void changedDefinition() throws Exception {
+        Dampening releasing = Dampening.forRelaxedCount("trigger-1", Mode.FIRING, 3, 10);
+        releasing.setNumEvals(1);
+        TriggerState state = new TriggerState("tenant", "trigger-1");
+        state.addDampening(releasing);
+
+        TriggerState.DampeningState ds = copy(state).getDampenings().get(0);
+        assertFalse(ds.isCompatible(Dampening.forRelaxedCount("trigger-1", Mode.FIRING, 2, 10)));
+        assertFalse(ds.isCompatible(Dampening.forRelaxedCount("trigger-1", Mode.AUTORESOLVE, 3, 10)));
+    }
+
+    @Test
+    public void emptyState() {
+        TriggerState state = new TriggerState("tenant", "trigger-1");
+        state.setMode(Mode.FIRING);
+        state.addDampening(Dampening.forStrict("trigger-1", Mode.FIRING, 1));
+        assertTrue(state.isEmpty());
+
+        state.setMode(Mode.AUTORESOLVE);
+        assertFalse(state.isEmpty());
+    }
+}
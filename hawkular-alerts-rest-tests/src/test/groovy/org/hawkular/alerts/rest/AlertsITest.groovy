@@ -75,6 +75,66 @@ class AlertsITest extends AbstractITestBase {
         assert resp.status == 200 : resp.status
     }
 
+    @Test
+    void alertsJobs() {
+        def resp = client.put(path: "ack/job")
+        assert resp.status == 400 : resp.status
+
+        resp = client.put(path: "ack/job", query: [alertIds:"badAlertId-01,badAlertId-02", ackBy:"itest"] )
+        assert resp.status == 202 : resp.status
+        assert "ack" == resp.data.type
+        assert 2 == resp.data.total
+        waitForJob(resp.data.id)
+
+        resp = client.put(path: "resolve/job", query: [alertIds:"badAlertId-01", resolvedBy:"itest"] )
+        assert resp.status == 202 : resp.status
+        waitForJob(resp.data.id)
+
+        resp = client.put(path: "delete/job", query: [triggerIds:"Trigger-01,Trigger-02"] )
+        assert resp.status == 202 : resp.status
+        waitForJob(resp.data.id)
+
+        resp = client.put(path: "events/delete/job", query: [triggerIds:"Trigger-01,Trigger-02"] )
+        assert resp.status == 202 : resp.status
+        waitForJob(resp.data.id)
+
+        resp = client.get(path: "jobs/badJobId")
+        assert resp.status == 404 : resp.status
+    }
+
+    private void waitForJob(String jobId) {
+        def resp = client.get(path: "jobs/" + jobId)
+        for (int i = 0; i < 50 && resp.status == 200 && "RUNNING" == resp.data.status; i++) {
+            Thread.sleep(100)
+            resp = client.get(path: "jobs/" + jobId)
+        }
+        assert resp.status == 200 : resp.status
+        assert "COMPLETED" == resp.data.status : resp.data.errorMsg
+    }
+
+    @Test
+    void alertsStats() {
+        def resp = client.get(path: "stats")
+        assert resp.status == 200 : resp.status
+        assert null != resp.data.bucketSize
+
+        resp = client.get(path: "stats", query: [groupBy:"severity", statuses:"OPEN,ACKNOWLEDGED",
+                                                 triggerIds:"Trigger-01,Trigger-02"] )
+        assert resp.status == 200 : resp.status
+
+        resp = client.get(path: "stats", query: [groupBy:"tag", tagName:"env", startTime:"0"] )
+        assert resp.status == 200 : resp.status
+
+        resp = client.get(path: "stats", query: [groupBy:"tag", severities:"HIGH"] )
+        assert resp.status == 400 : resp.status
+
+        resp = client.get(path: "stats", query: [groupBy:"badGroupBy"] )
+        assert resp.status == 400 : resp.status
+
+        resp = client.put(path: "stats/rebuild")
+        assert resp.status == 200 : resp.status
+    }
+
     @Test
     void reloadTest() {
         def resp = client.get(path: "reload")
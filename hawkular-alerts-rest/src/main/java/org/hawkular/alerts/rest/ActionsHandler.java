@@ -19,6 +19,7 @@ package org.hawkular.alerts.rest;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
 import static org.hawkular.alerts.rest.HawkularAlertsApp.TENANT_HEADER_NAME;
+import static org.hawkular.alerts.rest.ResponseUtil.APPLICATION_NDJSON;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -36,12 +37,15 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import org.hawkular.alerts.api.model.action.Action;
-import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.Pager;
 import org.hawkular.alerts.api.services.ActionsCriteria;
 import org.hawkular.alerts.api.services.ActionsService;
@@ -263,13 +267,13 @@ public class ActionsHandler {
 
     @GET
     @Path("/history")
-    @Produces(APPLICATION_JSON)
+    @Produces({ APPLICATION_JSON, APPLICATION_NDJSON })
     @ApiOperation(
             value = "Get actions from history with optional filtering")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Success"),
             @ApiResponse(code = 500, message = "Internal server error") })
-    public Response findActionsHistory(
+    public void findActionsHistory(
             @ApiParam(required = false, value = "filter out actions created before this time, millisecond since epoch")
             @QueryParam("startTime")
             final Long startTime,
@@ -295,23 +299,42 @@ public class ActionsHandler {
             @ApiParam(required = false, value = "return only thin actions, do not include full alert, only alertId")
             @QueryParam("thin")
             final Boolean thin,
+            @ApiParam(required = false, value = "return the full result as a stream, read and written in pages, "
+                    + "ignoring the paging parameters other than the order. Also selected by accepting "
+                    + "application/x-ndjson.")
+            @QueryParam("stream")
+            final Boolean stream,
+            @Context
+            final UriInfo uri,
             @Context
-            final UriInfo uri) {
+            final HttpHeaders headers,
+            @Suspended
+            final AsyncResponse response) {
         Pager pager = RequestUtil.extractPaging(uri);
         try {
             ActionsCriteria criteria = buildCriteria(startTime, endTime, actionPlugins, actionIds, alertIds, results,
                     thin);
-            Page<Action> actionPage = actions.getActions(tenantId, criteria, pager);
-            if (log.isDebugEnabled()) {
-                log.debug("Actions: " + actionPage);
-            }
-            if (isEmpty(actionPage)) {
-                return ResponseUtil.ok(actionPage);
+            if (ResponseUtil.isStreaming(stream, headers)) {
+                response.resume(ResponseUtil.streamingOk(actions.iterateActions(tenantId, criteria, pager),
+                        headers));
+                return;
             }
-            return ResponseUtil.paginatedOk(actionPage, uri);
+            UriBuilder requestUri = uri.getRequestUriBuilder();
+            actions.getActionsAsync(tenantId, criteria, pager).whenComplete((actionPage, e) -> {
+                if (null != e) {
+                    log.debug(e.getMessage(), e);
+                    response.resume(ResponseUtil.failed(e));
+                    return;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Actions: " + actionPage);
+                }
+                response.resume(isEmpty(actionPage) ? ResponseUtil.ok(actionPage)
+                        : ResponseUtil.paginatedOk(actionPage, requestUri));
+            });
         } catch (Exception e) {
             log.debug(e.getMessage(), e);
-            return ResponseUtil.internalError(e.getMessage());
+            response.resume(ResponseUtil.failed(e));
         }
     }
 
@@ -19,15 +19,23 @@ package org.hawkular.alerts.rest;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
 import static org.hawkular.alerts.rest.HawkularAlertsApp.TENANT_HEADER_NAME;
+import static org.hawkular.alerts.rest.LiveStream.SERVER_SENT_EVENTS;
+import static org.hawkular.alerts.rest.ResponseUtil.APPLICATION_DATA_BATCH;
+import static org.hawkular.alerts.rest.ResponseUtil.APPLICATION_NDJSON;
 
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ejb.EJB;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -38,18 +46,28 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
+import org.hawkular.alerts.api.json.DataCodec;
 import org.hawkular.alerts.api.model.Severity;
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Alert;
-import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.Pager;
+import org.hawkular.alerts.api.model.stats.AlertsStats;
 import org.hawkular.alerts.api.services.AlertsCriteria;
 import org.hawkular.alerts.api.services.AlertsService;
+import org.hawkular.alerts.api.services.AlertsStatsCriteria;
+import org.hawkular.alerts.engine.impl.AlertProperties;
 import org.hawkular.alerts.engine.service.AlertsEngine;
+import org.hawkular.alerts.engine.service.PartitionManager;
+import org.hawkular.alerts.rest.json.Job;
 import org.jboss.logging.Logger;
 
 import com.wordnik.swagger.annotations.Api;
@@ -69,28 +87,42 @@ import com.wordnik.swagger.annotations.ApiResponses;
 public class AlertsHandler {
     private final Logger log = Logger.getLogger(AlertsHandler.class);
 
+    /*
+        Max number of data sent to the engine at a time by the data ingestion
+     */
+    static final String INGEST_CHUNK_SIZE = "hawkular-alerts.ingest-chunk-size";
+
+    private static final int ingestChunkSize = Integer.parseInt(AlertProperties.getProperty(INGEST_CHUNK_SIZE,
+            "1000"));
+
     @HeaderParam(TENANT_HEADER_NAME)
     String tenantId;
 
     @EJB
     AlertsService alertsService;
 
+    @EJB
+    PartitionManager partitionManager;
+
     @EJB
     AlertsEngine alertsEngine;
 
+    @EJB
+    AlertsJobs alertsJobs;
+
     public AlertsHandler() {
         log.debug("Creating instance.");
     }
 
     @GET
     @Path("/")
-    @Produces(APPLICATION_JSON)
+    @Produces({ APPLICATION_JSON, APPLICATION_NDJSON })
     @ApiOperation(
             value = "Get alerts with optional filtering")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Success"),
             @ApiResponse(code = 500, message = "Internal server error") })
-    public Response findAlerts(
+    public void findAlerts(
             @ApiParam(required = false, value = "filter out alerts created before this time, millisecond since epoch")
             @QueryParam("startTime")
             final Long startTime,
@@ -120,23 +152,92 @@ public class AlertsHandler {
             @ApiParam(required = false, value = "return only thin alerts, do not include: evalSets, resolvedEvalSets")
             @QueryParam("thin")
             final Boolean thin,
+            @ApiParam(required = false, value = "return the full result as a stream, read and written in pages, "
+                    + "ignoring the paging parameters other than the order. Also selected by accepting "
+                    + "application/x-ndjson.")
+            @QueryParam("stream")
+            final Boolean stream,
             @Context
-            final UriInfo uri) {
+            final UriInfo uri,
+            @Context
+            final HttpHeaders headers,
+            @Suspended
+            final AsyncResponse response) {
         Pager pager = RequestUtil.extractPaging(uri);
         try {
             AlertsCriteria criteria = buildCriteria(startTime, endTime, alertIds, triggerIds, statuses, severities,
                     tags, thin);
-            Page<Alert> alertPage = alertsService.getAlerts(tenantId, criteria, pager);
-            if (log.isDebugEnabled()) {
-                log.debug("Alerts: " + alertPage);
+            if (ResponseUtil.isStreaming(stream, headers)) {
+                response.resume(ResponseUtil.streamingOk(alertsService.iterateAlerts(tenantId, criteria, pager),
+                        headers));
+                return;
+            }
+            UriBuilder requestUri = uri.getRequestUriBuilder();
+            alertsService.getAlertsAsync(tenantId, criteria, pager).whenComplete((alertPage, e) -> {
+                if (null != e) {
+                    log.debug(e.getMessage(), e);
+                    response.resume(ResponseUtil.failed(e));
+                    return;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Alerts: " + alertPage);
+                }
+                response.resume(isEmpty(alertPage) ? ResponseUtil.ok(alertPage)
+                        : ResponseUtil.paginatedOk(alertPage, requestUri));
+            });
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            response.resume(ResponseUtil.failed(e));
+        }
+    }
+
+    @GET
+    @Path("/watch")
+    @Produces(SERVER_SENT_EVENTS)
+    @ApiOperation(value = "Watch the new alerts and their lifecycle changes with optional filtering",
+            notes = "Server-sent events, an 'alert' event per alert added or updated by this node, in its current " +
+                    "state. A client not keeping up with the stream is disconnected after an 'overflow' event. " +
+                    "Not available on a distributed deployment.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Success, stream opened"),
+            @ApiResponse(code = 400, message = "Bad Request/Invalid Parameters"),
+            @ApiResponse(code = 503, message = "Too many streams open or distributed deployment") })
+    public void watchAlerts(
+            @Suspended final AsyncResponse response,
+            @Context final HttpServletRequest request,
+            @ApiParam(required = false, value = "filter out alerts for unspecified triggers, " +
+                    "comma separated list of trigger IDs")
+            @QueryParam("triggerIds")
+            final String triggerIds,
+            @ApiParam(required = false, value = "filter out alerts for unspecified lifecycle status, " +
+                    "comma separated list of status values")
+            @QueryParam("statuses")
+            final String statuses,
+            @ApiParam(required = false, value = "filter out alerts for unspecified severity, " +
+                    "comma separated list of severity values")
+            @QueryParam("severities")
+            final String severities,
+            @ApiParam(required = false, value = "filter out alerts for unspecified tags, comma separated list of tags, "
+                    + "each tag of format 'name|value'. Specify '*' for value to match all values.")
+            @QueryParam("tags")
+            final String tags,
+            @ApiParam(required = false, value = "return only thin alerts, do not include: evalSets, resolvedEvalSets")
+            @QueryParam("thin")
+            final Boolean thin) {
+        try {
+            if (partitionManager.isDistributed()) {
+                response.resume(ResponseUtil.unavailable("Live streams are node-local, not available on a " +
+                        "distributed deployment"));
+                return;
             }
-            if (isEmpty(alertPage)) {
-                return ResponseUtil.ok(alertPage);
+            AlertsCriteria criteria = buildCriteria(null, null, null, triggerIds, statuses, severities, tags, thin);
+            if (!LiveStream.alerts(alertsService, tenantId, criteria, request)) {
+                response.resume(ResponseUtil.unavailable("Too many live streams open"));
             }
-            return ResponseUtil.paginatedOk(alertPage, uri);
+            // Otherwise the request stays suspended, the stream completes it when closed
         } catch (Exception e) {
             log.debug(e.getMessage(), e);
-            return ResponseUtil.internalError(e.getMessage());
+            response.resume(ResponseUtil.failed(e));
         }
     }
 
@@ -468,6 +569,264 @@ public class AlertsHandler {
         }
     }
 
+    @PUT
+    @Path("/ack/job")
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Set one or more alerts Acknowledged in the background",
+            response = Job.class,
+            notes = "The alerts are acknowledged in chunks, the progress of the job is returned by /jobs/{jobId}.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 202, message = "Success, Alerts Acknowledged job started"),
+            @ApiResponse(code = 500, message = "Internal server error"),
+            @ApiResponse(code = 503, message = "Too many background jobs"),
+            @ApiResponse(code = 400, message = "Bad Request/Invalid Parameters") })
+    public Response ackAlertsJob(
+            @ApiParam(required = true, value = "comma separated list of alertIds to Ack")
+            @QueryParam("alertIds")
+            final String alertIds,
+            @ApiParam(required = false, value = "user acknowledging the alerts")
+            @QueryParam("ackBy")
+            final String ackBy,
+            @ApiParam(required = false, value = "additional notes asscoiated with the acknowledgement")
+            @QueryParam("ackNotes")
+            final String ackNotes) {
+        try {
+            if (isEmpty(alertIds)) {
+                return ResponseUtil.badRequest("AlertIds required for ack");
+            }
+            final String tenant = tenantId;
+            List<String> ids = Arrays.asList(alertIds.split(","));
+            Job job = alertsJobs.submit(tenant, "ack", ids.size(), j -> AlertsJobs.inChunks(j, ids,
+                    chunk -> alertsService.ackAlerts(tenant, chunk, ackBy, ackNotes)));
+            if (log.isDebugEnabled()) {
+                log.debug("Ack job: " + job);
+            }
+            return ResponseUtil.accepted(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseUtil.unavailable(e.getMessage());
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            return ResponseUtil.internalError(e.getMessage());
+        }
+    }
+
+    @PUT
+    @Path("/resolve/job")
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Set one or more alerts Resolved in the background",
+            response = Job.class,
+            notes = "The alerts are resolved in chunks, the progress of the job is returned by /jobs/{jobId}.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 202, message = "Success, Alerts Resolution job started"),
+            @ApiResponse(code = 500, message = "Internal server error"),
+            @ApiResponse(code = 503, message = "Too many background jobs"),
+            @ApiResponse(code = 400, message = "Bad Request/Invalid Parameters") })
+    public Response resolveAlertsJob(
+            @ApiParam(required = true, value = "comma separated list of alertIds to set Resolved")
+            @QueryParam("alertIds")
+            final String alertIds,
+            @ApiParam(required = false, value = "user resolving the alerts")
+            @QueryParam("resolvedBy")
+            final String resolvedBy,
+            @ApiParam(required = false, value = "additional notes asscoiated with the resolution")
+            @QueryParam("resolvedNotes")
+            final String resolvedNotes) {
+        try {
+            if (isEmpty(alertIds)) {
+                return ResponseUtil.badRequest("AlertsIds required for resolve");
+            }
+            final String tenant = tenantId;
+            List<String> ids = Arrays.asList(alertIds.split(","));
+            Job job = alertsJobs.submit(tenant, "resolve", ids.size(), j -> AlertsJobs.inChunks(j,
+                    ids, chunk -> alertsService.resolveAlerts(tenant, chunk, resolvedBy, resolvedNotes, null)));
+            if (log.isDebugEnabled()) {
+                log.debug("Resolve job: " + job);
+            }
+            return ResponseUtil.accepted(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseUtil.unavailable(e.getMessage());
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            return ResponseUtil.internalError(e.getMessage());
+        }
+    }
+
+    @PUT
+    @Path("/delete/job")
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Delete alerts with optional filtering in the background",
+            response = Job.class,
+            notes = "The progress of the job is returned by /jobs/{jobId}.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 202, message = "Success, Alerts deletion job started"),
+            @ApiResponse(code = 500, message = "Internal server error"),
+            @ApiResponse(code = 503, message = "Too many background jobs"),
+            @ApiResponse(code = 400, message = "Bad Request/Invalid Parameters") })
+    public Response deleteAlertsJob(
+            @ApiParam(required = false, value = "filter out alerts created before this time, millisecond since epoch")
+            @QueryParam("startTime")
+            final Long startTime,
+            @ApiParam(required = false, value = "filter out alerts created after this time, millisecond since epoch")
+            @QueryParam("endTime")
+            final Long endTime,
+            @ApiParam(required = false, value = "filter out alerts for unspecified alertIds, " +
+                    "comma separated list of alert IDs")
+            @QueryParam("alertIds")
+            final String alertIds,
+            @ApiParam(required = false, value = "filter out alerts for unspecified triggers, " +
+                    "comma separated list of trigger IDs")
+            @QueryParam("triggerIds")
+            final String triggerIds,
+            @ApiParam(required = false, value = "filter out alerts for unspecified lifecycle status, " +
+                    "comma separated list of status values")
+            @QueryParam("statuses")
+            final String statuses,
+            @ApiParam(required = false, value = "filter out alerts for unspecified severity, " +
+                    "comma separated list of severity values")
+            @QueryParam("severities")
+            final String severities,
+            @ApiParam(required = false, value = "filter out alerts for unspecified tags, comma separated list of tags, "
+                    + "each tag of format 'name|value'. Specify '*' for value to match all values.")
+            @QueryParam("tags")
+            final String tags
+            ) {
+        try {
+            AlertsCriteria criteria = buildCriteria(startTime, endTime, alertIds, triggerIds, statuses, severities,
+                    tags, null);
+            final String tenant = tenantId;
+            Job job = alertsJobs.submit(tenant, "delete-alerts", 0,
+                    j -> alertsService.deleteAlerts(tenant, criteria));
+            if (log.isDebugEnabled()) {
+                log.debug("Delete alerts job: " + job);
+            }
+            return ResponseUtil.accepted(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseUtil.unavailable(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseUtil.badRequest(e.getMessage());
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            return ResponseUtil.internalError(e.getMessage());
+        }
+    }
+
+    @GET
+    @Path("/jobs/{jobId}")
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Get the progress of a job of bulk alerts or events operations",
+            response = Job.class,
+            notes = "Jobs are kept in memory by the node that started them, on a distributed deployment the job is "
+                    + "only found on that node.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Success, Job found"),
+            @ApiResponse(code = 404, message = "Job not found"),
+            @ApiResponse(code = 500, message = "Internal server error") })
+    public Response getJob(
+            @ApiParam(value = "Id of the job", required = true)
+            @PathParam("jobId")
+            final String jobId) {
+        try {
+            Job job = alertsJobs.getJob(tenantId, jobId);
+            if (job == null) {
+                return ResponseUtil.notFound("jobId: " + jobId + " not found");
+            }
+            return ResponseUtil.ok(job);
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            return ResponseUtil.internalError(e.getMessage());
+        }
+    }
+
+    @GET
+    @Path("/stats")
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Get the counts of alerts per time bucket, grouped by status, severity, trigger or tag",
+            notes = "Counts are maintained as alerts are added, change status and are deleted, alerts are not "
+                    + "fetched. Buckets with no alerts are not included.",
+            response = AlertsStats.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Success"),
+            @ApiResponse(code = 400, message = "Bad Request/Invalid Parameters"),
+            @ApiResponse(code = 500, message = "Internal server error") })
+    public Response getAlertsStats(
+            @ApiParam(required = false, value = "count alerts created from the bucket of this time, "
+                    + "millisecond since epoch")
+            @QueryParam("startTime")
+            final Long startTime,
+            @ApiParam(required = false, value = "count alerts created until the bucket of this time, "
+                    + "millisecond since epoch")
+            @QueryParam("endTime")
+            final Long endTime,
+            @ApiParam(required = false, value = "field the counts are grouped by, one of STATUS, SEVERITY, "
+                    + "TRIGGER or TAG. Default STATUS.")
+            @QueryParam("groupBy")
+            final String groupBy,
+            @ApiParam(required = false, value = "with TAG groupBy, the tag whose values are counted. "
+                    + "If not specified all the tags are counted, as 'name|value'.")
+            @QueryParam("tagName")
+            final String tagName,
+            @ApiParam(required = false, value = "count only alerts with the specified lifecycle status, "
+                    + "comma separated list of status values")
+            @QueryParam("statuses")
+            final String statuses,
+            @ApiParam(required = false, value = "count only alerts with the specified severity, "
+                    + "comma separated list of severity values. Not supported with TAG groupBy.")
+            @QueryParam("severities")
+            final String severities,
+            @ApiParam(required = false, value = "count only alerts for the specified triggers, "
+                    + "comma separated list of trigger IDs. Not supported with TAG groupBy.")
+            @QueryParam("triggerIds")
+            final String triggerIds) {
+        try {
+            AlertsCriteria alertsCriteria = buildCriteria(startTime, endTime, null, triggerIds, statuses,
+                    severities, null, null);
+            AlertsStatsCriteria criteria = new AlertsStatsCriteria();
+            criteria.setStartTime(startTime);
+            criteria.setEndTime(endTime);
+            if (!isEmpty(groupBy)) {
+                criteria.setGroupBy(AlertsStatsCriteria.GroupBy.valueOf(groupBy.trim().toUpperCase()));
+            }
+            criteria.setTagName(tagName);
+            criteria.setStatusSet(alertsCriteria.getStatusSet());
+            criteria.setSeverities(alertsCriteria.getSeverities());
+            criteria.setTriggerIds(alertsCriteria.getTriggerIds());
+            AlertsStats stats = alertsService.getAlertsStats(tenantId, criteria);
+            if (log.isDebugEnabled()) {
+                log.debug("Alerts stats: " + stats);
+            }
+            return ResponseUtil.ok(stats);
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            IllegalArgumentException badArgument = ResponseUtil.findIllegalArgument(e);
+            if (badArgument != null) {
+                return ResponseUtil.badRequest(badArgument.getMessage());
+            }
+            return ResponseUtil.internalError(e.getMessage());
+        }
+    }
+
+    @PUT
+    @Path("/stats/rebuild")
+    @ApiOperation(value = "Recompute the alerts counts of the tenant from the stored alerts",
+            notes = "Repairs counts that drifted, i.e. after a failed write or an upgrade. Meant to be run when "
+                    + "the alerts of the tenant are not being updated. Returns the number of alerts counted.",
+            response = Integer.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Success, Alerts Stats rebuilt"),
+            @ApiResponse(code = 500, message = "Internal server error") })
+    public Response rebuildAlertsStats() {
+        try {
+            int numAlerts = alertsService.rebuildAlertsStats(tenantId);
+            if (log.isDebugEnabled()) {
+                log.debug("Alerts stats rebuilt from " + numAlerts + " alerts");
+            }
+            return ResponseUtil.ok(numAlerts);
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            return ResponseUtil.internalError(e.getMessage());
+        }
+    }
+
     @POST
     @Path("/data")
     @Consumes(APPLICATION_JSON)
@@ -495,6 +854,59 @@ public class AlertsHandler {
         }
     }
 
+    @POST
+    @Path("/data/ingest")
+    @Consumes({ APPLICATION_JSON, APPLICATION_NDJSON, APPLICATION_DATA_BATCH })
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(
+            value = "Send a large volume of data for alert processing/condition evaluation.",
+            notes = "Data is parsed as the request is read and sent to the engine in chunks, data with a dataId " +
+                    "not used by any trigger is discarded before it is built. The body can be gzip compressed. " +
+                    "Returns the number of data read and the number of data sent for evaluation.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Success, data added."),
+            @ApiResponse(code = 500, message = "Internal server error"),
+            @ApiResponse(code = 400, message = "Bad Request/Invalid Parameters") })
+    public Response ingestData(
+            @ApiParam(required = true, name = "datums", value = "data to be processed by alerting: a json array, " +
+                    "a sequence of json objects (NDJSON) or a binary batch of numeric data (" +
+                    APPLICATION_DATA_BATCH + ")")
+            final InputStream datums,
+            @Context
+            final HttpHeaders headers) {
+        AtomicInteger sent = new AtomicInteger();
+        try (InputStream in = RequestUtil.decompress(datums)) {
+            MediaType type = headers.getMediaType();
+            boolean batch = type != null && type.isCompatible(MediaType.valueOf(APPLICATION_DATA_BATCH));
+            int read = batch ?
+                    DataCodec.readBatch(in, alertsEngine::isDataIdActive, ingestChunkSize, c -> send(c, sent)) :
+                    DataCodec.readJson(in, alertsEngine::isDataIdActive, ingestChunkSize, c -> send(c, sent));
+            if (log.isDebugEnabled()) {
+                log.debug("Ingested datums: " + read + " sent: " + sent.get());
+            }
+            Map<String, Integer> result = new HashMap<>();
+            result.put("read", read);
+            result.put("sent", sent.get());
+            return ResponseUtil.ok(result);
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            IllegalArgumentException badArgument = ResponseUtil.findIllegalArgument(e);
+            if (badArgument != null) {
+                return ResponseUtil.badRequest(badArgument.getMessage());
+            }
+            return ResponseUtil.internalError(e.getMessage());
+        }
+    }
+
+    private void send(List<Data> chunk, AtomicInteger sent) {
+        try {
+            alertsEngine.sendData(chunk);
+            sent.addAndGet(chunk.size());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @GET
     @Path("/reload")
     @ApiOperation(
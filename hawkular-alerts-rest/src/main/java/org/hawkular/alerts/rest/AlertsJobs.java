@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ManagedExecutorService;
+
+import org.hawkular.alerts.engine.impl.AlertProperties;
+import org.hawkular.alerts.rest.json.Job;
+import org.hawkular.alerts.rest.log.MsgLogger;
+import org.jboss.logging.Logger;
+
+/**
+ * Bulk alerts and events operations run in the background, so a request acking or deleting thousands of alerts
+ * returns at once with a {@link Job} whose progress is polled by id.
+ *
+ * Jobs run on the container managed executor, a job splits its work in chunks of {@link #CHUNK} items and reports
+ * its progress after each one. At most {@link #MAX_JOBS} jobs are queued or running on a node, a new job is rejected
+ * with a {@link RejectedExecutionException} until one of them finishes. Finished jobs are kept for {@link #RETENTION}
+ * ms.
+ *
+ * Jobs are kept in memory by the node that accepted them. On a distributed deployment the progress of a job is only
+ * found on that node, and a job in progress is lost if the node stops.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class AlertsJobs {
+    private final MsgLogger msgLog = MsgLogger.LOGGER;
+    private final Logger log = Logger.getLogger(AlertsJobs.class);
+
+    static final int CHUNK = 500;
+    static final long RETENTION = 60 * 60 * 1000L;
+    static final String MAX_JOBS = "hawkular-alerts.max-jobs";
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Semaphore active = new Semaphore(Integer.parseInt(AlertProperties.getProperty(MAX_JOBS, "20")));
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    /**
+     * The work of a job
+     */
+    @FunctionalInterface
+    interface Task {
+        /**
+         * @param job to report the progress on
+         * @return the number of items processed
+         * @throws Exception any problem, the job fails with its message
+         */
+        int run(Job job) throws Exception;
+    }
+
+    /**
+     * @param tenantId the tenant of the job
+     * @param type the operation of the job
+     * @param total the items to process, 0 if not known
+     * @param task the work of the job
+     * @return the job, already submitted
+     * @throws RejectedExecutionException if there are already {@link #MAX_JOBS} jobs queued or running
+     */
+    Job submit(String tenantId, String type, int total, Task task) {
+        expire();
+        if (!active.tryAcquire()) {
+            throw new RejectedExecutionException("Too many background jobs, retry later");
+        }
+        Job job = new Job(UUID.randomUUID().toString(), tenantId, type, total);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> {
+                try {
+                    job.completed(task.run(job));
+                    if (log.isDebugEnabled()) {
+                        log.debug("Completed " + job);
+                    }
+                } catch (Exception e) {
+                    log.debug(e.getMessage(), e);
+                    msgLog.errorJobFailed(job.getId(), tenantId, e.getMessage());
+                    job.failed(e.getMessage());
+                } finally {
+                    active.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            jobs.remove(job.getId());
+            active.release();
+            throw e;
+        }
+        return job;
+    }
+
+
+    /**
+     * @return the job, null if it does not exist, it has expired or it is not of the tenant
+     */
+    Job getJob(String tenantId, String jobId) {
+        Job job = jobs.get(jobId);
+        return job == null || !job.getTenantId().equals(tenantId) ? null : job;
+    }
+
+    /**
+     * Run a task over the items in chunks, reporting the progress after each chunk.
+     *
+     * @return the number of items processed
+     */
+    static <T> int inChunks(Job job, List<T> items, ChunkTask<T> task) throws Exception {
+        for (int i = 0; i < items.size(); i += CHUNK) {
+            List<T> chunk = new ArrayList<>(items.subList(i, Math.min(i + CHUNK, items.size())));
+            task.run(chunk);
+            job.progress(chunk.size());
+        }
+        return items.size();
+    }
+
+    @FunctionalInterface
+    interface ChunkTask<T> {
+        void run(List<T> chunk) throws Exception;
+    }
+
+    private void expire() {
+        long expired = System.currentTimeMillis() - RETENTION;
+        jobs.values().removeIf(job -> job.isDone() && job.getEndTime() < expired);
+    }
+}
@@ -19,14 +19,18 @@ package org.hawkular.alerts.rest;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
 import static org.hawkular.alerts.rest.HawkularAlertsApp.TENANT_HEADER_NAME;
+import static org.hawkular.alerts.rest.LiveStream.SERVER_SENT_EVENTS;
+import static org.hawkular.alerts.rest.ResponseUtil.APPLICATION_NDJSON;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.ejb.EJB;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -37,15 +41,20 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import org.hawkular.alerts.api.model.event.Event;
-import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.Pager;
 import org.hawkular.alerts.api.services.AlertsService;
 import org.hawkular.alerts.api.services.EventsCriteria;
+import org.hawkular.alerts.engine.service.PartitionManager;
+import org.hawkular.alerts.rest.json.Job;
 import org.jboss.logging.Logger;
 
 import com.wordnik.swagger.annotations.Api;
@@ -71,6 +80,12 @@ public class EventsHandler {
     @EJB
     AlertsService alertsService;
 
+    @EJB
+    AlertsJobs alertsJobs;
+
+    @EJB
+    PartitionManager partitionManager;
+
     public EventsHandler() {
         log.debug("Creating instance.");
     }
@@ -123,13 +138,13 @@ public class EventsHandler {
 
     @GET
     @Path("/")
-    @Produces(APPLICATION_JSON)
+    @Produces({ APPLICATION_JSON, APPLICATION_NDJSON })
     @ApiOperation(
             value = "Get events with optional filtering")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Success"),
             @ApiResponse(code = 500, message = "Internal server error") })
-    public Response findEvents(
+    public void findEvents(
             @ApiParam(required = false, value = "filter out events created before this time, millisecond since epoch")
             @QueryParam("startTime")
             final Long startTime,
@@ -154,25 +169,89 @@ public class EventsHandler {
             @ApiParam(required = false, value = "return only thin events, do not include: evalSets")
             @QueryParam("thin")
             final Boolean thin,
+            @ApiParam(required = false, value = "return the full result as a stream, read and written in pages, "
+                    + "ignoring the paging parameters other than the order. Also selected by accepting "
+                    + "application/x-ndjson.")
+            @QueryParam("stream")
+            final Boolean stream,
             @Context
-            final UriInfo uri) {
+            final UriInfo uri,
+            @Context
+            final HttpHeaders headers,
+            @Suspended
+            final AsyncResponse response) {
         Pager pager = RequestUtil.extractPaging(uri);
         try {
             EventsCriteria criteria = buildCriteria(startTime, endTime, eventIds, triggerIds, categories, tags, thin);
-            Page<Event> eventPage = alertsService.getEvents(tenantId, criteria, pager);
-            if (log.isDebugEnabled()) {
-                log.debug("Events: " + eventPage);
+            if (ResponseUtil.isStreaming(stream, headers)) {
+                response.resume(ResponseUtil.streamingOk(alertsService.iterateEvents(tenantId, criteria, pager),
+                        headers));
+                return;
             }
-            if (isEmpty(eventPage)) {
-                return ResponseUtil.ok(eventPage);
-            }
-            return ResponseUtil.paginatedOk(eventPage, uri);
+            UriBuilder requestUri = uri.getRequestUriBuilder();
+            alertsService.getEventsAsync(tenantId, criteria, pager).whenComplete((eventPage, e) -> {
+                if (null != e) {
+                    log.debug(e.getMessage(), e);
+                    response.resume(ResponseUtil.failed(e));
+                    return;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Events: " + eventPage);
+                }
+                response.resume(isEmpty(eventPage) ? ResponseUtil.ok(eventPage)
+                        : ResponseUtil.paginatedOk(eventPage, requestUri));
+            });
         } catch (Exception e) {
             log.debug(e.getMessage(), e);
-            return ResponseUtil.internalError(e.getMessage());
+            response.resume(ResponseUtil.failed(e));
         }
     }
 
+    @GET
+    @Path("/watch")
+    @Produces(SERVER_SENT_EVENTS)
+    @ApiOperation(value = "Watch the new events with optional filtering",
+            notes = "Server-sent events, an 'event' event per event persisted by this node, including the events of " +
+                    "the new alerts. A client not keeping up with the stream is disconnected after an 'overflow' " +
+                    "event. Not available on a distributed deployment.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Success, stream opened"),
+            @ApiResponse(code = 400, message = "Bad Request/Invalid Parameters"),
+            @ApiResponse(code = 503, message = "Too many streams open or distributed deployment") })
+    public void watchEvents(
+            @Suspended final AsyncResponse response,
+            @Context final HttpServletRequest request,
+            @ApiParam(required = false, value = "filter out events for unspecified triggers, " +
+                    "comma separated list of trigger IDs")
+            @QueryParam("triggerIds")
+            final String triggerIds,
+            @ApiParam(required = false, value = "filter out events for unspecified categories, " +
+                    "comma separated list of category values")
+            @QueryParam("categories")
+            final String categories,
+            @ApiParam(required = false, value = "filter out events for unspecified tags, comma separated list of tags, "
+                    + "each tag of format 'name|value'. Specify '*' for value to match all values.")
+            @QueryParam("tags")
+            final String tags,
+            @ApiParam(required = false, value = "return only thin events, do not include: evalSets")
+            @QueryParam("thin")
+            final Boolean thin) {
+        try {
+            if (partitionManager.isDistributed()) {
+                response.resume(ResponseUtil.unavailable("Live streams are node-local, not available on a " +
+                        "distributed deployment"));
+                return;
+            }
+            EventsCriteria criteria = buildCriteria(null, null, null, triggerIds, categories, tags, thin);
+            if (!LiveStream.events(alertsService, tenantId, criteria, request)) {
+                response.resume(ResponseUtil.unavailable("Too many live streams open"));
+            }
+            // Otherwise the request stays suspended, the stream completes it when closed
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            response.resume(ResponseUtil.failed(e));
+        }
+    }
 
     @DELETE
     @Path("/{eventId}")
@@ -244,6 +323,53 @@ public class EventsHandler {
         }
     }
 
+    @PUT
+    @Path("/delete/job")
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Delete events with optional filtering in the background",
+            response = Job.class,
+            notes = "The progress of the job is returned by /jobs/{jobId}.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 202, message = "Success, Events deletion job started"),
+            @ApiResponse(code = 500, message = "Internal server error"),
+            @ApiResponse(code = 503, message = "Too many background jobs") })
+    public Response deleteEventsJob(
+            @ApiParam(required = false, value = "filter out events created before this time, millisecond since epoch")
+            @QueryParam("startTime")
+            final Long startTime,
+            @ApiParam(required = false, value = "filter out events created after this time, millisecond since epoch")
+            @QueryParam("endTime")
+            final Long endTime,
+            @ApiParam(required = false, value = "filter out events for unspecified eventIds, " +
+                    "comma separated list of event IDs") @QueryParam("eventIds") final String eventIds,
+            @ApiParam(required = false, value = "filter out events for unspecified triggers, " +
+                    "comma separated list of trigger IDs")
+            @QueryParam("triggerIds")
+            final String triggerIds,
+            @ApiParam(required = false, value = "filter out events for unspecified categories, " +
+                    "comma separated list of category values") @QueryParam("categories") final String categories,
+            @ApiParam(required = false, value = "filter out events for unspecified tags, comma separated list of tags, "
+                    + "each tag of format 'name|value'. Specify '*' for value to match all values.")
+            @QueryParam("tags")
+            final String tags
+            ) {
+        try {
+            EventsCriteria criteria = buildCriteria(startTime, endTime, eventIds, triggerIds, categories, tags, null);
+            final String tenant = tenantId;
+            Job job = alertsJobs.submit(tenant, "delete-events", 0,
+                    j -> alertsService.deleteEvents(tenant, criteria));
+            if (log.isDebugEnabled()) {
+                log.debug("Delete events job: " + job);
+            }
+            return ResponseUtil.accepted(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseUtil.unavailable(e.getMessage());
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            return ResponseUtil.internalError(e.getMessage());
+        }
+    }
+
     private EventsCriteria buildCriteria(Long startTime, Long endTime, String eventIds, String triggerIds,
             String categories, String tags, Boolean thin) {
         EventsCriteria criteria = new EventsCriteria();
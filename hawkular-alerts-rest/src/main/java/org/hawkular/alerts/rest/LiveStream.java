@@ -0,0 +1,355 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.rest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.hawkular.alerts.api.json.JsonUtil;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.services.AlertsCriteria;
+import org.hawkular.alerts.api.services.AlertsService;
+import org.hawkular.alerts.api.services.EventsCriteria;
+import org.hawkular.alerts.api.services.EventsListener;
+import org.hawkular.alerts.engine.impl.AlertProperties;
+import org.hawkular.alerts.rest.log.MsgLogger;
+import org.jboss.logging.Logger;
+
+/**
+ * A live stream of the alerts or the events of a tenant, written as server-sent events while the client stays
+ * connected. The stream listens to the alerts service, so new alerts and lifecycle changes are pushed as they are
+ * stored by this node, filtered with the criteria of the request, without queries to the backend.
+ *
+ * The stream is written on the suspended request with the non-blocking servlet output, no thread is held while the
+ * client is connected. The storing threads only buffer the elements, the writes happen on a shared writer thread or
+ * on the container threads when the connection can take more data.
+ *
+ * Every subscriber buffers up to <i>hawkular-alerts.live-stream-buffer</i> elements. A client not keeping up with
+ * its buffer is disconnected with a final <i>overflow</i> event, to query what it missed before reconnecting. A
+ * comment is written every {@link #HEARTBEAT} ms, which also finds out the closed connections. The streams open at a
+ * time are limited by <i>hawkular-alerts.live-streams</i>.
+ *
+ * The changes are notified by the node storing them only, so the streams are not available on a distributed
+ * deployment, where a client would silently miss the changes of the other nodes.
+ */
+public class LiveStream implements EventsListener, WriteListener, AsyncListener {
+    private static final MsgLogger msgLog = MsgLogger.LOGGER;
+    private static final Logger log = Logger.getLogger(LiveStream.class);
+
+    public static final String SERVER_SENT_EVENTS = "text/event-stream";
+
+    static final String LIVE_STREAM_BUFFER = "hawkular-alerts.live-stream-buffer";
+    static final String LIVE_STREAMS = "hawkular-alerts.live-streams";
+    static final long HEARTBEAT = 15 * 1000L;
+
+    /*
+        Elements written at a time
+     */
+    private static final int BATCH = 100;
+
+    private static final int bufferSize = Integer.parseInt(AlertProperties.getProperty(LIVE_STREAM_BUFFER, "1000"));
+    private static final int maxStreams = Integer.parseInt(AlertProperties.getProperty(LIVE_STREAMS, "100"));
+    private static final Semaphore streams = new Semaphore(maxStreams);
+    private static final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "LiveStream-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AlertsService alertsService;
+    private final String tenantId;
+    private final AlertsCriteria alertsCriteria;
+    private final EventsCriteria eventsCriteria;
+    private final String eventName;
+    private final boolean thin;
+    private final BlockingQueue<Event> buffer = new ArrayBlockingQueue<>(bufferSize);
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private volatile boolean overflow = false;
+    private volatile boolean heartbeat = false;
+    private AsyncContext context;
+    private ServletOutputStream out;
+    private ScheduledFuture<?> heartbeats;
+
+    /*
+        Guarded by this, only touched while draining
+     */
+    private boolean opened = false;
+    private boolean overflowSent = false;
+
+    private LiveStream(AlertsService alertsService, String tenantId, AlertsCriteria alertsCriteria,
+            EventsCriteria eventsCriteria) {
+        this.alertsService = alertsService;
+        this.tenantId = tenantId;
+        this.alertsCriteria = alertsCriteria;
+        this.eventsCriteria = eventsCriteria;
+        this.eventName = null != alertsCriteria ? "alert" : "event";
+        this.thin = null != alertsCriteria ? alertsCriteria.isThin() : eventsCriteria.isThin();
+    }
+
+    /**
+     * Open a stream of the new alerts and of their lifecycle changes on a suspended request. The request is
+     * completed by the stream when it is closed, it must not be resumed by the caller.
+     *
+     * @param alertsService the service notifying the changes
+     * @param tenantId the tenant of the stream
+     * @param criteria the filter of the alerts written
+     * @param request the suspended request the stream is written on
+     * @return true if the stream is open, false if no more streams are allowed
+     * @throws IOException on failure opening the response
+     */
+    static boolean alerts(AlertsService alertsService, String tenantId, AlertsCriteria criteria,
+            HttpServletRequest request) throws IOException {
+        return open(new LiveStream(alertsService, tenantId, criteria, null), request);
+    }
+
+    /**
+     * Open a stream of the new events on a suspended request. The request is completed by the stream when it is
+     * closed, it must not be resumed by the caller.
+     *
+     * @param alertsService the service notifying the changes
+     * @param tenantId the tenant of the stream
+     * @param criteria the filter of the events written
+     * @param request the suspended request the stream is written on
+     * @return true if the stream is open, false if no more streams are allowed
+     * @throws IOException on failure opening the response
+     */
+    static boolean events(AlertsService alertsService, String tenantId, EventsCriteria criteria,
+            HttpServletRequest request) throws IOException {
+        return open(new LiveStream(alertsService, tenantId, null, criteria), request);
+    }
+
+    private static boolean open(LiveStream stream, HttpServletRequest request) throws IOException {
+        if (!streams.tryAcquire()) {
+            return false;
+        }
+        try {
+            stream.start(request);
+        } catch (IOException | RuntimeException e) {
+            stream.close();
+            throw e;
+        }
+        return true;
+    }
+
+    private void start(HttpServletRequest request) throws IOException {
+        context = request.isAsyncStarted() ? request.getAsyncContext() : request.startAsync();
+        context.setTimeout(0);
+        context.addListener(this);
+        HttpServletResponse response = (HttpServletResponse) context.getResponse();
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(SERVER_SENT_EVENTS);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader("Cache-Control", "no-cache");
+        out = response.getOutputStream();
+        alertsService.registerListener(this);
+        heartbeats = writer.scheduleWithFixedDelay(() -> {
+            heartbeat = true;
+            schedule();
+        }, HEARTBEAT, HEARTBEAT, TimeUnit.MILLISECONDS);
+        // The container calls onWritePossible() once the output is ready
+        out.setWriteListener(this);
+    }
+
+    @Override
+    public void onAlerts(Collection<Alert> alerts) {
+        if (null == alertsCriteria) {
+            return;
+        }
+        boolean added = false;
+        for (Alert alert : alerts) {
+            if (tenantId.equals(alert.getTenantId()) && alertsCriteria.matches(alert)) {
+                offer(alert);
+                added = true;
+            }
+        }
+        if (added) {
+            schedule();
+        }
+    }
+
+    @Override
+    public void onEvents(Collection<Event> events) {
+        if (null == eventsCriteria) {
+            return;
+        }
+        boolean added = false;
+        for (Event event : events) {
+            if (tenantId.equals(event.getTenantId()) && eventsCriteria.matches(event)) {
+                offer(event);
+                added = true;
+            }
+        }
+        if (added) {
+            schedule();
+        }
+    }
+
+    /*
+        Called on the storing threads, it never blocks
+     */
+    private void offer(Event event) {
+        if (!overflow && !buffer.offer(event)) {
+            overflow = true;
+        }
+    }
+
+    /*
+        Hand the writes over to the writer thread, at most one drain pending per stream
+     */
+    private void schedule() {
+        if (!closed.get() && scheduled.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+    }
+
+    @Override
+    public void onWritePossible() {
+        drain();
+    }
+
+    /*
+        Write while the output takes data without blocking. When it does not, the container calls
+        onWritePossible() as soon as it does.
+     */
+    private synchronized void drain() {
+        scheduled.set(false);
+        if (closed.get()) {
+            return;
+        }
+        try {
+            while (out.isReady()) {
+                if (overflowSent) {
+                    close();
+                    return;
+                }
+                String text = next();
+                if (null == text) {
+                    return;
+                }
+                out.write(text.getBytes(StandardCharsets.UTF_8));
+                if (out.isReady()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            closed(e);
+        }
+    }
+
+    private String next() {
+        if (!opened) {
+            opened = true;
+            return ": " + eventName + "s of tenant " + tenantId + "\n\n";
+        }
+        if (overflow) {
+            overflowSent = true;
+            msgLog.warnLiveStreamOverflow(tenantId, bufferSize);
+            return "event: overflow\ndata: {\"buffer\":" + bufferSize + "}\n\n";
+        }
+        List<Event> batch = new ArrayList<>(BATCH);
+        buffer.drainTo(batch, BATCH);
+        if (!batch.isEmpty()) {
+            heartbeat = false;
+            StringBuilder sb = new StringBuilder();
+            for (Event event : batch) {
+                sb.append("event: ").append(eventName).append('\n')
+                        .append("data: ").append(JsonUtil.toJson(event, thin)).append("\n\n");
+            }
+            return sb.toString();
+        }
+        if (heartbeat) {
+            heartbeat = false;
+            return ": heartbeat\n\n";
+        }
+        return null;
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        closed(t);
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        closed(event.getThrowable());
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        // Nothing to do, the listener is added once started
+    }
+
+    private void closed(Throwable t) {
+        if (log.isDebugEnabled()) {
+            log.debug("Live stream of tenant " + tenantId + " closed: " + (null != t ? t.getMessage() : null));
+        }
+        close();
+    }
+
+    /*
+        Called once per stream from any thread, it releases the slot of the stream
+     */
+    private void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        alertsService.unregisterListener(this);
+        if (null != heartbeats) {
+            heartbeats.cancel(false);
+        }
+        buffer.clear();
+        streams.release();
+        if (null != context) {
+            try {
+                context.complete();
+            } catch (IllegalStateException e) {
+                // Already completed by the container
+            }
+        }
+    }
+}
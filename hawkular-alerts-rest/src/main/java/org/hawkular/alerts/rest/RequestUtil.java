@@ -16,8 +16,12 @@
  */
 package org.hawkular.alerts.rest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.UriInfo;
@@ -35,9 +39,18 @@ public class RequestUtil {
     private RequestUtil() {
     }
 
+    /**
+     * Paging from the <i>page</i>, <i>per_page</i>, <i>sort</i> and <i>order</i> query parameters. A <i>cursor</i>
+     * parameter, empty for the first page, selects the cursor mode, the following pages are requested with the
+     * cursor of the <i>next</i> link of the previous response.
+     *
+     * @param uri the uriInfo of the incoming request
+     * @return the pager of the request
+     */
     public static Pager extractPaging(UriInfo uri) {
         MultivaluedMap<String, String> params = uri.getQueryParameters();
 
+        String cursor = params.getFirst("cursor");
         String pageS = params.getFirst("page");
         String perPageS = params.getFirst("per_page");
         List<String> sort = params.get("sort");
@@ -62,6 +75,34 @@ public class RequestUtil {
             }
         }
 
+        if (cursor != null) {
+            return Pager.cursor(cursor.isEmpty() ? null : cursor, perPage, ordering);
+        }
         return new Pager(page, perPage, ordering);
     }
+
+    /**
+     * A request body that can be gzip compressed. The body is detected by its content, so it is decompressed once
+     * whether the container decodes the Content-Encoding or not.
+     *
+     * @param body the body of the incoming request
+     * @return the body, decompressed if it is gzip compressed
+     * @throws IOException on errors reading the body
+     */
+    public static InputStream decompress(InputStream body) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(body, 2);
+        byte[] header = new byte[2];
+        int read = 0;
+        int n;
+        while (read < header.length && (n = in.read(header, read, header.length - read)) != -1) {
+            read += n;
+        }
+        if (read > 0) {
+            in.unread(header, 0, read);
+        }
+        if (read == 2 && (header[0] & 0xFF) == 0x1F && (header[1] & 0xFF) == 0x8B) {
+            return new GZIPInputStream(in, 64 * 1024);
+        }
+        return in;
+    }
 }
@@ -18,18 +18,34 @@ package org.hawkular.alerts.rest;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
 
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.PageContext;
+import org.hawkular.alerts.api.model.paging.Pager;
 import org.hawkular.alerts.rest.json.Link;
+import org.hawkular.alerts.rest.log.MsgLogger;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 /**
  * Helper class used to build REST responses and deal with errors.
@@ -38,6 +54,26 @@ import org.hawkular.alerts.rest.json.Link;
  */
 public class ResponseUtil {
 
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    /**
+     * Media type of the binary data batches, see {@link org.hawkular.alerts.api.json.DataCodec}.
+     */
+    public static final String APPLICATION_DATA_BATCH = "application/x-hawkular-data-batch";
+
+    /*
+        Elements of a streamed response written between flushes
+     */
+    static final int STREAM_FLUSH_SIZE = 500;
+
+    private static final MsgLogger msgLog = MsgLogger.LOGGER;
+
+    /*
+        Streamed responses are flushed every STREAM_FLUSH_SIZE elements
+     */
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
     public static Response internalError(String message) {
         Map<String, String> errors = new HashMap<>();
         errors.put("errorMsg", "Internal error: " + message);
@@ -52,26 +88,167 @@ public class ResponseUtil {
                 .entity(errors).type(APPLICATION_JSON_TYPE).build();
     }
 
+    public static Response unavailable(String message) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("errorMsg", "Service unavailable: " + message);
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(errors).type(APPLICATION_JSON_TYPE).build();
+    }
+
     public static Response ok(Object entity) {
         return Response.status(Response.Status.OK).entity(entity).type(APPLICATION_JSON_TYPE).build();
     }
 
+    public static Response accepted(Object entity) {
+        return Response.status(Response.Status.ACCEPTED).entity(entity).type(APPLICATION_JSON_TYPE).build();
+    }
+
     public static <T> Response paginatedOk(Page<T> page, UriInfo uri) {
+        return paginatedOk(page, uri.getRequestUriBuilder());
+    }
+
+    /**
+     * As {@link #paginatedOk(Page, UriInfo)}, for the responses built once the request thread has returned, when the
+     * request context is no longer available.
+     *
+     * @param page the page of the response
+     * @param requestUri the builder of the request uri, taken on the request thread
+     * @return the response with the page and its paging headers
+     */
+    public static <T> Response paginatedOk(Page<T> page, UriBuilder requestUri) {
 
         //extract the data out of the page
         List<T> data = new ArrayList<>(page);
 
         Response.ResponseBuilder response = Response.status(Response.Status.OK).entity(data);
 
-        createPagingHeader(response, uri, page);
+        createPagingHeader(response, requestUri, page);
 
         return response.build();
     }
 
+    /**
+     * @param e the failure of an asynchronous query
+     * @return a bad request if it was caused by an IllegalArgumentException, service unavailable if the query was
+     * rejected because the query threads are saturated, an internal error otherwise
+     */
+    public static Response failed(Throwable e) {
+        Throwable cause = e instanceof CompletionException && null != e.getCause() ? e.getCause() : e;
+        if (cause instanceof RejectedExecutionException) {
+            return unavailable("too many concurrent queries, retry later");
+        }
+        IllegalArgumentException badArgument = findIllegalArgument(cause);
+        if (badArgument != null) {
+            return badRequest(badArgument.getMessage());
+        }
+        return internalError(cause.getMessage());
+    }
+
+    /**
+     * @param stream the <i>stream</i> query parameter of the request
+     * @param headers the headers of the request
+     * @return true if the full result is requested as a stream, by the parameter or by accepting NDJSON
+     */
+    public static boolean isStreaming(Boolean stream, HttpHeaders headers) {
+        return Boolean.TRUE.equals(stream) || acceptsNdjson(headers);
+    }
+
+    /**
+     * Stream the full result of a query, a json array or NDJSON if the client accepts it, gzip encoded if the client
+     * accepts it. The result is iterated as it is written, so the memory used is the one of the iterator, see
+     * {@link org.hawkular.alerts.api.services.AlertsService#iterateAlerts}.
+     *
+     * The first element is read before the response is built, so the errors of the query are reported with their
+     * status.
+     *
+     * @param result the iterator of the result of the query
+     * @param headers the headers of the request
+     * @return the streamed response
+     */
+    public static <T> Response streamingOk(Iterator<T> result, HttpHeaders headers) {
+        return streamingOk(result, acceptsNdjson(headers), headers);
+    }
+
+    /**
+     * @param result the iterator of the result of the query
+     * @param ndjson true to write NDJSON, false to write a json array
+     * @param headers the headers of the request
+     * @return the streamed response
+     * @see #streamingOk(Iterator, HttpHeaders)
+     */
+    public static <T> Response streamingOk(Iterator<T> result, boolean ndjson, HttpHeaders headers) {
+        boolean gzip = acceptsGzip(headers);
+        // reads the first chunk of the result
+        result.hasNext();
+        StreamingOutput output = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, true) : out;
+            long count = 0;
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(target)) {
+                if (ndjson) {
+                    generator.setRootValueSeparator(new SerializedString("\n"));
+                } else {
+                    generator.writeStartArray();
+                }
+                while (result.hasNext()) {
+                    objectMapper.writeValue(generator, result.next());
+                    if (++count % STREAM_FLUSH_SIZE == 0) {
+                        generator.flush();
+                    }
+                }
+                if (ndjson) {
+                    if (count > 0) {
+                        generator.writeRaw('\n');
+                    }
+                } else {
+                    generator.writeEndArray();
+                }
+            } catch (IOException e) {
+                msgLog.warnStreamInterrupted(count, e.getMessage());
+                throw e;
+            } catch (Exception e) {
+                msgLog.warnStreamInterrupted(count, e.getMessage());
+                throw new IOException(e);
+            }
+        };
+        Response.ResponseBuilder response = Response.status(Response.Status.OK)
+                .entity(output)
+                .type(ndjson ? APPLICATION_NDJSON : MediaType.APPLICATION_JSON);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.build();
+    }
+
+    private static boolean acceptsNdjson(HttpHeaders headers) {
+        List<MediaType> accepted = null == headers ? null : headers.getAcceptableMediaTypes();
+        return null != accepted && !accepted.isEmpty()
+                && APPLICATION_NDJSON.equalsIgnoreCase(accepted.get(0).getType() + "/" + accepted.get(0).getSubtype());
+    }
+
+    private static boolean acceptsGzip(HttpHeaders headers) {
+        String encodings = null == headers ? null : headers.getHeaderString(HttpHeaders.ACCEPT_ENCODING);
+        return null != encodings && encodings.toLowerCase().contains("gzip");
+    }
+
     public static Response ok() {
         return Response.status(Response.Status.OK).type(APPLICATION_JSON_TYPE).build();
     }
 
+    /**
+     * Services are EJBs, runtime exceptions thrown by them reach the handlers wrapped.
+     *
+     * @param e an exception thrown by a service
+     * @return the IllegalArgumentException that caused it, or null
+     */
+    public static IllegalArgumentException findIllegalArgument(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IllegalArgumentException) {
+                return (IllegalArgumentException) cause;
+            }
+        }
+        return null;
+    }
+
     public static Response badRequest(String message) {
         Map<String, String> errors = new HashMap<>();
         errors.put("errorMsg", "Bad request: " + message);
@@ -83,6 +260,8 @@ public class ResponseUtil {
      * Create the paging headers for collections and attach them to the passed builder. Those are represented as
      * <i>Link:</i> http headers that carry the URL for the pages and the respective relation.
      * <p>In addition a <i>X-Total-Count</i> header is created that contains the whole collection size.</p>
+     * <p>Pages fetched by cursor only link to the next page, with its cursor, and have no <i>X-Total-Count</i>
+     * header if the size of the collection is not known.</p>
      *
      * @param builder    The ResponseBuilder that receives the headers
      * @param uriInfo    The uriInfo of the incoming request to build the urls
@@ -90,17 +269,26 @@ public class ResponseUtil {
      */
     public static void createPagingHeader(final Response.ResponseBuilder builder, final UriInfo uriInfo,
             final Page<?> resultList) {
+        createPagingHeader(builder, uriInfo.getRequestUriBuilder(), resultList);
+    }
+
+    private static void createPagingHeader(final Response.ResponseBuilder builder, final UriBuilder requestUri,
+            final Page<?> resultList) {
 
         UriBuilder uriBuilder;
 
         PageContext pc = resultList.getPageContext();
+        if (pc instanceof Pager && ((Pager) pc).isCursor()) {
+            createCursorHeader(builder, requestUri, resultList);
+            return;
+        }
         int page = pc.getPageNumber();
 
         List<Link> links = new ArrayList<>();
 
         if (pc.isLimited() && resultList.getTotalSize() > (pc.getPageNumber() + 1) * pc.getPageSize()) {
             int nextPage = page + 1;
-            uriBuilder = uriInfo.getRequestUriBuilder(); // adds ?q, ?per_page, ?page, etc. if needed
+            uriBuilder = requestUri.clone(); // adds ?q, ?per_page, ?page, etc. if needed
             uriBuilder.replaceQueryParam("page", nextPage);
 
             links.add(new Link("next", uriBuilder.build().toString()));
@@ -108,7 +296,7 @@ public class ResponseUtil {
 
         if (page > 0) {
             int prevPage = page - 1;
-            uriBuilder = uriInfo.getRequestUriBuilder(); // adds ?q, ?per_page, ?page, etc. if needed
+            uriBuilder = requestUri.clone(); // adds ?q, ?per_page, ?page, etc. if needed
             uriBuilder.replaceQueryParam("page", prevPage);
             links.add(new Link("prev", uriBuilder.build().toString()));
         }
@@ -120,13 +308,13 @@ public class ResponseUtil {
                 lastPage -= 1;
             }
 
-            uriBuilder = uriInfo.getRequestUriBuilder(); // adds ?q, ?per_page, ?page, etc. if needed
+            uriBuilder = requestUri.clone(); // adds ?q, ?per_page, ?page, etc. if needed
             uriBuilder.replaceQueryParam("page", lastPage);
             links.add(new Link("last", uriBuilder.build().toString()));
         }
 
         // A link to the current page
-        uriBuilder = uriInfo.getRequestUriBuilder(); // adds ?q, ?per_page, ?page, etc. if needed
+        uriBuilder = requestUri.clone(); // adds ?q, ?per_page, ?page, etc. if needed
 
         StringBuilder linkHeader = new StringBuilder(new Link("current", uriBuilder.build().toString())
                 .rfc5988String());
@@ -140,4 +328,23 @@ public class ResponseUtil {
         // Create a total size header
         builder.header("X-Total-Count", resultList.getTotalSize());
     }
+
+    private static void createCursorHeader(final Response.ResponseBuilder builder, final UriBuilder requestUri,
+            final Page<?> resultList) {
+
+        StringBuilder linkHeader = new StringBuilder(new Link("current",
+                requestUri.clone().build().toString()).rfc5988String());
+
+        if (resultList.getNextCursor() != null) {
+            UriBuilder uriBuilder = requestUri.clone();
+            uriBuilder.replaceQueryParam("cursor", resultList.getNextCursor());
+            linkHeader.append(", ").append(new Link("next", uriBuilder.build().toString()).rfc5988String());
+        }
+
+        builder.header("Link", linkHeader.toString());
+
+        if (resultList.getTotalSize() != Page.UNKNOWN_SIZE) {
+            builder.header("X-Total-Count", resultList.getTotalSize());
+        }
+    }
 }
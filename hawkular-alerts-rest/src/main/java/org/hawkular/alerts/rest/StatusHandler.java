@@ -31,6 +31,8 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 
 import org.hawkular.alerts.api.services.DefinitionsService;
+import org.hawkular.alerts.engine.service.AlertsEngine;
+import org.hawkular.alerts.engine.service.MigrationStatus;
 
 import com.wordnik.swagger.annotations.Api;
 
@@ -46,10 +48,14 @@ public class StatusHandler {
     private static final String STATUS = "status";
     private static final String STARTED = "STARTED";
     private static final String FAILED = "FAILED";
+    private static final String MIGRATION = "triggers-migration";
 
     @EJB
     DefinitionsService definitionsService;
 
+    @EJB
+    AlertsEngine alertsEngine;
+
     @Inject
     ManifestUtil manifestUtil;
 
@@ -65,6 +71,14 @@ public class StatusHandler {
         } catch (Exception e) {
             status.put(STATUS, FAILED);
         }
+        MigrationStatus migration = alertsEngine.getMigrationStatus();
+        if (migration != null) {
+            status.put(MIGRATION, migration.isFinished() ? "FINISHED" : "RUNNING");
+            status.put(MIGRATION + "-total", String.valueOf(migration.getTotal()));
+            status.put(MIGRATION + "-loaded", String.valueOf(migration.getLoaded()));
+            status.put(MIGRATION + "-failed", String.valueOf(migration.getFailed()));
+            status.put(MIGRATION + "-pending", String.valueOf(migration.getPending()));
+        }
         return ResponseUtil.ok(status);
     }
 
@@ -19,10 +19,13 @@ package org.hawkular.alerts.rest;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
 import static org.hawkular.alerts.rest.HawkularAlertsApp.TENANT_HEADER_NAME;
+import static org.hawkular.alerts.rest.ResponseUtil.APPLICATION_NDJSON;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -37,8 +40,12 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import org.hawkular.alerts.api.exception.NotFoundException;
@@ -47,14 +54,15 @@ import org.hawkular.alerts.api.json.JacksonDeserializer;
 import org.hawkular.alerts.api.json.UnorphanMemberInfo;
 import org.hawkular.alerts.api.model.condition.Condition;
 import org.hawkular.alerts.api.model.dampening.Dampening;
-import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.Pager;
+import org.hawkular.alerts.api.model.trigger.FullTrigger;
 import org.hawkular.alerts.api.model.trigger.Mode;
 import org.hawkular.alerts.api.model.trigger.Trigger;
 import org.hawkular.alerts.api.services.DefinitionsService;
 import org.hawkular.alerts.api.services.TriggersCriteria;
 import org.jboss.logging.Logger;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wordnik.swagger.annotations.Api;
@@ -96,7 +104,7 @@ public class TriggersHandler {
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Success"),
             @ApiResponse(code = 500, message = "Internal server error") })
-    public Response findTriggers(
+    public void findTriggers(
             @ApiParam(required = false, value = "filter out triggers for unspecified triggerIds, " +
                     "comma separated list of trigger IDs")
             @QueryParam("triggerIds")
@@ -108,21 +116,27 @@ public class TriggersHandler {
             @ApiParam(required = false, value = "return only thin triggers. Currently Ignored")
             @QueryParam("thin")
             final Boolean thin,
-            @Context final UriInfo uri) {
+            @Context final UriInfo uri,
+            @Suspended final AsyncResponse response) {
         Pager pager = RequestUtil.extractPaging(uri);
         try {
             TriggersCriteria criteria = buildCriteria(triggerIds, tags, thin);
-            Page<Trigger> triggerPage = definitions.getTriggers(tenantId, criteria, pager);
-            if (log.isDebugEnabled()) {
-                log.debug("Triggers: " + triggerPage);
-            }
-            if (isEmpty(triggerPage)) {
-                return ResponseUtil.ok(triggerPage);
-            }
-            return ResponseUtil.paginatedOk(triggerPage, uri);
+            UriBuilder requestUri = uri.getRequestUriBuilder();
+            definitions.getTriggersAsync(tenantId, criteria, pager).whenComplete((triggerPage, e) -> {
+                if (null != e) {
+                    log.debug(e.getMessage(), e);
+                    response.resume(ResponseUtil.failed(e));
+                    return;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Triggers: " + triggerPage);
+                }
+                response.resume(isEmpty(triggerPage) ? ResponseUtil.ok(triggerPage)
+                        : ResponseUtil.paginatedOk(triggerPage, requestUri));
+            });
         } catch (Exception e) {
             log.debug(e.getMessage(), e);
-            return ResponseUtil.internalError(e.getMessage());
+            response.resume(ResponseUtil.failed(e));
         }
     }
 
@@ -452,6 +466,70 @@ public class TriggersHandler {
         }
     }
 
+    @POST
+    @Path("/import")
+    @Consumes({ APPLICATION_JSON, APPLICATION_NDJSON })
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(
+            value = "Import full trigger definitions in bulk",
+            notes = "Triggers are parsed and persisted in batches as the request is read, an imported trigger " +
+                    "replaces a trigger with the same id. Returns the number of imported triggers.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Success, Triggers imported"),
+            @ApiResponse(code = 500, message = "Internal server error"),
+            @ApiResponse(code = 400, message = "Bad Request/Invalid Parameters") })
+    public Response importTriggers(
+            @ApiParam(value = "A json array, or a sequence of json objects (NDJSON), of full trigger definitions: " +
+                    "trigger, dampenings, conditions and actions", name = "fullTriggers", required = true)
+            final InputStream fullTriggers) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(fullTriggers)) {
+            int imported = definitions.importTriggers(tenantId, new JacksonDeserializer.FullTriggerIterator(parser));
+            if (log.isDebugEnabled()) {
+                log.debug("Imported triggers: " + imported);
+            }
+            return ResponseUtil.ok(Collections.singletonMap("imported", imported));
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            IllegalArgumentException badArgument = ResponseUtil.findIllegalArgument(e);
+            if (badArgument != null) {
+                return ResponseUtil.badRequest(badArgument.getMessage());
+            }
+            return ResponseUtil.internalError(e.getMessage());
+        }
+    }
+
+    @GET
+    @Path("/export")
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(
+            value = "Export the full trigger definitions of the tenant",
+            responseContainer = "List",
+            response = FullTrigger.class,
+            notes = "The definitions are streamed as a json array, they can be imported back with " +
+                    "POST /triggers/import. Accept application/x-ndjson to get a json object per line.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Success, Triggers exported"),
+            @ApiResponse(code = 500, message = "Internal server error") })
+    public Response exportTriggers(@Context final HttpHeaders headers) {
+        return exportTriggers(false, headers);
+    }
+
+    @GET
+    @Path("/export")
+    @Produces(APPLICATION_NDJSON)
+    public Response exportTriggersNdjson(@Context final HttpHeaders headers) {
+        return exportTriggers(true, headers);
+    }
+
+    private Response exportTriggers(boolean ndjson, HttpHeaders headers) {
+        try {
+            return ResponseUtil.streamingOk(definitions.iterateFullTriggers(tenantId), ndjson, headers);
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            return ResponseUtil.internalError(e.getMessage());
+        }
+    }
+
     @DELETE
     @Path("/{triggerId}")
     @ApiOperation(value = "Delete an existing trigger definition")
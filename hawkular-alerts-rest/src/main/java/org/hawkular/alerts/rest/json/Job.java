@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.rest.json;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.wordnik.swagger.annotations.ApiModel;
+import com.wordnik.swagger.annotations.ApiModelProperty;
+
+/**
+ * Progress of a bulk operation running in the background.
+ *
+ * The counters are updated by the thread running the job and read by the requests polling it.
+ */
+@ApiModel("Progress of a bulk operation running in the background")
+public class Job {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final String tenantId;
+    private final String type;
+    private volatile Status status = Status.RUNNING;
+    private volatile int total;
+    private volatile int processed;
+    private volatile String errorMsg;
+    private final long startTime;
+    private volatile long endTime;
+
+    public Job(String id, String tenantId, String type, int total) {
+        this.id = id;
+        this.tenantId = tenantId;
+        this.type = type;
+        this.total = total;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    @ApiModelProperty("Id of the job")
+    public String getId() {
+        return id;
+    }
+
+    @JsonIgnore
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    @ApiModelProperty("Operation of the job")
+    public String getType() {
+        return type;
+    }
+
+    @ApiModelProperty("RUNNING, COMPLETED or FAILED")
+    public Status getStatus() {
+        return status;
+    }
+
+    @ApiModelProperty("Items to process, 0 if not known until the job completes")
+    public int getTotal() {
+        return total;
+    }
+
+    @ApiModelProperty("Items processed")
+    public int getProcessed() {
+        return processed;
+    }
+
+    @ApiModelProperty("Error of a failed job")
+    public String getErrorMsg() {
+        return errorMsg;
+    }
+
+    @ApiModelProperty("Start time of the job, millisecond since epoch")
+    public long getStartTime() {
+        return startTime;
+    }
+
+    @ApiModelProperty("End time of the job, millisecond since epoch, 0 while running")
+    public long getEndTime() {
+        return endTime;
+    }
+
+    @JsonIgnore
+    public boolean isDone() {
+        return status != Status.RUNNING;
+    }
+
+    public void progress(int items) {
+        processed += items;
+    }
+
+    public void completed(int processed) {
+        this.processed = processed;
+        if (total < processed) {
+            total = processed;
+        }
+        endTime = System.currentTimeMillis();
+        status = Status.COMPLETED;
+    }
+
+    public void failed(String errorMsg) {
+        this.errorMsg = errorMsg;
+        endTime = System.currentTimeMillis();
+        status = Status.FAILED;
+    }
+
+    @Override
+    public String toString() {
+        return "Job{" +
+                "id='" + id + '\'' +
+                ", tenantId='" + tenantId + '\'' +
+                ", type='" + type + '\'' +
+                ", status=" + status +
+                ", total=" + total +
+                ", processed=" + processed +
+                '}';
+    }
+}
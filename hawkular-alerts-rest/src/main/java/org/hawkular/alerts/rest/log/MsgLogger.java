@@ -37,4 +37,17 @@ public interface MsgLogger extends BasicLogger {
     @Message(id = 230001, value = "Error processing rules: [%s]")
     void errorProcessingRules(String msg);
 
+    @LogMessage(level = Logger.Level.ERROR)
+    @Message(id = 230002, value = "Job [%s] of tenant [%s] failed: [%s]")
+    void errorJobFailed(String jobId, String tenantId, String msg);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 230003, value = "Streamed response interrupted after [%s] elements: [%s]")
+    void warnStreamInterrupted(long count, String msg);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 230004, value = "Live stream of tenant [%s] disconnected, the client did not keep up with [%s] " +
+            "buffered elements")
+    void warnLiveStreamOverflow(String tenantId, int buffered);
+
 }